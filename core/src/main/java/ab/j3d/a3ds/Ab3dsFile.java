@@ -19,6 +19,9 @@
 package ab.j3d.a3ds;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
 
 import ab.j3d.*;
@@ -99,7 +102,10 @@ public class Ab3dsFile
 	}
 
 	/**
-	 * Loads a 3DS model from a file.
+	 * Loads a 3DS model from a file. The file is read into memory with a
+	 * single bulk read. It is not memory-mapped, because chunks keep a view on
+	 * their data until it is decoded, and a mapped file could be modified or
+	 * truncated in the meantime (e.g. by {@link #save} to the same file).
 	 *
 	 * @param file File to be loaded.
 	 *
@@ -108,19 +114,27 @@ public class Ab3dsFile
 	public void load( @NotNull final File file )
 	throws IOException
 	{
-		final FileInputStream fis = new FileInputStream( file );
-		try
-		{
-			load( fis );
-		}
-		finally
+		final ByteBuffer buffer;
+		try ( final FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
 		{
-			fis.close();
+			final long size = channel.size();
+			if ( size > (long)Integer.MAX_VALUE )
+			{
+				throw new IOException( "File too large: " + file );
+			}
+
+			buffer = ByteBuffer.allocate( (int)size );
+			while ( buffer.hasRemaining() && ( channel.read( buffer ) >= 0 ) )
+			{
+				// read until the buffer is full
+			}
+			buffer.flip();
 		}
+		load( new Ab3dsInputStream( buffer ) );
 	}
 
 	/**
-	 * Loads a 3DS model from the given stream.
+	 * Loads a 3DS model from the given stream. The stream is read completely.
 	 *
 	 * @param in Stream to load from.
 	 *
@@ -129,8 +143,21 @@ public class Ab3dsFile
 	public void load( @NotNull final InputStream in )
 	throws IOException
 	{
-		final Ab3dsInputStream is = new Ab3dsInputStream( in );
+		load( new Ab3dsInputStream( in ) );
+	}
 
+	/**
+	 * Loads a 3DS model from the given stream. Chunks containing geometry are
+	 * decoded when their data is first needed, so only the structure of the
+	 * file is parsed here.
+	 *
+	 * @param is Stream to load from.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void load( @NotNull final Ab3dsInputStream is )
+	throws IOException
+	{
 		if ( DEBUG )
 		{
 			System.out.println( "Reading 3DS file." );
@@ -161,14 +188,14 @@ public class Ab3dsFile
 	{
 		try
 		{
-			final FileOutputStream fos = new FileOutputStream( file );
+			final OutputStream out = new BufferedOutputStream( new FileOutputStream( file ) );
 			try
 			{
-				save( fos );
+				save( out );
 			}
 			finally
 			{
-				fos.close();
+				out.close();
 			}
 		}
 		catch ( IOException e )
@@ -195,6 +222,7 @@ public class Ab3dsFile
 		}
 
 		_main.write( os );
+		out.flush();
 
 		if ( DEBUG )
 		{
@@ -425,6 +453,13 @@ public class Ab3dsFile
 
 				if ( ( faceList != null ) && ( vertexList != null ) )
 				{
+					final float[] coordinates = vertexList.getCoordinates();
+					final List<Vector3D> vertexCoordinates = new ArrayList<Vector3D>( vertexList.getVertexCount() );
+					for ( int i = 0; i < coordinates.length; i += 3 )
+					{
+						vertexCoordinates.add( new Vector3D( coordinates[ i ], coordinates[ i + 1 ], coordinates[ i + 2 ] ) );
+					}
+
 					/*
 					 * Map materials by face.
 					 */
@@ -451,10 +486,9 @@ public class Ab3dsFile
 					final List<Vector3D> faceNormals = new ArrayList<Vector3D>( faceList.getFaceCount() );
 					for ( int faceIndex = 0; faceIndex < faceList.getFaceCount(); faceIndex++ )
 					{
-						final FaceList.Triangle face = faceList.getFace( faceIndex );
 						for ( int faceVertexIndex = 1; faceVertexIndex <= 3; faceVertexIndex++ )
 						{
-							final int objectVertexIndex = face.getVertex( faceVertexIndex );
+							final int objectVertexIndex = faceList.getFaceVertex( faceIndex, faceVertexIndex );
 							List<Integer> faces = facesByVertex.get( objectVertexIndex );
 							if ( faces == null )
 							{
@@ -464,9 +498,9 @@ public class Ab3dsFile
 							faces.add( Integer.valueOf( faceIndex ) );
 						}
 
-						final Vector3D v1 = vertexList.getVertex( face.getVertex( 1 ) );
-						final Vector3D v2 = vertexList.getVertex( face.getVertex( 2 ) );
-						final Vector3D v3 = vertexList.getVertex( face.getVertex( 3 ) );
+						final Vector3D v1 = vertexCoordinates.get( faceList.getFaceVertex( faceIndex, 1 ) );
+						final Vector3D v2 = vertexCoordinates.get( faceList.getFaceVertex( faceIndex, 2 ) );
+						final Vector3D v3 = vertexCoordinates.get( faceList.getFaceVertex( faceIndex, 3 ) );
 
 						final Vector3D normal = Vector3D.cross( v2.minus( v1 ), v3.minus( v1 ) );
 						faceNormals.add( normal.normalize() );
@@ -484,12 +518,10 @@ public class Ab3dsFile
 
 					for ( int faceIndex = 0; faceIndex < faceList.getFaceCount(); faceIndex++ )
 					{
-						final FaceList.Triangle face = faceList.getFace( faceIndex );
-
 						final List<Vertex3D> vertices = new ArrayList<Vertex3D>( 3 );
 						for ( int faceVertexIndex = 1; faceVertexIndex <= 3; faceVertexIndex++ )
 						{
-							final int objectVertexIndex = face.getVertex( faceVertexIndex );
+							final int objectVertexIndex = faceList.getFaceVertex( faceIndex, faceVertexIndex );
 
 							/*
 							 * Calculate vertex normal based on smoothing groups.
@@ -551,7 +583,7 @@ public class Ab3dsFile
 								}
 							}
 
-							final Vector3D vertexCoordinate = vertexList.getVertex( objectVertexIndex );
+							final Vector3D vertexCoordinate = vertexCoordinates.get( objectVertexIndex );
 							final float colorMapU = ( mappingCoordinates == null ) ? Float.NaN : mappingCoordinates.getMapU( objectVertexIndex );
 							final float colorMapV = ( mappingCoordinates == null ) ? Float.NaN : mappingCoordinates.getMapV( objectVertexIndex );
 
@@ -568,11 +600,6 @@ public class Ab3dsFile
 						builder.addFace( vertices, CCW_TRIANGLE_TESSELLATION, appearance, false, twoSided );
 					}
 
-					final Collection<Vector3D> vertexCoordinates = new ArrayList<Vector3D>( vertexList.getVertexCount() );
-					for ( int i = 0; i < vertexList.getVertexCount(); i++ )
-					{
-						vertexCoordinates.add( vertexList.getVertex( i ) );
-					}
 					builder.setVertexCoordinates( vertexCoordinates );
 
 					final Object3D object = builder.getObject3D();
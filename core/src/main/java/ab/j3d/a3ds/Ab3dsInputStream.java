@@ -20,11 +20,15 @@
  */
 package ab.j3d.a3ds;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.*;
+
+import org.jetbrains.annotations.*;
 
 /**
- * Inputstream specially to read 3ds types.
+ * Inputstream specially to read 3ds types. All data is read from a byte
+ * buffer, which allows arrays to be read in bulk and allows chunks to keep a
+ * view on their data to decode it later.
  *
  * @author  Sjoerd Bouwman
  * @version $Revision$ $Date$
@@ -32,14 +36,9 @@ import java.io.InputStream;
 public final class Ab3dsInputStream
 {
 	/**
-	 * Current file pointer.
-	 */
-	private long _pointer;
-
-	/**
-	 * Stream to read from.
+	 * Buffer to read from (little-endian).
 	 */
-	private final InputStream _is;
+	private final ByteBuffer _buffer;
 
 	/**
 	 * If true, end of file is received.
@@ -47,15 +46,37 @@ public final class Ab3dsInputStream
 	private boolean _eof;
 
 	/**
-	 * Constructor.
+	 * Constructor. The stream is read completely.
 	 *
 	 * @param   is      Inputstream to read from.
+	 *
+	 * @throws  IOException when reading failed.
 	 */
 	public Ab3dsInputStream( final InputStream is )
+		throws IOException
 	{
-		_is      = is;
-		_pointer = 0;
-		_eof     = false;
+		final ByteArrayOutputStream out = new ByteArrayOutputStream( Math.max( 8192, is.available() ) );
+		final byte[] buffer = new byte[ 8192 ];
+		int read;
+		while ( ( read = is.read( buffer ) ) >= 0 )
+		{
+			out.write( buffer, 0, read );
+		}
+
+		_buffer = ByteBuffer.wrap( out.toByteArray() ).order( ByteOrder.LITTLE_ENDIAN );
+		_eof = false;
+	}
+
+	/**
+	 * Constructor. Reads the remaining bytes of the given buffer, e.g. a
+	 * memory-mapped file. The position of the given buffer is not modified.
+	 *
+	 * @param   buffer  Buffer to read from.
+	 */
+	public Ab3dsInputStream( @NotNull final ByteBuffer buffer )
+	{
+		_buffer = buffer.slice().order( ByteOrder.LITTLE_ENDIAN );
+		_eof = false;
 	}
 
 	/**
@@ -65,7 +86,7 @@ public final class Ab3dsInputStream
 	 */
 	public long getPointer()
 	{
-		return _pointer;
+		return (long)_buffer.position();
 	}
 
 	/**
@@ -103,16 +124,15 @@ public final class Ab3dsInputStream
 	{
 		final byte result;
 
-		final int r = _is.read();
-		if ( r < 0 )
+		final ByteBuffer buffer = _buffer;
+		if ( !buffer.hasRemaining() )
 		{
 			_eof = true;
 			result = 0;
 		}
 		else
 		{
-			_pointer += 1;
-			result = (byte)r;
+			result = buffer.get();
 		}
 
 		return result;
@@ -132,7 +152,7 @@ public final class Ab3dsInputStream
 	}
 
 	/**
-	 * Read int from stream.
+	 * Read int (unsigned 16-bit value) from stream.
 	 *
 	 * @return  Read int.
 	 *
@@ -143,25 +163,48 @@ public final class Ab3dsInputStream
 	{
 		final int result;
 
-		final int high = _is.read();
-		final int low  = _is.read();
-
-		if ( ( high < 0 ) || ( low < 0 ) )
+		final ByteBuffer buffer = _buffer;
+		if ( buffer.remaining() < Chunk.INT_SIZE )
 		{
 			_eof = true;
 			result = 0;
 		}
 		else
 		{
-			_pointer += 2;
-			result = high + ( low << 8 );
+			result = (int)buffer.getShort() & 0xFFFF;
 		}
 
 		return result;
 	}
 
 	/**
-	 * Read long from stream.
+	 * Read ints (unsigned 16-bit values) from stream.
+	 *
+	 * @param   dest    Array to store ints in.
+	 * @param   offset  Index in array of first int.
+	 * @param   length  Number of ints to read.
+	 *
+	 * @throws  IOException when reading failed.
+	 */
+	public void readInts( @NotNull final int[] dest, final int offset, final int length )
+		throws IOException
+	{
+		final ByteBuffer buffer = _buffer;
+		if ( buffer.remaining() < length * Chunk.INT_SIZE )
+		{
+			throw new EOFException( "Expected " + length + " ints, but only " + buffer.remaining() + " bytes remain" );
+		}
+
+		final ShortBuffer shorts = buffer.asShortBuffer();
+		for ( int i = 0; i < length; i++ )
+		{
+			dest[ offset + i ] = (int)shorts.get( i ) & 0xFFFF;
+		}
+		buffer.position( buffer.position() + length * Chunk.INT_SIZE );
+	}
+
+	/**
+	 * Read long (unsigned 32-bit value) from stream.
 	 *
 	 * @return the read long.
 	 * @throws IOException when reading failed.
@@ -169,9 +212,21 @@ public final class Ab3dsInputStream
 	public long readLong()
 		throws IOException
 	{
-		final long low = readInt();
-		final long high = readInt();
-		return low + ( high << 16 );
+		final long result;
+
+		final ByteBuffer buffer = _buffer;
+		if ( buffer.remaining() >= Chunk.LONG_SIZE )
+		{
+			result = (long)buffer.getInt() & 0xFFFFFFFFL;
+		}
+		else
+		{
+			final long low = readInt();
+			final long high = readInt();
+			result = low + ( high << 16 );
+		}
+
+		return result;
 	}
 
 	/**
@@ -183,13 +238,41 @@ public final class Ab3dsInputStream
 	public String readString()
 		throws IOException
 	{
-		String str = "";
+		final StringBuilder sb = new StringBuilder();
 
 		byte b;
 		while ( ( b = readByte() ) != 0 )
-			str += (char)b;
+		{
+			sb.append( (char)b );
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a view of the given number of bytes at the current position and
+	 * skips those bytes. This allows a chunk to decode its data later.
+	 *
+	 * @param   length  Number of bytes.
+	 *
+	 * @return  Little-endian buffer with the bytes.
+	 *
+	 * @throws  IOException when reading failed.
+	 */
+	@NotNull
+	public ByteBuffer readSlice( final int length )
+		throws IOException
+	{
+		final ByteBuffer buffer = _buffer;
+		if ( ( length < 0 ) || ( buffer.remaining() < length ) )
+		{
+			throw new EOFException( "Expected " + length + " bytes, but only " + buffer.remaining() + " bytes remain" );
+		}
 
-		return str;
+		final ByteBuffer result = buffer.slice();
+		result.limit( length );
+		buffer.position( buffer.position() + length );
+		return result.order( ByteOrder.LITTLE_ENDIAN );
 	}
 
 	/**
@@ -202,7 +285,7 @@ public final class Ab3dsInputStream
 	public void skip( final long count )
 		throws IOException
 	{
-		_is.skip( count );
-		_pointer += count;
+		final ByteBuffer buffer = _buffer;
+		buffer.position( (int)Math.min( (long)buffer.limit(), Math.max( 0L, (long)buffer.position() + count ) ) );
 	}
 }
@@ -20,7 +20,10 @@
  */
 package ab.j3d.a3ds;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.*;
+
+import org.jetbrains.annotations.*;
 
 /**
  * This chunk specifies a list of faces for a mesh.
@@ -32,9 +35,22 @@ public final class FaceList
 	extends HierarchyChunk
 {
 	/**
-	 * Array of faces in list.
+	 * Number of faces in list.
+	 */
+	private int _faceCount = 0;
+
+	/**
+	 * Vertex indices and info of each face (4 per face); {@code null} if not
+	 * decoded yet.
+	 */
+	@Nullable
+	private int[] _faces = new int[ 0 ];
+
+	/**
+	 * Encoded faces; {@code null} if decoded.
 	 */
-	private Triangle[] _faces = null;
+	@Nullable
+	private ByteBuffer _data = null;
 
 	public static final class FaceMaterial
 		extends DataChunk
@@ -75,8 +91,7 @@ public final class FaceList
 				System.out.println( "  Material = " + name );
 
 			faces = new int[ is.readInt() ];
-			for ( int i = 0; i < faces.length; i++ )
-				faces[ i ] = is.readInt();
+			is.readInts( faces, 0, faces.length );
 		}
 
 		public void write( final Ab3dsOutputStream os )
@@ -170,7 +185,25 @@ public final class FaceList
 	 */
 	public Triangle getFace( final int index )
 	{
-		return _faces[index];
+		final int[] faces = getFaces();
+		return new Triangle( faces[ 4 * index ], faces[ 4 * index + 1 ], faces[ 4 * index + 2 ], faces[ 4 * index + 3 ] );
+	}
+
+	/**
+	 * Get vertex index of a face.
+	 *
+	 * @param   faceIndex       Index of face.
+	 * @param   faceVertexIndex Index of vertex in face (1..3).
+	 *
+	 * @return  Vertex index.
+	 */
+	public int getFaceVertex( final int faceIndex, final int faceVertexIndex )
+	{
+		if ( ( faceVertexIndex < 1 ) || ( faceVertexIndex > 3 ) )
+		{
+			throw new RuntimeException( "Face always has 3 vertices (index 1..3)" );
+		}
+		return getFaces()[ 4 * faceIndex + faceVertexIndex - 1 ];
 	}
 
 	/**
@@ -180,7 +213,36 @@ public final class FaceList
 	 */
 	public int getFaceCount()
 	{
-		return _faces.length;
+		return _faceCount;
+	}
+
+	/**
+	 * Get vertex indices and info of all faces.
+	 *
+	 * @return  Vertex indices and info (4 values per face).
+	 */
+	@NotNull
+	public int[] getFaces()
+	{
+		int[] result = _faces;
+		if ( result == null )
+		{
+			final ByteBuffer data = _data;
+			if ( data == null )
+			{
+				throw new IllegalStateException( "no data" );
+			}
+
+			result = new int[ 4 * _faceCount ];
+			final ShortBuffer shorts = data.asShortBuffer();
+			for ( int i = 0; i < result.length; i++ )
+			{
+				result[ i ] = (int)shorts.get( i ) & 0xFFFF;
+			}
+			_faces = result;
+			_data = null;
+		}
+		return result;
 	}
 
 	/**
@@ -190,33 +252,40 @@ public final class FaceList
 	 */
 	public void set( final Triangle[] faces )
 	{
-		_faces = faces;
+		final int[] indices = new int[ 4 * faces.length ];
+		for ( int i = 0 ; i < faces.length ; i++ )
+		{
+			indices[ 4 * i ] = faces[ i ].v1;
+			indices[ 4 * i + 1 ] = faces[ i ].v2;
+			indices[ 4 * i + 2 ] = faces[ i ].v3;
+			indices[ 4 * i + 3 ] = faces[ i ].info;
+		}
+		_faceCount = faces.length;
+		_faces = indices;
+		_data = null;
 	}
 
 	public long getSize()
 	{
-		return super.getSize() + INT_SIZE + _faces.length * 4 * INT_SIZE;
+		return super.getSize() + INT_SIZE + _faceCount * 4 * INT_SIZE;
 	}
 
+	/**
+	 * Reads the chunk from the input stream. Faces are not decoded until they
+	 * are needed.
+	 *
+	 * @param   is  Stream to read from.
+	 *
+	 * @throws IOException when an io error occurred.
+	 */
 	public void read( final Ab3dsInputStream is )
 		throws IOException
 	{
 		readHeader( is );
-
 		final int faceCount = is.readInt();
-
-		_faces = new Triangle[ faceCount ];
-
-		for ( int i = 0 ; i < faceCount ; i++ )
-		{
-			final int v1   = is.readInt();
-			final int v2   = is.readInt();
-			final int v3   = is.readInt();
-			final int info = is.readInt();
-
-			_faces[ i ] = new Triangle( v1 , v2 , v3 , info );
-		}
-
+		_faceCount = faceCount;
+		_data = is.readSlice( faceCount * 4 * INT_SIZE );
+		_faces = null;
 		readSubChunks( is );
 	}
 
@@ -227,18 +296,12 @@ public final class FaceList
 			System.out.println( "  - Writing face list" );
 
 		writeHeader( os );
-
-		os.writeInt( _faces.length );
-
-		for ( int i = 0 ; i < _faces.length ; i++ )
+		os.writeInt( _faceCount );
+		final int[] faces = getFaces();
+		for ( int i = 0 ; i < 4 * _faceCount ; i++ )
 		{
-			os.writeInt( _faces[i].v1 );
-			os.writeInt( _faces[i].v2 );
-			os.writeInt( _faces[i].v3 );
-			os.writeInt( _faces[i].info );
+			os.writeInt( faces[ i ] );
 		}
-
 		writeSubChunks( os );
 	}
-
 }
@@ -21,9 +21,12 @@
 package ab.j3d.a3ds;
 
 import java.io.*;
+import java.nio.*;
+
+import org.jetbrains.annotations.*;
 
 /**
- * Texture mapping coordinates.
+ * Texture mapping coordinates. Coordinates are decoded when first needed.
  *
  * @author  Sjoerd Bouwman
  * @version $Revision$ $Date$
@@ -32,14 +35,22 @@ public final class MappingCoordinates
 	extends DataChunk
 {
 	/**
-	 * Texture X-coordinate for each vertex (a.k.a. U-coordinates).
+	 * Number of vertices.
 	 */
-	private float[] _mapX;
+	private int _vertexCount = 0;
 
 	/**
-	 * Texture Y-coordinate for each vertex (a.k.a. V-coordinates).
+	 * Texture coordinates (U and V for each vertex); {@code null} if not
+	 * decoded yet.
 	 */
-	private float[] _mapY;
+	@Nullable
+	private float[] _coordinates = new float[ 0 ];
+
+	/**
+	 * Encoded texture coordinates; {@code null} if decoded.
+	 */
+	@Nullable
+	private ByteBuffer _data = null;
 
 	/**
 	 * Constructor of Chunk with ChunkID to be used
@@ -51,9 +62,6 @@ public final class MappingCoordinates
 	{
 		super( id );
 
-		_mapX = null;
-		_mapY = null;
-
 		if ( Ab3dsFile.DEBUG )
 			System.out.println( "Mapping coordinates" );
 	}
@@ -67,7 +75,7 @@ public final class MappingCoordinates
 	 */
 	public float getMapU( final int vertexIndex )
 	{
-		return _mapX[ vertexIndex ];
+		return getCoordinates()[ 2 * vertexIndex ];
 	}
 
 	/**
@@ -79,36 +87,76 @@ public final class MappingCoordinates
 	 */
 	public float getMapV( final int vertexIndex )
 	{
-		return _mapY[ vertexIndex ];
+		return getCoordinates()[ 2 * vertexIndex + 1 ];
+	}
+
+	/**
+	 * Returns the number of vertices with texture coordinates.
+	 *
+	 * @return  Number of vertices.
+	 */
+	public int getVertexCount()
+	{
+		return _vertexCount;
+	}
+
+	/**
+	 * Returns the texture coordinates of all vertices.
+	 *
+	 * @return  Texture coordinates (U and V for each vertex).
+	 */
+	@NotNull
+	public float[] getCoordinates()
+	{
+		float[] result = _coordinates;
+		if ( result == null )
+		{
+			final ByteBuffer data = _data;
+			if ( data == null )
+			{
+				throw new IllegalStateException( "no data" );
+			}
+
+			result = new float[ 2 * _vertexCount ];
+			data.asFloatBuffer().get( result );
+			_coordinates = result;
+			_data = null;
+		}
+		return result;
+	}
+
+	/**
+	 * Set all texture coordinates at once.
+	 *
+	 * @param   coordinates     Texture coordinates (U and V for each vertex).
+	 */
+	public void set( @NotNull final float[] coordinates )
+	{
+		_vertexCount = coordinates.length / 2;
+		_coordinates = coordinates;
+		_data = null;
 	}
 
 	public long getSize()
 	{
-		return HEADER_SIZE + INT_SIZE + 2 * _mapX.length * FLOAT_SIZE;
+		return HEADER_SIZE + INT_SIZE + 2 * _vertexCount * FLOAT_SIZE;
 	}
 
 	public void read( final Ab3dsInputStream is )
 		throws IOException
 	{
 		readHeader( is );
-
 		final int count = is.readInt();
-
-		_mapX = new float[ count ];
-		_mapY = new float[ count ];
-
-		for ( int i = 0 ; i < count ; i++ )
-		{
-			_mapX[ i ] = is.readFloat();
-			_mapY[ i ] = is.readFloat();
-		}
+		_vertexCount = count;
+		_data = is.readSlice( 2 * count * FLOAT_SIZE );
+		_coordinates = null;
 
 		if ( Ab3dsFile.DEBUG )
 		{
 			System.out.println( "Mapping" );
 			for ( int i = 0 ; i < count ; i++ )
 			{
-				System.out.println( "Vertex : " + i + " x:" + _mapX[ i ] + " y:" + _mapY[ i ] );
+				System.out.println( "Vertex : " + i + " x:" + getMapU( i ) + " y:" + getMapV( i ) );
 			}
 		}
 	}
@@ -117,14 +165,11 @@ public final class MappingCoordinates
 		throws IOException
 	{
 		writeHeader( os );
-
-		os.writeInt( _mapX.length );
-
-		for ( int i = 0 ; i < _mapX.length ; i++ )
+		os.writeInt( _vertexCount );
+		final float[] coordinates = getCoordinates();
+		for ( int i = 0 ; i < 2 * _vertexCount ; i++ )
 		{
-			os.writeFloat( _mapX[ i ] );
-			os.writeFloat( _mapY[ i ] );
+			os.writeFloat( coordinates[ i ] );
 		}
 	}
-
 }
@@ -21,11 +21,14 @@
 package ab.j3d.a3ds;
 
 import java.io.*;
+import java.nio.*;
 
 import ab.j3d.*;
+import org.jetbrains.annotations.*;
 
 /**
- * This chunk specifies a list of vertices for a mesh.
+ * This chunk specifies a list of vertices for a mesh. Coordinates are
+ * decoded when first needed.
  *
  * @author  Sjoerd Bouwman
  * @version $Revision$ $Date$
@@ -33,7 +36,23 @@ import ab.j3d.*;
 public class VertexList
 	extends DataChunk
 {
-	private Vector3D[] _vertices;
+	/**
+	 * Number of vertices.
+	 */
+	private int _vertexCount = 0;
+
+	/**
+	 * Vertex coordinates (x, y, z for each vertex); {@code null} if not
+	 * decoded yet.
+	 */
+	@Nullable
+	private float[] _coordinates = new float[ 0 ];
+
+	/**
+	 * Encoded vertex coordinates; {@code null} if decoded.
+	 */
+	@Nullable
+	private ByteBuffer _data = null;
 
 	/**
 	 * Default constructor for generation purposes.
@@ -62,7 +81,7 @@ public class VertexList
 	 */
 	public long getSize()
 	{
-		return HEADER_SIZE + 2 + _vertices.length * 3 * FLOAT_SIZE;
+		return HEADER_SIZE + 2 + _vertexCount * 3 * FLOAT_SIZE;
 	}
 
 	/**
@@ -74,7 +93,8 @@ public class VertexList
 	 */
 	public Vector3D getVertex( final int i )
 	{
-		return _vertices[i];
+		final float[] coordinates = getCoordinates();
+		return new Vector3D( coordinates[ 3 * i ], coordinates[ 3 * i + 1 ], coordinates[ 3 * i + 2 ] );
 	}
 
 	/**
@@ -84,11 +104,37 @@ public class VertexList
 	 */
 	public int getVertexCount()
 	{
-		return _vertices.length;
+		return _vertexCount;
+	}
+
+	/**
+	 * Get coordinates of all vertices.
+	 *
+	 * @return  Vertex coordinates (x, y, z for each vertex).
+	 */
+	@NotNull
+	public float[] getCoordinates()
+	{
+		float[] result = _coordinates;
+		if ( result == null )
+		{
+			final ByteBuffer data = _data;
+			if ( data == null )
+			{
+				throw new IllegalStateException( "no data" );
+			}
+
+			result = new float[ 3 * _vertexCount ];
+			data.asFloatBuffer().get( result );
+			_coordinates = result;
+			_data = null;
+		}
+		return result;
 	}
 
 	/**
-	 * Reads the chunk from the input stream.
+	 * Reads the chunk from the input stream. Coordinates are not decoded
+	 * until they are needed.
 	 *
 	 * @param   is  Stream to read from.
 	 *
@@ -98,18 +144,10 @@ public class VertexList
 		throws IOException
 	{
 		readHeader( is );
-
 		final int vertexCount = is.readInt();
-
-		_vertices = new Vector3D[ vertexCount ];
-
-		for ( int i = 0 ; i < vertexCount ; i++ )
-		{
-			final float x = is.readFloat();
-			final float y = is.readFloat();
-			final float z = is.readFloat();
-			_vertices[i] = new Vector3D( x , y , z );
-		}
+		_vertexCount = vertexCount;
+		_data = is.readSlice( vertexCount * 3 * FLOAT_SIZE );
+		_coordinates = null;
 	}
 
 	/**
@@ -119,7 +157,16 @@ public class VertexList
 	 */
 	public void set( final Vector3D[] vertices )
 	{
-		_vertices = vertices;
+		final float[] coordinates = new float[ 3 * vertices.length ];
+		for ( int i = 0 ; i < vertices.length ; i++ )
+		{
+			coordinates[ 3 * i ] = (float)vertices[ i ].x;
+			coordinates[ 3 * i + 1 ] = (float)vertices[ i ].y;
+			coordinates[ 3 * i + 2 ] = (float)vertices[ i ].z;
+		}
+		_vertexCount = vertices.length;
+		_coordinates = coordinates;
+		_data = null;
 	}
 
 	/**
@@ -134,16 +181,11 @@ public class VertexList
 	{
 		if ( Ab3dsFile.DEBUG )
 			System.out.println( "  - Writing vertex list" );
-
 		writeHeader( os );
-
-		os.writeInt( _vertices.length );
-
-		for ( int i = 0 ; i < _vertices.length ; i++ )
+		os.writeInt( _vertexCount );
+		for ( final float coordinate : getCoordinates() )
 		{
-			os.writeFloat( (float)_vertices[ i ].x );
-			os.writeFloat( (float)_vertices[ i ].y );
-			os.writeFloat( (float)_vertices[ i ].z );
+			os.writeFloat( coordinate );
 		}
 	}
 }
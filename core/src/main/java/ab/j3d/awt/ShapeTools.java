@@ -321,46 +321,63 @@ public class ShapeTools
 	 *                 approximate.
 	 *
 	 * @return {@link Tessellator} for the shape.
+	 *
+	 * @see Tessellator#create
 	 */
 	public static Tessellator createTessellator( final Shape shape, final double flatness )
 	{
-		return new Tessellator( createTessellatorMesh( shape, flatness ) );
+		return createTessellator( shape, flatness, null );
 	}
 
 	/**
-	 * Create a mesh to tessellate. Any curves in the shape are flattened using the
-	 * given flatness.
+	 * Create tessellator for a shape, using the given cache to reuse the
+	 * result for shapes with the same contours. Any curves in the shape are
+	 * flattened using the given flatness.
 	 *
 	 * @param shape    Shape to tessellate.
 	 * @param flatness Maximum distance between line segments and the curves they
 	 *                 approximate.
+	 * @param cache    Cache of tessellators; {@code null} to disable caching.
+	 *
+	 * @return {@link Tessellator} for the shape. If a cache is used, it may be
+	 * shared and its results must not be modified.
 	 *
-	 * @return {@link Mesh} for the shape.
+	 * @see Tessellator#create
 	 */
-	private static Mesh createTessellatorMesh( @NotNull final Shape shape, final double flatness )
+	public static Tessellator createTessellator( final Shape shape, final double flatness, @Nullable final TessellatorCache cache )
 	{
 		final PathIterator pathIterator = shape.getPathIterator( null, flatness );
+		final Mesh.WindingRule windingRule = getWindingRule( pathIterator );
+		final List<List<Vector2D>> contours = new ArrayList<List<Vector2D>>();
+		addPathContours( contours, pathIterator );
+		return ( cache != null ) ? cache.getTessellator( windingRule, contours ) : Tessellator.create( windingRule, contours );
+	}
 
-		final Mesh.WindingRule windingRule;
+	/**
+	 * Get mesh winding rule for a {@link PathIterator}.
+	 *
+	 * @param pathIterator Path iterator.
+	 *
+	 * @return Winding rule.
+	 */
+	private static Mesh.WindingRule getWindingRule( @NotNull final PathIterator pathIterator )
+	{
+		final Mesh.WindingRule result;
 
 		switch ( pathIterator.getWindingRule() )
 		{
 			case PathIterator.WIND_EVEN_ODD:
-				windingRule = Mesh.WindingRule.ODD;
+				result = Mesh.WindingRule.ODD;
 				break;
 
 			case PathIterator.WIND_NON_ZERO:
-				windingRule = Mesh.WindingRule.NONZERO;
+				result = Mesh.WindingRule.NONZERO;
 				break;
 
 			default:
 				throw new AssertionError( "Illegal winding rule: " + pathIterator.getWindingRule() );
 		}
 
-		final Mesh result = new Mesh( windingRule );
-		addPathToMesh( result, pathIterator );
-		result.finish();
-
 		return result;
 	}
 
@@ -371,6 +388,29 @@ public class ShapeTools
 	 * @param pathIterator Path iterator to create contour from.
 	 */
 	public static void addPathToMesh( final Mesh mesh, @NotNull final PathIterator pathIterator )
+	{
+		final List<List<Vector2D>> contours = new ArrayList<List<Vector2D>>();
+		addPathContours( contours, pathIterator );
+
+		for ( final List<Vector2D> contour : contours )
+		{
+			mesh.beginContour();
+			for ( final Vector2D point : contour )
+			{
+				mesh.addVertex( point );
+			}
+			mesh.endContour();
+		}
+	}
+
+	/**
+	 * Add contour(s) from a {@link PathIterator} as they should be added to a
+	 * {@link Mesh}. Collinear points are removed.
+	 *
+	 * @param contours     Contours to add to.
+	 * @param pathIterator Path iterator to create contour from.
+	 */
+	private static void addPathContours( final List<List<Vector2D>> contours, @NotNull final PathIterator pathIterator )
 	{
 		final DoubleArray points = new DoubleArray();
 		final double[] coords = new double[ 2 ];
@@ -418,7 +458,7 @@ public class ShapeTools
 						double prevY = points.get( size - 3 );
 						curX = points.get( size - 2 );
 						curY = points.get( size - 1 );
-						boolean begun = false;
+						List<Vector2D> contour = null;
 						double beginX = curX;
 						double beginY = curY;
 
@@ -430,14 +470,13 @@ public class ShapeTools
 							// add vertex for each point that is not collinear to its predecessor and successor.
 							if ( isPlanar( prevX, prevY, curX, curY, x, y ) )
 							{
-								if ( !begun )
+								if ( contour == null )
 								{
-									mesh.beginContour();
+									contour = new ArrayList<Vector2D>();
 									beginX = curX;
 									beginY = curY;
-									begun = true;
 								}
-								mesh.addVertex( curX, curY );
+								contour.add( new Vector2D( curX, curY ) );
 								prevX = curX;
 								prevY = curY;
 							}
@@ -447,14 +486,14 @@ public class ShapeTools
 						}
 
 						// add start segment if necessary
-						if ( begun )
+						if ( contour != null )
 						{
 							if ( isPlanar( prevX, prevY, curX, curY, beginX, beginY ) )
 							{
-								mesh.addVertex( curX, curY );
+								contour.add( new Vector2D( curX, curY ) );
 							}
 
-							mesh.endContour();
+							contours.add( contour );
 						}
 					}
 
@@ -0,0 +1,627 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view;
+
+import java.awt.image.*;
+import java.io.*;
+import java.lang.ref.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.appearance.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Texture library that caches images loaded by another texture library. The
+ * least-recently-used images are evicted when the total size of the decoded
+ * images exceeds a maximum. Optionally, evicted images are kept using soft
+ * references, so they can be reused until the garbage collector needs the
+ * memory.
+ *
+ * <p>Concurrent requests for the same texture map are combined, so the image
+ * is only loaded once. Images that could not be found ({@code null}) or that
+ * failed to load are not cached.
+ *
+ * <p>Cached images are shared and must not be modified. Image streams, files
+ * and URLs are provided by the underlying library without caching. This class
+ * is thread-safe.
+ *
+ * @author Peter S. Heijnen
+ */
+public class CachingTextureLibrary
+implements TextureLibrary
+{
+	/**
+	 * Default maximum total size of cached images, in bytes.
+	 */
+	public static final long DEFAULT_MAXIMUM_BYTES = 128L * 1024L * 1024L;
+
+	/**
+	 * Texture library to load images from.
+	 */
+	@NotNull
+	private final TextureLibrary _textureLibrary;
+
+	/**
+	 * Cached images, in least-recently-used order.
+	 */
+	private final LinkedHashMap<TextureMap, BufferedImage> _images = new LinkedHashMap<TextureMap, BufferedImage>( 16, 0.75f, true );
+
+	/**
+	 * Evicted images, if soft references are used.
+	 */
+	private final Map<TextureMap, ImageReference> _evictedImages = new HashMap<TextureMap, ImageReference>();
+
+	/**
+	 * Queue of evicted images that were garbage collected.
+	 */
+	private final ReferenceQueue<BufferedImage> _referenceQueue = new ReferenceQueue<BufferedImage>();
+
+	/**
+	 * Images that are being loaded.
+	 */
+	private final Map<TextureMap, FutureTask<BufferedImage>> _pendingImages = new HashMap<TextureMap, FutureTask<BufferedImage>>();
+
+	/**
+	 * Maximum total size of cached images, in bytes.
+	 */
+	private long _maximumBytes;
+
+	/**
+	 * Whether evicted images are kept using soft references.
+	 */
+	private boolean _softReferences;
+
+	/**
+	 * Total size of cached images, in bytes.
+	 */
+	private long _bytes = 0L;
+
+	/**
+	 * Number of requests served from the cache.
+	 */
+	private long _hits = 0L;
+
+	/**
+	 * Number of requests served from soft references (included in
+	 * {@link #_hits}).
+	 */
+	private long _softHits = 0L;
+
+	/**
+	 * Number of requests for images that were not cached.
+	 */
+	private long _misses = 0L;
+
+	/**
+	 * Number of images loaded from the underlying library.
+	 */
+	private long _loads = 0L;
+
+	/**
+	 * Total time spent loading images, in nanoseconds.
+	 */
+	private long _loadTime = 0L;
+
+	/**
+	 * Number of evicted images.
+	 */
+	private long _evictions = 0L;
+
+	/**
+	 * Constructs a new instance with default settings.
+	 *
+	 * @param textureLibrary Texture library to load images from.
+	 */
+	public CachingTextureLibrary( @NotNull final TextureLibrary textureLibrary )
+	{
+		this( textureLibrary, DEFAULT_MAXIMUM_BYTES, false );
+	}
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param textureLibrary Texture library to load images from.
+	 * @param maximumBytes   Maximum total size of cached images, in bytes.
+	 * @param softReferences Whether to keep evicted images using soft
+	 *                       references.
+	 */
+	public CachingTextureLibrary( @NotNull final TextureLibrary textureLibrary, final long maximumBytes, final boolean softReferences )
+	{
+		if ( maximumBytes < 0L )
+		{
+			throw new IllegalArgumentException( "maximumBytes: " + maximumBytes );
+		}
+
+		_textureLibrary = textureLibrary;
+		_maximumBytes = maximumBytes;
+		_softReferences = softReferences;
+	}
+
+	/**
+	 * Returns the texture library that images are loaded from.
+	 *
+	 * @return Texture library.
+	 */
+	@NotNull
+	public TextureLibrary getTextureLibrary()
+	{
+		return _textureLibrary;
+	}
+
+	@Nullable
+	@Override
+	public BufferedImage loadImage( @NotNull final TextureMap textureMap )
+	throws IOException
+	{
+		BufferedImage result;
+		FutureTask<BufferedImage> task = null;
+		boolean load = false;
+
+		synchronized ( this )
+		{
+			result = getCachedImage( textureMap );
+			if ( result != null )
+			{
+				_hits++;
+			}
+			else
+			{
+				_misses++;
+
+				task = _pendingImages.get( textureMap );
+				if ( task == null )
+				{
+					task = new FutureTask<BufferedImage>( new Callable<BufferedImage>()
+					{
+						@Override
+						public BufferedImage call()
+						throws IOException
+						{
+							return _textureLibrary.loadImage( textureMap );
+						}
+					} );
+
+					_pendingImages.put( textureMap, task );
+					load = true;
+				}
+			}
+		}
+
+		if ( task != null )
+		{
+			if ( load )
+			{
+				final long start = System.nanoTime();
+				task.run();
+				final long loadTime = System.nanoTime() - start;
+
+				synchronized ( this )
+				{
+					_pendingImages.remove( textureMap );
+					_loads++;
+					_loadTime += loadTime;
+
+					final BufferedImage image = getDone( task );
+					if ( image != null )
+					{
+						putImage( textureMap, image );
+					}
+				}
+			}
+
+			result = getResult( task );
+		}
+
+		return result;
+	}
+
+	@Nullable
+	@Override
+	public InputStream openImageStream( @NotNull final TextureMap textureMap )
+	throws IOException
+	{
+		return _textureLibrary.openImageStream( textureMap );
+	}
+
+	@Nullable
+	@Override
+	public File getFile( @NotNull final TextureMap textureMap )
+	{
+		return _textureLibrary.getFile( textureMap );
+	}
+
+	@Nullable
+	@Override
+	public URL getUrl( @NotNull final TextureMap textureMap )
+	{
+		return _textureLibrary.getUrl( textureMap );
+	}
+
+	/**
+	 * Returns the cached image for the given texture map. An image that is
+	 * only softly referenced is moved back into the cache.
+	 *
+	 * @param textureMap Texture map.
+	 *
+	 * @return Cached image; {@code null} if not cached.
+	 */
+	@Nullable
+	private BufferedImage getCachedImage( @NotNull final TextureMap textureMap )
+	{
+		BufferedImage result = _images.get( textureMap );
+		if ( result == null )
+		{
+			expungeEvictedImages();
+
+			final ImageReference reference = _evictedImages.remove( textureMap );
+			if ( reference != null )
+			{
+				result = reference.get();
+				if ( result != null )
+				{
+					_softHits++;
+					putImage( textureMap, result );
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds an image to the cache and evicts images as needed. Images that are
+	 * larger than the cache are not cached.
+	 *
+	 * @param textureMap Texture map.
+	 * @param image      Image to add.
+	 */
+	private void putImage( @NotNull final TextureMap textureMap, @NotNull final BufferedImage image )
+	{
+		final long size = getImageSize( image );
+		if ( size <= _maximumBytes )
+		{
+			final BufferedImage previous = _images.put( textureMap, image );
+			if ( previous != null )
+			{
+				_bytes -= getImageSize( previous );
+			}
+			_bytes += size;
+			evict();
+		}
+		else if ( _softReferences )
+		{
+			_evictedImages.put( textureMap, new ImageReference( textureMap, image, _referenceQueue ) );
+		}
+	}
+
+	/**
+	 * Evicts the least-recently-used images until the total size of the cached
+	 * images does not exceed the maximum.
+	 */
+	private void evict()
+	{
+		final long maximumBytes = _maximumBytes;
+		final boolean softReferences = _softReferences;
+
+		for ( final Iterator<Map.Entry<TextureMap, BufferedImage>> iterator = _images.entrySet().iterator(); ( _bytes > maximumBytes ) && iterator.hasNext(); )
+		{
+			final Map.Entry<TextureMap, BufferedImage> entry = iterator.next();
+			final BufferedImage image = entry.getValue();
+			_bytes -= getImageSize( image );
+			_evictions++;
+
+			if ( softReferences )
+			{
+				final TextureMap textureMap = entry.getKey();
+				_evictedImages.put( textureMap, new ImageReference( textureMap, image, _referenceQueue ) );
+			}
+
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Removes evicted images that were garbage collected.
+	 */
+	private void expungeEvictedImages()
+	{
+		for ( Reference<? extends BufferedImage> reference = _referenceQueue.poll(); reference != null; reference = _referenceQueue.poll() )
+		{
+			final TextureMap textureMap = ( (ImageReference)reference )._textureMap;
+			if ( _evictedImages.get( textureMap ) == reference )
+			{
+				_evictedImages.remove( textureMap );
+			}
+		}
+	}
+
+	/**
+	 * Returns the result of a completed load task.
+	 *
+	 * @param task Completed task.
+	 *
+	 * @return Loaded image; {@code null} if the image was not found or failed
+	 * to load.
+	 */
+	@Nullable
+	private static BufferedImage getDone( @NotNull final FutureTask<BufferedImage> task )
+	{
+		BufferedImage result;
+		try
+		{
+			result = task.get();
+		}
+		catch ( final Exception ignored )
+		{
+			result = null;
+		}
+		return result;
+	}
+
+	/**
+	 * Waits for a load task to complete and returns its result.
+	 *
+	 * @param task Task to wait for.
+	 *
+	 * @return Loaded image.
+	 *
+	 * @throws IOException if the image failed to load.
+	 */
+	@Nullable
+	private static BufferedImage getResult( @NotNull final FutureTask<BufferedImage> task )
+	throws IOException
+	{
+		final BufferedImage result;
+		try
+		{
+			result = task.get();
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "Interrupted while waiting for image" );
+		}
+		catch ( final ExecutionException e )
+		{
+			final Throwable cause = e.getCause();
+			if ( cause instanceof IOException )
+			{
+				throw (IOException)cause;
+			}
+			if ( cause instanceof RuntimeException )
+			{
+				throw (RuntimeException)cause;
+			}
+			if ( cause instanceof Error )
+			{
+				throw (Error)cause;
+			}
+			throw new IOException( cause );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the (estimated) size of a decoded image in memory.
+	 *
+	 * @param image Image.
+	 *
+	 * @return Size of image, in bytes.
+	 */
+	public static long getImageSize( @NotNull final BufferedImage image )
+	{
+		final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+		return (long)dataBuffer.getSize() * (long)dataBuffer.getNumBanks() * (long)( ( DataBuffer.getDataTypeSize( dataBuffer.getDataType() ) + 7 ) / 8 );
+	}
+
+	/**
+	 * Returns the maximum total size of cached images.
+	 *
+	 * @return Maximum size, in bytes.
+	 */
+	public synchronized long getMaximumBytes()
+	{
+		return _maximumBytes;
+	}
+
+	/**
+	 * Sets the maximum total size of cached images. Images are evicted if
+	 * needed.
+	 *
+	 * @param maximumBytes Maximum size, in bytes.
+	 */
+	public synchronized void setMaximumBytes( final long maximumBytes )
+	{
+		if ( maximumBytes < 0L )
+		{
+			throw new IllegalArgumentException( "maximumBytes: " + maximumBytes );
+		}
+
+		_maximumBytes = maximumBytes;
+		evict();
+	}
+
+	/**
+	 * Returns whether evicted images are kept using soft references.
+	 *
+	 * @return {@code true} if soft references are used.
+	 */
+	public synchronized boolean isSoftReferences()
+	{
+		return _softReferences;
+	}
+
+	/**
+	 * Sets whether evicted images are kept using soft references. Disabling
+	 * this drops all softly referenced images.
+	 *
+	 * @param softReferences {@code true} to use soft references.
+	 */
+	public synchronized void setSoftReferences( final boolean softReferences )
+	{
+		_softReferences = softReferences;
+		if ( !softReferences )
+		{
+			_evictedImages.clear();
+		}
+	}
+
+	/**
+	 * Returns the total size of cached images. Softly referenced images are
+	 * not included.
+	 *
+	 * @return Size of cached images, in bytes.
+	 */
+	public synchronized long getBytes()
+	{
+		return _bytes;
+	}
+
+	/**
+	 * Returns the number of cached images. Softly referenced images are not
+	 * included.
+	 *
+	 * @return Number of cached images.
+	 */
+	public synchronized int getSize()
+	{
+		return _images.size();
+	}
+
+	/**
+	 * Returns the number of requests that were served from the cache,
+	 * including softly referenced images.
+	 *
+	 * @return Number of cache hits.
+	 */
+	public synchronized long getHits()
+	{
+		return _hits;
+	}
+
+	/**
+	 * Returns the number of requests that were served from softly referenced
+	 * images.
+	 *
+	 * @return Number of soft reference hits.
+	 */
+	public synchronized long getSoftHits()
+	{
+		return _softHits;
+	}
+
+	/**
+	 * Returns the number of requests for images that were not cached. This
+	 * includes requests that waited for a concurrent load of the same image.
+	 *
+	 * @return Number of cache misses.
+	 */
+	public synchronized long getMisses()
+	{
+		return _misses;
+	}
+
+	/**
+	 * Returns the number of images that were loaded from the underlying
+	 * library.
+	 *
+	 * @return Number of loads.
+	 */
+	public synchronized long getLoads()
+	{
+		return _loads;
+	}
+
+	/**
+	 * Returns the total time spent loading images from the underlying
+	 * library.
+	 *
+	 * @return Load time, in nanoseconds.
+	 */
+	public synchronized long getLoadTime()
+	{
+		return _loadTime;
+	}
+
+	/**
+	 * Returns the number of evicted images.
+	 *
+	 * @return Number of evictions.
+	 */
+	public synchronized long getEvictions()
+	{
+		return _evictions;
+	}
+
+	/**
+	 * Removes all cached images, including softly referenced images.
+	 * Statistics are not reset.
+	 */
+	public synchronized void clear()
+	{
+		_images.clear();
+		_evictedImages.clear();
+		_bytes = 0L;
+	}
+
+	/**
+	 * Resets the statistics.
+	 */
+	public synchronized void resetStatistics()
+	{
+		_hits = 0L;
+		_softHits = 0L;
+		_misses = 0L;
+		_loads = 0L;
+		_loadTime = 0L;
+		_evictions = 0L;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return super.toString() + "[size=" + _images.size() + ",bytes=" + _bytes + ",maximumBytes=" + _maximumBytes + ",hits=" + _hits + ",softHits=" + _softHits + ",misses=" + _misses + ",loads=" + _loads + ",loadTime=" + _loadTime / 1000000L + "ms,evictions=" + _evictions + ']';
+	}
+
+	/**
+	 * Soft reference to an evicted image.
+	 */
+	private static class ImageReference
+	extends SoftReference<BufferedImage>
+	{
+		/**
+		 * Texture map of the image.
+		 */
+		final TextureMap _textureMap;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param textureMap Texture map of the image.
+		 * @param image      Evicted image.
+		 * @param queue      Queue to register reference with.
+		 */
+		ImageReference( final TextureMap textureMap, final BufferedImage image, final ReferenceQueue<? super BufferedImage> queue )
+		{
+			super( image, queue );
+			_textureMap = textureMap;
+		}
+	}
+}
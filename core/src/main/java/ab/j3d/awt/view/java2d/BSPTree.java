@@ -130,20 +130,56 @@ public class BSPTree
 	private List<RenderedPolygon> _polygons;
 
 	/**
-	 * Used to split polygons.
+	 * Used to split polygons and to allocate (pooled) polygons.
 	 *
 	 * @see RenderQueue#clip
+	 * @see RenderQueue#allocatePolygon
 	 */
-	private RenderQueue _renderQueue;
+	private final RenderQueue _renderQueue;
+
+	/**
+	 * Polygons returned by the last call to {@link #getRenderQueue}. These are
+	 * released to the polygon pool on the next call.
+	 */
+	private final List<RenderedPolygon> _renderedPolygons = new ArrayList<RenderedPolygon>();
+
+	/**
+	 * Maximum number of candidate partition planes considered by
+	 * {@link #getPartitionPlane}.
+	 */
+	private static final int PARTITION_CANDIDATES = 16;
+
+	/**
+	 * Maximum number of polygons that candidate partition planes are tested
+	 * against by {@link #getPartitionPlane}.
+	 */
+	private static final int PARTITION_SAMPLES = 64;
+
+	/**
+	 * Weight of a split polygon relative to the imbalance between front and
+	 * back polygons when choosing a partition plane.
+	 */
+	private static final int SPLIT_WEIGHT = 8;
 
 	/**
 	 * Construct a new Binary Space Partitioning Tree.
 	 */
 	public BSPTree()
+	{
+		this( new RenderQueue() );
+	}
+
+	/**
+	 * Construct a new Binary Space Partitioning Tree that allocates polygons
+	 * from the given pool.
+	 *
+	 * @param   polygonPool     Used to split and allocate polygons.
+	 */
+	public BSPTree( @NotNull final RenderQueue polygonPool )
 	{
 		_root = null;
 		_polygons = null;
-		_renderQueue = new RenderQueue();
+		_renderQueue = polygonPool;
 
 		reset();
 	}
@@ -198,7 +234,7 @@ public class BSPTree
 					final int[] triangles = primitive.getTriangles();
 					for ( int i = 0; i < triangles.length; i += 3 )
 					{
-						final RenderedPolygon polygon = new RenderedPolygon( 3 );
+						final RenderedPolygon polygon = _renderQueue.allocatePolygon( 3 );
 						polygon.initialize( object2model, null, object, faceGroup, face, new int[] { triangles[ i + 2 ], triangles[ i + 1 ], triangles[ i ] } );
 						_polygons.add( polygon );
 					}
@@ -207,6 +243,29 @@ public class BSPTree
 		}
 	}
 
+	/**
+	 * Add polygons to the tree ( Note: the tree is not rebuild! ). The
+	 * polygons must be specified in model coordinates and are not modified by
+	 * the tree.
+	 *
+	 * @param   polygons    Polygons to add.
+	 */
+	public void addPolygons( @NotNull final Collection<RenderedPolygon> polygons )
+	{
+		_polygons.addAll( polygons );
+	}
+
+	/**
+	 * Get polygons that were added to the tree.
+	 *
+	 * @return  Polygons that were added to the tree.
+	 */
+	@NotNull
+	public List<RenderedPolygon> getPolygons()
+	{
+		return Collections.unmodifiableList( _polygons );
+	}
+
 	/**
 	 * Get polygons to render in the specified order ('back-to-front' or 'front-to-back').
 	 *
@@ -217,23 +276,44 @@ public class BSPTree
 	 * @param   backToFront         Should the polygons be ordered 'back-to-front' or 'front-to-back'.
 	 *
 	 * @return  Array filled with {@link RenderedPolygon} objects in specified paint order.
+	 *          The polygons are reused after the next call to this method.
 	 */
 	public RenderedPolygon[] getRenderQueue( final Vector3D viewPoint, final Projector projector, final Matrix3D model2view, final boolean backfaceCulling, final boolean backToFront )
 	{
+		final RenderQueue polygonPool = _renderQueue;
+		final List<RenderedPolygon> renderedPolygons = _renderedPolygons;
+		for ( final RenderedPolygon polygon : renderedPolygons )
+		{
+			polygonPool.releasePolygon( polygon );
+		}
+		renderedPolygons.clear();
+
 		final List<RenderedPolygon> queue = new ArrayList<RenderedPolygon>();
-		getSortedPolygons( viewPoint, _root, queue, backToFront );
+		getSortedPolygons( viewPoint, queue, backToFront );
 
-		final List<RenderedPolygon> result = new ArrayList<RenderedPolygon>();
 		for ( final RenderedPolygon polygon : queue )
 		{
-			final RenderedPolygon renderedPolygon = getRenderedPolygon( polygon, model2view, projector, backfaceCulling );
+			final RenderedPolygon renderedPolygon = getRenderedPolygon( polygon, model2view, projector, backfaceCulling, polygonPool );
 			if ( renderedPolygon != null )
 			{
-				result.add( renderedPolygon );
+				renderedPolygons.add( renderedPolygon );
 			}
 		}
 
-		return result.toArray( new RenderedPolygon[ result.size() ] );
+		return renderedPolygons.toArray( new RenderedPolygon[ renderedPolygons.size() ] );
+	}
+
+	/**
+	 * Sort the polygons in the tree in the specified order ('back-to-front'
+	 * or 'front-to-back'). The polygons are in model coordinates.
+	 *
+	 * @param   viewPoint       Point from where the view is rendered.
+	 * @param   result          Result list.
+	 * @param   backToFront     Should the polygons be ordered 'back-to-front' or 'front-to-back'.
+	 */
+	void getSortedPolygons( final Vector3D viewPoint, final List<RenderedPolygon> result, final boolean backToFront )
+	{
+		getSortedPolygons( viewPoint, _root, result, backToFront );
 	}
 
 	/**
@@ -246,10 +326,12 @@ public class BSPTree
 	 * @param   model2view          Transformation from model to view coordinates.
 	 * @param   projector           Projector used to e.g. check polygons against view volume.
 	 * @param   backfaceCulling     Prevent backfaces from being rendered.
+	 * @param   polygonPool         Pool to allocate the polygon from.
 	 *
-	 * @return  The created rendered polygon.
+	 * @return  The created rendered polygon;
+	 *          <code>null</code> if the polygon is not visible.
 	 */
-	private static RenderedPolygon getRenderedPolygon( final RenderedPolygon polygon, final Matrix3D model2view, final Projector projector, final boolean backfaceCulling )
+	static RenderedPolygon getRenderedPolygon( final RenderedPolygon polygon, final Matrix3D model2view, final Projector projector, final boolean backfaceCulling, final RenderQueue polygonPool )
 	{
 		double x;
 		double y;
@@ -278,7 +360,7 @@ public class BSPTree
 
 		if ( !projector.outsideViewVolume( viewCoordinates ) )
 		{
-			result = new RenderedPolygon( vertexCount );
+			result = polygonPool.allocatePolygon( vertexCount );
 			final int[] projectedX = result._projectedX;
 			final int[] projectedY = result._projectedY;
 			final double[] viewX = result._viewX;
@@ -343,6 +425,7 @@ public class BSPTree
 		// Perform backface culling.
 		if ( ( result != null ) && result.isBackface() && backfaceCulling )
 		{
+			polygonPool.releasePolygon( result );
 			result = null;
 		}
 
@@ -371,12 +454,8 @@ public class BSPTree
 	 *   <li>Recurse with each of the two new sets.</li>
 	 * </ol>
 	 *
-	 * This method should be further improved:
-	 * <ul>
-	 *   <li>The number of polygons that is splitted should be decreased
-	 *       by selecting a better partition plane. </li>
-	 *   <li>Try to create a more balanced tree.</li>
-	 * </ul>
+	 * The partition plane is chosen to reduce the number of split polygons
+	 * and to keep the tree balanced (see {@link #getPartitionPlane}).
 	 *
 	 * @param   root        Root node of the tree.
 	 * @param   polygons    List of polygons to build up tree from.
@@ -447,7 +526,12 @@ public class BSPTree
 	 * Method that tries to determine the "best" polygon that can be used as
 	 * partition plane from a list of polygons.
 	 * <p />
-	 * The polygon that potentially has the greatest surface, will be returned.
+	 * A sample of at most {@link #PARTITION_CANDIDATES} polygons is
+	 * considered. Each candidate is tested against a sample of at most
+	 * {@link #PARTITION_SAMPLES} polygons; the candidate that splits the
+	 * fewest polygons (weighted by {@link #SPLIT_WEIGHT}) and leaves the least
+	 * imbalance between front and back is chosen. If candidates are equally
+	 * good, the one that potentially has the greatest surface is chosen.
 	 *
 	 * @param   polygons    Polygons to choose from (not <code>null</code>).
 	 *
@@ -458,28 +542,68 @@ public class BSPTree
 	{
 		final RenderedPolygon result;
 
-		if ( polygons.isEmpty() )
+		final int polygonCount = polygons.size();
+		if ( polygonCount == 0 )
 		{
 			result = null;
 		}
-		else if ( polygons.size() == 1 )
+		else if ( polygonCount == 1 )
 		{
 			result = polygons.get( 0 );
 		}
 		else
 		{
-			RenderedPolygon potential     = polygons.get( 0 );
-			double          potentialSize = potential.getEstimatedSurfaceAreaFactor();
+			final int candidateCount = Math.min( polygonCount, PARTITION_CANDIDATES );
+			final int sampleCount = Math.min( polygonCount, PARTITION_SAMPLES );
+
+			RenderedPolygon potential = null;
+			int potentialScore = Integer.MAX_VALUE;
+			double potentialSize = 0.0;
 
-			for ( int i = 1 ; i < polygons.size() ; i++ )
+			for ( int i = 0; i < candidateCount; i++ )
 			{
-				final RenderedPolygon polygon = polygons.get( i );
-				final double          size    = polygon.getEstimatedSurfaceAreaFactor();
+				final RenderedPolygon candidate = polygons.get( (int)( (long)i * (long)polygonCount / (long)candidateCount ) );
+
+				int front = 0;
+				int back = 0;
+				int splits = 0;
+
+				for ( int j = 0; j < sampleCount; j++ )
+				{
+					final RenderedPolygon polygon = polygons.get( (int)( (long)j * (long)polygonCount / (long)sampleCount ) );
+					if ( polygon != candidate )
+					{
+						switch ( RenderQueue.compare( polygon, candidate ) )
+						{
+							case RenderQueue.BEHIND:
+							{
+								back++;
+								break;
+							}
+
+							case RenderQueue.IN_FRONT:
+							{
+								front++;
+								break;
+							}
+
+							case RenderQueue.INTERSECTING:
+							{
+								splits++;
+								break;
+							}
+						}
+					}
+				}
+
+				final int score = splits * SPLIT_WEIGHT + Math.abs( front - back );
+				final double size = candidate.getEstimatedSurfaceAreaFactor();
 
-				if ( size > potentialSize )
+				if ( ( score < potentialScore ) || ( ( score == potentialScore ) && ( size > potentialSize ) ) )
 				{
+					potential = candidate;
+					potentialScore = score;
 					potentialSize = size;
-					potential = polygon;
 				}
 			}
 
@@ -22,6 +22,7 @@ package ab.j3d.awt.view.java2d;
 
 import java.awt.*;
 import java.awt.image.*;
+import java.util.concurrent.*;
 
 import ab.j3d.*;
 import ab.j3d.awt.view.*;
@@ -60,10 +61,20 @@ extends OffscreenView3D
 	private double _backClipDistance;
 
 	/**
-	 * Binary Space Partitioning Tree ({@link BSPTree}) of the scene.
+	 * Binary Space Partitioning Trees ({@link BSPTree}) of the scene.
 	 *
-	 * <p>The tree is only calculated when the scene changes (indicated by
-	 * the {@link #_bspTreeDirty} field).
+	 * <p>The tree of a content node is only calculated when the content node
+	 * changes.
+	 */
+	@NotNull
+	private final SceneBSPTree _sceneBspTree;
+
+	/**
+	 * Binary Space Partitioning Tree ({@link BSPTree}) of the entire scene.
+	 *
+	 * <p>The tree is only calculated when requested through {@link
+	 * #getBspTree} after the scene changed (indicated by the {@link
+	 * #_bspTreeDirty} field).
 	 */
 	@NotNull
 	private final BSPTree _bspTree;
@@ -74,6 +85,18 @@ extends OffscreenView3D
 	 */
 	private boolean _bspTreeDirty;
 
+	/**
+	 * Size of tiles used by {@link #renderImage}; {@code 0} to render images
+	 * without using tiles.
+	 */
+	private int _tileSize = 0;
+
+	/**
+	 * Pool used to render tiles; {@code null} to use the common pool.
+	 */
+	@Nullable
+	private ForkJoinPool _tilePool = null;
+
 	/**
 	 * Construct new view.
 	 *
@@ -108,6 +131,7 @@ extends OffscreenView3D
 		controlInput.addControlInputListener( defaultViewControl );
 		addOverlay( defaultViewControl );
 
+		_sceneBspTree = new SceneBSPTree( scene );
 		_bspTree = new BSPTree();
 		_bspTreeDirty = true;
 
@@ -156,6 +180,7 @@ extends OffscreenView3D
 	@Override
 	public void contentNodeAdded( final @NotNull SceneUpdateEvent event )
 	{
+		_sceneBspTree.invalidate( event.getNode() );
 		_bspTreeDirty = true;
 		super.contentNodeAdded( event );
 	}
@@ -163,6 +188,7 @@ extends OffscreenView3D
 	@Override
 	public void contentNodeContentUpdated( final @NotNull SceneUpdateEvent event )
 	{
+		_sceneBspTree.invalidate( event.getNode() );
 		_bspTreeDirty = true;
 		super.contentNodeContentUpdated( event );
 	}
@@ -170,6 +196,7 @@ extends OffscreenView3D
 	@Override
 	public void contentNodePropertyChanged( final @NotNull SceneUpdateEvent event )
 	{
+		_sceneBspTree.invalidate( event.getNode() );
 		_bspTreeDirty = true;
 		super.contentNodePropertyChanged( event );
 	}
@@ -177,6 +204,7 @@ extends OffscreenView3D
 	@Override
 	public void contentNodeRemoved( final @NotNull SceneUpdateEvent event )
 	{
+		_sceneBspTree.invalidate( event.getNode() );
 		_bspTreeDirty = true;
 		super.contentNodeRemoved( event );
 	}
@@ -187,6 +215,13 @@ extends OffscreenView3D
 		_viewComponent.repaint();
 	}
 
+	/**
+	 * Returns a Binary Space Partitioning Tree of the entire scene. The tree
+	 * is rebuilt from scratch after any change to the scene; the view itself
+	 * uses {@link #getSceneBspTree} instead.
+	 *
+	 * @return BSP tree of the scene.
+	 */
 	@NotNull
 	public BSPTree getBspTree()
 	{
@@ -204,6 +239,18 @@ extends OffscreenView3D
 		return result;
 	}
 
+	/**
+	 * Returns the Binary Space Partitioning Trees of the scene, which are kept
+	 * per content node and only rebuilt for content nodes that changed.
+	 *
+	 * @return BSP trees of the scene.
+	 */
+	@NotNull
+	public SceneBSPTree getSceneBspTree()
+	{
+		return _sceneBspTree;
+	}
+
 	@Override
 	public Projector getProjector()
 	{
@@ -241,14 +288,78 @@ extends OffscreenView3D
 		_viewComponent.setSize( width, height );
 	}
 
+	/**
+	 * Returns the size of tiles used by {@link #renderImage}.
+	 *
+	 * @return Width and height of tiles; {@code 0} if tiles are not used.
+	 */
+	public int getTileSize()
+	{
+		return _tileSize;
+	}
+
+	/**
+	 * Sets the size of tiles used by {@link #renderImage}. When set, images
+	 * are split into tiles, which are rendered in parallel. This is intended
+	 * for headless rendering on multi-core systems.
+	 *
+	 * @param tileSize Width and height of tiles; {@code 0} to render images
+	 *                 without using tiles (default).
+	 */
+	public void setTileSize( final int tileSize )
+	{
+		if ( tileSize < 0 )
+		{
+			throw new IllegalArgumentException( "tileSize: " + tileSize );
+		}
+		_tileSize = tileSize;
+	}
+
+	/**
+	 * Returns the pool used to render tiles.
+	 *
+	 * @return Pool used to render tiles; {@code null} if the common pool is
+	 * used.
+	 */
+	@Nullable
+	public ForkJoinPool getTilePool()
+	{
+		return _tilePool;
+	}
+
+	/**
+	 * Sets the pool used to render tiles.
+	 *
+	 * @param tilePool Pool used to render tiles; {@code null} to use the
+	 *                 common pool (default).
+	 */
+	public void setTilePool( @Nullable final ForkJoinPool tilePool )
+	{
+		_tilePool = tilePool;
+	}
+
 	@Override
 	public BufferedImage renderImage( final int width, final int height )
 	{
-		_viewComponent.setSize( width, height );
-		final BufferedImage result = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
-		final Graphics2D g2d = result.createGraphics();
-		_viewComponent.paintComponent( g2d );
-		g2d.dispose();
+		final Java2dViewComponent viewComponent = _viewComponent;
+		viewComponent.setSize( width, height );
+
+		final BufferedImage result;
+
+		final int tileSize = _tileSize;
+		if ( tileSize > 0 )
+		{
+			final ForkJoinPool tilePool = _tilePool;
+			result = viewComponent.renderTiled( tileSize, ( tilePool != null ) ? tilePool : ForkJoinPool.commonPool() );
+		}
+		else
+		{
+			result = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+			final Graphics2D g2d = result.createGraphics();
+			viewComponent.paintComponent( g2d );
+			g2d.dispose();
+		}
+
 		return result;
 	}
 }
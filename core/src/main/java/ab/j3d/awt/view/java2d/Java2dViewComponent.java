@@ -21,7 +21,10 @@
 package ab.j3d.awt.view.java2d;
 
 import java.awt.*;
+import java.awt.image.*;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
 import javax.swing.*;
 
 import ab.j3d.*;
@@ -76,33 +79,10 @@ class Java2dViewComponent
 	public void paintComponent( final Graphics g )
 	{
 		final Java2dView view = _view;
-		final Scene scene = view.getScene();
-
-		/* Setup initial style and apply style filters to this view. */
-		final RenderStyle defaultStyle = new RenderStyle();
-		final Collection<RenderStyleFilter> styleFilters = view.getRenderStyleFilters();
-		final RenderStyle viewStyle = defaultStyle.applyFilters( styleFilters , view );
-
-		final Map<Node3D,RenderStyle> nodeStyles = new HashMap<Node3D, RenderStyle>( );
-		scene.walk( new Node3DVisitor()
-		{
-			public boolean visitNode( @NotNull final Node3DPath path )
-			{
-				final Node3D node = path.getNode();
-
-				final Node3DPath parentPath = path.getParent();
-				final RenderStyle parentStyle = ( parentPath != null ) ? nodeStyles.get( parentPath.getNode() ) : viewStyle;
-
-				final RenderStyle nodeStyle = parentStyle.applyFilters( styleFilters, node );
-				nodeStyles.put( node, nodeStyle );
-				return true;
-			}
-		} );
 
-		final Matrix3D view2scene = view.getView2Scene();
-		final Vector3D viewPoint  = view2scene.getTranslation();
-		final Matrix3D scene2view = view.getScene2View();
-		final Projector projector = view.getProjector();
+		final RenderStyle viewStyle = getViewStyle();
+		final Map<Node3D,RenderStyle> nodeStyles = getNodeStyles( viewStyle );
+		final RenderedPolygon[] renderQueue = getRenderQueue( viewStyle );
 
 		final Insets insets = getInsets();
 		final int componentWidth = getWidth();
@@ -110,9 +90,6 @@ class Java2dViewComponent
 		final int componentHeight = getHeight();
 		final int imageHeight = componentHeight - insets.top - insets.bottom;
 
-		final BSPTree bspTree = view.getBspTree();
-		final RenderedPolygon[] renderQueue = bspTree.getRenderQueue( viewPoint, projector, scene2view, viewStyle.isBackfaceCullingEnabled(), true );
-
 		if ( isOpaque() )
 		{
 			g.setColor( getBackground() );
@@ -135,6 +112,180 @@ class Java2dViewComponent
 		g2d.dispose();
 	}
 
+	/**
+	 * Renders the view to an image by splitting it into tiles that are
+	 * rendered in parallel. Each polygon is only painted on the tiles that
+	 * its projected bounds intersect. The result is the same as that of
+	 * {@link #paintComponent}, apart from anti-aliasing differences at tile
+	 * edges.
+	 *
+	 * @param   tileSize    Width and height of tiles.
+	 * @param   pool        Pool to render tiles with.
+	 *
+	 * @return  Rendered image.
+	 */
+	BufferedImage renderTiled( final int tileSize, @NotNull final ForkJoinPool pool )
+	{
+		final Java2dView view = _view;
+
+		final RenderStyle viewStyle = getViewStyle();
+		final Map<Node3D,RenderStyle> nodeStyles = getNodeStyles( viewStyle );
+		final RenderedPolygon[] renderQueue = getRenderQueue( viewStyle );
+
+		final Insets insets = getInsets();
+		final int componentWidth = getWidth();
+		final int imageWidth = componentWidth - insets.left - insets.right;
+		final int componentHeight = getHeight();
+		final int imageHeight = componentHeight - insets.top - insets.bottom;
+
+		final BufferedImage result = new BufferedImage( componentWidth, componentHeight, BufferedImage.TYPE_INT_ARGB );
+
+		final int tileColumns = ( componentWidth + tileSize - 1 ) / tileSize;
+		final int tileRows = ( componentHeight + tileSize - 1 ) / tileSize;
+
+		/*
+		 * Sort polygons into tiles, keeping them in back-to-front order. Bounds
+		 * are enlarged by a pixel, since (anti-aliased) outlines may extend
+		 * outside the polygon.
+		 */
+		final List<List<RenderedPolygon>> tilePolygons = new ArrayList<List<RenderedPolygon>>( tileColumns * tileRows );
+		for ( int i = tileColumns * tileRows; --i >= 0; )
+		{
+			tilePolygons.add( new ArrayList<RenderedPolygon>() );
+		}
+
+		for ( final RenderedPolygon polygon : renderQueue )
+		{
+			if ( nodeStyles.get( polygon._object ) != null )
+			{
+				final int minColumn = Math.max( 0, ( insets.left + polygon._minImageX - 1 ) / tileSize );
+				final int maxColumn = Math.min( tileColumns - 1, ( insets.left + polygon._maxImageX + 1 ) / tileSize );
+				final int minRow = Math.max( 0, ( insets.top + polygon._minImageY - 1 ) / tileSize );
+				final int maxRow = Math.min( tileRows - 1, ( insets.top + polygon._maxImageY + 1 ) / tileSize );
+
+				for ( int row = minRow; row <= maxRow; row++ )
+				{
+					for ( int column = minColumn; column <= maxColumn; column++ )
+					{
+						tilePolygons.get( row * tileColumns + column ).add( polygon );
+					}
+				}
+			}
+		}
+
+		pool.invoke( new TileTask( result, tileSize, tileColumns, tilePolygons, nodeStyles, 0, tilePolygons.size() ) );
+
+		final Graphics2D g2d = result.createGraphics();
+		g2d.translate( insets.left, insets.top );
+		g2d.clipRect( 0, 0, imageWidth, imageHeight );
+		view.paintOverlay( g2d );
+		g2d.dispose();
+
+		return result;
+	}
+
+	/**
+	 * Paints a single tile.
+	 *
+	 * @param   image           Image to paint tile on.
+	 * @param   x               X-coordinate of tile.
+	 * @param   y               Y-coordinate of tile.
+	 * @param   width           Width of tile.
+	 * @param   height          Height of tile.
+	 * @param   polygons        Polygons to paint, in back-to-front order.
+	 * @param   nodeStyles      Render style for each node.
+	 */
+	private void paintTile( final BufferedImage image, final int x, final int y, final int width, final int height, final List<RenderedPolygon> polygons, final Map<Node3D,RenderStyle> nodeStyles )
+	{
+		final Insets insets = getInsets();
+		final int imageWidth = getWidth() - insets.left - insets.right;
+		final int imageHeight = getHeight() - insets.top - insets.bottom;
+
+		final BufferedImage tile = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+		final Graphics2D g2d = tile.createGraphics();
+
+		if ( isOpaque() )
+		{
+			g2d.setColor( getBackground() );
+			g2d.fillRect( 0, 0, width, height );
+		}
+
+		g2d.translate( insets.left - x, insets.top - y );
+		g2d.clipRect( 0, 0, imageWidth, imageHeight );
+
+		for ( final RenderedPolygon polygon : polygons )
+		{
+			paintPolygon( g2d, polygon, nodeStyles.get( polygon._object ) );
+		}
+
+		g2d.dispose();
+
+		// Tiles don't overlap, so they can be copied concurrently.
+		image.getRaster().setDataElements( x, y, tile.getRaster() );
+	}
+
+	/**
+	 * Returns the render style for the view.
+	 *
+	 * @return  Render style for the view.
+	 */
+	private RenderStyle getViewStyle()
+	{
+		final RenderStyle defaultStyle = new RenderStyle();
+		return defaultStyle.applyFilters( _view.getRenderStyleFilters(), _view );
+	}
+
+	/**
+	 * Returns the render style for each node in the scene.
+	 *
+	 * @param   viewStyle   Render style for the view.
+	 *
+	 * @return  Render style for each node.
+	 */
+	private Map<Node3D,RenderStyle> getNodeStyles( final RenderStyle viewStyle )
+	{
+		final Java2dView view = _view;
+		final Scene scene = view.getScene();
+		final Collection<RenderStyleFilter> styleFilters = view.getRenderStyleFilters();
+
+		final Map<Node3D,RenderStyle> nodeStyles = new HashMap<Node3D, RenderStyle>( );
+		scene.walk( new Node3DVisitor()
+		{
+			public boolean visitNode( @NotNull final Node3DPath path )
+			{
+				final Node3D node = path.getNode();
+
+				final Node3DPath parentPath = path.getParent();
+				final RenderStyle parentStyle = ( parentPath != null ) ? nodeStyles.get( parentPath.getNode() ) : viewStyle;
+
+				final RenderStyle nodeStyle = parentStyle.applyFilters( styleFilters, node );
+				nodeStyles.put( node, nodeStyle );
+				return true;
+			}
+		} );
+
+		return nodeStyles;
+	}
+
+	/**
+	 * Returns projected polygons to be painted, in back-to-front order.
+	 *
+	 * @param   viewStyle   Render style for the view.
+	 *
+	 * @return  Polygons to be painted.
+	 */
+	private RenderedPolygon[] getRenderQueue( final RenderStyle viewStyle )
+	{
+		final Java2dView view = _view;
+		final Matrix3D view2scene = view.getView2Scene();
+		final Vector3D viewPoint  = view2scene.getTranslation();
+		final Matrix3D scene2view = view.getScene2View();
+		final Projector projector = view.getProjector();
+
+		final SceneBSPTree bspTree = view.getSceneBspTree();
+		return bspTree.getRenderQueue( viewPoint, projector, scene2view, viewStyle.isBackfaceCullingEnabled(), true );
+	}
+
 	/**
 	 * Paint the specified polygon.
 	 *
@@ -199,4 +350,92 @@ class Java2dViewComponent
 
 		g.setRenderingHint( RenderingHints.KEY_ANTIALIASING, antiAliasingValue );
 	}
+
+	/**
+	 * Fork/join task to paint a range of tiles.
+	 */
+	private class TileTask
+		extends RecursiveAction
+	{
+		/**
+		 * Serialized form version.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Image to paint tiles on.
+		 */
+		private final BufferedImage _image;
+
+		/**
+		 * Width and height of tiles.
+		 */
+		private final int _tileSize;
+
+		/**
+		 * Number of tile columns.
+		 */
+		private final int _tileColumns;
+
+		/**
+		 * Polygons to paint on each tile.
+		 */
+		private final List<List<RenderedPolygon>> _tilePolygons;
+
+		/**
+		 * Render style for each node.
+		 */
+		private final Map<Node3D,RenderStyle> _nodeStyles;
+
+		/**
+		 * Index of first tile to paint.
+		 */
+		private final int _start;
+
+		/**
+		 * Index after last tile to paint.
+		 */
+		private final int _end;
+
+		/**
+		 * Constructs a new task.
+		 *
+		 * @param   image           Image to paint tiles on.
+		 * @param   tileSize        Width and height of tiles.
+		 * @param   tileColumns     Number of tile columns.
+		 * @param   tilePolygons    Polygons to paint on each tile.
+		 * @param   nodeStyles      Render style for each node.
+		 * @param   start           Index of first tile to paint.
+		 * @param   end             Index after last tile to paint.
+		 */
+		private TileTask( final BufferedImage image, final int tileSize, final int tileColumns, final List<List<RenderedPolygon>> tilePolygons, final Map<Node3D,RenderStyle> nodeStyles, final int start, final int end )
+		{
+			_image = image;
+			_tileSize = tileSize;
+			_tileColumns = tileColumns;
+			_tilePolygons = tilePolygons;
+			_nodeStyles = nodeStyles;
+			_start = start;
+			_end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if ( _end - _start == 1 )
+			{
+				final BufferedImage image = _image;
+				final int tileSize = _tileSize;
+				final int x = ( _start % _tileColumns ) * tileSize;
+				final int y = ( _start / _tileColumns ) * tileSize;
+				paintTile( image, x, y, Math.min( tileSize, image.getWidth() - x ), Math.min( tileSize, image.getHeight() - y ), _tilePolygons.get( _start ), _nodeStyles );
+			}
+			else if ( _end > _start )
+			{
+				final int middle = ( _start + _end ) / 2;
+				invokeAll( new TileTask( _image, _tileSize, _tileColumns, _tilePolygons, _nodeStyles, _start, middle ),
+				           new TileTask( _image, _tileSize, _tileColumns, _tilePolygons, _nodeStyles, middle, _end ) );
+			}
+		}
+	}
 }
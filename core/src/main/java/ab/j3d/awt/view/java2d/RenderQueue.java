@@ -888,9 +888,9 @@ public class RenderQueue
 		final int listIndex   = vertexCount - 1;
 
 		final List<List<RenderedPolygon>> lists = _freeLists;
-		for ( int tail = lists.size(); --tail > listIndex; )
+		while ( lists.size() <= listIndex )
 		{
-			lists.remove( tail );
+			lists.add( null );
 		}
 
 		List<RenderedPolygon> list = lists.get( listIndex );
@@ -0,0 +1,531 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.java2d;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import ab.j3d.model.*;
+import ab.j3d.view.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Maintains {@link BSPTree}s for the content nodes of a scene, so that only
+ * the trees of changed content nodes need to be rebuilt.
+ * <p />
+ * Each content node has its own tree. To render the scene, the content nodes
+ * are partitioned using axis-aligned planes that separate the bounds of the
+ * content nodes. Because a separating plane does not intersect any polygon,
+ * the content nodes on the far side of such a plane can be painted before
+ * those on the near side. Content nodes whose bounds can not be separated are
+ * combined into a single tree, which is cached until one of its content nodes
+ * changes.
+ *
+ * @author Peter S. Heijnen
+ */
+public class SceneBSPTree
+{
+	/**
+	 * Scene whose content nodes are managed.
+	 */
+	@NotNull
+	private final Scene _scene;
+
+	/**
+	 * Used to split polygons and to allocate (pooled) polygons.
+	 */
+	private final RenderQueue _polygonPool = new RenderQueue();
+
+	/**
+	 * Entry for each content node, in scene order.
+	 */
+	private Map<ContentNode,NodeEntry> _entries = new LinkedHashMap<ContentNode,NodeEntry>();
+
+	/**
+	 * Trees that combine the polygons of content nodes that can not be
+	 * separated.
+	 */
+	private Map<List<NodeEntry>,BSPTree> _combinedTrees = new HashMap<List<NodeEntry>,BSPTree>();
+
+	/**
+	 * Root of the partitioning of content nodes; {@code null} if the
+	 * partitioning needs to be rebuilt.
+	 */
+	@Nullable
+	private Partition _root = null;
+
+	/**
+	 * Polygons of invalidated content nodes. These are released to the polygon
+	 * pool when the partitioning is rebuilt.
+	 */
+	private final List<RenderedPolygon> _releasedPolygons = new ArrayList<RenderedPolygon>();
+
+	/**
+	 * Polygons returned by the last call to {@link #getRenderQueue}. These are
+	 * released to the polygon pool on the next call.
+	 */
+	private final List<RenderedPolygon> _renderedPolygons = new ArrayList<RenderedPolygon>();
+
+	/**
+	 * Number of trees that were built.
+	 */
+	private int _buildCount = 0;
+
+	/**
+	 * Construct new tree for the given scene.
+	 *
+	 * @param   scene   Scene whose content nodes are managed.
+	 */
+	public SceneBSPTree( @NotNull final Scene scene )
+	{
+		_scene = scene;
+	}
+
+	/**
+	 * Invalidates the tree of the given content node. The tree is rebuilt
+	 * when it is needed. This must be called when the content or transform
+	 * of the content node changes.
+	 *
+	 * @param   contentNode     Content node that was changed.
+	 */
+	public void invalidate( @NotNull final ContentNode contentNode )
+	{
+		final NodeEntry entry = _entries.remove( contentNode );
+		if ( entry != null )
+		{
+			_releasedPolygons.addAll( entry._polygons );
+		}
+		_root = null;
+	}
+
+	/**
+	 * Invalidates the trees of all content nodes.
+	 */
+	public void invalidateAll()
+	{
+		for ( final NodeEntry entry : _entries.values() )
+		{
+			_releasedPolygons.addAll( entry._polygons );
+		}
+		_entries.clear();
+		_root = null;
+	}
+
+	/**
+	 * Returns the number of trees that were built. This includes both trees
+	 * of individual content nodes and combined trees.
+	 *
+	 * @return  Number of trees that were built.
+	 */
+	public int getBuildCount()
+	{
+		return _buildCount;
+	}
+
+	/**
+	 * Get polygons to render in the specified order ('back-to-front' or 'front-to-back').
+	 *
+	 * @param   viewPoint           Point from where the view is rendered.
+	 * @param   projector           Projector used to e.g. check polygons against view volume.
+	 * @param   model2view          Transformation from model to view coordinates.
+	 * @param   backfaceCulling     Prevent backfaces from being rendered.
+	 * @param   backToFront         Should the polygons be ordered 'back-to-front' or 'front-to-back'.
+	 *
+	 * @return  Array filled with {@link RenderedPolygon} objects in specified paint order.
+	 *          The polygons are reused after the next call to this method.
+	 */
+	public RenderedPolygon[] getRenderQueue( final Vector3D viewPoint, final Projector projector, final Matrix3D model2view, final boolean backfaceCulling, final boolean backToFront )
+	{
+		final RenderQueue polygonPool = _polygonPool;
+		final List<RenderedPolygon> renderedPolygons = _renderedPolygons;
+		for ( final RenderedPolygon polygon : renderedPolygons )
+		{
+			polygonPool.releasePolygon( polygon );
+		}
+		renderedPolygons.clear();
+
+		final Partition root = getRoot();
+
+		final List<RenderedPolygon> queue = new ArrayList<RenderedPolygon>();
+		if ( root != null )
+		{
+			getSortedPolygons( viewPoint, root, queue, backToFront );
+		}
+
+		for ( final RenderedPolygon polygon : queue )
+		{
+			final RenderedPolygon renderedPolygon = BSPTree.getRenderedPolygon( polygon, model2view, projector, backfaceCulling, polygonPool );
+			if ( renderedPolygon != null )
+			{
+				renderedPolygons.add( renderedPolygon );
+			}
+		}
+
+		return renderedPolygons.toArray( new RenderedPolygon[ renderedPolygons.size() ] );
+	}
+
+	/**
+	 * Returns the partitioning of content nodes, rebuilding it (and any
+	 * invalidated trees) if needed.
+	 *
+	 * @return  Root of partitioning; {@code null} if the scene contains no
+	 *          polygons.
+	 */
+	@Nullable
+	private Partition getRoot()
+	{
+		final Map<ContentNode,NodeEntry> oldEntries = _entries;
+		final Map<ContentNode,NodeEntry> entries = new LinkedHashMap<ContentNode,NodeEntry>();
+		for ( final ContentNode contentNode : _scene.getContentNodes() )
+		{
+			NodeEntry entry = oldEntries.remove( contentNode );
+			if ( entry == null )
+			{
+				entry = new NodeEntry( contentNode );
+				_root = null;
+			}
+			entries.put( contentNode, entry );
+		}
+
+		for ( final NodeEntry removed : oldEntries.values() )
+		{
+			_releasedPolygons.addAll( removed._polygons );
+			_root = null;
+		}
+		_entries = entries;
+
+		Partition result = _root;
+		if ( result == null )
+		{
+			final List<NodeEntry> nonEmpty = new ArrayList<NodeEntry>( entries.size() );
+			for ( final NodeEntry entry : entries.values() )
+			{
+				if ( !entry._polygons.isEmpty() )
+				{
+					nonEmpty.add( entry );
+				}
+			}
+
+			final Map<List<NodeEntry>,BSPTree> oldCombinedTrees = _combinedTrees;
+			final Map<List<NodeEntry>,BSPTree> combinedTrees = new HashMap<List<NodeEntry>,BSPTree>();
+			result = nonEmpty.isEmpty() ? null : partition( nonEmpty, oldCombinedTrees, combinedTrees );
+			_combinedTrees = combinedTrees;
+			_root = result;
+
+			/*
+			 * Polygons of invalidated content nodes are no longer used by any
+			 * tree at this point.
+			 */
+			final RenderQueue polygonPool = _polygonPool;
+			for ( final RenderedPolygon polygon : _releasedPolygons )
+			{
+				polygonPool.releasePolygon( polygon );
+			}
+			_releasedPolygons.clear();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Partitions the given content nodes using axis-aligned planes that
+	 * separate their bounds.
+	 *
+	 * @param   entries             Content nodes to partition.
+	 * @param   oldCombinedTrees    Previously built combined trees.
+	 * @param   combinedTrees       Combined trees in the new partitioning.
+	 *
+	 * @return  Partitioning.
+	 */
+	private Partition partition( final List<NodeEntry> entries, final Map<List<NodeEntry>,BSPTree> oldCombinedTrees, final Map<List<NodeEntry>,BSPTree> combinedTrees )
+	{
+		final Partition result;
+
+		final int entryCount = entries.size();
+		if ( entryCount == 1 )
+		{
+			result = new Partition( entries.get( 0 ).getTree() );
+		}
+		else
+		{
+			final List<NodeEntry> sorted = new ArrayList<NodeEntry>( entries );
+
+			int bestAxis = -1;
+			int bestIndex = -1;
+			double bestPosition = 0.0;
+
+			for ( int axis = 0; axis < 3; axis++ )
+			{
+				final int sortAxis = axis;
+				Collections.sort( sorted, new Comparator<NodeEntry>()
+				{
+					@Override
+					public int compare( final NodeEntry entry1, final NodeEntry entry2 )
+					{
+						return Double.compare( entry1._min[ sortAxis ], entry2._min[ sortAxis ] );
+					}
+				} );
+
+				/*
+				 * Find the separating plane closest to the middle.
+				 */
+				double max = Double.NEGATIVE_INFINITY;
+				for ( int i = 0; i < entryCount - 1; i++ )
+				{
+					max = Math.max( max, sorted.get( i )._max[ axis ] );
+					if ( ( max <= sorted.get( i + 1 )._min[ axis ] ) && ( ( bestIndex < 0 ) || ( Math.abs( 2 * ( i + 1 ) - entryCount ) < Math.abs( 2 * bestIndex - entryCount ) ) ) )
+					{
+						bestAxis = axis;
+						bestIndex = i + 1;
+						bestPosition = max;
+					}
+				}
+			}
+
+			if ( bestAxis >= 0 )
+			{
+				final List<NodeEntry> low = new ArrayList<NodeEntry>( bestIndex );
+				final List<NodeEntry> high = new ArrayList<NodeEntry>( entryCount - bestIndex );
+				for ( final NodeEntry entry : entries )
+				{
+					( ( entry._max[ bestAxis ] <= bestPosition ) ? low : high ).add( entry );
+				}
+
+				result = new Partition( bestAxis, bestPosition, partition( low, oldCombinedTrees, combinedTrees ), partition( high, oldCombinedTrees, combinedTrees ) );
+			}
+			else
+			{
+				BSPTree tree = oldCombinedTrees.get( entries );
+				if ( tree == null )
+				{
+					tree = new BSPTree( _polygonPool );
+					for ( final NodeEntry entry : entries )
+					{
+						tree.addPolygons( entry._polygons );
+					}
+					tree.build();
+					_buildCount++;
+				}
+				combinedTrees.put( entries, tree );
+				result = new Partition( tree );
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sort polygons in the specified order ('back-to-front' or 'front-to-back').
+	 *
+	 * @param   viewPoint       Point from where the view is rendered.
+	 * @param   partition       Partition to sort.
+	 * @param   result          Result list.
+	 * @param   backToFront     Should the polygons be ordered 'back-to-front' or 'front-to-back'.
+	 */
+	private static void getSortedPolygons( final Vector3D viewPoint, final Partition partition, final List<RenderedPolygon> result, final boolean backToFront )
+	{
+		final BSPTree tree = partition._tree;
+		if ( tree != null )
+		{
+			tree.getSortedPolygons( viewPoint, result, backToFront );
+		}
+		else
+		{
+			final int axis = partition._axis;
+			final double viewCoordinate = ( axis == 0 ) ? viewPoint.x : ( axis == 1 ) ? viewPoint.y : viewPoint.z;
+			final boolean lowFirst = ( viewCoordinate > partition._position ) == backToFront;
+			getSortedPolygons( viewPoint, lowFirst ? partition._low : partition._high, result, backToFront );
+			getSortedPolygons( viewPoint, lowFirst ? partition._high : partition._low, result, backToFront );
+		}
+	}
+
+	/**
+	 * Polygons and tree of a content node.
+	 */
+	private class NodeEntry
+	{
+		/**
+		 * Polygons of the content node, in model coordinates.
+		 */
+		private final List<RenderedPolygon> _polygons;
+
+		/**
+		 * Minimum coordinates of the polygons.
+		 */
+		private final double[] _min;
+
+		/**
+		 * Maximum coordinates of the polygons.
+		 */
+		private final double[] _max;
+
+		/**
+		 * Tree of the content node; {@code null} if not built yet.
+		 */
+		private BSPTree _tree = null;
+
+		/**
+		 * Creates the entry for the given content node.
+		 *
+		 * @param   contentNode     Content node.
+		 */
+		private NodeEntry( final ContentNode contentNode )
+		{
+			final List<RenderedPolygon> polygons = new ArrayList<RenderedPolygon>();
+			final RenderQueue polygonPool = _polygonPool;
+
+			Node3DTreeWalker.walk( new Node3DVisitor()
+			{
+				@Override
+				public boolean visitNode( @NotNull final Node3DPath path )
+				{
+					final Node3D node = path.getNode();
+					if ( node instanceof Object3D )
+					{
+						final Object3D object = (Object3D)node;
+						final Matrix3D object2model = path.getTransform();
+
+						for ( final FaceGroup faceGroup : object.getFaceGroups() )
+						{
+							for ( final Face3D face : faceGroup.getFaces() )
+							{
+								for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+								{
+									final int[] triangles = primitive.getTriangles();
+									for ( int i = 0; i < triangles.length; i += 3 )
+									{
+										final RenderedPolygon polygon = polygonPool.allocatePolygon( 3 );
+										polygon.initialize( object2model, null, object, faceGroup, face, new int[] { triangles[ i + 2 ], triangles[ i + 1 ], triangles[ i ] } );
+										polygons.add( polygon );
+									}
+								}
+							}
+						}
+					}
+					return true;
+				}
+			}, contentNode.getTransform(), contentNode.getNode3D() );
+
+			final double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+			final double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+			for ( final RenderedPolygon polygon : polygons )
+			{
+				for ( int i = 0; i < polygon._vertexCount; i++ )
+				{
+					min[ 0 ] = Math.min( min[ 0 ], polygon._viewX[ i ] );
+					min[ 1 ] = Math.min( min[ 1 ], polygon._viewY[ i ] );
+					min[ 2 ] = Math.min( min[ 2 ], polygon._viewZ[ i ] );
+					max[ 0 ] = Math.max( max[ 0 ], polygon._viewX[ i ] );
+					max[ 1 ] = Math.max( max[ 1 ], polygon._viewY[ i ] );
+					max[ 2 ] = Math.max( max[ 2 ], polygon._viewZ[ i ] );
+				}
+			}
+
+			_polygons = polygons;
+			_min = min;
+			_max = max;
+		}
+
+		/**
+		 * Returns the tree of the content node, building it if needed.
+		 *
+		 * @return  Tree of the content node.
+		 */
+		private BSPTree getTree()
+		{
+			BSPTree result = _tree;
+			if ( result == null )
+			{
+				result = new BSPTree( _polygonPool );
+				result.addPolygons( _polygons );
+				result.build();
+				_tree = result;
+				_buildCount++;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Node in the partitioning of content nodes. This is either a leaf with a
+	 * tree, or a separating plane perpendicular to one of the axes.
+	 */
+	private static class Partition
+	{
+		/**
+		 * Tree with the polygons of this leaf; {@code null} if this is not a
+		 * leaf.
+		 */
+		@Nullable
+		private final BSPTree _tree;
+
+		/**
+		 * Axis that the separating plane is perpendicular to (0 = X, 1 = Y,
+		 * 2 = Z).
+		 */
+		private final int _axis;
+
+		/**
+		 * Position of the separating plane along the axis.
+		 */
+		private final double _position;
+
+		/**
+		 * Content nodes with lower coordinates than the separating plane.
+		 */
+		private final Partition _low;
+
+		/**
+		 * Content nodes with higher coordinates than the separating plane.
+		 */
+		private final Partition _high;
+
+		/**
+		 * Constructs a leaf.
+		 *
+		 * @param   tree    Tree with the polygons of this leaf.
+		 */
+		private Partition( @NotNull final BSPTree tree )
+		{
+			_tree = tree;
+			_axis = -1;
+			_position = 0.0;
+			_low = null;
+			_high = null;
+		}
+
+		/**
+		 * Constructs a separating plane.
+		 *
+		 * @param   axis        Axis that the plane is perpendicular to.
+		 * @param   position    Position of the plane along the axis.
+		 * @param   low         Content nodes below the plane.
+		 * @param   high        Content nodes above the plane.
+		 */
+		private Partition( final int axis, final double position, @NotNull final Partition low, @NotNull final Partition high )
+		{
+			_tree = null;
+			_axis = axis;
+			_position = position;
+			_low = low;
+			_high = high;
+		}
+	}
+}
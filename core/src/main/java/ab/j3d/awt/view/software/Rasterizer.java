@@ -0,0 +1,657 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.software;
+
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.view.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Rasterizes triangles into a color buffer using a depth buffer (z-buffer).
+ * Triangles are specified in view coordinates; they are clipped against the
+ * front clipping plane and projected using a {@link Projector}. Colors and
+ * texture coordinates are interpolated across triangles (perspective-correct
+ * when a perspective projection is used).
+ *
+ * <p>
+ * Triangles are first collected using {@link #addTriangle}; {@link #rasterize}
+ * then divides the image into horizontal bands that are rasterized in
+ * parallel. Within each band, triangles are rasterized in the order in which
+ * they were added, so the result does not depend on the number of threads.
+ *
+ * @author Peter S. Heijnen
+ */
+public class Rasterizer
+{
+	/**
+	 * Number of values per projected vertex: x, y, depth, q (reciprocal of
+	 * homogeneous w), and red, green, blue, u, and v, each multiplied by q.
+	 */
+	private static final int VERTEX_SIZE = 9;
+
+	/**
+	 * Number of values per triangle.
+	 */
+	private static final int TRIANGLE_SIZE = 3 * VERTEX_SIZE;
+
+	/**
+	 * Minimum number of rows per band.
+	 */
+	private static final int MINIMUM_BAND_HEIGHT = 8;
+
+	/**
+	 * Width of the image in pixels.
+	 */
+	private final int _width;
+
+	/**
+	 * Height of the image in pixels.
+	 */
+	private final int _height;
+
+	/**
+	 * Projector used to project triangles on the image.
+	 */
+	@NotNull
+	private final Projector _projector;
+
+	/**
+	 * Whether a perspective projection is used.
+	 */
+	private final boolean _perspective;
+
+	/**
+	 * Image with the color buffer as its data.
+	 */
+	@NotNull
+	private final BufferedImage _image;
+
+	/**
+	 * Color buffer (ARGB).
+	 */
+	@NotNull
+	private final int[] _colorBuffer;
+
+	/**
+	 * Depth buffer. Greater values are closer to the viewer.
+	 */
+	@NotNull
+	private final float[] _depthBuffer;
+
+	/**
+	 * Projected triangles.
+	 */
+	private float[] _triangles = new float[ 1024 * TRIANGLE_SIZE ];
+
+	/**
+	 * Texture of each triangle ({@code null} if not textured).
+	 */
+	private final List<Texture> _triangleTextures = new ArrayList<Texture>();
+
+	/**
+	 * Number of triangles.
+	 */
+	private int _triangleCount = 0;
+
+	/**
+	 * Vertices of clipped polygon (view x, y, z, red, green, blue, u, v).
+	 */
+	private final double[] _clipped = new double[ 4 * 8 ];
+
+	/**
+	 * Temporary storage for a projected point.
+	 */
+	private final double[] _projected = new double[ 2 ];
+
+	/**
+	 * Constructs a new rasterizer.
+	 *
+	 * @param width     Width of the image in pixels.
+	 * @param height    Height of the image in pixels.
+	 * @param projector Projector used to project triangles on the image.
+	 */
+	public Rasterizer( final int width, final int height, @NotNull final Projector projector )
+	{
+		_width = width;
+		_height = height;
+		_projector = projector;
+		_perspective = ( projector instanceof Projector.PerspectiveProjector );
+
+		final BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+		_image = image;
+		_colorBuffer = ( (DataBufferInt)image.getRaster().getDataBuffer() ).getData();
+		_depthBuffer = new float[ width * height ];
+		Arrays.fill( _depthBuffer, Float.NEGATIVE_INFINITY );
+	}
+
+	/**
+	 * Returns the width of the image.
+	 *
+	 * @return Width in pixels.
+	 */
+	public int getWidth()
+	{
+		return _width;
+	}
+
+	/**
+	 * Returns the height of the image.
+	 *
+	 * @return Height in pixels.
+	 */
+	public int getHeight()
+	{
+		return _height;
+	}
+
+	/**
+	 * Returns the image that is rendered to. The image uses the color buffer
+	 * for its data, so it is only complete after {@link #rasterize}.
+	 *
+	 * @return Image.
+	 */
+	@NotNull
+	public BufferedImage getImage()
+	{
+		return _image;
+	}
+
+	/**
+	 * Returns the color buffer. Each pixel is stored as an ARGB value, row by
+	 * row.
+	 *
+	 * @return Color buffer.
+	 */
+	@NotNull
+	public int[] getColorBuffer()
+	{
+		return _colorBuffer;
+	}
+
+	/**
+	 * Returns the depth buffer. Greater values are closer to the viewer;
+	 * pixels that are not covered by any triangle contain
+	 * {@link Float#NEGATIVE_INFINITY}.
+	 *
+	 * @return Depth buffer.
+	 */
+	@NotNull
+	public float[] getDepthBuffer()
+	{
+		return _depthBuffer;
+	}
+
+	/**
+	 * Returns the number of triangles that were added (after clipping).
+	 *
+	 * @return Number of triangles.
+	 */
+	public int getTriangleCount()
+	{
+		return _triangleCount;
+	}
+
+	/**
+	 * Clears the color buffer using the given color.
+	 *
+	 * @param argb Background color (ARGB).
+	 */
+	public void clear( final int argb )
+	{
+		Arrays.fill( _colorBuffer, argb );
+	}
+
+	/**
+	 * Adds a triangle to be rasterized. The triangle is clipped against the
+	 * front clipping plane.
+	 *
+	 * @param view    View coordinates of the vertices (x, y, z).
+	 * @param colors  Color of each vertex (red, green, blue; 0 to 1).
+	 * @param uv      Texture coordinates of each vertex (u, v); {@code null}
+	 *                if not textured.
+	 * @param texture Texture; {@code null} if not textured.
+	 */
+	public void addTriangle( @NotNull final double[] view, @NotNull final float[] colors, @Nullable final float[] uv, @Nullable final Texture texture )
+	{
+		final double clipZ = -_projector.getFrontClipDistance();
+		final boolean textured = ( texture != null ) && ( uv != null );
+
+		/*
+		 * Clip triangle against the front clipping plane (z <= clipZ).
+		 */
+		int clippedCount = 0;
+		for ( int i = 0; i < 3; i++ )
+		{
+			final int j = ( i + 1 ) % 3;
+			final double zi = view[ i * 3 + 2 ];
+			final double zj = view[ j * 3 + 2 ];
+			final boolean insideI = ( zi <= clipZ );
+			final boolean insideJ = ( zj <= clipZ );
+
+			if ( insideI )
+			{
+				setClippedVertex( clippedCount++, view, colors, textured ? uv : null, i, j, 0.0 );
+			}
+
+			if ( insideI != insideJ )
+			{
+				setClippedVertex( clippedCount++, view, colors, textured ? uv : null, i, j, ( clipZ - zi ) / ( zj - zi ) );
+			}
+		}
+
+		for ( int i = 2; i < clippedCount; i++ )
+		{
+			addProjectedTriangle( 0, i - 1, i, textured ? texture : null );
+		}
+	}
+
+	/**
+	 * Sets a vertex of the clipped polygon by interpolating between two
+	 * vertices of the triangle.
+	 *
+	 * @param index  Index of clipped vertex.
+	 * @param view   View coordinates of the vertices.
+	 * @param colors Color of each vertex.
+	 * @param uv     Texture coordinates of each vertex; {@code null} if none.
+	 * @param i      Index of first vertex.
+	 * @param j      Index of second vertex.
+	 * @param t      Interpolation factor (0 = first vertex, 1 = second).
+	 */
+	private void setClippedVertex( final int index, final double[] view, final float[] colors, @Nullable final float[] uv, final int i, final int j, final double t )
+	{
+		final double[] clipped = _clipped;
+		final int offset = index * 8;
+		for ( int k = 0; k < 3; k++ )
+		{
+			clipped[ offset + k ] = view[ i * 3 + k ] + t * ( view[ j * 3 + k ] - view[ i * 3 + k ] );
+			clipped[ offset + 3 + k ] = (double)colors[ i * 3 + k ] + t * (double)( colors[ j * 3 + k ] - colors[ i * 3 + k ] );
+		}
+
+		if ( uv != null )
+		{
+			clipped[ offset + 6 ] = (double)uv[ i * 2 ] + t * (double)( uv[ j * 2 ] - uv[ i * 2 ] );
+			clipped[ offset + 7 ] = (double)uv[ i * 2 + 1 ] + t * (double)( uv[ j * 2 + 1 ] - uv[ i * 2 + 1 ] );
+		}
+		else
+		{
+			clipped[ offset + 6 ] = 0.0;
+			clipped[ offset + 7 ] = 0.0;
+		}
+	}
+
+	/**
+	 * Projects a triangle formed by vertices of the clipped polygon and adds
+	 * it to the triangle list.
+	 *
+	 * @param v0      Index of first vertex.
+	 * @param v1      Index of second vertex.
+	 * @param v2      Index of third vertex.
+	 * @param texture Texture; {@code null} if not textured.
+	 */
+	private void addProjectedTriangle( final int v0, final int v1, final int v2, @Nullable final Texture texture )
+	{
+		float[] triangles = _triangles;
+		final int offset = _triangleCount * TRIANGLE_SIZE;
+		if ( offset + TRIANGLE_SIZE > triangles.length )
+		{
+			triangles = Arrays.copyOf( triangles, triangles.length * 2 );
+			_triangles = triangles;
+		}
+
+		final double[] clipped = _clipped;
+		final double[] projected = _projected;
+		final Projector projector = _projector;
+		final boolean perspective = _perspective;
+
+		int target = offset;
+		for ( final int vertex : new int[] { v0, v1, v2 } )
+		{
+			final int source = vertex * 8;
+			final double z = clipped[ source + 2 ];
+			projector.project( projected, 0, clipped[ source ], clipped[ source + 1 ], z );
+
+			final double q = perspective ? 1.0 / -z : 1.0;
+			triangles[ target ] = (float)projected[ 0 ];
+			triangles[ target + 1 ] = (float)projected[ 1 ];
+			triangles[ target + 2 ] = (float)( perspective ? q : z );
+			triangles[ target + 3 ] = (float)q;
+			for ( int k = 3; k < 8; k++ )
+			{
+				triangles[ target + 1 + k ] = (float)( clipped[ source + k ] * q );
+			}
+			target += VERTEX_SIZE;
+		}
+
+		_triangleTextures.add( texture );
+		_triangleCount++;
+	}
+
+	/**
+	 * Rasterizes all triangles that were added.
+	 *
+	 * @param pool Pool to use; {@code null} to rasterize in the calling thread.
+	 */
+	public void rasterize( @Nullable final ForkJoinPool pool )
+	{
+		final int height = _height;
+		final int parallelism = ( pool != null ) ? pool.getParallelism() : 1;
+		final int bandHeight = Math.max( MINIMUM_BAND_HEIGHT, ( height + 4 * parallelism - 1 ) / ( 4 * parallelism ) );
+		final int bandCount = ( height + bandHeight - 1 ) / bandHeight;
+
+		/*
+		 * Sort triangles into bands.
+		 */
+		final int[] bandSizes = new int[ bandCount ];
+		final int[] minBands = new int[ _triangleCount ];
+		final int[] maxBands = new int[ _triangleCount ];
+		final float[] triangles = _triangles;
+
+		for ( int triangle = 0; triangle < _triangleCount; triangle++ )
+		{
+			final int offset = triangle * TRIANGLE_SIZE;
+			final float y0 = triangles[ offset + 1 ];
+			final float y1 = triangles[ offset + VERTEX_SIZE + 1 ];
+			final float y2 = triangles[ offset + 2 * VERTEX_SIZE + 1 ];
+			final int minRow = Math.max( 0, (int)Math.ceil( Math.min( y0, Math.min( y1, y2 ) ) - 0.5f ) );
+			final int maxRow = Math.min( height - 1, (int)Math.floor( Math.max( y0, Math.max( y1, y2 ) ) - 0.5f ) );
+
+			if ( minRow <= maxRow )
+			{
+				minBands[ triangle ] = minRow / bandHeight;
+				maxBands[ triangle ] = maxRow / bandHeight;
+				for ( int band = minBands[ triangle ]; band <= maxBands[ triangle ]; band++ )
+				{
+					bandSizes[ band ]++;
+				}
+			}
+			else
+			{
+				minBands[ triangle ] = 0;
+				maxBands[ triangle ] = -1;
+			}
+		}
+
+		final int[][] bandTriangles = new int[ bandCount ][];
+		for ( int band = 0; band < bandCount; band++ )
+		{
+			bandTriangles[ band ] = new int[ bandSizes[ band ] ];
+			bandSizes[ band ] = 0;
+		}
+
+		for ( int triangle = 0; triangle < _triangleCount; triangle++ )
+		{
+			for ( int band = minBands[ triangle ]; band <= maxBands[ triangle ]; band++ )
+			{
+				bandTriangles[ band ][ bandSizes[ band ]++ ] = triangle;
+			}
+		}
+
+		if ( pool != null )
+		{
+			pool.invoke( new BandTask( bandTriangles, bandHeight, 0, bandCount ) );
+		}
+		else
+		{
+			for ( int band = 0; band < bandCount; band++ )
+			{
+				final int minRow = band * bandHeight;
+				rasterizeBand( bandTriangles[ band ], minRow, Math.min( _height, minRow + bandHeight ) - 1 );
+			}
+		}
+	}
+
+	/**
+	 * Rasterizes triangles within a band of rows.
+	 *
+	 * @param triangleIndices Indices of triangles to rasterize.
+	 * @param minRow          First row of the band.
+	 * @param maxRow          Last row of the band.
+	 */
+	private void rasterizeBand( final int[] triangleIndices, final int minRow, final int maxRow )
+	{
+		final int width = _width;
+		final int[] colorBuffer = _colorBuffer;
+		final float[] depthBuffer = _depthBuffer;
+		final float[] triangles = _triangles;
+		final List<Texture> triangleTextures = _triangleTextures;
+
+		for ( final int triangle : triangleIndices )
+		{
+			final int o0 = triangle * TRIANGLE_SIZE;
+			final int o1 = o0 + VERTEX_SIZE;
+			final int o2 = o1 + VERTEX_SIZE;
+
+			final double x0 = (double)triangles[ o0 ];
+			final double y0 = (double)triangles[ o0 + 1 ];
+			final double x1 = (double)triangles[ o1 ];
+			final double y1 = (double)triangles[ o1 + 1 ];
+			final double x2 = (double)triangles[ o2 ];
+			final double y2 = (double)triangles[ o2 + 1 ];
+
+			final double area = ( x1 - x0 ) * ( y2 - y0 ) - ( x2 - x0 ) * ( y1 - y0 );
+			if ( area == 0.0 )
+			{
+				continue;
+			}
+			final double invArea = 1.0 / area;
+
+			final int startRow = Math.max( minRow, (int)Math.ceil( Math.min( y0, Math.min( y1, y2 ) ) - 0.5 ) );
+			final int endRow = Math.min( maxRow, (int)Math.floor( Math.max( y0, Math.max( y1, y2 ) ) - 0.5 ) );
+			final int startColumn = Math.max( 0, (int)Math.ceil( Math.min( x0, Math.min( x1, x2 ) ) - 0.5 ) );
+			final int endColumn = Math.min( width - 1, (int)Math.floor( Math.max( x0, Math.max( x1, x2 ) ) - 0.5 ) );
+
+			/*
+			 * Normalized edge functions (barycentric coordinates) and their
+			 * increments per column.
+			 */
+			final double dw0 = -( y2 - y1 ) * invArea;
+			final double dw1 = -( y0 - y2 ) * invArea;
+			final double dw2 = -( y1 - y0 ) * invArea;
+
+			final Texture texture = triangleTextures.get( triangle );
+
+			for ( int row = startRow; row <= endRow; row++ )
+			{
+				final double py = (double)row + 0.5;
+				final double px = (double)startColumn + 0.5;
+				double w0 = ( ( x2 - x1 ) * ( py - y1 ) - ( y2 - y1 ) * ( px - x1 ) ) * invArea;
+				double w1 = ( ( x0 - x2 ) * ( py - y2 ) - ( y0 - y2 ) * ( px - x2 ) ) * invArea;
+				double w2 = ( ( x1 - x0 ) * ( py - y0 ) - ( y1 - y0 ) * ( px - x0 ) ) * invArea;
+
+				int pixel = row * width + startColumn;
+				for ( int column = startColumn; column <= endColumn; column++ )
+				{
+					if ( ( w0 >= 0.0 ) && ( w1 >= 0.0 ) && ( w2 >= 0.0 ) )
+					{
+						final float depth = (float)( w0 * (double)triangles[ o0 + 2 ] + w1 * (double)triangles[ o1 + 2 ] + w2 * (double)triangles[ o2 + 2 ] );
+						if ( depth > depthBuffer[ pixel ] )
+						{
+							depthBuffer[ pixel ] = depth;
+
+							final double invQ = 1.0 / ( w0 * (double)triangles[ o0 + 3 ] + w1 * (double)triangles[ o1 + 3 ] + w2 * (double)triangles[ o2 + 3 ] );
+							float red = (float)( ( w0 * (double)triangles[ o0 + 4 ] + w1 * (double)triangles[ o1 + 4 ] + w2 * (double)triangles[ o2 + 4 ] ) * invQ );
+							float green = (float)( ( w0 * (double)triangles[ o0 + 5 ] + w1 * (double)triangles[ o1 + 5 ] + w2 * (double)triangles[ o2 + 5 ] ) * invQ );
+							float blue = (float)( ( w0 * (double)triangles[ o0 + 6 ] + w1 * (double)triangles[ o1 + 6 ] + w2 * (double)triangles[ o2 + 6 ] ) * invQ );
+
+							if ( texture != null )
+							{
+								final double u = ( w0 * (double)triangles[ o0 + 7 ] + w1 * (double)triangles[ o1 + 7 ] + w2 * (double)triangles[ o2 + 7 ] ) * invQ;
+								final double v = ( w0 * (double)triangles[ o0 + 8 ] + w1 * (double)triangles[ o1 + 8 ] + w2 * (double)triangles[ o2 + 8 ] ) * invQ;
+								final int texel = texture.getTexel( u, v );
+								red *= (float)( ( texel >> 16 ) & 0xff ) / 255.0f;
+								green *= (float)( ( texel >> 8 ) & 0xff ) / 255.0f;
+								blue *= (float)( texel & 0xff ) / 255.0f;
+							}
+
+							colorBuffer[ pixel ] = 0xff000000 | ( toByte( red ) << 16 ) | ( toByte( green ) << 8 ) | toByte( blue );
+						}
+					}
+
+					w0 += dw0;
+					w1 += dw1;
+					w2 += dw2;
+					pixel++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts a color component from a float (0 to 1) to a byte value.
+	 *
+	 * @param value Color component.
+	 *
+	 * @return Byte value (0 to 255).
+	 */
+	private static int toByte( final float value )
+	{
+		return ( value <= 0.0f ) ? 0 : ( value >= 1.0f ) ? 255 : (int)( value * 255.0f + 0.5f );
+	}
+
+	/**
+	 * Texture image, stored as ARGB values.
+	 */
+	public static class Texture
+	{
+		/**
+		 * Width of the texture.
+		 */
+		private final int _width;
+
+		/**
+		 * Height of the texture.
+		 */
+		private final int _height;
+
+		/**
+		 * Texels (ARGB), row by row.
+		 */
+		private final int[] _texels;
+
+		/**
+		 * Constructs a new texture from the given image.
+		 *
+		 * @param image Texture image.
+		 */
+		public Texture( @NotNull final BufferedImage image )
+		{
+			final int width = image.getWidth();
+			final int height = image.getHeight();
+			_width = width;
+			_height = height;
+			_texels = image.getRGB( 0, 0, width, height, null, 0, width );
+		}
+
+		/**
+		 * Returns the texel at the given texture coordinates. The texture is
+		 * repeated outside the range 0 to 1.
+		 *
+		 * @param u Horizontal texture coordinate.
+		 * @param v Vertical texture coordinate.
+		 *
+		 * @return Texel (ARGB).
+		 */
+		public int getTexel( final double u, final double v )
+		{
+			final int width = _width;
+			final int height = _height;
+
+			int x = (int)Math.floor( u * (double)width ) % width;
+			if ( x < 0 )
+			{
+				x += width;
+			}
+
+			int y = (int)Math.floor( v * (double)height ) % height;
+			if ( y < 0 )
+			{
+				y += height;
+			}
+
+			return _texels[ y * width + x ];
+		}
+	}
+
+	/**
+	 * Fork/join task to rasterize a range of bands.
+	 */
+	private class BandTask
+		extends RecursiveAction
+	{
+		/**
+		 * Serialized form version.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Indices of triangles in each band.
+		 */
+		private final int[][] _bandTriangles;
+
+		/**
+		 * Number of rows per band.
+		 */
+		private final int _bandHeight;
+
+		/**
+		 * Index of first band.
+		 */
+		private final int _start;
+
+		/**
+		 * Index after last band.
+		 */
+		private final int _end;
+
+		/**
+		 * Constructs a new task.
+		 *
+		 * @param bandTriangles Indices of triangles in each band.
+		 * @param bandHeight    Number of rows per band.
+		 * @param start         Index of first band.
+		 * @param end           Index after last band.
+		 */
+		private BandTask( final int[][] bandTriangles, final int bandHeight, final int start, final int end )
+		{
+			_bandTriangles = bandTriangles;
+			_bandHeight = bandHeight;
+			_start = start;
+			_end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if ( _end - _start == 1 )
+			{
+				final int minRow = _start * _bandHeight;
+				rasterizeBand( _bandTriangles[ _start ], minRow, Math.min( _height, minRow + _bandHeight ) - 1 );
+			}
+			else if ( _end > _start )
+			{
+				final int middle = ( _start + _end ) / 2;
+				invokeAll( new BandTask( _bandTriangles, _bandHeight, _start, middle ),
+				           new BandTask( _bandTriangles, _bandHeight, middle, _end ) );
+			}
+		}
+	}
+}
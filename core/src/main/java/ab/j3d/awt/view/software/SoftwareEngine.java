@@ -0,0 +1,206 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.software;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.appearance.*;
+import ab.j3d.awt.view.*;
+import ab.j3d.model.*;
+import ab.j3d.view.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Render engine that renders views in software using a depth buffer. This
+ * engine does not require any native libraries, but unlike the Java 2D engine
+ * it renders intersecting polygons correctly and supports textures and
+ * smooth shading.
+ *
+ * @author Peter S. Heijnen
+ * @see SoftwareView
+ */
+public class SoftwareEngine
+implements RenderEngine
+{
+	/**
+	 * Texture library.
+	 */
+	@NotNull
+	private final TextureLibrary _textureLibrary;
+
+	/**
+	 * Background color for the model.
+	 */
+	@Nullable
+	private final Color _background;
+
+	/**
+	 * Pool used to rasterize images; {@code null} to use the calling thread.
+	 */
+	@Nullable
+	private final ForkJoinPool _pool;
+
+	/**
+	 * Textures that are loaded or being loaded. Each texture is loaded only
+	 * once, by the first thread that needs it; other threads needing the same
+	 * texture wait for that load. Textures that failed to load result in
+	 * {@code null}.
+	 */
+	private final Map<TextureMap,FutureTask<Rasterizer.Texture>> _textures = new HashMap<TextureMap,FutureTask<Rasterizer.Texture>>();
+
+	/**
+	 * Construct new render engine that rasterizes images using the common
+	 * pool.
+	 *
+	 * @param textureLibrary Texture library.
+	 */
+	public SoftwareEngine( @NotNull final TextureLibrary textureLibrary )
+	{
+		this( textureLibrary, null, ForkJoinPool.commonPool() );
+	}
+
+	/**
+	 * Construct new render engine.
+	 *
+	 * @param textureLibrary Texture library.
+	 * @param background     Background color to use for 3D views. May be
+	 *                       {@code null}, in which case the default background
+	 *                       color of the current look and feel is used.
+	 * @param pool           Pool used to rasterize images in parallel;
+	 *                       {@code null} to rasterize in the calling thread.
+	 */
+	public SoftwareEngine( @NotNull final TextureLibrary textureLibrary, @Nullable final Color background, @Nullable final ForkJoinPool pool )
+	{
+		_textureLibrary = textureLibrary;
+		_background = background;
+		_pool = pool;
+	}
+
+	/**
+	 * Returns the background color for 3D views.
+	 *
+	 * @return Background color; {@code null} to use the default.
+	 */
+	@Nullable
+	public Color getBackground()
+	{
+		return _background;
+	}
+
+	/**
+	 * Returns the pool used to rasterize images.
+	 *
+	 * @return Pool; {@code null} if images are rasterized in the calling
+	 * thread.
+	 */
+	@Nullable
+	public ForkJoinPool getPool()
+	{
+		return _pool;
+	}
+
+	/**
+	 * Returns the texture for the given texture map. Textures are loaded from
+	 * the texture library when first used. The texture is loaded without
+	 * holding any lock, so loading one texture does not block threads that
+	 * need other textures.
+	 *
+	 * @param textureMap Texture map.
+	 *
+	 * @return Texture; {@code null} if the texture is not available.
+	 */
+	@Nullable
+	Rasterizer.Texture getTexture( @NotNull final TextureMap textureMap )
+	{
+		FutureTask<Rasterizer.Texture> task;
+		boolean load = false;
+
+		final Map<TextureMap,FutureTask<Rasterizer.Texture>> textures = _textures;
+		synchronized ( textures )
+		{
+			task = textures.get( textureMap );
+			if ( task == null )
+			{
+				task = new FutureTask<Rasterizer.Texture>( new Callable<Rasterizer.Texture>()
+				{
+					@Override
+					public Rasterizer.Texture call()
+					throws IOException
+					{
+						final BufferedImage image = _textureLibrary.loadImage( textureMap );
+						return ( image != null ) ? new Rasterizer.Texture( image ) : null;
+					}
+				} );
+
+				textures.put( textureMap, task );
+				load = true;
+			}
+		}
+
+		if ( load )
+		{
+			task.run();
+		}
+
+		Rasterizer.Texture result = null;
+		try
+		{
+			result = task.get();
+		}
+		catch ( final InterruptedException ignored )
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch ( final ExecutionException e )
+		{
+			if ( load )
+			{
+				e.getCause().printStackTrace();
+			}
+		}
+		return result;
+	}
+
+	@NotNull
+	@Override
+	public SoftwareView createView( @NotNull final Scene scene )
+	{
+		return new SoftwareView( scene, this );
+	}
+
+	@NotNull
+	@Override
+	public SoftwareView createOffscreenView( @NotNull final Scene scene )
+	{
+		return new SoftwareView( scene, this );
+	}
+
+	@Override
+	public void dispose()
+	{
+		synchronized ( _textures )
+		{
+			_textures.clear();
+		}
+	}
+}
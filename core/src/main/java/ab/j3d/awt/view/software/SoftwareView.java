@@ -0,0 +1,500 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.software;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import javax.swing.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.awt.view.*;
+import ab.j3d.geom.*;
+import ab.j3d.model.*;
+import ab.j3d.view.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * View that is rendered in software using a depth buffer (z-buffer). Unlike
+ * the Java 2D view, no polygon sorting is needed, so intersecting polygons
+ * are rendered correctly and the rendering time increases linearly with the
+ * number of triangles. Faces in smooth face groups are Gouraud-shaded; other
+ * faces are flat-shaded.
+ *
+ * @author Peter S. Heijnen
+ * @see Rasterizer
+ */
+public class SoftwareView
+extends OffscreenView3D
+{
+	/**
+	 * Factor used to shade faces that are not facing the viewer.
+	 */
+	private static final float SHADE_FACTOR = 0.5f;
+
+	/**
+	 * Render engine that created this view.
+	 */
+	@NotNull
+	private final SoftwareEngine _engine;
+
+	/**
+	 * Component through which a rendering of the view is shown.
+	 */
+	@NotNull
+	private final ViewComponent _viewComponent;
+
+	/**
+	 * The SceneInputTranslator for this View.
+	 */
+	@NotNull
+	private final ViewControlInput _controlInput;
+
+	/**
+	 * Front clipping plane distance in view units.
+	 */
+	private double _frontClipDistance;
+
+	/**
+	 * Back clipping plane distance in view units.
+	 */
+	private double _backClipDistance;
+
+	/**
+	 * Construct new view.
+	 *
+	 * @param scene  Scene to view.
+	 * @param engine Render engine that creates the view.
+	 */
+	public SoftwareView( @NotNull final Scene scene, @NotNull final SoftwareEngine engine )
+	{
+		super( scene );
+		_engine = engine;
+
+		_frontClipDistance = 0.1 / scene.getUnit();
+		_backClipDistance = 100.0 / scene.getUnit();
+
+		final ViewComponent viewComponent = new ViewComponent();
+		viewComponent.setOpaque( true );
+		final Color background = engine.getBackground();
+		if ( background != null )
+		{
+			viewComponent.setBackground( background );
+		}
+		_viewComponent = viewComponent;
+
+		final ViewControlInput controlInput = new ViewControlInput( this );
+		_controlInput = controlInput;
+
+		final DefaultViewControl defaultViewControl = new DefaultViewControl();
+		controlInput.addControlInputListener( defaultViewControl );
+		addOverlay( defaultViewControl );
+
+		update();
+	}
+
+	@Override
+	public void setBackground( @NotNull final Background background )
+	{
+		final Color4 color = background.getColor();
+		_viewComponent.setBackground( new Color( color.getRedFloat(), color.getGreenFloat(), color.getBlueFloat(), color.getAlphaFloat() ) );
+	}
+
+	@Override
+	public double getFrontClipDistance()
+	{
+		return _frontClipDistance;
+	}
+
+	@Override
+	public void setFrontClipDistance( final double front )
+	{
+		_frontClipDistance = front;
+		update();
+	}
+
+	@Override
+	public double getBackClipDistance()
+	{
+		return _backClipDistance;
+	}
+
+	@Override
+	public void setBackClipDistance( final double back )
+	{
+		_backClipDistance = back;
+		update();
+	}
+
+	@Override
+	public Component getComponent()
+	{
+		return _viewComponent;
+	}
+
+	@Override
+	public void update()
+	{
+		_viewComponent.repaint();
+	}
+
+	@Override
+	public Projector getProjector()
+	{
+		final ViewComponent viewComponent = _viewComponent;
+		final Insets insets = viewComponent.getInsets( null );
+		final int imageWidth = viewComponent.getWidth() - insets.left - insets.right;
+		final int imageHeight = viewComponent.getHeight() - insets.top - insets.bottom;
+
+		final Scene scene = getScene();
+		final double viewUnit = scene.getUnit();
+
+		return Projector.createInstance( getProjectionPolicy(), imageWidth, imageHeight, getResolution(), viewUnit, _frontClipDistance, _backClipDistance, getFieldOfView(), getZoomFactor() );
+	}
+
+	@Override
+	public ViewControlInput getControlInput()
+	{
+		return _controlInput;
+	}
+
+	@Override
+	public void setSize( final int width, final int height )
+	{
+		_viewComponent.setSize( width, height );
+	}
+
+	@Override
+	public BufferedImage renderImage( final int width, final int height )
+	{
+		final ViewComponent viewComponent = _viewComponent;
+		viewComponent.setSize( width, height );
+
+		final BufferedImage result = render( width, height );
+		final Graphics2D g2d = result.createGraphics();
+		paintOverlay( g2d );
+		g2d.dispose();
+		return result;
+	}
+
+	/**
+	 * Renders the scene (without overlays) to an image.
+	 *
+	 * @param width  Width of the image.
+	 * @param height Height of the image.
+	 *
+	 * @return Rendered image.
+	 */
+	private BufferedImage render( final int width, final int height )
+	{
+		final Projector projector = getProjector();
+		final Rasterizer rasterizer = new Rasterizer( width, height, projector );
+		rasterizer.clear( _viewComponent.getBackground().getRGB() );
+
+		final RenderStyle defaultStyle = new RenderStyle();
+		final Collection<RenderStyleFilter> styleFilters = getRenderStyleFilters();
+		final RenderStyle viewStyle = defaultStyle.applyFilters( styleFilters, this );
+		final boolean backfaceCulling = viewStyle.isBackfaceCullingEnabled();
+		final boolean perspective = ( projector instanceof Projector.PerspectiveProjector );
+		final Matrix3D scene2view = getScene2View();
+
+		final Map<Node3D,RenderStyle> nodeStyles = new HashMap<Node3D,RenderStyle>();
+		getScene().walk( new Node3DVisitor()
+		{
+			@Override
+			public boolean visitNode( @NotNull final Node3DPath path )
+			{
+				final Node3D node = path.getNode();
+
+				final Node3DPath parentPath = path.getParent();
+				final RenderStyle parentStyle = ( parentPath != null ) ? nodeStyles.get( parentPath.getNode() ) : viewStyle;
+
+				final RenderStyle nodeStyle = parentStyle.applyFilters( styleFilters, node );
+				nodeStyles.put( node, nodeStyle );
+
+				if ( node instanceof Object3D )
+				{
+					addObject( rasterizer, (Object3D)node, path.getTransform().multiply( scene2view ), nodeStyle, backfaceCulling, perspective );
+				}
+
+				return true;
+			}
+		} );
+
+		rasterizer.rasterize( _engine.getPool() );
+		return rasterizer.getImage();
+	}
+
+	/**
+	 * Adds triangles of the given object to the rasterizer.
+	 *
+	 * @param rasterizer      Rasterizer to add triangles to.
+	 * @param object          Object to add.
+	 * @param object2view     Transforms object to view coordinates.
+	 * @param renderStyle     Render style of the object.
+	 * @param backfaceCulling Whether backface culling is enabled.
+	 * @param perspective     Whether a perspective projection is used.
+	 */
+	private void addObject( @NotNull final Rasterizer rasterizer, @NotNull final Object3D object, @NotNull final Matrix3D object2view, @NotNull final RenderStyle renderStyle, final boolean backfaceCulling, final boolean perspective )
+	{
+		final boolean materialEnabled = renderStyle.isMaterialEnabled();
+		final boolean lighting = materialEnabled ? renderStyle.isMaterialLightingEnabled() : renderStyle.isFillLightingEnabled();
+		final Appearance appearanceOverride = renderStyle.getAppearanceOverride();
+		final Color4 fillColor = renderStyle.getFillColor();
+
+		if ( materialEnabled || renderStyle.isFillEnabled() )
+		{
+			final double[] triangleView = new double[ 9 ];
+			final float[] triangleColors = new float[ 9 ];
+			final float[] triangleUV = new float[ 6 ];
+
+			for ( final FaceGroup faceGroup : object.getFaceGroups() )
+			{
+				final Appearance appearance = ( appearanceOverride != null ) ? appearanceOverride : faceGroup.getAppearance();
+
+				final Color4 color;
+				final Rasterizer.Texture texture;
+				if ( materialEnabled && ( appearance != null ) )
+				{
+					color = appearance.getDiffuseColor();
+					final TextureMap colorMap = appearance.getColorMap();
+					texture = ( colorMap != null ) ? _engine.getTexture( colorMap ) : null;
+				}
+				else
+				{
+					color = fillColor;
+					texture = null;
+				}
+
+				if ( color != null )
+				{
+					final float red = color.getRedFloat();
+					final float green = color.getGreenFloat();
+					final float blue = color.getBlueFloat();
+					final boolean smooth = lighting && faceGroup.isSmooth();
+					final boolean cull = backfaceCulling && !faceGroup.isTwoSided();
+
+					if ( faceGroup instanceof CompactFaceGroup )
+					{
+						addFaces( rasterizer, (CompactFaceGroup)faceGroup, object2view, red, green, blue, lighting, smooth, cull, perspective, texture );
+					}
+					else
+					{
+						for ( final Face3D face : faceGroup.getFaces() )
+						{
+							final List<Vertex3D> vertices = face.getVertices();
+							final int vertexCount = vertices.size();
+
+							final double[] view = new double[ vertexCount * 3 ];
+							for ( int i = 0; i < vertexCount; i++ )
+							{
+								final Vector3D point = vertices.get( i ).point;
+								view[ i * 3 ] = object2view.transformX( point );
+								view[ i * 3 + 1 ] = object2view.transformY( point );
+								view[ i * 3 + 2 ] = object2view.transformZ( point );
+							}
+
+							final Vector3D normal = face.getNormal();
+							final double normalX = object2view.rotateX( normal );
+							final double normalY = object2view.rotateY( normal );
+							final double normalZ = object2view.rotateZ( normal );
+
+							if ( ( vertexCount >= 3 ) && ( !cull || ( perspective ? ( normalX * view[ 0 ] + normalY * view[ 1 ] + normalZ * view[ 2 ] < 0.0 ) : ( normalZ > 0.0 ) ) ) )
+							{
+								final float[] colors = new float[ vertexCount * 3 ];
+								for ( int i = 0; i < vertexCount; i++ )
+								{
+									float factor = 1.0f;
+									if ( lighting )
+									{
+										final double viewNormalZ = smooth ? object2view.rotateZ( face.getVertexNormal( i ) ) : normalZ;
+										factor = Math.min( 1.0f, ( 1.0f - SHADE_FACTOR ) + SHADE_FACTOR * Math.abs( (float)viewNormalZ ) );
+									}
+
+									colors[ i * 3 ] = factor * red;
+									colors[ i * 3 + 1 ] = factor * green;
+									colors[ i * 3 + 2 ] = factor * blue;
+								}
+
+								for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+								{
+									final int[] triangles = primitive.getTriangles();
+									for ( int i = 0; i + 2 < triangles.length; i += 3 )
+									{
+										for ( int j = 0; j < 3; j++ )
+										{
+											final int vertexIndex = triangles[ i + j ];
+											System.arraycopy( view, vertexIndex * 3, triangleView, j * 3, 3 );
+											System.arraycopy( colors, vertexIndex * 3, triangleColors, j * 3, 3 );
+
+											if ( texture != null )
+											{
+												final Vertex3D vertex = vertices.get( vertexIndex );
+												triangleUV[ j * 2 ] = vertex.colorMapU;
+												triangleUV[ j * 2 + 1 ] = vertex.colorMapV;
+											}
+										}
+
+										rasterizer.addTriangle( triangleView, triangleColors, ( texture != null ) ? triangleUV : null, texture );
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds triangles of a compact face group to the rasterizer. Vertices are
+	 * read from the packed arrays of the face group and are transformed once
+	 * for the whole group.
+	 *
+	 * @param rasterizer  Rasterizer to add triangles to.
+	 * @param faceGroup   Face group to add.
+	 * @param object2view Transforms object to view coordinates.
+	 * @param red         Red component of the face color.
+	 * @param green       Green component of the face color.
+	 * @param blue        Blue component of the face color.
+	 * @param lighting    Whether lighting is applied.
+	 * @param smooth      Whether vertex normals are used for lighting.
+	 * @param cull        Whether back faces are culled.
+	 * @param perspective Whether a perspective projection is used.
+	 * @param texture     Texture to apply; {@code null} if untextured.
+	 */
+	private static void addFaces( @NotNull final Rasterizer rasterizer, @NotNull final CompactFaceGroup faceGroup, @NotNull final Matrix3D object2view, final float red, final float green, final float blue, final boolean lighting, final boolean smooth, final boolean cull, final boolean perspective, @Nullable final Rasterizer.Texture texture )
+	{
+		final double[] positions = faceGroup.getPositions();
+		final float[] normals = smooth ? faceGroup.getNormals() : null;
+		final float[] texCoords = faceGroup.getTexCoords();
+		final int[] cornerVertices = faceGroup.getCornerVertices();
+		final int[] faceStarts = faceGroup.getFaceStarts();
+		final int[] triangles = faceGroup.getTriangles();
+		final int[] triangleStarts = faceGroup.getTriangleStarts();
+
+		final int vertexCount = faceGroup.getVertexCount();
+		final double[] view = new double[ vertexCount * 3 ];
+		for ( int i = 0; i < vertexCount * 3; i += 3 )
+		{
+			final double x = positions[ i ];
+			final double y = positions[ i + 1 ];
+			final double z = positions[ i + 2 ];
+			view[ i ] = object2view.transformX( x, y, z );
+			view[ i + 1 ] = object2view.transformY( x, y, z );
+			view[ i + 2 ] = object2view.transformZ( x, y, z );
+		}
+
+		final double[] triangleView = new double[ 9 ];
+		final float[] triangleColors = new float[ 9 ];
+		final float[] triangleUV = new float[ 6 ];
+
+		for ( int face = 0; face < faceStarts.length - 1; face++ )
+		{
+			final int faceStart = faceStarts[ face ];
+			final Vector3D normal = faceGroup.getFaceNormal( face );
+			final double normalX = object2view.rotateX( normal );
+			final double normalY = object2view.rotateY( normal );
+			final double normalZ = object2view.rotateZ( normal );
+
+			if ( faceStarts[ face + 1 ] - faceStart >= 3 )
+			{
+				final int first = cornerVertices[ faceStart ] * 3;
+				if ( !cull || ( perspective ? ( normalX * view[ first ] + normalY * view[ first + 1 ] + normalZ * view[ first + 2 ] < 0.0 ) : ( normalZ > 0.0 ) ) )
+				{
+					for ( int i = triangleStarts[ face ]; i + 2 < triangleStarts[ face + 1 ]; i += 3 )
+					{
+						for ( int j = 0; j < 3; j++ )
+						{
+							final int vertex = cornerVertices[ triangles[ i + j ] ];
+							System.arraycopy( view, vertex * 3, triangleView, j * 3, 3 );
+
+							float factor = 1.0f;
+							if ( lighting )
+							{
+								final double viewNormalZ = ( ( normals != null ) && !Float.isNaN( normals[ vertex * 3 ] ) ) ? object2view.rotateZ( (double)normals[ vertex * 3 ], (double)normals[ vertex * 3 + 1 ], (double)normals[ vertex * 3 + 2 ] ) : normalZ;
+								factor = Math.min( 1.0f, ( 1.0f - SHADE_FACTOR ) + SHADE_FACTOR * Math.abs( (float)viewNormalZ ) );
+							}
+
+							triangleColors[ j * 3 ] = factor * red;
+							triangleColors[ j * 3 + 1 ] = factor * green;
+							triangleColors[ j * 3 + 2 ] = factor * blue;
+
+							if ( texture != null )
+							{
+								triangleUV[ j * 2 ] = ( texCoords != null ) ? texCoords[ vertex * 2 ] : Float.NaN;
+								triangleUV[ j * 2 + 1 ] = ( texCoords != null ) ? texCoords[ vertex * 2 + 1 ] : Float.NaN;
+							}
+						}
+
+						rasterizer.addTriangle( triangleView, triangleColors, ( texture != null ) ? triangleUV : null, texture );
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Component through which a rendering of the view is shown.
+	 */
+	private class ViewComponent
+	extends JComponent
+	{
+		/**
+		 * Serialized form version.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Minimum width/height of a image.
+		 */
+		private static final int MINIMUM_IMAGE_SIZE = 150;
+
+		@Override
+		public Dimension getMinimumSize()
+		{
+			return new Dimension( MINIMUM_IMAGE_SIZE, MINIMUM_IMAGE_SIZE );
+		}
+
+		@Override
+		public Dimension getPreferredSize()
+		{
+			return new Dimension( MINIMUM_IMAGE_SIZE, MINIMUM_IMAGE_SIZE );
+		}
+
+		@Override
+		protected void paintComponent( final Graphics g )
+		{
+			final Insets insets = getInsets();
+			final int imageWidth = getWidth() - insets.left - insets.right;
+			final int imageHeight = getHeight() - insets.top - insets.bottom;
+
+			if ( ( imageWidth > 0 ) && ( imageHeight > 0 ) )
+			{
+				final Graphics2D g2d = (Graphics2D)g.create( insets.left, insets.top, imageWidth, imageHeight );
+				g2d.drawImage( render( imageWidth, imageHeight ), 0, 0, null );
+				paintOverlay( g2d );
+				g2d.dispose();
+			}
+		}
+	}
+}
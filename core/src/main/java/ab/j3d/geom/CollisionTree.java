@@ -0,0 +1,525 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * This object can be used to test for collisions between polygon soups.
+ *
+ * <p>Unlike {@link CollisionNode}, the bounding-box tree is built completely
+ * when the tree is constructed. Triangles are packed into a single
+ * {@code double[]} and nodes are stored in flat arrays, so collision tests do
+ * not allocate any objects. Nodes are split at the average point of their
+ * triangles, along the axis that gives the most balanced split.
+ *
+ * <p>Instances are immutable after construction and may be used by multiple
+ * threads concurrently.
+ *
+ * @author Peter S. Heijnen
+ */
+public class CollisionTree
+{
+	/**
+	 * Minimum number of triangles for which a parallel build is used.
+	 */
+	public static final int PARALLEL_BUILD_THRESHOLD = 8192;
+
+	/**
+	 * Maximum number of triangles in a leaf node.
+	 */
+	private static final int MAX_LEAF_SIZE = 1;
+
+	/**
+	 * Maximum depth of the tree. This prevents excessive recursion for
+	 * degenerate inputs.
+	 */
+	private static final int MAX_DEPTH = 64;
+
+	/**
+	 * Minimum number of triangles in a sub-tree that is built by a separate
+	 * fork/join task.
+	 */
+	private static final int PARALLEL_TASK_SIZE = 2048;
+
+	/**
+	 * Triangle coordinates (9 per triangle).
+	 */
+	private final double[] _triangles;
+
+	/**
+	 * Number of triangles.
+	 */
+	private final int _triangleCount;
+
+	/**
+	 * Node bounds (6 per node: minimum x, y, z, maximum x, y, z).
+	 */
+	private final double[] _nodeBounds;
+
+	/**
+	 * Index of first triangle per node.
+	 */
+	private final int[] _nodeOffsets;
+
+	/**
+	 * Number of triangles per leaf node; {@code 0} for inner nodes.
+	 */
+	private final int[] _nodeCounts;
+
+	/**
+	 * Second child per inner node. The first child of an inner node
+	 * immediately follows the node itself.
+	 */
+	private final int[] _secondChildren;
+
+	/**
+	 * Constructs a new tree. Triangles are re-ordered in-place, so the given
+	 * array should not be modified after this.
+	 *
+	 * <p>A sub-tree with {@code n} triangles uses at most {@code 2n-1} nodes,
+	 * so the location of every sub-tree can be determined before it is built.
+	 * This allows sub-trees to be built in parallel, while the result is the
+	 * same as for a sequential build.
+	 *
+	 * @param triangles     Triangle coordinates (9 per triangle).
+	 * @param triangleCount Number of triangles.
+	 * @param parallel      Build sub-trees in parallel using the common
+	 *                      fork/join pool if there are at least {@link
+	 *                      #PARALLEL_BUILD_THRESHOLD} triangles.
+	 *
+	 * @throws IllegalArgumentException if {@code triangleCount} is {@code 0}.
+	 */
+	public CollisionTree( @NotNull final double[] triangles, final int triangleCount, final boolean parallel )
+	{
+		if ( triangleCount <= 0 )
+		{
+			throw new IllegalArgumentException( String.valueOf( triangleCount ) );
+		}
+
+		if ( triangleCount * 9 > triangles.length )
+		{
+			throw new IndexOutOfBoundsException( String.valueOf( triangleCount ) );
+		}
+
+		final int nodeCount = 2 * triangleCount - 1;
+		_triangles = triangles;
+		_triangleCount = triangleCount;
+		_nodeBounds = new double[ nodeCount * 6 ];
+		_nodeOffsets = new int[ nodeCount ];
+		_nodeCounts = new int[ nodeCount ];
+		_secondChildren = new int[ nodeCount ];
+
+		if ( parallel && ( triangleCount >= PARALLEL_BUILD_THRESHOLD ) )
+		{
+			ForkJoinPool.commonPool().invoke( new BuildTask( 0, 0, triangleCount, 0 ) );
+		}
+		else
+		{
+			build( 0, 0, triangleCount, 0 );
+		}
+	}
+
+	/**
+	 * Returns the number of triangles in the tree.
+	 *
+	 * @return Number of triangles.
+	 */
+	public int getTriangleCount()
+	{
+		return _triangleCount;
+	}
+
+	/**
+	 * Check for collision with another tree.
+	 *
+	 * @param other      Tree to test collision with.
+	 * @param other2this Transformation from other to this coordinate system.
+	 *
+	 * @return {@code true} if a collision was found; {@code false} if no
+	 * collision was found.
+	 */
+	public boolean collidesWith( @NotNull final CollisionTree other, @NotNull final Matrix3D other2this )
+	{
+		return collidesWith( 0, other, 0, other2this );
+	}
+
+	/**
+	 * Check for collision between sub-trees.
+	 *
+	 * @param thisNode   Node in this tree.
+	 * @param other      Other tree.
+	 * @param otherNode  Node in other tree.
+	 * @param other2this Transformation from other to this coordinate system.
+	 *
+	 * @return {@code true} if a collision was found; {@code false} if no
+	 * collision was found.
+	 */
+	private boolean collidesWith( final int thisNode, @NotNull final CollisionTree other, final int otherNode, @NotNull final Matrix3D other2this )
+	{
+		boolean result = false;
+
+		final double[] thisBounds = _nodeBounds;
+		final double[] otherBounds = other._nodeBounds;
+		final int thisOffset = thisNode * 6;
+		final int otherOffset = otherNode * 6;
+
+		final double thisDX = thisBounds[ thisOffset + 3 ] - thisBounds[ thisOffset ];
+		final double thisDY = thisBounds[ thisOffset + 4 ] - thisBounds[ thisOffset + 1 ];
+		final double thisDZ = thisBounds[ thisOffset + 5 ] - thisBounds[ thisOffset + 2 ];
+		final double otherDX = otherBounds[ otherOffset + 3 ] - otherBounds[ otherOffset ];
+		final double otherDY = otherBounds[ otherOffset + 4 ] - otherBounds[ otherOffset + 1 ];
+		final double otherDZ = otherBounds[ otherOffset + 5 ] - otherBounds[ otherOffset + 2 ];
+
+		if ( GeometryTools.testOrientedBoundingBoxIntersection( thisBounds[ thisOffset ], thisBounds[ thisOffset + 1 ], thisBounds[ thisOffset + 2 ], thisDX, thisDY, thisDZ, other2this, otherBounds[ otherOffset ], otherBounds[ otherOffset + 1 ], otherBounds[ otherOffset + 2 ], otherDX, otherDY, otherDZ ) )
+		{
+			final boolean thisLeaf = ( _nodeCounts[ thisNode ] != 0 );
+			final boolean otherLeaf = ( other._nodeCounts[ otherNode ] != 0 );
+
+			if ( thisLeaf && otherLeaf )
+			{
+				result = testTriangleTriangleCollision( thisNode, other, otherNode, other2this );
+			}
+			else if ( otherLeaf || ( !thisLeaf && ( thisDX * thisDY * thisDZ > otherDX * otherDY * otherDZ ) ) )
+			{
+				result = collidesWith( thisNode + 1, other, otherNode, other2this ) ||
+				         collidesWith( _secondChildren[ thisNode ], other, otherNode, other2this );
+			}
+			else
+			{
+				result = collidesWith( thisNode, other, otherNode + 1, other2this ) ||
+				         collidesWith( thisNode, other, other._secondChildren[ otherNode ], other2this );
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check for collision between triangles of two leaf nodes.
+	 *
+	 * @param thisNode   Leaf node in this tree.
+	 * @param other      Other tree.
+	 * @param otherNode  Leaf node in other tree.
+	 * @param other2this Transformation from other to this coordinate system.
+	 *
+	 * @return {@code true} if a collision was found; {@code false} if no
+	 * collision was found.
+	 */
+	private boolean testTriangleTriangleCollision( final int thisNode, @NotNull final CollisionTree other, final int otherNode, @NotNull final Matrix3D other2this )
+	{
+		boolean result = false;
+
+		final double[] thisTriangles = _triangles;
+		final int thisStart = _nodeOffsets[ thisNode ] * 9;
+		final int thisEnd = thisStart + _nodeCounts[ thisNode ] * 9;
+
+		final double[] otherTriangles = other._triangles;
+		final int otherStart = other._nodeOffsets[ otherNode ] * 9;
+		final int otherEnd = otherStart + other._nodeCounts[ otherNode ] * 9;
+
+		for ( int otherIndex = otherStart; !result && ( otherIndex < otherEnd ); otherIndex += 9 )
+		{
+			final double x1 = otherTriangles[ otherIndex ];
+			final double y1 = otherTriangles[ otherIndex + 1 ];
+			final double z1 = otherTriangles[ otherIndex + 2 ];
+			final double x2 = otherTriangles[ otherIndex + 3 ];
+			final double y2 = otherTriangles[ otherIndex + 4 ];
+			final double z2 = otherTriangles[ otherIndex + 5 ];
+			final double x3 = otherTriangles[ otherIndex + 6 ];
+			final double y3 = otherTriangles[ otherIndex + 7 ];
+			final double z3 = otherTriangles[ otherIndex + 8 ];
+
+			final double otherX1 = other2this.transformX( x1, y1, z1 );
+			final double otherY1 = other2this.transformY( x1, y1, z1 );
+			final double otherZ1 = other2this.transformZ( x1, y1, z1 );
+			final double otherX2 = other2this.transformX( x2, y2, z2 );
+			final double otherY2 = other2this.transformY( x2, y2, z2 );
+			final double otherZ2 = other2this.transformZ( x2, y2, z2 );
+			final double otherX3 = other2this.transformX( x3, y3, z3 );
+			final double otherY3 = other2this.transformY( x3, y3, z3 );
+			final double otherZ3 = other2this.transformZ( x3, y3, z3 );
+
+			for ( int thisIndex = thisStart; thisIndex < thisEnd; thisIndex += 9 )
+			{
+				if ( TriTriMoeler.testTriangleTriangle( otherX1, otherY1, otherZ1, otherX2, otherY2, otherZ2, otherX3, otherY3, otherZ3,
+				                                        thisTriangles[ thisIndex ], thisTriangles[ thisIndex + 1 ], thisTriangles[ thisIndex + 2 ],
+				                                        thisTriangles[ thisIndex + 3 ], thisTriangles[ thisIndex + 4 ], thisTriangles[ thisIndex + 5 ],
+				                                        thisTriangles[ thisIndex + 6 ], thisTriangles[ thisIndex + 7 ], thisTriangles[ thisIndex + 8 ] ) )
+				{
+					result = true;
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Builds a sub-tree.
+	 *
+	 * @param node   Root node of the sub-tree.
+	 * @param offset Index of first triangle.
+	 * @param count  Number of triangles.
+	 * @param depth  Depth of the node in the tree.
+	 */
+	private void build( final int node, final int offset, final int count, final int depth )
+	{
+		final int countLeft = buildNode( node, offset, count, depth );
+		if ( countLeft > 0 )
+		{
+			build( node + 1, offset, countLeft, depth + 1 );
+			build( node + 2 * countLeft, offset + countLeft, count - countLeft, depth + 1 );
+		}
+	}
+
+	/**
+	 * Sets the bounds of a node and splits its triangles, if possible.
+	 *
+	 * @param node   Node to build.
+	 * @param offset Index of first triangle.
+	 * @param count  Number of triangles.
+	 * @param depth  Depth of the node in the tree.
+	 *
+	 * @return Number of triangles in the first child;
+	 * {@code 0} if the node is a leaf.
+	 */
+	private int buildNode( final int node, final int offset, final int count, final int depth )
+	{
+		final double[] triangles = _triangles;
+		final int start = offset * 9;
+		final int end = start + count * 9;
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double maxZ = Double.NEGATIVE_INFINITY;
+		double sumX = 0.0;
+		double sumY = 0.0;
+		double sumZ = 0.0;
+
+		for ( int i = start; i < end; i += 3 )
+		{
+			final double x = triangles[ i ];
+			final double y = triangles[ i + 1 ];
+			final double z = triangles[ i + 2 ];
+			minX = ( x < minX ) ? x : minX;
+			minY = ( y < minY ) ? y : minY;
+			minZ = ( z < minZ ) ? z : minZ;
+			maxX = ( x > maxX ) ? x : maxX;
+			maxY = ( y > maxY ) ? y : maxY;
+			maxZ = ( z > maxZ ) ? z : maxZ;
+			sumX += x;
+			sumY += y;
+			sumZ += z;
+		}
+
+		final double[] bounds = _nodeBounds;
+		final int boundsOffset = node * 6;
+		bounds[ boundsOffset ] = minX;
+		bounds[ boundsOffset + 1 ] = minY;
+		bounds[ boundsOffset + 2 ] = minZ;
+		bounds[ boundsOffset + 3 ] = maxX;
+		bounds[ boundsOffset + 4 ] = maxY;
+		bounds[ boundsOffset + 5 ] = maxZ;
+		_nodeOffsets[ node ] = offset;
+
+		int result = 0;
+
+		if ( ( count > MAX_LEAF_SIZE ) && ( depth < MAX_DEPTH ) )
+		{
+			/*
+			 * Compare triangle centers multiplied by 3 with the average point
+			 * multiplied by 3, to avoid divisions.
+			 */
+			final double pointCount = (double)( count * 3 );
+			final double splitX = 3.0 * sumX / pointCount;
+			final double splitY = 3.0 * sumY / pointCount;
+			final double splitZ = 3.0 * sumZ / pointCount;
+
+			int countX = 0;
+			int countY = 0;
+			int countZ = 0;
+
+			for ( int i = start; i < end; i += 9 )
+			{
+				if ( triangles[ i ] + triangles[ i + 3 ] + triangles[ i + 6 ] < splitX )
+				{
+					countX++;
+				}
+
+				if ( triangles[ i + 1 ] + triangles[ i + 4 ] + triangles[ i + 7 ] < splitY )
+				{
+					countY++;
+				}
+
+				if ( triangles[ i + 2 ] + triangles[ i + 5 ] + triangles[ i + 8 ] < splitZ )
+				{
+					countZ++;
+				}
+			}
+
+			/*
+			 * Only split if we don't end up with empty branches.
+			 */
+			if ( ( ( countX > 0 ) && ( countX < count ) ) ||
+			     ( ( countY > 0 ) && ( countY < count ) ) ||
+			     ( ( countZ > 0 ) && ( countZ < count ) ) )
+			{
+				final int balanceX = Math.abs( countX * 2 - count );
+				final int balanceY = Math.abs( countY * 2 - count );
+				final int balanceZ = Math.abs( countZ * 2 - count );
+
+				if ( ( balanceX <= balanceY ) && ( balanceX <= balanceZ ) ) /* X is most balanced */
+				{
+					partition( start, end, 0, splitX );
+					result = countX;
+				}
+				else if ( balanceY <= balanceZ ) /* Y is most balanced */
+				{
+					partition( start, end, 1, splitY );
+					result = countY;
+				}
+				else /* Z is most balanced */
+				{
+					partition( start, end, 2, splitZ );
+					result = countZ;
+				}
+
+				_nodeCounts[ node ] = 0;
+				_secondChildren[ node ] = node + 2 * result;
+			}
+		}
+
+		if ( result == 0 )
+		{
+			_nodeCounts[ node ] = count;
+			_secondChildren[ node ] = -1;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Moves all triangles whose center is below the split value to the start
+	 * of the given range.
+	 *
+	 * @param start First coordinate index in the range.
+	 * @param end   End coordinate index of the range (exclusive).
+	 * @param axis  Axis to split on (0=X, 1=Y, 2=Z).
+	 * @param split Split value multiplied by 3.
+	 */
+	private void partition( final int start, final int end, final int axis, final double split )
+	{
+		final double[] triangles = _triangles;
+
+		int left = start;
+		int right = end - 9;
+
+		while ( left <= right )
+		{
+			if ( triangles[ left + axis ] + triangles[ left + 3 + axis ] + triangles[ left + 6 + axis ] < split )
+			{
+				left += 9;
+			}
+			else
+			{
+				for ( int i = 0; i < 9; i++ )
+				{
+					final double temp = triangles[ left + i ];
+					triangles[ left + i ] = triangles[ right + i ];
+					triangles[ right + i ] = temp;
+				}
+				right -= 9;
+			}
+		}
+	}
+
+	/**
+	 * Fork/join task to build a sub-tree.
+	 */
+	private class BuildTask
+		extends RecursiveAction
+	{
+		/**
+		 * Serialized form version.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Root node of the sub-tree.
+		 */
+		private final int _node;
+
+		/**
+		 * Index of first triangle.
+		 */
+		private final int _offset;
+
+		/**
+		 * Number of triangles.
+		 */
+		private final int _count;
+
+		/**
+		 * Depth of the node in the tree.
+		 */
+		private final int _depth;
+
+		/**
+		 * Constructs a new task.
+		 *
+		 * @param node   Root node of the sub-tree.
+		 * @param offset Index of first triangle.
+		 * @param count  Number of triangles.
+		 * @param depth  Depth of the node in the tree.
+		 */
+		private BuildTask( final int node, final int offset, final int count, final int depth )
+		{
+			_node = node;
+			_offset = offset;
+			_count = count;
+			_depth = depth;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if ( _count < PARALLEL_TASK_SIZE )
+			{
+				build( _node, _offset, _count, _depth );
+			}
+			else
+			{
+				final int countLeft = buildNode( _node, _offset, _count, _depth );
+				if ( countLeft > 0 )
+				{
+					invokeAll( new BuildTask( _node + 1, _offset, countLeft, _depth + 1 ),
+					           new BuildTask( _node + 2 * countLeft, _offset + countLeft, _count - countLeft, _depth + 1 ) );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,823 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.*;
+
+import ab.j3d.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Incrementally maintained bounding volume hierarchy of axis-aligned bounding
+ * boxes. Items can be inserted, moved and removed at any time; the tree is
+ * kept balanced using tree rotations.
+ *
+ * <p>Leaf boxes are enlarged by a margin ('fat' boxes), so small movements of
+ * an item do not require the tree to be updated.
+ *
+ * <p>Nodes are stored in flat arrays and are identified by an integer
+ * ('proxy'), which is returned by {@link #insert} and used to move or remove
+ * the item.
+ *
+ * <p>This class is not thread-safe. Queries do not modify the tree, so they
+ * may run concurrently with each other and may be started from within
+ * another query (e.g. by the result collection), as long as the tree is not
+ * modified at the same time.
+ *
+ * @param <T> Item type.
+ *
+ * @author Peter S. Heijnen
+ */
+public class DynamicAABBTree<T>
+{
+	/**
+	 * Index used to indicate the absence of a node.
+	 */
+	public static final int NULL_NODE = -1;
+
+	/**
+	 * Tolerance used by {@link GeometryTools#getIntersectionBetweenRayAndPlane}
+	 * for intersections that are (almost) at the ray origin.
+	 */
+	private static final double RAY_ORIGIN_TOLERANCE = 0.001;
+
+	/**
+	 * Relative margin by which leaf boxes are enlarged.
+	 */
+	private final double _margin;
+
+	/**
+	 * Node bounds (6 per node: minimum x, y, z, maximum x, y, z).
+	 */
+	private double[] _bounds;
+
+	/**
+	 * Parent node per node. For nodes in the free list, this is the next free
+	 * node.
+	 */
+	private int[] _parents;
+
+	/**
+	 * First child per node; {@link #NULL_NODE} for leaf nodes.
+	 */
+	private int[] _children1;
+
+	/**
+	 * Second child per node; {@link #NULL_NODE} for leaf nodes.
+	 */
+	private int[] _children2;
+
+	/**
+	 * Height of the sub-tree per node; 0 for leaf nodes; -1 for free nodes.
+	 */
+	private int[] _heights;
+
+	/**
+	 * Item per leaf node.
+	 */
+	private Object[] _items;
+
+	/**
+	 * Root node.
+	 */
+	private int _root = NULL_NODE;
+
+	/**
+	 * First node in the free list.
+	 */
+	private int _freeList = NULL_NODE;
+
+	/**
+	 * Number of allocated nodes (including free nodes).
+	 */
+	private int _nodeCapacity = 0;
+
+	/**
+	 * Number of items in the tree.
+	 */
+	private int _itemCount = 0;
+
+	/**
+	 * Constructs a new tree with a leaf margin of 10%.
+	 */
+	public DynamicAABBTree()
+	{
+		this( 0.1 );
+	}
+
+	/**
+	 * Constructs a new tree.
+	 *
+	 * @param margin Relative margin by which leaf boxes are enlarged, e.g.
+	 *               {@code 0.1} to enlarge boxes by 10% of their size.
+	 */
+	public DynamicAABBTree( final double margin )
+	{
+		_margin = margin;
+		ensureCapacity( 16 );
+	}
+
+	/**
+	 * Returns the number of items in the tree.
+	 *
+	 * @return Number of items.
+	 */
+	public int size()
+	{
+		return _itemCount;
+	}
+
+	/**
+	 * Returns the height of the tree.
+	 *
+	 * @return Height of the tree; {@code -1} if the tree is empty.
+	 */
+	public int getHeight()
+	{
+		return ( _root == NULL_NODE ) ? -1 : _heights[ _root ];
+	}
+
+	/**
+	 * Returns the item stored at the given leaf.
+	 *
+	 * @param proxy Leaf node.
+	 *
+	 * @return Item.
+	 */
+	public T getItem( final int proxy )
+	{
+		return item( proxy );
+	}
+
+	/**
+	 * Returns the item stored at the given node. Items are only ever stored
+	 * through {@link #insert}, so the cast is safe.
+	 *
+	 * @param node Leaf node.
+	 *
+	 * @return Item.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private T item( final int node )
+	{
+		return (T)_items[ node ];
+	}
+
+	/**
+	 * Returns the (enlarged) bounds stored for the given leaf.
+	 *
+	 * @param proxy Leaf node.
+	 *
+	 * @return Bounds of leaf.
+	 */
+	@NotNull
+	public Bounds3D getBounds( final int proxy )
+	{
+		final double[] bounds = _bounds;
+		final int offset = proxy * 6;
+		return new Bounds3D( bounds[ offset ], bounds[ offset + 1 ], bounds[ offset + 2 ], bounds[ offset + 3 ], bounds[ offset + 4 ], bounds[ offset + 5 ] );
+	}
+
+	/**
+	 * Inserts an item into the tree.
+	 *
+	 * @param item   Item to insert.
+	 * @param bounds Bounds of the item.
+	 *
+	 * @return Leaf node (proxy) for the item.
+	 */
+	public int insert( @NotNull final T item, @NotNull final Bounds3D bounds )
+	{
+		final int leaf = allocateNode();
+		setFatBounds( leaf, bounds );
+		_items[ leaf ] = item;
+		_heights[ leaf ] = 0;
+		insertLeaf( leaf );
+		_itemCount++;
+		return leaf;
+	}
+
+	/**
+	 * Removes an item from the tree.
+	 *
+	 * @param proxy Leaf node of the item to remove.
+	 */
+	public void remove( final int proxy )
+	{
+		removeLeaf( proxy );
+		freeNode( proxy );
+		_itemCount--;
+	}
+
+	/**
+	 * Updates the bounds of an item. If the new bounds are still contained in
+	 * the enlarged bounds of the leaf, the tree is not modified.
+	 *
+	 * @param proxy  Leaf node of the item.
+	 * @param bounds New bounds of the item.
+	 *
+	 * @return {@code true} if the leaf was re-inserted.
+	 */
+	public boolean move( final int proxy, @NotNull final Bounds3D bounds )
+	{
+		final boolean result;
+
+		final double[] nodeBounds = _bounds;
+		final int offset = proxy * 6;
+		if ( ( nodeBounds[ offset ] <= bounds.minX() ) && ( nodeBounds[ offset + 1 ] <= bounds.minY() ) && ( nodeBounds[ offset + 2 ] <= bounds.minZ() ) &&
+		     ( nodeBounds[ offset + 3 ] >= bounds.maxX() ) && ( nodeBounds[ offset + 4 ] >= bounds.maxY() ) && ( nodeBounds[ offset + 5 ] >= bounds.maxZ() ) )
+		{
+			result = false;
+		}
+		else
+		{
+			removeLeaf( proxy );
+			setFatBounds( proxy, bounds );
+			insertLeaf( proxy );
+			result = true;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Removes all items from the tree.
+	 */
+	public void clear()
+	{
+		_root = NULL_NODE;
+		_freeList = NULL_NODE;
+		_itemCount = 0;
+		Arrays.fill( _items, null );
+		for ( int node = _nodeCapacity; --node >= 0; )
+		{
+			_heights[ node ] = -1;
+			_parents[ node ] = _freeList;
+			_freeList = node;
+		}
+	}
+
+	/**
+	 * Adds all items whose (enlarged) bounds intersect the given bounds to the
+	 * given collection. Bounds that only touch are considered intersecting.
+	 *
+	 * @param bounds Bounds to test.
+	 * @param result Collection to add items to.
+	 */
+	public void query( @NotNull final Bounds3D bounds, @NotNull final Collection<? super T> result )
+	{
+		final double minX = bounds.minX();
+		final double minY = bounds.minY();
+		final double minZ = bounds.minZ();
+		final double maxX = bounds.maxX();
+		final double maxY = bounds.maxY();
+		final double maxZ = bounds.maxZ();
+
+		final double[] nodeBounds = _bounds;
+		int[] stack = createStack();
+		int stackSize = 0;
+
+		if ( _root != NULL_NODE )
+		{
+			stack[ stackSize++ ] = _root;
+		}
+
+		while ( stackSize > 0 )
+		{
+			final int node = stack[ --stackSize ];
+			final int offset = node * 6;
+			if ( ( nodeBounds[ offset ] <= maxX ) && ( nodeBounds[ offset + 3 ] >= minX ) &&
+			     ( nodeBounds[ offset + 1 ] <= maxY ) && ( nodeBounds[ offset + 4 ] >= minY ) &&
+			     ( nodeBounds[ offset + 2 ] <= maxZ ) && ( nodeBounds[ offset + 5 ] >= minZ ) )
+			{
+				final int child1 = _children1[ node ];
+				if ( child1 == NULL_NODE )
+				{
+					result.add( item( node ) );
+				}
+				else
+				{
+					if ( stackSize + 2 > stack.length )
+					{
+						stack = Arrays.copyOf( stack, stack.length * 2 );
+					}
+					stack[ stackSize++ ] = child1;
+					stack[ stackSize++ ] = _children2[ node ];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds all items whose (enlarged) bounds are hit by the given ray to the
+	 * given collection. Bounds are tested conservatively, i.e. with the same
+	 * tolerance for intersections near the ray origin as used by
+	 * {@link GeometryTools#getIntersectionBetweenRayAndPlane}.
+	 *
+	 * @param ray    Ray to test.
+	 * @param result Collection to add items to.
+	 */
+	public void query( @NotNull final Ray3D ray, @NotNull final Collection<? super T> result )
+	{
+		final Vector3D origin = ray.getOrigin();
+		final Vector3D direction = ray.getDirection();
+		final double minT = ray.isHalfRay() ? -RAY_ORIGIN_TOLERANCE : Double.NEGATIVE_INFINITY;
+		final double padding = RAY_ORIGIN_TOLERANCE * direction.length();
+
+		final double[] nodeBounds = _bounds;
+		int[] stack = createStack();
+		int stackSize = 0;
+
+		if ( _root != NULL_NODE )
+		{
+			stack[ stackSize++ ] = _root;
+		}
+
+		while ( stackSize > 0 )
+		{
+			final int node = stack[ --stackSize ];
+			final int offset = node * 6;
+			if ( testRay( nodeBounds, offset, padding, origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, minT ) )
+			{
+				final int child1 = _children1[ node ];
+				if ( child1 == NULL_NODE )
+				{
+					result.add( item( node ) );
+				}
+				else
+				{
+					if ( stackSize + 2 > stack.length )
+					{
+						stack = Arrays.copyOf( stack, stack.length * 2 );
+					}
+					stack[ stackSize++ ] = child1;
+					stack[ stackSize++ ] = _children2[ node ];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a traversal stack for a query. Each query uses its own stack, so
+	 * queries do not interfere with each other.
+	 *
+	 * @return Traversal stack.
+	 */
+	private int[] createStack()
+	{
+		final int root = _root;
+		return new int[ Math.max( 16, ( root == NULL_NODE ) ? 0 : _heights[ root ] + 2 ) ];
+	}
+
+	/**
+	 * Tests whether a ray hits a box, using the slab method.
+	 *
+	 * @param bounds     Bounds array.
+	 * @param offset     Offset in bounds array.
+	 * @param padding    Amount by which the box is enlarged.
+	 * @param originX    X coordinate of ray origin.
+	 * @param originY    Y coordinate of ray origin.
+	 * @param originZ    Z coordinate of ray origin.
+	 * @param directionX X component of ray direction.
+	 * @param directionY Y component of ray direction.
+	 * @param directionZ Z component of ray direction.
+	 * @param minT       Minimum ray parameter.
+	 *
+	 * @return {@code true} if the ray hits the box.
+	 */
+	private static boolean testRay( final double[] bounds, final int offset, final double padding, final double originX, final double originY, final double originZ, final double directionX, final double directionY, final double directionZ, final double minT )
+	{
+		double tMin = minT;
+		double tMax = Double.POSITIVE_INFINITY;
+		boolean result = true;
+
+		for ( int axis = 0; result && ( axis < 3 ); axis++ )
+		{
+			final double origin = ( axis == 0 ) ? originX : ( axis == 1 ) ? originY : originZ;
+			final double direction = ( axis == 0 ) ? directionX : ( axis == 1 ) ? directionY : directionZ;
+			final double min = bounds[ offset + axis ] - padding;
+			final double max = bounds[ offset + 3 + axis ] + padding;
+
+			if ( direction == 0.0 )
+			{
+				result = ( origin >= min ) && ( origin <= max );
+			}
+			else
+			{
+				final double t1 = ( min - origin ) / direction;
+				final double t2 = ( max - origin ) / direction;
+				tMin = Math.max( tMin, Math.min( t1, t2 ) );
+				tMax = Math.min( tMax, Math.max( t1, t2 ) );
+				result = ( tMin <= tMax );
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Stores enlarged bounds for a leaf.
+	 *
+	 * @param leaf   Leaf node.
+	 * @param bounds Bounds of the item.
+	 */
+	private void setFatBounds( final int leaf, @NotNull final Bounds3D bounds )
+	{
+		final double marginX = _margin * bounds.deltaX();
+		final double marginY = _margin * bounds.deltaY();
+		final double marginZ = _margin * bounds.deltaZ();
+
+		final double[] nodeBounds = _bounds;
+		final int offset = leaf * 6;
+		nodeBounds[ offset ] = bounds.minX() - marginX;
+		nodeBounds[ offset + 1 ] = bounds.minY() - marginY;
+		nodeBounds[ offset + 2 ] = bounds.minZ() - marginZ;
+		nodeBounds[ offset + 3 ] = bounds.maxX() + marginX;
+		nodeBounds[ offset + 4 ] = bounds.maxY() + marginY;
+		nodeBounds[ offset + 5 ] = bounds.maxZ() + marginZ;
+	}
+
+	/**
+	 * Allocates a node from the free list, growing the node arrays if needed.
+	 *
+	 * @return Allocated node.
+	 */
+	private int allocateNode()
+	{
+		if ( _freeList == NULL_NODE )
+		{
+			ensureCapacity( _nodeCapacity * 2 );
+		}
+
+		final int result = _freeList;
+		_freeList = _parents[ result ];
+		_parents[ result ] = NULL_NODE;
+		_children1[ result ] = NULL_NODE;
+		_children2[ result ] = NULL_NODE;
+		_heights[ result ] = 0;
+		return result;
+	}
+
+	/**
+	 * Returns a node to the free list.
+	 *
+	 * @param node Node to free.
+	 */
+	private void freeNode( final int node )
+	{
+		_items[ node ] = null;
+		_heights[ node ] = -1;
+		_parents[ node ] = _freeList;
+		_freeList = node;
+	}
+
+	/**
+	 * Grows the node arrays and adds the new nodes to the free list.
+	 *
+	 * @param capacity Minimum number of nodes.
+	 */
+	private void ensureCapacity( final int capacity )
+	{
+		final int oldCapacity = _nodeCapacity;
+		if ( capacity > oldCapacity )
+		{
+			_bounds = ( _bounds == null ) ? new double[ capacity * 6 ] : Arrays.copyOf( _bounds, capacity * 6 );
+			_parents = ( _parents == null ) ? new int[ capacity ] : Arrays.copyOf( _parents, capacity );
+			_children1 = ( _children1 == null ) ? new int[ capacity ] : Arrays.copyOf( _children1, capacity );
+			_children2 = ( _children2 == null ) ? new int[ capacity ] : Arrays.copyOf( _children2, capacity );
+			_heights = ( _heights == null ) ? new int[ capacity ] : Arrays.copyOf( _heights, capacity );
+			_items = ( _items == null ) ? new Object[ capacity ] : Arrays.copyOf( _items, capacity );
+
+			for ( int node = capacity; --node >= oldCapacity; )
+			{
+				_heights[ node ] = -1;
+				_parents[ node ] = _freeList;
+				_freeList = node;
+			}
+
+			_nodeCapacity = capacity;
+		}
+	}
+
+	/**
+	 * Inserts a leaf into the tree. The sibling is chosen by descending the
+	 * tree along the child with the lowest increase in surface area.
+	 *
+	 * @param leaf Leaf node to insert.
+	 */
+	private void insertLeaf( final int leaf )
+	{
+		if ( _root == NULL_NODE )
+		{
+			_root = leaf;
+			_parents[ leaf ] = NULL_NODE;
+		}
+		else
+		{
+			final double[] bounds = _bounds;
+			final int leafOffset = leaf * 6;
+
+			/*
+			 * Find the best sibling.
+			 */
+			int sibling = _root;
+			while ( _children1[ sibling ] != NULL_NODE )
+			{
+				final int child1 = _children1[ sibling ];
+				final int child2 = _children2[ sibling ];
+
+				final double area = surfaceArea( bounds, sibling * 6 );
+				final double combinedArea = combinedSurfaceArea( bounds, sibling * 6, leafOffset );
+
+				/*
+				 * Cost of creating a new parent for this node and the new leaf,
+				 * and minimum cost of pushing the leaf further down the tree.
+				 */
+				final double cost = 2.0 * combinedArea;
+				final double inheritanceCost = 2.0 * ( combinedArea - area );
+
+				final double cost1 = getDescendCost( child1, leafOffset ) + inheritanceCost;
+				final double cost2 = getDescendCost( child2, leafOffset ) + inheritanceCost;
+
+				if ( ( cost < cost1 ) && ( cost < cost2 ) )
+				{
+					break;
+				}
+
+				sibling = ( cost1 < cost2 ) ? child1 : child2;
+			}
+
+			/*
+			 * Create a new parent.
+			 */
+			final int oldParent = _parents[ sibling ];
+			final int newParent = allocateNode();
+			_parents[ newParent ] = oldParent;
+			_items[ newParent ] = null;
+			combine( _bounds, newParent * 6, sibling * 6, leafOffset );
+			_heights[ newParent ] = _heights[ sibling ] + 1;
+
+			if ( oldParent != NULL_NODE )
+			{
+				if ( _children1[ oldParent ] == sibling )
+				{
+					_children1[ oldParent ] = newParent;
+				}
+				else
+				{
+					_children2[ oldParent ] = newParent;
+				}
+			}
+			else
+			{
+				_root = newParent;
+			}
+
+			_children1[ newParent ] = sibling;
+			_children2[ newParent ] = leaf;
+			_parents[ sibling ] = newParent;
+			_parents[ leaf ] = newParent;
+
+			refit( _parents[ leaf ] );
+		}
+	}
+
+	/**
+	 * Returns the cost of descending into the given node when inserting a
+	 * leaf.
+	 *
+	 * @param node       Node to descend into.
+	 * @param leafOffset Offset of leaf bounds.
+	 *
+	 * @return Cost.
+	 */
+	private double getDescendCost( final int node, final int leafOffset )
+	{
+		final double[] bounds = _bounds;
+		final double combinedArea = combinedSurfaceArea( bounds, node * 6, leafOffset );
+		return ( _children1[ node ] == NULL_NODE ) ? combinedArea : combinedArea - surfaceArea( bounds, node * 6 );
+	}
+
+	/**
+	 * Removes a leaf from the tree. The leaf node itself is not freed.
+	 *
+	 * @param leaf Leaf node to remove.
+	 */
+	private void removeLeaf( final int leaf )
+	{
+		if ( leaf == _root )
+		{
+			_root = NULL_NODE;
+		}
+		else
+		{
+			final int parent = _parents[ leaf ];
+			final int grandParent = _parents[ parent ];
+			final int sibling = ( _children1[ parent ] == leaf ) ? _children2[ parent ] : _children1[ parent ];
+
+			if ( grandParent != NULL_NODE )
+			{
+				if ( _children1[ grandParent ] == parent )
+				{
+					_children1[ grandParent ] = sibling;
+				}
+				else
+				{
+					_children2[ grandParent ] = sibling;
+				}
+				_parents[ sibling ] = grandParent;
+				freeNode( parent );
+				refit( grandParent );
+			}
+			else
+			{
+				_root = sibling;
+				_parents[ sibling ] = NULL_NODE;
+				freeNode( parent );
+			}
+		}
+
+		_parents[ leaf ] = NULL_NODE;
+	}
+
+	/**
+	 * Walks up the tree from the given node, re-balancing and updating bounds
+	 * and heights.
+	 *
+	 * @param start Node to start at.
+	 */
+	private void refit( final int start )
+	{
+		int node = start;
+		while ( node != NULL_NODE )
+		{
+			node = balance( node );
+
+			final int child1 = _children1[ node ];
+			final int child2 = _children2[ node ];
+			_heights[ node ] = 1 + Math.max( _heights[ child1 ], _heights[ child2 ] );
+			combine( _bounds, node * 6, child1 * 6, child2 * 6 );
+
+			node = _parents[ node ];
+		}
+	}
+
+	/**
+	 * Performs a left or right rotation if the given node is imbalanced.
+	 *
+	 * @param a Node to balance.
+	 *
+	 * @return New root of the sub-tree.
+	 */
+	private int balance( final int a )
+	{
+		int result = a;
+
+		if ( ( _children1[ a ] != NULL_NODE ) && ( _heights[ a ] >= 2 ) )
+		{
+			final int b = _children1[ a ];
+			final int c = _children2[ a ];
+			final int balance = _heights[ c ] - _heights[ b ];
+
+			if ( balance > 1 )
+			{
+				result = rotate( a, c, b );
+			}
+			else if ( balance < -1 )
+			{
+				result = rotate( a, b, c );
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Rotates the tall child of a node up.
+	 *
+	 * @param a     Node to rotate.
+	 * @param tall  Tall child of {@code a}.
+	 * @param other Other child of {@code a}.
+	 *
+	 * @return New root of the sub-tree ({@code tall}).
+	 */
+	private int rotate( final int a, final int tall, final int other )
+	{
+		final int f = _children1[ tall ];
+		final int g = _children2[ tall ];
+
+		/*
+		 * Swap 'a' and 'tall'.
+		 */
+		_children1[ tall ] = a;
+		_parents[ tall ] = _parents[ a ];
+		_parents[ a ] = tall;
+
+		final int parent = _parents[ tall ];
+		if ( parent != NULL_NODE )
+		{
+			if ( _children1[ parent ] == a )
+			{
+				_children1[ parent ] = tall;
+			}
+			else
+			{
+				_children2[ parent ] = tall;
+			}
+		}
+		else
+		{
+			_root = tall;
+		}
+
+		/*
+		 * Keep the higher grandchild below 'tall'; move the other to 'a'.
+		 */
+		final int keep = ( _heights[ f ] > _heights[ g ] ) ? f : g;
+		final int move = ( keep == f ) ? g : f;
+
+		_children2[ tall ] = keep;
+		if ( _children1[ a ] == tall )
+		{
+			_children1[ a ] = move;
+		}
+		else
+		{
+			_children2[ a ] = move;
+		}
+		_parents[ move ] = a;
+
+		combine( _bounds, a * 6, other * 6, move * 6 );
+		combine( _bounds, tall * 6, a * 6, keep * 6 );
+		_heights[ a ] = 1 + Math.max( _heights[ other ], _heights[ move ] );
+		_heights[ tall ] = 1 + Math.max( _heights[ a ], _heights[ keep ] );
+
+		return tall;
+	}
+
+	/**
+	 * Stores the union of two boxes.
+	 *
+	 * @param bounds  Bounds array.
+	 * @param target  Offset of target box.
+	 * @param offset1 Offset of first box.
+	 * @param offset2 Offset of second box.
+	 */
+	private static void combine( final double[] bounds, final int target, final int offset1, final int offset2 )
+	{
+		for ( int i = 0; i < 3; i++ )
+		{
+			bounds[ target + i ] = Math.min( bounds[ offset1 + i ], bounds[ offset2 + i ] );
+			bounds[ target + 3 + i ] = Math.max( bounds[ offset1 + 3 + i ], bounds[ offset2 + 3 + i ] );
+		}
+	}
+
+	/**
+	 * Returns the surface area of a box.
+	 *
+	 * @param bounds Bounds array.
+	 * @param offset Offset of box.
+	 *
+	 * @return Surface area.
+	 */
+	private static double surfaceArea( final double[] bounds, final int offset )
+	{
+		final double dx = bounds[ offset + 3 ] - bounds[ offset ];
+		final double dy = bounds[ offset + 4 ] - bounds[ offset + 1 ];
+		final double dz = bounds[ offset + 5 ] - bounds[ offset + 2 ];
+		return 2.0 * ( dx * dy + dy * dz + dz * dx );
+	}
+
+	/**
+	 * Returns the surface area of the union of two boxes.
+	 *
+	 * @param bounds  Bounds array.
+	 * @param offset1 Offset of first box.
+	 * @param offset2 Offset of second box.
+	 *
+	 * @return Surface area.
+	 */
+	private static double combinedSurfaceArea( final double[] bounds, final int offset1, final int offset2 )
+	{
+		final double dx = Math.max( bounds[ offset1 + 3 ], bounds[ offset2 + 3 ] ) - Math.min( bounds[ offset1 ], bounds[ offset2 ] );
+		final double dy = Math.max( bounds[ offset1 + 4 ], bounds[ offset2 + 4 ] ) - Math.min( bounds[ offset1 + 1 ], bounds[ offset2 + 1 ] );
+		final double dz = Math.max( bounds[ offset1 + 5 ], bounds[ offset2 + 5 ] ) - Math.min( bounds[ offset1 + 2 ], bounds[ offset2 + 2 ] );
+		return 2.0 * ( dx * dy + dy * dz + dz * dx );
+	}
+}
@@ -1743,85 +1743,117 @@ public class GeometryTools
 		{
 			for ( final Face3D face : faceGroup.getFaces() )
 			{
-				final Vector3D faceNormal = face.getNormal();
-				final Tessellation tessellation = face.getTessellation();
-
-				final boolean coplanar = ( almostEqual( planeNormal.x, faceNormal.x ) && almostEqual( planeNormal.y, faceNormal.y ) && almostEqual( planeNormal.z, faceNormal.z ) && almostEqual( planeDistance, face.getDistance() ) ) ||
-				                         ( almostEqual( planeNormal.x, -faceNormal.x ) && almostEqual( planeNormal.y, -faceNormal.y ) && almostEqual( planeNormal.z, -faceNormal.z ) && almostEqual( planeDistance, -face.getDistance() ) );
-
-				if ( !coplanar )
+				if ( !isCoplanar( face, planeNormal, planeDistance ) )
 				{
-					for ( final TessellationPrimitive primitive : tessellation.getPrimitives() )
+					for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
 					{
 						final int[] triangles = primitive.getTriangles();
 
 						for ( int i = 0; i < triangles.length; i += 3 )
 						{
-							final Vertex3D vertex1 = face.getVertex( triangles[ i ] );
-							final Vertex3D vertex2 = face.getVertex( triangles[ i + 1 ] );
-							final Vertex3D vertex3 = face.getVertex( triangles[ i + 2 ] );
-
-							final Vector3D p1 = vertex1.point;
-							final Vector3D p2 = vertex2.point;
-							final Vector3D p3 = vertex3.point;
-
-							final double d1 = Vector3D.dot( planeNormal, p1 );
-							final double d2 = Vector3D.dot( planeNormal, p2 );
-							final double d3 = Vector3D.dot( planeNormal, p3 );
-
-							final boolean p1p2 = ( d1 <= planeDistance ) && ( d2 >= planeDistance ) ||
-							                     ( d2 <= planeDistance ) && ( d1 >= planeDistance );
-							final boolean p1p3 = ( d1 <= planeDistance ) && ( d3 >= planeDistance ) ||
-							                     ( d3 <= planeDistance ) && ( d1 >= planeDistance );
-							final boolean p2p3 = ( d2 <= planeDistance ) && ( d3 >= planeDistance ) ||
-							                     ( d3 <= planeDistance ) && ( d2 >= planeDistance );
-
-							if ( p1p2 )
-							{
-								final double u = ( planeDistance - d1 ) / ( d2 - d1 );
-								final Vector3D a = new Vector3D( u * ( p2.x - p1.x ) + p1.x,
-								                                 u * ( p2.y - p1.y ) + p1.y,
-								                                 u * ( p2.z - p1.z ) + p1.z );
-
-								if ( p1p3 )
-								{
-									final double v = ( planeDistance - d1 ) / ( d3 - d1 );
-									final Vector3D b = new Vector3D( v * ( p3.x - p1.x ) + p1.x,
-									                                 v * ( p3.y - p1.y ) + p1.y,
-									                                 v * ( p3.z - p1.z ) + p1.z );
-									segments.add( a );
-									segments.add( b );
-								}
-								else if ( p2p3 )
-								{
-									final double v = ( planeDistance - d2 ) / ( d3 - d2 );
-									final Vector3D b = new Vector3D( v * ( p3.x - p2.x ) + p2.x,
-									                                 v * ( p3.y - p2.y ) + p2.y,
-									                                 v * ( p3.z - p2.z ) + p2.z );
-									segments.add( a );
-									segments.add( b );
-								}
-							}
-							else if ( p1p3 && p2p3 )
-							{
-								final double u = ( planeDistance - d1 ) / ( d3 - d1 );
-								final Vector3D a = new Vector3D( u * ( p3.x - p1.x ) + p1.x,
-								                                 u * ( p3.y - p1.y ) + p1.y,
-								                                 u * ( p3.z - p1.z ) + p1.z );
-
-								final double v = ( planeDistance - d2 ) / ( d3 - d2 );
-								final Vector3D b = new Vector3D( v * ( p3.x - p2.x ) + p2.x,
-								                                 v * ( p3.y - p2.y ) + p2.y,
-								                                 v * ( p3.z - p2.z ) + p2.z );
-								segments.add( a );
-								segments.add( b );
-							}
+							final Vector3D p1 = face.getVertex( triangles[ i ] ).point;
+							final Vector3D p2 = face.getVertex( triangles[ i + 1 ] ).point;
+							final Vector3D p3 = face.getVertex( triangles[ i + 2 ] ).point;
+
+							addCrossSectionSegment( segments, planeDistance, p1, Vector3D.dot( planeNormal, p1 ), p2, Vector3D.dot( planeNormal, p2 ), p3, Vector3D.dot( planeNormal, p3 ) );
 						}
 					}
 				}
 			}
 		}
 
+		return createSegmentGraph( segments );
+	}
+
+	/**
+	 * Test whether a face is coplanar with a plane, ignoring its orientation.
+	 *
+	 * @param face          Face to test.
+	 * @param planeNormal   Normal of plane.
+	 * @param planeDistance Distance of plane to origin.
+	 *
+	 * @return {@code true} if the face is coplanar with the plane.
+	 */
+	static boolean isCoplanar( final @NotNull Face3D face, final @NotNull Vector3D planeNormal, final double planeDistance )
+	{
+		final Vector3D faceNormal = face.getNormal();
+		return ( almostEqual( planeNormal.x, faceNormal.x ) && almostEqual( planeNormal.y, faceNormal.y ) && almostEqual( planeNormal.z, faceNormal.z ) && almostEqual( planeDistance, face.getDistance() ) ) ||
+		       ( almostEqual( planeNormal.x, -faceNormal.x ) && almostEqual( planeNormal.y, -faceNormal.y ) && almostEqual( planeNormal.z, -faceNormal.z ) && almostEqual( planeDistance, -face.getDistance() ) );
+	}
+
+	/**
+	 * Adds the line segment where a triangle intersects a plane. Nothing is
+	 * added if the triangle does not intersect the plane.
+	 *
+	 * @param segments      Line segments (pairs of points) to add to.
+	 * @param planeDistance Distance of plane to origin.
+	 * @param p1            First point of triangle.
+	 * @param d1            Distance of first point along plane normal.
+	 * @param p2            Second point of triangle.
+	 * @param d2            Distance of second point along plane normal.
+	 * @param p3            Third point of triangle.
+	 * @param d3            Distance of third point along plane normal.
+	 */
+	static void addCrossSectionSegment( final @NotNull List<Vector3D> segments, final double planeDistance, final @NotNull Vector3D p1, final double d1, final @NotNull Vector3D p2, final double d2, final @NotNull Vector3D p3, final double d3 )
+	{
+		final boolean p1p2 = ( d1 <= planeDistance ) && ( d2 >= planeDistance ) ||
+		                     ( d2 <= planeDistance ) && ( d1 >= planeDistance );
+		final boolean p1p3 = ( d1 <= planeDistance ) && ( d3 >= planeDistance ) ||
+		                     ( d3 <= planeDistance ) && ( d1 >= planeDistance );
+		final boolean p2p3 = ( d2 <= planeDistance ) && ( d3 >= planeDistance ) ||
+		                     ( d3 <= planeDistance ) && ( d2 >= planeDistance );
+
+		if ( p1p2 )
+		{
+			final double u = ( planeDistance - d1 ) / ( d2 - d1 );
+			final Vector3D a = new Vector3D( u * ( p2.x - p1.x ) + p1.x,
+			                                 u * ( p2.y - p1.y ) + p1.y,
+			                                 u * ( p2.z - p1.z ) + p1.z );
+
+			if ( p1p3 )
+			{
+				final double v = ( planeDistance - d1 ) / ( d3 - d1 );
+				final Vector3D b = new Vector3D( v * ( p3.x - p1.x ) + p1.x,
+				                                 v * ( p3.y - p1.y ) + p1.y,
+				                                 v * ( p3.z - p1.z ) + p1.z );
+				segments.add( a );
+				segments.add( b );
+			}
+			else if ( p2p3 )
+			{
+				final double v = ( planeDistance - d2 ) / ( d3 - d2 );
+				final Vector3D b = new Vector3D( v * ( p3.x - p2.x ) + p2.x,
+				                                 v * ( p3.y - p2.y ) + p2.y,
+				                                 v * ( p3.z - p2.z ) + p2.z );
+				segments.add( a );
+				segments.add( b );
+			}
+		}
+		else if ( p1p3 && p2p3 )
+		{
+			final double u = ( planeDistance - d1 ) / ( d3 - d1 );
+			final Vector3D a = new Vector3D( u * ( p3.x - p1.x ) + p1.x,
+			                                 u * ( p3.y - p1.y ) + p1.y,
+			                                 u * ( p3.z - p1.z ) + p1.z );
+
+			final double v = ( planeDistance - d2 ) / ( d3 - d2 );
+			final Vector3D b = new Vector3D( v * ( p3.x - p2.x ) + p2.x,
+			                                 v * ( p3.y - p2.y ) + p2.y,
+			                                 v * ( p3.z - p2.z ) + p2.z );
+			segments.add( a );
+			segments.add( b );
+		}
+	}
+
+	/**
+	 * Creates a graph from line segments. Degenerate segments are ignored.
+	 *
+	 * @param segments Line segments (pairs of points).
+	 *
+	 * @return Graph with line segments.
+	 */
+	static @NotNull Vector3DGraph createSegmentGraph( final @NotNull List<Vector3D> segments )
+	{
 		final Vector3DGraph segmentGraph = new Vector3DGraph();
 		for ( int i = 0; i < segments.size(); i += 2 )
 		{
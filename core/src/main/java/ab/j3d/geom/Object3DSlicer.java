@@ -19,11 +19,13 @@
 package ab.j3d.geom;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import ab.j3d.*;
 import ab.j3d.appearance.*;
 import ab.j3d.geom.tessellator.*;
 import ab.j3d.model.*;
+import org.jetbrains.annotations.*;
 
 /**
  * This class can be used to slice 3D objects.
@@ -258,6 +260,254 @@ public class Object3DSlicer
 		processObject( object );
 	}
 
+	/**
+	 * Creates cross-sections of an object for a set of parallel planes. The
+	 * result for each plane is the same as that of {@link
+	 * GeometryTools#createCrossSectionPath}, but the triangles of the object
+	 * are only visited once. Each triangle is assigned to the range of planes
+	 * spanned by its extent along the plane normal, so a plane only has to
+	 * intersect the triangles that actually cross it.
+	 *
+	 * @param object         Object to intersect.
+	 * @param planeNormal    Normal of the cutting planes.
+	 * @param planeDistances Distance from the origin to each cutting plane.
+	 * @param pool           Pool to build the cross-sections in parallel;
+	 *                       {@code null} to build them on the calling thread.
+	 *
+	 * @return 2D paths representing the cross-section for each plane.
+	 */
+	public static List<List<List<Vector2D>>> createCrossSectionPaths( final Object3D object, final Vector3D planeNormal, final double[] planeDistances, @Nullable final ForkJoinPool pool )
+	{
+		final List<Face3D> faces = new ArrayList<>();
+		final IntArray triangleFaces = new IntArray();
+		final List<Vector3D> trianglePoints = new ArrayList<>();
+		final DoubleArray triangleDistances = new DoubleArray();
+
+		for ( final FaceGroup faceGroup : object.getFaceGroups() )
+		{
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				final int faceIndex = faces.size();
+				faces.add( face );
+
+				for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+				{
+					for ( final int vertexIndex : primitive.getTriangles() )
+					{
+						final Vector3D point = face.getVertex( vertexIndex ).point;
+						trianglePoints.add( point );
+						triangleDistances.add( Vector3D.dot( planeNormal, point ) );
+					}
+
+					for ( int i = primitive.getTriangles().length; i > 0; i -= 3 )
+					{
+						triangleFaces.add( faceIndex );
+					}
+				}
+			}
+		}
+
+		final int triangleCount = triangleFaces.size();
+		final double[] distances = triangleDistances.getData();
+		final double[] minimum = new double[ triangleCount ];
+		final double[] maximum = new double[ triangleCount ];
+		for ( int i = 0; i < triangleCount; i++ )
+		{
+			final double d1 = distances[ i * 3 ];
+			final double d2 = distances[ i * 3 + 1 ];
+			final double d3 = distances[ i * 3 + 2 ];
+			minimum[ i ] = Math.min( d1, Math.min( d2, d3 ) );
+			maximum[ i ] = Math.max( d1, Math.max( d2, d3 ) );
+		}
+
+		final CrossSectionSweep sweep = new CrossSectionSweep( faces, triangleFaces.toArray(), trianglePoints, distances, planeNormal, planeDistances, assignToPlanes( minimum, maximum, planeDistances, true ) );
+		sweep.run( pool );
+		return sweep._result;
+	}
+
+	/**
+	 * Slices an object with a set of parallel cutting planes and returns the
+	 * intersection slice for each plane. The slice for each plane is the same
+	 * as {@link #getSliceObject()} after slicing the object with that plane,
+	 * using the slice settings of this slicer. Only faces that cross a plane
+	 * are processed for that plane. Top and bottom objects are not created,
+	 * and the state of this slicer is not modified.
+	 *
+	 * @param object         Object to slice.
+	 * @param planeNormal    Normal of the cutting planes.
+	 * @param planeDistances Distance from the origin to each cutting plane.
+	 * @param pool           Pool to slice and tessellate in parallel;
+	 *                       {@code null} to do so on the calling thread.
+	 *
+	 * @return Intersection slice for each plane; an element is {@code null}
+	 * if no faces intersected the plane.
+	 */
+	public List<Object3D> createSliceObjects( final Object3D object, final Vector3D planeNormal, final double[] planeDistances, @Nullable final ForkJoinPool pool )
+	{
+		final List<Vector3D> vertexCoordinates = object.getVertexCoordinates();
+		final double[] vertexDistances = new double[ vertexCoordinates.size() ];
+		for ( int i = 0; i < vertexDistances.length; i++ )
+		{
+			vertexDistances[ i ] = Vector3D.dot( planeNormal, vertexCoordinates.get( i ) );
+		}
+
+		final List<FaceGroup> faceGroups = new ArrayList<>();
+		final List<Face3D> faces = new ArrayList<>();
+		final DoubleArray minimum = new DoubleArray();
+		final DoubleArray maximum = new DoubleArray();
+
+		for ( final FaceGroup faceGroup : object.getFaceGroups() )
+		{
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for ( int i = 0; i < face.getVertexCount(); i++ )
+				{
+					final double d = vertexDistances[ face.getVertex( i ).vertexCoordinateIndex ];
+					min = Math.min( min, d );
+					max = Math.max( max, d );
+				}
+
+				faceGroups.add( faceGroup );
+				faces.add( face );
+				minimum.add( min );
+				maximum.add( max );
+			}
+		}
+
+		final SliceSweep sweep = new SliceSweep( this, object, faceGroups, faces, vertexDistances, planeNormal, planeDistances, assignToPlanes( minimum.toArray(), maximum.toArray(), planeDistances, false ) );
+		sweep.run( pool );
+		return sweep._result;
+	}
+
+	/**
+	 * Assigns elements to the planes they cross, based on their extent along
+	 * the plane normal. Planes are sorted by distance, after which the range
+	 * of planes crossed by each element is found using a binary search. The
+	 * elements assigned to each plane are in their original order, so the
+	 * result of processing them does not depend on the order of the planes.
+	 *
+	 * @param minimum        Minimum distance of each element along the normal.
+	 * @param maximum        Maximum distance of each element along the normal.
+	 * @param planeDistances Distance of each plane.
+	 * @param touching       Whether an element crosses a plane if its minimum
+	 *                       distance is equal to the plane distance.
+	 *
+	 * @return Indices of the elements crossed by each plane.
+	 */
+	private static int[][] assignToPlanes( final double[] minimum, final double[] maximum, final double[] planeDistances, final boolean touching )
+	{
+		final int planeCount = planeDistances.length;
+		final double[] sortedDistances = planeDistances.clone();
+		Arrays.sort( sortedDistances );
+
+		/*
+		 * Determine range of sorted planes crossed by each element and count
+		 * the elements in each plane (as differences between planes).
+		 */
+		final int elementCount = minimum.length;
+		final int[] firstPlane = new int[ elementCount ];
+		final int[] lastPlane = new int[ elementCount ];
+		final int[] counts = new int[ planeCount + 1 ];
+
+		for ( int i = 0; i < elementCount; i++ )
+		{
+			final int first = touching ? lowerBound( sortedDistances, minimum[ i ] ) : upperBound( sortedDistances, minimum[ i ] );
+			final int last = upperBound( sortedDistances, maximum[ i ] );
+			firstPlane[ i ] = first;
+			lastPlane[ i ] = last;
+			if ( first < last )
+			{
+				counts[ first ]++;
+				counts[ last ]--;
+			}
+		}
+
+		final int[][] sortedElements = new int[ planeCount ][];
+		int count = 0;
+		for ( int plane = 0; plane < planeCount; plane++ )
+		{
+			count += counts[ plane ];
+			sortedElements[ plane ] = new int[ count ];
+		}
+
+		final int[] fill = new int[ planeCount ];
+		for ( int i = 0; i < elementCount; i++ )
+		{
+			for ( int plane = firstPlane[ i ]; plane < lastPlane[ i ]; plane++ )
+			{
+				sortedElements[ plane ][ fill[ plane ]++ ] = i;
+			}
+		}
+
+		/*
+		 * Map sorted planes back to the original planes.
+		 */
+		final int[][] result = new int[ planeCount ][];
+		for ( int i = 0; i < planeCount; i++ )
+		{
+			result[ i ] = sortedElements[ lowerBound( sortedDistances, planeDistances[ i ] ) ];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the index of the first element in a sorted array that is
+	 * greater than or equal to the given value.
+	 *
+	 * @param sorted Sorted array.
+	 * @param value  Value to search for.
+	 *
+	 * @return Index of first element {@code >= value}; array length if none.
+	 */
+	private static int lowerBound( final double[] sorted, final double value )
+	{
+		int low = 0;
+		int high = sorted.length;
+		while ( low < high )
+		{
+			final int middle = ( low + high ) >>> 1;
+			if ( sorted[ middle ] < value )
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the index of the first element in a sorted array that is
+	 * greater than the given value.
+	 *
+	 * @param sorted Sorted array.
+	 * @param value  Value to search for.
+	 *
+	 * @return Index of first element {@code > value}; array length if none.
+	 */
+	private static int upperBound( final double[] sorted, final double value )
+	{
+		int low = 0;
+		int high = sorted.length;
+		while ( low < high )
+		{
+			final int middle = ( low + high ) >>> 1;
+			if ( sorted[ middle ] <= value )
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
 	/**
 	 * Get cutting plane.
 	 *
@@ -731,6 +981,52 @@ public class Object3DSlicer
 		}
 	}
 
+	/**
+	 * Slice the given faces of an object. This is used to slice objects with
+	 * multiple planes, in which case the faces that cross the cutting plane
+	 * are already known. Only the intersection slice is created.
+	 *
+	 * @param object          Object being sliced.
+	 * @param faceGroups      Face group of each face.
+	 * @param faces           Faces of the object.
+	 * @param crossingFaces   Indices of faces that cross the cutting plane.
+	 * @param vertexDistances Distance of each vertex along the plane normal.
+	 */
+	private void processFaces( final Object3D object, final List<FaceGroup> faceGroups, final List<Face3D> faces, final int[] crossingFaces, final double[] vertexDistances )
+	{
+		final double planeDistance = getCuttingPlane().getDistance();
+
+		final DoubleArray objectVertexDistances = _objectVertexDistances;
+		objectVertexDistances.clear();
+		objectVertexDistances.setSize( vertexDistances.length, 0.0 );
+
+		for ( final int faceIndex : crossingFaces )
+		{
+			final Face3D face = faces.get( faceIndex );
+			for ( int i = 0; i < face.getVertexCount(); i++ )
+			{
+				final int vertexIndex = face.getVertex( i ).vertexCoordinateIndex;
+				objectVertexDistances.set( vertexIndex, vertexDistances[ vertexIndex ] - planeDistance );
+			}
+		}
+
+		_topObject = null;
+		_sliceObject = new Object3D();
+		_sliceVertices.clear();
+		_sliceIntersectionGraph.clear();
+		_bottomObject = null;
+
+		for ( final int faceIndex : crossingFaces )
+		{
+			processFace( object, faceGroups.get( faceIndex ), faces.get( faceIndex ) );
+		}
+
+		if ( !_sliceIntersectionGraph.isEmpty() )
+		{
+			buildCaps();
+		}
+	}
+
 	/**
 	 * Slice face.
 	 *
@@ -2081,6 +2377,313 @@ public class Object3DSlicer
 		mesh.endContour();
 	}
 
+	/**
+	 * Processes each plane of a set of parallel cutting planes.
+	 */
+	private abstract static class PlaneSweep
+	{
+		/**
+		 * Number of planes.
+		 */
+		private final int _planeCount;
+
+		/**
+		 * Constructs a new sweep.
+		 *
+		 * @param planeCount Number of planes.
+		 */
+		PlaneSweep( final int planeCount )
+		{
+			_planeCount = planeCount;
+		}
+
+		/**
+		 * Process all planes.
+		 *
+		 * @param pool Pool to process planes in parallel; {@code null} to
+		 *             process them on the calling thread.
+		 */
+		void run( @Nullable final ForkJoinPool pool )
+		{
+			if ( ( pool != null ) && ( _planeCount > 1 ) )
+			{
+				pool.invoke( new PlaneTask( this, 0, _planeCount ) );
+			}
+			else
+			{
+				for ( int i = 0; i < _planeCount; i++ )
+				{
+					processPlane( i );
+				}
+			}
+		}
+
+		/**
+		 * Process a single plane. Planes may be processed concurrently.
+		 *
+		 * @param planeIndex Index of plane.
+		 */
+		abstract void processPlane( int planeIndex );
+	}
+
+	/**
+	 * Task that processes a range of planes of a {@link PlaneSweep}.
+	 */
+	private static class PlaneTask
+		extends RecursiveAction
+	{
+		/**
+		 * Serialized form version.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Sweep to process planes for.
+		 */
+		private final PlaneSweep _sweep;
+
+		/**
+		 * Start of range.
+		 */
+		private final int _start;
+
+		/**
+		 * End of range (exclusive).
+		 */
+		private final int _end;
+
+		/**
+		 * Constructs a new task.
+		 *
+		 * @param sweep Sweep to process planes for.
+		 * @param start Start of range.
+		 * @param end   End of range (exclusive).
+		 */
+		private PlaneTask( final PlaneSweep sweep, final int start, final int end )
+		{
+			_sweep = sweep;
+			_start = start;
+			_end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if ( _end - _start > 1 )
+			{
+				final int middle = ( _start + _end ) >>> 1;
+				invokeAll( new PlaneTask( _sweep, _start, middle ),
+				           new PlaneTask( _sweep, middle, _end ) );
+			}
+			else
+			{
+				_sweep.processPlane( _start );
+			}
+		}
+	}
+
+	/**
+	 * Creates cross-section paths for a set of parallel planes.
+	 */
+	private static class CrossSectionSweep
+		extends PlaneSweep
+	{
+		/**
+		 * Faces of the object.
+		 */
+		private final List<Face3D> _faces;
+
+		/**
+		 * Index of the face that each triangle belongs to.
+		 */
+		private final int[] _triangleFaces;
+
+		/**
+		 * Points of the triangles (three per triangle).
+		 */
+		private final List<Vector3D> _trianglePoints;
+
+		/**
+		 * Distance along the plane normal of each triangle point.
+		 */
+		private final double[] _triangleDistances;
+
+		/**
+		 * Normal of the cutting planes.
+		 */
+		private final Vector3D _planeNormal;
+
+		/**
+		 * Distance of each cutting plane.
+		 */
+		private final double[] _planeDistances;
+
+		/**
+		 * Indices of the triangles crossed by each plane.
+		 */
+		private final int[][] _planeTriangles;
+
+		/**
+		 * Cross-section paths for each plane.
+		 */
+		private final List<List<List<Vector2D>>> _result;
+
+		/**
+		 * Constructs a new sweep.
+		 *
+		 * @param faces             Faces of the object.
+		 * @param triangleFaces     Index of the face of each triangle.
+		 * @param trianglePoints    Points of the triangles.
+		 * @param triangleDistances Distance of each triangle point.
+		 * @param planeNormal       Normal of the cutting planes.
+		 * @param planeDistances    Distance of each cutting plane.
+		 * @param planeTriangles    Triangles crossed by each plane.
+		 */
+		CrossSectionSweep( final List<Face3D> faces, final int[] triangleFaces, final List<Vector3D> trianglePoints, final double[] triangleDistances, final Vector3D planeNormal, final double[] planeDistances, final int[][] planeTriangles )
+		{
+			super( planeDistances.length );
+			_faces = faces;
+			_triangleFaces = triangleFaces;
+			_trianglePoints = trianglePoints;
+			_triangleDistances = triangleDistances;
+			_planeNormal = planeNormal;
+			_planeDistances = planeDistances;
+			_planeTriangles = planeTriangles;
+			_result = new ArrayList<>( Collections.<List<List<Vector2D>>>nCopies( planeDistances.length, null ) );
+		}
+
+		@Override
+		void processPlane( final int planeIndex )
+		{
+			final Vector3D planeNormal = _planeNormal;
+			final double planeDistance = _planeDistances[ planeIndex ];
+			final List<Vector3D> points = _trianglePoints;
+			final double[] distances = _triangleDistances;
+
+			final List<Vector3D> segments = new ArrayList<>();
+
+			int lastFace = -1;
+			boolean coplanar = false;
+
+			for ( final int triangle : _planeTriangles[ planeIndex ] )
+			{
+				final int face = _triangleFaces[ triangle ];
+				if ( face != lastFace )
+				{
+					coplanar = GeometryTools.isCoplanar( _faces.get( face ), planeNormal, planeDistance );
+					lastFace = face;
+				}
+
+				if ( !coplanar )
+				{
+					final int i = triangle * 3;
+					GeometryTools.addCrossSectionSegment( segments, planeDistance, points.get( i ), distances[ i ], points.get( i + 1 ), distances[ i + 1 ], points.get( i + 2 ), distances[ i + 2 ] );
+				}
+			}
+
+			final Vector3DGraph graph = GeometryTools.createSegmentGraph( segments );
+			_result.set( planeIndex, GeometryTools.createPathFromGraph( graph, new BasicPlane3D( planeNormal, planeDistance, true ) ) );
+		}
+	}
+
+	/**
+	 * Creates intersection slices for a set of parallel planes.
+	 */
+	private static class SliceSweep
+		extends PlaneSweep
+	{
+		/**
+		 * Slicer that provides the slice settings.
+		 */
+		private final Object3DSlicer _settings;
+
+		/**
+		 * Object being sliced.
+		 */
+		private final Object3D _object;
+
+		/**
+		 * Face group of each face.
+		 */
+		private final List<FaceGroup> _faceGroups;
+
+		/**
+		 * Faces of the object.
+		 */
+		private final List<Face3D> _faces;
+
+		/**
+		 * Distance along the plane normal of each vertex.
+		 */
+		private final double[] _vertexDistances;
+
+		/**
+		 * Normal of the cutting planes.
+		 */
+		private final Vector3D _planeNormal;
+
+		/**
+		 * Distance of each cutting plane.
+		 */
+		private final double[] _planeDistances;
+
+		/**
+		 * Indices of the faces crossed by each plane.
+		 */
+		private final int[][] _planeFaces;
+
+		/**
+		 * Intersection slice for each plane.
+		 */
+		private final List<Object3D> _result;
+
+		/**
+		 * Constructs a new sweep.
+		 *
+		 * @param settings        Slicer that provides the slice settings.
+		 * @param object          Object being sliced.
+		 * @param faceGroups      Face group of each face.
+		 * @param faces           Faces of the object.
+		 * @param vertexDistances Distance of each vertex.
+		 * @param planeNormal     Normal of the cutting planes.
+		 * @param planeDistances  Distance of each cutting plane.
+		 * @param planeFaces      Faces crossed by each plane.
+		 */
+		SliceSweep( final Object3DSlicer settings, final Object3D object, final List<FaceGroup> faceGroups, final List<Face3D> faces, final double[] vertexDistances, final Vector3D planeNormal, final double[] planeDistances, final int[][] planeFaces )
+		{
+			super( planeDistances.length );
+			_settings = settings;
+			_object = object;
+			_faceGroups = faceGroups;
+			_faces = faces;
+			_vertexDistances = vertexDistances;
+			_planeNormal = planeNormal;
+			_planeDistances = planeDistances;
+			_planeFaces = planeFaces;
+			_result = new ArrayList<>( Collections.<Object3D>nCopies( planeDistances.length, null ) );
+		}
+
+		@Override
+		void processPlane( final int planeIndex )
+		{
+			final int[] crossingFaces = _planeFaces[ planeIndex ];
+			if ( crossingFaces.length > 0 )
+			{
+				final Object3DSlicer settings = _settings;
+				final Object3DSlicer slicer = new Object3DSlicer();
+				slicer.setIntersectFaces( settings.isIntersectFaces() );
+				slicer.setIntersectTriangles( settings.isIntersectTriangles() );
+				slicer.setRemoveDuplicateVertices( settings.isRemoveDuplicateVertices() );
+				slicer.setSliceAppearance( settings.getSliceAppearance() );
+				slicer.setSliceUVMap( settings.getSliceUVMap() );
+				slicer.setSliceEnabled( true );
+				slicer.setCuttingPlane( new BasicPlane3D( _planeNormal, _planeDistances[ planeIndex ], true ) );
+				slicer.processFaces( _object, _faceGroups, _faces, crossingFaces, _vertexDistances );
+				_result.set( planeIndex, slicer.getSliceObject() );
+			}
+		}
+	}
+
 	/**
 	 * This is used as a simple graph node.
 	 */
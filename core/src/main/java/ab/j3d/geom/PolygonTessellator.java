@@ -0,0 +1,619 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.tessellator.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Tessellates a single simple polygon without building a {@link Mesh}.
+ * Convex and other monotone polygons are tessellated using the same
+ * algorithm that the sweep line algorithm uses for monotone regions, so they
+ * produce the same triangles. Other simple polygons are tessellated using
+ * ear clipping. Polygons that may not be simple, e.g. because they intersect
+ * themselves or contain duplicate points, are not handled and must be
+ * tessellated using the sweep line algorithm instead.
+ *
+ * @author Peter S. Heijnen
+ */
+final class PolygonTessellator
+{
+	/**
+	 * Maximum number of vertices for ear clipping. Testing whether a polygon
+	 * is simple and ear clipping both take quadratic time, so larger polygons
+	 * are left to the sweep line algorithm.
+	 */
+	static final int MAXIMUM_EAR_CLIPPING_VERTICES = 256;
+
+	/**
+	 * Tessellates a polygon.
+	 *
+	 * @param windingRule Winding rule that determines the inside of the shape.
+	 * @param contour     Vertices of the polygon.
+	 *
+	 * @return Tessellator with all results; {@code null} if the polygon is not
+	 * handled by this class.
+	 */
+	@Nullable
+	static Tessellator tessellate( @NotNull final Mesh.WindingRule windingRule, @NotNull final List<? extends Vector2D> contour )
+	{
+		Tessellator result = null;
+
+		final int vertexCount = contour.size();
+		if ( vertexCount >= 3 )
+		{
+			final double[] coordinates = new double[ vertexCount * 2 ];
+			double area = 0.0;
+			Vector2D previous = contour.get( vertexCount - 1 );
+			for ( int i = 0; i < vertexCount; i++ )
+			{
+				final Vector2D point = contour.get( i );
+				coordinates[ i * 2 ] = point.getX();
+				coordinates[ i * 2 + 1 ] = point.getY();
+				area += previous.getX() * point.getY() - point.getX() * previous.getY();
+				previous = point;
+			}
+
+			final boolean counterClockwise = ( area > 0.0 );
+			if ( ( area != 0.0 ) && isFilled( windingRule, counterClockwise ) )
+			{
+				/*
+				 * Build vertex list in counter-clockwise order. Duplicate
+				 * points make the polygon non-simple.
+				 */
+				final HashList<Vector2D> vertexList = new HashList<Vector2D>();
+				for ( int i = 0; i < vertexCount; i++ )
+				{
+					vertexList.indexOfOrAdd( contour.get( counterClockwise ? i : vertexCount - 1 - i ) );
+				}
+
+				if ( vertexList.size() == vertexCount )
+				{
+					if ( !counterClockwise )
+					{
+						reverse( coordinates );
+					}
+
+					int[] triangles = null;
+
+					if ( isConvex( coordinates ) )
+					{
+						triangles = tessellateMonotone( coordinates );
+					}
+					else if ( ( vertexCount <= MAXIMUM_EAR_CLIPPING_VERTICES ) && isSimple( coordinates ) )
+					{
+						triangles = isMonotone( coordinates ) ? tessellateMonotone( coordinates ) : clipEars( coordinates );
+					}
+
+					if ( triangles != null )
+					{
+						result = createTriangleList( vertexList, triangles );
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns whether the inside of a single simple contour is filled.
+	 *
+	 * @param windingRule      Winding rule.
+	 * @param counterClockwise Whether the contour is counter-clockwise.
+	 *
+	 * @return {@code true} if the inside of the contour is filled.
+	 */
+	private static boolean isFilled( final Mesh.WindingRule windingRule, final boolean counterClockwise )
+	{
+		final boolean result;
+
+		switch ( windingRule )
+		{
+			case ODD:
+			case NONZERO:
+				result = true;
+				break;
+
+			case POSITIVE:
+				result = counterClockwise;
+				break;
+
+			case NEGATIVE:
+				result = !counterClockwise;
+				break;
+
+			default:
+				result = false;
+				break;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reverses the order of points in the given coordinate array.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 */
+	private static void reverse( final double[] coordinates )
+	{
+		for ( int i = 0, j = coordinates.length - 2; i < j; i += 2, j -= 2 )
+		{
+			final double x = coordinates[ i ];
+			final double y = coordinates[ i + 1 ];
+			coordinates[ i ] = coordinates[ j ];
+			coordinates[ i + 1 ] = coordinates[ j + 1 ];
+			coordinates[ j ] = x;
+			coordinates[ j + 1 ] = y;
+		}
+	}
+
+	/**
+	 * Returns whether a counter-clockwise polygon is strictly convex. Besides
+	 * all corners being left turns, the polygon must wind around its inside
+	 * exactly once, which excludes self-intersecting shapes like pentagrams.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 *
+	 * @return {@code true} if the polygon is convex.
+	 */
+	private static boolean isConvex( final double[] coordinates )
+	{
+		final int vertexCount = coordinates.length / 2;
+
+		boolean result = true;
+		double totalAngle = 0.0;
+
+		for ( int i = 0; result && ( i < vertexCount ); i++ )
+		{
+			final int previous = ( ( i + vertexCount - 1 ) % vertexCount ) * 2;
+			final int current = i * 2;
+			final int next = ( ( i + 1 ) % vertexCount ) * 2;
+
+			final double dx1 = coordinates[ current ] - coordinates[ previous ];
+			final double dy1 = coordinates[ current + 1 ] - coordinates[ previous + 1 ];
+			final double dx2 = coordinates[ next ] - coordinates[ current ];
+			final double dy2 = coordinates[ next + 1 ] - coordinates[ current + 1 ];
+
+			final double cross = dx1 * dy2 - dy1 * dx2;
+			result = ( cross > 0.0 );
+			totalAngle += Math.atan2( cross, dx1 * dx2 + dy1 * dy2 );
+		}
+
+		return result && ( totalAngle < 3.0 * Math.PI );
+	}
+
+	/**
+	 * Returns whether a polygon is monotone, i.e. any vertical line
+	 * intersects its interior in a single interval. This is the case if the
+	 * boundary consists of exactly one chain going right and one chain going
+	 * left.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 *
+	 * @return {@code true} if the polygon is monotone.
+	 */
+	private static boolean isMonotone( final double[] coordinates )
+	{
+		final int vertexCount = coordinates.length / 2;
+
+		int turns = 0;
+		boolean previousGoesRight = vertLeq( coordinates, ( vertexCount - 1 ) * 2, 0 );
+		for ( int i = 0; i < vertexCount; i++ )
+		{
+			final boolean goesRight = vertLeq( coordinates, i * 2, ( ( i + 1 ) % vertexCount ) * 2 );
+			if ( goesRight != previousGoesRight )
+			{
+				turns++;
+			}
+			previousGoesRight = goesRight;
+		}
+
+		return ( turns == 2 );
+	}
+
+	/**
+	 * Returns whether a polygon is simple, i.e. no two edges intersect or
+	 * touch, except for adjacent edges at their shared vertex.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 *
+	 * @return {@code true} if the polygon is simple.
+	 */
+	private static boolean isSimple( final double[] coordinates )
+	{
+		final int vertexCount = coordinates.length / 2;
+
+		boolean result = true;
+
+		for ( int i = 0; result && ( i < vertexCount ); i++ )
+		{
+			final int a1 = i * 2;
+			final int a2 = ( ( i + 1 ) % vertexCount ) * 2;
+
+			for ( int j = i + 2; result && ( j < vertexCount ); j++ )
+			{
+				final int b2 = ( ( j + 1 ) % vertexCount ) * 2;
+				if ( b2 != a1 )
+				{
+					final int b1 = j * 2;
+					result = !segmentsIntersect( coordinates, a1, a2, b1, b2 );
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns whether two line segments intersect or touch.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param a1          Index of start of first segment.
+	 * @param a2          Index of end of first segment.
+	 * @param b1          Index of start of second segment.
+	 * @param b2          Index of end of second segment.
+	 *
+	 * @return {@code true} if the segments intersect or touch.
+	 */
+	private static boolean segmentsIntersect( final double[] coordinates, final int a1, final int a2, final int b1, final int b2 )
+	{
+		final double d1 = orientation( coordinates, b1, b2, a1 );
+		final double d2 = orientation( coordinates, b1, b2, a2 );
+		final double d3 = orientation( coordinates, a1, a2, b1 );
+		final double d4 = orientation( coordinates, a1, a2, b2 );
+
+		final boolean result;
+		if ( ( ( d1 > 0.0 && d2 < 0.0 ) || ( d1 < 0.0 && d2 > 0.0 ) ) && ( ( d3 > 0.0 && d4 < 0.0 ) || ( d3 < 0.0 && d4 > 0.0 ) ) )
+		{
+			result = true;
+		}
+		else
+		{
+			result = ( ( d1 == 0.0 ) && onSegment( coordinates, b1, b2, a1 ) ) ||
+			         ( ( d2 == 0.0 ) && onSegment( coordinates, b1, b2, a2 ) ) ||
+			         ( ( d3 == 0.0 ) && onSegment( coordinates, a1, a2, b1 ) ) ||
+			         ( ( d4 == 0.0 ) && onSegment( coordinates, a1, a2, b2 ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the orientation of point {@code c} relative to the line through
+	 * {@code a} and {@code b}.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param a           Index of first point on line.
+	 * @param b           Index of second point on line.
+	 * @param c           Index of point to test.
+	 *
+	 * @return Positive if {@code c} is left of the line; negative if right;
+	 * zero if on the line.
+	 */
+	private static double orientation( final double[] coordinates, final int a, final int b, final int c )
+	{
+		final double ax = coordinates[ a ];
+		final double ay = coordinates[ a + 1 ];
+		return ( coordinates[ b ] - ax ) * ( coordinates[ c + 1 ] - ay ) - ( coordinates[ b + 1 ] - ay ) * ( coordinates[ c ] - ax );
+	}
+
+	/**
+	 * Returns whether a point that is collinear with a line segment lies on
+	 * that segment.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param a           Index of start of segment.
+	 * @param b           Index of end of segment.
+	 * @param c           Index of point to test.
+	 *
+	 * @return {@code true} if the point lies on the segment.
+	 */
+	private static boolean onSegment( final double[] coordinates, final int a, final int b, final int c )
+	{
+		final double x = coordinates[ c ];
+		final double y = coordinates[ c + 1 ];
+		return ( x >= Math.min( coordinates[ a ], coordinates[ b ] ) ) && ( x <= Math.max( coordinates[ a ], coordinates[ b ] ) ) &&
+		       ( y >= Math.min( coordinates[ a + 1 ], coordinates[ b + 1 ] ) ) && ( y <= Math.max( coordinates[ a + 1 ], coordinates[ b + 1 ] ) );
+	}
+
+	/**
+	 * Triangulates a simple counter-clockwise polygon using ear clipping.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 *
+	 * @return Counter-clockwise triangles; {@code null} if no ear could be
+	 * found (e.g. due to collinear points).
+	 */
+	@Nullable
+	private static int[] clipEars( final double[] coordinates )
+	{
+		final int vertexCount = coordinates.length / 2;
+
+		final int[] previous = new int[ vertexCount ];
+		final int[] next = new int[ vertexCount ];
+		for ( int i = 0; i < vertexCount; i++ )
+		{
+			previous[ i ] = ( i + vertexCount - 1 ) % vertexCount;
+			next[ i ] = ( i + 1 ) % vertexCount;
+		}
+
+		int[] result = new int[ ( vertexCount - 2 ) * 3 ];
+		int triangleIndex = 0;
+
+		int remaining = vertexCount;
+		int vertex = 0;
+		int tested = 0;
+
+		while ( ( remaining > 3 ) && ( result != null ) )
+		{
+			final int prev = previous[ vertex ];
+			final int nxt = next[ vertex ];
+
+			if ( isEar( coordinates, next, prev, vertex, nxt ) )
+			{
+				result[ triangleIndex++ ] = prev;
+				result[ triangleIndex++ ] = vertex;
+				result[ triangleIndex++ ] = nxt;
+
+				next[ prev ] = nxt;
+				previous[ nxt ] = prev;
+				remaining--;
+				tested = 0;
+				vertex = prev;
+			}
+			else if ( ++tested > remaining )
+			{
+				result = null;
+			}
+			else
+			{
+				vertex = nxt;
+			}
+		}
+
+		if ( result != null )
+		{
+			result[ triangleIndex++ ] = previous[ vertex ];
+			result[ triangleIndex++ ] = vertex;
+			result[ triangleIndex ] = next[ vertex ];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns whether the given vertex is an ear of the remaining polygon,
+	 * i.e. it is convex and no other vertex lies inside or on its triangle.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param next        Next vertex of each remaining vertex.
+	 * @param a           Previous vertex.
+	 * @param b           Vertex to test.
+	 * @param c           Next vertex.
+	 *
+	 * @return {@code true} if the vertex is an ear.
+	 */
+	private static boolean isEar( final double[] coordinates, final int[] next, final int a, final int b, final int c )
+	{
+		boolean result = ( orientation( coordinates, a * 2, b * 2, c * 2 ) > 0.0 );
+
+		for ( int p = next[ c ]; result && ( p != a ); p = next[ p ] )
+		{
+			final int i = p * 2;
+			result = ( orientation( coordinates, a * 2, b * 2, i ) < 0.0 ) ||
+			         ( orientation( coordinates, b * 2, c * 2, i ) < 0.0 ) ||
+			         ( orientation( coordinates, c * 2, a * 2, i ) < 0.0 );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Triangulates a simple counter-clockwise monotone polygon. This follows
+	 * the monotone tessellator of the sweep line algorithm, but operates on a
+	 * linked list of vertices instead of a mesh. The upper chain is processed from the edge starting
+	 * at the rightmost vertex and the lower chain from the edge ending there;
+	 * triangles are cut off from whichever chain has its next vertex furthest
+	 * to the right, and the remainder is tessellated as a fan around the
+	 * leftmost vertex. The last triangle is what remains of the polygon.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 *
+	 * @return Counter-clockwise triangles.
+	 */
+	private static int[] tessellateMonotone( final double[] coordinates )
+	{
+		final int vertexCount = coordinates.length / 2;
+
+		final int[] previous = new int[ vertexCount ];
+		final int[] next = new int[ vertexCount ];
+		int rightmost = 0;
+		for ( int i = 0; i < vertexCount; i++ )
+		{
+			previous[ i ] = ( i + vertexCount - 1 ) % vertexCount;
+			next[ i ] = ( i + 1 ) % vertexCount;
+			if ( vertLeq( coordinates, rightmost * 2, i * 2 ) )
+			{
+				rightmost = i;
+			}
+		}
+
+		final int[] result = new int[ ( vertexCount - 2 ) * 3 ];
+		int triangleIndex = 0;
+
+		/*
+		 * Edges are identified by their origin vertex.
+		 */
+		int up = rightmost;
+		int lo = previous[ rightmost ];
+
+		while ( next[ up ] != lo )
+		{
+			if ( vertLeq( coordinates, next[ up ] * 2, lo * 2 ) )
+			{
+				/* Upper vertex is on the left: form triangles from 'lo'. */
+				while ( ( next[ lo ] != up ) && ( vertLeq( coordinates, next[ next[ lo ] ] * 2, next[ lo ] * 2 ) || ( edgeSign( coordinates, lo, next[ lo ], next[ next[ lo ] ] ) <= 0.0 ) ) )
+				{
+					final int removed = next[ lo ];
+					result[ triangleIndex++ ] = lo;
+					result[ triangleIndex++ ] = removed;
+					result[ triangleIndex++ ] = next[ removed ];
+					next[ lo ] = next[ removed ];
+					previous[ next[ removed ] ] = lo;
+				}
+				lo = previous[ lo ];
+			}
+			else
+			{
+				/* Lower vertex is on the left: form triangles from 'up'. */
+				while ( ( next[ lo ] != up ) && ( vertLeq( coordinates, previous[ up ] * 2, up * 2 ) || ( edgeSign( coordinates, next[ up ], up, previous[ up ] ) >= 0.0 ) ) )
+				{
+					final int removed = up;
+					up = previous[ removed ];
+					result[ triangleIndex++ ] = up;
+					result[ triangleIndex++ ] = removed;
+					result[ triangleIndex++ ] = next[ removed ];
+					next[ up ] = next[ removed ];
+					previous[ next[ removed ] ] = up;
+				}
+				up = next[ up ];
+			}
+		}
+
+		/* Remaining region is a fan around the leftmost vertex. */
+		while ( next[ next[ lo ] ] != up )
+		{
+			final int removed = next[ lo ];
+			result[ triangleIndex++ ] = lo;
+			result[ triangleIndex++ ] = removed;
+			result[ triangleIndex++ ] = next[ removed ];
+			next[ lo ] = next[ removed ];
+			previous[ next[ removed ] ] = lo;
+		}
+
+		result[ triangleIndex++ ] = lo;
+		result[ triangleIndex++ ] = next[ lo ];
+		result[ triangleIndex ] = up;
+
+		return result;
+	}
+
+	/**
+	 * Returns whether one point is left of another, using the same ordering
+	 * as the sweep line algorithm: by X coordinate, then by Y coordinate.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param a           Index of first point.
+	 * @param b           Index of second point.
+	 *
+	 * @return {@code true} if the first point is left of or equal to the
+	 * second point.
+	 */
+	private static boolean vertLeq( final double[] coordinates, final int a, final int b )
+	{
+		final double ax = coordinates[ a ];
+		final double bx = coordinates[ b ];
+		return ( ax < bx ) || ( ( ax == bx ) && ( coordinates[ a + 1 ] <= coordinates[ b + 1 ] ) );
+	}
+
+	/**
+	 * Returns a value whose sign indicates on which side of the line through
+	 * {@code u} and {@code w} the point {@code v} is, in the same way as the
+	 * sweep line algorithm does.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param u           Vertex index of first point.
+	 * @param v           Vertex index of second point.
+	 * @param w           Vertex index of third point.
+	 *
+	 * @return Positive if {@code v} is above the line; negative if below;
+	 * zero if on the line or if all points have the same X coordinate.
+	 */
+	private static double edgeSign( final double[] coordinates, final int u, final int v, final int w )
+	{
+		final double ux = coordinates[ u * 2 ];
+		final double uy = coordinates[ u * 2 + 1 ];
+		final double vx = coordinates[ v * 2 ];
+		final double vy = coordinates[ v * 2 + 1 ];
+		final double wx = coordinates[ w * 2 ];
+		final double wy = coordinates[ w * 2 + 1 ];
+
+		final double gapL = vx - ux;
+		final double gapR = wx - vx;
+		return ( gapL + gapR > 0.0 ) ? ( vy - wy ) * gapL + ( vy - uy ) * gapR : 0.0;
+	}
+
+	/**
+	 * Creates a tessellator for a polygon from triangles.
+	 *
+	 * @param vertexList Vertices in counter-clockwise order.
+	 * @param triangles  Counter-clockwise triangles.
+	 *
+	 * @return Tessellator.
+	 */
+	private static Tessellator createTriangleList( final HashList<Vector2D> vertexList, final int[] triangles )
+	{
+		final int[] clockwiseTriangles = new int[ triangles.length ];
+		for ( int i = 0; i < triangles.length; i += 3 )
+		{
+			clockwiseTriangles[ i ] = triangles[ i ];
+			clockwiseTriangles[ i + 1 ] = triangles[ i + 2 ];
+			clockwiseTriangles[ i + 2 ] = triangles[ i + 1 ];
+		}
+
+		return createTessellator( vertexList, triangles, Collections.<TessellationPrimitive>singletonList( new TriangleList( triangles ) ), clockwiseTriangles, Collections.<TessellationPrimitive>singletonList( new TriangleList( clockwiseTriangles ) ) );
+	}
+
+	/**
+	 * Creates a tessellator with the given results. Outlines follow the
+	 * vertex list, which is in counter-clockwise order.
+	 *
+	 * @param vertexList                 Vertices in counter-clockwise order.
+	 * @param counterClockwiseTriangles  Counter-clockwise triangles.
+	 * @param counterClockwisePrimitives Counter-clockwise primitives.
+	 * @param clockwiseTriangles         Clockwise triangles.
+	 * @param clockwisePrimitives        Clockwise primitives.
+	 *
+	 * @return Tessellator.
+	 */
+	private static Tessellator createTessellator( final HashList<Vector2D> vertexList, final int[] counterClockwiseTriangles, final List<TessellationPrimitive> counterClockwisePrimitives, final int[] clockwiseTriangles, final List<TessellationPrimitive> clockwisePrimitives )
+	{
+		final int vertexCount = vertexList.size();
+		final int[] counterClockwiseOutline = new int[ vertexCount + 1 ];
+		final int[] clockwiseOutline = new int[ vertexCount + 1 ];
+		for ( int i = 0; i <= vertexCount; i++ )
+		{
+			counterClockwiseOutline[ i ] = i % vertexCount;
+			clockwiseOutline[ i ] = ( vertexCount - i ) % vertexCount;
+		}
+
+		return new Tessellator( vertexList, counterClockwiseTriangles, counterClockwisePrimitives, Collections.singletonList( counterClockwiseOutline ), clockwiseTriangles, clockwisePrimitives, Collections.singletonList( clockwiseOutline ) );
+	}
+
+	/**
+	 * Utility class is not supposed to be instantiated.
+	 */
+	private PolygonTessellator()
+	{
+	}
+}
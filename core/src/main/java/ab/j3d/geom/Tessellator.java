@@ -46,10 +46,10 @@ public class Tessellator
 	private final HashList<Vector2D> _vertexList;
 
 	/**
-	 * Mesh that was created.
+	 * Mesh that was created; {@code null} after {@link #computeAll()}.
 	 */
-	@NotNull
-	private final Mesh _mesh;
+	@Nullable
+	private Mesh _mesh;
 
 	/**
 	 * Cached result of {@link #getCounterClockwiseTriangles()} .
@@ -103,6 +103,93 @@ public class Tessellator
 		_mesh = mesh;
 	}
 
+	/**
+	 * Create tessellator with the given results.
+	 *
+	 * @param   vertexList                  List of 2D vertices used in results.
+	 * @param   counterClockwiseTriangles   Counter-clockwise triangles.
+	 * @param   counterClockwisePrimitives  Counter-clockwise primitives.
+	 * @param   counterClockwiseOutlines    Counter-clockwise outlines.
+	 * @param   clockwiseTriangles          Clockwise triangles.
+	 * @param   clockwisePrimitives         Clockwise primitives.
+	 * @param   clockwiseOutlines           Clockwise outlines.
+	 */
+	Tessellator( @NotNull final HashList<Vector2D> vertexList, @NotNull final int[] counterClockwiseTriangles, @NotNull final List<TessellationPrimitive> counterClockwisePrimitives, @NotNull final List<int[]> counterClockwiseOutlines, @NotNull final int[] clockwiseTriangles, @NotNull final List<TessellationPrimitive> clockwisePrimitives, @NotNull final List<int[]> clockwiseOutlines )
+	{
+		_vertexList = vertexList;
+		_mesh = null;
+		_counterClockwiseTriangles = counterClockwiseTriangles;
+		_counterClockwisePrimitives = counterClockwisePrimitives;
+		_counterClockwiseOutlines = counterClockwiseOutlines;
+		_clockwiseTriangles = clockwiseTriangles;
+		_clockwisePrimitives = clockwisePrimitives;
+		_clockwiseOutlines = clockwiseOutlines;
+	}
+
+	/**
+	 * Create tessellator for the given contours. Each contour is closed, i.e.
+	 * its last vertex is connected to the first.
+	 *
+	 * <p>A single simple contour is tessellated directly: convex and other
+	 * monotone contours using the monotone tessellation algorithm, and other
+	 * contours using ear clipping. Only self-intersecting contours and shapes
+	 * with multiple contours are tessellated by building a {@link Mesh}, which
+	 * uses the more expensive sweep line algorithm.
+	 *
+	 * @param   windingRule     Winding rule that determines the inside.
+	 * @param   contours        Contours that define the shape.
+	 *
+	 * @return  Tessellator for the contours.
+	 */
+	@NotNull
+	public static Tessellator create( @NotNull final Mesh.WindingRule windingRule, @NotNull final List<? extends List<? extends Vector2D>> contours )
+	{
+		Tessellator result = null;
+
+		if ( contours.size() == 1 )
+		{
+			result = PolygonTessellator.tessellate( windingRule, contours.get( 0 ) );
+		}
+
+		if ( result == null )
+		{
+			final Mesh mesh = new Mesh( windingRule );
+			for ( final List<? extends Vector2D> contour : contours )
+			{
+				mesh.beginContour();
+				for ( final Vector2D point : contour )
+				{
+					mesh.addVertex( point.getX(), point.getY() );
+				}
+				mesh.endContour();
+			}
+			mesh.finish();
+
+			result = new Tessellator( mesh );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Constructs all results, so the mesh is no longer needed. Afterwards, the
+	 * tessellator can be shared between threads, provided that it is safely
+	 * published and the results are not modified.
+	 */
+	void computeAll()
+	{
+		if ( _mesh != null )
+		{
+			getCounterClockwisePrimitives();
+			getClockwisePrimitives();
+			getCounterClockwiseTriangles();
+			getClockwiseTriangles();
+			getCounterClockwiseOutlines();
+			getClockwiseOutlines();
+			_mesh = null;
+		}
+	}
+
 	/**
 	 * Constructs counter-clockwise triangles for interior of shape.
 	 *
@@ -113,7 +200,7 @@ public class Tessellator
 		int[] result = _counterClockwiseTriangles;
 		if ( result == null )
 		{
-			result = _mesh.constructTriangles( _vertexList, true );
+			result = getMesh().constructTriangles( _vertexList, true );
 			_counterClockwiseTriangles = result;
 		}
 		return result;
@@ -130,7 +217,7 @@ public class Tessellator
 		List<TessellationPrimitive> result = _counterClockwisePrimitives;
 		if ( result == null )
 		{
-			result = _mesh.constructPrimitives( _vertexList, true );
+			result = getMesh().constructPrimitives( _vertexList, true );
 			_counterClockwisePrimitives = result;
 		}
 		return result;
@@ -147,7 +234,7 @@ public class Tessellator
 		List<int[]> result = _counterClockwiseOutlines;
 		if ( result == null )
 		{
-			result = _mesh.constructOutlines( _vertexList, true );
+			result = getMesh().constructOutlines( _vertexList, true );
 			_counterClockwiseOutlines = result;
 		}
 		return result;
@@ -163,7 +250,7 @@ public class Tessellator
 		int[] result = _clockwiseTriangles;
 		if ( result == null )
 		{
-			result = _mesh.constructTriangles( _vertexList, false );
+			result = getMesh().constructTriangles( _vertexList, false );
 			_clockwiseTriangles = result;
 		}
 		return result;
@@ -180,7 +267,7 @@ public class Tessellator
 		List<TessellationPrimitive> result = _clockwisePrimitives;
 		if ( result == null )
 		{
-			result = _mesh.constructPrimitives( _vertexList, false );
+			result = getMesh().constructPrimitives( _vertexList, false );
 			_clockwisePrimitives = result;
 		}
 		return result;
@@ -197,12 +284,28 @@ public class Tessellator
 		List<int[]> result = _clockwiseOutlines;
 		if ( result == null )
 		{
-			result = _mesh.constructOutlines( _vertexList, false );
+			result = getMesh().constructOutlines( _vertexList, false );
 			_clockwiseOutlines = result;
 		}
 		return result;
 	}
 
+	/**
+	 * Returns the mesh to construct results from.
+	 *
+	 * @return Mesh.
+	 */
+	@NotNull
+	private Mesh getMesh()
+	{
+		final Mesh result = _mesh;
+		if ( result == null )
+		{
+			throw new IllegalStateException( "mesh was released" );
+		}
+		return result;
+	}
+
 	/**
 	 * Get vertices that are used in the results.
 	 *
@@ -0,0 +1,410 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.tessellator.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Cache for {@link Tessellator} results, so tessellating the same 2D contours
+ * again does not require another sweep. Contours are identified by their
+ * coordinates, which are rounded to a multiple of a tolerance, so contours
+ * are considered equal if all coordinates are within the tolerance of each
+ * other. The least-recently-used tessellators are evicted when the cache
+ * exceeds its maximum size.
+ *
+ * <p>Cached tessellators are shared and have all results constructed in
+ * advance. Their results (including the vertex list) must not be modified.
+ * This class is thread-safe.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TessellatorCache
+{
+	/**
+	 * Default maximum number of cached tessellators.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+	/**
+	 * Default tolerance for contour coordinates.
+	 */
+	public static final double DEFAULT_TOLERANCE = 1.0e-6;
+
+	/**
+	 * Cached tessellators, in least-recently-used order.
+	 */
+	private final LinkedHashMap<Key, Tessellator> _tessellators = new LinkedHashMap<Key, Tessellator>( 16, 0.75f, true );
+
+	/**
+	 * Maximum number of cached tessellators.
+	 */
+	private int _maximumSize;
+
+	/**
+	 * Tolerance for contour coordinates.
+	 */
+	private final double _tolerance;
+
+	/**
+	 * Number of requests served from the cache.
+	 */
+	private long _hits = 0L;
+
+	/**
+	 * Number of requests for contours that were not cached.
+	 */
+	private long _misses = 0L;
+
+	/**
+	 * Number of evicted tessellators.
+	 */
+	private long _evictions = 0L;
+
+	/**
+	 * Constructs a new cache with default settings.
+	 */
+	public TessellatorCache()
+	{
+		this( DEFAULT_MAXIMUM_SIZE, DEFAULT_TOLERANCE );
+	}
+
+	/**
+	 * Constructs a new cache.
+	 *
+	 * @param maximumSize Maximum number of cached tessellators.
+	 * @param tolerance   Tolerance for contour coordinates; {@code 0.0} to
+	 *                    only match identical coordinates.
+	 */
+	public TessellatorCache( final int maximumSize, final double tolerance )
+	{
+		if ( maximumSize < 0 )
+		{
+			throw new IllegalArgumentException( "maximumSize: " + maximumSize );
+		}
+
+		if ( !( tolerance >= 0.0 ) )
+		{
+			throw new IllegalArgumentException( "tolerance: " + tolerance );
+		}
+
+		_maximumSize = maximumSize;
+		_tolerance = tolerance;
+	}
+
+	/**
+	 * Returns a tessellator for the given contours, as created by {@link
+	 * Tessellator#create}.
+	 *
+	 * @param windingRule Winding rule that determines the inside of the shape.
+	 * @param contours    Contours that define the shape.
+	 *
+	 * @return Tessellator for the contours.
+	 */
+	@NotNull
+	public Tessellator getTessellator( @NotNull final Mesh.WindingRule windingRule, @NotNull final List<? extends List<? extends Vector2D>> contours )
+	{
+		final Key key = createKey( windingRule, contours );
+
+		Tessellator result = get( key );
+		if ( result == null )
+		{
+			result = Tessellator.create( windingRule, contours );
+			result.computeAll();
+			result = put( key, result );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns a tessellator for the given contours. Open contours (line
+	 * segments and open paths) are ignored.
+	 *
+	 * @param windingRule Winding rule that determines the inside of the shape.
+	 * @param contours    Contours that define the shape.
+	 *
+	 * @return Tessellator for the contours.
+	 */
+	@NotNull
+	public Tessellator getTessellator( @NotNull final Mesh.WindingRule windingRule, @NotNull final Iterable<Contour> contours )
+	{
+		final List<List<Contour.Point>> closedContours = new ArrayList<List<Contour.Point>>();
+		for ( final Contour contour : contours )
+		{
+			final Contour.ShapeClass shapeClass = contour.getShapeClass();
+			if ( ( shapeClass != Contour.ShapeClass.LINE_SEGMENT ) && ( shapeClass != Contour.ShapeClass.OPEN_PATH ) )
+			{
+				closedContours.add( contour.getPoints() );
+			}
+		}
+		return getTessellator( windingRule, closedContours );
+	}
+
+	/**
+	 * Returns the cached tessellator for the given key and updates the
+	 * statistics.
+	 *
+	 * @param key Key of tessellator.
+	 *
+	 * @return Cached tessellator; {@code null} if not cached.
+	 */
+	@Nullable
+	private synchronized Tessellator get( final Key key )
+	{
+		final Tessellator result = _tessellators.get( key );
+		if ( result != null )
+		{
+			_hits++;
+		}
+		else
+		{
+			_misses++;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a tessellator to the cache, unless another thread added one for
+	 * the same key in the meantime.
+	 *
+	 * @param key         Key of tessellator.
+	 * @param tessellator Tessellator to add.
+	 *
+	 * @return Cached tessellator for the key.
+	 */
+	@NotNull
+	private synchronized Tessellator put( final Key key, final Tessellator tessellator )
+	{
+		Tessellator result = _tessellators.get( key );
+		if ( result == null )
+		{
+			result = tessellator;
+			_tessellators.put( key, tessellator );
+			evict();
+		}
+		return result;
+	}
+
+	/**
+	 * Evicts least-recently-used tessellators until the cache does not exceed
+	 * its maximum size.
+	 */
+	private void evict()
+	{
+		final Iterator<Tessellator> iterator = _tessellators.values().iterator();
+		for ( int excess = _tessellators.size() - _maximumSize; excess > 0; excess-- )
+		{
+			iterator.next();
+			iterator.remove();
+			_evictions++;
+		}
+	}
+
+	/**
+	 * Creates a key for the given contours.
+	 *
+	 * @param windingRule Winding rule.
+	 * @param contours    Contours.
+	 *
+	 * @return Key for the contours.
+	 */
+	private Key createKey( final Mesh.WindingRule windingRule, final List<? extends List<? extends Vector2D>> contours )
+	{
+		int length = 2 + contours.size();
+		for ( final List<? extends Vector2D> contour : contours )
+		{
+			length += contour.size() * 2;
+		}
+
+		final long[] values = new long[ length ];
+		int index = 0;
+		values[ index++ ] = (long)windingRule.ordinal();
+		values[ index++ ] = (long)contours.size();
+
+		for ( final List<? extends Vector2D> contour : contours )
+		{
+			values[ index++ ] = (long)contour.size();
+			for ( final Vector2D point : contour )
+			{
+				values[ index++ ] = quantize( point.getX() );
+				values[ index++ ] = quantize( point.getY() );
+			}
+		}
+
+		return new Key( values );
+	}
+
+	/**
+	 * Rounds a coordinate to a multiple of the tolerance.
+	 *
+	 * @param value Coordinate.
+	 *
+	 * @return Quantized coordinate.
+	 */
+	private long quantize( final double value )
+	{
+		final double tolerance = _tolerance;
+		// adding 0.0 turns -0.0 into 0.0
+		return ( tolerance > 0.0 ) ? Math.round( value / tolerance ) : Double.doubleToLongBits( value + 0.0 );
+	}
+
+	/**
+	 * Returns the maximum number of cached tessellators.
+	 *
+	 * @return Maximum number of cached tessellators.
+	 */
+	public synchronized int getMaximumSize()
+	{
+		return _maximumSize;
+	}
+
+	/**
+	 * Sets the maximum number of cached tessellators. If the cache exceeds
+	 * the new size, least-recently-used tessellators are evicted.
+	 *
+	 * @param maximumSize Maximum number of cached tessellators.
+	 */
+	public synchronized void setMaximumSize( final int maximumSize )
+	{
+		if ( maximumSize < 0 )
+		{
+			throw new IllegalArgumentException( "maximumSize: " + maximumSize );
+		}
+
+		_maximumSize = maximumSize;
+		evict();
+	}
+
+	/**
+	 * Returns the tolerance for contour coordinates.
+	 *
+	 * @return Tolerance for contour coordinates.
+	 */
+	public double getTolerance()
+	{
+		return _tolerance;
+	}
+
+	/**
+	 * Returns the number of cached tessellators.
+	 *
+	 * @return Number of cached tessellators.
+	 */
+	public synchronized int getSize()
+	{
+		return _tessellators.size();
+	}
+
+	/**
+	 * Returns the number of requests served from the cache.
+	 *
+	 * @return Number of cache hits.
+	 */
+	public synchronized long getHits()
+	{
+		return _hits;
+	}
+
+	/**
+	 * Returns the number of requests for contours that were not cached.
+	 *
+	 * @return Number of cache misses.
+	 */
+	public synchronized long getMisses()
+	{
+		return _misses;
+	}
+
+	/**
+	 * Returns the number of evicted tessellators.
+	 *
+	 * @return Number of evictions.
+	 */
+	public synchronized long getEvictions()
+	{
+		return _evictions;
+	}
+
+	/**
+	 * Removes all cached tessellators. Statistics are not reset.
+	 */
+	public synchronized void clear()
+	{
+		_tessellators.clear();
+	}
+
+	/**
+	 * Resets the statistics.
+	 */
+	public synchronized void resetStatistics()
+	{
+		_hits = 0L;
+		_misses = 0L;
+		_evictions = 0L;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return super.toString() + "[size=" + _tessellators.size() + ",maximumSize=" + _maximumSize + ",hits=" + _hits + ",misses=" + _misses + ",evictions=" + _evictions + ']';
+	}
+
+	/**
+	 * Identifies a set of contours by their quantized coordinates.
+	 */
+	private static class Key
+	{
+		/**
+		 * Winding rule, contour sizes and quantized coordinates.
+		 */
+		private final long[] _values;
+
+		/**
+		 * Hash code of values.
+		 */
+		private final int _hashCode;
+
+		/**
+		 * Constructs a new key.
+		 *
+		 * @param values Winding rule, contour sizes and quantized coordinates.
+		 */
+		Key( final long[] values )
+		{
+			_values = values;
+			_hashCode = Arrays.hashCode( values );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return _hashCode;
+		}
+
+		@Override
+		public boolean equals( final Object obj )
+		{
+			return ( obj == this ) || ( ( obj instanceof Key ) && ( _hashCode == ( (Key)obj )._hashCode ) && Arrays.equals( _values, ( (Key)obj )._values ) );
+		}
+	}
+}
@@ -44,18 +44,38 @@ class TriTriMoeler
 	 *
 	 */
 	static boolean testTriangleTriangle( final Vector3D v0, final Vector3D v1, final Vector3D v2, final Vector3D u0, final Vector3D u1, final Vector3D u2 )
+	{
+		return testTriangleTriangle( v0.x, v0.y, v0.z, v1.x, v1.y, v1.z, v2.x, v2.y, v2.z, u0.x, u0.y, u0.z, u1.x, u1.y, u1.z, u2.x, u2.y, u2.z );
+	}
+
+	/**
+	 * Test intersection between to triangles in 3D. This variant does not
+	 * allocate any objects.
+	 *
+	 * parameters: vertices of triangle 1: V0,V1,V2
+	 *             vertices of triangle 2: U0,U1,U2
+	 * result    : returns 1 if the triangles intersect, otherwise 0
+	 *
+	 */
+	static boolean testTriangleTriangle( final double v0x, final double v0y, final double v0z, final double v1x, final double v1y, final double v1z, final double v2x, final double v2y, final double v2z, final double u0x, final double u0y, final double u0z, final double u1x, final double u1y, final double u1z, final double u2x, final double u2y, final double u2z )
 	{
 		/* compute plane equation of triangle(V0,V1,V2) */
-		Vector3D e1 = v1.minus( v0 );
-		Vector3D e2 = v2.minus( v0 );
-		final Vector3D n1 = Vector3D.cross( e1, e2 );
-		final double d1 = -Vector3D.dot( n1, v0 );
+		double e1x = v1x - v0x;
+		double e1y = v1y - v0y;
+		double e1z = v1z - v0z;
+		double e2x = v2x - v0x;
+		double e2y = v2y - v0y;
+		double e2z = v2z - v0z;
+		final double n1x = e1y * e2z - e1z * e2y;
+		final double n1y = e1z * e2x - e1x * e2z;
+		final double n1z = e1x * e2y - e1y * e2x;
+		final double d1 = -( n1x * v0x + n1y * v0y + n1z * v0z );
 		/* plane equation 1: N1.X+d1=0 */
 
 		/* put U0,U1,U2 into plane equation 1 to compute signed distances to the plane*/
-		double du0 = Vector3D.dot( n1, u0 ) + d1;
-		double du1 = Vector3D.dot( n1, u1 ) + d1;
-		double du2 = Vector3D.dot( n1, u2 ) + d1;
+		double du0 = ( n1x * u0x + n1y * u0y + n1z * u0z ) + d1;
+		double du1 = ( n1x * u1x + n1y * u1y + n1z * u1z ) + d1;
+		double du2 = ( n1x * u2x + n1y * u2y + n1z * u2z ) + d1;
 
 		/* coplanarity robustness check */
 		if ( Math.abs( du0 ) < 0.000001 ) du0 = 0.0;
@@ -68,16 +88,22 @@ class TriTriMoeler
 			return false;                    /* no intersection occurs */
 
 		/* compute plane of triangle (U0,U1,U2) */
-		e1 = u1.minus( u0 );
-		e2 = u2.minus( u0 );
-		final Vector3D n2 = Vector3D.cross( e1, e2 );
-		final double d2 = -Vector3D.dot( n2, u0 );
+		e1x = u1x - u0x;
+		e1y = u1y - u0y;
+		e1z = u1z - u0z;
+		e2x = u2x - u0x;
+		e2y = u2y - u0y;
+		e2z = u2z - u0z;
+		final double n2x = e1y * e2z - e1z * e2y;
+		final double n2y = e1z * e2x - e1x * e2z;
+		final double n2z = e1x * e2y - e1y * e2x;
+		final double d2 = -( n2x * u0x + n2y * u0y + n2z * u0z );
 		/* plane equation 2: N2.X+d2=0 */
 
 		/* put V0,V1,V2 into plane equation 2 */
-		double dv0 = Vector3D.dot( n2, v0 ) + d2;
-		double dv1 = Vector3D.dot( n2, v1 ) + d2;
-		double dv2 = Vector3D.dot( n2, v2 ) + d2;
+		double dv0 = ( n2x * v0x + n2y * v0y + n2z * v0z ) + d2;
+		double dv1 = ( n2x * v1x + n2y * v1y + n2z * v1z ) + d2;
+		double dv2 = ( n2x * v2x + n2y * v2y + n2z * v2z ) + d2;
 
 		if ( Math.abs( dv0 ) < 0.000001 ) dv0 = 0.0;
 		if ( Math.abs( dv1 ) < 0.000001 ) dv1 = 0.0;
@@ -92,9 +118,9 @@ class TriTriMoeler
 		/* compute direction of intersection line */
 		/* L = axis line with largest component of D */
 		/* perform simplified projection onto L */
-		final double absdx = Math.abs( n1.y * n2.z - n1.z * n2.y );
-		final double absdy = Math.abs( n1.z * n2.x - n1.x * n2.z );
-		final double absdz = Math.abs( n1.x * n2.y - n1.y * n2.x );
+		final double absdx = Math.abs( n1y * n2z - n1z * n2y );
+		final double absdy = Math.abs( n1z * n2x - n1x * n2z );
+		final double absdz = Math.abs( n1x * n2y - n1y * n2x );
 
 		final double vp0;
 		final double vp1;
@@ -106,108 +132,137 @@ class TriTriMoeler
 
 		if ( ( absdx >= absdy ) && ( absdx >= absdz ) ) // L = X-axis
 		{
-			vp0 = v0.x;
-			vp1 = v1.x;
-			vp2 = v2.x;
-			up0 = u0.x;
-			up1 = u1.x;
-			up2 = u2.x;
+			vp0 = v0x;
+			vp1 = v1x;
+			vp2 = v2x;
+			up0 = u0x;
+			up1 = u1x;
+			up2 = u2x;
 		}
 		else if ( absdy >= absdz ) // L = Y-axis
 		{
-			vp0 = v0.y;
-			vp1 = v1.y;
-			vp2 = v2.y;
-			up0 = u0.y;
-			up1 = u1.y;
-			up2 = u2.y;
+			vp0 = v0y;
+			vp1 = v1y;
+			vp2 = v2y;
+			up0 = u0y;
+			up1 = u1y;
+			up2 = u2y;
 		}
 		else // L = Z-axis
 		{
-			vp0 = v0.z;
-			vp1 = v1.z;
-			vp2 = v2.z;
-			up0 = u0.z;
-			up1 = u1.z;
-			up2 = u2.z;
+			vp0 = v0z;
+			vp1 = v1z;
+			vp2 = v2z;
+			up0 = u0z;
+			up1 = u1z;
+			up2 = u2z;
 		}
 
 		/* compute interval for triangle 1 */
-		final double[] isect1 = computeIntervals( vp0, vp1, vp2, dv0, dv1, dv2, dv0dv1, dv0dv2 );
-		if ( isect1 == null )
+		final int pivot1 = getIntervalPivot( dv0, dv1, dv2, dv0dv1, dv0dv2 );
+		if ( pivot1 < 0 )
 		{
 			/* triangles are coplanar */
-			return testCoplanarTriangleTriangle( n1, v0, v1, v2, u0, u1, u2 );
+			return testCoplanarTriangleTriangle( n1x, n1y, n1z, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, u0x, u0y, u0z, u1x, u1y, u1z, u2x, u2y, u2z );
 		}
 
 		/* compute interval for triangle 2 */
-		final double[] isect2 = computeIntervals( up0, up1, up2, du0, du1, du2, du0du1, du0du2 );
-		if ( isect2 == null )
+		final int pivot2 = getIntervalPivot( du0, du1, du2, du0du1, du0du2 );
+		if ( pivot2 < 0 )
 		{
 			/* triangles are coplanar */
-			return testCoplanarTriangleTriangle( n1, v0, v1, v2, u0, u1, u2 );
+			return testCoplanarTriangleTriangle( n1x, n1y, n1z, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, u0x, u0y, u0z, u1x, u1y, u1z, u2x, u2y, u2z );
 		}
 
+		final double isect10 = getIntervalStart( pivot1, vp0, vp1, vp2, dv0, dv1, dv2 );
+		final double isect11 = getIntervalEnd( pivot1, vp0, vp1, vp2, dv0, dv1, dv2 );
+		final double isect20 = getIntervalStart( pivot2, up0, up1, up2, du0, du1, du2 );
+		final double isect21 = getIntervalEnd( pivot2, up0, up1, up2, du0, du1, du2 );
+
 		/* there is an intersection if the intervals overlap */
-		return ( Math.max( isect1[ 0 ], isect1[ 1 ] ) >= Math.min( isect2[ 0 ], isect2[ 1 ] ) ) &&
-		       ( Math.max( isect2[ 0 ], isect2[ 1 ] ) >= Math.min( isect1[ 0 ], isect1[ 1 ] ) );
+		return ( Math.max( isect10, isect11 ) >= Math.min( isect20, isect21 ) ) &&
+		       ( Math.max( isect20, isect21 ) >= Math.min( isect10, isect11 ) );
 	}
 
-	private static double[] computeIntervals( final double vv0, final double vv1, final double vv2, final double d0, final double d1, final double d2, final double d0d1, final double d0d2 )
+	/**
+	 * Determines which vertex is alone on one side of the other triangle's
+	 * plane. The interval of the intersection line is computed from the edges
+	 * leaving this vertex.
+	 *
+	 * @return Index of vertex (0-2); -1 if the triangles are coplanar.
+	 */
+	private static int getIntervalPivot( final double d0, final double d1, final double d2, final double d0d1, final double d0d2 )
 	{
-		final double[] result;
+		final int result;
 
 		if ( d0d1 > 0.0 )
 		{
 			/* here we know that D0D2<=0.0 */
 			/* that is D0, D1 are on the same side, D2 on the other or on the plane */
-			result = new double[] { vv2 + ( vv0 - vv2 ) * d2 / ( d2 - d0 ),
-			                        vv2 + ( vv1 - vv2 ) * d2 / ( d2 - d1 ) };
+			result = 2;
 		}
 		else if ( d0d2 > 0.0 )
 		{
 			/* here we know that d0d1<=0.0 */
-			result = new double[] { vv1 + ( vv0 - vv1 ) * d1 / ( d1 - d0 ),
-			                        vv1 + ( vv2 - vv1 ) * d1 / ( d1 - d2 ) };
+			result = 1;
 		}
 		else if ( d1 * d2 > 0.0 || d0 != 0.0 )
 		{
 			/* here we know that d0d1<=0.0 or that D0!=0.0 */
-			result = new double[] { vv0 + ( vv1 - vv0 ) * d0 / ( d0 - d1 ),
-			                        vv0 + ( vv2 - vv0 ) * d0 / ( d0 - d2 ) };
+			result = 0;
 		}
 		else if ( d1 != 0.0 )
 		{
-			result = new double[] { vv1 + ( vv0 - vv1 ) * d1 / ( d1 - d0 ),
-			                        vv1 + ( vv2 - vv1 ) * d1 / ( d1 - d2 ) };
+			result = 1;
 		}
 		else if ( d2 != 0.0 )
 		{
-			result = new double[] { vv2 + ( vv0 - vv2 ) * d2 / ( d2 - d0 ),
-			                        vv2 + ( vv1 - vv2 ) * d2 / ( d2 - d1 ) };
+			result = 2;
 		}
 		else
 		{
-			result = null;
+			result = -1;
 		}
 
 		return result;
 	}
 
-	private static boolean testCoplanarTriangleTriangle( final Vector3D n, final Vector3D v0, final Vector3D v1, final Vector3D v2, final Vector3D u0, final Vector3D u1, final Vector3D u2 )
+	/**
+	 * Returns the start of the interval for the given pivot vertex.
+	 */
+	private static double getIntervalStart( final int pivot, final double vv0, final double vv1, final double vv2, final double d0, final double d1, final double d2 )
+	{
+		return ( pivot == 0 ) ? vv0 + ( vv1 - vv0 ) * d0 / ( d0 - d1 ) :
+		       ( pivot == 1 ) ? vv1 + ( vv0 - vv1 ) * d1 / ( d1 - d0 ) :
+		                        vv2 + ( vv0 - vv2 ) * d2 / ( d2 - d0 );
+	}
+
+	/**
+	 * Returns the end of the interval for the given pivot vertex.
+	 */
+	private static double getIntervalEnd( final int pivot, final double vv0, final double vv1, final double vv2, final double d0, final double d1, final double d2 )
+	{
+		return ( pivot == 0 ) ? vv0 + ( vv2 - vv0 ) * d0 / ( d0 - d2 ) :
+		       ( pivot == 1 ) ? vv1 + ( vv2 - vv1 ) * d1 / ( d1 - d2 ) :
+		                        vv2 + ( vv1 - vv2 ) * d2 / ( d2 - d1 );
+	}
+
+	private static boolean testCoplanarTriangleTriangle( final double nx, final double ny, final double nz, final double v0x, final double v0y, final double v0z, final double v1x, final double v1y, final double v1z, final double v2x, final double v2y, final double v2z, final double u0x, final double u0y, final double u0z, final double u1x, final double u1y, final double u1z, final double u2x, final double u2y, final double u2z )
 	{
 		final int i0;
 		final int i1;
 		/* first project onto an axis-aligned plane, that maximizes the area */
 		/* of the triangles, compute indices: i0,i1. */
-		final Vector3D a = n.set( Math.abs( n.x ), Math.abs( n.y ), Math.abs( n.z ) );
+		final double ax = Math.abs( nx );
+		final double ay = Math.abs( ny );
+		final double az = Math.abs( nz );
 
-		if ( ( a.x >= a.y ) && ( a.x >= a.z ) ) /* A.x is greatest */
+		if ( ( ax >= ay ) && ( ax >= az ) ) /* A.x is greatest */
 		{
 			i0 = 1;
 			i1 = 2;
 		}
-		else if ( a.y >= a.z ) /* A.y is greatest */
+		else if ( ay >= az ) /* A.y is greatest */
 		{
 			i0 = 0;
 			i1 = 2;
@@ -218,35 +273,48 @@ class TriTriMoeler
 			i1 = 1;
 		}
 
+		final double v0a = get( v0x, v0y, v0z, i0 );
+		final double v0b = get( v0x, v0y, v0z, i1 );
+		final double v1a = get( v1x, v1y, v1z, i0 );
+		final double v1b = get( v1x, v1y, v1z, i1 );
+		final double v2a = get( v2x, v2y, v2z, i0 );
+		final double v2b = get( v2x, v2y, v2z, i1 );
+		final double u0a = get( u0x, u0y, u0z, i0 );
+		final double u0b = get( u0x, u0y, u0z, i1 );
+		final double u1a = get( u1x, u1y, u1z, i0 );
+		final double u1b = get( u1x, u1y, u1z, i1 );
+		final double u2a = get( u2x, u2y, u2z, i0 );
+		final double u2b = get( u2x, u2y, u2z, i1 );
+
 		/* test all edges of triangle 1 against the edges of triangle 2 */
-		return testTriangleEdge( v0, v1, u0, u1, u2, i0, i1 ) ||
-		       testTriangleEdge( v1, v2, u0, u1, u2, i0, i1 ) ||
-		       testTriangleEdge( v2, v0, u0, u1, u2, i0, i1 ) ||
+		return testTriangleEdge( v0a, v0b, v1a, v1b, u0a, u0b, u1a, u1b, u2a, u2b ) ||
+		       testTriangleEdge( v1a, v1b, v2a, v2b, u0a, u0b, u1a, u1b, u2a, u2b ) ||
+		       testTriangleEdge( v2a, v2b, v0a, v0b, u0a, u0b, u1a, u1b, u2a, u2b ) ||
 
 		       /* finally, test if tri1 is totally contained in tri2 or vice versa */
-		       testTrianglePoint( v0, u0, u1, u2, i0, i1 ) ||
-		       testTrianglePoint( u0, v0, v1, v2, i0, i1 );
+		       testTrianglePoint( v0a, v0b, u0a, u0b, u1a, u1b, u2a, u2b ) ||
+		       testTrianglePoint( u0a, u0b, v0a, v0b, v1a, v1b, v2a, v2b );
 	}
 
-	private static boolean testTriangleEdge( final Vector3D v0, final Vector3D v1, final Vector3D u0, final Vector3D u1, final Vector3D u2, final int i0, final int i1 )
+	private static boolean testTriangleEdge( final double v0a, final double v0b, final double v1a, final double v1b, final double u0a, final double u0b, final double u1a, final double u1b, final double u2a, final double u2b )
 	{
-		final double ax = get( v1, i0 ) - get( v0, i0 );
-		final double ay = get( v1, i1 ) - get( v0, i1 );
+		final double ax = v1a - v0a;
+		final double ay = v1b - v0b;
 
-		return testEdgeEdge( v0, u0, u1, ax, ay, i0, i1 ) || /* test edge U0,U1 against V0,V1 */
-		       testEdgeEdge( v0, u1, u2, ax, ay, i0, i1 ) || /* test edge U1,U2 against V0,V1 */
-		       testEdgeEdge( v0, u2, u0, ax, ay, i0, i1 ); /* test edge U2,U1 against V0,V1 */
+		return testEdgeEdge( v0a, v0b, u0a, u0b, u1a, u1b, ax, ay ) || /* test edge U0,U1 against V0,V1 */
+		       testEdgeEdge( v0a, v0b, u1a, u1b, u2a, u2b, ax, ay ) || /* test edge U1,U2 against V0,V1 */
+		       testEdgeEdge( v0a, v0b, u2a, u2b, u0a, u0b, ax, ay ); /* test edge U2,U1 against V0,V1 */
 	}
 
 	/* this edge to edge test is based on Franlin Antonio's gem:
 	   "Faster Line Segment Intersection", in Graphics Gems III,
 	   pp. 199-202 */
-	private static boolean testEdgeEdge( final Vector3D v0, final Vector3D u0, final Vector3D u1, final double ax, final double ay, final int i0, final int i1 )
+	private static boolean testEdgeEdge( final double v0a, final double v0b, final double u0a, final double u0b, final double u1a, final double u1b, final double ax, final double ay )
 	{
-		final double bx = get( u0, i0 ) - get( u1, i0 );
-		final double by = get( u0, i1 ) - get( u1, i1 );
-		final double cx = get( v0, i0 ) - get( u0, i0 );
-		final double cy = get( v0, i1 ) - get( u0, i1 );
+		final double bx = u0a - u1a;
+		final double by = u0b - u1b;
+		final double cx = v0a - u0a;
+		final double cy = v0b - u0b;
 		final double f = ay * bx - ax * by;
 		final double d = by * cx - bx * cy;
 
@@ -270,35 +338,35 @@ class TriTriMoeler
 		return result;
 	}
 
-	private static boolean testTrianglePoint( final Vector3D v0, final Vector3D u0, final Vector3D u1, final Vector3D u2, final int i0, final int i1 )
+	private static boolean testTrianglePoint( final double v0a, final double v0b, final double u0a, final double u0b, final double u1a, final double u1b, final double u2a, final double u2b )
 	{
 		/* is T1 completly inside T2? */
 		/* check if V0 is inside tri(U0,U1,U2) */
-		double a = get( u1, i1 ) - get( u0, i1 );
-		double b = -( get( u1, i0 ) - get( u0, i0 ) );
-		double c = -a * get( u0, i0 ) - b * get( u0, i1 );
-		final double d0 = a * get( v0, i0 ) + b * get( v0, i1 ) + c;
+		double a = u1b - u0b;
+		double b = -( u1a - u0a );
+		double c = -a * u0a - b * u0b;
+		final double d0 = a * v0a + b * v0b + c;
 
-		a = get( u2, i1 ) - get( u1, i1 );
-		b = -( get( u2, i0 ) - get( u1, i0 ) );
-		c = -a * get( u1, i0 ) - b * get( u1, i1 );
-		final double d1 = a * get( v0, i0 ) + b * get( v0, i1 ) + c;
+		a = u2b - u1b;
+		b = -( u2a - u1a );
+		c = -a * u1a - b * u1b;
+		final double d1 = a * v0a + b * v0b + c;
 
-		a = get( u0, i1 ) - get( u2, i1 );
-		b = -( get( u0, i0 ) - get( u2, i0 ) );
-		c = -a * get( u2, i0 ) - b * get( u2, i1 );
-		final double d2 = a * get( v0, i0 ) + b * get( v0, i1 ) + c;
+		a = u0b - u2b;
+		b = -( u0a - u2a );
+		c = -a * u2a - b * u2b;
+		final double d2 = a * v0a + b * v0b + c;
 
 		return ( ( d0 * d1 > 0.0 ) && ( d0 * d2 > 0.0 ) );
 	}
 
-	private static double get( final Vector3D vector, final int i )
+	private static double get( final double x, final double y, final double z, final int i )
 	{
 		switch ( i )
 		{
-			case 0 : return vector.x;
-			case 1 : return vector.y;
-			case 2 : return vector.z;
+			case 0 : return x;
+			case 1 : return y;
+			case 2 : return z;
 			default : throw new AssertionError();
 		}
 	}
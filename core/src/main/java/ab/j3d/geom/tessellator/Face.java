@@ -40,8 +40,17 @@
  */
 package ab.j3d.geom.tessellator;
 
+import org.jetbrains.annotations.*;
+
 class Face
 {
+	/**
+	 * Pool from which mesh elements are allocated; <code>null</code> if
+	 * elements are not pooled.
+	 */
+	@Nullable
+	final MeshPool pool;
+
 	/**
 	 * next face (never NULL)
 	 */
@@ -73,4 +82,22 @@ class Face
 	 * this face is in the polygon interior
 	 */
 	public boolean inside;
+
+	/**
+	 * Create face that is not pooled.
+	 */
+	Face()
+	{
+		this( null );
+	}
+
+	/**
+	 * Create face.
+	 *
+	 * @param   pool    Pool that the face belongs to.
+	 */
+	Face( @Nullable final MeshPool pool )
+	{
+		this.pool = pool;
+	}
 }
@@ -40,8 +40,6 @@
  */
 package ab.j3d.geom.tessellator;
 
-import ab.j3d.*;
-
 @SuppressWarnings( { "JavaDoc" } )
 class Geom
 {
@@ -63,18 +61,18 @@ class Geom
 	{
 		assert ( vertLeq(u, v) && vertLeq(v, w));
 
-		final double ux = u.location.getX();
-		final double vx = v.location.getX();
-		final double wz = w.location.getX();
+		final double ux = u.x;
+		final double vx = v.x;
+		final double wz = w.x;
 
 		final double gapL = vx - ux;
 		final double gapR = wz - vx;
 
 		if ( gapL + gapR > 0.0 )
 		{
-			final double uy = u.location.getY();
-			final double vy = v.location.getY();
-			final double wy = w.location.getY();
+			final double uy = u.y;
+			final double vy = v.y;
+			final double wy = w.y;
 
 			if ( gapL < gapR )
 			{
@@ -96,10 +94,10 @@ class Geom
 	{
 		assert ( vertLeq(u, v) && vertLeq(v, w));
 
-		final double gapL = v.location.getX() - u.location.getX();
-		final double gapR = w.location.getX() - v.location.getX();
+		final double gapL = v.x - u.x;
+		final double gapR = w.x - v.x;
 
-		return ( ( gapL + gapR > 0.0 ) ) ? ( v.location.getY() - w.location.getY() ) * gapL + ( v.location.getY() - u.location.getY() ) * gapR : 0.0 /* vertical line */;
+		return ( ( gapL + gapR > 0.0 ) ) ? ( v.y - w.y ) * gapL + ( v.y - u.y ) * gapR : 0.0 /* vertical line */;
 	}
 
 	/***********************************************************************
@@ -125,18 +123,18 @@ class Geom
 
 		assert ( transLeq( u, v ) && transLeq( v, w ) );
 
-		gapL = v.location.getY() - u.location.getY();
-		gapR = w.location.getY() - v.location.getY();
+		gapL = v.y - u.y;
+		gapR = w.y - v.y;
 
 		if ( gapL + gapR > 0.0 )
 		{
 			if ( gapL < gapR )
 			{
-				return ( v.location.getX() - u.location.getX() ) + ( u.location.getX() - w.location.getX() ) * ( gapL / ( gapL + gapR ) );
+				return ( v.x - u.x ) + ( u.x - w.x ) * ( gapL / ( gapL + gapR ) );
 			}
 			else
 			{
-				return ( v.location.getX() - w.location.getX() ) + ( w.location.getX() - u.location.getX() ) * ( gapR / ( gapL + gapR ) );
+				return ( v.x - w.x ) + ( w.x - u.x ) * ( gapR / ( gapL + gapR ) );
 			}
 		}
 
@@ -156,11 +154,11 @@ class Geom
 
 		assert ( transLeq(u, v) && transLeq(v, w));
 
-		gapL = v.location.getY() - u.location.getY();
-		gapR = w.location.getY() - v.location.getY();
+		gapL = v.y - u.y;
+		gapR = w.y - v.y;
 
 		if (gapL + gapR > 0) {
-			return (v.location.getX() - w.location.getX() ) * gapL + (v.location.getX() - u.location.getX() ) * gapR;
+			return (v.x - w.x ) * gapL + (v.x - u.x ) * gapR;
 		}
 		/* vertical line */
 		return 0;
@@ -194,9 +192,10 @@ class Geom
 	/**
 	 * Given edges (o1,d1) and (o2,d2), compute their point of intersection.
 	 * The computed point is guaranteed to lie in the intersection of the
-	 * bounding rectangles defined by each edge.
+	 * bounding rectangles defined by each edge. The location of the given
+	 * result vertex is set to the intersection.
 	 */
-	static Vector2D edgeIntersect( Vertex o1, Vertex d1, Vertex o2, Vertex d2 )
+	static void edgeIntersect( Vertex o1, Vertex d1, Vertex o2, Vertex d2, final Vertex result )
 	{
 		double z1;
 		double z2;
@@ -236,7 +235,7 @@ class Geom
 		if ( !vertLeq( o2, d1 ) )
 		{
 			/* Technically, no intersection -- do our best */
-			x = ( o2.location.getX() + d1.location.getX() ) / 2.0;
+			x = ( o2.x + d1.x ) / 2.0;
 		}
 		else if ( vertLeq( d1, d2 ) )
 		{
@@ -248,7 +247,7 @@ class Geom
 				z1 = -z1;
 				z2 = -z2;
 			}
-			x = interpolate( z1, o2.location.getX(), z2, d1.location.getX() );
+			x = interpolate( z1, o2.x, z2, d1.x );
 		}
 		else
 		{
@@ -260,7 +259,7 @@ class Geom
 				z1 = -z1;
 				z2 = -z2;
 			}
-			x = interpolate( z1, o2.location.getX(), z2, d2.location.getX() );
+			x = interpolate( z1, o2.x, z2, d2.x );
 		}
 
 		/* Now repeat the process for t */
@@ -292,7 +291,7 @@ class Geom
 		if ( !transLeq( o2, d1 ) )
 		{
 			/* Technically, no intersection -- do our best */
-			y = ( o2.location.getY() + d1.location.getY() ) / 2.0;
+			y = ( o2.y + d1.y ) / 2.0;
 		}
 		else if ( transLeq( d1, d2 ) )
 		{
@@ -304,7 +303,7 @@ class Geom
 				z1 = -z1;
 				z2 = -z2;
 			}
-			y = interpolate( z1, o2.location.getY(), z2, d1.location.getY() );
+			y = interpolate( z1, o2.y, z2, d1.y );
 		}
 		else
 		{
@@ -316,27 +315,28 @@ class Geom
 				z1 = -z1;
 				z2 = -z2;
 			}
-			y = interpolate( z1, o2.location.getY(), z2, d2.location.getY() );
+			y = interpolate( z1, o2.y, z2, d2.y );
 		}
 
-		return new Vector2D( x, y );
+		result.x = x;
+		result.y = y;
 	}
 
 	static boolean vertEq( final Vertex v1, final Vertex v2 )
 	{
-		return v1.location.getX() == v2.location.getX() && v1.location.getY() == v2.location.getY();
+		return v1.x == v2.x && v1.y == v2.y;
 	}
 
 	static boolean vertLeq( final Vertex v1, final Vertex v2 )
 	{
-		return v1.location.getX() < v2.location.getX() || ( v1.location.getX() == v2.location.getX() && v1.location.getY() <= v2.location.getY() );
+		return v1.x < v2.x || ( v1.x == v2.x && v1.y <= v2.y );
 	}
 
 	/* Versions of {@link #vertLeq}, {@link #edgeSign}, {@link #edgeEval} with s and t transposed. */
 
 	private static boolean transLeq( final Vertex u, final Vertex v )
 	{
-		return ( u.location.getY() < v.location.getY() ) || ( u.location.getY() == v.location.getY() && u.location.getX() <= v.location.getX() );
+		return ( u.y < v.y ) || ( u.y == v.y && u.x <= v.x );
 	}
 
 
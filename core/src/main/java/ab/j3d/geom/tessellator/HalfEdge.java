@@ -44,6 +44,13 @@ import org.jetbrains.annotations.*;
 
 class HalfEdge
 {
+	/**
+	 * Pool from which mesh elements are allocated; <code>null</code> if
+	 * elements are not pooled.
+	 */
+	@Nullable
+	final MeshPool pool;
+
 	/**
 	 * doubly-linked list (prev==Sym->next)
 	 */
@@ -89,8 +96,20 @@ class HalfEdge
 	public boolean first;
 
 	HalfEdge( final boolean first )
+	{
+		this( first, null );
+	}
+
+	/**
+	 * Create half-edge.
+	 *
+	 * @param   first   Whether this is the first half-edge of the pair.
+	 * @param   pool    Pool that the edge belongs to.
+	 */
+	HalfEdge( final boolean first, @Nullable final MeshPool pool )
 	{
 		this.first = first;
+		this.pool = pool;
 	}
 
 	boolean goesLeft()
@@ -151,8 +170,17 @@ class HalfEdge
 		final HalfEdge eSym;
 		final HalfEdge ePrev;
 
-		e = new HalfEdge( true );
-		eSym = new HalfEdge( false );
+		final MeshPool pool = eNext.pool;
+		if ( pool != null )
+		{
+			e = pool.createEdgePair();
+			eSym = e.symmetric;
+		}
+		else
+		{
+			e = new HalfEdge( true );
+			eSym = new HalfEdge( false );
+		}
 
 		/* Make sure eNext points to the first edge of the edge pair */
 		if ( !eNext.first )
@@ -266,7 +294,8 @@ class HalfEdge
 	 */
 	static void makeFace( final HalfEdge eOrig, final Face fNext )
 	{
-		final Face result = new Face();
+		final MeshPool pool = fNext.pool;
+		final Face result = ( pool != null ) ? pool.createFace() : new Face();
 		HalfEdge e;
 		final Face fPrev;
 
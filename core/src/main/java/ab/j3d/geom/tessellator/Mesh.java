@@ -138,7 +138,20 @@ public class Mesh
 	/**
 	 * Winding rule of mesh.
 	 */
-	final WindingRule windingRule;
+	WindingRule windingRule;
+
+	/**
+	 * Pool from which mesh elements are allocated; <code>null</code> if
+	 * elements are not pooled.
+	 */
+	@Nullable
+	final MeshPool _pool;
+
+	/**
+	 * Sweep that is reused when the mesh is pooled.
+	 */
+	@Nullable
+	private Sweep _sweep;
 
 	/**
 	 * head of vertex list
@@ -193,16 +206,47 @@ public class Mesh
 	 * @param   windingRule     Winding rule of mesh.
 	 */
 	public Mesh( final WindingRule windingRule )
+	{
+		this( windingRule, null );
+	}
+
+	/**
+	 * Creates a new mesh with no edges, no vertices, and no loops, whose
+	 * elements are allocated from the given pool.
+	 *
+	 * @param   windingRule     Winding rule of mesh.
+	 * @param   pool            Pool to allocate mesh elements from.
+	 */
+	Mesh( final WindingRule windingRule, @Nullable final MeshPool pool )
+	{
+		_pool = pool;
+		_sweep = null;
+
+		_vertexListHead = new Vertex( pool );
+		_faceListHead = new Face( pool );
+		_edgeListHead = new HalfEdge( true, pool );
+		_edgeListHeadSymmetric = new HalfEdge( false, pool );
+
+		reset( windingRule );
+	}
+
+	/**
+	 * Removes all elements from this mesh, so it can be reused. Elements
+	 * are not returned to the pool; use {@link MeshPool#reset} for that.
+	 *
+	 * @param   windingRule     Winding rule of mesh.
+	 */
+	void reset( final WindingRule windingRule )
 	{
 		this.windingRule = windingRule;
 
-		final Vertex vertexListHead = new Vertex();
+		final Vertex vertexListHead = _vertexListHead;
 		vertexListHead.prev = vertexListHead;
 		vertexListHead.next = vertexListHead;
 		vertexListHead.anEdge = null;
 		vertexListHead.vertexIndex = -1;
 
-		final Face faceListHead = new Face();
+		final Face faceListHead = _faceListHead;
 		faceListHead.prev = faceListHead;
 		faceListHead.next = faceListHead;
 		faceListHead.anEdge = null;
@@ -210,7 +254,7 @@ public class Mesh
 		faceListHead.rendered = false;
 		faceListHead.inside = false;
 
-		final HalfEdge edgeListHead  = new HalfEdge( true );
+		final HalfEdge edgeListHead = _edgeListHead;
 		edgeListHead.next = edgeListHead;
 		edgeListHead.ccwAroundOrigin = null;
 		edgeListHead.ccwAroundLeftFace = null;
@@ -219,7 +263,7 @@ public class Mesh
 		edgeListHead.winding = 0;
 		edgeListHead.activeRegion = null;
 
-		final HalfEdge edgeListHeadSymmetric = new HalfEdge( false );
+		final HalfEdge edgeListHeadSymmetric = _edgeListHeadSymmetric;
 		edgeListHeadSymmetric.next = edgeListHeadSymmetric;
 		edgeListHeadSymmetric.ccwAroundOrigin = null;
 		edgeListHeadSymmetric.ccwAroundLeftFace = null;
@@ -231,11 +275,6 @@ public class Mesh
 		edgeListHead.symmetric = edgeListHeadSymmetric;
 		edgeListHeadSymmetric.symmetric = edgeListHead;
 
-		_vertexListHead = vertexListHead;
-		_faceListHead = faceListHead;
-		_edgeListHead = edgeListHead;
-		_edgeListHeadSymmetric = edgeListHeadSymmetric;
-
 		_lastContourEdge = null;
 		_finished = false;
 		_tessellated = false;
@@ -260,7 +299,7 @@ public class Mesh
 	 */
 	public void addVertex( final double x, final double y )
 	{
-		addVertex( new Vector2D( x, y ) );
+		addVertex( x, y, -1 );
 	}
 
 	/**
@@ -270,6 +309,19 @@ public class Mesh
 	 * @param   location    Location of vertex.
 	 */
 	public void addVertex( final Vector2D location )
+	{
+		addVertex( location.getX(), location.getY(), -1 );
+	}
+
+	/**
+	 * Add vertex to current contour. Can only be called between
+	 * {@link #beginContour} and {@link #endContour}.
+	 *
+	 * @param   x               X coordinate of vertex.
+	 * @param   y               Y coordinate of vertex.
+	 * @param   vertexIndex     Index of vertex in result; -1 if not assigned.
+	 */
+	void addVertex( final double x, final double y, final int vertexIndex )
 	{
 		if ( _finished )
 		{
@@ -294,7 +346,10 @@ public class Mesh
 		}
 
 		/* The new vertex is now e.Org. */
-		edge.origin.location = location;
+		final Vertex vertex = edge.origin;
+		vertex.x = x;
+		vertex.y = y;
+		vertex.vertexIndex = vertexIndex;
 
 		/*
 		 * The winding of an edge says how the winding number changes as we
@@ -330,7 +385,15 @@ public class Mesh
 
 		_lastContourEdge = null;
 
-		final Sweep sweep = new Sweep( this );
+		Sweep sweep = _sweep;
+		if ( sweep == null )
+		{
+			sweep = new Sweep( this );
+			if ( _pool != null )
+			{
+				_sweep = sweep;
+			}
+		}
 		sweep.computeInterior();
 
 		_finished = true;
@@ -422,6 +485,64 @@ public class Mesh
 		return TesselationConstructor.constructOutlines( this, vertexList, counterClockwise );
 	}
 
+	/**
+	 * Adds triangles for interior of mesh to the given array.
+	 *
+	 * @param   counterClockwise    Construct counter-clockwise triangles.
+	 * @param   triangles           Receives vertex indices of triangles.
+	 * @param   firstNewVertex      Index of first vertex in the list of new
+	 *                              vertices.
+	 * @param   newVertices         Receives coordinates of vertices created
+	 *                              by the tessellation.
+	 */
+	void constructTriangles( final boolean counterClockwise, @NotNull final IntArray triangles, final int firstNewVertex, @NotNull final DoubleArray newVertices )
+	{
+		if ( !_finished )
+		{
+			throw new IllegalStateException( "need finish()" );
+		}
+
+		if ( _outlined )
+		{
+			throw new IllegalStateException( "not possible after outline()" );
+		}
+
+		if ( !_tessellated )
+		{
+			MonotoneTessellator.tessellateInterior( this );
+			_tessellated = true;
+		}
+
+		TesselationConstructor.constructTriangles( this, counterClockwise, triangles, firstNewVertex, newVertices );
+	}
+
+	/**
+	 * Adds outlines of mesh to the given arrays.
+	 *
+	 * @param   counterClockwise    Construct counter-clockwise outlines.
+	 * @param   outlines            Receives vertex indices of all outlines.
+	 * @param   outlineEnds         Receives end index of each outline.
+	 * @param   firstNewVertex      Index of first vertex in the list of new
+	 *                              vertices.
+	 * @param   newVertices         Receives coordinates of vertices created
+	 *                              by the tessellation.
+	 */
+	void constructOutlines( final boolean counterClockwise, @NotNull final IntArray outlines, @NotNull final IntArray outlineEnds, final int firstNewVertex, @NotNull final DoubleArray newVertices )
+	{
+		if ( !_finished )
+		{
+			throw new IllegalStateException( "need finish()" );
+		}
+
+		if ( !_outlined )
+		{
+			setWindingNumber( 1, true );
+			_outlined = true;
+		}
+
+		TesselationConstructor.constructOutlines( this, counterClockwise, outlines, outlineEnds, firstNewVertex, newVertices );
+	}
+
 	/**** END OF PUBLIC API ****/
 
 	/**
@@ -485,7 +606,8 @@ public class Mesh
 	 */
 	static Vertex makeVertex( final HalfEdge eOrig, final Vertex vNext )
 	{
-		final Vertex result = new Vertex();
+		final MeshPool pool = vNext.pool;
+		final Vertex result = ( pool != null ) ? pool.createVertex() : new Vertex();
 
 		final Vertex vPrev;
 
@@ -0,0 +1,241 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom.tessellator;
+
+import ab.j3d.geom.tessellator.RegionDict.*;
+
+/**
+ * Pool of mesh elements that can be reused by subsequent tessellations.
+ * Elements are handed out in order and are only returned to the pool all at
+ * once by {@link #reset}. Elements deleted during a tessellation are not
+ * reused before that time, so references that algorithms may keep to deleted
+ * elements remain valid.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Peter S. Heijnen
+ */
+class MeshPool
+{
+	/**
+	 * Initial capacity of each pool.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Pooled edges. Only the first half-edge of each pair is stored.
+	 */
+	private HalfEdge[] _edges = new HalfEdge[ INITIAL_CAPACITY ];
+
+	/**
+	 * Number of edges in use.
+	 */
+	private int _edgeCount = 0;
+
+	/**
+	 * Pooled vertices.
+	 */
+	private Vertex[] _vertices = new Vertex[ INITIAL_CAPACITY ];
+
+	/**
+	 * Number of vertices in use.
+	 */
+	private int _vertexCount = 0;
+
+	/**
+	 * Pooled faces.
+	 */
+	private Face[] _faces = new Face[ INITIAL_CAPACITY ];
+
+	/**
+	 * Number of faces in use.
+	 */
+	private int _faceCount = 0;
+
+	/**
+	 * Pooled regions.
+	 */
+	private Region[] _regions = new Region[ INITIAL_CAPACITY ];
+
+	/**
+	 * Number of regions in use.
+	 */
+	private int _regionCount = 0;
+
+	/**
+	 * Pooled dictionary nodes.
+	 */
+	private DictNode[] _dictNodes = new DictNode[ INITIAL_CAPACITY ];
+
+	/**
+	 * Number of dictionary nodes in use.
+	 */
+	private int _dictNodeCount = 0;
+
+	/**
+	 * Returns all elements to the pool.
+	 */
+	void reset()
+	{
+		_edgeCount = 0;
+		_vertexCount = 0;
+		_faceCount = 0;
+		_regionCount = 0;
+		_dictNodeCount = 0;
+	}
+
+	/**
+	 * Returns a pair of half-edges. The returned half-edge is the first of
+	 * the pair; the other is its {@link HalfEdge#symmetric}.
+	 *
+	 * @return First half-edge of pair.
+	 */
+	HalfEdge createEdgePair()
+	{
+		HalfEdge[] edges = _edges;
+		final int index = _edgeCount++;
+		if ( index == edges.length )
+		{
+			final HalfEdge[] newEdges = new HalfEdge[ index * 2 ];
+			System.arraycopy( edges, 0, newEdges, 0, index );
+			_edges = newEdges;
+			edges = newEdges;
+		}
+
+		HalfEdge result = edges[ index ];
+		if ( result == null )
+		{
+			result = new HalfEdge( true, this );
+			final HalfEdge symmetric = new HalfEdge( false, this );
+			result.symmetric = symmetric;
+			symmetric.symmetric = result;
+			edges[ index ] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a vertex.
+	 *
+	 * @return Vertex.
+	 */
+	Vertex createVertex()
+	{
+		Vertex[] vertices = _vertices;
+		final int index = _vertexCount++;
+		if ( index == vertices.length )
+		{
+			final Vertex[] newVertices = new Vertex[ index * 2 ];
+			System.arraycopy( vertices, 0, newVertices, 0, index );
+			_vertices = newVertices;
+			vertices = newVertices;
+		}
+
+		Vertex result = vertices[ index ];
+		if ( result == null )
+		{
+			result = new Vertex( this );
+			vertices[ index ] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a face.
+	 *
+	 * @return Face.
+	 */
+	Face createFace()
+	{
+		Face[] faces = _faces;
+		final int index = _faceCount++;
+		if ( index == faces.length )
+		{
+			final Face[] newFaces = new Face[ index * 2 ];
+			System.arraycopy( faces, 0, newFaces, 0, index );
+			_faces = newFaces;
+			faces = newFaces;
+		}
+
+		Face result = faces[ index ];
+		if ( result == null )
+		{
+			result = new Face( this );
+			faces[ index ] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a region with zero winding number that is not inside.
+	 *
+	 * @return Region.
+	 */
+	Region createRegion()
+	{
+		Region[] regions = _regions;
+		final int index = _regionCount++;
+		if ( index == regions.length )
+		{
+			final Region[] newRegions = new Region[ index * 2 ];
+			System.arraycopy( regions, 0, newRegions, 0, index );
+			_regions = newRegions;
+			regions = newRegions;
+		}
+
+		Region result = regions[ index ];
+		if ( result == null )
+		{
+			result = new Region();
+			regions[ index ] = result;
+		}
+		else
+		{
+			result.windingNumber = 0;
+			result.inside = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a dictionary node.
+	 *
+	 * @return Dictionary node.
+	 */
+	DictNode createDictNode()
+	{
+		DictNode[] dictNodes = _dictNodes;
+		final int index = _dictNodeCount++;
+		if ( index == dictNodes.length )
+		{
+			final DictNode[] newDictNodes = new DictNode[ index * 2 ];
+			System.arraycopy( dictNodes, 0, newDictNodes, 0, index );
+			_dictNodes = newDictNodes;
+			dictNodes = newDictNodes;
+		}
+
+		DictNode result = dictNodes[ index ];
+		if ( result == null )
+		{
+			result = new DictNode();
+			dictNodes[ index ] = result;
+		}
+		return result;
+	}
+}
@@ -79,7 +79,30 @@ class PriorityQHeap
 		handles[ 1 ].key = null;
 	}
 
-	void floatDown( int curr )
+	/**
+	 * Removes all keys from the heap, so it can be reused. Allocated
+	 * storage is retained.
+	 */
+	void pqClear()
+	{
+		for ( final PQhandleElem handle : handles )
+		{
+			handle.key = null;
+			handle.node = 0;
+		}
+		for ( final PQnode node : nodes )
+		{
+			node.handle = 0;
+		}
+
+		size = 0;
+		initialized = false;
+		freeList = 0;
+
+		nodes[ 1 ].handle = 1;	/* so that Minimum() returns NULL */
+	}
+
+		void floatDown( int curr )
 	{
 		final PQnode[] n = nodes;
 		final PQhandleElem[] h = handles;
@@ -40,6 +40,8 @@
  */
 package ab.j3d.geom.tessellator;
 
+import java.util.*;
+
 class PriorityQSort
 	extends PriorityQ
 {
@@ -60,8 +62,19 @@ class PriorityQSort
 
 	Comparator leq;
 
+	/**
+	 * Stack used by {@link #pqInit}.
+	 */
+	private final Stack[] stack;
+
 	protected PriorityQSort( final Comparator leq )
 	{
+		stack = new Stack[ 50 ];
+		for ( int k = 0; k < stack.length; k++ )
+		{
+			stack[ k ] = new Stack();
+		}
+
 		heap = new PriorityQHeap( leq );
 
 		keys = new Object[INIT_SIZE];
@@ -104,11 +117,7 @@ class PriorityQSort
 		int i;
 		int j;
 		int piv;
-		final Stack[] stack = new Stack[50];
-		for ( int k = 0; k < stack.length; k++ )
-		{
-			stack[ k ] = new Stack();
-		}
+		final Stack[] stack = this.stack;
 		int top = 0;
 
 		int seed = 2016473283;
@@ -116,7 +125,10 @@ class PriorityQSort
 		/* Create an array of indirect pointers to the keys, so that we
 		 * the handles we have returned are still valid.
 		 */
-		order = new int[size + 1];
+		if ( ( order == null ) || ( order.length < size + 1 ) )
+		{
+			order = new int[size + 1];
+		}
 		/* the previous line is a patch to compensate for the fact that IBM */
 		/* machines return a null on a malloc of zero bytes (unlike SGI),   */
 		/* so we have to put in this defense to guard against a memory      */
@@ -195,6 +207,19 @@ class PriorityQSort
 		heap.pqInit(); /* always succeeds */
 	}
 
+	/**
+	 * Removes all keys from the queue, so it can be reused. Allocated
+	 * storage is retained.
+	 */
+	void pqClear()
+	{
+		Arrays.fill( keys, null );
+		size = 0;
+		max = keys.length;
+		initialized = false;
+		heap.pqClear();
+	}
+
 	/* returns LONG_MAX iff out of memory */
 	@Override
 	int pqInsert( final Object keyNew )
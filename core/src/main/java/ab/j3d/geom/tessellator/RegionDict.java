@@ -46,11 +46,19 @@ class RegionDict
 {
 	private final Sweep _sweep;
 
+	/**
+	 * Pool to allocate dictionary nodes from; <code>null</code> if nodes are
+	 * not pooled.
+	 */
+	@Nullable
+	private final MeshPool _pool;
+
 	DictNode head;
 
-	RegionDict( final Sweep sweep )
+	RegionDict( final Sweep sweep, @Nullable final MeshPool pool )
 	{
 		_sweep = sweep;
+		_pool = pool;
 		head = new DictNode();
 		head.key = null;
 		head.next = head;
@@ -151,7 +159,8 @@ class RegionDict
 		}
 		while ( node.key != null && !lessOrEqual( node.key, key ) );
 
-		final DictNode result = new DictNode();
+		final MeshPool pool = _pool;
+		final DictNode result = ( pool != null ) ? pool.createDictNode() : new DictNode();
 		result.key = key;
 		result.next = node.next;
 		node.next.prev = result;
@@ -169,7 +178,7 @@ class RegionDict
 
 	void clear()
 	{
-		head = new DictNode();
+		final DictNode head = this.head;
 		head.key = null;
 		head.next = head;
 		head.prev = head;
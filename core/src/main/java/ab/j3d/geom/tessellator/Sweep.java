@@ -40,7 +40,6 @@
  */
 package ab.j3d.geom.tessellator;
 
-import ab.j3d.*;
 import ab.j3d.geom.tessellator.PriorityQ.*;
 
 /**
@@ -128,7 +127,17 @@ class Sweep
 	/**
 	 * Priority queue of vertex events
 	 */
-	private PriorityQ _pq;
+	private PriorityQSort _pq;
+
+	/**
+	 * Region used as search key in the edge dictionary.
+	 */
+	private final Region _searchRegion = new Region();
+
+	/**
+	 * Vertex used to compute edge intersections.
+	 */
+	private final Vertex _intersection = new Vertex();
 
 	/**
 	 * Current sweep event being processed
@@ -236,7 +245,7 @@ class Sweep
 	 */
 	Region addRegionBelow( final Region regAbove, final HalfEdge eNewUp )
 	{
-		final Region regNew = new Region();
+		final Region regNew = createRegion();
 
 		regNew.upperEdge = eNewUp;
 		regNew.nodeUp = _dict.insertBefore( regAbove.nodeUp, regNew );
@@ -248,7 +257,18 @@ class Sweep
 		return regNew;
 	}
 
-	void computeWinding( final Region reg )
+	/**
+	 * Creates a new region, taking it from the mesh pool if available.
+	 *
+	 * @return  Region.
+	 */
+	private Region createRegion()
+	{
+		final MeshPool pool = _mesh._pool;
+		return ( pool != null ) ? pool.createRegion() : new Region();
+	}
+
+		void computeWinding( final Region reg )
 	{
 		reg.windingNumber = regionAbove( reg ).windingNumber + reg.upperEdge.winding;
 		reg.inside = _mesh.windingRule.isInside( reg.windingNumber );
@@ -569,7 +589,7 @@ class Sweep
 		final Vertex dstLo = eLo.symmetric.origin;
 		final double tMinUp;
 		final double tMaxLo;
-		final Vertex isect = new Vertex();
+		final Vertex isect = _intersection;
 		final Vertex orgMin;
 		final HalfEdge e;
 
@@ -584,8 +604,8 @@ class Sweep
 			return false;
 		}	/* right endpoints are the same */
 
-		tMinUp = Math.min( orgUp.location.getY(), dstUp.location.getY() );
-		tMaxLo = Math.max( orgLo.location.getY(), dstLo.location.getY() );
+		tMinUp = Math.min( orgUp.y, dstUp.y );
+		tMaxLo = Math.max( orgLo.y, dstLo.y );
 		if ( tMinUp > tMaxLo )
 		{
 			return false;
@@ -608,12 +628,12 @@ class Sweep
 
 		/* At this point the edges intersect, at least marginally */
 
-		isect.location = Geom.edgeIntersect( dstUp, orgUp, dstLo, orgLo );
+		Geom.edgeIntersect( dstUp, orgUp, dstLo, orgLo, isect );
 		/* The following properties are guaranteed: */
-		assert ( Math.min( orgUp.location.getY(), dstUp.location.getY() ) <= isect.location.getY() );
-		assert ( isect.location.getY() <= Math.max( orgLo.location.getY(), dstLo.location.getY() ) );
-		assert ( Math.min( dstLo.location.getX(), dstUp.location.getX() ) <= isect.location.getX() );
-		assert ( isect.location.getX() <= Math.max( orgLo.location.getX(), orgUp.location.getX() ) );
+		assert ( Math.min( orgUp.y, dstUp.y ) <= isect.y );
+		assert ( isect.y <= Math.max( orgLo.y, dstLo.y ) );
+		assert ( Math.min( dstLo.x, dstUp.x ) <= isect.x );
+		assert ( isect.x <= Math.max( orgLo.x, orgUp.x ) );
 
 		if ( Geom.vertLeq( isect, _event ) )
 		{
@@ -624,7 +644,7 @@ class Sweep
 			 * in the first place).  The easiest and safest thing to do is
 			 * replace the intersection by _event.
 			 */
-			isect.location = _event.location;
+			isect.setLocation( _event );
 		}
 		/*
 		 * Similarly, if the computed intersection lies to the right of the
@@ -636,7 +656,7 @@ class Sweep
 		orgMin = Geom.vertLeq( orgUp, orgLo ) ? orgUp : orgLo;
 		if ( Geom.vertLeq( orgMin, isect ) )
 		{
-			isect.location = orgMin.location;
+			isect.setLocation( orgMin );
 		}
 
 		if ( Geom.vertEq( isect, orgUp ) || Geom.vertEq( isect, orgLo ) )
@@ -692,13 +712,13 @@ class Sweep
 			{
 				regionAbove( regUp ).dirty = regUp.dirty = true;
 				eUp.symmetric.split();
-				eUp.origin.location = _event.location;
+				eUp.origin.setLocation( _event );
 			}
 			if ( Geom.edgeSign( dstLo, _event, isect ) <= 0 )
 			{
 				regUp.dirty = regLo.dirty = true;
 				eLo.symmetric.split();
-				eLo.origin.location = _event.location;
+				eLo.origin.setLocation( _event );
 			}
 			/* leave the rest for ConnectRightVertex */
 			return false;
@@ -716,7 +736,7 @@ class Sweep
 		eUp.symmetric.split();
 		eLo.symmetric.split();
 		Mesh.spliceMesh( eLo.symmetric.ccwAroundLeftFace, eUp );
-		eUp.origin.location = isect.location;
+		eUp.origin.setLocation( isect );
 		eUp.origin.pqHandle = _pq.pqInsert( eUp.origin ); /* pqSortInsert */
 		// COMBINE CALLBACK HERE: eUp.origin.vertexIndex = _tessellationBuilder.addVertex( eUp.origin.getX(), eUp.origin.getY(), 0.0 );
 		regLo.dirty = true;
@@ -1012,7 +1032,7 @@ class Sweep
 		final HalfEdge eUp;
 		final HalfEdge eLo;
 		final HalfEdge eNew;
-		final Region tmp = new Region();
+		final Region tmp = _searchRegion;
 
 		/* assert ( vEvent.anEdge.Onext.Onext == vEvent.anEdge ); */
 
@@ -1140,11 +1160,13 @@ class Sweep
 	void addSentinel( final double t )
 	{
 		final HalfEdge sentinelEdge = _mesh.createSelfLoopEdge();
-		sentinelEdge.origin.location = new Vector2D( SENTINEL_COORD, t );
-		sentinelEdge.symmetric.origin.location = new Vector2D( -SENTINEL_COORD, t );
+		sentinelEdge.origin.x = SENTINEL_COORD;
+		sentinelEdge.origin.y = t;
+		sentinelEdge.symmetric.origin.x = -SENTINEL_COORD;
+		sentinelEdge.symmetric.origin.y = t;
 		_event = sentinelEdge.symmetric.origin;
 
-		final Region region = new Region();
+		final Region region = createRegion();
 		region.upperEdge = sentinelEdge;
 		region.windingNumber = 0;
 		region.inside = false;
@@ -1160,7 +1182,16 @@ class Sweep
 	 */
 	void initEdgeDict()
 	{
-		_dict = new RegionDict( this );
+		final RegionDict dict = _dict;
+		if ( dict == null )
+		{
+			_dict = new RegionDict( this, _mesh._pool );
+		}
+		else
+		{
+			dict.clear();
+		}
+
 		addSentinel( -SENTINEL_COORD );
 		addSentinel( SENTINEL_COORD );
 	}
@@ -1216,7 +1247,15 @@ class Sweep
 	 */
 	private void initPriorityQ()
 	{
-		final PriorityQSort pq = new PriorityQSort( PRIORITY_Q_LEQ );
+		PriorityQSort pq = _pq;
+		if ( pq == null )
+		{
+			pq = new PriorityQSort( PRIORITY_Q_LEQ );
+		}
+		else
+		{
+			pq.pqClear();
+		}
 
 		final Vertex vHead = _mesh._vertexListHead;
 		for ( Vertex v = vHead.next; v != vHead; v = v.next )
@@ -1320,8 +1359,12 @@ class Sweep
 		}
 
 		_event = _dict.min().key.upperEdge.origin;
-		_dict = null;
-		_pq = null;
+
+		if ( _mesh._pool == null )
+		{
+			_dict = null;
+			_pq = null;
+		}
 
 		removeDegenerateFaces( _mesh );
 	}
@@ -134,6 +134,48 @@ class TesselationConstructor
 		return vertices;
 	}
 
+	/**
+	 * Adds all triangles in the mesh to the given array. Vertices that were
+	 * not added to the mesh with an index are appended to the list of new
+	 * vertices; their index is the given index plus their position in that
+	 * list.
+	 *
+	 * @param mesh             Mesh to build triangles of.
+	 * @param counterClockwise Construct counter-clockwise triangles.
+	 * @param triangles        Receives vertex indices of triangles.
+	 * @param firstNewVertex   Index of first vertex in list of new vertices.
+	 * @param newVertices      Receives coordinates of new vertices.
+	 */
+	static void constructTriangles( final Mesh mesh, final boolean counterClockwise, final IntArray triangles, final int firstNewVertex, final DoubleArray newVertices )
+	{
+		for ( Face face = mesh._faceListHead.next; face != mesh._faceListHead; face = face.next )
+		{
+			if ( face.inside )
+			{
+				final HalfEdge e1 = face.anEdge;
+				final HalfEdge e2 = e1.ccwAroundLeftFace;
+				final HalfEdge e3 = e2.ccwAroundLeftFace;
+
+				final int v1 = getVertexIndex( e1.origin, firstNewVertex, newVertices );
+				final int v2 = getVertexIndex( e2.origin, firstNewVertex, newVertices );
+				final int v3 = getVertexIndex( e3.origin, firstNewVertex, newVertices );
+
+				if ( counterClockwise )
+				{
+					triangles.add( v1 );
+					triangles.add( v2 );
+					triangles.add( v3 );
+				}
+				else
+				{
+					triangles.add( v3 );
+					triangles.add( v2 );
+					triangles.add( v1 );
+				}
+			}
+		}
+	}
+
 	/**
 	 * Constructs tessellation of mesh using primitives (triangle fans, triangle
 	 * strips, and separate triangles).
@@ -202,9 +244,9 @@ class TesselationConstructor
 		final HalfEdge e2 = e1.ccwAroundLeftFace;
 		final HalfEdge e3 = e2.ccwAroundLeftFace;
 
-		final Vector2D p1 = e1.origin.location;
-		final Vector2D p2 = e2.origin.location;
-		final Vector2D p3 = e3.origin.location;
+		final Vertex p1 = e1.origin;
+		final Vertex p2 = e2.origin;
+		final Vertex p3 = e3.origin;
 
 		final double cross = ( ( p2.x - p1.x ) * ( p3.y - p1.y ) - ( p2.y - p1.y ) * ( p3.x - p1.x ) );
 		return ( cross > -0.0001 ) && ( cross < 0.0001 );
@@ -264,6 +306,54 @@ class TesselationConstructor
 		return result;
 	}
 
+	/**
+	 * Adds the outlines of the given mesh to the given arrays. Like
+	 * {@link #constructOutlines(Mesh, HashList, boolean)}, each outline ends
+	 * with its first vertex. Vertices that were not added to the mesh with an
+	 * index are appended to the list of new vertices; their index is the
+	 * given index plus their position in that list.
+	 *
+	 * @param mesh             Mesh to build outlines of.
+	 * @param counterClockwise Construct counter-clockwise outlines.
+	 * @param outlines         Receives vertex indices of all outlines.
+	 * @param outlineEnds      Receives end index in {@code outlines} of each
+	 *                         outline.
+	 * @param firstNewVertex   Index of first vertex in list of new vertices.
+	 * @param newVertices      Receives coordinates of new vertices.
+	 */
+	static void constructOutlines( final Mesh mesh, final boolean counterClockwise, final IntArray outlines, final IntArray outlineEnds, final int firstNewVertex, final DoubleArray newVertices )
+	{
+		for ( Face face = mesh._faceListHead.next; face != mesh._faceListHead; face = face.next )
+		{
+			if ( face.inside )
+			{
+				final int start = outlines.size();
+
+				HalfEdge e = face.anEdge;
+				do
+				{
+					outlines.add( getVertexIndex( e.origin, firstNewVertex, newVertices ) );
+					e = e.ccwAroundLeftFace;
+				}
+				while ( e != face.anEdge );
+
+				if ( !counterClockwise )
+				{
+					final int[] data = outlines.getData();
+					for ( int i = start, j = outlines.size() - 1; i < j; i++, j-- )
+					{
+						final int temp = data[ i ];
+						data[ i ] = data[ j ];
+						data[ j ] = temp;
+					}
+				}
+
+				outlines.add( outlines.get( start ) );
+				outlineEnds.add( outlines.size() );
+			}
+		}
+	}
+
 	/**
 	 * We want to find the largest triangle fan or strip of unmarked faces which
 	 * includes the given face fOrig.  There are 3 possible fans passing through
@@ -387,7 +477,31 @@ class TesselationConstructor
 		int vertexIndex = vertex.vertexIndex;
 		if ( vertexIndex < 0 )
 		{
-			vertexIndex = vertexList.indexOfOrAdd( vertex.location );
+			vertexIndex = vertexList.indexOfOrAdd( new Vector2D( vertex.x, vertex.y ) );
+			vertex.vertexIndex = vertexIndex;
+		}
+		return vertexIndex;
+	}
+
+	/**
+	 * Returns the index of a vertex. If the vertex does not have an index
+	 * yet, it is appended to the list of new vertices, and its index is the
+	 * given index plus its position in that list.
+	 *
+	 * @param vertex         Vertex to get index of.
+	 * @param firstNewVertex Index of first vertex in list of new vertices.
+	 * @param newVertices    Coordinates of new vertices.
+	 *
+	 * @return Index of vertex.
+	 */
+	private static int getVertexIndex( final Vertex vertex, final int firstNewVertex, final DoubleArray newVertices )
+	{
+		int vertexIndex = vertex.vertexIndex;
+		if ( vertexIndex < 0 )
+		{
+			vertexIndex = firstNewVertex + newVertices.size() / 2;
+			newVertices.add( vertex.x );
+			newVertices.add( vertex.y );
 			vertex.vertexIndex = vertexIndex;
 		}
 		return vertexIndex;
@@ -0,0 +1,161 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom.tessellator;
+
+import ab.j3d.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Reusable context for tessellating shapes in tight loops. Unlike
+ * {@link Mesh}, which allocates new mesh elements for every shape and builds
+ * a list of {@link Vector2D} objects for the result, a context recycles all
+ * mesh elements between calls. Input is read from coordinate arrays, and
+ * results are added as vertex indices to caller-owned arrays. Once the
+ * context has processed a shape of a given complexity, processing similar
+ * shapes does not allocate any memory.
+ *
+ * <p>Vertex indices in the result refer to points in the input coordinate
+ * array. Points that are created by the tessellation, e.g. at intersections
+ * between edges, are added to a separate array of new vertices. The index of
+ * such a vertex is the number of input points plus its position in that
+ * array, i.e. half the index of its X coordinate.
+ *
+ * <p>This class is not thread-safe; each thread should use its own context.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TessellatorContext
+{
+	/**
+	 * Pool of mesh elements.
+	 */
+	private final MeshPool _pool;
+
+	/**
+	 * Mesh that is reused for each shape.
+	 */
+	private final Mesh _mesh;
+
+	/**
+	 * Create tessellator context.
+	 */
+	public TessellatorContext()
+	{
+		final MeshPool pool = new MeshPool();
+		_pool = pool;
+		_mesh = new Mesh( Mesh.WindingRule.ODD, pool );
+	}
+
+	/**
+	 * Tessellates the given shape and adds triangles to the given array.
+	 *
+	 * @param windingRule      Winding rule that determines the inside.
+	 * @param coordinates      Point coordinates (x,y pairs).
+	 * @param contourEnds      Index of the first point after each contour;
+	 *                         {@code null} if all points form one contour.
+	 * @param counterClockwise Construct counter-clockwise triangles.
+	 * @param triangles        Receives vertex indices of triangles.
+	 * @param newVertices      Receives coordinates of vertices created by
+	 *                         the tessellation.
+	 */
+	public void triangulate( @NotNull final Mesh.WindingRule windingRule, @NotNull final double[] coordinates, @Nullable final int[] contourEnds, final boolean counterClockwise, @NotNull final IntArray triangles, @NotNull final DoubleArray newVertices )
+	{
+		tessellate( windingRule, coordinates, contourEnds, counterClockwise, triangles, null, null, newVertices );
+	}
+
+	/**
+	 * Tessellates the given shape and adds triangles and/or outlines to the
+	 * given arrays. Each outline ends with its first vertex, like the
+	 * outlines of {@link ab.j3d.geom.Tessellator}.
+	 *
+	 * @param windingRule      Winding rule that determines the inside.
+	 * @param coordinates      Point coordinates (x,y pairs).
+	 * @param contourEnds      Index of the first point after each contour;
+	 *                         {@code null} if all points form one contour.
+	 * @param counterClockwise Construct counter-clockwise results.
+	 * @param triangles        Receives vertex indices of triangles;
+	 *                         {@code null} if no triangles are needed.
+	 * @param outlines         Receives vertex indices of all outlines;
+	 *                         {@code null} if no outlines are needed.
+	 * @param outlineEnds      Receives index in {@code outlines} after the
+	 *                         last vertex of each outline; must be set if
+	 *                         {@code outlines} is.
+	 * @param newVertices      Receives coordinates of vertices created by
+	 *                         the tessellation.
+	 */
+	public void tessellate( @NotNull final Mesh.WindingRule windingRule, @NotNull final double[] coordinates, @Nullable final int[] contourEnds, final boolean counterClockwise, @Nullable final IntArray triangles, @Nullable final IntArray outlines, @Nullable final IntArray outlineEnds, @NotNull final DoubleArray newVertices )
+	{
+		if ( ( outlines != null ) && ( outlineEnds == null ) )
+		{
+			throw new IllegalArgumentException( "outlineEnds must be set with outlines" );
+		}
+
+		final MeshPool pool = _pool;
+		final Mesh mesh = _mesh;
+		pool.reset();
+		mesh.reset( windingRule );
+
+		final int pointCount;
+		if ( contourEnds == null )
+		{
+			pointCount = coordinates.length / 2;
+			addContour( mesh, coordinates, 0, pointCount );
+		}
+		else
+		{
+			int start = 0;
+			for ( final int end : contourEnds )
+			{
+				addContour( mesh, coordinates, start, end );
+				start = end;
+			}
+			pointCount = start;
+		}
+
+		mesh.finish();
+
+		if ( triangles != null )
+		{
+			mesh.constructTriangles( counterClockwise, triangles, pointCount, newVertices );
+		}
+
+		if ( outlines != null )
+		{
+			mesh.constructOutlines( counterClockwise, outlines, outlineEnds, pointCount, newVertices );
+		}
+	}
+
+	/**
+	 * Adds a contour to the mesh.
+	 *
+	 * @param mesh        Mesh to add contour to.
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param start       Index of first point of contour.
+	 * @param end         Index after last point of contour.
+	 */
+	private static void addContour( final Mesh mesh, final double[] coordinates, final int start, final int end )
+	{
+		mesh.beginContour();
+		for ( int i = start; i < end; i++ )
+		{
+			mesh.addVertex( coordinates[ i * 2 ], coordinates[ i * 2 + 1 ], i );
+		}
+		mesh.endContour();
+	}
+}
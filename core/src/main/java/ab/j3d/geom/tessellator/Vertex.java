@@ -40,10 +40,17 @@
  */
 package ab.j3d.geom.tessellator;
 
-import ab.j3d.*;
+import org.jetbrains.annotations.*;
 
 class Vertex
 {
+	/**
+	 * Pool from which mesh elements are allocated; <code>null</code> if
+	 * elements are not pooled.
+	 */
+	@Nullable
+	final MeshPool pool;
+
 	/**
 	 * Next vertex (never <code>null</code>).
 	 */
@@ -65,9 +72,14 @@ class Vertex
 	public int vertexIndex;
 
 	/**
-	 * Location of vertex.
+	 * X coordinate of vertex.
+	 */
+	public double x;
+
+	/**
+	 * Y coordinate of vertex.
 	 */
-	public Vector2D location = Vector2D.ZERO;
+	public double y;
 
 	/* Internal data (keep hidden) */
 
@@ -76,6 +88,35 @@ class Vertex
 	 */
 	public int pqHandle;
 
+	/**
+	 * Create vertex that is not pooled.
+	 */
+	Vertex()
+	{
+		this( null );
+	}
+
+	/**
+	 * Create vertex.
+	 *
+	 * @param   pool    Pool that the vertex belongs to.
+	 */
+	Vertex( @Nullable final MeshPool pool )
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * Set location of this vertex to that of another vertex.
+	 *
+	 * @param   other   Vertex to copy location from.
+	 */
+	void setLocation( final Vertex other )
+	{
+		x = other.x;
+		y = other.y;
+	}
+
 	@Override
 	public Object clone()
 	{
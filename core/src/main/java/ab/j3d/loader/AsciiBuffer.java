@@ -0,0 +1,312 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.math.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.text.*;
+import java.util.*;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Growable buffer of ASCII characters. Numbers are appended without creating
+ * intermediate strings, which makes this suitable for writing large text-based
+ * model files.
+ *
+ * @author Peter S. Heijnen
+ */
+final class AsciiBuffer
+{
+	/**
+	 * Maximum number of fraction digits written by {@link #appendDecimal}.
+	 */
+	private static final int MAXIMUM_FRACTION_DIGITS = 6;
+
+	/**
+	 * Scale factor for {@link #MAXIMUM_FRACTION_DIGITS}.
+	 */
+	private static final long FRACTION_SCALE = 1000000L;
+
+	/**
+	 * Largest absolute value that is formatted without {@link BigDecimal}.
+	 * Below this value, scaling by {@link #FRACTION_SCALE} has an error well
+	 * below the tie margin used for rounding.
+	 */
+	private static final double FAST_PATH_LIMIT = 1.0e6;
+
+	/**
+	 * Characters.
+	 */
+	private byte[] _data;
+
+	/**
+	 * Number of characters.
+	 */
+	private int _length = 0;
+
+	/**
+	 * Format used for values that are not formatted directly (created when
+	 * needed).
+	 */
+	@Nullable
+	private NumberFormat _fallbackFormat = null;
+
+	/**
+	 * Constructs a new buffer.
+	 *
+	 * @param initialCapacity Initial capacity, in characters.
+	 */
+	AsciiBuffer( final int initialCapacity )
+	{
+		_data = new byte[ Math.max( 16, initialCapacity ) ];
+	}
+
+	/**
+	 * Returns the number of characters in the buffer.
+	 *
+	 * @return Number of characters.
+	 */
+	public int length()
+	{
+		return _length;
+	}
+
+	/**
+	 * Removes all characters from the buffer.
+	 */
+	public void clear()
+	{
+		_length = 0;
+	}
+
+	/**
+	 * Appends a character. Non-ASCII characters are replaced with {@code '?'}.
+	 *
+	 * @param c Character to append.
+	 *
+	 * @return This buffer.
+	 */
+	public AsciiBuffer append( final char c )
+	{
+		ensureCapacity( _length + 1 );
+		_data[ _length++ ] = ( c < 128 ) ? (byte)c : (byte)'?';
+		return this;
+	}
+
+	/**
+	 * Appends characters. Non-ASCII characters are replaced with {@code '?'}.
+	 *
+	 * @param chars Characters to append.
+	 *
+	 * @return This buffer.
+	 */
+	public AsciiBuffer append( @NotNull final CharSequence chars )
+	{
+		final int count = chars.length();
+		ensureCapacity( _length + count );
+
+		final byte[] data = _data;
+		int length = _length;
+		for ( int i = 0; i < count; i++ )
+		{
+			final char c = chars.charAt( i );
+			data[ length++ ] = ( c < 128 ) ? (byte)c : (byte)'?';
+		}
+		_length = length;
+		return this;
+	}
+
+	/**
+	 * Appends an integer in decimal notation.
+	 *
+	 * @param value Value to append.
+	 *
+	 * @return This buffer.
+	 */
+	public AsciiBuffer appendInt( final int value )
+	{
+		return appendLong( (long)value );
+	}
+
+	/**
+	 * Appends a long integer in decimal notation.
+	 *
+	 * @param value Value to append.
+	 *
+	 * @return This buffer.
+	 */
+	public AsciiBuffer appendLong( final long value )
+	{
+		if ( value == Long.MIN_VALUE )
+		{
+			append( String.valueOf( value ) );
+		}
+		else
+		{
+			long remaining = value;
+			if ( remaining < 0L )
+			{
+				append( '-' );
+				remaining = -remaining;
+			}
+
+			int digitCount = 1;
+			for ( long limit = 10L; ( digitCount < 19 ) && ( remaining >= limit ); limit *= 10L )
+			{
+				digitCount++;
+			}
+
+			ensureCapacity( _length + digitCount );
+			final byte[] data = _data;
+			for ( int i = _length + digitCount; --i >= _length; )
+			{
+				data[ i ] = (byte)( '0' + (int)( remaining % 10L ) );
+				remaining /= 10L;
+			}
+			_length += digitCount;
+		}
+		return this;
+	}
+
+	/**
+	 * Appends a decimal number with at least one and at most six fraction
+	 * digits, rounding half-even. The result is the same as that of a
+	 * {@link DecimalFormat} for {@link Locale#US} with those settings and
+	 * without grouping.
+	 *
+	 * @param value Value to append.
+	 *
+	 * @return This buffer.
+	 */
+	public AsciiBuffer appendDecimal( final double value )
+	{
+		final double absolute = Math.abs( value );
+		if ( absolute < FAST_PATH_LIMIT )
+		{
+			final double scaled = absolute * (double)FRACTION_SCALE;
+			final long truncated = (long)scaled;
+			final double remainder = scaled - (double)truncated;
+
+			final long rounded;
+			if ( Math.abs( remainder - 0.5 ) < 1.0e-3 )
+			{
+				// too close to a tie to decide without the exact value
+				rounded = new BigDecimal( absolute ).setScale( MAXIMUM_FRACTION_DIGITS, RoundingMode.HALF_EVEN ).unscaledValue().longValue();
+			}
+			else
+			{
+				rounded = ( remainder > 0.5 ) ? truncated + 1L : truncated;
+			}
+
+			if ( ( value < 0.0 ) || ( ( value == 0.0 ) && ( 1.0 / value < 0.0 ) ) )
+			{
+				append( '-' );
+			}
+
+			appendLong( rounded / FRACTION_SCALE );
+			append( '.' );
+
+			long fraction = rounded % FRACTION_SCALE;
+			int digitCount = MAXIMUM_FRACTION_DIGITS;
+			while ( ( digitCount > 1 ) && ( fraction % 10L == 0L ) )
+			{
+				fraction /= 10L;
+				digitCount--;
+			}
+
+			ensureCapacity( _length + digitCount );
+			final byte[] data = _data;
+			for ( int i = _length + digitCount; --i >= _length; )
+			{
+				data[ i ] = (byte)( '0' + (int)( fraction % 10L ) );
+				fraction /= 10L;
+			}
+			_length += digitCount;
+		}
+		else
+		{
+			NumberFormat format = _fallbackFormat;
+			if ( format == null )
+			{
+				format = NumberFormat.getNumberInstance( Locale.US );
+				format.setGroupingUsed( false );
+				format.setMinimumFractionDigits( 1 );
+				format.setMaximumFractionDigits( MAXIMUM_FRACTION_DIGITS );
+				_fallbackFormat = format;
+			}
+			append( format.format( value ) );
+		}
+		return this;
+	}
+
+	/**
+	 * Appends the contents of another buffer.
+	 *
+	 * @param buffer Buffer to append.
+	 *
+	 * @return This buffer.
+	 */
+	public AsciiBuffer append( @NotNull final AsciiBuffer buffer )
+	{
+		ensureCapacity( _length + buffer._length );
+		System.arraycopy( buffer._data, 0, _data, _length, buffer._length );
+		_length += buffer._length;
+		return this;
+	}
+
+	/**
+	 * Writes the contents of this buffer to the given channel.
+	 *
+	 * @param channel Channel to write to.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeTo( @NotNull final WritableByteChannel channel )
+	throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.wrap( _data, 0, _length );
+		while ( buffer.hasRemaining() )
+		{
+			channel.write( buffer );
+		}
+	}
+
+	/**
+	 * Ensures that the buffer can hold the given number of characters.
+	 *
+	 * @param capacity Required capacity.
+	 */
+	private void ensureCapacity( final int capacity )
+	{
+		if ( capacity > _data.length )
+		{
+			_data = Arrays.copyOf( _data, Math.max( capacity, _data.length * 2 ) );
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return new String( _data, 0, _length, StandardCharsets.US_ASCII );
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.nio.*;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Input stream that reads from a byte buffer, e.g. a memory-mapped file.
+ * {@link #slice} returns a view on part of the data, so it can be parsed
+ * later without copying it.
+ *
+ * @author Peter S. Heijnen
+ */
+public class ByteBufferInputStream
+	extends InputStream
+{
+	/**
+	 * Buffer to read from.
+	 */
+	private final ByteBuffer _buffer;
+
+	/**
+	 * Constructs a new instance. The remaining bytes of the given buffer are
+	 * read; the position of the buffer itself is not modified.
+	 *
+	 * @param buffer Buffer to read from.
+	 */
+	public ByteBufferInputStream( @NotNull final ByteBuffer buffer )
+	{
+		_buffer = buffer.slice();
+	}
+
+	@Override
+	public int read()
+	{
+		final ByteBuffer buffer = _buffer;
+		return buffer.hasRemaining() ? ( (int)buffer.get() & 0xFF ) : -1;
+	}
+
+	@Override
+	public int read( @NotNull final byte[] b, final int off, final int len )
+	{
+		final int result;
+
+		final ByteBuffer buffer = _buffer;
+		if ( len == 0 )
+		{
+			result = 0;
+		}
+		else if ( !buffer.hasRemaining() )
+		{
+			result = -1;
+		}
+		else
+		{
+			result = Math.min( len, buffer.remaining() );
+			buffer.get( b, off, result );
+		}
+
+		return result;
+	}
+
+	@Override
+	public long skip( final long n )
+	{
+		final ByteBuffer buffer = _buffer;
+		final int skipped = (int)Math.max( 0L, Math.min( n, (long)buffer.remaining() ) );
+		buffer.position( buffer.position() + skipped );
+		return (long)skipped;
+	}
+
+	@Override
+	public int available()
+	{
+		return _buffer.remaining();
+	}
+
+	/**
+	 * Returns a view of the given number of bytes at the current position and
+	 * skips those bytes.
+	 *
+	 * @param length Number of bytes.
+	 *
+	 * @return Buffer with the bytes.
+	 *
+	 * @throws IOException if not enough bytes remain.
+	 */
+	@NotNull
+	public ByteBuffer slice( final int length )
+		throws IOException
+	{
+		final ByteBuffer buffer = _buffer;
+		if ( ( length < 0 ) || ( length > buffer.remaining() ) )
+		{
+			throw new EOFException( "Expected " + length + " bytes, but only " + buffer.remaining() + " bytes remain" );
+		}
+
+		final ByteBuffer result = buffer.slice();
+		result.limit( length );
+		buffer.position( buffer.position() + length );
+		return result;
+	}
+}
@@ -0,0 +1,620 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * This class loads resources from a ZIP-archive. Unlike
+ * {@link ZipResourceLoader}, which scans the archive for every requested
+ * resource, this loader reads the central directory of the archive once and
+ * looks up entries by name.
+ *
+ * Entries that are stored without compression are read directly from the
+ * archive data (which is memory-mapped for local files). Compressed entries
+ * are inflated when requested; recently used entries are kept in a cache
+ * with a limited total size, since models tend to request the same textures
+ * repeatedly.
+ *
+ * ZIP64 archives are not supported.
+ *
+ * @author Peter S. Heijnen
+ */
+public class IndexedZipResourceLoader
+	implements ResourceLoader
+{
+	/**
+	 * Default maximum total size of cached entries, in bytes.
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 16L * 1024L * 1024L;
+
+	/**
+	 * Signature of end of central directory record.
+	 */
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+	/**
+	 * Signature of central directory file header.
+	 */
+	private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+
+	/**
+	 * Signature of local file header.
+	 */
+	private static final int LOCAL_FILE_HEADER = 0x04034b50;
+
+	/**
+	 * Size of end of central directory record, excluding comment.
+	 */
+	private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+	/**
+	 * Size of central directory file header, excluding variable fields.
+	 */
+	private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+
+	/**
+	 * Size of local file header, excluding variable fields.
+	 */
+	private static final int LOCAL_FILE_HEADER_SIZE = 30;
+
+	/**
+	 * URL of ZIP file.
+	 */
+	private final URL _zipUrl;
+
+	/**
+	 * Contents of ZIP file; {@code null} if not loaded yet.
+	 */
+	private ByteBuffer _zipData;
+
+	/**
+	 * Entries in the ZIP file by name; {@code null} if not indexed yet.
+	 */
+	private Map<String, Entry> _entries = null;
+
+	/**
+	 * Maximum total size of cached entries, in bytes.
+	 */
+	private final long _maximumCacheSize;
+
+	/**
+	 * Inflated entries by name, in least-recently used order.
+	 */
+	private final LinkedHashMap<String, byte[]> _cache = new LinkedHashMap<String, byte[]>( 16, 0.75f, true );
+
+	/**
+	 * Total size of cached entries, in bytes.
+	 */
+	private long _cacheSize = 0L;
+
+	/**
+	 * Constructs resource loader for ZIP file. The file is read when the first
+	 * resource is requested. Local files are memory-mapped.
+	 *
+	 * @param   zipUrl  URL to ZIP archive.
+	 */
+	public IndexedZipResourceLoader( @NotNull final URL zipUrl )
+	{
+		this( zipUrl, null, DEFAULT_CACHE_SIZE );
+	}
+
+	/**
+	 * Constructs resource loader for ZIP file.
+	 *
+	 * @param   zipData     Contents of ZIP file.
+	 */
+	public IndexedZipResourceLoader( @NotNull final byte[] zipData )
+	{
+		this( null, ByteBuffer.wrap( zipData ), DEFAULT_CACHE_SIZE );
+	}
+
+	/**
+	 * Constructs resource loader for ZIP file.
+	 *
+	 * @param   zipUrl              URL to ZIP archive.
+	 * @param   zipData             Contents of ZIP file.
+	 * @param   maximumCacheSize    Maximum total size of cached entries.
+	 */
+	public IndexedZipResourceLoader( @Nullable final URL zipUrl, @Nullable final ByteBuffer zipData, final long maximumCacheSize )
+	{
+		if ( ( zipUrl == null ) && ( zipData == null ) )
+		{
+			throw new IllegalArgumentException( "Need URL or data" );
+		}
+
+		if ( maximumCacheSize < 0L )
+		{
+			throw new IllegalArgumentException( "maximumCacheSize: " + maximumCacheSize );
+		}
+
+		_zipUrl = zipUrl;
+		_zipData = ( zipData != null ) ? zipData.slice().order( ByteOrder.LITTLE_ENDIAN ) : null;
+		_maximumCacheSize = maximumCacheSize;
+	}
+
+	@Nullable
+	public URL getResource( final String path )
+	{
+		URL result = null;
+
+		final URL zipUrl = _zipUrl;
+		if ( ( zipUrl != null ) && ( path != null ) && !path.isEmpty() )
+		{
+			try
+			{
+				final String separator = ( path.charAt( 0 ) == '/' ) ? "!" : "!/";
+				result = new URL( "jar:" + zipUrl.toExternalForm() + separator + path );
+			}
+			catch ( final MalformedURLException e )
+			{
+				throw new IllegalArgumentException( path, e );
+			}
+		}
+
+		return result;
+	}
+
+	@Nullable
+	public InputStream getResourceAsStream( final String path )
+	{
+		InputStream result = null;
+
+		try
+		{
+			final Entry entry = getEntries().get( path );
+			if ( entry != null )
+			{
+				if ( entry._method == ZipEntry.STORED )
+				{
+					result = new ByteBufferInputStream( getEntryData( entry ) );
+				}
+				else
+				{
+					result = new ByteArrayInputStream( getInflatedEntry( entry ) );
+				}
+			}
+		}
+		catch ( final IOException e )
+		{
+			e.printStackTrace();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the names of all entries in the ZIP file.
+	 *
+	 * @return  Names of entries.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	@NotNull
+	public Set<String> getEntryNames()
+		throws IOException
+	{
+		return Collections.unmodifiableSet( getEntries().keySet() );
+	}
+
+	/**
+	 * Returns the total size of the entries that are currently cached.
+	 *
+	 * @return  Size of cached entries, in bytes.
+	 */
+	public long getCacheSize()
+	{
+		synchronized ( _cache )
+		{
+			return _cacheSize;
+		}
+	}
+
+	/**
+	 * Removes all entries from the cache.
+	 */
+	public void clearCache()
+	{
+		synchronized ( _cache )
+		{
+			_cache.clear();
+			_cacheSize = 0L;
+		}
+	}
+
+	/**
+	 * Returns the inflated contents of a compressed entry, from the cache if
+	 * possible.
+	 *
+	 * @param   entry   Entry to get contents of.
+	 *
+	 * @return  Contents of entry. Must not be modified.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private byte[] getInflatedEntry( final Entry entry )
+		throws IOException
+	{
+		final LinkedHashMap<String, byte[]> cache = _cache;
+
+		byte[] result;
+		synchronized ( cache )
+		{
+			result = cache.get( entry._name );
+		}
+
+		if ( result == null )
+		{
+			result = inflate( entry );
+
+			final long maximumCacheSize = _maximumCacheSize;
+			if ( (long)result.length <= maximumCacheSize )
+			{
+				synchronized ( cache )
+				{
+					final byte[] previous = cache.put( entry._name, result );
+					_cacheSize += (long)( result.length - ( ( previous != null ) ? previous.length : 0 ) );
+
+					for ( final Iterator<byte[]> it = cache.values().iterator(); ( _cacheSize > maximumCacheSize ) && it.hasNext(); )
+					{
+						_cacheSize -= (long)it.next().length;
+						it.remove();
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Inflates a compressed entry.
+	 *
+	 * @param   entry   Entry to inflate.
+	 *
+	 * @return  Contents of entry.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private byte[] inflate( final Entry entry )
+		throws IOException
+	{
+		if ( entry._method != ZipEntry.DEFLATED )
+		{
+			throw new ZipException( "Unsupported compression method " + entry._method + " for entry: " + entry._name );
+		}
+
+		final ByteBuffer data = getEntryData( entry );
+		final byte[] input;
+		final int inputOffset;
+		if ( data.hasArray() )
+		{
+			input = data.array();
+			inputOffset = data.arrayOffset() + data.position();
+		}
+		else
+		{
+			input = new byte[ data.remaining() ];
+			inputOffset = 0;
+			data.get( input );
+		}
+
+		final byte[] result = new byte[ entry._size ];
+
+		final Inflater inflater = new Inflater( true );
+		try
+		{
+			/*
+			 * An extra dummy byte is needed when using 'nowrap' (see Inflater
+			 * documentation); the entry data is followed by other data, so we
+			 * simply provide one more byte if available.
+			 */
+			inflater.setInput( input, inputOffset, Math.min( entry._compressedSize + 1, input.length - inputOffset ) );
+
+			int length = 0;
+			while ( ( length < result.length ) && !inflater.finished() )
+			{
+				final int inflated = inflater.inflate( result, length, result.length - length );
+				if ( ( inflated == 0 ) && ( inflater.needsInput() || inflater.needsDictionary() ) )
+				{
+					throw new ZipException( "Truncated entry: " + entry._name );
+				}
+				length += inflated;
+			}
+
+			if ( length != result.length )
+			{
+				throw new ZipException( "Unexpected size of entry '" + entry._name + "': " + length + " bytes (expected " + result.length + ')' );
+			}
+		}
+		catch ( final DataFormatException e )
+		{
+			throw new ZipException( "Invalid entry '" + entry._name + "': " + e.getMessage() );
+		}
+		finally
+		{
+			inflater.end();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the (compressed) data of an entry as a view of the ZIP data.
+	 *
+	 * @param   entry   Entry to get data of.
+	 *
+	 * @return  Entry data.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private ByteBuffer getEntryData( final Entry entry )
+		throws IOException
+	{
+		final ByteBuffer zipData = getZipData().duplicate().order( ByteOrder.LITTLE_ENDIAN );
+
+		final int headerOffset = entry._headerOffset;
+		if ( ( headerOffset < 0 ) || ( headerOffset > zipData.limit() - LOCAL_FILE_HEADER_SIZE ) || ( zipData.getInt( headerOffset ) != LOCAL_FILE_HEADER ) )
+		{
+			throw new ZipException( "Invalid local header for entry: " + entry._name );
+		}
+
+		final int dataOffset = headerOffset + LOCAL_FILE_HEADER_SIZE + ( (int)zipData.getShort( headerOffset + 26 ) & 0xFFFF ) + ( (int)zipData.getShort( headerOffset + 28 ) & 0xFFFF );
+		if ( dataOffset > zipData.limit() - entry._compressedSize )
+		{
+			throw new ZipException( "Truncated entry: " + entry._name );
+		}
+
+		zipData.position( dataOffset );
+		final ByteBuffer result = zipData.slice();
+		result.limit( entry._compressedSize );
+		return result;
+	}
+
+	/**
+	 * Returns the entries in the ZIP file. The central directory is read
+	 * when this method is first called.
+	 *
+	 * @return  Entries by name.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private synchronized Map<String, Entry> getEntries()
+		throws IOException
+	{
+		Map<String, Entry> result = _entries;
+		if ( result == null )
+		{
+			result = readCentralDirectory( getZipData() );
+			_entries = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the central directory of a ZIP file.
+	 *
+	 * @param   zipData     ZIP file data.
+	 *
+	 * @return  Entries by name.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private static Map<String, Entry> readCentralDirectory( final ByteBuffer zipData )
+		throws IOException
+	{
+		final Map<String, Entry> result;
+
+		final int limit = zipData.limit();
+		if ( limit == 0 )
+		{
+			result = Collections.emptyMap();
+		}
+		else
+		{
+			/*
+			 * Find end of central directory record. It is normally at the end
+			 * of the file, unless the archive has a comment.
+			 */
+			int end = limit - END_OF_CENTRAL_DIRECTORY_SIZE;
+			final int minimumEnd = Math.max( 0, end - 0xFFFF );
+			while ( ( end >= minimumEnd ) && ( zipData.getInt( end ) != END_OF_CENTRAL_DIRECTORY ) )
+			{
+				end--;
+			}
+
+			if ( end < minimumEnd )
+			{
+				throw new ZipException( "End of central directory not found" );
+			}
+
+			final int entryCount = (int)zipData.getShort( end + 10 ) & 0xFFFF;
+			final long directoryOffset = (long)zipData.getInt( end + 16 ) & 0xFFFFFFFFL;
+			if ( ( entryCount == 0xFFFF ) || ( directoryOffset == 0xFFFFFFFFL ) )
+			{
+				throw new ZipException( "ZIP64 archives are not supported" );
+			}
+
+			result = new HashMap<String, Entry>( entryCount * 4 / 3 + 1 );
+
+			int offset = (int)directoryOffset;
+			for ( int i = 0; i < entryCount; i++ )
+			{
+				if ( ( offset < 0 ) || ( offset > end - CENTRAL_DIRECTORY_HEADER_SIZE ) || ( zipData.getInt( offset ) != CENTRAL_DIRECTORY_HEADER ) )
+				{
+					throw new ZipException( "Invalid central directory" );
+				}
+
+				final int method = (int)zipData.getShort( offset + 10 ) & 0xFFFF;
+				final long compressedSize = (long)zipData.getInt( offset + 20 ) & 0xFFFFFFFFL;
+				final long size = (long)zipData.getInt( offset + 24 ) & 0xFFFFFFFFL;
+				final int nameLength = (int)zipData.getShort( offset + 28 ) & 0xFFFF;
+				final int extraLength = (int)zipData.getShort( offset + 30 ) & 0xFFFF;
+				final int commentLength = (int)zipData.getShort( offset + 32 ) & 0xFFFF;
+				final long headerOffset = (long)zipData.getInt( offset + 42 ) & 0xFFFFFFFFL;
+
+				if ( ( compressedSize > (long)Integer.MAX_VALUE ) || ( size > (long)Integer.MAX_VALUE ) || ( headerOffset > (long)Integer.MAX_VALUE ) )
+				{
+					throw new ZipException( "ZIP64 archives are not supported" );
+				}
+
+				final byte[] nameBytes = new byte[ nameLength ];
+				final ByteBuffer nameBuffer = zipData.duplicate();
+				nameBuffer.position( offset + CENTRAL_DIRECTORY_HEADER_SIZE );
+				nameBuffer.get( nameBytes );
+
+				/*
+				 * Names are always decoded as UTF-8, like 'ZipInputStream' does
+				 * by default, regardless of the language encoding flag.
+				 */
+				final String name = new String( nameBytes, StandardCharsets.UTF_8 );
+
+				if ( !result.containsKey( name ) )
+				{
+					result.put( name, new Entry( name, method, (int)compressedSize, (int)size, (int)headerOffset ) );
+				}
+
+				offset += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the contents of the ZIP file. The file is read (or mapped, for
+	 * local files) when this method is first called.
+	 *
+	 * @return  ZIP file contents.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private synchronized ByteBuffer getZipData()
+		throws IOException
+	{
+		ByteBuffer result = _zipData;
+		if ( result == null )
+		{
+			final URL zipUrl = _zipUrl;
+
+			Path file = null;
+			if ( "file".equals( zipUrl.getProtocol() ) )
+			{
+				try
+				{
+					file = Paths.get( zipUrl.toURI() );
+				}
+				catch ( final Exception ignored )
+				{
+					// read through URL
+				}
+			}
+
+			if ( file != null )
+			{
+				try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+				{
+					if ( channel.size() > (long)Integer.MAX_VALUE )
+					{
+						throw new ZipException( "ZIP64 archives are not supported" );
+					}
+					result = channel.map( FileChannel.MapMode.READ_ONLY, 0L, channel.size() );
+				}
+			}
+			else
+			{
+				final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+				try ( final InputStream in = zipUrl.openStream() )
+				{
+					final byte[] buffer = new byte[ 10240 ];
+					for ( int length = in.read( buffer ); length > 0; length = in.read( buffer ) )
+					{
+						bos.write( buffer, 0, length );
+					}
+				}
+
+				result = ByteBuffer.wrap( bos.toByteArray() );
+			}
+
+			result.order( ByteOrder.LITTLE_ENDIAN );
+			_zipData = result;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Entry in the central directory of a ZIP file.
+	 */
+	private static class Entry
+	{
+		/**
+		 * Entry name.
+		 */
+		final String _name;
+
+		/**
+		 * Compression method.
+		 */
+		final int _method;
+
+		/**
+		 * Compressed size.
+		 */
+		final int _compressedSize;
+
+		/**
+		 * Uncompressed size.
+		 */
+		final int _size;
+
+		/**
+		 * Offset of local file header.
+		 */
+		final int _headerOffset;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param   name            Entry name.
+		 * @param   method          Compression method.
+		 * @param   compressedSize  Compressed size.
+		 * @param   size            Uncompressed size.
+		 * @param   headerOffset    Offset of local file header.
+		 */
+		Entry( final String name, final int method, final int compressedSize, final int size, final int headerOffset )
+		{
+			_name = name;
+			_method = method;
+			_compressedSize = compressedSize;
+			_size = size;
+			_headerOffset = headerOffset;
+		}
+	}
+}
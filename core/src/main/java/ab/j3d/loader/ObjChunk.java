@@ -0,0 +1,1209 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Parses a chunk of an OBJ file into primitive arrays. Chunks are parsed
+ * independently, so they can be parsed in parallel. Statements that depend on
+ * the state of the loader ('mtllib', 'usemtl', and 'o') are recorded as
+ * {@link Directive}s, which are processed by {@link ObjLoader} in file order.
+ *
+ * <p>
+ * Lines are tokenized in-place, without creating strings or using regular
+ * expressions. The result is the same as that of the line normalization and
+ * tokenization previously done by {@link ObjLoader}; numbers that are not
+ * handled by the fast paths of {@link #parseDouble} and {@link #parseFloat}
+ * are parsed by {@link Double#parseDouble} and {@link Float#parseFloat}.
+ *
+ * @author  Peter S. Heijnen
+ */
+class ObjChunk
+{
+	/**
+	 * Powers of ten that are exactly representable as a double.
+	 */
+	private static final double[] DOUBLE_POWERS_OF_TEN = { 1.0e0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7, 1.0e8, 1.0e9, 1.0e10, 1.0e11, 1.0e12, 1.0e13, 1.0e14, 1.0e15, 1.0e16, 1.0e17, 1.0e18, 1.0e19, 1.0e20, 1.0e21, 1.0e22 };
+
+	/**
+	 * Powers of ten that are exactly representable as a float.
+	 */
+	private static final float[] FLOAT_POWERS_OF_TEN = { 1.0e0f, 1.0e1f, 1.0e2f, 1.0e3f, 1.0e4f, 1.0e5f, 1.0e6f, 1.0e7f, 1.0e8f, 1.0e9f, 1.0e10f };
+
+	/**
+	 * Whitespace pattern, used to normalize lines for error messages and
+	 * string arguments.
+	 */
+	private static final Pattern WHITESPACE = Pattern.compile( "\\s+" );
+
+	/**
+	 * Transformation applied to vertices and vertex normals.
+	 */
+	private final Matrix3D _transform;
+
+	/**
+	 * Vertex coordinates (x, y, z), with transformation applied.
+	 */
+	private double[] _vertices = new double[ 3 * 1024 ];
+
+	/**
+	 * Number of vertices.
+	 */
+	private int _vertexCount = 0;
+
+	/**
+	 * Texture vertex coordinates (u, v).
+	 */
+	private float[] _textureVertices = new float[ 2 * 256 ];
+
+	/**
+	 * Number of texture vertices.
+	 */
+	private int _textureVertexCount = 0;
+
+	/**
+	 * Vertex normals (x, y, z), with transformation applied.
+	 */
+	private double[] _vertexNormals = new double[ 3 * 256 ];
+
+	/**
+	 * Number of vertex normals.
+	 */
+	private int _vertexNormalCount = 0;
+
+	/**
+	 * Index of first face vertex for each face, followed by the total number
+	 * of face vertices.
+	 */
+	private int[] _faceStarts = new int[ 1024 ];
+
+	/**
+	 * Number of faces.
+	 */
+	private int _faceCount = 0;
+
+	/**
+	 * Vertex, texture vertex, and vertex normal index for each face vertex
+	 * (0=first, -1=undefined).
+	 */
+	private int[] _faceVertices = new int[ 3 * 4096 ];
+
+	/**
+	 * Number of face vertices.
+	 */
+	private int _faceVertexCount = 0;
+
+	/**
+	 * Number of vertices in this chunk before the first face; -1 if the chunk
+	 * contains no faces.
+	 */
+	private int _verticesBeforeFirstFace = -1;
+
+	/**
+	 * Directives in this chunk, in file order.
+	 */
+	private final List<Directive> _directives = new ArrayList<Directive>();
+
+	/**
+	 * Error that stopped parsing of this chunk; {@code null} if none.
+	 */
+	@Nullable
+	private Exception _error = null;
+
+	/**
+	 * Start and end of each token on the current line.
+	 */
+	private int[] _tokens = new int[ 2 * 16 ];
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param   transform   Transformation to apply to vertices and normals.
+	 */
+	ObjChunk( @NotNull final Matrix3D transform )
+	{
+		_transform = transform;
+		_faceStarts[ 0 ] = 0;
+	}
+
+	/**
+	 * Returns whether the line that ends at the given position is continued on
+	 * the next line, using a trailing backslash.
+	 *
+	 * @param   chars           Characters to read from.
+	 * @param   start           Start of line.
+	 * @param   end             End of line (excluding line terminator).
+	 * @param   continuation    Whether the line itself is a continuation of
+	 *                          the previous line.
+	 *
+	 * @return  {@code true} if the line is continued.
+	 */
+	static boolean isContinued( final char[] chars, final int start, final int end, final boolean continuation )
+	{
+		final boolean result;
+		if ( continuation )
+		{
+			/*
+			 * Continuation lines are appended as-is, so comments and
+			 * trailing whitespace are not removed.
+			 */
+			result = ( end > start ) && ( chars[ end - 1 ] == '\\' );
+		}
+		else
+		{
+			final int contentEnd = getContentEnd( chars, start, end );
+			result = ( contentEnd > start ) && ( chars[ contentEnd - 1 ] == '\\' );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the end of the content on a line, i.e. without comment and
+	 * trailing whitespace.
+	 *
+	 * @param   chars   Characters to read from.
+	 * @param   start   Start of line.
+	 * @param   end     End of line.
+	 *
+	 * @return  End of content.
+	 */
+	private static int getContentEnd( final char[] chars, final int start, final int end )
+	{
+		int result = start;
+		while ( ( result < end ) && ( chars[ result ] != '#' ) )
+		{
+			result++;
+		}
+
+		while ( ( result > start ) && ( chars[ result - 1 ] <= ' ' ) )
+		{
+			result--;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parses the given characters. The range must start at the beginning of a
+	 * line and must end at the end of a line that is not continued. Parsing
+	 * stops at the first error, which is available from {@link #getError()}.
+	 *
+	 * @param   chars   Characters to parse.
+	 * @param   start   Start of range.
+	 * @param   end     End of range.
+	 */
+	void parse( final char[] chars, final int start, final int end )
+	{
+		try
+		{
+			int position = start;
+			while ( position < end )
+			{
+				int lineEnd = position;
+				while ( ( lineEnd < end ) && ( chars[ lineEnd ] != '\n' ) && ( chars[ lineEnd ] != '\r' ) )
+				{
+					lineEnd++;
+				}
+				int next = nextLine( chars, lineEnd, end );
+
+				int contentStart = position;
+				final int contentEnd = getContentEnd( chars, position, lineEnd );
+				while ( ( contentStart < contentEnd ) && ( chars[ contentStart ] <= ' ' ) )
+				{
+					contentStart++;
+				}
+
+				if ( ( contentEnd > contentStart ) && ( chars[ contentEnd - 1 ] == '\\' ) )
+				{
+					/*
+					 * Join continued lines exactly like 'ObjLoader.readLine()'
+					 * did. This is rare, so we don't care about performance.
+					 */
+					String line = new String( chars, contentStart, contentEnd - contentStart );
+					while ( !line.isEmpty() && ( line.charAt( line.length() - 1 ) == '\\' ) )
+					{
+						String nextLine = null;
+						if ( next < end )
+						{
+							int nextEnd = next;
+							while ( ( nextEnd < end ) && ( chars[ nextEnd ] != '\n' ) && ( chars[ nextEnd ] != '\r' ) )
+							{
+								nextEnd++;
+							}
+							nextLine = new String( chars, next, nextEnd - next );
+							next = nextLine( chars, nextEnd, end );
+						}
+						line = line.substring( 0, line.length() - 1 ) + ' ' + nextLine;
+					}
+
+					line = WHITESPACE.matcher( line ).replaceAll( " " );
+					final char[] lineChars = line.toCharArray();
+					parseStatement( lineChars, 0, lineChars.length );
+				}
+				else if ( contentEnd > contentStart )
+				{
+					parseStatement( chars, contentStart, contentEnd );
+				}
+
+				position = next;
+			}
+		}
+		catch ( final IOException e )
+		{
+			_error = e;
+		}
+		catch ( final RuntimeException e )
+		{
+			_error = e;
+		}
+	}
+
+	/**
+	 * Returns the start of the next line.
+	 *
+	 * @param   chars       Characters to read from.
+	 * @param   lineEnd     End of the current line.
+	 * @param   end         End of range.
+	 *
+	 * @return  Start of next line.
+	 */
+	private static int nextLine( final char[] chars, final int lineEnd, final int end )
+	{
+		int result = lineEnd;
+		if ( result < end )
+		{
+			result += ( ( chars[ result ] == '\r' ) && ( result + 1 < end ) && ( chars[ result + 1 ] == '\n' ) ) ? 2 : 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a single statement.
+	 *
+	 * @param   chars   Characters to parse.
+	 * @param   start   Start of statement.
+	 * @param   end     End of statement.
+	 *
+	 * @throws  IOException if the statement is malformed.
+	 */
+	private void parseStatement( final char[] chars, final int start, final int end )
+		throws IOException
+	{
+		final int tokenCount = tokenize( chars, start, end );
+		final int[] tokens = _tokens;
+		final int argCount = tokenCount - 1;
+
+		final int nameStart = ( tokenCount > 0 ) ? tokens[ 0 ] : start;
+		final int nameLength = ( tokenCount > 0 ) ? tokens[ 1 ] - nameStart : 0;
+
+		try
+		{
+			if ( nameLength == 0 )
+			{
+				// Line contains only whitespace (after joining continued lines).
+			}
+			/*
+			 * v x y z w
+			 *     Polygonal and free-form geometry statement.
+			 *
+			 *     Specifies a geometric vertex and its x y z coordinates. Rational
+			 *     curves and surfaces require a fourth homogeneous coordinate, also
+			 *     called the weight.
+			 *
+			 *     x y z are the x, y, and z coordinates for the vertex. These are
+			 *     floating point numbers that define the position of the vertex in
+			 *     three dimensions.
+			 *
+			 *     w is the weight required for rational curves and surfaces. It is
+			 *     not required for non-rational curves and surfaces. If you do not
+			 *     specify a value for w, the default is 1.0.
+			 *
+			 *     NOTE: A positive weight value is recommended. Using zero or
+			 *     negative values may result in an undefined point in a curve or
+			 *     surface.
+			 */
+			else if ( ( nameLength == 1 ) && ( chars[ nameStart ] == 'v' ) )
+			{
+				if ( argCount < 3 )
+				{
+					throw new IOException( "malformed vertex entry: " + getLine( chars, start, end ) );
+				}
+
+				final double x = parseDouble( chars, tokens[ 2 ], tokens[ 3 ] );
+				final double y = parseDouble( chars, tokens[ 4 ], tokens[ 5 ] );
+				final double z = parseDouble( chars, tokens[ 6 ], tokens[ 7 ] );
+
+				final Matrix3D transform = _transform;
+				final int offset = _vertexCount * 3;
+				double[] vertices = _vertices;
+				if ( offset == vertices.length )
+				{
+					vertices = Arrays.copyOf( vertices, offset * 2 );
+					_vertices = vertices;
+				}
+				vertices[ offset ] = x * transform.xx + y * transform.xy + z * transform.xz + transform.xo;
+				vertices[ offset + 1 ] = x * transform.yx + y * transform.yy + z * transform.yz + transform.yo;
+				vertices[ offset + 2 ] = x * transform.zx + y * transform.zy + z * transform.zz + transform.zo;
+				_vertexCount++;
+			}
+			/*
+			 * vt u v w
+			 *
+			 *     Vertex statement for both polygonal and free-form geometry.
+			 *
+			 *     Specifies a texture vertex and its coordinates. A 1D texture
+			 *     requires only u texture coordinates, a 2D texture requires both u
+			 *     and v texture coordinates, and a 3D texture requires all three
+			 *     coordinates.
+			 *
+			 *     u is the value for the horizontal direction of the texture.
+			 *
+			 *     v is an optional argument.
+			 *
+			 *     v is the value for the vertical direction of the texture. The
+			 *     default is 0.
+			 *
+			 *     w is an optional argument.
+			 *
+			 *     w is a value for the depth of the texture. The default is 0.
+			 */
+			else if ( ( nameLength == 2 ) && ( chars[ nameStart ] == 'v' ) && ( chars[ nameStart + 1 ] == 't' ) )
+			{
+				if ( argCount < 2 )
+				{
+					throw new IOException( "malformed texture vertex entry: " + getLine( chars, start, end ) );
+				}
+
+				final float u = parseFloat( chars, tokens[ 2 ], tokens[ 3 ] );
+				final float v = parseFloat( chars, tokens[ 4 ], tokens[ 5 ] );
+				if ( argCount >= 3 )
+				{
+					// Texture depth is not used, but must be valid.
+					parseFloat( chars, tokens[ 6 ], tokens[ 7 ] );
+				}
+
+				final int offset = _textureVertexCount * 2;
+				float[] textureVertices = _textureVertices;
+				if ( offset == textureVertices.length )
+				{
+					textureVertices = Arrays.copyOf( textureVertices, offset * 2 );
+					_textureVertices = textureVertices;
+				}
+				textureVertices[ offset ] = u;
+				textureVertices[ offset + 1 ] = v;
+				_textureVertexCount++;
+			}
+			/*
+			 * vn i j k
+			 *     Polygonal and free-form geometry statement.
+			 *
+			 *     Specifies a normal vector with components i, j, and k.
+			 *
+			 *     Vertex normals affect the smooth-shading and rendering of geometry.
+			 *     For polygons, vertex normals are used in place of the actual facet
+			 *     normals.  For surfaces, vertex normals are interpolated over the
+			 *     entire surface and replace the actual analytic surface normal.
+			 *
+			 *     When vertex normals are present, they supersede smoothing groups.
+			 *
+			 *     i j k are the i, j, and k coordinates for the vertex normal. They
+			 *     are floating point numbers.
+			 */
+			else if ( ( nameLength == 2 ) && ( chars[ nameStart ] == 'v' ) && ( chars[ nameStart + 1 ] == 'n' ) )
+			{
+				if ( argCount < 3 )
+				{
+					throw new IOException( "malformed vertex normal entry: " + getLine( chars, start, end ) );
+				}
+
+				final double ni = parseDouble( chars, tokens[ 2 ], tokens[ 3 ] );
+				final double nj = parseDouble( chars, tokens[ 4 ], tokens[ 5 ] );
+				final double nk = parseDouble( chars, tokens[ 6 ], tokens[ 7 ] );
+
+				final Matrix3D transform = _transform;
+				final int offset = _vertexNormalCount * 3;
+				double[] vertexNormals = _vertexNormals;
+				if ( offset == vertexNormals.length )
+				{
+					vertexNormals = Arrays.copyOf( vertexNormals, offset * 2 );
+					_vertexNormals = vertexNormals;
+				}
+				vertexNormals[ offset ] = ni * transform.xx + nj * transform.xy + nk * transform.xz;
+				vertexNormals[ offset + 1 ] = ni * transform.yx + nj * transform.yy + nk * transform.yz;
+				vertexNormals[ offset + 2 ] = ni * transform.zx + nj * transform.zy + nk * transform.zz;
+				_vertexNormalCount++;
+			}
+			/*
+			 * p  v1 v2 v3 . . .
+			 *
+			 *     Polygonal geometry statement.
+			 *
+			 *     Specifies a point element and its vertex. You can specify multiple
+			 *     points with this statement. Although points cannot be shaded or
+			 *     rendered, they are used by other Advanced Visualizer programs.
+			 *
+			 *     v is the vertex reference number for a point element. Each point
+			 *     element requires one vertex. Positive values indicate absolute
+			 *     vertex numbers. Negative values indicate relative vertex numbers.
+			 *
+			 * l  v1/vt1   v2/vt2   v3/vt3 . . .
+			 *
+			 *     Polygonal geometry statement.
+			 *
+			 *     Specifies a line and its vertex reference numbers. You can
+			 *     optionally include the texture vertex reference numbers. Although
+			 *     lines cannot be shaded or rendered, they are used by other Advanced
+			 *     Visualizer programs.
+			 *
+			 *     The reference numbers for the vertices and texture vertices must be
+			 *     separated by a slash (/). There is no space between the number and
+			 *     the slash.
+			 *
+			 *     v is a reference number for a vertex on the line. A minimum of two
+			 *     vertex numbers are required. There is no limit on the maximum.
+			 *     Positive values indicate absolute vertex numbers. Negative values
+			 *     indicate relative vertex numbers.
+			 *
+			 *     vt is an optional argument.
+			 *
+			 *     vt is the reference number for a texture vertex in the line
+			 *     element. It must always follow the first slash.
+			 *
+			 * f  v1/vt1/vn1   v2/vt2/vn2   v3/vt3/vn3 . . .
+			 *
+			 *     Polygonal geometry statement.
+			 *
+			 *     Specifies a face element and its vertex reference number. You can
+			 *     optionally include the texture vertex and vertex normal reference
+			 *     numbers.
+			 *
+			 *     The reference numbers for the vertices, texture vertices, and
+			 *     vertex normals must be separated by slashes (/). There is no space
+			 *     between the number and the slash.
+			 *
+			 *     v is the reference number for a vertex in the face element. A
+			 *     minimum of three vertices are required.
+			 *
+			 *     vt is an optional argument.
+			 *
+			 *     vt is the reference number for a texture vertex in the face
+			 *     element. It always follows the first slash.
+			 *
+			 *     vn is an optional argument.
+			 *
+			 *     vn is the reference number for a vertex normal in the face element.
+			 *     It must always follow the second slash.
+			 *
+			 *     Face elements use surface normals to indicate their orientation. If
+			 *     vertices are ordered counterclockwise around the face, both the
+			 *     face and the normal will point toward the viewer. If the vertex
+			 *     ordering is clockwise, both will point away from the viewer. If
+			 *     vertex normals are assigned, they should point in the general
+			 *     direction of the surface normal, otherwise unpredictable results
+			 *     may occur.
+			 *
+			 *     If a face has a texture map assigned to it and no texture vertices
+			 *     are assigned in the f statement, the texture map is ignored when
+			 *     the element is rendered.
+			 *
+			 *     NOTE: Any references to fo (face outline) are no longer valid as of
+			 *     version 2.11. You can use f (face) to get the same results.
+			 *     References to fo in existing .obj files will still be read,
+			 *     however, they will be written out as f when the file is saved.
+			 */
+			else if ( ( nameLength == 1 ) && ( ( chars[ nameStart ] == 'f' ) || ( chars[ nameStart ] == 'p' ) || ( chars[ nameStart ] == 'l' ) ) )
+			{
+				if ( argCount < 1 )
+				{
+					throw new IOException( "too few face arguments in: " + getLine( chars, start, end ) );
+				}
+
+				/*
+				 * Vertices may be declared in a preceding chunk, so 'ObjLoader'
+				 * checks for undeclared vertices at the first face.
+				 */
+				if ( _verticesBeforeFirstFace < 0 )
+				{
+					_verticesBeforeFirstFace = _vertexCount;
+				}
+
+				int[] faceVertices = _faceVertices;
+				final int required = ( _faceVertexCount + argCount ) * 3;
+				if ( required > faceVertices.length )
+				{
+					faceVertices = Arrays.copyOf( faceVertices, Math.max( required, faceVertices.length * 2 ) );
+					_faceVertices = faceVertices;
+				}
+
+				int offset = _faceVertexCount * 3;
+				for ( int argIndex = 1; argIndex <= argCount; argIndex++ )
+				{
+					if ( !parseFaceVertex( chars, tokens[ argIndex * 2 ], tokens[ argIndex * 2 + 1 ], faceVertices, offset ) )
+					{
+						throw new IOException( "malformed face argument in: " + getLine( chars, start, end ) );
+					}
+					offset += 3;
+				}
+
+				_faceVertexCount += argCount;
+				_faceCount++;
+
+				int[] faceStarts = _faceStarts;
+				if ( _faceCount == faceStarts.length )
+				{
+					faceStarts = Arrays.copyOf( faceStarts, _faceCount * 2 );
+					_faceStarts = faceStarts;
+				}
+				faceStarts[ _faceCount ] = _faceVertexCount;
+			}
+			/*
+			 * mtllib filename1 filename2 . . .
+			 *
+			 *     Polygonal and free-form geometry statement.
+			 *
+			 *     Specifies the material library file for the material definitions
+			 *     set with the usemtl statement. You can specify multiple filenames
+			 *     with mtllib. If multiple filenames are specified, the first file
+			 *     listed is searched first for the material definition, the second
+			 *     file is searched next, and so on.
+			 *
+			 *     When you assign a material library using the Model program, only
+			 *     one map library per .obj file is allowed. You can assign multiple
+			 *     libraries using a text editor.
+			 *
+			 *     filename is the name of the library file that defines the
+			 *     materials.  There is no default.
+			 *
+			 */
+			else if ( ( nameLength == 6 ) && new String( chars, nameStart, 6 ).equals( "mtllib" ) )
+			{
+				if ( argCount < 1 )
+				{
+					throw new IOException( "too few material library arguments in: " + getLine( chars, start, end ) );
+				}
+
+				_directives.add( new Directive( Directive.Type.MTLLIB, getLine( chars, start, end ).substring( 7 ), _faceCount ) );
+			}
+			/*
+			 * o object_name
+			 *
+			 *     Polygonal and free-form geometry statement.
+			 *
+			 *     Optional statement; it is not processed by any Wavefront programs.
+			 *     It specifies a user-defined object name for the elements defined
+			 *     after this statement.
+			 *
+			 *     object_name is the user-defined object name. There is no default.
+			 */
+			else if ( ( nameLength == 1 ) && ( chars[ nameStart ] == 'o' ) )
+			{
+				final String line = getLine( chars, start, end );
+				_directives.add( new Directive( Directive.Type.OBJECT_NAME, ObjLoader.getStringAfter( line, WHITESPACE.split( line.trim(), 0 ), 1 ), _faceCount ) );
+			}
+			/*
+			 * usemtl material_name
+			 *
+			 *     Polygonal and free-form geometry statement.
+			 *
+			 *     Specifies the material name for the element following it. Once a
+			 *     material is assigned, it cannot be turned off; it can only be
+			 *     changed.
+			 *
+			 *     material_name is the name of the material. If a material name is
+			 *     not specified, a white material is used.
+			 *
+			 */
+			else if ( ( nameLength == 6 ) && new String( chars, nameStart, 6 ).equals( "usemtl" ) )
+			{
+				String materialName = "";
+				if ( argCount >= 1 )
+				{
+					final String line = getLine( chars, start, end );
+					materialName = ObjLoader.getStringAfter( line, WHITESPACE.split( line.trim(), 0 ), 1 );
+					materialName = materialName.replace( ' ', '_' );
+				}
+				_directives.add( new Directive( Directive.Type.USEMTL, materialName, _faceCount ) );
+			}
+		}
+		catch ( final NumberFormatException ignored )
+		{
+			throw new IOException( "malformed numeric value: " + getLine( chars, start, end ) );
+		}
+	}
+
+	/**
+	 * Splits the given statement into tokens, separated by whitespace. The
+	 * start and end of each token are stored in {@link #_tokens}.
+	 *
+	 * @param   chars   Characters to read from.
+	 * @param   start   Start of statement.
+	 * @param   end     End of statement.
+	 *
+	 * @return  Number of tokens.
+	 */
+	private int tokenize( final char[] chars, final int start, final int end )
+	{
+		int[] tokens = _tokens;
+		int tokenCount = 0;
+
+		int position = start;
+		while ( ( position < end ) && isWhitespace( chars[ position ] ) )
+		{
+			position++;
+		}
+
+		while ( position < end )
+		{
+			final int tokenStart = position;
+			while ( ( position < end ) && !isWhitespace( chars[ position ] ) )
+			{
+				position++;
+			}
+
+			if ( tokenCount * 2 == tokens.length )
+			{
+				tokens = Arrays.copyOf( tokens, tokens.length * 2 );
+				_tokens = tokens;
+			}
+			tokens[ tokenCount * 2 ] = tokenStart;
+			tokens[ tokenCount * 2 + 1 ] = position;
+			tokenCount++;
+
+			while ( ( position < end ) && isWhitespace( chars[ position ] ) )
+			{
+				position++;
+			}
+		}
+
+		return tokenCount;
+	}
+
+	/**
+	 * Returns whether the given character is whitespace, as matched by
+	 * {@code \s} in regular expressions.
+	 *
+	 * @param   c   Character to test.
+	 *
+	 * @return  {@code true} if the character is whitespace.
+	 */
+	private static boolean isWhitespace( final char c )
+	{
+		return ( c == ' ' ) || ( c == '\t' ) || ( c == '\n' ) || ( c == '\u000B' ) || ( c == '\f' ) || ( c == '\r' );
+	}
+
+	/**
+	 * Returns the normalized statement, for use in error messages and string
+	 * arguments.
+	 *
+	 * @param   chars   Characters to read from.
+	 * @param   start   Start of statement.
+	 * @param   end     End of statement.
+	 *
+	 * @return  Statement with all whitespace replaced by single spaces.
+	 */
+	private static String getLine( final char[] chars, final int start, final int end )
+	{
+		return WHITESPACE.matcher( new String( chars, start, end - start ) ).replaceAll( " " );
+	}
+
+	/**
+	 * Parses a vertex of a polygonal geometry statement, formatted as
+	 * {@code vertex#[/[textureVertex#][/vertexNormal#]]}.
+	 *
+	 * @param   chars           Characters to read from.
+	 * @param   start           Start of token.
+	 * @param   end             End of token.
+	 * @param   faceVertices    Array to store indices in.
+	 * @param   offset          Offset in array.
+	 *
+	 * @return  {@code true} if the token was parsed; {@code false} if the
+	 *          token is malformed.
+	 *
+	 * @throws  NumberFormatException if an index is out of range.
+	 */
+	private static boolean parseFaceVertex( final char[] chars, final int start, final int end, final int[] faceVertices, final int offset )
+	{
+		int position = skipDigits( chars, start, end );
+		boolean result = ( position > start );
+
+		if ( result )
+		{
+			faceVertices[ offset ] = parseIndex( chars, start, position );
+			faceVertices[ offset + 1 ] = -1;
+			faceVertices[ offset + 2 ] = -1;
+
+			if ( ( position < end ) && ( chars[ position ] == '/' ) )
+			{
+				final int textureStart = position + 1;
+				position = skipDigits( chars, textureStart, end );
+				if ( position > textureStart )
+				{
+					faceVertices[ offset + 1 ] = parseIndex( chars, textureStart, position );
+				}
+
+				if ( ( position < end ) && ( chars[ position ] == '/' ) )
+				{
+					final int normalStart = position + 1;
+					position = skipDigits( chars, normalStart, end );
+					if ( position > normalStart )
+					{
+						faceVertices[ offset + 2 ] = parseIndex( chars, normalStart, position );
+					}
+					else
+					{
+						result = false;
+					}
+				}
+			}
+
+			result = result && ( position == end );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Skips decimal digits.
+	 *
+	 * @param   chars   Characters to read from.
+	 * @param   start   Start position.
+	 * @param   end     End position.
+	 *
+	 * @return  Position of first non-digit character.
+	 */
+	private static int skipDigits( final char[] chars, final int start, final int end )
+	{
+		int result = start;
+		while ( ( result < end ) && ( chars[ result ] >= '0' ) && ( chars[ result ] <= '9' ) )
+		{
+			result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a (1-based) index consisting of decimal digits.
+	 *
+	 * @param   chars   Characters to read from.
+	 * @param   start   Start of index.
+	 * @param   end     End of index.
+	 *
+	 * @return  0-based index.
+	 *
+	 * @throws  NumberFormatException if the index is out of range.
+	 */
+	private static int parseIndex( final char[] chars, final int start, final int end )
+	{
+		long value = 0L;
+		for ( int i = start; i < end; i++ )
+		{
+			value = value * 10L + (long)( chars[ i ] - '0' );
+			if ( value > (long)Integer.MAX_VALUE )
+			{
+				throw new NumberFormatException( new String( chars, start, end - start ) );
+			}
+		}
+		return (int)value - 1;
+	}
+
+	/**
+	 * Parses a double value. Simple decimal numbers are parsed directly, if the
+	 * result can be computed exactly with a single (correctly rounded)
+	 * multiplication or division. All other numbers are parsed by
+	 * {@link Double#parseDouble}. Either way, the result is the same as that
+	 * of {@link Double#parseDouble}.
+	 *
+	 * @param   chars   Characters to read from.
+	 * @param   start   Start of number.
+	 * @param   end     End of number.
+	 *
+	 * @return  Parsed value.
+	 *
+	 * @throws  NumberFormatException if the number is malformed.
+	 */
+	static double parseDouble( final char[] chars, final int start, final int end )
+	{
+		final double result;
+
+		final long mantissaAndExponent = parseDecimal( chars, start, end, 1L << 53 );
+		final int exponent = (int)(byte)mantissaAndExponent;
+		if ( ( mantissaAndExponent >= 0L ) && ( exponent >= -22 ) && ( exponent <= 22 ) )
+		{
+			final double mantissa = (double)( mantissaAndExponent >> 8 );
+			final double value = ( exponent >= 0 ) ? mantissa * DOUBLE_POWERS_OF_TEN[ exponent ] : mantissa / DOUBLE_POWERS_OF_TEN[ -exponent ];
+			result = ( chars[ start ] == '-' ) ? -value : value;
+		}
+		else
+		{
+			result = Double.parseDouble( new String( chars, start, end - start ) );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parses a float value. Simple decimal numbers are parsed directly, if the
+	 * result can be computed exactly with a single (correctly rounded)
+	 * multiplication or division. All other numbers are parsed by
+	 * {@link Float#parseFloat}. Either way, the result is the same as that of
+	 * {@link Float#parseFloat}.
+	 *
+	 * @param   chars   Characters to read from.
+	 * @param   start   Start of number.
+	 * @param   end     End of number.
+	 *
+	 * @return  Parsed value.
+	 *
+	 * @throws  NumberFormatException if the number is malformed.
+	 */
+	static float parseFloat( final char[] chars, final int start, final int end )
+	{
+		final float result;
+
+		final long mantissaAndExponent = parseDecimal( chars, start, end, 1L << 24 );
+		final int exponent = (int)(byte)mantissaAndExponent;
+		if ( ( mantissaAndExponent >= 0L ) && ( exponent >= -10 ) && ( exponent <= 10 ) )
+		{
+			final float mantissa = (float)( mantissaAndExponent >> 8 );
+			final float value = ( exponent >= 0 ) ? mantissa * FLOAT_POWERS_OF_TEN[ exponent ] : mantissa / FLOAT_POWERS_OF_TEN[ -exponent ];
+			result = ( chars[ start ] == '-' ) ? -value : value;
+		}
+		else
+		{
+			result = Float.parseFloat( new String( chars, start, end - start ) );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parses a simple decimal number of the form
+	 * {@code [+-]digits[.digits][(e|E)[+-]digits]} into an (unsigned)
+	 * mantissa and a decimal exponent.
+	 *
+	 * @param   chars           Characters to read from.
+	 * @param   start           Start of number.
+	 * @param   end             End of number.
+	 * @param   maxMantissa     Maximum value of the mantissa.
+	 *
+	 * @return  Mantissa shifted left by 8 bits, combined with the exponent
+	 *          in the lower 8 bits (as signed byte); -1 if the number is not
+	 *          a simple decimal number or is out of range.
+	 */
+	private static long parseDecimal( final char[] chars, final int start, final int end, final long maxMantissa )
+	{
+		int position = start;
+		if ( ( position < end ) && ( ( chars[ position ] == '-' ) || ( chars[ position ] == '+' ) ) )
+		{
+			position++;
+		}
+
+		long mantissa = 0L;
+		int exponent = 0;
+
+		final int integerStart = position;
+		while ( ( position < end ) && ( chars[ position ] >= '0' ) && ( chars[ position ] <= '9' ) && ( mantissa <= maxMantissa ) )
+		{
+			mantissa = mantissa * 10L + (long)( chars[ position++ ] - '0' );
+		}
+		int digits = position - integerStart;
+
+		if ( ( position < end ) && ( chars[ position ] == '.' ) )
+		{
+			position++;
+			final int fractionStart = position;
+			while ( ( position < end ) && ( chars[ position ] >= '0' ) && ( chars[ position ] <= '9' ) && ( mantissa <= maxMantissa ) && ( exponent > -100 ) )
+			{
+				mantissa = mantissa * 10L + (long)( chars[ position++ ] - '0' );
+				exponent--;
+			}
+			digits += position - fractionStart;
+		}
+
+		if ( ( digits > 0 ) && ( position < end ) && ( ( chars[ position ] == 'e' ) || ( chars[ position ] == 'E' ) ) )
+		{
+			position++;
+			boolean negative = false;
+			if ( ( position < end ) && ( ( chars[ position ] == '-' ) || ( chars[ position ] == '+' ) ) )
+			{
+				negative = ( chars[ position++ ] == '-' );
+			}
+
+			final int exponentStart = position;
+			int explicitExponent = 0;
+			while ( ( position < end ) && ( chars[ position ] >= '0' ) && ( chars[ position ] <= '9' ) && ( explicitExponent < 100 ) )
+			{
+				explicitExponent = explicitExponent * 10 + ( chars[ position++ ] - '0' );
+			}
+
+			if ( position == exponentStart )
+			{
+				digits = 0;
+			}
+			exponent += negative ? -explicitExponent : explicitExponent;
+		}
+
+		return ( ( digits > 0 ) && ( position == end ) && ( mantissa <= maxMantissa ) && ( exponent >= -100 ) && ( exponent <= 100 ) ) ? ( mantissa << 8 ) | (long)( exponent & 0xff ) : -1L;
+	}
+
+	/**
+	 * Returns the number of vertices in this chunk.
+	 *
+	 * @return  Number of vertices.
+	 */
+	int getVertexCount()
+	{
+		return _vertexCount;
+	}
+
+	/**
+	 * Returns vertex coordinates (x, y, z) with transformation applied.
+	 *
+	 * @return  Vertex coordinates.
+	 */
+	double[] getVertices()
+	{
+		return _vertices;
+	}
+
+	/**
+	 * Returns the number of texture vertices in this chunk.
+	 *
+	 * @return  Number of texture vertices.
+	 */
+	int getTextureVertexCount()
+	{
+		return _textureVertexCount;
+	}
+
+	/**
+	 * Returns texture vertex coordinates (u, v).
+	 *
+	 * @return  Texture vertex coordinates.
+	 */
+	float[] getTextureVertices()
+	{
+		return _textureVertices;
+	}
+
+	/**
+	 * Returns the number of vertex normals in this chunk.
+	 *
+	 * @return  Number of vertex normals.
+	 */
+	int getVertexNormalCount()
+	{
+		return _vertexNormalCount;
+	}
+
+	/**
+	 * Returns vertex normals (x, y, z) with transformation applied.
+	 *
+	 * @return  Vertex normals.
+	 */
+	double[] getVertexNormals()
+	{
+		return _vertexNormals;
+	}
+
+	/**
+	 * Returns the number of faces in this chunk.
+	 *
+	 * @return  Number of faces.
+	 */
+	int getFaceCount()
+	{
+		return _faceCount;
+	}
+
+	/**
+	 * Returns the index of the first face vertex for each face, followed by
+	 * the total number of face vertices.
+	 *
+	 * @return  Face starts.
+	 */
+	int[] getFaceStarts()
+	{
+		return _faceStarts;
+	}
+
+	/**
+	 * Returns the vertex, texture vertex, and vertex normal index of each
+	 * face vertex (0=first, -1=undefined).
+	 *
+	 * @return  Face vertices.
+	 */
+	int[] getFaceVertices()
+	{
+		return _faceVertices;
+	}
+
+	/**
+	 * Returns the number of vertices in this chunk before the first face.
+	 *
+	 * @return  Number of vertices before first face; -1 if the chunk contains
+	 *          no faces.
+	 */
+	int getVerticesBeforeFirstFace()
+	{
+		return _verticesBeforeFirstFace;
+	}
+
+	/**
+	 * Returns the directives in this chunk.
+	 *
+	 * @return  Directives, in file order.
+	 */
+	List<Directive> getDirectives()
+	{
+		return _directives;
+	}
+
+	/**
+	 * Returns the error that stopped parsing of this chunk.
+	 *
+	 * @return  Error; {@code null} if none.
+	 */
+	@Nullable
+	Exception getError()
+	{
+		return _error;
+	}
+
+	/**
+	 * Statement that depends on the state of the loader.
+	 */
+	static class Directive
+	{
+		/**
+		 * Type of directive.
+		 */
+		enum Type
+		{
+			/**
+			 * Material library ('mtllib').
+			 */
+			MTLLIB,
+
+			/**
+			 * Material for subsequent faces ('usemtl').
+			 */
+			USEMTL,
+
+			/**
+			 * Object name ('o').
+			 */
+			OBJECT_NAME
+		}
+
+		/**
+		 * Type of directive.
+		 */
+		private final Type _type;
+
+		/**
+		 * Argument of the directive.
+		 */
+		private final String _argument;
+
+		/**
+		 * Number of faces in the chunk before this directive.
+		 */
+		private final int _faceIndex;
+
+		/**
+		 * Resolved material, for {@link Type#USEMTL} directives.
+		 */
+		@Nullable
+		private Appearance _appearance = null;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param   type        Type of directive.
+		 * @param   argument    Argument of the directive.
+		 * @param   faceIndex   Number of faces in the chunk before this
+		 *                      directive.
+		 */
+		Directive( final Type type, final String argument, final int faceIndex )
+		{
+			_type = type;
+			_argument = argument;
+			_faceIndex = faceIndex;
+		}
+
+		/**
+		 * Returns the type of directive.
+		 *
+		 * @return  Type of directive.
+		 */
+		Type getType()
+		{
+			return _type;
+		}
+
+		/**
+		 * Returns the argument of the directive.
+		 *
+		 * @return  Argument.
+		 */
+		String getArgument()
+		{
+			return _argument;
+		}
+
+		/**
+		 * Returns the number of faces in the chunk before this directive.
+		 *
+		 * @return  Face index.
+		 */
+		int getFaceIndex()
+		{
+			return _faceIndex;
+		}
+
+		/**
+		 * Returns the resolved material.
+		 *
+		 * @return  Material.
+		 */
+		@Nullable
+		Appearance getAppearance()
+		{
+			return _appearance;
+		}
+
+		/**
+		 * Sets the resolved material.
+		 *
+		 * @param   appearance  Material.
+		 */
+		void setAppearance( @Nullable final Appearance appearance )
+		{
+			_appearance = appearance;
+		}
+	}
+}
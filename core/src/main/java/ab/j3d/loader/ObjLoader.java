@@ -21,6 +21,7 @@ package ab.j3d.loader;
 import java.io.*;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
@@ -108,6 +109,16 @@ public class ObjLoader
 	 */
 	public static final Pattern POLYGON_VERTEX_PATTERN  = Pattern.compile( "(\\d+)(/(\\d+)?(/(\\d+))?)?" ); // vertex#[/textureVertex#1[/vertexNormal#]]
 
+	/**
+	 * Default number of characters per chunk of OBJ data.
+	 */
+	private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Maximum number of chunks that may be pending for parsing.
+	 */
+	private static final int MAXIMUM_PENDING_CHUNKS = 16;
+
 	/**
 	 * Materials read from MTL file and/or referenced by OBJ file.
 	 */
@@ -116,7 +127,7 @@ public class ObjLoader
 	/**
 	 * Default materials to use for OBJ files.
 	 */
-	private static final Map<String,Appearance> DEFAULT_MATERIALS;
+	static final Map<String,Appearance> DEFAULT_MATERIALS;
 
 	static
 	{
@@ -159,6 +170,18 @@ public class ObjLoader
 	 */
 	private boolean _skipMtl = false;
 
+	/**
+	 * Executor service used to parse OBJ data in parallel; {@code null} to
+	 * parse OBJ data in the calling thread.
+	 */
+	@Nullable
+	private ExecutorService _executorService = null;
+
+	/**
+	 * Number of characters per chunk of OBJ data.
+	 */
+	private int _chunkSize = DEFAULT_CHUNK_SIZE;
+
 	/**
 	 * Load the specified OBJ file.
 	 *
@@ -290,438 +313,422 @@ public class ObjLoader
 		/*
 		 * Read OBJ data
 		 */
-		final List<Vector3D> vertexCoordinates = new ArrayList<Vector3D>();
-		final List<Vector3f> textureVertices = new ArrayList<Vector3f>();
-		final List<Vector3D> vertexNormals = new ArrayList<Vector3D>();
-		final List<ObjFace> faces = new ArrayList<ObjFace>();
+		final List<ObjChunk> chunks = readChunks( objReader );
 
-		Appearance material = DEFAULT_MATERIALS.get( "default" );
-		final boolean skipMtl = isSkipMtl();
+		int totalVertexCount = 0;
+		int totalTextureVertexCount = 0;
+		int totalVertexNormalCount = 0;
+		for ( final ObjChunk chunk : chunks )
+		{
+			totalVertexCount += chunk.getVertexCount();
+			totalTextureVertexCount += chunk.getTextureVertexCount();
+			totalVertexNormalCount += chunk.getVertexNormalCount();
+		}
 
-		String objectName = null;
+		final List<Vector3D> vertexCoordinates = new ArrayList<Vector3D>( totalVertexCount );
+		final float[] textureVertices = new float[ totalTextureVertexCount * 2 ];
+		final double[] vertexNormals = new double[ totalVertexNormalCount * 3 ];
+		int textureVertexCount = 0;
+		int vertexNormalCount = 0;
 
-		String line;
+		final boolean skipMtl = isSkipMtl();
+		String objectName = null;
 
-		while ( ( line = readLine( objReader ) ) != null )
+		/*
+		 * Process directives in file order. This is also where errors are
+		 * reported, so the same error is reported as when the file would have
+		 * been processed line by line.
+		 */
+		for ( final ObjChunk chunk : chunks )
 		{
-			if ( !line.isEmpty() )
+			boolean checkFirstFace = ( chunk.getVerticesBeforeFirstFace() >= 0 );
+
+			for ( final ObjChunk.Directive directive : chunk.getDirectives() )
 			{
-				final String[] tokens = WHITESPACE.split( line.trim(), 0 );
-				final String name = tokens[ 0 ];
-				final int argCount = tokens.length - 1;
+				if ( checkFirstFace && ( directive.getFaceIndex() > 0 ) )
+				{
+					checkFirstFace( vertexCoordinates.size() + chunk.getVerticesBeforeFirstFace() );
+					checkFirstFace = false;
+				}
 
-				try
+				switch ( directive.getType() )
 				{
-					/*
-					 * v x y z w
-					 *     Polygonal and free-form geometry statement.
-					 *
-					 *     Specifies a geometric vertex and its x y z coordinates. Rational
-					 *     curves and surfaces require a fourth homogeneous coordinate, also
-					 *     called the weight.
-					 *
-					 *     x y z are the x, y, and z coordinates for the vertex. These are
-					 *     floating point numbers that define the position of the vertex in
-					 *     three dimensions.
-					 *
-					 *     w is the weight required for rational curves and surfaces. It is
-					 *     not required for non-rational curves and surfaces. If you do not
-					 *     specify a value for w, the default is 1.0.
-					 *
-					 *     NOTE: A positive weight value is recommended. Using zero or
-					 *     negative values may result in an undefined point in a curve or
-					 *     surface.
-					 */
-					if ( "v".equals( name ) )
-					{
-						if ( argCount < 3 )
+					case MTLLIB:
+						if ( !skipMtl )
 						{
-							throw new IOException( "malformed vertex entry: " + line );
+							loadMtlFile( loader, directive.getArgument() );
 						}
+						break;
 
-						final double x = Double.parseDouble( tokens[ 1 ] );
-						final double y = Double.parseDouble( tokens[ 2 ] );
-						final double z = Double.parseDouble( tokens[ 3 ] );
-//						final double w = ( argCount >= 4 ) ? Double.parseDouble( tokens[ 4 ] ) : 1.0;
+					case OBJECT_NAME:
+						objectName = directive.getArgument();
+						break;
 
-						vertexCoordinates.add( _transform.transform( x, y, z ) );
-					}
-					/*
-					 * vt u v w
-					 *
-					 *     Vertex statement for both polygonal and free-form geometry.
-					 *
-					 *     Specifies a texture vertex and its coordinates. A 1D texture
-					 *     requires only u texture coordinates, a 2D texture requires both u
-					 *     and v texture coordinates, and a 3D texture requires all three
-					 *     coordinates.
-					 *
-					 *     u is the value for the horizontal direction of the texture.
-					 *
-					 *     v is an optional argument.
-					 *
-					 *     v is the value for the vertical direction of the texture. The
-					 *     default is 0.
-					 *
-					 *     w is an optional argument.
-					 *
-					 *     w is a value for the depth of the texture. The default is 0.
-					 */
-					else if ( "vt".equals( name ) )
-					{
-						if ( argCount < 2 )
-						{
-							throw new IOException( "malformed texture vertex entry: " + line );
-						}
+					case USEMTL:
+						directive.setAppearance( getMaterial( directive.getArgument() ) );
+						break;
+				}
+			}
 
-						final float u = Float.parseFloat( tokens[ 1 ] );
-						final float v = Float.parseFloat( tokens[ 2 ] );
-						final float w = ( argCount >= 3 ) ? Float.parseFloat( tokens[ 3 ] ) : 0.0f;
+			if ( checkFirstFace )
+			{
+				checkFirstFace( vertexCoordinates.size() + chunk.getVerticesBeforeFirstFace() );
+			}
 
-						textureVertices.add( new Vector3f( u, v, w ) );
-					}
-					/*
-					 * vn i j k
-					 *     Polygonal and free-form geometry statement.
-					 *
-					 *     Specifies a normal vector with components i, j, and k.
-					 *
-					 *     Vertex normals affect the smooth-shading and rendering of geometry.
-					 *     For polygons, vertex normals are used in place of the actual facet
-					 *     normals.  For surfaces, vertex normals are interpolated over the
-					 *     entire surface and replace the actual analytic surface normal.
-					 *
-					 *     When vertex normals are present, they supersede smoothing groups.
-					 *
-					 *     i j k are the i, j, and k coordinates for the vertex normal. They
-					 *     are floating point numbers.
-					 */
-					else if ( "vn".equals( name ) )
-					{
-						if ( argCount < 3 )
-						{
-							throw new IOException( "malformed vertex normal entry: " + line );
-						}
+			final double[] vertices = chunk.getVertices();
+			for ( int i = 0; i < chunk.getVertexCount() * 3; i += 3 )
+			{
+				vertexCoordinates.add( new Vector3D( vertices[ i ], vertices[ i + 1 ], vertices[ i + 2 ] ) );
+			}
 
-						final double ni = Double.parseDouble( tokens[ 1 ] );
-						final double nj = Double.parseDouble( tokens[ 2 ] );
-						final double nk = Double.parseDouble( tokens[ 3 ] );
+			System.arraycopy( chunk.getTextureVertices(), 0, textureVertices, textureVertexCount * 2, chunk.getTextureVertexCount() * 2 );
+			textureVertexCount += chunk.getTextureVertexCount();
 
-						vertexNormals.add( _transform.rotate( ni, nj, nk ) );
-					}
-					/*
-					 * p  v1 v2 v3 . . .
-					 *
-					 *     Polygonal geometry statement.
-					 *
-					 *     Specifies a point element and its vertex. You can specify multiple
-					 *     points with this statement. Although points cannot be shaded or
-					 *     rendered, they are used by other Advanced Visualizer programs.
-					 *
-					 *     v is the vertex reference number for a point element. Each point
-					 *     element requires one vertex. Positive values indicate absolute
-					 *     vertex numbers. Negative values indicate relative vertex numbers.
-					 *
-					 * l  v1/vt1   v2/vt2   v3/vt3 . . .
-					 *
-					 *     Polygonal geometry statement.
-					 *
-					 *     Specifies a line and its vertex reference numbers. You can
-					 *     optionally include the texture vertex reference numbers. Although
-					 *     lines cannot be shaded or rendered, they are used by other Advanced
-					 *     Visualizer programs.
-					 *
-					 *     The reference numbers for the vertices and texture vertices must be
-					 *     separated by a slash (/). There is no space between the number and
-					 *     the slash.
-					 *
-					 *     v is a reference number for a vertex on the line. A minimum of two
-					 *     vertex numbers are required. There is no limit on the maximum.
-					 *     Positive values indicate absolute vertex numbers. Negative values
-					 *     indicate relative vertex numbers.
-					 *
-					 *     vt is an optional argument.
-					 *
-					 *     vt is the reference number for a texture vertex in the line
-					 *     element. It must always follow the first slash.
-					 *
-					 * f  v1/vt1/vn1   v2/vt2/vn2   v3/vt3/vn3 . . .
-					 *
-					 *     Polygonal geometry statement.
-					 *
-					 *     Specifies a face element and its vertex reference number. You can
-					 *     optionally include the texture vertex and vertex normal reference
-					 *     numbers.
-					 *
-					 *     The reference numbers for the vertices, texture vertices, and
-					 *     vertex normals must be separated by slashes (/). There is no space
-					 *     between the number and the slash.
-					 *
-					 *     v is the reference number for a vertex in the face element. A
-					 *     minimum of three vertices are required.
-					 *
-					 *     vt is an optional argument.
-					 *
-					 *     vt is the reference number for a texture vertex in the face
-					 *     element. It always follows the first slash.
-					 *
-					 *     vn is an optional argument.
-					 *
-					 *     vn is the reference number for a vertex normal in the face element.
-					 *     It must always follow the second slash.
-					 *
-					 *     Face elements use surface normals to indicate their orientation. If
-					 *     vertices are ordered counterclockwise around the face, both the
-					 *     face and the normal will point toward the viewer. If the vertex
-					 *     ordering is clockwise, both will point away from the viewer. If
-					 *     vertex normals are assigned, they should point in the general
-					 *     direction of the surface normal, otherwise unpredictable results
-					 *     may occur.
-					 *
-					 *     If a face has a texture map assigned to it and no texture vertices
-					 *     are assigned in the f statement, the texture map is ignored when
-					 *     the element is rendered.
-					 *
-					 *     NOTE: Any references to fo (face outline) are no longer valid as of
-					 *     version 2.11. You can use f (face) to get the same results.
-					 *     References to fo in existing .obj files will still be read,
-					 *     however, they will be written out as f when the file is saved.
-					 */
-					else if ( "p".equals( name ) ||
-					          "l".equals( name ) ||
-					          "f".equals( name ) )
-					{
-						if ( argCount < 1 )
-						{
-							throw new IOException( "too few face arguments in: " + line );
-						}
+			System.arraycopy( chunk.getVertexNormals(), 0, vertexNormals, vertexNormalCount * 3, chunk.getVertexNormalCount() * 3 );
+			vertexNormalCount += chunk.getVertexNormalCount();
 
-						final int objVertexCount = vertexCoordinates.size();
-						if ( objVertexCount < 1 )
-						{
-							throw new IOException( "vertex used before vertex declaration" );
-						}
+			final Exception error = chunk.getError();
+			if ( error instanceof IOException )
+			{
+				throw (IOException)error;
+			}
+			if ( error != null )
+			{
+				throw (RuntimeException)error;
+			}
+		}
 
-						final List<ObjFaceVertex> faceVertices = new ArrayList<ObjFaceVertex>( argCount - 1 );
+//		System.out.println( " - OBJ file loaded succesfully" );
 
-						for ( int argIndex = 1 ; argIndex <= argCount ; argIndex++ )
-						{
-							final String arg = tokens[ argIndex ];
+		builder.setVertexCoordinates( vertexCoordinates );
 
-							final Matcher matcher = POLYGON_VERTEX_PATTERN.matcher( arg );
-							if ( !matcher.matches() )
-							{
-								throw new IOException( "malformed face argument in: " + line );
-							}
+		/*
+		 * Build faces.
+		 */
+		final Vector3D[] vertexNormalCache = new Vector3D[ vertexNormalCount ];
+		Appearance material = DEFAULT_MATERIALS.get( "default" );
 
-							final int vertexIndex        = Integer.parseInt( matcher.group( 1 ) ) - 1;
-							final int textureVertexIndex = ( matcher.group( 3 ) != null ) ? Integer.parseInt( matcher.group( 3 ) ) - 1 : -1;
-							final int vertexNormalIndex  = ( matcher.group( 5 ) != null ) ? Integer.parseInt( matcher.group( 5 ) ) - 1 : -1;
+		for ( final ObjChunk chunk : chunks )
+		{
+			final List<ObjChunk.Directive> directives = chunk.getDirectives();
+			int directiveIndex = 0;
 
-							faceVertices.add( new ObjFaceVertex( vertexIndex, textureVertexIndex, vertexNormalIndex ) );
-						}
+			final int[] faceStarts = chunk.getFaceStarts();
+			final int[] faceVertices = chunk.getFaceVertices();
 
-						faces.add( new ObjFace( faceVertices, material ) );
-					}
-					/*
-					 * g group_name1 group_name2 . . .
-					 *
-					 *     Polygonal and free-form geometry statement.
-					 *
-					 *     Specifies the group name for the elements that follow it. You can
-					 *     have multiple group names. If there are multiple groups on one
-					 *     line, the data that follows belong to all groups. Group information
-					 *     is optional.
-					 *
-					 *     group_name is the name for the group. Letters, numbers, and
-					 *     combinations of letters and numbers are accepted for group names.
-					 *     The default group name is default.
-					 */
-					else if ( "g".equals( name ) )
+			for ( int faceIndex = 0; faceIndex < chunk.getFaceCount(); faceIndex++ )
+			{
+				while ( ( directiveIndex < directives.size() ) && ( directives.get( directiveIndex ).getFaceIndex() <= faceIndex ) )
+				{
+					final ObjChunk.Directive directive = directives.get( directiveIndex++ );
+					if ( directive.getType() == ObjChunk.Directive.Type.USEMTL )
 					{
-//						if ( argCount < 1 )
-//							throw new IOException( "too few group arguments in: " + line );
+						material = directive.getAppearance();
+					}
+				}
+
+				final int faceStart = faceStarts[ faceIndex ];
+				final int faceVertexCount = faceStarts[ faceIndex + 1 ] - faceStart;
+				final List<Vertex3D> vertices = new ArrayList<Vertex3D>( faceVertexCount );
+
+				boolean smooth = false;
+				Vector3D fixedVertexNormal = null;
+
+				for ( int faceVertexIndex = faceVertexCount; --faceVertexIndex >= 0; )
+				{
+					final int offset = ( faceStart + faceVertexIndex ) * 3;
 
-						// groups = ArrayTools.remove( tokens, 0, 0 );
+					final int vertexIndex = faceVertices[ offset ];
+					if ( ( vertexIndex < 0 ) || ( vertexIndex >= totalVertexCount ) )
+					{
+						throw new IOException( "out-of-bounds vertex (" + vertexIndex + " >= " + totalVertexCount + ')' );
 					}
-					/*
-					 * mtllib filename1 filename2 . . .
-					 *
-					 *     Polygonal and free-form geometry statement.
-					 *
-					 *     Specifies the material library file for the material definitions
-					 *     set with the usemtl statement. You can specify multiple filenames
-					 *     with mtllib. If multiple filenames are specified, the first file
-					 *     listed is searched first for the material definition, the second
-					 *     file is searched next, and so on.
-					 *
-					 *     When you assign a material library using the Model program, only
-					 *     one map library per .obj file is allowed. You can assign multiple
-					 *     libraries using a text editor.
-					 *
-					 *     filename is the name of the library file that defines the
-					 *     materials.  There is no default.
-					 *
-					 */
-					else if ( "mtllib".equals( name ) )
+
+					final Vertex3D vertex = new Vertex3D( vertexCoordinates.get( vertexIndex ), vertexIndex );
+					vertices.add( vertex );
+
+					final int textureVertexIndex = faceVertices[ offset + 1 ];
+					if ( textureVertexIndex >= 0 )
 					{
-						if ( argCount < 1 )
+						if ( textureVertexIndex >= textureVertexCount )
 						{
-							throw new IOException( "too few material library arguments in: " + line );
+							throw new IOException( "out-of-bounds texture vertex (" + textureVertexIndex + " >= " + textureVertexCount + ')' );
 						}
 
-						if ( !skipMtl )
-						{
-							loadMtlFile( loader, line.substring( 7 ) );
-						}
+						vertex.colorMapU = textureVertices[ textureVertexIndex * 2 ];
+						vertex.colorMapV = textureVertices[ textureVertexIndex * 2 + 1 ];
 					}
-					/*
-					 * o object_name
-					 *
-					 *     Polygonal and free-form geometry statement.
-					 *
-					 *     Optional statement; it is not processed by any Wavefront programs.
-					 *     It specifies a user-defined object name for the elements defined
-					 *     after this statement.
-					 *
-					 *     object_name is the user-defined object name. There is no default.
-					 */
-					else if ( "o".equals( name ) ) // object name (e.g. "o complete_lavalamp.lwo")
-					{
-						objectName = getStringAfter( line, tokens, 1 );
-					}
-					/*
-					 * usemtl material_name
-					 *
-					 *     Polygonal and free-form geometry statement.
-					 *
-					 *     Specifies the material name for the element following it. Once a
-					 *     material is assigned, it cannot be turned off; it can only be
-					 *     changed.
-					 *
-					 *     material_name is the name of the material. If a material name is
-					 *     not specified, a white material is used.
-					 *
-					 */
-					else if ( "usemtl".equals( name ) )
+
+					final int vertexNormalIndex = faceVertices[ offset + 2 ];
+					if ( vertexNormalIndex >= 0 )
 					{
-						String materialName = "";
-						if ( argCount >= 1 )
+						if ( vertexNormalIndex >= vertexNormalCount )
 						{
-							materialName = getStringAfter( line, tokens, 1 );
-							materialName = materialName.replace( ' ', '_' );
+							throw new IOException( "out-of-bounds vertex normal (" + vertexNormalIndex + " >= " + vertexNormalCount + ')' );
 						}
-						material = _materials.get( materialName );
 
-						if ( material == null )
+						Vector3D vertexNormal = vertexNormalCache[ vertexNormalIndex ];
+						if ( vertexNormal == null )
 						{
-							material = DEFAULT_MATERIALS.get( materialName );
+							vertexNormal = new Vector3D( vertexNormals[ vertexNormalIndex * 3 ], vertexNormals[ vertexNormalIndex * 3 + 1 ], vertexNormals[ vertexNormalIndex * 3 + 2 ] );
+							vertexNormalCache[ vertexNormalIndex ] = vertexNormal;
 						}
 
-						if ( material == null )
+						if ( fixedVertexNormal == null )
 						{
-							material = new BasicAppearance();
-							_materials.put( materialName, material );
-
-							if ( !skipMtl )
-							{
-								System.err.println( "'usemtl' references unknown material '" + materialName + '\'' );
-							}
+							fixedVertexNormal = vertexNormal;
 						}
+						else
+						{
+							smooth |= !fixedVertexNormal.equals( vertexNormal );
+						}
+
+						vertex.setNormal( vertexNormal );
 					}
-/*
-					else
-					{
-						System.err.println( "unrecognized entry: " + line );
-					}
-*/
 				}
-				catch ( NumberFormatException ignored )
+
+				builder.addFace( vertices, null, material, smooth, false );
+			}
+
+			while ( directiveIndex < directives.size() )
+			{
+				final ObjChunk.Directive directive = directives.get( directiveIndex++ );
+				if ( directive.getType() == ObjChunk.Directive.Type.USEMTL )
 				{
-					throw new IOException( "malformed numeric value: " + line );
+					material = directive.getAppearance();
 				}
 			}
 		}
 
-//		System.out.println( " - OBJ file loaded succesfully" );
-
-		builder.setVertexCoordinates( vertexCoordinates );
-
-		List<Vector3D> assignedVertexNormals = null;
+		return objectName;
+	}
 
-		for ( final ObjFace objFace : faces )
+	/**
+	 * Reads the OBJ file in chunks. Each chunk ends at the end of a line
+	 * that is not continued on the next line. If an {@link ExecutorService}
+	 * is set, chunks are parsed in parallel; otherwise, all data is parsed
+	 * into a single chunk by the calling thread.
+	 *
+	 * @param   objReader   Reader for OBJ file.
+	 *
+	 * @return  Parsed chunks, in file order.
+	 *
+	 * @throws  IOException if an error occurs while reading the file.
+	 */
+	private List<ObjChunk> readChunks( @NotNull final Reader objReader )
+		throws IOException
+	{
+		final Matrix3D transform = _transform;
+		final ExecutorService executorService = _executorService;
+		final int chunkSize = _chunkSize;
+
+		final List<ObjChunk> result = new ArrayList<ObjChunk>();
+		final List<Future<ObjChunk>> futures = new ArrayList<Future<ObjChunk>>();
+		final ObjChunk sequentialChunk = ( executorService == null ) ? new ObjChunk( transform ) : null;
+
+		char[] buffer = new char[ chunkSize ];
+		int length = 0;
+		int lineStart = 0;
+		int splitPoint = 0;
+		boolean continuation = false;
+		boolean eof = false;
+
+		while ( !eof && ( ( sequentialChunk == null ) || ( sequentialChunk.getError() == null ) ) )
 		{
-			final List<ObjFaceVertex> faceVertices = objFace._vertices;
-			final int faceVertexCount = faceVertices.size();
-			final List<Vertex3D> vertices = new ArrayList<Vertex3D>( faceVertexCount );
-
-			boolean smooth = false;
-			Vector3D fixedVertexNormal = null;
-
-			for ( int faceVertexIndex = 0 ; faceVertexIndex < faceVertexCount ; faceVertexIndex++ )
+			if ( length == buffer.length )
 			{
-				final ObjFaceVertex objFaceVertex = faceVertices.get( faceVertexCount - faceVertexIndex - 1 );
-
-				final int vertexIndex = objFaceVertex._vertexIndex;
-				if ( vertexIndex >= vertexCoordinates.size() )
-				{
-					throw new IOException( "out-of-bounds vertex (" + vertexIndex + " >= " + vertexCoordinates.size() + ')' );
-				}
+				// Line does not fit in buffer.
+				buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+			}
 
-				final Vertex3D vertex = new Vertex3D( vertexCoordinates.get( vertexIndex ), vertexIndex );
-				vertices.add( vertex );
+			final int read = objReader.read( buffer, length, buffer.length - length );
+			if ( read < 0 )
+			{
+				eof = true;
+			}
+			else
+			{
+				length += read;
+			}
 
-				final int textureVertexIndex = objFaceVertex._textureVertexIndex;
-				if ( textureVertexIndex >= 0 )
+			/*
+			 * Find end of last line that is not continued.
+			 */
+			int position = lineStart;
+			while ( position < length )
+			{
+				final char c = buffer[ position ];
+				if ( ( c == '\n' ) || ( c == '\r' ) )
 				{
-					if ( textureVertexIndex >= textureVertices.size() )
+					if ( ( c == '\r' ) && ( position + 1 == length ) && !eof )
 					{
-						throw new IOException( "out-of-bounds texture vertex (" + textureVertexIndex + " >= " + textureVertices.size() + ')' );
+						// Wait for next character to detect CR+LF.
+						break;
 					}
 
-					final Vector3f texturePoint = textureVertices.get( textureVertexIndex );
-					vertex.colorMapU = texturePoint.getX();
-					vertex.colorMapV = texturePoint.getY();
-				}
+					continuation = ObjChunk.isContinued( buffer, lineStart, position, continuation );
+					lineStart = position + ( ( ( c == '\r' ) && ( position + 1 < length ) && ( buffer[ position + 1 ] == '\n' ) ) ? 2 : 1 );
+					position = lineStart;
 
-				final int vertexNormalIndex = objFaceVertex._vertexNormalIndex;
-				if ( vertexNormalIndex >= 0 )
-				{
-					if ( vertexNormalIndex >= vertexNormals.size() )
+					if ( !continuation )
 					{
-						throw new IOException( "out-of-bounds vertex normal (" + vertexNormalIndex + " >= " + vertexNormals.size() + ')' );
+						splitPoint = lineStart;
 					}
+				}
+				else
+				{
+					position++;
+				}
+			}
+
+			if ( eof )
+			{
+				splitPoint = length;
+			}
+
+			if ( ( splitPoint > 0 ) && ( eof || ( length == buffer.length ) ) )
+			{
+				final int remaining = length - splitPoint;
 
-					final Vector3D vertexNormal = vertexNormals.get( vertexNormalIndex );
+				if ( sequentialChunk != null )
+				{
+					sequentialChunk.parse( buffer, 0, splitPoint );
+					System.arraycopy( buffer, splitPoint, buffer, 0, remaining );
+				}
+				else
+				{
+					final char[] chunkChars = buffer;
+					final int chunkEnd = splitPoint;
 
-					if ( assignedVertexNormals == null )
+					futures.add( executorService.submit( new Callable<ObjChunk>()
 					{
-						assignedVertexNormals = new ArrayList<Vector3D>( vertexCoordinates.size() );
-						for ( int i = vertexCoordinates.size() ; --i >= 0 ; )
+						@Override
+						public ObjChunk call()
 						{
-							assignedVertexNormals.add( Vector3D.ZERO );
+							final ObjChunk chunk = new ObjChunk( transform );
+							chunk.parse( chunkChars, 0, chunkEnd );
+							return chunk;
 						}
-					}
+					} ) );
 
-					assignedVertexNormals.set( vertexIndex, vertexNormal );
+					buffer = new char[ Math.max( chunkSize, remaining * 2 ) ];
+					System.arraycopy( chunkChars, splitPoint, buffer, 0, remaining );
 
-					if ( fixedVertexNormal == null )
-					{
-						fixedVertexNormal = vertexNormal;
-					}
-					else
+					/*
+					 * Limit the number of pending chunks, so we don't read the
+					 * whole file into memory if parsing is slower than reading.
+					 */
+					if ( futures.size() - result.size() > MAXIMUM_PENDING_CHUNKS )
 					{
-						smooth |= !fixedVertexNormal.equals( vertexNormal );
+						result.add( getChunk( futures.get( result.size() ) ) );
 					}
-
-					vertex.setNormal( vertexNormal );
 				}
+
+				length = remaining;
+				lineStart -= splitPoint;
+				splitPoint = 0;
 			}
+		}
 
-			builder.addFace( vertices, null, objFace._appearance, smooth, false );
+		if ( sequentialChunk != null )
+		{
+			result.add( sequentialChunk );
+		}
+		else
+		{
+			while ( result.size() < futures.size() )
+			{
+				result.add( getChunk( futures.get( result.size() ) ) );
+			}
 		}
 
-		return objectName;
+		return result;
+	}
+
+	/**
+	 * Waits for a chunk to be parsed.
+	 *
+	 * @param   future  Future result of parsing the chunk.
+	 *
+	 * @return  Parsed chunk.
+	 *
+	 * @throws  InterruptedIOException if the current thread was interrupted.
+	 */
+	private static ObjChunk getChunk( final Future<ObjChunk> future )
+		throws InterruptedIOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch ( final InterruptedException e )
+		{
+			final InterruptedIOException exception = new InterruptedIOException( "Interrupted while parsing OBJ file" );
+			exception.initCause( e );
+			throw exception;
+		}
+		catch ( final ExecutionException e )
+		{
+			final Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException )
+			{
+				throw (RuntimeException)cause;
+			}
+			if ( cause instanceof Error )
+			{
+				throw (Error)cause;
+			}
+			throw new RuntimeException( cause );
+		}
+	}
+
+	/**
+	 * Throws an exception if the first face of a chunk refers to vertices,
+	 * while no vertices were declared.
+	 *
+	 * @param   vertexCount     Number of vertices declared before the face.
+	 *
+	 * @throws  IOException if no vertices were declared.
+	 */
+	private static void checkFirstFace( final int vertexCount )
+		throws IOException
+	{
+		if ( vertexCount < 1 )
+		{
+			throw new IOException( "vertex used before vertex declaration" );
+		}
+	}
+
+	/**
+	 * Returns the material with the given name. Unknown materials are
+	 * created on demand.
+	 *
+	 * @param   materialName    Name of material.
+	 *
+	 * @return  Material.
+	 */
+	@NotNull
+	private Appearance getMaterial( @NotNull final String materialName )
+	{
+		Appearance result = _materials.get( materialName );
+
+		if ( result == null )
+		{
+			result = DEFAULT_MATERIALS.get( materialName );
+		}
+
+		if ( result == null )
+		{
+			result = new BasicAppearance();
+			_materials.put( materialName, result );
+
+			if ( !isSkipMtl() )
+			{
+				System.err.println( "'usemtl' references unknown material '" + materialName + '\'' );
+			}
+		}
+
+		return result;
 	}
 
 	/**
@@ -738,7 +745,7 @@ public class ObjLoader
 	 * @throws  IllegalArgumentException if the <code>startIndex</code> is out
 	 *          of range.
 	 */
-	private static String getStringAfter( final String line, final String[] tokens, final int startIndex )
+	static String getStringAfter( final String line, final String[] tokens, final int startIndex )
 	{
 		if ( ( startIndex < 0 ) || ( startIndex >= tokens.length ) )
 		{
@@ -808,6 +815,47 @@ public class ObjLoader
 		_skipMtl = skipMtl;
 	}
 
+	/**
+	 * Returns the executor service used to parse OBJ data in parallel.
+	 *
+	 * @return  Executor service; {@code null} if OBJ data is parsed in the
+	 *          calling thread (default).
+	 */
+	@Nullable
+	public ExecutorService getExecutorService()
+	{
+		return _executorService;
+	}
+
+	/**
+	 * Sets the executor service used to parse OBJ data in parallel. The file
+	 * is split into chunks of lines, which are parsed concurrently and then
+	 * combined in file order, so the result is the same as when the file is
+	 * parsed in the calling thread.
+	 *
+	 * @param   executorService     Executor service; {@code null} to parse
+	 *                              OBJ data in the calling thread (default).
+	 */
+	public void setExecutorService( @Nullable final ExecutorService executorService )
+	{
+		_executorService = executorService;
+	}
+
+	/**
+	 * Sets the number of characters per chunk of OBJ data. This is mostly
+	 * useful for testing.
+	 *
+	 * @param   chunkSize   Number of characters per chunk.
+	 */
+	void setChunkSize( final int chunkSize )
+	{
+		if ( chunkSize < 1 )
+		{
+			throw new IllegalArgumentException( "chunkSize: " + chunkSize );
+		}
+		_chunkSize = chunkSize;
+	}
+
 	/**
 	 * Loads a MTL file with materials used by the OBJ file.
 	 * Materials are stored in objMaterials.
@@ -987,66 +1035,4 @@ public class ObjLoader
 		}
 		return line;
 	}
-
-	/**
-	 * This class is used to represent a face in an OBJ file.
-	 */
-	private static class ObjFace
-	{
-		/**
-		 * Vertices in face.
-		 */
-		private final List<ObjFaceVertex> _vertices;
-
-		/**
-		 * Material of face.
-		 */
-		private final Appearance _appearance;
-
-		/**
-		 * Construct face.
-		 * @param   vertices    Vertices in face.
-		 * @param   appearance    Material of face.
-		 */
-		private ObjFace( final List<ObjFaceVertex> vertices, final Appearance appearance )
-		{
-			_vertices = vertices;
-			_appearance = appearance;
-		}
-	}
-
-	/**
-	 * This class is used to represent a vertex of a face in an OBJ file.
-	 */
-	private static class ObjFaceVertex
-	{
-		/**
-		 * Index of vertex (0=first).
-		 */
-		private final int _vertexIndex;
-
-		/**
-		 * Index of texture vertex (0=first, -1=undefined).
-		 */
-		private final int _textureVertexIndex;
-
-		/**
-		 * Index of vertex normal (0=first, -1=undefined).
-		 */
-		private final int _vertexNormalIndex;
-
-		/**
-		 * Construct vertex.
-		 *
-		 * @param   vertexIndex         Index of vertex (0=first).
-		 * @param   textureVertexIndex  Index of texture vertex (0=first, -1=undefined).
-		 * @param   vertexNormalIndex   Index of vertex normal (0=first, -1=undefined).
-		 */
-		private ObjFaceVertex( final int vertexIndex, final int textureVertexIndex, final int vertexNormalIndex )
-		{
-			_vertexIndex = vertexIndex;
-			_textureVertexIndex = textureVertexIndex;
-			_vertexNormalIndex = vertexNormalIndex;
-		}
-	}
 }
@@ -19,9 +19,13 @@
 package ab.j3d.loader;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.nio.charset.*;
+import java.nio.file.*;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import ab.j3d.*;
@@ -38,6 +42,12 @@ import org.jetbrains.annotations.*;
  */
 public class ObjWriter
 {
+	/**
+	 * Maximum number of objects that are encoded before they are written in
+	 * streaming mode.
+	 */
+	private static final int STREAMING_BATCH_SIZE = 64;
+
 	/**
 	 * Number format with up to 6 decimals.
 	 */
@@ -113,6 +123,19 @@ public class ObjWriter
 	 */
 	private boolean _writeFaceNormals = false;
 
+	/**
+	 * Whether OBJ files are written object by object, instead of writing a
+	 * single vertex list for all objects.
+	 */
+	private boolean _streaming = false;
+
+	/**
+	 * Pool used to encode objects in streaming mode; {@code null} to use the
+	 * common pool.
+	 */
+	@Nullable
+	private ForkJoinPool _encodingPool = null;
+
 	/**
 	 * Constructs a new instance.
 	 *
@@ -209,6 +232,55 @@ public class ObjWriter
 		_writeFaceNormals = writeFaceNormals;
 	}
 
+	/**
+	 * Returns whether OBJ files are written object by object. In streaming
+	 * mode, the vertices, texture vertices and normals of each object are
+	 * written just before its faces, and are only shared within that object.
+	 * Objects are encoded in parallel and written in order, so memory use
+	 * depends on the size of the largest objects instead of the whole scene.
+	 *
+	 * @return {@code true} if OBJ files are written object by object.
+	 */
+	public boolean isStreaming()
+	{
+		return _streaming;
+	}
+
+	/**
+	 * Sets whether OBJ files are written object by object.
+	 *
+	 * @param streaming {@code true} to write OBJ files object by object.
+	 *
+	 * @see #isStreaming()
+	 */
+	public void setStreaming( final boolean streaming )
+	{
+		_streaming = streaming;
+	}
+
+	/**
+	 * Returns the pool used to encode objects in streaming mode.
+	 *
+	 * @return Pool used to encode objects; {@code null} if the common pool is
+	 * used.
+	 */
+	@Nullable
+	public ForkJoinPool getEncodingPool()
+	{
+		return _encodingPool;
+	}
+
+	/**
+	 * Sets the pool used to encode objects in streaming mode.
+	 *
+	 * @param encodingPool Pool used to encode objects; {@code null} to use the
+	 *                     common pool (default).
+	 */
+	public void setEncodingPool( @Nullable final ForkJoinPool encodingPool )
+	{
+		_encodingPool = encodingPool;
+	}
+
 	/**
 	 * Add {@link Appearance} to MTL file. If the appearance was added before,
 	 * calling this method will have no effect.
@@ -553,6 +625,24 @@ public class ObjWriter
 		}
 	}
 
+	/**
+	 * Writes an OBJ file for the given node.
+	 *
+	 * @param file              File to write.
+	 * @param node              Node to be written.
+	 * @param materialLibraries Names of material libraries.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void write( @NotNull final Path file, final Node3D node, final String... materialLibraries )
+	throws IOException
+	{
+		try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) )
+		{
+			write( channel, node, materialLibraries );
+		}
+	}
+
 	/**
 	 * Writes an OBJ file for the given node.
 	 *
@@ -565,9 +655,41 @@ public class ObjWriter
 	public void write( final OutputStream out, final Node3D node, final String... materialLibraries )
 	throws IOException
 	{
-		final Writer objWriter = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.US_ASCII ) );
-		write( objWriter, node, materialLibraries );
-		objWriter.flush();
+		if ( isStreaming() )
+		{
+			writeStreaming( Channels.newChannel( out ), node, materialLibraries );
+			out.flush();
+		}
+		else
+		{
+			final Writer objWriter = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.US_ASCII ) );
+			write( objWriter, node, materialLibraries );
+			objWriter.flush();
+		}
+	}
+
+	/**
+	 * Writes an OBJ file for the given node.
+	 *
+	 * @param channel           Channel to write to.
+	 * @param node              Node to be written.
+	 * @param materialLibraries Names of material libraries.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void write( @NotNull final WritableByteChannel channel, final Node3D node, final String... materialLibraries )
+	throws IOException
+	{
+		if ( isStreaming() )
+		{
+			writeStreaming( channel, node, materialLibraries );
+		}
+		else
+		{
+			final Writer objWriter = new BufferedWriter( new OutputStreamWriter( Channels.newOutputStream( channel ), StandardCharsets.US_ASCII ) );
+			write( objWriter, node, materialLibraries );
+			objWriter.flush();
+		}
 	}
 
 	/**
@@ -582,23 +704,148 @@ public class ObjWriter
 	public void write( final Writer out, final Node3D node, final String... materialLibraries )
 	throws IOException
 	{
+		if ( isStreaming() )
+		{
+			writeStreaming( new WritableByteChannel()
+			{
+				@Override
+				public int write( final ByteBuffer src )
+				throws IOException
+				{
+					final int result = src.remaining();
+					out.write( StandardCharsets.US_ASCII.decode( src ).array(), 0, result );
+					return result;
+				}
+
+				@Override
+				public boolean isOpen()
+				{
+					return true;
+				}
+
+				@Override
+				public void close()
+				{
+				}
+			}, node, materialLibraries );
+		}
+		else
+		{
+			for ( final String materialLibrary : materialLibraries )
+			{
+				//noinspection SpellCheckingInspection
+				out.write( "mtllib " );
+				out.write( materialLibrary );
+				out.write( "\r\n" );
+			}
+
+			final ArrayList<Node3DPath> nodes = new ArrayList<>();
+			Node3DTreeWalker.walk( new Node3DCollector( nodes, Object3D.class ), node );
+
+			final Map<Node3DPath, List<ObjVertex[]>> vertexMaps = createVertexMap( nodes );
+
+			writeVertexList( out );
+			writeTextureVertexList( out );
+			writeNormalList( out );
+			writeObjects( out, nodes, vertexMaps );
+		}
+	}
+
+	/**
+	 * Writes an OBJ file for the given node object by object. Objects are
+	 * encoded in batches. Each batch is encoded in two parallel passes: the
+	 * first pass encodes vertices, texture vertices and normals; the second
+	 * pass encodes faces, once the index offsets of all objects in the batch
+	 * are known.
+	 *
+	 * @param channel           Channel to write to.
+	 * @param node              Node to be written.
+	 * @param materialLibraries Names of material libraries.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private void writeStreaming( @NotNull final WritableByteChannel channel, final Node3D node, final String... materialLibraries )
+	throws IOException
+	{
+		final AsciiBuffer header = new AsciiBuffer( 256 );
 		for ( final String materialLibrary : materialLibraries )
 		{
 			//noinspection SpellCheckingInspection
-			out.write( "mtllib " );
-			out.write( materialLibrary );
-			out.write( "\r\n" );
+			header.append( "mtllib " ).append( materialLibrary ).append( "\r\n" );
 		}
+		header.writeTo( channel );
 
 		final ArrayList<Node3DPath> nodes = new ArrayList<>();
 		Node3DTreeWalker.walk( new Node3DCollector( nodes, Object3D.class ), node );
 
-		final Map<Node3DPath, Map<Vertex3D, ObjVertex>> vertexMaps = createVertexMap( nodes );
+		final ForkJoinPool encodingPool = _encodingPool;
+		final ForkJoinPool pool = ( encodingPool != null ) ? encodingPool : ForkJoinPool.commonPool();
+		final int batchSize = Math.max( STREAMING_BATCH_SIZE, 4 * pool.getParallelism() );
+
+		int vertexOffset = 0;
+		int textureVertexOffset = 0;
+		int normalOffset = 0;
+
+		for ( int batchStart = 0; batchStart < nodes.size(); batchStart += batchSize )
+		{
+			final int batchEnd = Math.min( nodes.size(), batchStart + batchSize );
+
+			final ObjectEncoder[] encoders = new ObjectEncoder[ batchEnd - batchStart ];
+			for ( int i = 0; i < encoders.length; i++ )
+			{
+				encoders[ i ] = createObjectEncoder( nodes.get( batchStart + i ) );
+			}
+
+			pool.invoke( new EncodeTask( encoders, false, 0, encoders.length ) );
+
+			for ( final ObjectEncoder encoder : encoders )
+			{
+				encoder.setOffsets( vertexOffset, textureVertexOffset, normalOffset );
+				vertexOffset += encoder.getVertexCount();
+				textureVertexOffset += encoder.getTextureVertexCount();
+				normalOffset += encoder.getNormalCount();
+			}
+
+			pool.invoke( new EncodeTask( encoders, true, 0, encoders.length ) );
+
+			for ( final ObjectEncoder encoder : encoders )
+			{
+				encoder.writeTo( channel );
+			}
+		}
+	}
+
+	/**
+	 * Creates an encoder for the given object. Names of the object and its
+	 * materials are assigned here, in order, so the output does not depend on
+	 * the order in which objects are encoded.
+	 *
+	 * @param path Path to the object.
+	 *
+	 * @return Object encoder.
+	 */
+	@NotNull
+	private ObjectEncoder createObjectEncoder( @NotNull final Node3DPath path )
+	{
+		final Object3D object = (Object3D)path.getNode();
+		final List<FaceGroup> faceGroups = object.getFaceGroups();
 
-		writeVertexList( out );
-		writeTextureVertexList( out );
-		writeNormalList( out );
-		writeObjects( out, nodes, vertexMaps );
+		CharSequence objectName = null;
+		final String[] materialNames = new String[ faceGroups.size() ];
+		for ( int i = 0; i < materialNames.length; i++ )
+		{
+			final Appearance appearance = faceGroups.get( i ).getAppearance();
+			if ( appearance != null )
+			{
+				if ( objectName == null )
+				{
+					objectName = getObjectName( object );
+				}
+				materialNames[ i ] = addAppearance( appearance );
+			}
+		}
+
+		return new ObjectEncoder( path, ( objectName == null ) ? null : ( ( isWriteObjectsAsGroups() ? "g " : "o " ) + objectName ), materialNames, isWriteFaceNormals() );
 	}
 
 	/**
@@ -672,17 +919,17 @@ public class ObjWriter
 	 *
 	 * @param out        Stream to write to.
 	 * @param objects    Objects to write.
-	 * @param vertexMaps Map from 3D scene to OBJ file vertices.
+	 * @param vertexMaps OBJ file vertices of each face, by object.
 	 *
 	 * @throws IOException if the object could not be written.
 	 */
-	private void writeObjects( final Appendable out, final Iterable<Node3DPath> objects, final Map<Node3DPath, Map<Vertex3D, ObjVertex>> vertexMaps )
+	private void writeObjects( final Appendable out, final Iterable<Node3DPath> objects, final Map<Node3DPath, List<ObjVertex[]>> vertexMaps )
 	throws IOException
 	{
 		for ( final Node3DPath path : objects )
 		{
 			final Object3D object = (Object3D)path.getNode();
-			final Map<Vertex3D, ObjVertex> vertexMap = vertexMaps.get( path );
+			final Iterator<ObjVertex[]> faceVertices = vertexMaps.get( path ).iterator();
 			Appearance currentAppearance = null;
 
 			for ( final FaceGroup faceGroup : object.getFaceGroups() )
@@ -708,9 +955,23 @@ public class ObjWriter
 						currentAppearance = appearance;
 					}
 
-					for ( final Face3D face : faceGroup.getFaces() )
+					if ( faceGroup instanceof CompactFaceGroup )
 					{
-						writeFace( out, faceGroup, face, vertexMap );
+						writeFaces( out, (CompactFaceGroup)faceGroup, faceVertices );
+					}
+					else
+					{
+						for ( final Face3D face : faceGroup.getFaces() )
+						{
+							writeFace( out, faceGroup, face, faceVertices.next() );
+						}
+					}
+				}
+				else
+				{
+					for ( int i = faceGroup.getFaces().size(); --i >= 0; )
+					{
+						faceVertices.next();
 					}
 				}
 			}
@@ -720,30 +981,21 @@ public class ObjWriter
 	/**
 	 * Write {@link Face3D} to output.
 	 *
-	 * @param out       Stream to write to.
-	 * @param faceGroup Face group to which the face belongs.
-	 * @param vertexMap Map from 3D scene to OBJ file vertices.
-	 * @param face      Face to write.
+	 * @param out          Stream to write to.
+	 * @param faceGroup    Face group to which the face belongs.
+	 * @param face         Face to write.
+	 * @param faceVertices OBJ file vertices of the face.
 	 *
 	 * @throws IOException if the object could not be written.
 	 */
-	private void writeFace( @NotNull final Appendable out, @NotNull final FaceGroup faceGroup, @NotNull final Face3D face, @NotNull final Map<Vertex3D, ObjVertex> vertexMap )
+	private void writeFace( @NotNull final Appendable out, @NotNull final FaceGroup faceGroup, @NotNull final Face3D face, @NotNull final ObjVertex[] faceVertices )
 	throws IOException
 	{
 		final boolean twoSided = faceGroup.isTwoSided();
 
-		final ObjVertex[] faceVertices = new ObjVertex[ face.getVertexCount() ];
-		for ( int i = 0; i < face.getVertexCount(); i++ )
+		if ( faceVertices.length != face.getVertexCount() )
 		{
-			final Vertex3D vertex = face.getVertex( i );
-
-			final ObjVertex objVertex = vertexMap.get( vertex );
-			if ( objVertex == null )
-			{
-				throw new AssertionError( "vertex not defined" );
-			}
-
-			faceVertices[ i ] = objVertex;
+			throw new AssertionError( "vertex not defined" );
 		}
 
 		final Tessellation tessellation = face.getTessellation();
@@ -758,6 +1010,40 @@ public class ObjWriter
 		}
 	}
 
+	/**
+	 * Write faces of a {@link CompactFaceGroup} to output. The triangles are
+	 * read from the packed arrays of the face group.
+	 *
+	 * @param out          Stream to write to.
+	 * @param faceGroup    Face group to write.
+	 * @param faceVertices OBJ file vertices of each face.
+	 *
+	 * @throws IOException if the object could not be written.
+	 */
+	private void writeFaces( @NotNull final Appendable out, @NotNull final CompactFaceGroup faceGroup, @NotNull final Iterator<ObjVertex[]> faceVertices )
+	throws IOException
+	{
+		final boolean twoSided = faceGroup.isTwoSided();
+		final int[] faceStarts = faceGroup.getFaceStarts();
+		final int[] triangles = faceGroup.getTriangles();
+		final int[] triangleStarts = faceGroup.getTriangleStarts();
+
+		for ( int face = 0; face < faceStarts.length - 1; face++ )
+		{
+			final ObjVertex[] vertices = faceVertices.next();
+			final int faceStart = faceStarts[ face ];
+			if ( vertices.length != faceStarts[ face + 1 ] - faceStart )
+			{
+				throw new AssertionError( "vertex not defined" );
+			}
+
+			for ( int i = triangleStarts[ face ]; i < triangleStarts[ face + 1 ]; i += 3 )
+			{
+				writeFace( out, twoSided, vertices[ triangles[ i ] - faceStart ], vertices[ triangles[ i + 1 ] - faceStart ], vertices[ triangles[ i + 2 ] - faceStart ] );
+			}
+		}
+	}
+
 	/**
 	 * Write face to OBJ file.
 	 *
@@ -835,76 +1121,759 @@ public class ObjWriter
 	}
 
 	/**
-	 * Create map from 3D scene vertices to OBJ file vertices.
+	 * Create map from 3D scene vertices to OBJ file vertices. The OBJ file
+	 * vertices of each face are stored in the order in which the faces are
+	 * returned by {@link FaceGroup#getFaces()}.
 	 *
 	 * @param nodes Nodes containing 3D scene.
 	 *
-	 * @return Map from 3D scene to OBJ file vertices.
+	 * @return OBJ file vertices of each face, by object.
 	 */
-	private Map<Node3DPath, Map<Vertex3D, ObjVertex>> createVertexMap( final Iterable<Node3DPath> nodes )
+	private Map<Node3DPath, List<ObjVertex[]>> createVertexMap( final Iterable<Node3DPath> nodes )
 	{
 		final HashList<Vector3D> vertices = _vertices;
 		final HashList<Vector2f> textureVertices = _textureVertices;
 		final HashList<Vector3D> normals = _normals;
 
-		final Map<Node3DPath, Map<Vertex3D, ObjVertex>> vertexMaps = new IdentityHashMap<>();
+		final Map<Node3DPath, List<ObjVertex[]>> vertexMaps = new IdentityHashMap<>();
 		for ( final Node3DPath path : nodes )
 		{
 			final Matrix3D transform = path.getTransform();
 			final Object3D object = (Object3D)path.getNode();
 
-			final Map<Vertex3D, ObjVertex> vertexMap = new IdentityHashMap<>();
+			final List<ObjVertex[]> vertexMap = new ArrayList<>();
 
 			for ( final FaceGroup faceGroup : object.getFaceGroups() )
 			{
-				for ( final Face3D face : faceGroup.getFaces() )
+				if ( faceGroup instanceof CompactFaceGroup )
+				{
+					addVertices( vertexMap, transform, (CompactFaceGroup)faceGroup );
+				}
+				else
+				{
+					for ( final Face3D face : faceGroup.getFaces() )
+					{
+						final Vector3D faceNormal = face.getNormal();
+						final int vertexCount = face.getVertexCount();
+
+						boolean hasTextureVertex = false;
+						for ( int i = 0; i < vertexCount; i++ )
+						{
+							final Vertex3D vertex = face.getVertex( i );
+							if ( !Double.isNaN( vertex.colorMapU ) && !Double.isNaN( vertex.colorMapV ) )
+							{
+								hasTextureVertex = true;
+								break;
+							}
+						}
+
+						boolean hasVertexNormal = isWriteFaceNormals();
+						if ( !hasVertexNormal )
+						{
+							for ( int i = 0; i < vertexCount; i++ )
+							{
+								final Vector3D vertexNormal = face.getVertexNormal( i );
+								if ( vertexNormal.isNonZero() && !vertexNormal.almostEquals( faceNormal ) )
+								{
+									hasVertexNormal = true;
+									break;
+								}
+							}
+						}
+
+						final ObjVertex[] faceVertices = new ObjVertex[ vertexCount ];
+						for ( int i = 0; i < vertexCount; i++ )
+						{
+							final Vertex3D vertex = face.getVertex( i );
+							final Vector3D vertexNormal = face.getVertexNormal( i );
+
+							final int v = 1 + vertices.indexOfOrAdd( transform.transform( vertex.point ) );
+							final int vt = hasTextureVertex ? ( 1 + textureVertices.indexOfOrAdd( new Vector2f( Float.isNaN( vertex.colorMapU ) ? 0.0f : vertex.colorMapU, Float.isNaN( vertex.colorMapV ) ? 0.0f : vertex.colorMapV ) ) ) : 0;
+							final int vn = hasVertexNormal ? 1 + normals.indexOfOrAdd( transform.rotate( vertexNormal ) ) : 0;
+
+							faceVertices[ i ] = new ObjVertex( v, vt, vn );
+						}
+						vertexMap.add( faceVertices );
+					}
+				}
+			}
+
+			vertexMaps.put( path, vertexMap );
+		}
+
+		return vertexMaps;
+	}
+
+	/**
+	 * Adds the OBJ file vertices of each face in a {@link CompactFaceGroup} to
+	 * the given list. This gives the same result as for the faces returned by
+	 * {@link FaceGroup#getFaces()}, but reads the packed arrays directly.
+	 *
+	 * @param vertexMap Vertex map to add OBJ file vertices to.
+	 * @param transform Transforms face group to OBJ file coordinates.
+	 * @param faceGroup Face group whose faces to add.
+	 */
+	private void addVertices( @NotNull final List<ObjVertex[]> vertexMap, @NotNull final Matrix3D transform, @NotNull final CompactFaceGroup faceGroup )
+	{
+		final HashList<Vector3D> vertices = _vertices;
+		final HashList<Vector2f> textureVertices = _textureVertices;
+		final HashList<Vector3D> normals = _normals;
+
+		final double[] positions = faceGroup.getPositions();
+		final float[] vertexNormals = faceGroup.getNormals();
+		final float[] texCoords = faceGroup.getTexCoords();
+		final int[] cornerVertices = faceGroup.getCornerVertices();
+		final int[] faceStarts = faceGroup.getFaceStarts();
+
+		for ( int face = 0; face < faceStarts.length - 1; face++ )
+		{
+			final int faceStart = faceStarts[ face ];
+			final int faceEnd = faceStarts[ face + 1 ];
+			final Vector3D faceNormal = faceGroup.getFaceNormal( face );
+
+			boolean hasTextureVertex = false;
+			if ( texCoords != null )
+			{
+				for ( int corner = faceStart; corner < faceEnd; corner++ )
+				{
+					final int vertex = cornerVertices[ corner ];
+					if ( !Float.isNaN( texCoords[ vertex * 2 ] ) && !Float.isNaN( texCoords[ vertex * 2 + 1 ] ) )
+					{
+						hasTextureVertex = true;
+						break;
+					}
+				}
+			}
+
+			boolean hasVertexNormal = isWriteFaceNormals();
+			if ( !hasVertexNormal && ( vertexNormals != null ) )
+			{
+				for ( int corner = faceStart; corner < faceEnd; corner++ )
+				{
+					final Vector3D vertexNormal = getVertexNormal( vertexNormals, cornerVertices[ corner ], faceNormal );
+					if ( vertexNormal.isNonZero() && !vertexNormal.almostEquals( faceNormal ) )
+					{
+						hasVertexNormal = true;
+						break;
+					}
+				}
+			}
+
+			final ObjVertex[] faceVertices = new ObjVertex[ faceEnd - faceStart ];
+			for ( int corner = faceStart; corner < faceEnd; corner++ )
+			{
+				final int vertex = cornerVertices[ corner ];
+
+				final int v = 1 + vertices.indexOfOrAdd( transform.transform( positions[ vertex * 3 ], positions[ vertex * 3 + 1 ], positions[ vertex * 3 + 2 ] ) );
+				final int vt = hasTextureVertex ? ( 1 + textureVertices.indexOfOrAdd( new Vector2f( Float.isNaN( texCoords[ vertex * 2 ] ) ? 0.0f : texCoords[ vertex * 2 ], Float.isNaN( texCoords[ vertex * 2 + 1 ] ) ? 0.0f : texCoords[ vertex * 2 + 1 ] ) ) ) : 0;
+				final int vn = hasVertexNormal ? 1 + normals.indexOfOrAdd( transform.rotate( ( vertexNormals != null ) ? getVertexNormal( vertexNormals, vertex, faceNormal ) : faceNormal ) ) : 0;
+
+				faceVertices[ corner - faceStart ] = new ObjVertex( v, vt, vn );
+			}
+			vertexMap.add( faceVertices );
+		}
+	}
+
+	/**
+	 * Encodes a single object in streaming mode. Vertices, texture vertices
+	 * and normals are indexed per object; the faces are encoded once the
+	 * offsets of those indices in the file are known.
+	 */
+	private static class ObjectEncoder
+	{
+		/**
+		 * Path to the object.
+		 */
+		private final Node3DPath _path;
+
+		/**
+		 * Object or group statement; {@code null} if the object has no faces
+		 * to write.
+		 */
+		@Nullable
+		private final String _objectStatement;
+
+		/**
+		 * Material name of each face group; {@code null} for face groups that
+		 * are not written.
+		 */
+		private final String[] _materialNames;
+
+		/**
+		 * Whether to write vertex normals that are equal to the face normal.
+		 */
+		private final boolean _writeFaceNormals;
+
+		/**
+		 * Number of vertices of the object.
+		 */
+		private int _vertexCount = 0;
+
+		/**
+		 * Number of texture vertices of the object.
+		 */
+		private int _textureVertexCount = 0;
+
+		/**
+		 * Number of normals of the object.
+		 */
+		private int _normalCount = 0;
+
+		/**
+		 * Offset of the object's vertices in the file.
+		 */
+		private int _vertexOffset = 0;
+
+		/**
+		 * Offset of the object's texture vertices in the file.
+		 */
+		private int _textureVertexOffset = 0;
+
+		/**
+		 * Offset of the object's normals in the file.
+		 */
+		private int _normalOffset = 0;
+
+		/**
+		 * Triangle corners, as triplets of local vertex, texture vertex and
+		 * normal index ({@code -1} if undefined).
+		 */
+		private final IntArray _corners = new IntArray();
+
+		/**
+		 * Index of the first corner after each face group in {@link #_corners}.
+		 */
+		private final int[] _faceGroupEnds;
+
+		/**
+		 * Encoded object.
+		 */
+		private final AsciiBuffer _buffer = new AsciiBuffer( 4096 );
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param path             Path to the object.
+		 * @param objectStatement  Object or group statement.
+		 * @param materialNames    Material name of each face group.
+		 * @param writeFaceNormals Whether to write vertex normals that are
+		 *                         equal to the face normal.
+		 */
+		ObjectEncoder( @NotNull final Node3DPath path, @Nullable final String objectStatement, @NotNull final String[] materialNames, final boolean writeFaceNormals )
+		{
+			_path = path;
+			_objectStatement = objectStatement;
+			_materialNames = materialNames;
+			_writeFaceNormals = writeFaceNormals;
+			_faceGroupEnds = new int[ materialNames.length ];
+		}
+
+		public int getVertexCount()
+		{
+			return _vertexCount;
+		}
+
+		public int getTextureVertexCount()
+		{
+			return _textureVertexCount;
+		}
+
+		public int getNormalCount()
+		{
+			return _normalCount;
+		}
+
+		/**
+		 * Sets the offsets of the object's indices in the file.
+		 *
+		 * @param vertexOffset        Offset of vertices.
+		 * @param textureVertexOffset Offset of texture vertices.
+		 * @param normalOffset        Offset of normals.
+		 */
+		public void setOffsets( final int vertexOffset, final int textureVertexOffset, final int normalOffset )
+		{
+			_vertexOffset = vertexOffset;
+			_textureVertexOffset = textureVertexOffset;
+			_normalOffset = normalOffset;
+		}
+
+		/**
+		 * Encodes the object statement, vertices, texture vertices and normals,
+		 * and collects the triangle corners of all faces.
+		 */
+		public void encodeVertices()
+		{
+			final AsciiBuffer out = _buffer;
+			final String objectStatement = _objectStatement;
+			if ( objectStatement != null )
+			{
+				out.append( objectStatement ).append( "\r\n" );
+
+				final Matrix3D transform = _path.getTransform();
+				final Object3D object = (Object3D)_path.getNode();
+				final List<FaceGroup> faceGroups = object.getFaceGroups();
+
+				final AsciiBuffer textureVertexData = new AsciiBuffer( 1024 );
+				final AsciiBuffer normalData = new AsciiBuffer( 1024 );
+				final VertexWelder vertices = new VertexWelder();
+				final VertexWelder textureVertices = new VertexWelder();
+				final VertexWelder normals = new VertexWelder();
+				final IntArray corners = _corners;
+				int[] faceIndices = new int[ 3 * 16 ];
+
+				for ( int faceGroupIndex = 0; faceGroupIndex < _materialNames.length; faceGroupIndex++ )
 				{
-					final Vector3D faceNormal = face.getNormal();
-					final int vertexCount = face.getVertexCount();
+					if ( _materialNames[ faceGroupIndex ] != null )
+					{
+						final FaceGroup faceGroup = faceGroups.get( faceGroupIndex );
+						if ( faceGroup instanceof CompactFaceGroup )
+						{
+							encodeVertices( (CompactFaceGroup)faceGroup, transform, textureVertexData, normalData, vertices, textureVertices, normals );
+						}
+						else
+						{
+							for ( final Face3D face : faceGroup.getFaces() )
+							{
+								final Vector3D faceNormal = face.getNormal();
+								final int vertexCount = face.getVertexCount();
+
+								boolean hasTextureVertex = false;
+								for ( int i = 0; i < vertexCount; i++ )
+								{
+									final Vertex3D vertex = face.getVertex( i );
+									if ( !Double.isNaN( vertex.colorMapU ) && !Double.isNaN( vertex.colorMapV ) )
+									{
+										hasTextureVertex = true;
+										break;
+									}
+								}
+
+								boolean hasVertexNormal = _writeFaceNormals;
+								if ( !hasVertexNormal )
+								{
+									for ( int i = 0; i < vertexCount; i++ )
+									{
+										final Vector3D vertexNormal = face.getVertexNormal( i );
+										if ( vertexNormal.isNonZero() && !vertexNormal.almostEquals( faceNormal ) )
+										{
+											hasVertexNormal = true;
+											break;
+										}
+									}
+								}
+
+								if ( faceIndices.length < 3 * vertexCount )
+								{
+									faceIndices = new int[ 3 * vertexCount ];
+								}
+
+								for ( int i = 0; i < vertexCount; i++ )
+								{
+									final Vertex3D vertex = face.getVertex( i );
+									final Vector3D point = vertex.point;
+									faceIndices[ 3 * i ] = encodeVertex( vertices, transform.transformX( point.x, point.y, point.z ), transform.transformY( point.x, point.y, point.z ), transform.transformZ( point.x, point.y, point.z ) );
+									faceIndices[ 3 * i + 1 ] = hasTextureVertex ? encodeTextureVertex( textureVertexData, textureVertices, vertex.colorMapU, vertex.colorMapV ) : -1;
+
+									int vn = -1;
+									if ( hasVertexNormal )
+									{
+										final Vector3D vertexNormal = face.getVertexNormal( i );
+										vn = encodeNormal( normalData, normals, transform.rotateX( vertexNormal.x, vertexNormal.y, vertexNormal.z ), transform.rotateY( vertexNormal.x, vertexNormal.y, vertexNormal.z ), transform.rotateZ( vertexNormal.x, vertexNormal.y, vertexNormal.z ) );
+									}
+									faceIndices[ 3 * i + 2 ] = vn;
+								}
+
+								for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+								{
+									for ( final int vertexIndex : primitive.getTriangles() )
+									{
+										corners.add( faceIndices[ 3 * vertexIndex ], faceIndices[ 3 * vertexIndex + 1 ], faceIndices[ 3 * vertexIndex + 2 ] );
+									}
+								}
+							}
+						}
+					}
+
+					_faceGroupEnds[ faceGroupIndex ] = corners.getSize() / 3;
+				}
+
+				out.append( textureVertexData );
+				out.append( normalData );
+			}
+		}
 
-					boolean hasTextureVertex = false;
-					for ( int i = 0; i < vertexCount; i++ )
+		/**
+		 * Encodes the faces of a {@link CompactFaceGroup}. This gives the same
+		 * result as for the faces returned by {@link FaceGroup#getFaces()},
+		 * but reads the packed arrays directly and transforms each vertex of
+		 * the face group only once.
+		 *
+		 * @param faceGroup         Face group to encode.
+		 * @param transform         Transforms face group to OBJ file
+		 *                          coordinates.
+		 * @param textureVertexData Buffer to append texture vertices to.
+		 * @param normalData        Buffer to append normals to.
+		 * @param vertices          Welds vertices of the object.
+		 * @param textureVertices   Welds texture vertices of the object.
+		 * @param normals           Welds normals of the object.
+		 */
+		private void encodeVertices( @NotNull final CompactFaceGroup faceGroup, @NotNull final Matrix3D transform, @NotNull final AsciiBuffer textureVertexData, @NotNull final AsciiBuffer normalData, @NotNull final VertexWelder vertices, @NotNull final VertexWelder textureVertices, @NotNull final VertexWelder normals )
+		{
+			final double[] positions = faceGroup.getPositions();
+			final float[] vertexNormals = faceGroup.getNormals();
+			final float[] texCoords = faceGroup.getTexCoords();
+			final int[] cornerVertices = faceGroup.getCornerVertices();
+			final int[] faceStarts = faceGroup.getFaceStarts();
+			final int[] triangles = faceGroup.getTriangles();
+			final int[] triangleStarts = faceGroup.getTriangleStarts();
+			final IntArray corners = _corners;
+
+			final int[] vertexIndices = new int[ faceGroup.getVertexCount() ];
+			Arrays.fill( vertexIndices, -1 );
+			final int[] textureVertexIndices = new int[ vertexIndices.length ];
+			Arrays.fill( textureVertexIndices, -1 );
+			final int[] normalIndices = new int[ vertexIndices.length ];
+			Arrays.fill( normalIndices, -1 );
+			final int[] cornerIndices = new int[ 3 * cornerVertices.length ];
+
+			for ( int face = 0; face < faceStarts.length - 1; face++ )
+			{
+				final int faceStart = faceStarts[ face ];
+				final int faceEnd = faceStarts[ face + 1 ];
+				final Vector3D faceNormal = faceGroup.getFaceNormal( face );
+
+				boolean hasTextureVertex = false;
+				if ( texCoords != null )
+				{
+					for ( int corner = faceStart; corner < faceEnd; corner++ )
 					{
-						final Vertex3D vertex = face.getVertex( i );
-						if ( !Double.isNaN( vertex.colorMapU ) && !Double.isNaN( vertex.colorMapV ) )
+						final int vertex = cornerVertices[ corner ];
+						if ( !Float.isNaN( texCoords[ vertex * 2 ] ) && !Float.isNaN( texCoords[ vertex * 2 + 1 ] ) )
 						{
 							hasTextureVertex = true;
 							break;
 						}
 					}
+				}
 
-					boolean hasVertexNormal = isWriteFaceNormals();
-					if ( !hasVertexNormal )
+				boolean hasVertexNormal = _writeFaceNormals;
+				if ( !hasVertexNormal && ( vertexNormals != null ) )
+				{
+					for ( int corner = faceStart; corner < faceEnd; corner++ )
 					{
-						for ( int i = 0; i < vertexCount; i++ )
+						final Vector3D vertexNormal = getVertexNormal( vertexNormals, cornerVertices[ corner ], faceNormal );
+						if ( vertexNormal.isNonZero() && !vertexNormal.almostEquals( faceNormal ) )
 						{
-							final Vector3D vertexNormal = face.getVertexNormal( i );
-							if ( vertexNormal.isNonZero() && !vertexNormal.almostEquals( faceNormal ) )
+							hasVertexNormal = true;
+							break;
+						}
+					}
+				}
+
+				for ( int corner = faceStart; corner < faceEnd; corner++ )
+				{
+					final int vertex = cornerVertices[ corner ];
+
+					int v = vertexIndices[ vertex ];
+					if ( v < 0 )
+					{
+						final double x = positions[ vertex * 3 ];
+						final double y = positions[ vertex * 3 + 1 ];
+						final double z = positions[ vertex * 3 + 2 ];
+						v = encodeVertex( vertices, transform.transformX( x, y, z ), transform.transformY( x, y, z ), transform.transformZ( x, y, z ) );
+						vertexIndices[ vertex ] = v;
+					}
+					cornerIndices[ 3 * corner ] = v;
+
+					int vt = -1;
+					if ( hasTextureVertex )
+					{
+						vt = textureVertexIndices[ vertex ];
+						if ( vt < 0 )
+						{
+							vt = encodeTextureVertex( textureVertexData, textureVertices, texCoords[ vertex * 2 ], texCoords[ vertex * 2 + 1 ] );
+							textureVertexIndices[ vertex ] = vt;
+						}
+					}
+					cornerIndices[ 3 * corner + 1 ] = vt;
+
+					int vn = -1;
+					if ( hasVertexNormal )
+					{
+						final boolean hasNormal = ( vertexNormals != null ) && !Float.isNaN( vertexNormals[ vertex * 3 ] );
+						vn = hasNormal ? normalIndices[ vertex ] : -1;
+						if ( vn < 0 )
+						{
+							final Vector3D normal = hasNormal ? getVertexNormal( vertexNormals, vertex, faceNormal ) : faceNormal;
+							vn = encodeNormal( normalData, normals, transform.rotateX( normal.x, normal.y, normal.z ), transform.rotateY( normal.x, normal.y, normal.z ), transform.rotateZ( normal.x, normal.y, normal.z ) );
+							if ( hasNormal )
 							{
-								hasVertexNormal = true;
-								break;
+								normalIndices[ vertex ] = vn;
 							}
 						}
 					}
+					cornerIndices[ 3 * corner + 2 ] = vn;
+				}
+
+				for ( int i = triangleStarts[ face ]; i < triangleStarts[ face + 1 ]; i++ )
+				{
+					final int corner = triangles[ i ];
+					corners.add( cornerIndices[ 3 * corner ], cornerIndices[ 3 * corner + 1 ], cornerIndices[ 3 * corner + 2 ] );
+				}
+			}
+		}
 
-					for ( int i = 0; i < vertexCount; i++ )
+		/**
+		 * Encodes a vertex, if it was not encoded before.
+		 *
+		 * @param vertices Welds vertices of the object.
+		 * @param x        X coordinate in the OBJ file.
+		 * @param y        Y coordinate in the OBJ file.
+		 * @param z        Z coordinate in the OBJ file.
+		 *
+		 * @return Index of the vertex in the object.
+		 */
+		private int encodeVertex( @NotNull final VertexWelder vertices, final double x, final double y, final double z )
+		{
+			final int result = vertices.weld( x, y, z );
+			if ( result == _vertexCount )
+			{
+				_buffer.append( "v  " ).appendDecimal( x ).append( ' ' ).appendDecimal( y ).append( ' ' ).appendDecimal( z ).append( "\r\n" );
+				_vertexCount++;
+			}
+			return result;
+		}
+
+		/**
+		 * Encodes a texture vertex, if it was not encoded before. Undefined
+		 * ({@code NaN}) coordinates are written as zero.
+		 *
+		 * @param textureVertexData Buffer to append texture vertices to.
+		 * @param textureVertices   Welds texture vertices of the object.
+		 * @param u                 U coordinate.
+		 * @param v                 V coordinate.
+		 *
+		 * @return Index of the texture vertex in the object.
+		 */
+		private int encodeTextureVertex( @NotNull final AsciiBuffer textureVertexData, @NotNull final VertexWelder textureVertices, final float u, final float v )
+		{
+			final double x = Float.isNaN( u ) ? 0.0 : (double)u;
+			final double y = Float.isNaN( v ) ? 0.0 : (double)v;
+			final int result = textureVertices.weld( x, y, 0.0 );
+			if ( result == _textureVertexCount )
+			{
+				textureVertexData.append( "vt " ).appendDecimal( x ).append( ' ' ).appendDecimal( y ).append( "\r\n" );
+				_textureVertexCount++;
+			}
+			return result;
+		}
+
+		/**
+		 * Encodes a normal, if it was not encoded before.
+		 *
+		 * @param normalData Buffer to append normals to.
+		 * @param normals    Welds normals of the object.
+		 * @param x          X component in the OBJ file.
+		 * @param y          Y component in the OBJ file.
+		 * @param z          Z component in the OBJ file.
+		 *
+		 * @return Index of the normal in the object.
+		 */
+		private int encodeNormal( @NotNull final AsciiBuffer normalData, @NotNull final VertexWelder normals, final double x, final double y, final double z )
+		{
+			final int result = normals.weld( x, y, z );
+			if ( result == _normalCount )
+			{
+				normalData.append( "vn  " ).appendDecimal( x ).append( ' ' ).appendDecimal( y ).append( ' ' ).appendDecimal( z ).append( "\r\n" );
+				_normalCount++;
+			}
+			return result;
+		}
+
+		/**
+		 * Encodes the faces of the object. This requires the offsets to be set.
+		 */
+		public void encodeFaces()
+		{
+			if ( _objectStatement != null )
+			{
+				final AsciiBuffer out = _buffer;
+				final List<FaceGroup> faceGroups = ( (Object3D)_path.getNode() ).getFaceGroups();
+				final int[] corners = _corners.getData();
+				String currentMaterial = null;
+				int corner = 0;
+
+				for ( int faceGroupIndex = 0; faceGroupIndex < _materialNames.length; faceGroupIndex++ )
+				{
+					final String materialName = _materialNames[ faceGroupIndex ];
+					if ( materialName != null )
 					{
-						final Vertex3D vertex = face.getVertex( i );
-						final Vector3D vertexNormal = face.getVertexNormal( i );
+						//noinspection StringEquality
+						if ( materialName != currentMaterial )
+						{
+							//noinspection SpellCheckingInspection
+							out.append( "usemtl " ).append( materialName ).append( "\r\n" );
+							currentMaterial = materialName;
+						}
 
-						final int v = 1 + vertices.indexOfOrAdd( transform.transform( vertex.point ) );
-						final int vt = hasTextureVertex ? ( 1 + textureVertices.indexOfOrAdd( new Vector2f( Float.isNaN( vertex.colorMapU ) ? 0.0f : vertex.colorMapU, Float.isNaN( vertex.colorMapV ) ? 0.0f : vertex.colorMapV ) ) ) : 0;
-						final int vn = hasVertexNormal ? 1 + normals.indexOfOrAdd( transform.rotate( vertexNormal ) ) : 0;
+						final boolean twoSided = faceGroups.get( faceGroupIndex ).isTwoSided();
+						final int end = _faceGroupEnds[ faceGroupIndex ];
+						for ( ; corner < end; corner += 3 )
+						{
+							out.append( 'f' );
+							for ( int i = 0; i < 3; i++ )
+							{
+								appendVertex( out, corners, corner + i );
+							}
+							out.append( "\r\n" );
 
-						vertexMap.put( vertex, new ObjVertex( v, vt, vn ) );
+							if ( twoSided )
+							{
+								out.append( 'f' );
+								for ( int i = 3; --i >= 0; )
+								{
+									appendVertex( out, corners, corner + i );
+								}
+								out.append( "\r\n" );
+							}
+						}
 					}
 				}
 			}
+		}
 
-			vertexMaps.put( path, vertexMap );
+		/**
+		 * Appends a face vertex.
+		 *
+		 * @param out     Buffer to append to.
+		 * @param corners Triangle corners.
+		 * @param corner  Index of the corner to append.
+		 */
+		private void appendVertex( @NotNull final AsciiBuffer out, @NotNull final int[] corners, final int corner )
+		{
+			out.append( ' ' ).appendInt( 1 + _vertexOffset + corners[ 3 * corner ] );
+
+			final int textureVertexIndex = corners[ 3 * corner + 1 ];
+			final int normalIndex = corners[ 3 * corner + 2 ];
+			if ( ( textureVertexIndex >= 0 ) || ( normalIndex >= 0 ) )
+			{
+				out.append( '/' );
+
+				if ( textureVertexIndex >= 0 )
+				{
+					out.appendInt( 1 + _textureVertexOffset + textureVertexIndex );
+				}
+
+				if ( normalIndex >= 0 )
+				{
+					out.append( '/' ).appendInt( 1 + _normalOffset + normalIndex );
+				}
+			}
 		}
 
-		return vertexMaps;
+		/**
+		 * Writes the encoded object to the given channel.
+		 *
+		 * @param channel Channel to write to.
+		 *
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void writeTo( @NotNull final WritableByteChannel channel )
+		throws IOException
+		{
+			_buffer.writeTo( channel );
+		}
+	}
+
+	/**
+	 * Returns the normal of a vertex in a {@link CompactFaceGroup}, like
+	 * {@link Face3D#getVertexNormal(int)} does for a face.
+	 *
+	 * @param vertexNormals Vertex normals of the face group.
+	 * @param vertex        Vertex index.
+	 * @param faceNormal    Normal of the face.
+	 *
+	 * @return Vertex normal; the face normal if the vertex has no normal.
+	 */
+	@NotNull
+	private static Vector3D getVertexNormal( @NotNull final float[] vertexNormals, final int vertex, @NotNull final Vector3D faceNormal )
+	{
+		final float x = vertexNormals[ vertex * 3 ];
+		return Float.isNaN( x ) ? faceNormal : new Vector3D( (double)x, (double)vertexNormals[ vertex * 3 + 1 ], (double)vertexNormals[ vertex * 3 + 2 ] );
+	}
+
+	/**
+	 * Fork/join task to encode a range of objects.
+	 */
+	private static class EncodeTask
+		extends RecursiveAction
+	{
+		/**
+		 * Serialized form version.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Object encoders.
+		 */
+		private final ObjectEncoder[] _encoders;
+
+		/**
+		 * {@code true} to encode faces; {@code false} to encode vertices.
+		 */
+		private final boolean _faces;
+
+		/**
+		 * Index of first encoder.
+		 */
+		private final int _start;
+
+		/**
+		 * Index after last encoder.
+		 */
+		private final int _end;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param encoders Object encoders.
+		 * @param faces    {@code true} to encode faces; {@code false} to encode
+		 *                 vertices.
+		 * @param start    Index of first encoder.
+		 * @param end      Index after last encoder.
+		 */
+		EncodeTask( final ObjectEncoder[] encoders, final boolean faces, final int start, final int end )
+		{
+			_encoders = encoders;
+			_faces = faces;
+			_start = start;
+			_end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			final int start = _start;
+			final int end = _end;
+
+			if ( end - start == 1 )
+			{
+				final ObjectEncoder encoder = _encoders[ start ];
+				if ( _faces )
+				{
+					encoder.encodeFaces();
+				}
+				else
+				{
+					encoder.encodeVertices();
+				}
+			}
+			else if ( end > start )
+			{
+				final int middle = ( start + end ) >>> 1;
+				invokeAll( new EncodeTask( _encoders, _faces, start, middle ), new EncodeTask( _encoders, _faces, middle, end ) );
+			}
+		}
 	}
 
 	/**
@@ -21,6 +21,9 @@
 package ab.j3d.loader;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
 import java.util.regex.*;
 
 import ab.j3d.*;
@@ -120,6 +123,17 @@ public class StlLoader
 	 */
 	private static final Pattern ENDFACET_PATTERN = Pattern.compile( "\\s*endfacet\\s*" );
 
+	/**
+	 * Size of binary STL header in bytes.
+	 */
+	private static final int BINARY_HEADER_SIZE = 80;
+
+	/**
+	 * Size of each triangle in a binary STL file in bytes: normal and 3
+	 * vertices of 3 floats each, followed by a 2-byte attribute.
+	 */
+	private static final int BINARY_TRIANGLE_SIZE = 50;
+
 	/**
 	 * Appearance to use for resulting 3D object.
 	 */
@@ -220,6 +234,66 @@ public class StlLoader
 		return result;
 	}
 
+	/**
+	 * Load the specified STL file. Binary STL files are memory-mapped.
+	 *
+	 * @param   transform       Transormation to apply to the STL (mostly used
+	 *                          to for scaling and axis alignment).
+	 * @param   file            STL file to load.
+	 *
+	 * @return  {@link Object3D} with loaded STL file.
+	 *
+	 * @throws  IOException if an error occured while loading the STL file.
+	 */
+	public Object3D load( final Matrix3D transform, @NotNull final File file )
+		throws IOException
+	{
+		final Object3DBuilder builder = new Object3DBuilder();
+		final String objectName = load( builder, transform, file );
+		final Object3D result = builder.getObject3D();
+		result.setTag( objectName );
+		return result;
+	}
+
+	/**
+	 * Load the specified STL file. Binary STL files are memory-mapped.
+	 *
+	 * @param   builder         Builder of resulting 3D object.
+	 * @param   transform       Transormation to apply to the STL (mostly used
+	 *                          to for scaling and axis alignment).
+	 * @param   file            STL file to load.
+	 *
+	 * @return  Object name defined in STL file.
+	 *
+	 * @throws  IOException if an error occured while loading the STL file.
+	 */
+	public String load( @NotNull final Object3DBuilder builder, @NotNull final Matrix3D transform, @NotNull final File file )
+		throws IOException
+	{
+		final String result;
+
+		final FileInputStream in = new FileInputStream( file );
+		try
+		{
+			final BufferedInputStream bufferedIn = new BufferedInputStream( in );
+			if ( isAsciiFormat( bufferedIn ) )
+			{
+				result = loadAscii( builder, transform, new BufferedReader( new InputStreamReader( bufferedIn, "US-ASCII" ) ) );
+			}
+			else
+			{
+				final FileChannel channel = in.getChannel();
+				result = loadBinary( builder, transform, channel.map( FileChannel.MapMode.READ_ONLY, 0L, channel.size() ) );
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+
+		return result;
+	}
+
 	/**
 	 * Load the specified STL file.
 	 *
@@ -415,7 +489,9 @@ public class StlLoader
 	}
 
 	/**
-	 * Load the specified binary STL file.
+	 * Load the specified binary STL file. The triangle data is read into
+	 * memory using bulk reads; use {@link #loadBinary(Object3DBuilder, Matrix3D, ByteBuffer)}
+	 * to read from a memory-mapped file instead.
 	 *
 	 * <p>See: <a href="http://en.wikipedia.org/wiki/STL_(file_format)">STL (file format) at Wikipedia</a>
 	 *
@@ -431,92 +507,232 @@ public class StlLoader
 	public String loadBinary( @NotNull final Object3DBuilder builder, @NotNull final Matrix3D transform, @NotNull final InputStream in )
 		throws IOException
 	{
-		final Appearance appearance = _appearance;
-		final UVMap uvMap = _uvMap;
+		final byte[] header = new byte[ BINARY_HEADER_SIZE ];
+		readFully( in, header, 0, header.length );
 
-		final byte[] header = new byte[ 80 ];
-		for ( int headerOffset = 0; headerOffset < header.length; )
+		long numberOfTriangles;
+		try
 		{
-			final int readNow = in.read( header, headerOffset, header.length - headerOffset );
-			if ( readNow < 0 )
-			{
-				throw new EOFException();
-			}
+			numberOfTriangles = readUnsignedInt32( in );
+		}
+		catch ( EOFException e )
+		{
+			// End of file reached.
+			numberOfTriangles = 0L;
+		}
 
-			headerOffset += readNow;
+		if ( numberOfTriangles > 0L )
+		{
+			final byte[] data = readAll( in, (int)Math.min( numberOfTriangles * (long)BINARY_TRIANGLE_SIZE, (long)( 64 * 1024 * 1024 ) ) );
+			loadTriangles( builder, transform, ByteBuffer.wrap( data ), numberOfTriangles );
 		}
 
-		try
+		final String name = new String( header, 6, BINARY_HEADER_SIZE - 6 );
+		return name.trim();
+	}
+
+	/**
+	 * Load binary STL data from the given buffer, e.g. a memory-mapped file.
+	 * Data is read from the buffer's position up to its limit; the position
+	 * of the buffer is not changed.
+	 *
+	 * @param   builder         Builder of resulting 3D object.
+	 * @param   transform       Transormation to apply to the STL (mostly used
+	 *                          to for scaling and axis alignment).
+	 * @param   buffer          Buffer containing binary STL data.
+	 *
+	 * @return  Object name defined in STL file.
+	 *
+	 * @throws  IOException if an error occured while loading the STL file.
+	 */
+	public String loadBinary( @NotNull final Object3DBuilder builder, @NotNull final Matrix3D transform, @NotNull final ByteBuffer buffer )
+		throws IOException
+	{
+		final ByteBuffer data = buffer.slice();
+		if ( data.remaining() < BINARY_HEADER_SIZE )
 		{
-			final Vector3D[] points = new Vector3D[ 3 ];
-			final Vector3D[] normals = new Vector3D[ 3 ];
+			throw new EOFException();
+		}
+
+		final byte[] header = new byte[ BINARY_HEADER_SIZE ];
+		data.get( header );
 
-			final long numberOfTriangles = readUnsignedInt32( in );
-			for ( long i = 0L; i < numberOfTriangles; i++ )
+		if ( data.remaining() >= 4 )
+		{
+			final long numberOfTriangles = (long)data.order( ByteOrder.LITTLE_ENDIAN ).getInt() & 0xffffffffL;
+			loadTriangles( builder, transform, data.slice(), numberOfTriangles );
+		}
+
+		final String name = new String( header, 6, BINARY_HEADER_SIZE - 6 );
+		return name.trim();
+	}
+
+	/**
+	 * Adds triangles from binary STL data to the given builder. If the data
+	 * contains less than the given number of triangles, only the complete
+	 * triangles in the data are added.
+	 *
+	 * <p>
+	 * Vertices are welded using a {@link PointIndex}, so that a {@link Vector3D}
+	 * is only created (and looked up by the builder) once for each unique
+	 * vertex.
+	 *
+	 * @param   builder             Builder of resulting 3D object.
+	 * @param   transform           Transformation to apply.
+	 * @param   data                Triangle data, starting at position 0.
+	 * @param   numberOfTriangles   Number of triangles specified in header.
+	 */
+	private void loadTriangles( @NotNull final Object3DBuilder builder, @NotNull final Matrix3D transform, @NotNull final ByteBuffer data, final long numberOfTriangles )
+	{
+		final Appearance appearance = _appearance;
+		final UVMap uvMap = _uvMap;
+		final boolean flipNormals = _flipNormals;
+
+		data.order( ByteOrder.LITTLE_ENDIAN );
+		final int triangleCount = (int)Math.min( numberOfTriangles, (long)( data.limit() / BINARY_TRIANGLE_SIZE ) );
+
+		final double xx = transform.xx;
+		final double xy = transform.xy;
+		final double xz = transform.xz;
+		final double xo = transform.xo;
+		final double yx = transform.yx;
+		final double yy = transform.yy;
+		final double yz = transform.yz;
+		final double yo = transform.yo;
+		final double zx = transform.zx;
+		final double zy = transform.zy;
+		final double zz = transform.zz;
+		final double zo = transform.zo;
+
+		final PointIndex pointIndex = new PointIndex( Math.min( triangleCount, 1 << 20 ) );
+		int[] builderIndices = new int[ 0 ];
+
+		final Vector3D[] normals = new Vector3D[ 3 ];
+
+		for ( int triangle = 0; triangle < triangleCount; triangle++ )
+		{
+			int offset = triangle * BINARY_TRIANGLE_SIZE;
+
+			Vector3D normal = transform.rotate( (double)data.getFloat( offset ), (double)data.getFloat( offset + 4 ), (double)data.getFloat( offset + 8 ) );
+			if ( !normal.isNonZero() )
 			{
-				Vector3D normal = transform.rotate( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
-				if ( !normal.isNonZero() )
-				{
-					normal = null;
-				}
-				normals[ 0 ] = normal;
-				normals[ 1 ] = normal;
-				normals[ 2 ] = normal;
+				normal = null;
+			}
+			normals[ 0 ] = normal;
+			normals[ 1 ] = normal;
+			normals[ 2 ] = normal;
+			offset += 12;
+
+			final int[] vertexIndices = new int[ 3 ];
+			for ( int i = 0; i < 3; i++ )
+			{
+				final double x = (double)data.getFloat( offset );
+				final double y = (double)data.getFloat( offset + 4 );
+				final double z = (double)data.getFloat( offset + 8 );
+				offset += 12;
+
+				final double tx = x * xx + y * xy + z * xz + xo;
+				final double ty = x * yx + y * yy + z * yz + yo;
+				final double tz = x * zx + y * zy + z * zz + zo;
 
 				// Convert to clockwise, as needed by 'addFace' used below.
-				if ( _flipNormals )
-				{
-					points[ 0 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
-					points[ 1 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
-					points[ 2 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
-				}
-				else
-				{
-					points[ 0 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
-					points[ 2 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
-					points[ 1 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
-				}
+				vertexIndices[ flipNormals ? i : ( 3 - i ) % 3 ] = pointIndex.indexOfOrAdd( tx, ty, tz );
+			}
 
-				/*
-				 * Skip 'attribute byte count' which apparently does not
-				 * specify a number of bytes that follows this 'count', but is
-				 * used by some packages to store color information.
-				 */
-				readUnsignedInt16( in );
+			final int pointCount = pointIndex.size();
+			if ( pointCount > builderIndices.length )
+			{
+				final int oldLength = builderIndices.length;
+				builderIndices = Arrays.copyOf( builderIndices, Math.max( pointCount, oldLength * 2 ) );
+				Arrays.fill( builderIndices, oldLength, builderIndices.length, -1 );
+			}
 
-				builder.addFace( points, appearance, uvMap, normals, false, false, false );
+			// Map to builder vertex indices, in face order like 'addFace( Vector3D[], ... )'.
+			for ( int i = 0; i < 3; i++ )
+			{
+				final int localIndex = vertexIndices[ i ];
+				int builderIndex = builderIndices[ localIndex ];
+				if ( builderIndex < 0 )
+				{
+					builderIndex = builder.getVertexIndex( pointIndex.getPoint( localIndex ) );
+					builderIndices[ localIndex ] = builderIndex;
+				}
+				vertexIndices[ i ] = builderIndex;
 			}
+
+			builder.addFace( vertexIndices, appearance, uvMap, normals, false, false, false );
 		}
-		catch ( EOFException e )
+	}
+
+	/**
+	 * Reads the given number of bytes from a stream.
+	 *
+	 * @param   in      Stream to read from.
+	 * @param   buffer  Buffer to read into.
+	 * @param   offset  Offset in buffer.
+	 * @param   length  Number of bytes to read.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private static void readFully( final InputStream in, final byte[] buffer, final int offset, final int length )
+		throws IOException
+	{
+		for ( int position = offset; position < offset + length; )
 		{
-			// End of file reached.
-		}
+			final int readNow = in.read( buffer, position, offset + length - position );
+			if ( readNow < 0 )
+			{
+				throw new EOFException();
+			}
 
-		final String name = new String( header, 6, 80 - 6 );
-		return name.trim();
+			position += readNow;
+		}
 	}
 
 	/**
-	 * Read unsigned 16-bit integer from stream.
+	 * Reads all remaining bytes from a stream.
 	 *
-	 * @param   in  Stream to read from.
+	 * @param   in              Stream to read from.
+	 * @param   expectedSize    Expected number of bytes.
 	 *
-	 * @return  Value that was read.
+	 * @return  Bytes that were read.
 	 *
 	 * @throws  IOException if an I/O error occurs.
 	 */
-	private static int readUnsignedInt16( final InputStream in )
+	private static byte[] readAll( final InputStream in, final int expectedSize )
 		throws IOException
 	{
-		final int ch1 = in.read();
-		final int ch2 = in.read();
+		byte[] buffer = new byte[ Math.max( expectedSize, 8192 ) ];
+		int length = 0;
 
-		if ( ( ch1 | ch2 ) < 0 )
+		while ( true )
 		{
-			throw new EOFException();
+			if ( length == buffer.length )
+			{
+				/*
+				 * Check for end of stream before growing the buffer, since
+				 * the expected size is usually correct.
+				 */
+				final int next = in.read();
+				if ( next < 0 )
+				{
+					break;
+				}
+
+				buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+				buffer[ length++ ] = (byte)next;
+			}
+
+			final int readNow = in.read( buffer, length, buffer.length - length );
+			if ( readNow < 0 )
+			{
+				break;
+			}
+
+			length += readNow;
 		}
 
-		return ( ch2 << 8 ) + ch1;
+		return ( length == buffer.length ) ? buffer : Arrays.copyOf( buffer, length );
 	}
 
 	/**
@@ -545,27 +761,165 @@ public class StlLoader
 	}
 
 	/**
-	 * Read 32-bit floating-point value from stream.
-	 *
-	 * @param   in  Stream to read from.
-	 *
-	 * @return  Value that was read.
-	 *
-	 * @throws  IOException if an I/O error occurs.
+	 * Hash table that assigns consecutive indices to unique points, without
+	 * creating an object for each point. Points are considered equal if their
+	 * coordinates have the same bit patterns, which is consistent with
+	 * {@link Vector3D#hashCode()}.
 	 */
-	private static double readFloat32( final InputStream in )
-		throws IOException
+	private static class PointIndex
 	{
-		final int ch1 = in.read();
-		final int ch2 = in.read();
-		final int ch3 = in.read();
-		final int ch4 = in.read();
+		/**
+		 * Point coordinates (x, y, z) by index.
+		 */
+		private double[] _coordinates;
+
+		/**
+		 * Open-addressing hash table containing point index + 1; 0 indicates
+		 * an empty slot.
+		 */
+		private int[] _table;
+
+		/**
+		 * Number of points.
+		 */
+		private int _size = 0;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param   expectedSize    Expected number of points.
+		 */
+		PointIndex( final int expectedSize )
+		{
+			final int capacity = Math.max( 16, Integer.highestOneBit( Math.max( 1, expectedSize ) ) * 2 );
+			_coordinates = new double[ capacity / 2 * 3 ];
+			_table = new int[ capacity ];
+		}
 
-		if ( ( ch1 | ch2 | ch3 | ch4 ) < 0 )
+		/**
+		 * Returns the number of points.
+		 *
+		 * @return  Number of points.
+		 */
+		int size()
 		{
-			throw new EOFException();
+			return _size;
 		}
 
-		return (double) Float.intBitsToFloat( ( ch4 << 24 ) + ( ch3 << 16 ) + ( ch2 << 8 ) + ch1 );
+		/**
+		 * Returns the point with the given index.
+		 *
+		 * @param   index   Index of the point.
+		 *
+		 * @return  Point.
+		 */
+		Vector3D getPoint( final int index )
+		{
+			final double[] coordinates = _coordinates;
+			final int offset = index * 3;
+			return new Vector3D( coordinates[ offset ], coordinates[ offset + 1 ], coordinates[ offset + 2 ] );
+		}
+
+		/**
+		 * Returns the index of the given point. If the point was not added
+		 * before, it is added and its index is equal to the previous
+		 * {@link #size()}.
+		 *
+		 * @param   x   X coordinate.
+		 * @param   y   Y coordinate.
+		 * @param   z   Z coordinate.
+		 *
+		 * @return  Index of the point.
+		 */
+		int indexOfOrAdd( final double x, final double y, final double z )
+		{
+			final long xBits = Double.doubleToLongBits( x );
+			final long yBits = Double.doubleToLongBits( y );
+			final long zBits = Double.doubleToLongBits( z );
+
+			final double[] coordinates = _coordinates;
+			final int[] table = _table;
+			final int mask = table.length - 1;
+
+			int result = -1;
+			int slot = hash( xBits, yBits, zBits ) & mask;
+			for ( int entry = table[ slot ]; entry != 0; entry = table[ slot ] )
+			{
+				final int offset = ( entry - 1 ) * 3;
+				if ( ( Double.doubleToLongBits( coordinates[ offset ] ) == xBits ) &&
+				     ( Double.doubleToLongBits( coordinates[ offset + 1 ] ) == yBits ) &&
+				     ( Double.doubleToLongBits( coordinates[ offset + 2 ] ) == zBits ) )
+				{
+					result = entry - 1;
+					break;
+				}
+				slot = ( slot + 1 ) & mask;
+			}
+
+			if ( result < 0 )
+			{
+				result = _size++;
+				table[ slot ] = result + 1;
+
+				if ( coordinates.length < _size * 3 )
+				{
+					_coordinates = Arrays.copyOf( coordinates, coordinates.length * 2 );
+				}
+
+				final int offset = result * 3;
+				_coordinates[ offset ] = x;
+				_coordinates[ offset + 1 ] = y;
+				_coordinates[ offset + 2 ] = z;
+
+				if ( _size * 2 > table.length )
+				{
+					rehash( table.length * 2 );
+				}
+			}
+
+			return result;
+		}
+
+		/**
+		 * Rebuilds the hash table with the given capacity.
+		 *
+		 * @param   capacity    New capacity (power of 2).
+		 */
+		private void rehash( final int capacity )
+		{
+			final double[] coordinates = _coordinates;
+			final int[] table = new int[ capacity ];
+			final int mask = capacity - 1;
+
+			for ( int index = 0; index < _size; index++ )
+			{
+				final int offset = index * 3;
+				int slot = hash( Double.doubleToLongBits( coordinates[ offset ] ), Double.doubleToLongBits( coordinates[ offset + 1 ] ), Double.doubleToLongBits( coordinates[ offset + 2 ] ) ) & mask;
+				while ( table[ slot ] != 0 )
+				{
+					slot = ( slot + 1 ) & mask;
+				}
+				table[ slot ] = index + 1;
+			}
+
+			_table = table;
+		}
+
+		/**
+		 * Calculates hash code for a point.
+		 *
+		 * @param   xBits   Bits of X coordinate.
+		 * @param   yBits   Bits of Y coordinate.
+		 * @param   zBits   Bits of Z coordinate.
+		 *
+		 * @return  Hash code.
+		 */
+		private static int hash( final long xBits, final long yBits, final long zBits )
+		{
+			long h = xBits * 0x9E3779B97F4A7C15L;
+			h = ( h ^ yBits ) * 0x9E3779B97F4A7C15L;
+			h = ( h ^ zBits ) * 0x9E3779B97F4A7C15L;
+			return (int)( h ^ ( h >>> 32 ) );
+		}
 	}
 }
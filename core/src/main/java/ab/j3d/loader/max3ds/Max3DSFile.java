@@ -21,11 +21,18 @@
 package ab.j3d.loader.max3ds;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import ab.j3d.*;
 import ab.j3d.geom.*;
+import ab.j3d.loader.*;
 import ab.j3d.model.*;
+import org.jetbrains.annotations.*;
 
 /**
  * 3D Studio or 3D Studio MAX (<code>.3DS</colorMap>) file.
@@ -45,6 +52,11 @@ public class Max3DSFile
 
 	public KeyFramesChunk _keyframes;
 
+	/**
+	 * Time spent in each phase of loading.
+	 */
+	private final Timings _timings = new Timings();
+
 	/**
 	 * Read 3D Studio file.
 	 *
@@ -58,6 +70,72 @@ public class Max3DSFile
 		super( in, readUnsignedShort( in ), readInt( in ) - 6 );
 	}
 
+	/**
+	 * Read 3D Studio file from a byte buffer. Only the structure of the file
+	 * is parsed here; meshes are parsed directly from the buffer when they are
+	 * built, so the buffer must not be modified until then.
+	 *
+	 * @param   buffer  Buffer to read file from (remaining bytes).
+	 *
+	 * @throws  IOException if a read error occurred.
+	 */
+	public Max3DSFile( final ByteBuffer buffer )
+		throws IOException
+	{
+		this( new ByteBufferInputStream( buffer ), System.nanoTime() );
+	}
+
+	/**
+	 * Read 3D Studio file from a byte buffer stream.
+	 *
+	 * @param   in      Stream to read file from.
+	 * @param   start   Time at which parsing started, in nanoseconds.
+	 *
+	 * @throws  IOException if a read error occurred.
+	 */
+	private Max3DSFile( final ByteBufferInputStream in, final long start )
+		throws IOException
+	{
+		super( in, readUnsignedShort( in ), readInt( in ) - 6 );
+		_timings._parse.addAndGet( System.nanoTime() - start );
+	}
+
+	/**
+	 * Read 3D Studio file. The file is memory-mapped and indexed in a single
+	 * pass; meshes are parsed when they are built, e.g. in parallel using
+	 * {@link #buildScene(Node3D, Executor)}.
+	 *
+	 * @param   file    File to read.
+	 *
+	 * @return  3D Studio file.
+	 *
+	 * @throws  IOException if a read error occurred.
+	 */
+	public static Max3DSFile load( @NotNull final Path file )
+		throws IOException
+	{
+		final long start = System.nanoTime();
+
+		final ByteBuffer buffer;
+		try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+		{
+			buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0L, channel.size() );
+		}
+
+		return new Max3DSFile( new ByteBufferInputStream( buffer ), start );
+	}
+
+	/**
+	 * Returns the time spent in each phase of loading so far.
+	 *
+	 * @return  Time spent in each phase of loading.
+	 */
+	@NotNull
+	public Timings getTimings()
+	{
+		return _timings;
+	}
+
 	/**
 	 * Create scene from contents of this file.
 	 *
@@ -76,9 +154,7 @@ public class Max3DSFile
 
 			final Matrix3D transform = Matrix3D.IDENTITY; // triangleMeshChunk._transform;
 
-			final Object3DBuilder builder = new Object3DBuilder();
-			buildMesh( builder, materials, triangleMeshChunk );
-			final Object3D object3d = builder.getObject3D();
+			final Object3D object3d = buildObject( materials, triangleMeshChunk );
 
 			scene.addContentNode( name, transform, object3d );
 		}
@@ -109,36 +185,182 @@ public class Max3DSFile
 
 		for ( final TriangleMeshChunk triangleMeshChunk : meshes.values() )
 		{
-			final Matrix3D transform = triangleMeshChunk._transform;
+			addObject( target, triangleMeshChunk, buildObject( materials, triangleMeshChunk ) );
+		}
+	}
 
-			final Object3DBuilder builder = new Object3DBuilder();
-			buildMesh( builder, materials, triangleMeshChunk );
-			final Object3D object3d = builder.getObject3D();
+	/**
+	 * Build 3D scene with contents of this file. Meshes are independent, so
+	 * they are parsed (if needed) and built in parallel using the given
+	 * executor. Objects are added to the target in the same order as
+	 * {@link #buildScene(Node3D)} does.
+	 *
+	 * @param   target      Target node to add contents to.
+	 * @param   executor    Executor to build meshes with.
+	 *
+	 * @throws  IOException if a read error occurred.
+	 */
+	public void buildScene( final Node3D target, @NotNull final Executor executor )
+		throws IOException
+	{
+		final EditableObjectChunk editableObject = _editableObject;
+		final Map<String,TriangleMeshChunk> meshes = editableObject._meshes;
+		final Map<String,MaterialChunk> materials = editableObject._materials;
 
-			if ( Matrix3D.IDENTITY.equals( transform ) )
+		final List<TriangleMeshChunk> meshList = new ArrayList<TriangleMeshChunk>( meshes.values() );
+		final List<FutureTask<Object3D>> tasks = new ArrayList<FutureTask<Object3D>>( meshList.size() );
+		for ( final TriangleMeshChunk triangleMeshChunk : meshList )
+		{
+			final FutureTask<Object3D> task = new FutureTask<Object3D>( new Callable<Object3D>()
 			{
-				target.addChild( object3d );
+				@Override
+				public Object3D call()
+					throws IOException
+				{
+					parseMesh( triangleMeshChunk );
+					final Object3DBuilder builder = new Object3DBuilder();
+					buildMesh( builder, materials, triangleMeshChunk, _timings );
+					return builder.getObject3D();
+				}
+			} );
+
+			tasks.add( task );
+			executor.execute( task );
+		}
+
+		for ( int i = 0; i < tasks.size(); i++ )
+		{
+			final Object3D object3d;
+			try
+			{
+				object3d = tasks.get( i ).get();
 			}
-			else
+			catch ( final InterruptedException e )
 			{
-				final Transform3D transform3d = new Transform3D( transform );
-				transform3d.addChild( object3d );
-				target.addChild( transform3d );
+				for ( final FutureTask<Object3D> task : tasks )
+				{
+					task.cancel( true );
+				}
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException( "Interrupted while building meshes" );
+			}
+			catch ( final ExecutionException e )
+			{
+				final Throwable cause = e.getCause();
+				if ( cause instanceof IOException )
+				{
+					throw (IOException)cause;
+				}
+				if ( cause instanceof RuntimeException )
+				{
+					throw (RuntimeException)cause;
+				}
+				if ( cause instanceof Error )
+				{
+					throw (Error)cause;
+				}
+				throw new IOException( cause );
 			}
+
+			addObject( target, meshList.get( i ), object3d );
 		}
 	}
 
+	/**
+	 * Adds an object built from a mesh to the given node.
+	 *
+	 * @param   target              Target node to add object to.
+	 * @param   triangleMeshChunk   Mesh that the object was built from.
+	 * @param   object3d            Object to add.
+	 */
+	private static void addObject( final Node3D target, final TriangleMeshChunk triangleMeshChunk, final Object3D object3d )
+	{
+		final Matrix3D transform = triangleMeshChunk._transform;
+
+		if ( ( transform == null ) || Matrix3D.IDENTITY.equals( transform ) )
+		{
+			target.addChild( object3d );
+		}
+		else
+		{
+			final Transform3D transform3d = new Transform3D( transform );
+			transform3d.addChild( object3d );
+			target.addChild( transform3d );
+		}
+	}
+
+	/**
+	 * Builds a 3D object from a mesh.
+	 *
+	 * @param   materials   Materials by name.
+	 * @param   mesh        Mesh to build.
+	 *
+	 * @return  3D object.
+	 */
+	private Object3D buildObject( final Map<String,MaterialChunk> materials, final TriangleMeshChunk mesh )
+	{
+		try
+		{
+			parseMesh( mesh );
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+
+		final Object3DBuilder builder = new Object3DBuilder();
+		buildMesh( builder, materials, mesh, _timings );
+		return builder.getObject3D();
+	}
+
+	/**
+	 * Parses a mesh, if its parsing was deferred.
+	 *
+	 * @param   mesh    Mesh to parse.
+	 *
+	 * @throws  IOException if a read error occurred.
+	 */
+	private void parseMesh( final TriangleMeshChunk mesh )
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		mesh.ensureParsed();
+		_timings._parse.addAndGet( System.nanoTime() - start );
+	}
+
 	public static void buildMesh( final Object3DBuilder builder, final Map<String,MaterialChunk> materials, final TriangleMeshChunk mesh )
 	{
+		try
+		{
+			mesh.ensureParsed();
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+
+		buildMesh( builder, materials, mesh, null );
+	}
+
+	/**
+	 * Build mesh using the given builder. The mesh must be parsed.
+	 *
+	 * @param   builder     Builder to add mesh to.
+	 * @param   materials   Materials by name.
+	 * @param   mesh        Mesh to build.
+	 * @param   timings     Timings to update; {@code null} if not needed.
+	 */
+	private static void buildMesh( final Object3DBuilder builder, final Map<String,MaterialChunk> materials, final TriangleMeshChunk mesh, @Nullable final Timings timings )
+	{
+		final long smoothingStart = System.nanoTime();
+
 		final List<Vector3D> vertices = mesh._vertices;
 		final Vector2f[] textureCoordinates = mesh._textureCoordinates;
 		final FacesChunk facesChunk = mesh._faces;
 
 		final int     numberOfFaces   = facesChunk._numberOfFaces;
 		final int[][] faces           = facesChunk._faces;
-		final int[]   smoothingGroups = facesChunk._smoothingGroups;
-
-		builder.setVertexCoordinates( vertices );
+		final int[]   smoothingGroups = ( facesChunk._smoothingGroups != null ) ? facesChunk._smoothingGroups : new int[ numberOfFaces ];
 
 		final Vector3D[] faceNormals = new Vector3D[ numberOfFaces ];
 		for ( int i = 0; i < numberOfFaces; i++ )
@@ -147,17 +369,6 @@ public class Max3DSFile
 			faceNormals[ i ] = GeometryTools.getPlaneNormal( vertices.get( face[ 2 ] ), vertices.get( face[ 1 ] ), vertices.get( face[ 0 ] ) );
 		}
 
-		final MaterialChunk[] faceMaterials = new MaterialChunk[ numberOfFaces ];
-		for ( int i = 0; i < facesChunk._materialNames.size(); i++ )
-		{
-			final MaterialChunk material = materials.get( facesChunk._materialNames.get( i ) );
-
-			for ( final int faceIndex : facesChunk._materialIndices.get(  i ) )
-			{
-				faceMaterials[ faceIndex ] = material;
-			}
-		}
-
 		final int[][] faceIndicesPerVertex;
 		{
 			final int[] faceCountPerVertex = new int[ vertices.size() ];
@@ -187,27 +398,24 @@ public class Max3DSFile
 			}
 		}
 
-		final Vector3D[] facePoints = new Vector3D[ 3 ];
-		final Vector3D[] vertexNormals = new Vector3D[ 3 ];
-		final float[] texturePoints = ( textureCoordinates != null ) ? new float[ 6 ] : null;
-
-		for ( int faceIndex = 0; faceIndex < faces.length; faceIndex++ )
+		/*
+		 * Calculate vertex normals based on smoothing groups (3 per face, in
+		 * the order in which the face vertices are added to the builder).
+		 */
+		final Vector3D[] vertexNormals = new Vector3D[ 3 * numberOfFaces ];
+		for ( int faceIndex = 0; faceIndex < numberOfFaces; faceIndex++ )
 		{
 			final int[] face = faces[ faceIndex ];
 			final Vector3D faceNormal = faceNormals[ faceIndex ];
-			boolean isSmooth = false;
+			final int smoothingGroupMask = smoothingGroups[ faceIndex ];
 
 			for ( int k = 0; k < 3; k++ )
 			{
 				final int vertexIndex = face[ k ];
-				facePoints[ 2 - k ] = vertices.get( vertexIndex );
 
 				final Vector3D vertexNormal;
-
-				final int smoothingGroupMask = smoothingGroups[ faceIndex ];
 				if ( smoothingGroupMask != 0 )
 				{
-					isSmooth = true;
 					double nx = 0.0;
 					double ny = 0.0;
 					double nz = 0.0;
@@ -233,7 +441,42 @@ public class Max3DSFile
 					vertexNormal = faceNormal;
 				}
 
-				vertexNormals[ 2 - k ] = vertexNormal;
+				vertexNormals[ 3 * faceIndex + 2 - k ] = vertexNormal;
+			}
+		}
+
+		final long buildStart = System.nanoTime();
+		if ( timings != null )
+		{
+			timings._smoothing.addAndGet( buildStart - smoothingStart );
+		}
+
+		builder.setVertexCoordinates( vertices );
+
+		final MaterialChunk[] faceMaterials = new MaterialChunk[ numberOfFaces ];
+		for ( int i = 0; i < facesChunk._materialNames.size(); i++ )
+		{
+			final MaterialChunk material = materials.get( facesChunk._materialNames.get( i ) );
+
+			for ( final int faceIndex : facesChunk._materialIndices.get(  i ) )
+			{
+				faceMaterials[ faceIndex ] = material;
+			}
+		}
+
+		final Vector3D[] facePoints = new Vector3D[ 3 ];
+		final Vector3D[] faceVertexNormals = new Vector3D[ 3 ];
+		final float[] texturePoints = ( textureCoordinates != null ) ? new float[ 6 ] : null;
+
+		for ( int faceIndex = 0; faceIndex < faces.length; faceIndex++ )
+		{
+			final int[] face = faces[ faceIndex ];
+
+			for ( int k = 0; k < 3; k++ )
+			{
+				final int vertexIndex = face[ k ];
+				facePoints[ 2 - k ] = vertices.get( vertexIndex );
+				faceVertexNormals[ 2 - k ] = vertexNormals[ 3 * faceIndex + 2 - k ];
 
 				if ( textureCoordinates != null )
 				{
@@ -244,7 +487,12 @@ public class Max3DSFile
 			}
 
 			final MaterialChunk materialChunk = faceMaterials[ faceIndex ];
-			builder.addFace( facePoints, materialChunk != null ? materialChunk._appearance : null, texturePoints, vertexNormals, isSmooth, true );
+			builder.addFace( facePoints, materialChunk != null ? materialChunk._appearance : null, texturePoints, faceVertexNormals, smoothingGroups[ faceIndex ] != 0, true );
+		}
+
+		if ( timings != null )
+		{
+			timings._meshBuild.addAndGet( System.nanoTime() - buildStart );
 		}
 	}
 
@@ -282,4 +530,66 @@ public class Max3DSFile
 				skipFully( in, remainingChunkBytes );
 		}
 	}
+
+	/**
+	 * Time spent in each phase of loading a file. Times are summed over all
+	 * threads, so they may exceed the elapsed time when meshes are built in
+	 * parallel.
+	 */
+	public static class Timings
+	{
+		/**
+		 * Time spent parsing, in nanoseconds.
+		 */
+		private final AtomicLong _parse = new AtomicLong();
+
+		/**
+		 * Time spent building meshes, in nanoseconds.
+		 */
+		private final AtomicLong _meshBuild = new AtomicLong();
+
+		/**
+		 * Time spent calculating vertex normals from smoothing groups, in
+		 * nanoseconds.
+		 */
+		private final AtomicLong _smoothing = new AtomicLong();
+
+		/**
+		 * Returns the time spent parsing the file, including deferred parsing
+		 * of meshes.
+		 *
+		 * @return  Time in nanoseconds.
+		 */
+		public long getParseNanos()
+		{
+			return _parse.get();
+		}
+
+		/**
+		 * Returns the time spent building meshes, excluding smoothing.
+		 *
+		 * @return  Time in nanoseconds.
+		 */
+		public long getMeshBuildNanos()
+		{
+			return _meshBuild.get();
+		}
+
+		/**
+		 * Returns the time spent calculating vertex normals from smoothing
+		 * groups.
+		 *
+		 * @return  Time in nanoseconds.
+		 */
+		public long getSmoothingNanos()
+		{
+			return _smoothing.get();
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format( Locale.US, "parse: %.3f ms, mesh build: %.3f ms, smoothing: %.3f ms", (double)getParseNanos() / 1.0e6, (double)getMeshBuildNanos() / 1.0e6, (double)getSmoothingNanos() / 1.0e6 );
+		}
+	}
 }
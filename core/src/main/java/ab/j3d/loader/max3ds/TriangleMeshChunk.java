@@ -21,9 +21,11 @@
 package ab.j3d.loader.max3ds;
 
 import java.io.*;
+import java.nio.*;
 import java.util.*;
 
 import ab.j3d.*;
+import ab.j3d.loader.*;
 
 /**
  * Type   : {@link #OBJ_TRIMESH}.
@@ -44,12 +46,55 @@ class TriangleMeshChunk
 
 	Matrix3D _transform;
 
+	/**
+	 * Unparsed chunk data, if parsing was deferred; {@code null} if the chunk
+	 * was parsed.
+	 */
+	private ByteBuffer _data;
+
 	TriangleMeshChunk( final InputStream in, final int chunkType, final int remainingChunkBytes )
 		throws IOException
 	{
 		super( in, chunkType, remainingChunkBytes );
 	}
 
+	/**
+	 * Defers parsing if the chunk is read from a byte buffer. In that case,
+	 * only the location of the chunk data is recorded, so meshes can be parsed
+	 * independently (and in parallel) when they are needed.
+	 *
+	 * @see #ensureParsed()
+	 */
+	@Override
+	protected void processChunk( final InputStream in, final int chunkType, final int remainingChunkBytes )
+		throws IOException
+	{
+		if ( in instanceof ByteBufferInputStream )
+		{
+			_data = ( (ByteBufferInputStream)in ).slice( remainingChunkBytes );
+		}
+		else
+		{
+			super.processChunk( in, chunkType, remainingChunkBytes );
+		}
+	}
+
+	/**
+	 * Parses the chunk data, if parsing was deferred.
+	 *
+	 * @throws  IOException if a read error occurred.
+	 */
+	synchronized void ensureParsed()
+		throws IOException
+	{
+		final ByteBuffer data = _data;
+		if ( data != null )
+		{
+			super.processChunk( new ByteBufferInputStream( data ), OBJ_TRIMESH, data.remaining() );
+			_data = null;
+		}
+	}
+
 	@Override
 	protected void processChildChunk( final InputStream in, final int chunkType, final int remainingChunkBytes )
 		throws IOException
@@ -0,0 +1,1004 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.geom.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Face group that stores its faces in packed arrays, instead of separate
+ * {@link Face3D}, {@link Vertex3D} and {@link Tessellation} objects.
+ *
+ * <p>Each distinct combination of vertex coordinates, normal and texture
+ * coordinates is stored once as a <em>vertex</em>. Faces are stored as ranges
+ * of <em>corners</em>, each referring to a vertex. The triangles of all faces
+ * are stored as corner indices, so the corners and triangles can be copied to
+ * vertex and index buffers as-is.
+ *
+ * <p>The {@link #getFaces()} method returns views of the packed data. Each
+ * face is created when it is requested and is not kept by this group, so the
+ * same face may be returned as different instances. Faces can be added and
+ * removed; the packed arrays are rebuilt when they are needed again. Faces
+ * must not be modified in place, since such changes are not reflected in the
+ * packed arrays. Code that processes many faces should use the packed arrays
+ * instead of the views.
+ *
+ * <p>Compact face groups are equal if their packed data is equal. They are
+ * never equal to regular face groups, so faces need not be expanded to
+ * compare them.
+ *
+ * @author Peter S. Heijnen
+ */
+public class CompactFaceGroup
+extends FaceGroup
+{
+	/**
+	 * Vertex coordinates, one triplet per vertex.
+	 */
+	@NotNull
+	private double[] _positions;
+
+	/**
+	 * Vertex normals, one triplet per vertex; {@code NaN} if a vertex has no
+	 * normal; {@code null} if no vertex has a normal.
+	 */
+	@Nullable
+	private float[] _normals;
+
+	/**
+	 * Texture coordinates, one pair per vertex; {@code null} if no vertex has
+	 * texture coordinates.
+	 */
+	@Nullable
+	private float[] _texCoords;
+
+	/**
+	 * Index in {@link Object3D#getVertexCoordinates()} for each vertex.
+	 */
+	@NotNull
+	private int[] _vertexCoordinateIndices;
+
+	/**
+	 * Vertex index of each corner.
+	 */
+	@NotNull
+	private int[] _cornerVertices;
+
+	/**
+	 * Index of first corner of each face, followed by the number of corners.
+	 */
+	@NotNull
+	private int[] _faceStarts;
+
+	/**
+	 * Corner indices of all triangles, three per triangle.
+	 */
+	@NotNull
+	private int[] _triangles;
+
+	/**
+	 * Start of triangles of each face in {@link #_triangles}, followed by the
+	 * length of that array.
+	 */
+	@NotNull
+	private int[] _triangleStarts;
+
+	/**
+	 * Outlines of faces that do not have the default outline, which connects
+	 * all corners of the face in order; {@code null} if all faces have the
+	 * default outline.
+	 */
+	@Nullable
+	private Map<Integer, List<int[]>> _outlines;
+
+	/**
+	 * Faces that were added since the packed arrays were built; {@code null}
+	 * if no faces were added.
+	 */
+	@Nullable
+	private List<Face3D> _addedFaces = null;
+
+	/**
+	 * Indices of packed faces that were removed since the packed arrays were
+	 * built; {@code null} if no faces were removed.
+	 */
+	@Nullable
+	private BitSet _removedFaces = null;
+
+	/**
+	 * Number of times the packed arrays were rebuilt. Face views remember
+	 * this, so views of an earlier version of the arrays can be detected.
+	 */
+	private int _packCount = 0;
+
+	/**
+	 * Constructs face group from packed arrays. The arrays are not copied.
+	 *
+	 * @param appearance              Appearance of faces.
+	 * @param smooth                  Faces are smooth/curved vs. flat.
+	 * @param twoSided                Faces are two-sided.
+	 * @param positions               Vertex coordinates (triplet per vertex).
+	 * @param normals                 Vertex normals (triplet per vertex).
+	 * @param texCoords               Texture coordinates (pair per vertex).
+	 * @param vertexCoordinateIndices Index in {@link Object3D#getVertexCoordinates()}
+	 *                                for each vertex.
+	 * @param cornerVertices          Vertex index of each corner.
+	 * @param faceStarts              Index of first corner of each face,
+	 *                                followed by the number of corners.
+	 * @param triangles               Corner indices of triangles.
+	 * @param triangleStarts          Start of triangles of each face, followed
+	 *                                by the number of triangle indices.
+	 * @param outlines                Outlines of faces that do not have the
+	 *                                default outline (optional).
+	 */
+	@SuppressWarnings( "AssignmentToCollectionOrArrayFieldFromParameter" )
+	public CompactFaceGroup( @Nullable final Appearance appearance, final boolean smooth, final boolean twoSided, @NotNull final double[] positions, @Nullable final float[] normals, @Nullable final float[] texCoords, @NotNull final int[] vertexCoordinateIndices, @NotNull final int[] cornerVertices, @NotNull final int[] faceStarts, @NotNull final int[] triangles, @NotNull final int[] triangleStarts, @Nullable final Map<Integer, List<int[]>> outlines )
+	{
+		super( appearance, smooth, twoSided );
+
+		final int vertexCount = vertexCoordinateIndices.length;
+		if ( ( positions.length != vertexCount * 3 ) || ( ( normals != null ) && ( normals.length != vertexCount * 3 ) ) || ( ( texCoords != null ) && ( texCoords.length != vertexCount * 2 ) ) )
+		{
+			throw new IllegalArgumentException( "vertex array length mismatch" );
+		}
+
+		if ( ( faceStarts.length == 0 ) || ( faceStarts.length != triangleStarts.length ) || ( faceStarts[ faceStarts.length - 1 ] != cornerVertices.length ) || ( triangleStarts[ triangleStarts.length - 1 ] != triangles.length ) )
+		{
+			throw new IllegalArgumentException( "face array length mismatch" );
+		}
+
+		_positions = positions;
+		_normals = normals;
+		_texCoords = texCoords;
+		_vertexCoordinateIndices = vertexCoordinateIndices;
+		_cornerVertices = cornerVertices;
+		_faceStarts = faceStarts;
+		_triangles = triangles;
+		_triangleStarts = triangleStarts;
+		_outlines = ( ( outlines == null ) || outlines.isEmpty() ) ? null : outlines;
+	}
+
+	/**
+	 * Constructs face group by packing the given faces.
+	 *
+	 * @param appearance Appearance of faces.
+	 * @param smooth     Faces are smooth/curved vs. flat.
+	 * @param twoSided   Faces are two-sided.
+	 * @param faces      Faces to pack.
+	 */
+	private CompactFaceGroup( @Nullable final Appearance appearance, final boolean smooth, final boolean twoSided, @NotNull final List<Face3D> faces )
+	{
+		super( appearance, smooth, twoSided );
+		pack( faces );
+	}
+
+	/**
+	 * Creates a compact copy of the given face group.
+	 *
+	 * @param faceGroup Face group to copy.
+	 *
+	 * @return Compact face group.
+	 */
+	@NotNull
+	public static CompactFaceGroup create( @NotNull final FaceGroup faceGroup )
+	{
+		final CompactFaceGroup result;
+		if ( faceGroup instanceof CompactFaceGroup )
+		{
+			result = (CompactFaceGroup)faceGroup;
+		}
+		else
+		{
+			result = new CompactFaceGroup( faceGroup.getAppearance(), faceGroup.isSmooth(), faceGroup.isTwoSided(), faceGroup.getFaces() );
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the given faces in the packed arrays of this face group.
+	 *
+	 * @param faces Faces to store.
+	 */
+	private void pack( @NotNull final List<Face3D> faces )
+	{
+		final int faceCount = faces.size();
+
+		int cornerCount = 0;
+		int triangleIndexCount = 0;
+		int maxVertexCoordinateIndex = -1;
+		for ( final Face3D face : faces )
+		{
+			cornerCount += face.getVertexCount();
+			for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+			{
+				triangleIndexCount += primitive.getTriangles().length;
+			}
+			for ( final Vertex3D vertex : face.getVertices() )
+			{
+				maxVertexCoordinateIndex = Math.max( maxVertexCoordinateIndex, vertex.vertexCoordinateIndex );
+			}
+		}
+
+		// vertices with the same coordinate index are chained, so they can be welded
+		final int[] firstVertex = new int[ maxVertexCoordinateIndex + 1 ];
+		Arrays.fill( firstVertex, -1 );
+		final int[] nextVertex = new int[ cornerCount ];
+
+		final double[] positions = new double[ cornerCount * 3 ];
+		final float[] normals = new float[ cornerCount * 3 ];
+		final float[] texCoords = new float[ cornerCount * 2 ];
+		final int[] vertexCoordinateIndices = new int[ cornerCount ];
+		final int[] cornerVertices = new int[ cornerCount ];
+		final int[] faceStarts = new int[ faceCount + 1 ];
+		final int[] triangles = new int[ triangleIndexCount ];
+		final int[] triangleStarts = new int[ faceCount + 1 ];
+		Map<Integer, List<int[]>> outlines = null;
+
+		boolean hasNormals = false;
+		boolean hasTexCoords = false;
+		int vertexCount = 0;
+		int corner = 0;
+		int triangleIndex = 0;
+
+		for ( int faceIndex = 0; faceIndex < faceCount; faceIndex++ )
+		{
+			final Face3D face = faces.get( faceIndex );
+			final int faceStart = corner;
+			faceStarts[ faceIndex ] = faceStart;
+			triangleStarts[ faceIndex ] = triangleIndex;
+
+			for ( final Vertex3D vertex : face.getVertices() )
+			{
+				final Vector3D point = vertex.point;
+				final Vector3D normal = vertex.normal;
+				final float normalX = ( normal != null ) ? (float)normal.x : Float.NaN;
+				final float normalY = ( normal != null ) ? (float)normal.y : Float.NaN;
+				final float normalZ = ( normal != null ) ? (float)normal.z : Float.NaN;
+				final float u = vertex.colorMapU;
+				final float v = vertex.colorMapV;
+				final int vertexCoordinateIndex = vertex.vertexCoordinateIndex;
+
+				int vertexIndex = ( vertexCoordinateIndex >= 0 ) ? firstVertex[ vertexCoordinateIndex ] : -1;
+				while ( ( vertexIndex >= 0 ) && !( ( positions[ vertexIndex * 3 ] == point.x ) && ( positions[ vertexIndex * 3 + 1 ] == point.y ) && ( positions[ vertexIndex * 3 + 2 ] == point.z ) &&
+				                                   sameFloat( normals[ vertexIndex * 3 ], normalX ) && sameFloat( normals[ vertexIndex * 3 + 1 ], normalY ) && sameFloat( normals[ vertexIndex * 3 + 2 ], normalZ ) &&
+				                                   sameFloat( texCoords[ vertexIndex * 2 ], u ) && sameFloat( texCoords[ vertexIndex * 2 + 1 ], v ) ) )
+				{
+					vertexIndex = nextVertex[ vertexIndex ];
+				}
+
+				if ( vertexIndex < 0 )
+				{
+					vertexIndex = vertexCount++;
+					positions[ vertexIndex * 3 ] = point.x;
+					positions[ vertexIndex * 3 + 1 ] = point.y;
+					positions[ vertexIndex * 3 + 2 ] = point.z;
+					normals[ vertexIndex * 3 ] = normalX;
+					normals[ vertexIndex * 3 + 1 ] = normalY;
+					normals[ vertexIndex * 3 + 2 ] = normalZ;
+					texCoords[ vertexIndex * 2 ] = u;
+					texCoords[ vertexIndex * 2 + 1 ] = v;
+					vertexCoordinateIndices[ vertexIndex ] = vertexCoordinateIndex;
+					hasNormals |= ( normal != null );
+					hasTexCoords |= !Float.isNaN( u ) || !Float.isNaN( v );
+
+					if ( vertexCoordinateIndex >= 0 )
+					{
+						nextVertex[ vertexIndex ] = firstVertex[ vertexCoordinateIndex ];
+						firstVertex[ vertexCoordinateIndex ] = vertexIndex;
+					}
+				}
+
+				cornerVertices[ corner++ ] = vertexIndex;
+			}
+
+			final Tessellation tessellation = face.getTessellation();
+			for ( final TessellationPrimitive primitive : tessellation.getPrimitives() )
+			{
+				for ( final int faceVertex : primitive.getTriangles() )
+				{
+					triangles[ triangleIndex++ ] = faceStart + faceVertex;
+				}
+			}
+
+			final List<int[]> faceOutlines = tessellation.getOutlines();
+			if ( !isDefaultOutline( faceOutlines, corner - faceStart ) )
+			{
+				if ( outlines == null )
+				{
+					outlines = new HashMap<>();
+				}
+				outlines.put( faceIndex, faceOutlines );
+			}
+		}
+
+		faceStarts[ faceCount ] = corner;
+		triangleStarts[ faceCount ] = triangleIndex;
+
+		_positions = Arrays.copyOf( positions, vertexCount * 3 );
+		_normals = hasNormals ? Arrays.copyOf( normals, vertexCount * 3 ) : null;
+		_texCoords = hasTexCoords ? Arrays.copyOf( texCoords, vertexCount * 2 ) : null;
+		_vertexCoordinateIndices = Arrays.copyOf( vertexCoordinateIndices, vertexCount );
+		_cornerVertices = cornerVertices;
+		_faceStarts = faceStarts;
+		_triangles = triangles;
+		_triangleStarts = triangleStarts;
+		_outlines = outlines;
+	}
+
+	/**
+	 * Tests whether two floats are the same, treating all {@code NaN}s as equal.
+	 *
+	 * @param value1 First value.
+	 * @param value2 Second value.
+	 *
+	 * @return {@code true} if the values are the same.
+	 */
+	private static boolean sameFloat( final float value1, final float value2 )
+	{
+		return ( value1 == value2 ) || ( Float.isNaN( value1 ) && Float.isNaN( value2 ) );
+	}
+
+	/**
+	 * Tests whether the given outlines consist of a single outline that
+	 * connects all vertices of a face in order, like the one created by
+	 * {@link Face3D#getTessellation()} for untessellated faces.
+	 *
+	 * @param outlines    Outlines of face.
+	 * @param vertexCount Number of vertices in face.
+	 *
+	 * @return {@code true} if the outlines are the default outline.
+	 */
+	private static boolean isDefaultOutline( @NotNull final List<int[]> outlines, final int vertexCount )
+	{
+		boolean result = ( outlines.size() == 1 );
+		if ( result )
+		{
+			final int[] outline = outlines.get( 0 );
+			result = ( outline.length == vertexCount + 1 ) && ( vertexCount > 0 ) && ( outline[ vertexCount ] == 0 );
+			for ( int i = 0; result && ( i < vertexCount ); i++ )
+			{
+				result = ( outline[ i ] == i );
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns views of the faces in this group. Faces are created from the
+	 * packed data when they are requested, and are not kept by this group.
+	 *
+	 * @return Faces in this group.
+	 */
+	@NotNull
+	@Override
+	public List<Face3D> getFaces()
+	{
+		return new AbstractList<Face3D>()
+		{
+			@Override
+			public Face3D get( final int index )
+			{
+				return getFace( index );
+			}
+
+			@Override
+			public int size()
+			{
+				return getFaceCount();
+			}
+		};
+	}
+
+	/**
+	 * Adds a face to this group. The face is kept until the packed arrays are
+	 * needed again, at which point they are rebuilt.
+	 *
+	 * @param face Face to add.
+	 */
+	@Override
+	public void addFace( @NotNull final Face3D face )
+	{
+		List<Face3D> addedFaces = _addedFaces;
+		if ( addedFaces == null )
+		{
+			addedFaces = new ArrayList<Face3D>();
+			_addedFaces = addedFaces;
+		}
+		addedFaces.add( face );
+	}
+
+	/**
+	 * Removes a face from this group. The packed arrays are rebuilt when they
+	 * are needed again.
+	 *
+	 * @param face Face to remove.
+	 */
+	@Override
+	public void removeFace( @NotNull final Face3D face )
+	{
+		final int index = indexOfPackedFace( face );
+		if ( index >= 0 )
+		{
+			BitSet removedFaces = _removedFaces;
+			if ( removedFaces == null )
+			{
+				removedFaces = new BitSet();
+				_removedFaces = removedFaces;
+			}
+			removedFaces.set( index );
+		}
+		else
+		{
+			final List<Face3D> addedFaces = _addedFaces;
+			if ( addedFaces != null )
+			{
+				addedFaces.remove( face );
+			}
+		}
+	}
+
+	/**
+	 * Finds the given face in the packed arrays, ignoring faces that were
+	 * removed. Views created by this group are found by their index, other
+	 * faces are compared to the packed faces with the same number of
+	 * vertices.
+	 *
+	 * @param face Face to find.
+	 *
+	 * @return Index of face; {@code -1} if the face is not found.
+	 */
+	private int indexOfPackedFace( @NotNull final Face3D face )
+	{
+		final BitSet removedFaces = _removedFaces;
+		int result = -1;
+
+		if ( face instanceof FaceView )
+		{
+			final FaceView view = (FaceView)face;
+			if ( ( view.getGroup() == this ) && ( view._packCount == _packCount ) )
+			{
+				result = view._index;
+			}
+		}
+
+		if ( result < 0 )
+		{
+			final int[] faceStarts = _faceStarts;
+			final int vertexCount = face.getVertexCount();
+			for ( int i = 0; i < faceStarts.length - 1; i++ )
+			{
+				if ( ( faceStarts[ i + 1 ] - faceStarts[ i ] == vertexCount ) && ( ( removedFaces == null ) || !removedFaces.get( i ) ) && face.equals( createFace( i ) ) )
+				{
+					result = i;
+					break;
+				}
+			}
+		}
+		else if ( ( removedFaces != null ) && removedFaces.get( result ) )
+		{
+			result = -1;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Rebuilds the packed arrays if faces were added or removed since they
+	 * were last built. Faces are only created for the duration of the
+	 * rebuild.
+	 */
+	private void ensurePacked()
+	{
+		final List<Face3D> addedFaces = _addedFaces;
+		final BitSet removedFaces = _removedFaces;
+		if ( ( addedFaces != null ) || ( removedFaces != null ) )
+		{
+			final int faceCount = _faceStarts.length - 1;
+			final List<Face3D> faces = new ArrayList<Face3D>( faceCount + ( ( addedFaces != null ) ? addedFaces.size() : 0 ) );
+			for ( int i = 0; i < faceCount; i++ )
+			{
+				if ( ( removedFaces == null ) || !removedFaces.get( i ) )
+				{
+					faces.add( createFace( i ) );
+				}
+			}
+
+			if ( addedFaces != null )
+			{
+				faces.addAll( addedFaces );
+			}
+
+			_addedFaces = null;
+			_removedFaces = null;
+			pack( faces );
+			_packCount++;
+		}
+	}
+
+	/**
+	 * Returns a view of the face with the given index. Each call creates a
+	 * new instance.
+	 *
+	 * @param index Face index.
+	 *
+	 * @return Face.
+	 */
+	@NotNull
+	public Face3D getFace( final int index )
+	{
+		ensurePacked();
+		return createFace( index );
+	}
+
+	/**
+	 * Creates a view of the face with the given index in the current packed
+	 * arrays.
+	 *
+	 * @param index Face index.
+	 *
+	 * @return Face.
+	 */
+	@NotNull
+	private Face3D createFace( final int index )
+	{
+		final int faceStart = _faceStarts[ index ];
+		final int faceEnd = _faceStarts[ index + 1 ];
+		final int vertexCount = faceEnd - faceStart;
+
+		final List<Vertex3D> vertices = new ArrayList<Vertex3D>( vertexCount );
+		for ( int corner = faceStart; corner < faceEnd; corner++ )
+		{
+			vertices.add( createVertex( _cornerVertices[ corner ] ) );
+		}
+
+		final int triangleStart = _triangleStarts[ index ];
+		final int triangleEnd = _triangleStarts[ index + 1 ];
+		final int[] triangles = new int[ triangleEnd - triangleStart ];
+		for ( int i = 0; i < triangles.length; i++ )
+		{
+			triangles[ i ] = _triangles[ triangleStart + i ] - faceStart;
+		}
+
+		final List<int[]> outlines = getPackedOutlines( index );
+
+		final List<TessellationPrimitive> primitives = ( triangles.length > 0 ) ? Collections.<TessellationPrimitive>singletonList( new TriangleList( triangles ) ) : Collections.<TessellationPrimitive>emptyList();
+		return new FaceView( index, vertices, new Tessellation( outlines, primitives ) );
+	}
+
+	/**
+	 * Creates a {@link Vertex3D} for the vertex with the given index.
+	 *
+	 * @param vertexIndex Vertex index.
+	 *
+	 * @return Vertex.
+	 */
+	@NotNull
+	private Vertex3D createVertex( final int vertexIndex )
+	{
+		final double[] positions = _positions;
+		final Vector3D point = new Vector3D( positions[ vertexIndex * 3 ], positions[ vertexIndex * 3 + 1 ], positions[ vertexIndex * 3 + 2 ] );
+
+		final float[] normals = _normals;
+		final Vector3D normal = ( ( normals != null ) && !Float.isNaN( normals[ vertexIndex * 3 ] ) ) ? new Vector3D( (double)normals[ vertexIndex * 3 ], (double)normals[ vertexIndex * 3 + 1 ], (double)normals[ vertexIndex * 3 + 2 ] ) : null;
+
+		final float[] texCoords = _texCoords;
+		final float u = ( texCoords != null ) ? texCoords[ vertexIndex * 2 ] : Float.NaN;
+		final float v = ( texCoords != null ) ? texCoords[ vertexIndex * 2 + 1 ] : Float.NaN;
+
+		return new Vertex3D( point, normal, _vertexCoordinateIndices[ vertexIndex ], u, v );
+	}
+
+	/**
+	 * Returns the number of faces in this group.
+	 *
+	 * @return Number of faces.
+	 */
+	public int getFaceCount()
+	{
+		ensurePacked();
+		return _faceStarts.length - 1;
+	}
+
+	/**
+	 * Returns the number of distinct vertices in this group.
+	 *
+	 * @return Number of vertices.
+	 */
+	public int getVertexCount()
+	{
+		ensurePacked();
+		return _vertexCoordinateIndices.length;
+	}
+
+	/**
+	 * Returns the number of face corners in this group.
+	 *
+	 * @return Number of corners.
+	 */
+	public int getCornerCount()
+	{
+		ensurePacked();
+		return _cornerVertices.length;
+	}
+
+	/**
+	 * Returns the vertex coordinates. The returned array must not be modified.
+	 *
+	 * @return Vertex coordinates (triplet per vertex).
+	 */
+	@NotNull
+	@SuppressWarnings( "ReturnOfCollectionOrArrayField" )
+	public double[] getPositions()
+	{
+		ensurePacked();
+		return _positions;
+	}
+
+	/**
+	 * Returns the vertex normals. The returned array must not be modified.
+	 *
+	 * @return Vertex normals (triplet per vertex, {@code NaN} if a vertex has no
+	 * normal); {@code null} if no vertex has a normal.
+	 */
+	@Nullable
+	@SuppressWarnings( "ReturnOfCollectionOrArrayField" )
+	public float[] getNormals()
+	{
+		ensurePacked();
+		return _normals;
+	}
+
+	/**
+	 * Returns the texture coordinates. The returned array must not be
+	 * modified.
+	 *
+	 * @return Texture coordinates (pair per vertex); {@code null} if no vertex
+	 * has texture coordinates.
+	 */
+	@Nullable
+	@SuppressWarnings( "ReturnOfCollectionOrArrayField" )
+	public float[] getTexCoords()
+	{
+		ensurePacked();
+		return _texCoords;
+	}
+
+	/**
+	 * Returns the index in {@link Object3D#getVertexCoordinates()} for each
+	 * vertex. The returned array must not be modified.
+	 *
+	 * @return Vertex coordinate indices.
+	 */
+	@NotNull
+	@SuppressWarnings( "ReturnOfCollectionOrArrayField" )
+	public int[] getVertexCoordinateIndices()
+	{
+		ensurePacked();
+		return _vertexCoordinateIndices;
+	}
+
+	/**
+	 * Returns the vertex index of each corner. The returned array must not be
+	 * modified.
+	 *
+	 * @return Vertex index of each corner.
+	 */
+	@NotNull
+	@SuppressWarnings( "ReturnOfCollectionOrArrayField" )
+	public int[] getCornerVertices()
+	{
+		ensurePacked();
+		return _cornerVertices;
+	}
+
+	/**
+	 * Returns the index of the first corner of each face, followed by the
+	 * number of corners. The returned array must not be modified.
+	 *
+	 * @return Start of each face.
+	 */
+	@NotNull
+	@SuppressWarnings( "ReturnOfCollectionOrArrayField" )
+	public int[] getFaceStarts()
+	{
+		ensurePacked();
+		return _faceStarts;
+	}
+
+	/**
+	 * Returns the corner indices of all triangles. The returned array must not
+	 * be modified.
+	 *
+	 * @return Corner indices, three per triangle.
+	 */
+	@NotNull
+	@SuppressWarnings( "ReturnOfCollectionOrArrayField" )
+	public int[] getTriangles()
+	{
+		ensurePacked();
+		return _triangles;
+	}
+
+	/**
+	 * Returns the start of the triangles of each face in {@link #getTriangles()},
+	 * followed by the length of that array. The returned array must not be
+	 * modified.
+	 *
+	 * @return Start of triangles of each face.
+	 */
+	@NotNull
+	@SuppressWarnings( "ReturnOfCollectionOrArrayField" )
+	public int[] getTriangleStarts()
+	{
+		ensurePacked();
+		return _triangleStarts;
+	}
+
+	/**
+	 * Returns the outlines of the face with the given index.
+	 *
+	 * @param index Face index.
+	 *
+	 * @return Outlines with corner indices relative to the start of the face.
+	 */
+	@NotNull
+	public List<int[]> getOutlines( final int index )
+	{
+		ensurePacked();
+		return getPackedOutlines( index );
+	}
+
+	/**
+	 * Returns the outlines of the face with the given index in the current
+	 * packed arrays.
+	 *
+	 * @param index Face index.
+	 *
+	 * @return Outlines with corner indices relative to the start of the face.
+	 */
+	@NotNull
+	private List<int[]> getPackedOutlines( final int index )
+	{
+		List<int[]> result = ( _outlines != null ) ? _outlines.get( index ) : null;
+		if ( result == null )
+		{
+			final int vertexCount = _faceStarts[ index + 1 ] - _faceStarts[ index ];
+			final int[] outline = new int[ vertexCount + 1 ];
+			for ( int i = 0; i < vertexCount; i++ )
+			{
+				outline[ i ] = i;
+			}
+			result = Collections.singletonList( outline );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the normal of the face with the given index. This gives the same
+	 * result as {@link Face3D#getNormal()} for the face view.
+	 *
+	 * @param index Face index.
+	 *
+	 * @return Face normal; {@code NaN} components if no normal can be
+	 * determined.
+	 */
+	@NotNull
+	public Vector3D getFaceNormal( final int index )
+	{
+		ensurePacked();
+		Vector3D result = null;
+
+		// same vertices as used by 'Face3D.getCross()'
+		final int triangleStart = _triangleStarts[ index ];
+		final int faceStart = _faceStarts[ index ];
+		final int[] triangles = _triangles;
+		final boolean hasTriangles = ( _triangleStarts[ index + 1 ] > triangleStart );
+		if ( hasTriangles || ( _faceStarts[ index + 1 ] - faceStart >= 3 ) )
+		{
+			final double[] positions = _positions;
+			final int[] cornerVertices = _cornerVertices;
+			final int p0 = cornerVertices[ hasTriangles ? triangles[ triangleStart + 2 ] : faceStart ] * 3;
+			final int p1 = cornerVertices[ hasTriangles ? triangles[ triangleStart + 1 ] : faceStart + 1 ] * 3;
+			final int p2 = cornerVertices[ hasTriangles ? triangles[ triangleStart ] : faceStart + 2 ] * 3;
+
+			final Vector3D cross = Vector3D.cross( positions[ p0 ] - positions[ p1 ], positions[ p0 + 1 ] - positions[ p1 + 1 ], positions[ p0 + 2 ] - positions[ p1 + 2 ],
+			                                       positions[ p2 ] - positions[ p1 ], positions[ p2 + 1 ] - positions[ p1 + 1 ], positions[ p2 + 2 ] - positions[ p1 + 2 ] );
+			final double length = cross.length();
+			if ( length > 0.0 )
+			{
+				result = new Vector3D( cross.x / length, cross.y / length, cross.z / length );
+			}
+		}
+
+		return ( result != null ) ? result : new Vector3D( Double.NaN, 0.0, Double.NaN );
+	}
+
+	/**
+	 * Returns the distance of the plane of the face with the given index to
+	 * the origin. This gives the same result as {@link Face3D#getDistance()}
+	 * for the face view.
+	 *
+	 * @param index Face index.
+	 *
+	 * @return Distance of face plane to origin.
+	 */
+	public double getFaceDistance( final int index )
+	{
+		final Vector3D normal = getFaceNormal( index );
+		final int faceStart = _faceStarts[ index ];
+
+		final double result;
+		if ( _faceStarts[ index + 1 ] > faceStart )
+		{
+			final double[] positions = _positions;
+			final int point = _cornerVertices[ faceStart ] * 3;
+			result = Vector3D.dot( normal.x, normal.y, normal.z, positions[ point ], positions[ point + 1 ], positions[ point + 2 ] );
+		}
+		else
+		{
+			result = 0.0;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the packed arrays of
+	 * this face group.
+	 *
+	 * @return Number of bytes.
+	 */
+	public long getDataSize()
+	{
+		ensurePacked();
+		return 8L * (long)_positions.length +
+		       4L * (long)( ( ( _normals != null ) ? _normals.length : 0 ) + ( ( _texCoords != null ) ? _texCoords.length : 0 ) ) +
+		       4L * (long)( _vertexCoordinateIndices.length + _cornerVertices.length + _faceStarts.length + _triangles.length + _triangleStarts.length );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		ensurePacked();
+		int result = super.hashCode();
+		if ( _faceStarts.length > 1 )
+		{
+			result = result * 31 + Arrays.hashCode( _positions );
+			result = result * 31 + Arrays.hashCode( _cornerVertices );
+			result = result * 31 + Arrays.hashCode( _triangles );
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		final boolean result;
+		if ( obj == this )
+		{
+			result = true;
+		}
+		else if ( obj instanceof CompactFaceGroup )
+		{
+			final CompactFaceGroup other = (CompactFaceGroup)obj;
+			ensurePacked();
+			other.ensurePacked();
+
+			final Appearance appearance = getAppearance();
+			result = ( isSmooth() == other.isSmooth() ) &&
+			         ( isTwoSided() == other.isTwoSided() ) &&
+			         ( ( appearance != null ) ? appearance.equals( other.getAppearance() ) : ( other.getAppearance() == null ) ) &&
+			         Arrays.equals( _faceStarts, other._faceStarts ) &&
+			         Arrays.equals( _triangleStarts, other._triangleStarts ) &&
+			         Arrays.equals( _cornerVertices, other._cornerVertices ) &&
+			         Arrays.equals( _triangles, other._triangles ) &&
+			         Arrays.equals( _vertexCoordinateIndices, other._vertexCoordinateIndices ) &&
+			         Arrays.equals( _positions, other._positions ) &&
+			         Arrays.equals( _normals, other._normals ) &&
+			         Arrays.equals( _texCoords, other._texCoords ) &&
+			         outlinesEqual( _outlines, other._outlines );
+		}
+		else
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	/**
+	 * Tests whether two outline maps are equal.
+	 *
+	 * @param outlines1 First outline map.
+	 * @param outlines2 Second outline map.
+	 *
+	 * @return {@code true} if the maps contain equal outlines for the same
+	 * faces.
+	 */
+	private static boolean outlinesEqual( @Nullable final Map<Integer, List<int[]>> outlines1, @Nullable final Map<Integer, List<int[]>> outlines2 )
+	{
+		boolean result;
+		if ( ( outlines1 == null ) || ( outlines2 == null ) )
+		{
+			result = ( outlines1 == outlines2 );
+		}
+		else
+		{
+			result = outlines1.keySet().equals( outlines2.keySet() );
+			for ( final Iterator<Map.Entry<Integer, List<int[]>>> it = outlines1.entrySet().iterator(); result && it.hasNext(); )
+			{
+				final Map.Entry<Integer, List<int[]>> entry = it.next();
+				final List<int[]> faceOutlines1 = entry.getValue();
+				final List<int[]> faceOutlines2 = outlines2.get( entry.getKey() );
+				result = ( faceOutlines1.size() == faceOutlines2.size() );
+				for ( int i = 0; result && ( i < faceOutlines1.size() ); i++ )
+				{
+					result = Arrays.equals( faceOutlines1.get( i ), faceOutlines2.get( i ) );
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * View of a face in the packed arrays. The view remembers its index, so it
+	 * can be removed from the group without comparing it to other faces.
+	 */
+	private final class FaceView
+	extends Face3D
+	{
+		/**
+		 * Index of the face in the packed arrays.
+		 */
+		private final int _index;
+
+		/**
+		 * Value of {@link CompactFaceGroup#_packCount} when the view was
+		 * created.
+		 */
+		private final int _packCount;
+
+		/**
+		 * Constructs a new view.
+		 *
+		 * @param index        Index of the face in the packed arrays.
+		 * @param vertices     Vertices of the face.
+		 * @param tessellation Tessellation of the face.
+		 */
+		FaceView( final int index, @NotNull final List<Vertex3D> vertices, @NotNull final Tessellation tessellation )
+		{
+			super( vertices, tessellation );
+			_index = index;
+			_packCount = CompactFaceGroup.this._packCount;
+		}
+
+		/**
+		 * Returns the group that created this view.
+		 *
+		 * @return Face group.
+		 */
+		@NotNull
+		CompactFaceGroup getGroup()
+		{
+			return CompactFaceGroup.this;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Unordered pair of content nodes, e.g. two content nodes that collide.
+ *
+ * @author Peter S. Heijnen
+ */
+public final class ContentNodePair
+{
+	/**
+	 * First content node.
+	 */
+	@NotNull
+	private final ContentNode _first;
+
+	/**
+	 * Second content node.
+	 */
+	@NotNull
+	private final ContentNode _second;
+
+	/**
+	 * Constructs a new pair.
+	 *
+	 * @param first  First content node.
+	 * @param second Second content node.
+	 */
+	public ContentNodePair( @NotNull final ContentNode first, @NotNull final ContentNode second )
+	{
+		_first = first;
+		_second = second;
+	}
+
+	/**
+	 * Returns the first content node.
+	 *
+	 * @return First content node.
+	 */
+	@NotNull
+	public ContentNode getFirst()
+	{
+		return _first;
+	}
+
+	/**
+	 * Returns the second content node.
+	 *
+	 * @return Second content node.
+	 */
+	@NotNull
+	public ContentNode getSecond()
+	{
+		return _second;
+	}
+
+	/**
+	 * Returns whether the given content node is part of this pair.
+	 *
+	 * @param node Content node.
+	 *
+	 * @return {@code true} if the node is part of this pair.
+	 */
+	public boolean contains( @Nullable final ContentNode node )
+	{
+		return ( node == _first ) || ( node == _second );
+	}
+
+	@Override
+	public boolean equals( final Object object )
+	{
+		final boolean result;
+		if ( object == this )
+		{
+			result = true;
+		}
+		else if ( object instanceof ContentNodePair )
+		{
+			final ContentNodePair other = (ContentNodePair)object;
+			result = ( ( _first == other._first ) && ( _second == other._second ) ) ||
+			         ( ( _first == other._second ) && ( _second == other._first ) );
+		}
+		else
+		{
+			result = false;
+		}
+		return result;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return System.identityHashCode( _first ) + System.identityHashCode( _second );
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ContentNodePair{" + _first.getID() + ", " + _second.getID() + '}';
+	}
+}
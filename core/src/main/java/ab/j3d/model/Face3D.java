@@ -396,6 +396,17 @@ implements Plane3D
 		return result;
 	}
 
+	/**
+	 * Returns whether this face has a tessellation. If not, a tessellation
+	 * is created by {@link #getTessellation()}.
+	 *
+	 * @return {@code true} if the face has a tessellation.
+	 */
+	boolean hasTessellation()
+	{
+		return _tessellation != null;
+	}
+
 	/**
 	 * Set tessellation of this face.
 	 *
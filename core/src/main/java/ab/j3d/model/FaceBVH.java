@@ -0,0 +1,1221 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Bounding volume hierarchy over the tessellated faces of an
+ * {@link Object3D}, used to answer ray queries without testing every face.
+ *
+ * <p>The hierarchy is built once using binned surface area heuristic (SAH)
+ * splits and is stored in flat primitive arrays. Leaf primitives are the
+ * triangles of each face's {@link Face3D#getTessellation() tessellation}.
+ * Ray tests give exactly the same results as {@link
+ * Face3D#getIntersection(Ray3D)}: the ray is intersected with the plane of the
+ * face and the resulting point is tested against the triangles of the face.
+ * Faces of a {@link CompactFaceGroup} are read from its packed arrays; face
+ * views are only created for faces that are hit.
+ *
+ * <p>Instances are immutable after construction and may be queried from
+ * multiple threads.
+ *
+ * @author Peter S. Heijnen
+ */
+public final class FaceBVH
+{
+	/**
+	 * Maximum number of triangles in a leaf node that is created without
+	 * considering the SAH cost.
+	 */
+	private static final int MIN_LEAF_SIZE = 4;
+
+	/**
+	 * Maximum number of triangles in a leaf node.
+	 */
+	private static final int MAX_LEAF_SIZE = 16;
+
+	/**
+	 * Number of bins used to evaluate split candidates per axis.
+	 */
+	private static final int BIN_COUNT = 16;
+
+	/**
+	 * Cost of traversing a node relative to testing a triangle.
+	 */
+	private static final double TRAVERSAL_COST = 1.0;
+
+	/**
+	 * Maximum depth of the hierarchy. Deeper trees are prevented by creating
+	 * (larger) leaf nodes.
+	 */
+	private static final int MAX_DEPTH = 64;
+
+	/**
+	 * Tolerance used by {@link GeometryTools#getIntersectionBetweenRayAndPlane}
+	 * for intersections that are (almost) at the ray origin.
+	 */
+	private static final double RAY_ORIGIN_TOLERANCE = 0.001;
+
+	/**
+	 * Face groups that contain the faces referenced by the triangles.
+	 */
+	private final FaceGroup[] _faceGroups;
+
+	/**
+	 * Index of the first face of each face group, followed by the total
+	 * number of faces. Faces are numbered in the order in which they appear
+	 * in the object's face groups.
+	 */
+	private final int[] _faceGroupStarts;
+
+	/**
+	 * Plane of each face; four per face (normal x, y, z followed by the
+	 * distance to the origin).
+	 */
+	private final double[] _facePlanes;
+
+	/**
+	 * Triangle vertex coordinates, nine per triangle, in tree order.
+	 */
+	private final double[] _triangleCoordinates;
+
+	/**
+	 * Face index for each triangle, in tree order.
+	 */
+	private final int[] _triangleFaces;
+
+	/**
+	 * Node bounds; six per node (minimum x, y, z followed by maximum x, y, z).
+	 */
+	private final double[] _nodeBounds;
+
+	/**
+	 * For leaf nodes, index of the first triangle; for inner nodes, index of
+	 * the first child node. The second child immediately follows the first.
+	 */
+	private final int[] _nodeOffsets;
+
+	/**
+	 * Number of triangles in each node; {@code 0} for inner nodes.
+	 */
+	private final int[] _nodeCounts;
+
+	/**
+	 * Number of nodes.
+	 */
+	private final int _nodeCount;
+
+	/**
+	 * Absolute tolerance added to node bounds to compensate for rounding
+	 * errors.
+	 */
+	private final double _tolerance;
+
+	/**
+	 * Result of a ray query.
+	 */
+	public static final class Hit
+	{
+		/**
+		 * Index of the face in the object, counting faces of all face groups
+		 * in order.
+		 */
+		public final int faceIndex;
+
+		/**
+		 * Face that was hit. For faces of a {@link CompactFaceGroup}, this is a
+		 * view that was created for this hit.
+		 */
+		public final Face3D face;
+
+		/**
+		 * Intersection point.
+		 */
+		public final Vector3D point;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param faceIndex Index of the face in the object.
+		 * @param face      Face that was hit.
+		 * @param point     Intersection point.
+		 */
+		Hit( final int faceIndex, final Face3D face, final Vector3D point )
+		{
+			this.faceIndex = faceIndex;
+			this.face = face;
+			this.point = point;
+		}
+	}
+
+	/**
+	 * Builds a hierarchy for the faces in the given face groups.
+	 *
+	 * @param faceGroups Face groups to build hierarchy for.
+	 *
+	 * @return Bounding volume hierarchy; {@code null} if the face groups
+	 * contain no triangles.
+	 */
+	@Nullable
+	public static FaceBVH build( @NotNull final Collection<FaceGroup> faceGroups )
+	{
+		final FaceGroup[] groups = faceGroups.toArray( new FaceGroup[ faceGroups.size() ] );
+		final int[] faceGroupStarts = new int[ groups.length + 1 ];
+		final DoubleArray facePlanes = new DoubleArray();
+		final DoubleArray coordinates = new DoubleArray();
+		final IntArray triangleFaces = new IntArray();
+		int faceIndex = 0;
+
+		for ( int groupIndex = 0; groupIndex < groups.length; groupIndex++ )
+		{
+			final FaceGroup faceGroup = groups[ groupIndex ];
+			faceGroupStarts[ groupIndex ] = faceIndex;
+
+			if ( faceGroup instanceof CompactFaceGroup )
+			{
+				final CompactFaceGroup compact = (CompactFaceGroup)faceGroup;
+				final double[] positions = compact.getPositions();
+				final int[] cornerVertices = compact.getCornerVertices();
+				final int[] faceStarts = compact.getFaceStarts();
+				final int[] triangles = compact.getTriangles();
+				final int[] triangleStarts = compact.getTriangleStarts();
+				final int faceCount = compact.getFaceCount();
+
+				for ( int face = 0; face < faceCount; face++ )
+				{
+					final Vector3D normal = compact.getFaceNormal( face );
+					facePlanes.add( normal.x, normal.y, normal.z, compact.getFaceDistance( face ) );
+
+					if ( faceStarts[ face + 1 ] - faceStarts[ face ] >= 3 )
+					{
+						for ( int i = triangleStarts[ face ]; i < triangleStarts[ face + 1 ]; i += 3 )
+						{
+							final int p1 = cornerVertices[ triangles[ i ] ] * 3;
+							final int p2 = cornerVertices[ triangles[ i + 1 ] ] * 3;
+							final int p3 = cornerVertices[ triangles[ i + 2 ] ] * 3;
+							coordinates.add( positions[ p1 ], positions[ p1 + 1 ], positions[ p1 + 2 ], positions[ p2 ], positions[ p2 + 1 ], positions[ p2 + 2 ], positions[ p3 ], positions[ p3 + 1 ], positions[ p3 + 2 ] );
+							triangleFaces.add( faceIndex );
+						}
+					}
+
+					faceIndex++;
+				}
+			}
+			else
+			{
+				for ( final Face3D face : faceGroup.getFaces() )
+				{
+					final Vector3D normal = face.getNormal();
+					facePlanes.add( normal.x, normal.y, normal.z, face.getDistance() );
+
+					if ( face.getVertexCount() >= 3 )
+					{
+						final List<Vertex3D> vertices = face.getVertices();
+						for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+						{
+							final int[] triangles = primitive.getTriangles();
+							for ( int i = 0; i < triangles.length; i += 3 )
+							{
+								final Vector3D p1 = vertices.get( triangles[ i ] ).point;
+								final Vector3D p2 = vertices.get( triangles[ i + 1 ] ).point;
+								final Vector3D p3 = vertices.get( triangles[ i + 2 ] ).point;
+								coordinates.add( p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, p3.x, p3.y, p3.z );
+								triangleFaces.add( faceIndex );
+							}
+						}
+					}
+
+					faceIndex++;
+				}
+			}
+		}
+		faceGroupStarts[ groups.length ] = faceIndex;
+
+		return triangleFaces.isEmpty() ? null : new FaceBVH( groups, faceGroupStarts, facePlanes.toArray(), coordinates.toArray(), triangleFaces.toArray() );
+	}
+
+	/**
+	 * Constructs a new hierarchy.
+	 *
+	 * @param faceGroups          Face groups that contain the faces.
+	 * @param faceGroupStarts     Index of the first face of each face group.
+	 * @param facePlanes          Plane of each face (4 per face).
+	 * @param triangleCoordinates Triangle vertex coordinates (9 per triangle).
+	 * @param triangleFaces       Face index for each triangle.
+	 */
+	private FaceBVH( @NotNull final FaceGroup[] faceGroups, @NotNull final int[] faceGroupStarts, @NotNull final double[] facePlanes, @NotNull final double[] triangleCoordinates, @NotNull final int[] triangleFaces )
+	{
+		final int triangleCount = triangleFaces.length;
+
+		/*
+		 * Determine bounds and centroids per triangle. The bounds cover the
+		 * area on the face plane that may be reported as an intersection
+		 * with the triangle, which is the triangle itself for planar faces.
+		 */
+		final double[] triangleBounds = new double[ triangleCount * 6 ];
+		final double[] centroids = new double[ triangleCount * 3 ];
+		double maxCoordinate = 0.0;
+
+		for ( int i = 0; i < triangleCount; i++ )
+		{
+			getTriangleBounds( facePlanes, triangleFaces[ i ] * 4, triangleCoordinates, i * 9, triangleBounds, i * 6 );
+			for ( int axis = 0; axis < 3; axis++ )
+			{
+				final double min = triangleBounds[ i * 6 + axis ];
+				final double max = triangleBounds[ i * 6 + 3 + axis ];
+				centroids[ i * 3 + axis ] = 0.5 * ( min + max );
+				maxCoordinate = Math.max( maxCoordinate, Math.max( Math.abs( min ), Math.abs( max ) ) );
+			}
+		}
+
+		final int[] order = new int[ triangleCount ];
+		for ( int i = 0; i < triangleCount; i++ )
+		{
+			order[ i ] = i;
+		}
+
+		final Builder builder = new Builder( triangleBounds, centroids, order );
+		builder.build();
+
+		final double[] sortedCoordinates = new double[ triangleCount * 9 ];
+		final int[] sortedFaces = new int[ triangleCount ];
+		for ( int i = 0; i < triangleCount; i++ )
+		{
+			final int triangle = order[ i ];
+			System.arraycopy( triangleCoordinates, triangle * 9, sortedCoordinates, i * 9, 9 );
+			sortedFaces[ i ] = triangleFaces[ triangle ];
+		}
+
+		_faceGroups = faceGroups;
+		_faceGroupStarts = faceGroupStarts;
+		_facePlanes = facePlanes;
+		_triangleCoordinates = sortedCoordinates;
+		_triangleFaces = sortedFaces;
+		_nodeCount = builder._nodeCount;
+		_nodeBounds = Arrays.copyOf( builder._nodeBounds, _nodeCount * 6 );
+		_nodeOffsets = Arrays.copyOf( builder._nodeOffsets, _nodeCount );
+		_nodeCounts = Arrays.copyOf( builder._nodeCounts, _nodeCount );
+		_tolerance = 1.0e-9 * Math.max( 1.0, maxCoordinate );
+	}
+
+	/**
+	 * Determines the bounds of the region on the face plane where intersection
+	 * points may be considered inside the given triangle. Points are projected
+	 * onto the triangle's plane by {@link GeometryTools#isPointInsideTriangle},
+	 * so for a triangle that is not in the face plane, the region is the
+	 * triangle projected onto the face plane along the triangle normal.
+	 *
+	 * @param facePlanes  Face planes.
+	 * @param planeOffset Offset of the plane of the face that contains the
+	 *                    triangle in {@code facePlanes}.
+	 * @param coordinates Triangle coordinates.
+	 * @param offset      Offset of the triangle in {@code coordinates}.
+	 * @param bounds      Bounds array to store result in.
+	 * @param boundsIndex Index in {@code bounds} array.
+	 */
+	private static void getTriangleBounds( @NotNull final double[] facePlanes, final int planeOffset, @NotNull final double[] coordinates, final int offset, @NotNull final double[] bounds, final int boundsIndex )
+	{
+		final double ux = coordinates[ offset + 3 ] - coordinates[ offset ];
+		final double uy = coordinates[ offset + 4 ] - coordinates[ offset + 1 ];
+		final double uz = coordinates[ offset + 5 ] - coordinates[ offset + 2 ];
+		final double vx = coordinates[ offset + 6 ] - coordinates[ offset ];
+		final double vy = coordinates[ offset + 7 ] - coordinates[ offset + 1 ];
+		final double vz = coordinates[ offset + 8 ] - coordinates[ offset + 2 ];
+
+		final double nx = uy * vz - uz * vy;
+		final double ny = uz * vx - ux * vz;
+		final double nz = ux * vy - uy * vx;
+
+		final double faceNormalX = facePlanes[ planeOffset ];
+		final double faceNormalY = facePlanes[ planeOffset + 1 ];
+		final double faceNormalZ = facePlanes[ planeOffset + 2 ];
+		final double faceDistance = facePlanes[ planeOffset + 3 ];
+		final double denominator = faceNormalX * nx + faceNormalY * ny + faceNormalZ * nz;
+		final double length = Math.sqrt( nx * nx + ny * ny + nz * nz );
+		final boolean project = ( length > 0.0 ) && ( Math.abs( denominator ) > 1.0e-3 * length );
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double maxZ = Double.NEGATIVE_INFINITY;
+
+		for ( int i = offset; i < offset + 9; i += 3 )
+		{
+			final double x = coordinates[ i ];
+			final double y = coordinates[ i + 1 ];
+			final double z = coordinates[ i + 2 ];
+
+			minX = Math.min( minX, x );
+			minY = Math.min( minY, y );
+			minZ = Math.min( minZ, z );
+			maxX = Math.max( maxX, x );
+			maxY = Math.max( maxY, y );
+			maxZ = Math.max( maxZ, z );
+
+			if ( project )
+			{
+				final double s = ( faceDistance - ( faceNormalX * x + faceNormalY * y + faceNormalZ * z ) ) / denominator;
+				final double px = x + s * nx;
+				final double py = y + s * ny;
+				final double pz = z + s * nz;
+
+				minX = Math.min( minX, px );
+				minY = Math.min( minY, py );
+				minZ = Math.min( minZ, pz );
+				maxX = Math.max( maxX, px );
+				maxY = Math.max( maxY, py );
+				maxZ = Math.max( maxZ, pz );
+			}
+		}
+
+		bounds[ boundsIndex ] = minX;
+		bounds[ boundsIndex + 1 ] = minY;
+		bounds[ boundsIndex + 2 ] = minZ;
+		bounds[ boundsIndex + 3 ] = maxX;
+		bounds[ boundsIndex + 4 ] = maxY;
+		bounds[ boundsIndex + 5 ] = maxZ;
+	}
+
+	/**
+	 * Returns the number of triangles in the hierarchy.
+	 *
+	 * @return Number of triangles.
+	 */
+	public int getTriangleCount()
+	{
+		return _triangleFaces.length;
+	}
+
+	/**
+	 * Returns the number of nodes in the hierarchy.
+	 *
+	 * @return Number of nodes.
+	 */
+	public int getNodeCount()
+	{
+		return _nodeCount;
+	}
+
+	/**
+	 * Returns the face with the given index.
+	 *
+	 * @param faceIndex Index of the face in the object.
+	 *
+	 * @return Face.
+	 */
+	@NotNull
+	private Face3D getFace( final int faceIndex )
+	{
+		int groupIndex = Arrays.binarySearch( _faceGroupStarts, faceIndex );
+		if ( groupIndex < 0 )
+		{
+			groupIndex = -groupIndex - 2;
+		}
+		else
+		{
+			// skip empty face groups
+			while ( _faceGroupStarts[ groupIndex + 1 ] == faceIndex )
+			{
+				groupIndex++;
+			}
+		}
+
+		final FaceGroup faceGroup = _faceGroups[ groupIndex ];
+		final int index = faceIndex - _faceGroupStarts[ groupIndex ];
+		return ( faceGroup instanceof CompactFaceGroup ) ? ( (CompactFaceGroup)faceGroup ).getFace( index ) : faceGroup.getFaces().get( index );
+	}
+
+	/**
+	 * Finds all faces that intersect with the given ray. Results are ordered
+	 * by face index, i.e. in the same order as a linear scan over all face
+	 * groups would produce them.
+	 *
+	 * @param ray Ray in object coordinates.
+	 *
+	 * @return Intersections with the ray.
+	 */
+	@NotNull
+	public List<Hit> getIntersections( @NotNull final Ray3D ray )
+	{
+		final List<Hit> result = new ArrayList<Hit>();
+
+		final RayQuery query = new RayQuery( ray );
+		final int[] stack = new int[ MAX_DEPTH * 2 ];
+		int stackSize = 0;
+		stack[ stackSize++ ] = 0;
+
+		while ( stackSize > 0 )
+		{
+			final int node = stack[ --stackSize ];
+			if ( query.getEntryDistance( _nodeBounds, node * 6 ) != Double.POSITIVE_INFINITY )
+			{
+				final int count = _nodeCounts[ node ];
+				final int offset = _nodeOffsets[ node ];
+				if ( count == 0 )
+				{
+					stack[ stackSize++ ] = offset + 1;
+					stack[ stackSize++ ] = offset;
+				}
+				else
+				{
+					for ( int triangle = offset; triangle < offset + count; triangle++ )
+					{
+						final int faceIndex = _triangleFaces[ triangle ];
+						if ( !containsFace( result, faceIndex ) )
+						{
+							final Vector3D point = query.intersectTriangle( faceIndex, _triangleCoordinates, triangle * 9 );
+							if ( point != null )
+							{
+								result.add( new Hit( faceIndex, getFace( faceIndex ), point ) );
+							}
+						}
+					}
+				}
+			}
+		}
+
+		if ( result.size() > 1 )
+		{
+			Collections.sort( result, new Comparator<Hit>()
+			{
+				@Override
+				public int compare( final Hit hit1, final Hit hit2 )
+				{
+					return hit1.faceIndex - hit2.faceIndex;
+				}
+			} );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Finds the face intersection that is nearest to the origin of the given
+	 * ray. Nodes are visited front-to-back and skipped as soon as they can not
+	 * contain a nearer intersection.
+	 *
+	 * @param ray Ray in object coordinates.
+	 *
+	 * @return Nearest intersection; {@code null} if the ray hits no face.
+	 */
+	@Nullable
+	public Hit getNearestIntersection( @NotNull final Ray3D ray )
+	{
+		int nearestFace = -1;
+		Vector3D nearestPoint = null;
+		double nearest = Double.POSITIVE_INFINITY;
+
+		final RayQuery query = new RayQuery( ray );
+		final int[] stack = new int[ MAX_DEPTH * 2 ];
+		final double[] stackDistances = new double[ MAX_DEPTH * 2 ];
+		int stackSize = 0;
+
+		final double rootDistance = query.getEntryDistance( _nodeBounds, 0 );
+		if ( rootDistance != Double.POSITIVE_INFINITY )
+		{
+			stack[ stackSize ] = 0;
+			stackDistances[ stackSize++ ] = rootDistance;
+		}
+
+		while ( stackSize > 0 )
+		{
+			stackSize--;
+			if ( stackDistances[ stackSize ] <= nearest )
+			{
+				final int node = stack[ stackSize ];
+				final int count = _nodeCounts[ node ];
+				final int offset = _nodeOffsets[ node ];
+				if ( count == 0 )
+				{
+					final double distance1 = query.getEntryDistance( _nodeBounds, offset * 6 );
+					final double distance2 = query.getEntryDistance( _nodeBounds, ( offset + 1 ) * 6 );
+
+					/*
+					 * Push far child first, so the near child is visited first.
+					 */
+					final boolean firstIsNear = ( distance1 <= distance2 );
+					final double farDistance = firstIsNear ? distance2 : distance1;
+					final double nearDistance = firstIsNear ? distance1 : distance2;
+
+					if ( ( farDistance != Double.POSITIVE_INFINITY ) && ( farDistance <= nearest ) )
+					{
+						stack[ stackSize ] = firstIsNear ? offset + 1 : offset;
+						stackDistances[ stackSize++ ] = farDistance;
+					}
+
+					if ( ( nearDistance != Double.POSITIVE_INFINITY ) && ( nearDistance <= nearest ) )
+					{
+						stack[ stackSize ] = firstIsNear ? offset : offset + 1;
+						stackDistances[ stackSize++ ] = nearDistance;
+					}
+				}
+				else
+				{
+					for ( int triangle = offset; triangle < offset + count; triangle++ )
+					{
+						final int faceIndex = _triangleFaces[ triangle ];
+						final Vector3D point = query.intersectTriangle( faceIndex, _triangleCoordinates, triangle * 9 );
+						if ( point != null )
+						{
+							final double distance = query.getDistance( point );
+							if ( ( distance < nearest ) || ( ( distance == nearest ) && ( faceIndex < nearestFace ) ) )
+							{
+								nearest = distance;
+								nearestFace = faceIndex;
+								nearestPoint = point;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		return ( nearestPoint != null ) ? new Hit( nearestFace, getFace( nearestFace ), nearestPoint ) : null;
+	}
+
+	/**
+	 * Tests whether the given hit list contains a hit for the given face.
+	 *
+	 * @param hits      Hits to search.
+	 * @param faceIndex Index of face to look for.
+	 *
+	 * @return {@code true} if the face was already hit.
+	 */
+	private static boolean containsFace( @NotNull final List<Hit> hits, final int faceIndex )
+	{
+		boolean result = false;
+		for ( int i = hits.size(); --i >= 0; )
+		{
+			if ( hits.get( i ).faceIndex == faceIndex )
+			{
+				result = true;
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Pre-calculated ray properties for tree traversal.
+	 */
+	private final class RayQuery
+	{
+		/**
+		 * Ray to test.
+		 */
+		private final Ray3D _ray;
+
+		/**
+		 * Ray origin.
+		 */
+		private final double _originX;
+
+		/**
+		 * Ray origin.
+		 */
+		private final double _originY;
+
+		/**
+		 * Ray origin.
+		 */
+		private final double _originZ;
+
+		/**
+		 * Ray direction.
+		 */
+		private final double _directionX;
+
+		/**
+		 * Ray direction.
+		 */
+		private final double _directionY;
+
+		/**
+		 * Ray direction.
+		 */
+		private final double _directionZ;
+
+		/**
+		 * Minimum ray parameter to consider.
+		 */
+		private final double _minT;
+
+		/**
+		 * Amount by which node bounds are enlarged.
+		 */
+		private final double _padding;
+
+		/**
+		 * Index of face for which {@link #_facePoint} was calculated.
+		 */
+		private int _faceIndex = -1;
+
+		/**
+		 * Intersection between the ray and the plane of {@link #_faceIndex}.
+		 */
+		private Vector3D _facePoint = null;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param ray Ray to test.
+		 */
+		RayQuery( @NotNull final Ray3D ray )
+		{
+			final Vector3D origin = ray.getOrigin();
+			final Vector3D direction = ray.getDirection();
+
+			_ray = ray;
+			_originX = origin.x;
+			_originY = origin.y;
+			_originZ = origin.z;
+			_directionX = direction.x;
+			_directionY = direction.y;
+			_directionZ = direction.z;
+			_minT = ray.isHalfRay() ? -RAY_ORIGIN_TOLERANCE : Double.NEGATIVE_INFINITY;
+			_padding = _tolerance + RAY_ORIGIN_TOLERANCE * direction.length();
+		}
+
+		/**
+		 * Returns a lower bound for the distance parameter of intersections
+		 * within the given node.
+		 *
+		 * @param nodeBounds Node bounds.
+		 * @param offset     Offset in {@code nodeBounds}.
+		 *
+		 * @return Lower bound for absolute ray parameter of intersections;
+		 * {@link Double#POSITIVE_INFINITY} if the ray misses the node.
+		 */
+		double getEntryDistance( @NotNull final double[] nodeBounds, final int offset )
+		{
+			final double padding = _padding;
+			double tMin = _minT;
+			double tMax = Double.POSITIVE_INFINITY;
+
+			for ( int axis = 0; axis < 3; axis++ )
+			{
+				final double origin = ( axis == 0 ) ? _originX : ( axis == 1 ) ? _originY : _originZ;
+				final double direction = ( axis == 0 ) ? _directionX : ( axis == 1 ) ? _directionY : _directionZ;
+				final double min = nodeBounds[ offset + axis ] - padding;
+				final double max = nodeBounds[ offset + 3 + axis ] + padding;
+
+				if ( direction == 0.0 )
+				{
+					if ( ( origin < min ) || ( origin > max ) )
+					{
+						tMin = Double.POSITIVE_INFINITY;
+						break;
+					}
+				}
+				else
+				{
+					final double t1 = ( min - origin ) / direction;
+					final double t2 = ( max - origin ) / direction;
+					tMin = Math.max( tMin, Math.min( t1, t2 ) );
+					tMax = Math.min( tMax, Math.max( t1, t2 ) );
+					if ( tMin > tMax )
+					{
+						tMin = Double.POSITIVE_INFINITY;
+						break;
+					}
+				}
+			}
+
+			return ( tMin == Double.POSITIVE_INFINITY ) ? tMin : ( tMin <= 0.0 ) ? ( tMax >= 0.0 ) ? 0.0 : -tMax : tMin;
+		}
+
+		/**
+		 * Returns the absolute ray parameter for a point on the ray.
+		 *
+		 * @param point Point on the ray.
+		 *
+		 * @return Absolute ray parameter.
+		 */
+		double getDistance( @NotNull final Vector3D point )
+		{
+			final double dx = _directionX;
+			final double dy = _directionY;
+			final double dz = _directionZ;
+			return Math.abs( ( ( point.x - _originX ) * dx + ( point.y - _originY ) * dy + ( point.z - _originZ ) * dz ) / ( dx * dx + dy * dy + dz * dz ) );
+		}
+
+		/**
+		 * Intersects the ray with a triangle of a face. This performs the same
+		 * calculation as {@link Face3D#getIntersection(Ray3D)}, but only for a
+		 * single triangle.
+		 *
+		 * @param faceIndex   Index of face that contains the triangle.
+		 * @param coordinates Triangle coordinates.
+		 * @param offset      Offset of triangle in {@code coordinates}.
+		 *
+		 * @return Intersection point; {@code null} if the triangle is not hit.
+		 */
+		@Nullable
+		Vector3D intersectTriangle( final int faceIndex, @NotNull final double[] coordinates, final int offset )
+		{
+			if ( faceIndex != _faceIndex )
+			{
+				// faces are one-sided planes (see 'Face3D.isTwoSided()')
+				final double[] facePlanes = _facePlanes;
+				final int plane = faceIndex * 4;
+				final Ray3D ray = _ray;
+				_faceIndex = faceIndex;
+				_facePoint = GeometryTools.getIntersectionBetweenRayAndPlane( facePlanes[ plane ], facePlanes[ plane + 1 ], facePlanes[ plane + 2 ], facePlanes[ plane + 3 ], false, ray.getOrigin(), ray.getDirection(), ray.isHalfRay() );
+			}
+
+			final Vector3D point = _facePoint;
+			return ( ( point != null ) && isPointInsideTriangle( coordinates, offset, point ) ) ? point : null;
+		}
+	}
+
+	/**
+	 * Same as {@link GeometryTools#isPointInsideTriangle(Vector3D, Vector3D,
+	 * Vector3D, Vector3D)} for a triangle stored in an array.
+	 *
+	 * @param coordinates Triangle coordinates.
+	 * @param offset      Offset of triangle in {@code coordinates}.
+	 * @param p           Point to test.
+	 *
+	 * @return {@code true} if the point is inside the triangle.
+	 */
+	private static boolean isPointInsideTriangle( @NotNull final double[] coordinates, final int offset, @NotNull final Vector3D p )
+	{
+		final double v1x = coordinates[ offset ];
+		final double v1y = coordinates[ offset + 1 ];
+		final double v1z = coordinates[ offset + 2 ];
+
+		final double ux = coordinates[ offset + 3 ] - v1x;
+		final double uy = coordinates[ offset + 4 ] - v1y;
+		final double uz = coordinates[ offset + 5 ] - v1z;
+		final double vx = coordinates[ offset + 6 ] - v1x;
+		final double vy = coordinates[ offset + 7 ] - v1y;
+		final double vz = coordinates[ offset + 8 ] - v1z;
+		final double wx = p.x - v1x;
+		final double wy = p.y - v1y;
+		final double wz = p.z - v1z;
+
+		final double uu = ux * ux + uy * uy + uz * uz;
+		final double uv = ux * vx + uy * vy + uz * vz;
+		final double vv = vx * vx + vy * vy + vz * vz;
+		final double wu = wx * ux + wy * uy + wz * uz;
+		final double wv = wx * vx + wy * vy + wz * vz;
+		final double d = uv * uv - uu * vv;
+
+		final boolean result;
+
+		final double s = ( uv * wv - vv * wu ) / d;
+		if ( s >= 0.0 && s <= 1.0 )
+		{
+			final double t = ( uv * wu - uu * wv ) / d;
+			result = ( t >= 0.0 ) && ( s + t <= 1.0 );
+		}
+		else
+		{
+			result = false;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Builds the node arrays using binned SAH splits.
+	 */
+	private static final class Builder
+	{
+		/**
+		 * Bounds per triangle (6 per triangle).
+		 */
+		private final double[] _triangleBounds;
+
+		/**
+		 * Centroid per triangle (3 per triangle).
+		 */
+		private final double[] _centroids;
+
+		/**
+		 * Triangle order; partitioned in-place while building.
+		 */
+		private final int[] _order;
+
+		/**
+		 * Node bounds (6 per node).
+		 */
+		private final double[] _nodeBounds;
+
+		/**
+		 * First triangle or first child per node.
+		 */
+		private final int[] _nodeOffsets;
+
+		/**
+		 * Triangle count per node; {@code 0} for inner nodes.
+		 */
+		private final int[] _nodeCounts;
+
+		/**
+		 * Number of nodes that were created.
+		 */
+		private int _nodeCount = 0;
+
+		/**
+		 * Number of triangles per bin.
+		 */
+		private final int[] _binCounts = new int[ BIN_COUNT ];
+
+		/**
+		 * Bounds per bin.
+		 */
+		private final double[] _binBounds = new double[ BIN_COUNT * 6 ];
+
+		/**
+		 * Surface area of bins to the right of each split.
+		 */
+		private final double[] _rightAreas = new double[ BIN_COUNT ];
+
+		/**
+		 * Triangle counts of bins to the right of each split.
+		 */
+		private final int[] _rightCounts = new int[ BIN_COUNT ];
+
+		/**
+		 * Bounds accumulated while sweeping over bins.
+		 */
+		private final double[] _sweepBounds = new double[ 6 ];
+
+		/**
+		 * Constructs a new builder.
+		 *
+		 * @param triangleBounds Bounds per triangle.
+		 * @param centroids      Centroid per triangle.
+		 * @param order          Triangle order.
+		 */
+		Builder( @NotNull final double[] triangleBounds, @NotNull final double[] centroids, @NotNull final int[] order )
+		{
+			final int maxNodes = 2 * order.length - 1;
+			_triangleBounds = triangleBounds;
+			_centroids = centroids;
+			_order = order;
+			_nodeBounds = new double[ maxNodes * 6 ];
+			_nodeOffsets = new int[ maxNodes ];
+			_nodeCounts = new int[ maxNodes ];
+		}
+
+		/**
+		 * Builds the tree.
+		 */
+		void build()
+		{
+			_nodeCount = 1;
+			buildNode( 0, 0, _order.length, 0 );
+		}
+
+		/**
+		 * Builds the given node and its descendants.
+		 *
+		 * @param node  Node index.
+		 * @param start First triangle (index in {@link #_order}).
+		 * @param end   End of triangle range (exclusive).
+		 * @param depth Depth of the node.
+		 */
+		private void buildNode( final int node, final int start, final int end, final int depth )
+		{
+			final double[] triangleBounds = _triangleBounds;
+			final double[] centroids = _centroids;
+			final int[] order = _order;
+
+			/*
+			 * Determine node bounds and centroid bounds.
+			 */
+			final double[] bounds = _nodeBounds;
+			final int boundsOffset = node * 6;
+			setEmpty( bounds, boundsOffset );
+
+			double centroidMinX = Double.POSITIVE_INFINITY;
+			double centroidMinY = Double.POSITIVE_INFINITY;
+			double centroidMinZ = Double.POSITIVE_INFINITY;
+			double centroidMaxX = Double.NEGATIVE_INFINITY;
+			double centroidMaxY = Double.NEGATIVE_INFINITY;
+			double centroidMaxZ = Double.NEGATIVE_INFINITY;
+
+			for ( int i = start; i < end; i++ )
+			{
+				final int triangle = order[ i ];
+				include( bounds, boundsOffset, triangleBounds, triangle * 6 );
+
+				final double x = centroids[ triangle * 3 ];
+				final double y = centroids[ triangle * 3 + 1 ];
+				final double z = centroids[ triangle * 3 + 2 ];
+				centroidMinX = Math.min( centroidMinX, x );
+				centroidMinY = Math.min( centroidMinY, y );
+				centroidMinZ = Math.min( centroidMinZ, z );
+				centroidMaxX = Math.max( centroidMaxX, x );
+				centroidMaxY = Math.max( centroidMaxY, y );
+				centroidMaxZ = Math.max( centroidMaxZ, z );
+			}
+
+			final int count = end - start;
+			int split = -1;
+
+			if ( ( count > MIN_LEAF_SIZE ) && ( depth < MAX_DEPTH - 1 ) )
+			{
+				/*
+				 * Find best split using binned SAH.
+				 */
+				final double leafCost = (double)count;
+				double bestCost = Double.POSITIVE_INFINITY;
+				int bestAxis = -1;
+				int bestBin = -1;
+
+				for ( int axis = 0; axis < 3; axis++ )
+				{
+					final double centroidMin = ( axis == 0 ) ? centroidMinX : ( axis == 1 ) ? centroidMinY : centroidMinZ;
+					final double centroidMax = ( axis == 0 ) ? centroidMaxX : ( axis == 1 ) ? centroidMaxY : centroidMaxZ;
+					final double extent = centroidMax - centroidMin;
+					if ( extent > 0.0 )
+					{
+						final double binScale = (double)BIN_COUNT / extent;
+						fillBins( start, end, axis, centroidMin, binScale );
+
+						/*
+						 * Sweep from right to left to get right side areas.
+						 */
+						final double[] binBounds = _binBounds;
+						final double[] sweep = _sweepBounds;
+						setEmpty( sweep, 0 );
+						int rightCount = 0;
+						for ( int bin = BIN_COUNT - 1; bin > 0; bin-- )
+						{
+							rightCount += _binCounts[ bin ];
+							if ( _binCounts[ bin ] > 0 )
+							{
+								include( sweep, 0, binBounds, bin * 6 );
+							}
+							_rightCounts[ bin ] = rightCount;
+							_rightAreas[ bin ] = surfaceArea( sweep, 0 );
+						}
+
+						/*
+						 * Sweep from left to right to evaluate split costs.
+						 */
+						setEmpty( sweep, 0 );
+						int leftCount = 0;
+						for ( int bin = 0; bin < BIN_COUNT - 1; bin++ )
+						{
+							leftCount += _binCounts[ bin ];
+							if ( _binCounts[ bin ] > 0 )
+							{
+								include( sweep, 0, binBounds, bin * 6 );
+							}
+
+							final int rightCountAtSplit = _rightCounts[ bin + 1 ];
+							if ( ( leftCount > 0 ) && ( rightCountAtSplit > 0 ) )
+							{
+								final double cost = surfaceArea( sweep, 0 ) * (double)leftCount + _rightAreas[ bin + 1 ] * (double)rightCountAtSplit;
+								if ( cost < bestCost )
+								{
+									bestCost = cost;
+									bestAxis = axis;
+									bestBin = bin;
+								}
+							}
+						}
+					}
+				}
+
+				if ( bestAxis >= 0 )
+				{
+					final double nodeArea = surfaceArea( bounds, boundsOffset );
+					final double splitCost = TRAVERSAL_COST + ( ( nodeArea > 0.0 ) ? bestCost / nodeArea : leafCost );
+
+					if ( ( splitCost < leafCost ) || ( count > MAX_LEAF_SIZE ) )
+					{
+						final double centroidMin = ( bestAxis == 0 ) ? centroidMinX : ( bestAxis == 1 ) ? centroidMinY : centroidMinZ;
+						final double centroidMax = ( bestAxis == 0 ) ? centroidMaxX : ( bestAxis == 1 ) ? centroidMaxY : centroidMaxZ;
+						split = partition( start, end, bestAxis, centroidMin, (double)BIN_COUNT / ( centroidMax - centroidMin ), bestBin );
+					}
+				}
+				else if ( count > MAX_LEAF_SIZE )
+				{
+					/*
+					 * All centroids coincide; split in the middle.
+					 */
+					split = start + count / 2;
+				}
+			}
+
+			if ( ( split > start ) && ( split < end ) )
+			{
+				final int firstChild = _nodeCount;
+				_nodeCount += 2;
+				_nodeOffsets[ node ] = firstChild;
+				_nodeCounts[ node ] = 0;
+				buildNode( firstChild, start, split, depth + 1 );
+				buildNode( firstChild + 1, split, end, depth + 1 );
+			}
+			else
+			{
+				_nodeOffsets[ node ] = start;
+				_nodeCounts[ node ] = count;
+			}
+		}
+
+		/**
+		 * Assigns triangles to bins along the given axis.
+		 *
+		 * @param start       First triangle (index in {@link #_order}).
+		 * @param end         End of triangle range (exclusive).
+		 * @param axis        Axis to bin along.
+		 * @param centroidMin Minimum centroid coordinate along the axis.
+		 * @param binScale    Number of bins per unit.
+		 */
+		private void fillBins( final int start, final int end, final int axis, final double centroidMin, final double binScale )
+		{
+			final int[] binCounts = _binCounts;
+			final double[] binBounds = _binBounds;
+			Arrays.fill( binCounts, 0 );
+			for ( int bin = 0; bin < BIN_COUNT; bin++ )
+			{
+				setEmpty( binBounds, bin * 6 );
+			}
+
+			for ( int i = start; i < end; i++ )
+			{
+				final int triangle = _order[ i ];
+				final int bin = getBin( _centroids[ triangle * 3 + axis ], centroidMin, binScale );
+				binCounts[ bin ]++;
+				include( binBounds, bin * 6, _triangleBounds, triangle * 6 );
+			}
+		}
+
+		/**
+		 * Partitions triangles such that triangles in bins up to and including
+		 * the given bin come first.
+		 *
+		 * @param start       First triangle (index in {@link #_order}).
+		 * @param end         End of triangle range (exclusive).
+		 * @param axis        Axis to split along.
+		 * @param centroidMin Minimum centroid coordinate along the axis.
+		 * @param binScale    Number of bins per unit.
+		 * @param splitBin    Last bin on the left side.
+		 *
+		 * @return Index of first triangle on the right side.
+		 */
+		private int partition( final int start, final int end, final int axis, final double centroidMin, final double binScale, final int splitBin )
+		{
+			final int[] order = _order;
+			int left = start;
+			int right = end - 1;
+
+			while ( left <= right )
+			{
+				final int triangle = order[ left ];
+				if ( getBin( _centroids[ triangle * 3 + axis ], centroidMin, binScale ) <= splitBin )
+				{
+					left++;
+				}
+				else
+				{
+					order[ left ] = order[ right ];
+					order[ right-- ] = triangle;
+				}
+			}
+
+			return left;
+		}
+
+		/**
+		 * Returns the bin for a centroid coordinate.
+		 *
+		 * @param coordinate  Centroid coordinate.
+		 * @param centroidMin Minimum centroid coordinate along the axis.
+		 * @param binScale    Number of bins per unit.
+		 *
+		 * @return Bin index.
+		 */
+		private static int getBin( final double coordinate, final double centroidMin, final double binScale )
+		{
+			return Math.max( 0, Math.min( BIN_COUNT - 1, (int)( ( coordinate - centroidMin ) * binScale ) ) );
+		}
+
+		/**
+		 * Sets bounds to an empty box.
+		 *
+		 * @param bounds Bounds array.
+		 * @param offset Offset in bounds array.
+		 */
+		private static void setEmpty( @NotNull final double[] bounds, final int offset )
+		{
+			bounds[ offset ] = Double.POSITIVE_INFINITY;
+			bounds[ offset + 1 ] = Double.POSITIVE_INFINITY;
+			bounds[ offset + 2 ] = Double.POSITIVE_INFINITY;
+			bounds[ offset + 3 ] = Double.NEGATIVE_INFINITY;
+			bounds[ offset + 4 ] = Double.NEGATIVE_INFINITY;
+			bounds[ offset + 5 ] = Double.NEGATIVE_INFINITY;
+		}
+
+		/**
+		 * Grows bounds to include other bounds.
+		 *
+		 * @param bounds      Bounds to grow.
+		 * @param offset      Offset in {@code bounds}.
+		 * @param other       Bounds to include.
+		 * @param otherOffset Offset in {@code other}.
+		 */
+		private static void include( @NotNull final double[] bounds, final int offset, @NotNull final double[] other, final int otherOffset )
+		{
+			for ( int i = 0; i < 3; i++ )
+			{
+				final double min = other[ otherOffset + i ];
+				if ( min < bounds[ offset + i ] )
+				{
+					bounds[ offset + i ] = min;
+				}
+
+				final double max = other[ otherOffset + 3 + i ];
+				if ( max > bounds[ offset + 3 + i ] )
+				{
+					bounds[ offset + 3 + i ] = max;
+				}
+			}
+		}
+
+		/**
+		 * Returns the surface area of a box.
+		 *
+		 * @param bounds Bounds array.
+		 * @param offset Offset in bounds array.
+		 *
+		 * @return Surface area.
+		 */
+		private static double surfaceArea( @NotNull final double[] bounds, final int offset )
+		{
+			final double dx = bounds[ offset + 3 ] - bounds[ offset ];
+			final double dy = bounds[ offset + 4 ] - bounds[ offset + 1 ];
+			final double dz = bounds[ offset + 5 ] - bounds[ offset + 2 ];
+			return ( dx < 0.0 ) ? 0.0 : 2.0 * ( dx * dy + dy * dz + dz * dx );
+		}
+	}
+}
@@ -159,7 +159,7 @@ public class FaceGroup
 		{
 			result = true;
 		}
-		else if ( obj instanceof FaceGroup )
+		else if ( ( obj != null ) && ( obj.getClass() == getClass() ) )
 		{
 			final FaceGroup other = (FaceGroup)obj;
 			result = _smooth == other._smooth &&
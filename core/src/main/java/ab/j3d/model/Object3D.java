@@ -46,10 +46,21 @@ extends Node3D
 	 */
 	private final HashList<Vector3D> _vertices;
 
+	/**
+	 * Number of times the vertex coordinates were replaced. Used to detect
+	 * that data derived from the vertices is out of date.
+	 */
+	private int _vertexCoordinatesVersion = 0;
+
 	/**
 	 * Helper for collision tests.
 	 */
-	private CollisionNode _collisionNode = null;
+	private CollisionTree _collisionTree = null;
+
+	/**
+	 * Bounding volume hierarchy used to find intersections with rays.
+	 */
+	private FaceBVH _faceBVH = null;
 
 	/**
 	 * Bounding box of object in the local coordinate system.
@@ -116,6 +127,8 @@ extends Node3D
 	 */
 	public void smooth( final double maximumSmoothAngle, final double maximumEdgeAngle, final boolean separateMaterials )
 	{
+		expandFaceGroups();
+
 		final int vertexCount = getVertexCount();
 		if ( separateMaterials )
 		{
@@ -147,215 +160,48 @@ extends Node3D
 
 		if ( smoothEdges || smoothFaces )
 		{
-			/*
-			 * Map faces by vertex coordinate.
-			 */
-			final List<List<Face3D>> facesByVertexCoordinate = new ArrayList<List<Face3D>>( Collections.nCopies( vertexCount, Collections.<Face3D>emptyList() ) );
 			for ( final FaceGroup faceGroup : faceGroups )
 			{
 				faceGroup.setSmooth( smoothFaces );
-				for ( final Face3D face : faceGroup.getFaces() )
-				{
-					for ( final Vertex3D vertex : face.getVertices() )
-					{
-						List<Face3D> faceList = facesByVertexCoordinate.get( vertex.vertexCoordinateIndex );
-						if ( faceList.isEmpty() )
-						{
-							faceList = new ArrayList<Face3D>();
-							facesByVertexCoordinate.set( vertex.vertexCoordinateIndex, faceList );
-						}
-						faceList.add( face );
-					}
-				}
 			}
 
-			if ( smoothEdges )
-			{
-				smoothEdges( faceGroups, facesByVertexCoordinate, maximumEdgeAngle );
-			}
-
-			if ( smoothFaces )
-			{
-				smoothFaces( facesByVertexCoordinate, maximumSmoothAngle );
-			}
+			final Object3DSmoother smoother = new Object3DSmoother( faceGroups, vertexCount );
+			smoother.smooth( maximumSmoothAngle, maximumEdgeAngle );
 		}
 	}
 
 	/**
-	 * Remove 'smooth' edges based on the angles between adjacent faces.
-	 *
-	 * @param faceGroups              Face groups to be smoothed.
-	 * @param facesByVertexCoordinate Faces per object vertex coordinate.
-	 * @param maximumEdgeAngle        Maximum angle for which edges are removed.
+	 * Replaces all face groups in this object with {@link CompactFaceGroup}s,
+	 * which store the faces in packed arrays. This reduces memory usage, but
+	 * faces in these groups must no longer be modified in place. Methods that
+	 * modify faces, like {@link #smooth}, convert the groups back to regular
+	 * face groups.
 	 */
-	private static void smoothEdges( @NotNull final Iterable<FaceGroup> faceGroups, final List<List<Face3D>> facesByVertexCoordinate, final double maximumEdgeAngle )
+	public void compactFaceGroups()
 	{
-		final double minCosEdges = Math.cos( Math.toRadians( maximumEdgeAngle ) );
-		final List<int[]> outlines = new LinkedList<int[]>();
-
-		for ( final FaceGroup faceGroup : faceGroups )
+		final List<FaceGroup> faceGroups = _faceGroups;
+		for ( int i = 0; i < faceGroups.size(); i++ )
 		{
-			for ( final Face3D face : faceGroup.getFaces() )
-			{
-				boolean outlinesModified = false;
-				outlines.clear();
-
-				for ( final int[] outline : face.getOutlines() )
-				{
-					int outlineStart = 0;
-					final List<Vertex3D> faceVertices = face.getVertices();
-					List<Face3D> startFaces = facesByVertexCoordinate.get( faceVertices.get( outline[ 0 ] ).vertexCoordinateIndex );
-
-					for ( int i = 1; i < outline.length; i++ )
-					{
-						final List<Face3D> endFaces = facesByVertexCoordinate.get( faceVertices.get( outline[ i ] ).vertexCoordinateIndex );
-
-						/*
-						 * Find face on the opposite side of this edge.
-						 */
-						Face3D symmetric = null;
-						for ( final Face3D candidate : startFaces )
-						{
-							if ( ( candidate != face ) && endFaces.contains( candidate ) )
-							{
-								symmetric = candidate;
-								break;
-							}
-						}
-
-						/*
-						 * If a second face is found, check if the edge should
-						 * be removed.
-						 */
-						if ( symmetric != null )
-						{
-							final double cos = Vector3D.dot( face.getNormal(), symmetric.getNormal() );
-							if ( cos >= minCosEdges )
-							{
-								if ( i - outlineStart > 1 )
-								{
-									final int[] fragment = new int[ i - outlineStart ];
-									System.arraycopy( outline, outlineStart, fragment, 0, i - outlineStart );
-									outlines.add( fragment );
-								}
-
-								outlineStart = i;
-							}
-						}
-
-						startFaces = endFaces;
-					}
-
-					if ( outlineStart == 0 )
-					{
-						outlines.add( outline );
-					}
-					else
-					{
-						outlinesModified = true;
-						if ( outline.length - outlineStart > 1 )
-						{
-							final int[] fragment = new int[ outline.length - outlineStart ];
-							System.arraycopy( outline, outlineStart, fragment, 0, outline.length - outlineStart );
-							outlines.add( fragment );
-						}
-					}
-				}
-
-				if ( outlinesModified )
-				{
-					final Tessellation tessellation = face.getTessellation();
-					switch ( outlines.size() )
-					{
-						case 0:
-							face.setTessellation( new Tessellation( Collections.<int[]>emptyList(), tessellation.getPrimitives() ) );
-							break;
-
-						case 1:
-							face.setTessellation( new Tessellation( Collections.singletonList( outlines.get( 0 ) ), tessellation.getPrimitives() ) );
-							break;
-
-						default:
-							face.setTessellation( new Tessellation( new ArrayList<int[]>( outlines ), tessellation.getPrimitives() ) );
-					}
-				}
-			}
+			faceGroups.set( i, CompactFaceGroup.create( faceGroups.get( i ) ) );
 		}
+		invalidate();
 	}
 
 	/**
-	 * Apply smoothing to faces. This determine smoothing groups and applies
-	 * smoothing to them.
-	 *
-	 * @param facesByVertexCoordinate Faces per object vertex coordinate.
-	 * @param maximumSmoothAngle      Maximum smoothing angle, in degrees.
+	 * Replaces all {@link CompactFaceGroup}s in this object with regular face
+	 * groups, so their faces can be modified.
 	 */
-	private static void smoothFaces( final List<List<Face3D>> facesByVertexCoordinate, final double maximumSmoothAngle )
+	private void expandFaceGroups()
 	{
-		final List<Face3D> visited = new ArrayList<Face3D>();
-		final double minCosSmooth = Math.cos( Math.toRadians( maximumSmoothAngle ) );
-		for ( int i = 0; i < facesByVertexCoordinate.size(); i++ )
+		final List<FaceGroup> faceGroups = _faceGroups;
+		for ( int i = 0; i < faceGroups.size(); i++ )
 		{
-			final List<Face3D> faceList = facesByVertexCoordinate.get( i );
-			for ( final Face3D face1 : faceList )
+			final FaceGroup faceGroup = faceGroups.get( i );
+			if ( faceGroup instanceof CompactFaceGroup )
 			{
-				if ( !visited.contains( face1 ) )
-				{
-					/*
-					 * Find other faces in the same smoothing group.
-					 */
-					final int groupStart = visited.size();
-					visited.add( face1 );
-					for ( final Face3D face2 : faceList )
-					{
-						/*
-						 * If requested, place different materials in
-						 * different smoothing groups.
-						 */
-						if ( !visited.contains( face2 ) )
-						{
-							final double cos = Vector3D.dot( face1.getNormal(), face2.getNormal() );
-							if ( cos >= minCosSmooth )
-							{
-								visited.add( face2 );
-							}
-						}
-					}
-					final int groupEnd = visited.size();
-
-					/*
-					 * Calculate smooth normal.
-					 */
-					double normalX = 0.0;
-					double normalY = 0.0;
-					double normalZ = 0.0;
-					for ( int j = groupStart; j < groupEnd; j++ )
-					{
-						final Face3D face = visited.get( j );
-						final Vector3D cross = face.getCross();
-						normalX += cross.x;
-						normalY += cross.y;
-						normalZ += cross.z;
-					}
-					final Vector3D normal = Vector3D.normalize( normalX, normalY, normalZ );
-
-					/*
-					 * Set vertex normals.
-					 */
-					for ( int j = groupStart; j < groupEnd; j++ )
-					{
-						final Face3D face = visited.get( j );
-						for ( final Vertex3D vertex : face.getVertices() )
-						{
-							if ( vertex.vertexCoordinateIndex == i )
-							{
-								vertex.setNormal( normal );
-							}
-						}
-					}
-				}
+				faceGroups.set( i, new FaceGroup( faceGroup.getAppearance(), faceGroup.isSmooth(), faceGroup.isTwoSided(), faceGroup.getFaces() ) );
+				invalidate();
 			}
-			visited.clear();
 		}
 	}
 
@@ -378,6 +224,7 @@ extends Node3D
 	public void addFaceGroup( @NotNull final FaceGroup faceGroup )
 	{
 		_faceGroups.add( faceGroup );
+		invalidate();
 	}
 
 	/**
@@ -388,6 +235,7 @@ extends Node3D
 	public void removeFaceGroup( @NotNull final FaceGroup faceGroup )
 	{
 		_faceGroups.remove( faceGroup );
+		invalidate();
 	}
 
 	/**
@@ -399,6 +247,7 @@ extends Node3D
 	{
 		_faceGroups.clear();
 		_faceGroups.addAll( faceGroups );
+		invalidate();
 	}
 
 	/**
@@ -475,11 +324,11 @@ extends Node3D
 
 		if ( ( thisOrientedBoundingBox != null ) && ( otherOrientedBoundingBox != null ) && GeometryTools.testOrientedBoundingBoxIntersection( thisOrientedBoundingBox, fromOtherToThis, otherOrientedBoundingBox ) )
 		{
-			final CollisionNode thisCollisionNode = getCollisionNode();
-			final CollisionNode otherCollisionNode = other.getCollisionNode();
+			final CollisionTree thisCollisionTree = getCollisionTree();
+			final CollisionTree otherCollisionTree = other.getCollisionTree();
 
-			result = ( thisCollisionNode != null ) && ( otherCollisionNode != null ) &&
-			         thisCollisionNode.collidesWith( otherCollisionNode, fromOtherToThis );
+			result = ( thisCollisionTree != null ) && ( otherCollisionTree != null ) &&
+			         thisCollisionTree.collidesWith( otherCollisionTree, fromOtherToThis );
 		}
 		else
 		{
@@ -490,66 +339,84 @@ extends Node3D
 	}
 
 	/**
-	 * Get helper for collision tests.
+	 * Get helper for collision tests. The collision tree is built when this
+	 * method is first called; large meshes are built in parallel.
 	 *
 	 * @return Helper for collision tests.
 	 */
 	@Nullable
-	private CollisionNode getCollisionNode()
+	CollisionTree getCollisionTree()
 	{
-		CollisionNode result = _collisionNode;
+		CollisionTree result = _collisionTree;
 		if ( result == null )
 		{
-			final List<Vector3D> vertexCoordinates = _vertices;
-
 			int nrTriangles = 0;
 
 			for ( final FaceGroup faceGroup : getFaceGroups() )
 			{
-				for ( final Face3D face : faceGroup.getFaces() )
+				if ( faceGroup instanceof CompactFaceGroup )
 				{
-					final Tessellation tessellation = face.getTessellation();
-					for ( final TessellationPrimitive primitive : tessellation.getPrimitives() )
+					nrTriangles += ( (CompactFaceGroup)faceGroup ).getTriangles().length / 3;
+				}
+				else
+				{
+					for ( final Face3D face : faceGroup.getFaces() )
 					{
-						final int[] triangles = primitive.getTriangles();
-						nrTriangles += triangles.length / 3;
+						final Tessellation tessellation = face.getTessellation();
+						for ( final TessellationPrimitive primitive : tessellation.getPrimitives() )
+						{
+							final int[] triangles = primitive.getTriangles();
+							nrTriangles += triangles.length / 3;
+						}
 					}
 				}
 			}
 
-			final List<Triangle3D> triangles = new ArrayList<Triangle3D>( nrTriangles );
-			final Bounds3DBuilder boundsBuilder = new Bounds3DBuilder();
-
-			for ( final FaceGroup faceGroup : getFaceGroups() )
+			if ( nrTriangles > 0 )
 			{
-				for ( final Face3D face : faceGroup.getFaces() )
+				final double[] triangles = new double[ nrTriangles * 9 ];
+				int index = 0;
+
+				for ( final FaceGroup faceGroup : getFaceGroups() )
 				{
-					final Tessellation tessellation = face.getTessellation();
-					for ( final TessellationPrimitive primitive : tessellation.getPrimitives() )
+					if ( faceGroup instanceof CompactFaceGroup )
 					{
-						final List<Vertex3D> faceVertices = face.getVertices();
-						for ( final Vertex3D vertex : faceVertices )
+						final CompactFaceGroup compact = (CompactFaceGroup)faceGroup;
+						final double[] positions = compact.getPositions();
+						final int[] cornerVertices = compact.getCornerVertices();
+						for ( final int corner : compact.getTriangles() )
 						{
-							boundsBuilder.addPoint( vertexCoordinates.get( vertex.vertexCoordinateIndex ) );
+							final int position = cornerVertices[ corner ] * 3;
+							triangles[ index++ ] = positions[ position ];
+							triangles[ index++ ] = positions[ position + 1 ];
+							triangles[ index++ ] = positions[ position + 2 ];
 						}
-
-						final int[] primitiveTriangles = primitive.getTriangles();
-						for ( int i = 0; i < primitiveTriangles.length; i += 3 )
+					}
+					else
+					{
+						for ( final Face3D face : faceGroup.getFaces() )
 						{
-							final Vertex3D v1 = faceVertices.get( primitiveTriangles[ i ] );
-							final Vertex3D v2 = faceVertices.get( primitiveTriangles[ i + 1 ] );
-							final Vertex3D v3 = faceVertices.get( primitiveTriangles[ i + 2 ] );
-
-							triangles.add( new BasicTriangle3D( v1.point, v2.point, v3.point, true ) );
+							final List<Vertex3D> faceVertices = face.getVertices();
+							final Tessellation tessellation = face.getTessellation();
+							for ( final TessellationPrimitive primitive : tessellation.getPrimitives() )
+							{
+								for ( final int vertexIndex : primitive.getTriangles() )
+								{
+									final Vector3D point = faceVertices.get( vertexIndex ).point;
+									triangles[ index++ ] = point.x;
+									triangles[ index++ ] = point.y;
+									triangles[ index++ ] = point.z;
+								}
+							}
 						}
 					}
 				}
+
+				result = new CollisionTree( triangles, nrTriangles, true );
 			}
 
 			// TODO Maybe cache 'null' result here as well
-			result = triangles.isEmpty() ? null : new CollisionNode( triangles, 0, triangles.size() );
-
-			_collisionNode = result;
+			_collisionTree = result;
 		}
 		return result;
 	}
@@ -657,24 +524,21 @@ extends Node3D
 
 		final List<Face3DIntersection> result = ( dest != null ) ? dest : new ArrayList<Face3DIntersection>();
 
-		for ( final FaceGroup faceGroup : getFaceGroups() )
+		final FaceBVH faceBVH = getFaceBVH();
+		if ( faceBVH != null )
 		{
-			for ( final Face3D face : faceGroup.getFaces() )
+			for ( final FaceBVH.Hit hit : faceBVH.getIntersections( ocsRay ) )
 			{
-				final Vector3D ocsPoint = face.getIntersection( ocsRay );
-				if ( ocsPoint != null )
-				{
-					final Vector3D wcsPoint = object2world.transform( ocsPoint );
+				final Vector3D wcsPoint = object2world.transform( hit.point );
 
-					final Face3DIntersection intersection = new Face3DIntersection( objectID, object2world, this, path, face, ray, wcsPoint );
-					if ( sortResult )
-					{
-						Face3DIntersection.addSortedByDistance( result, intersection );
-					}
-					else
-					{
-						result.add( intersection );
-					}
+				final Face3DIntersection intersection = new Face3DIntersection( objectID, object2world, this, path, hit.face, ray, wcsPoint );
+				if ( sortResult )
+				{
+					Face3DIntersection.addSortedByDistance( result, intersection );
+				}
+				else
+				{
+					result.add( intersection );
 				}
 			}
 		}
@@ -682,6 +546,58 @@ extends Node3D
 		return result;
 	}
 
+	/**
+	 * Find the intersection between this object and the specified ray that is
+	 * nearest to the ray origin. This gives the same result as the first
+	 * element of the list returned by {@link #getIntersectionsWithRay} with
+	 * sorting enabled, but does not need to find all intersections.
+	 *
+	 * @param objectID     ID of object to test for intersections.
+	 * @param path         Path in scene graph to this object.
+	 * @param object2world Transforms object to world coordinates (OCS->WCS).
+	 * @param ray          Ray expression in world coordinates (WCS).
+	 *
+	 * @return Nearest intersection; {@code null} if the ray does not intersect
+	 *         this object.
+	 */
+	@Nullable
+	public Face3DIntersection getNearestIntersectionWithRay( final Object objectID, final Node3DPath path, final Matrix3D object2world, final Ray3D ray )
+	{
+		Face3DIntersection result = null;
+
+		final FaceBVH faceBVH = getFaceBVH();
+		if ( faceBVH != null )
+		{
+			final Matrix3D world2object = object2world.inverse();
+			final FaceBVH.Hit hit = faceBVH.getNearestIntersection( new BasicRay3D( world2object, ray ) );
+			if ( hit != null )
+			{
+				result = new Face3DIntersection( objectID, object2world, this, path, hit.face, ray, object2world.transform( hit.point ) );
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get bounding volume hierarchy used to find intersections with rays. The
+	 * hierarchy is built when it is first needed.
+	 *
+	 * @return Bounding volume hierarchy; {@code null} if the object has no
+	 *         faces.
+	 */
+	@Nullable
+	FaceBVH getFaceBVH()
+	{
+		FaceBVH result = _faceBVH;
+		if ( result == null )
+		{
+			result = FaceBVH.build( _faceGroups );
+			_faceBVH = result;
+		}
+		return result;
+	}
+
 	/**
 	 * Get vertex with the given index from this object.
 	 *
@@ -750,7 +666,8 @@ extends Node3D
 	void invalidate()
 	{
 		_orientedBoundingBox = null;
-		_collisionNode = null;
+		_collisionTree = null;
+		_faceBVH = null;
 	}
 
 	/**
@@ -765,9 +682,22 @@ extends Node3D
 	{
 		_vertices.clear();
 		_vertices.addAll( vertexCoordinates );
+		_vertexCoordinatesVersion++;
 		invalidate();
 	}
 
+	/**
+	 * Returns the number of times the vertex coordinates were replaced using
+	 * {@link #setVertexCoordinates}. Vertices that are appended do not change
+	 * the version.
+	 *
+	 * @return Version of the vertex coordinates.
+	 */
+	int getVertexCoordinatesVersion()
+	{
+		return _vertexCoordinatesVersion;
+	}
+
 	/**
 	 * Add {@link Face3D} to this object.
 	 *
@@ -780,11 +710,14 @@ extends Node3D
 	{
 		final FaceGroup faceGroup = getFaceGroup( appearance, smooth, twoSided );
 		faceGroup.addFace( face );
+		invalidate();
 	}
 
 	/**
 	 * Returns a face group with the given properties. If there an existing face
 	 * group is found, it is returned. Otherwise a new face group is created.
+	 * {@link CompactFaceGroup}s are never returned, since adding faces to them
+	 * would require their packed arrays to be rebuilt.
 	 *
 	 * @param appearance Appearance.
 	 * @param smooth     Smoothing flag.
@@ -799,7 +732,8 @@ extends Node3D
 		for ( final FaceGroup faceGroup : _faceGroups )
 		{
 			//noinspection ObjectEquality
-			if ( ( faceGroup.getAppearance() == appearance ) &&
+			if ( !( faceGroup instanceof CompactFaceGroup ) &&
+			     ( faceGroup.getAppearance() == appearance ) &&
 			     ( faceGroup.isSmooth() == smooth ) &&
 			     ( faceGroup.isTwoSided() == twoSided ) )
 			{
@@ -41,6 +41,25 @@ public class Object3DBuilder
 	@NotNull
 	private final Object3D _target;
 
+	/**
+	 * Size of grid cells used to weld vertices; {@code 0.0} to only weld
+	 * vertices with equal coordinates.
+	 */
+	private double _weldEpsilon = 0.0;
+
+	/**
+	 * Welds vertices added through this builder. Created when needed, and
+	 * kept in sync with the vertices of {@link #_target}.
+	 */
+	@Nullable
+	private VertexWelder _vertexWelder = null;
+
+	/**
+	 * Version of the vertex coordinates of {@link #_target} when {@link
+	 * #_vertexWelder} was created.
+	 */
+	private int _vertexWelderVersion = 0;
+
 	/**
 	 * Construct builder.
 	 */
@@ -119,7 +138,7 @@ public class Object3DBuilder
 			FaceGroup faceGroup = null;
 			for ( final FaceGroup existingFaceGroup : _target.getFaceGroups() )
 			{
-				if ( ( existingFaceGroup.isSmooth() == smooth ) && ( existingFaceGroup.isTwoSided() == twoSided ) && ( ( appearance == null ) ? ( existingFaceGroup.getAppearance() == null ) : appearance.equals( existingFaceGroup.getAppearance() ) ) )
+				if ( !( existingFaceGroup instanceof CompactFaceGroup ) && ( existingFaceGroup.isSmooth() == smooth ) && ( existingFaceGroup.isTwoSided() == twoSided ) && ( ( appearance == null ) ? ( existingFaceGroup.getAppearance() == null ) : appearance.equals( existingFaceGroup.getAppearance() ) ) )
 				{
 					faceGroup = existingFaceGroup;
 				}
@@ -150,7 +169,7 @@ public class Object3DBuilder
 						}
 					}
 
-					final Vertex3D vertex = new Vertex3D( point, normal, _target.getVertexIndex( point ), originalVertex.colorMapU, originalVertex.colorMapV );
+					final Vertex3D vertex = new Vertex3D( point, normal, getVertexIndex( point ), originalVertex.colorMapU, originalVertex.colorMapV );
 					vertices.add( vertex );
 				}
 
@@ -180,7 +199,129 @@ public class Object3DBuilder
 	 */
 	public int getVertexIndex( @NotNull final Vector3D point )
 	{
-		return _target.getVertexIndex( point );
+		return getVertexIndex( point.getX(), point.getY(), point.getZ(), point );
+	}
+
+	/**
+	 * Get index of vertex at the specified point. If no vertex was found at the
+	 * specified point, a new one is created.
+	 *
+	 * @param x X coordinate of point.
+	 * @param y Y coordinate of point.
+	 * @param z Z coordinate of point.
+	 *
+	 * @return Vertex index.
+	 */
+	public int getVertexIndex( final double x, final double y, final double z )
+	{
+		return getVertexIndex( x, y, z, null );
+	}
+
+	/**
+	 * Get index of vertex at the specified point. If no vertex was found at the
+	 * specified point, a new one is created.
+	 *
+	 * @param x     X coordinate of point.
+	 * @param y     Y coordinate of point.
+	 * @param z     Z coordinate of point.
+	 * @param point Point to use for a new vertex; {@code null} to create one.
+	 *
+	 * @return Vertex index.
+	 */
+	private int getVertexIndex( final double x, final double y, final double z, @Nullable final Vector3D point )
+	{
+		final VertexWelder welder = getVertexWelder();
+		final int vertexCount = welder.size();
+		final int result = welder.weld( x, y, z );
+		if ( result == vertexCount )
+		{
+			_target.addVertex( ( point != null ) ? point : new Vector3D( x, y, z ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Get vertex indices for the given points. Vertices at the same point are
+	 * welded, both with each other and with existing vertices.
+	 *
+	 * @param positions Coordinates of points (one triplet per point).
+	 *
+	 * @return Vertex index for each point.
+	 */
+	@NotNull
+	public int[] getVertexIndices( @NotNull final double[] positions )
+	{
+		final int pointCount = positions.length / 3;
+		final int[] result = new int[ pointCount ];
+
+		for ( int i = 0; i < pointCount; i++ )
+		{
+			result[ i ] = getVertexIndex( positions[ 3 * i ], positions[ 3 * i + 1 ], positions[ 3 * i + 2 ], null );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the welder for vertices added through this builder. Vertices that
+	 * were added to the target object by other means are added to the welder
+	 * first. The welder is recreated if the vertices of the target object were
+	 * replaced.
+	 *
+	 * @return Vertex welder.
+	 */
+	@NotNull
+	private VertexWelder getVertexWelder()
+	{
+		final Object3D target = _target;
+		final int vertexCount = target.getVertexCount();
+		final int version = target.getVertexCoordinatesVersion();
+
+		VertexWelder result = _vertexWelder;
+		if ( ( result == null ) || ( _vertexWelderVersion != version ) || ( result.size() > vertexCount ) )
+		{
+			result = new VertexWelder( _weldEpsilon, vertexCount );
+			_vertexWelder = result;
+			_vertexWelderVersion = version;
+		}
+
+		for ( int i = result.size(); i < vertexCount; i++ )
+		{
+			final Vector3D vertex = target.getVertex( i );
+			result.add( vertex.getX(), vertex.getY(), vertex.getZ() );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get size of grid cells used to weld vertices.
+	 *
+	 * @return Size of grid cells; {@code 0.0} if only vertices with equal
+	 * coordinates are welded.
+	 */
+	public double getWeldEpsilon()
+	{
+		return _weldEpsilon;
+	}
+
+	/**
+	 * Set size of grid cells used to weld vertices. Points that fall in the
+	 * same cell share the vertex that was added first in that cell. This
+	 * applies to vertices that are added after this method is called.
+	 *
+	 * @param weldEpsilon Size of grid cells; {@code 0.0} to only weld vertices
+	 *                    with equal coordinates.
+	 */
+	public void setWeldEpsilon( final double weldEpsilon )
+	{
+		if ( !( weldEpsilon >= 0.0 ) || Double.isInfinite( weldEpsilon ) )
+		{
+			throw new IllegalArgumentException( "weldEpsilon = " + weldEpsilon );
+		}
+
+		_weldEpsilon = weldEpsilon;
+		_vertexWelder = null;
 	}
 
 	/**
@@ -203,6 +344,7 @@ public class Object3DBuilder
 	public void setVertexCoordinates( @NotNull final Collection<Vector3D> vertexCoordinates )
 	{
 		_target.setVertexCoordinates( vertexCoordinates );
+		_vertexWelder = null;
 	}
 
 	/**
@@ -622,6 +764,53 @@ public class Object3DBuilder
 		_target.addFace( appearance, smooth, twoSided, new Face3D( _target, vertexIndices, texturePoints, vertexNormals ) );
 	}
 
+	/**
+	 * Add faces in bulk. The vertices of the faces are specified by indices
+	 * into the given positions array. Vertices are welded, both with each other
+	 * and with existing vertices, and all faces are added to the same face
+	 * group.
+	 *
+	 * @param positions     Coordinates of vertices (one triplet per vertex).
+	 * @param indices       Vertex indices of all faces, referring to vertices
+	 *                      in {@code positions}.
+	 * @param faceSizes     Number of vertices of each face; {@code null} if all
+	 *                      faces are triangles.
+	 * @param texturePoints Texture coordinates for each element of
+	 *                      {@code indices} (optional).
+	 * @param appearance    Appearance specification to use for shading.
+	 * @param smooth        Faces are smooth/curved vs. flat.
+	 * @param twoSided      Faces are two-sided.
+	 */
+	public void addFaces( @NotNull final double[] positions, @NotNull final int[] indices, @Nullable final int[] faceSizes, @Nullable final float[] texturePoints, @Nullable final Appearance appearance, final boolean smooth, final boolean twoSided )
+	{
+		final int faceCount = ( faceSizes != null ) ? faceSizes.length : indices.length / 3;
+		if ( faceCount > 0 )
+		{
+			final int[] vertexIndices = getVertexIndices( positions );
+			final Object3D target = _target;
+			final FaceGroup faceGroup = target.getFaceGroup( appearance, smooth, twoSided );
+
+			int start = 0;
+			for ( int face = 0; face < faceCount; face++ )
+			{
+				final int faceSize = ( faceSizes != null ) ? faceSizes[ face ] : 3;
+				final int end = start + faceSize;
+
+				final int[] faceVertexIndices = new int[ faceSize ];
+				for ( int i = 0; i < faceSize; i++ )
+				{
+					faceVertexIndices[ i ] = vertexIndices[ indices[ start + i ] ];
+				}
+
+				final float[] faceTexturePoints = ( texturePoints != null ) ? Arrays.copyOfRange( texturePoints, 2 * start, 2 * end ) : null;
+				faceGroup.addFace( new Face3D( target, faceVertexIndices, faceTexturePoints, null ) );
+				start = end;
+			}
+
+			target.invalidate();
+		}
+	}
+
 	/**
 	 * Add quad primitive.
 	 *
@@ -0,0 +1,621 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Calculates vertex normals and removes edges based on the angles between
+ * adjacent faces. This implements {@link Object3D#smooth}.
+ *
+ * <p>
+ * Faces are numbered in the order in which they occur in the face groups.
+ * The faces adjacent to each vertex coordinate are stored in compressed form:
+ * {@link #_faceStarts} contains for each vertex coordinate the offset of its
+ * faces in {@link #_faceIndices}. Face normals are copied into arrays before
+ * processing, so no objects need to be allocated to compare faces.
+ *
+ * <p>
+ * Large meshes are processed in parallel: edges are removed per range of
+ * faces and vertex normals are calculated per range of vertex coordinates.
+ * Both only modify the faces resp. vertices within their range, so the
+ * result does not depend on the number of threads.
+ *
+ * @author Peter S. Heijnen
+ */
+class Object3DSmoother
+{
+	/**
+	 * Number of faces or vertex coordinates below which work is not split
+	 * into parallel tasks.
+	 */
+	private static final int PARALLEL_THRESHOLD = 4096;
+
+	/**
+	 * Faces to be smoothed.
+	 */
+	private final Face3D[] _faces;
+
+	/**
+	 * Offset in {@link #_faceIndices} for each vertex coordinate. The last
+	 * element contains the total number of face indices.
+	 */
+	private final int[] _faceStarts;
+
+	/**
+	 * Indices of faces per vertex coordinate. A face occurs once for every
+	 * vertex that uses the vertex coordinate.
+	 */
+	private final int[] _faceIndices;
+
+	/**
+	 * Normal of each face (x, y, z).
+	 */
+	private final double[] _normals;
+
+	/**
+	 * Cross product of the first two edges of each face (x, y, z).
+	 *
+	 * @see Face3D#getCross
+	 */
+	private final double[] _crosses;
+
+	/**
+	 * Whether the normal of each face is first needed (by an earlier face)
+	 * before the face is tessellated.
+	 */
+	private final boolean[] _normalBeforeTessellation;
+
+	/**
+	 * Constructs a new smoother for the given face groups.
+	 *
+	 * @param faceGroups  Face groups to be smoothed.
+	 * @param vertexCount Number of vertex coordinates stored in the object
+	 *                    containing the faces.
+	 */
+	Object3DSmoother( @NotNull final Iterable<FaceGroup> faceGroups, final int vertexCount )
+	{
+		int faceCount = 0;
+		for ( final FaceGroup faceGroup : faceGroups )
+		{
+			faceCount += faceGroup.getFaces().size();
+		}
+
+		final Face3D[] faces = new Face3D[ faceCount ];
+		final int[] faceStarts = new int[ vertexCount + 1 ];
+
+		int faceIndex = 0;
+		for ( final FaceGroup faceGroup : faceGroups )
+		{
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				faces[ faceIndex++ ] = face;
+				for ( final Vertex3D vertex : face.getVertices() )
+				{
+					faceStarts[ vertex.vertexCoordinateIndex + 1 ]++;
+				}
+			}
+		}
+
+		for ( int i = 0; i < vertexCount; i++ )
+		{
+			faceStarts[ i + 1 ] += faceStarts[ i ];
+		}
+
+		final int[] faceIndices = new int[ faceStarts[ vertexCount ] ];
+		final int[] next = Arrays.copyOf( faceStarts, vertexCount );
+		for ( int i = 0; i < faceCount; i++ )
+		{
+			for ( final Vertex3D vertex : faces[ i ].getVertices() )
+			{
+				faceIndices[ next[ vertex.vertexCoordinateIndex ]++ ] = i;
+			}
+		}
+
+		_faces = faces;
+		_faceStarts = faceStarts;
+		_faceIndices = faceIndices;
+		_normals = new double[ faceCount * 3 ];
+		_crosses = new double[ faceCount * 3 ];
+		_normalBeforeTessellation = new boolean[ faceCount ];
+	}
+
+	/**
+	 * Calculates vertex normals and/or removes edges.
+	 *
+	 * @param maximumSmoothAngle Maximum smoothing angle, in degrees; {@code 0}
+	 *                           to not calculate vertex normals.
+	 * @param maximumEdgeAngle   Maximum angle for which edges are removed;
+	 *                           {@code 0} to not remove edges.
+	 */
+	void smooth( final double maximumSmoothAngle, final double maximumEdgeAngle )
+	{
+		final int faceCount = _faces.length;
+		final int vertexCount = _faceStarts.length - 1;
+
+		if ( maximumEdgeAngle > 0.0 )
+		{
+			/*
+			 * Removing edges requires the outlines of each face, which creates
+			 * a tessellation for faces without one. The cross product of a
+			 * face depends on its tessellation, so the normal of a face is
+			 * determined before it is tessellated if an earlier face needs it.
+			 */
+			run( new RangeTask( RangeTask.NORMAL_ORDER, 0.0, 0, faceCount ) );
+			run( new RangeTask( RangeTask.TESSELLATED_NORMALS, 0.0, 0, faceCount ) );
+		}
+		else
+		{
+			run( new RangeTask( RangeTask.NORMALS, 0.0, 0, faceCount ) );
+		}
+
+		if ( maximumEdgeAngle > 0.0 )
+		{
+			run( new RangeTask( RangeTask.EDGES, Math.cos( Math.toRadians( maximumEdgeAngle ) ), 0, faceCount ) );
+		}
+
+		if ( maximumSmoothAngle > 0.0 )
+		{
+			run( new RangeTask( RangeTask.VERTEX_NORMALS, Math.cos( Math.toRadians( maximumSmoothAngle ) ), 0, vertexCount ) );
+		}
+	}
+
+	/**
+	 * Runs the given task, in parallel if it is large enough.
+	 *
+	 * @param task Task to run.
+	 */
+	private static void run( final RangeTask task )
+	{
+		if ( task._end - task._start > PARALLEL_THRESHOLD )
+		{
+			ForkJoinPool.commonPool().invoke( task );
+		}
+		else
+		{
+			task.compute();
+		}
+	}
+
+	/**
+	 * Determines for the given range of faces which adjacent faces are
+	 * compared with a face that precedes them, which means their normal is
+	 * determined before they are tessellated.
+	 *
+	 * @param start First face.
+	 * @param end   Face after the last face.
+	 */
+	private void getNormalOrder( final int start, final int end )
+	{
+		final Face3D[] faces = _faces;
+		final boolean[] normalBeforeTessellation = _normalBeforeTessellation;
+
+		for ( int faceIndex = start; faceIndex < end; faceIndex++ )
+		{
+			final Face3D face = faces[ faceIndex ];
+			final List<Vertex3D> faceVertices = face.getVertices();
+			final List<int[]> outlines;
+
+			if ( face.hasTessellation() )
+			{
+				outlines = face.getOutlines();
+			}
+			else
+			{
+				final int vertexCount = faceVertices.size();
+				final int[] outline = new int[ vertexCount + 1 ];
+				for ( int i = 0; i < vertexCount; i++ )
+				{
+					outline[ i ] = i;
+				}
+				outlines = Collections.singletonList( outline );
+			}
+
+			for ( final int[] outline : outlines )
+			{
+				int startCoordinate = faceVertices.get( outline[ 0 ] ).vertexCoordinateIndex;
+				for ( int i = 1; i < outline.length; i++ )
+				{
+					final int endCoordinate = faceVertices.get( outline[ i ] ).vertexCoordinateIndex;
+					final int symmetric = findSymmetric( faceIndex, startCoordinate, endCoordinate );
+					if ( symmetric > faceIndex )
+					{
+						normalBeforeTessellation[ symmetric ] = true;
+					}
+					startCoordinate = endCoordinate;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies face normals and cross products for the given range of faces.
+	 *
+	 * @param tessellate Tessellate faces before determining normals.
+	 * @param start      First face.
+	 * @param end        Face after the last face.
+	 */
+	private void getNormals( final boolean tessellate, final int start, final int end )
+	{
+		final Face3D[] faces = _faces;
+		final double[] normals = _normals;
+		final double[] crosses = _crosses;
+
+		for ( int i = start; i < end; i++ )
+		{
+			final Face3D face = faces[ i ];
+			if ( tessellate )
+			{
+				if ( _normalBeforeTessellation[ i ] )
+				{
+					face.getNormal();
+				}
+				face.getTessellation();
+			}
+
+			final Vector3D normal = face.getNormal();
+			normals[ i * 3 ] = normal.x;
+			normals[ i * 3 + 1 ] = normal.y;
+			normals[ i * 3 + 2 ] = normal.z;
+
+			final Vector3D cross = face.getCross();
+			crosses[ i * 3 ] = cross.x;
+			crosses[ i * 3 + 1 ] = cross.y;
+			crosses[ i * 3 + 2 ] = cross.z;
+		}
+	}
+
+	/**
+	 * Returns the cosine of the angle between the normals of two faces.
+	 *
+	 * @param face1 Index of first face.
+	 * @param face2 Index of second face.
+	 *
+	 * @return Cosine of angle between normals.
+	 */
+	private double getCos( final int face1, final int face2 )
+	{
+		final double[] normals = _normals;
+		return Vector3D.dot( normals[ face1 * 3 ], normals[ face1 * 3 + 1 ], normals[ face1 * 3 + 2 ], normals[ face2 * 3 ], normals[ face2 * 3 + 1 ], normals[ face2 * 3 + 2 ] );
+	}
+
+	/**
+	 * Find the face on the opposite side of an edge.
+	 *
+	 * @param faceIndex       Face containing the edge.
+	 * @param startCoordinate Vertex coordinate at the start of the edge.
+	 * @param endCoordinate   Vertex coordinate at the end of the edge.
+	 *
+	 * @return Index of face on the opposite side; {@code -1} if none.
+	 */
+	private int findSymmetric( final int faceIndex, final int startCoordinate, final int endCoordinate )
+	{
+		final int[] faceStarts = _faceStarts;
+		final int[] faceIndices = _faceIndices;
+
+		int result = -1;
+		for ( int j = faceStarts[ startCoordinate ]; ( result < 0 ) && ( j < faceStarts[ startCoordinate + 1 ] ); j++ )
+		{
+			final int candidate = faceIndices[ j ];
+			if ( candidate != faceIndex )
+			{
+				for ( int k = faceStarts[ endCoordinate ]; ( result < 0 ) && ( k < faceStarts[ endCoordinate + 1 ] ); k++ )
+				{
+					if ( faceIndices[ k ] == candidate )
+					{
+						result = candidate;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Remove 'smooth' edges based on the angles between adjacent faces, for
+	 * the given range of faces.
+	 *
+	 * @param minCosEdges Cosine of maximum angle for which edges are removed.
+	 * @param start       First face.
+	 * @param end         Face after the last face.
+	 */
+	private void smoothEdges( final double minCosEdges, final int start, final int end )
+	{
+		final Face3D[] faces = _faces;
+		final List<int[]> outlines = new ArrayList<int[]>();
+
+		for ( int faceIndex = start; faceIndex < end; faceIndex++ )
+		{
+			final Face3D face = faces[ faceIndex ];
+			final List<Vertex3D> faceVertices = face.getVertices();
+
+			boolean outlinesModified = false;
+			outlines.clear();
+
+			for ( final int[] outline : face.getOutlines() )
+			{
+				int outlineStart = 0;
+				int startCoordinate = faceVertices.get( outline[ 0 ] ).vertexCoordinateIndex;
+
+				for ( int i = 1; i < outline.length; i++ )
+				{
+					final int endCoordinate = faceVertices.get( outline[ i ] ).vertexCoordinateIndex;
+
+					/*
+					 * Find face on the opposite side of this edge.
+					 */
+					final int symmetric = findSymmetric( faceIndex, startCoordinate, endCoordinate );
+
+					/*
+					 * If a second face is found, check if the edge should
+					 * be removed.
+					 */
+					if ( ( symmetric >= 0 ) && ( getCos( faceIndex, symmetric ) >= minCosEdges ) )
+					{
+						if ( i - outlineStart > 1 )
+						{
+							outlines.add( Arrays.copyOfRange( outline, outlineStart, i ) );
+						}
+
+						outlineStart = i;
+					}
+
+					startCoordinate = endCoordinate;
+				}
+
+				if ( outlineStart == 0 )
+				{
+					outlines.add( outline );
+				}
+				else
+				{
+					outlinesModified = true;
+					if ( outline.length - outlineStart > 1 )
+					{
+						outlines.add( Arrays.copyOfRange( outline, outlineStart, outline.length ) );
+					}
+				}
+			}
+
+			if ( outlinesModified )
+			{
+				final Tessellation tessellation = face.getTessellation();
+				switch ( outlines.size() )
+				{
+					case 0:
+						face.setTessellation( new Tessellation( Collections.<int[]>emptyList(), tessellation.getPrimitives() ) );
+						break;
+
+					case 1:
+						face.setTessellation( new Tessellation( Collections.singletonList( outlines.get( 0 ) ), tessellation.getPrimitives() ) );
+						break;
+
+					default:
+						face.setTessellation( new Tessellation( new ArrayList<int[]>( outlines ), tessellation.getPrimitives() ) );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Apply smoothing to faces for the given range of vertex coordinates.
+	 * This determines smoothing groups and sets the vertex normals of the
+	 * faces in each group.
+	 *
+	 * @param minCosSmooth Cosine of maximum smoothing angle.
+	 * @param start        First vertex coordinate.
+	 * @param end          Vertex coordinate after the last one.
+	 */
+	private void smoothFaces( final double minCosSmooth, final int start, final int end )
+	{
+		final Face3D[] faces = _faces;
+		final int[] faceStarts = _faceStarts;
+		final int[] faceIndices = _faceIndices;
+		final double[] crosses = _crosses;
+
+		int[] visited = new int[ 16 ];
+
+		for ( int i = start; i < end; i++ )
+		{
+			final int listStart = faceStarts[ i ];
+			final int listEnd = faceStarts[ i + 1 ];
+			if ( visited.length < listEnd - listStart )
+			{
+				visited = new int[ listEnd - listStart ];
+			}
+			int visitedCount = 0;
+
+			for ( int j = listStart; j < listEnd; j++ )
+			{
+				final int face1 = faceIndices[ j ];
+				if ( !contains( visited, visitedCount, face1 ) )
+				{
+					/*
+					 * Find other faces in the same smoothing group.
+					 */
+					final int groupStart = visitedCount;
+					visited[ visitedCount++ ] = face1;
+					for ( int k = listStart; k < listEnd; k++ )
+					{
+						final int face2 = faceIndices[ k ];
+						if ( !contains( visited, visitedCount, face2 ) && ( getCos( face1, face2 ) >= minCosSmooth ) )
+						{
+							visited[ visitedCount++ ] = face2;
+						}
+					}
+					final int groupEnd = visitedCount;
+
+					/*
+					 * Calculate smooth normal.
+					 */
+					double normalX = 0.0;
+					double normalY = 0.0;
+					double normalZ = 0.0;
+					for ( int k = groupStart; k < groupEnd; k++ )
+					{
+						final int face = visited[ k ];
+						normalX += crosses[ face * 3 ];
+						normalY += crosses[ face * 3 + 1 ];
+						normalZ += crosses[ face * 3 + 2 ];
+					}
+					final Vector3D normal = Vector3D.normalize( normalX, normalY, normalZ );
+
+					/*
+					 * Set vertex normals.
+					 */
+					for ( int k = groupStart; k < groupEnd; k++ )
+					{
+						for ( final Vertex3D vertex : faces[ visited[ k ] ].getVertices() )
+						{
+							if ( vertex.vertexCoordinateIndex == i )
+							{
+								vertex.setNormal( normal );
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the given face index is contained in the first elements
+	 * of an array.
+	 *
+	 * @param array Array to search.
+	 * @param count Number of elements to search.
+	 * @param face  Face index to find.
+	 *
+	 * @return {@code true} if the face index was found.
+	 */
+	private static boolean contains( final int[] array, final int count, final int face )
+	{
+		boolean result = false;
+		for ( int i = 0; !result && ( i < count ); i++ )
+		{
+			result = ( array[ i ] == face );
+		}
+		return result;
+	}
+
+	/**
+	 * Fork/join task that processes a range of faces or vertex coordinates.
+	 */
+	private class RangeTask
+		extends RecursiveAction
+	{
+		/**
+		 * Serialized form version.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Operation: copy face normals.
+		 */
+		static final int NORMALS = 0;
+
+		/**
+		 * Operation: determine which normals are needed before tessellation.
+		 */
+		static final int NORMAL_ORDER = 1;
+
+		/**
+		 * Operation: tessellate faces and copy face normals.
+		 */
+		static final int TESSELLATED_NORMALS = 2;
+
+		/**
+		 * Operation: remove smooth edges.
+		 */
+		static final int EDGES = 3;
+
+		/**
+		 * Operation: calculate vertex normals.
+		 */
+		static final int VERTEX_NORMALS = 4;
+
+		/**
+		 * Operation to perform.
+		 */
+		private final int _operation;
+
+		/**
+		 * Minimum cosine of angle between adjacent faces.
+		 */
+		private final double _minCos;
+
+		/**
+		 * Start of range.
+		 */
+		private final int _start;
+
+		/**
+		 * End of range (exclusive).
+		 */
+		private final int _end;
+
+		/**
+		 * Constructs a new task.
+		 *
+		 * @param operation Operation to perform.
+		 * @param minCos    Minimum cosine of angle between adjacent faces.
+		 * @param start     Start of range.
+		 * @param end       End of range (exclusive).
+		 */
+		private RangeTask( final int operation, final double minCos, final int start, final int end )
+		{
+			_operation = operation;
+			_minCos = minCos;
+			_start = start;
+			_end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if ( _end - _start > PARALLEL_THRESHOLD )
+			{
+				final int middle = ( _start + _end ) >>> 1;
+				invokeAll( new RangeTask( _operation, _minCos, _start, middle ),
+				           new RangeTask( _operation, _minCos, middle, _end ) );
+			}
+			else if ( _operation == NORMAL_ORDER )
+			{
+				getNormalOrder( _start, _end );
+			}
+			else if ( ( _operation == NORMALS ) || ( _operation == TESSELLATED_NORMALS ) )
+			{
+				getNormals( _operation == TESSELLATED_NORMALS, _start, _end );
+			}
+			else if ( _operation == EDGES )
+			{
+				smoothEdges( _minCos, _start, _end );
+			}
+			else
+			{
+				smoothFaces( _minCos, _start, _end );
+			}
+		}
+	}
+}
@@ -22,6 +22,7 @@ import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import ab.j3d.*;
+import ab.j3d.geom.*;
 import ab.j3d.view.control.planar.*;
 import org.jetbrains.annotations.*;
 
@@ -118,6 +119,28 @@ public class Scene
 	 */
 	private Bounds3D _bounds;
 
+	/**
+	 * Spatial index of content nodes in scene coordinates. This is created when
+	 * the first spatial query is performed; <code>null</code> before that.
+	 */
+	private DynamicAABBTree<IndexEntry> _contentIndex = null;
+
+	/**
+	 * Spatial index entries per content node.
+	 */
+	private final Map<ContentNode, IndexEntry> _indexEntries = new IdentityHashMap<ContentNode, IndexEntry>();
+
+	/**
+	 * Index entries whose bounds need to be updated before the next query.
+	 */
+	private final Set<IndexEntry> _dirtyIndexEntries = new LinkedHashSet<IndexEntry>();
+
+	/**
+	 * Sequence number for the next index entry. This is used to return query
+	 * results in scene order.
+	 */
+	private int _nextIndexSequenceNumber = 0;
+
 	/**
 	 * Flag to indicate that this scene is animated as opposed to static. An
 	 * animated scene may be rendered continuously in order to see the animation;
@@ -144,6 +167,7 @@ public class Scene
 		public void contentsUpdated( final ContentNodeUpdateEvent event )
 		{
 			invalidateCache();
+			invalidateIndex( (ContentNode)event.getSource() );
 			fireContentNodeContentUpdated( (ContentNode)event.getSource() );
 		}
 
@@ -155,6 +179,7 @@ public class Scene
 		public void transformUpdated( final ContentNodeUpdateEvent event )
 		{
 			invalidateCache();
+			invalidateIndex( (ContentNode)event.getSource() );
 			fireContentNodePropertyChanged( (ContentNode)event.getSource() );
 		}
 	};
@@ -305,6 +330,7 @@ public class Scene
 
 			_contentNodes.put( node.getID(), node );
 			invalidateCache();
+			addToIndex( node );
 
 			node.addContentNodeUpdateListener( _contentNodeUpdateListener );
 
@@ -355,6 +381,7 @@ public class Scene
 			node.removeContentNodeUpdateListener( _contentNodeUpdateListener );
 			_contentNodes.remove( id );
 			invalidateCache();
+			removeFromIndex( node );
 
 			fireContentNodeRemoved( node );
 		}
@@ -444,6 +471,300 @@ public class Scene
 		return result;
 	}
 
+	/**
+	 * Returns all content nodes whose bounds intersect the given bounds. Bounds
+	 * that only touch are considered to be intersecting. Content nodes without
+	 * bounds are never returned.
+	 *
+	 * @param bounds Bounds in scene coordinates.
+	 *
+	 * @return Content nodes whose bounds intersect the given bounds, in scene
+	 *         order.
+	 */
+	@NotNull
+	public List<ContentNode> getContentNodes( @NotNull final Bounds3D bounds )
+	{
+		final List<IndexEntry> candidates = new ArrayList<IndexEntry>();
+		getContentIndex().query( bounds, candidates );
+		Collections.sort( candidates );
+
+		final List<ContentNode> result = new ArrayList<ContentNode>( candidates.size() );
+		for ( final IndexEntry entry : candidates )
+		{
+			if ( overlaps( entry._bounds, bounds ) )
+			{
+				result.add( entry._node );
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns content nodes whose bounds may be hit by the given ray. This is a
+	 * conservative test; the result may include nodes whose bounds are near
+	 * the ray, but not actually hit by it.
+	 *
+	 * @param ray Ray in scene coordinates.
+	 *
+	 * @return Content nodes whose bounds may be hit by the ray, in scene order.
+	 */
+	@NotNull
+	public List<ContentNode> getContentNodesAlongRay( @NotNull final Ray3D ray )
+	{
+		final List<IndexEntry> candidates = new ArrayList<IndexEntry>();
+		getContentIndex().query( ray, candidates );
+		Collections.sort( candidates );
+
+		final List<ContentNode> result = new ArrayList<ContentNode>( candidates.size() );
+		for ( final IndexEntry entry : candidates )
+		{
+			result.add( entry._node );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns intersections of the given ray with all objects in the scene.
+	 *
+	 * @param ray Ray in scene coordinates.
+	 *
+	 * @return Intersections, ordered from near to far.
+	 */
+	@NotNull
+	public List<Face3DIntersection> getIntersectionsWithRay( @NotNull final Ray3D ray )
+	{
+		final RayIntersectionVisitor intersectionVisitor = new RayIntersectionVisitor( ray );
+
+		for ( final ContentNode contentNode : getContentNodesAlongRay( ray ) )
+		{
+			intersectionVisitor.walk( contentNode );
+		}
+
+		return intersectionVisitor.intersections;
+	}
+
+	/**
+	 * Returns all other content nodes whose bounds intersect the bounds of the
+	 * given content node.
+	 *
+	 * @param node Content node to test.
+	 *
+	 * @return Content nodes with overlapping bounds, in scene order.
+	 */
+	@NotNull
+	public List<ContentNode> getOverlappingContentNodes( @NotNull final ContentNode node )
+	{
+		return getOverlappingContentNodes( node.getTransform(), node );
+	}
+
+	/**
+	 * Returns all other content nodes whose bounds intersect the bounds of the
+	 * given content node, if it would have the specified transform.
+	 *
+	 * @param node2scene Transformation to apply to the content node.
+	 * @param node       Content node to test.
+	 *
+	 * @return Content nodes with overlapping bounds, in scene order.
+	 */
+	@NotNull
+	public List<ContentNode> getOverlappingContentNodes( @NotNull final Matrix3D node2scene, @NotNull final ContentNode node )
+	{
+		final List<ContentNode> result;
+
+		final Bounds3D bounds = getSceneBounds( node2scene, node );
+		if ( bounds != null )
+		{
+			result = getContentNodes( bounds );
+			result.remove( node );
+		}
+		else
+		{
+			result = new ArrayList<ContentNode>();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns all other content nodes that collide with the given content node.
+	 *
+	 * @param node Content node to test.
+	 *
+	 * @return Colliding content nodes, in scene order.
+	 *
+	 * @see ContentNode#collidesWith(ContentNode)
+	 */
+	@NotNull
+	public List<ContentNode> getCollidingContentNodes( @NotNull final ContentNode node )
+	{
+		return getCollidingContentNodes( node.getTransform(), node );
+	}
+
+	/**
+	 * Returns all other content nodes that would collide with the given content
+	 * node, if it would have the specified transform.
+	 *
+	 * @param node2scene Transformation to apply to the content node.
+	 * @param node       Content node to test.
+	 *
+	 * @return Colliding content nodes, in scene order.
+	 *
+	 * @see ContentNode#collidesWith(Matrix3D, ContentNode)
+	 */
+	@NotNull
+	public List<ContentNode> getCollidingContentNodes( @NotNull final Matrix3D node2scene, @NotNull final ContentNode node )
+	{
+		final List<ContentNode> result = getOverlappingContentNodes( node2scene, node );
+		for ( final Iterator<ContentNode> iterator = result.iterator(); iterator.hasNext(); )
+		{
+			if ( !node.collidesWith( node2scene, iterator.next() ) )
+			{
+				iterator.remove();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the spatial index of content nodes. The index is created if
+	 * needed and pending updates are applied.
+	 *
+	 * @return Spatial index.
+	 */
+	@NotNull
+	private DynamicAABBTree<IndexEntry> getContentIndex()
+	{
+		DynamicAABBTree<IndexEntry> result = _contentIndex;
+		if ( result == null )
+		{
+			result = new DynamicAABBTree<IndexEntry>();
+			_contentIndex = result;
+
+			for ( final ContentNode node : _contentNodes.values() )
+			{
+				addToIndex( node );
+			}
+		}
+
+		final Set<IndexEntry> dirtyEntries = _dirtyIndexEntries;
+		if ( !dirtyEntries.isEmpty() )
+		{
+			for ( final IndexEntry entry : dirtyEntries )
+			{
+				final Bounds3D bounds = getSceneBounds( entry._node.getTransform(), entry._node );
+				entry._bounds = bounds;
+
+				if ( bounds == null )
+				{
+					if ( entry._proxy != DynamicAABBTree.NULL_NODE )
+					{
+						result.remove( entry._proxy );
+						entry._proxy = DynamicAABBTree.NULL_NODE;
+					}
+				}
+				else if ( entry._proxy == DynamicAABBTree.NULL_NODE )
+				{
+					entry._proxy = result.insert( entry, bounds );
+				}
+				else
+				{
+					result.move( entry._proxy, bounds );
+				}
+			}
+			dirtyEntries.clear();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Adds a content node to the spatial index, if the index was created.
+	 *
+	 * @param node Content node that was added.
+	 */
+	private void addToIndex( @NotNull final ContentNode node )
+	{
+		if ( _contentIndex != null )
+		{
+			final IndexEntry entry = new IndexEntry( node, _nextIndexSequenceNumber++ );
+			_indexEntries.put( node, entry );
+			_dirtyIndexEntries.add( entry );
+		}
+	}
+
+	/**
+	 * Removes a content node from the spatial index.
+	 *
+	 * @param node Content node that was removed.
+	 */
+	private void removeFromIndex( @NotNull final ContentNode node )
+	{
+		final IndexEntry entry = _indexEntries.remove( node );
+		if ( entry != null )
+		{
+			_dirtyIndexEntries.remove( entry );
+			if ( entry._proxy != DynamicAABBTree.NULL_NODE )
+			{
+				_contentIndex.remove( entry._proxy );
+			}
+		}
+	}
+
+	/**
+	 * Marks the spatial index entry of a content node for update.
+	 *
+	 * @param node Content node whose transform or content changed.
+	 */
+	private void invalidateIndex( @NotNull final ContentNode node )
+	{
+		final IndexEntry entry = _indexEntries.get( node );
+		if ( entry != null )
+		{
+			_dirtyIndexEntries.add( entry );
+		}
+	}
+
+	/**
+	 * Returns the bounds of a content node in scene coordinates.
+	 *
+	 * @param node2scene Transformation to apply to the content node.
+	 * @param node       Content node.
+	 *
+	 * @return Bounds in scene coordinates; <code>null</code> if the node has no
+	 *         bounds.
+	 */
+	@Nullable
+	static Bounds3D getSceneBounds( @NotNull final Matrix3D node2scene, @NotNull final ContentNode node )
+	{
+		Bounds3D result = null;
+
+		final Bounds3D nodeBounds = node.getBounds();
+		if ( nodeBounds != null )
+		{
+			final Bounds3DBuilder bounds3DBuilder = new Bounds3DBuilder();
+			bounds3DBuilder.addBounds( node2scene, nodeBounds );
+			result = bounds3DBuilder.getBounds();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Test whether two bounds overlap. Unlike {@link Bounds3D#intersects},
+	 * bounds that only touch are considered to be overlapping.
+	 *
+	 * @param bounds1 First bounds.
+	 * @param bounds2 Second bounds.
+	 *
+	 * @return <code>true</code> if the bounds overlap.
+	 */
+	private static boolean overlaps( @NotNull final Bounds3D bounds1, @NotNull final Bounds3D bounds2 )
+	{
+		return ( bounds1.minX() <= bounds2.maxX() ) && ( bounds1.maxX() >= bounds2.minX() ) &&
+		       ( bounds1.minY() <= bounds2.maxY() ) && ( bounds1.maxY() >= bounds2.minY() ) &&
+		       ( bounds1.minZ() <= bounds2.maxZ() ) && ( bounds1.maxZ() >= bounds2.minZ() );
+	}
+
 	/**
 	 * Unit scale factor in this scene in meters per unit. This factor, when
 	 * multiplied, converts units to meters.
@@ -706,4 +1027,104 @@ public class Scene
 	{
 		return _updateSequenceNumber.get();
 	}
+
+	/**
+	 * Entry in the spatial index of content nodes.
+	 */
+	private static class IndexEntry
+		implements Comparable<IndexEntry>
+	{
+		/**
+		 * Content node.
+		 */
+		private final ContentNode _node;
+
+		/**
+		 * Sequence number, used to maintain scene order.
+		 */
+		private final int _sequenceNumber;
+
+		/**
+		 * Bounds of the content node in scene coordinates.
+		 */
+		private Bounds3D _bounds = null;
+
+		/**
+		 * Leaf in spatial index; {@link DynamicAABBTree#NULL_NODE} if the
+		 * content node is not in the index.
+		 */
+		private int _proxy = DynamicAABBTree.NULL_NODE;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param node           Content node.
+		 * @param sequenceNumber Sequence number.
+		 */
+		private IndexEntry( @NotNull final ContentNode node, final int sequenceNumber )
+		{
+			_node = node;
+			_sequenceNumber = sequenceNumber;
+		}
+
+		public int compareTo( @NotNull final IndexEntry other )
+		{
+			return ( _sequenceNumber < other._sequenceNumber ) ? -1 : ( _sequenceNumber == other._sequenceNumber ) ? 0 : 1;
+		}
+	}
+
+	/**
+	 * This visitor collects intersections with a given ray.
+	 */
+	private static class RayIntersectionVisitor
+		implements Node3DVisitor
+	{
+		/**
+		 * Intersections with ray.
+		 */
+		public final List<Face3DIntersection> intersections = new ArrayList<Face3DIntersection>();
+
+		/**
+		 * ID of currently visited object (content node).
+		 */
+		private Object _objectId = null;
+
+		/**
+		 * Ray to find intersections with.
+		 */
+		private final Ray3D _ray;
+
+		/**
+		 * Create visitor.
+		 *
+		 * @param ray Ray to find intersections with.
+		 */
+		private RayIntersectionVisitor( final Ray3D ray )
+		{
+			_ray = ray;
+		}
+
+		/**
+		 * Walk through the specified content node.
+		 *
+		 * @param contentNode Content node to walk through.
+		 */
+		public void walk( final ContentNode contentNode )
+		{
+			_objectId = contentNode.getID();
+			Node3DTreeWalker.walk( this, contentNode.getTransform(), contentNode.getNode3D() );
+		}
+
+		public boolean visitNode( @NotNull final Node3DPath path )
+		{
+			final Node3D node = path.getNode();
+			if ( node instanceof Object3D )
+			{
+				final Object3D object = (Object3D)node;
+				object.getIntersectionsWithRay( intersections, true, _objectId, path, path.getTransform(), _ray );
+			}
+
+			return true;
+		}
+	}
 }
@@ -0,0 +1,462 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Finds all pairs of colliding content nodes in a {@link Scene}.
+ *
+ * <p>The broad phase uses sweep-and-prune on the bounding boxes of content
+ * nodes in scene coordinates. Candidate pairs are then tested using {@link
+ * ContentNode#collidesWith(ContentNode)}, optionally in parallel using an
+ * {@link ExecutorService}.
+ *
+ * <p>The detector listens for scene updates. After the first evaluation, only
+ * content nodes that were added, moved or modified since the previous
+ * evaluation are re-evaluated, using the spatial index of the scene.
+ *
+ * <p>This class is not thread-safe; it should be used from the same thread
+ * that modifies the scene.
+ *
+ * @author Peter S. Heijnen
+ */
+public class SceneCollisionDetector
+{
+	/**
+	 * Number of candidate pairs per narrow-phase task.
+	 */
+	private static final int PAIRS_PER_TASK = 64;
+
+	/**
+	 * Scene to find collisions in.
+	 */
+	@NotNull
+	private final Scene _scene;
+
+	/**
+	 * Executor service used for narrow-phase tests; {@code null} to test in
+	 * the calling thread.
+	 */
+	@Nullable
+	private final ExecutorService _executorService;
+
+	/**
+	 * Collisions found by the previous evaluation; {@code null} if a full
+	 * evaluation is needed.
+	 */
+	@Nullable
+	private Set<ContentNodePair> _collisions = null;
+
+	/**
+	 * Content nodes that were added, moved or modified since the previous
+	 * evaluation.
+	 */
+	private final Set<ContentNode> _dirtyNodes = Collections.newSetFromMap( new IdentityHashMap<ContentNode, Boolean>() );
+
+	/**
+	 * Content nodes that were removed since the previous evaluation.
+	 */
+	private final Set<ContentNode> _removedNodes = Collections.newSetFromMap( new IdentityHashMap<ContentNode, Boolean>() );
+
+	/**
+	 * Listener that keeps track of modified content nodes.
+	 */
+	private final SceneUpdateListener _sceneUpdateListener = new SceneUpdateListener()
+	{
+		public void contentNodeAdded( final SceneUpdateEvent event )
+		{
+			final ContentNode node = event.getNode();
+			_removedNodes.remove( node );
+			_dirtyNodes.add( node );
+		}
+
+		public void contentNodeRemoved( final SceneUpdateEvent event )
+		{
+			final ContentNode node = event.getNode();
+			_dirtyNodes.remove( node );
+			_removedNodes.add( node );
+		}
+
+		public void contentNodeContentUpdated( final SceneUpdateEvent event )
+		{
+			_dirtyNodes.add( event.getNode() );
+		}
+
+		public void contentNodePropertyChanged( final SceneUpdateEvent event )
+		{
+			_dirtyNodes.add( event.getNode() );
+		}
+
+		public void ambientLightChanged( final SceneUpdateEvent event )
+		{
+		}
+
+		public void animationStarted( final SceneUpdateEvent event )
+		{
+		}
+
+		public void animationStopped( final SceneUpdateEvent event )
+		{
+		}
+	};
+
+	/**
+	 * Constructs a new collision detector that performs all tests in the
+	 * calling thread.
+	 *
+	 * @param scene Scene to find collisions in.
+	 */
+	public SceneCollisionDetector( @NotNull final Scene scene )
+	{
+		this( scene, null );
+	}
+
+	/**
+	 * Constructs a new collision detector.
+	 *
+	 * @param scene           Scene to find collisions in.
+	 * @param executorService Executor service used for narrow-phase tests;
+	 *                        {@code null} to test in the calling thread.
+	 */
+	public SceneCollisionDetector( @NotNull final Scene scene, @Nullable final ExecutorService executorService )
+	{
+		_scene = scene;
+		_executorService = executorService;
+		scene.addSceneUpdateListener( _sceneUpdateListener );
+	}
+
+	/**
+	 * Stops listening to scene updates. The detector should not be used after
+	 * calling this method.
+	 */
+	public void dispose()
+	{
+		_scene.removeSceneUpdateListener( _sceneUpdateListener );
+		_collisions = null;
+		_dirtyNodes.clear();
+		_removedNodes.clear();
+	}
+
+	/**
+	 * Forces a full evaluation on the next call to {@link #getCollisions()}.
+	 * This is needed if content was modified without notifying the scene.
+	 */
+	public void invalidate()
+	{
+		_collisions = null;
+	}
+
+	/**
+	 * Returns all pairs of content nodes whose bounds overlap. Bounds that only
+	 * touch are considered to be overlapping.
+	 *
+	 * @return Candidate pairs, sorted in scene order.
+	 */
+	@NotNull
+	public List<ContentNodePair> getCandidatePairs()
+	{
+		final List<ContentNode> contentNodes = _scene.getContentNodes();
+		final int nodeCount = contentNodes.size();
+
+		/*
+		 * Collect bounds of all content nodes with content.
+		 */
+		final double[] bounds = new double[ nodeCount * 6 ];
+		final Integer[] order = new Integer[ nodeCount ];
+		int count = 0;
+
+		for ( int i = 0; i < nodeCount; i++ )
+		{
+			final ContentNode node = contentNodes.get( i );
+			final Bounds3D nodeBounds = Scene.getSceneBounds( node.getTransform(), node );
+			if ( nodeBounds != null )
+			{
+				final int offset = i * 6;
+				bounds[ offset ] = nodeBounds.minX();
+				bounds[ offset + 1 ] = nodeBounds.minY();
+				bounds[ offset + 2 ] = nodeBounds.minZ();
+				bounds[ offset + 3 ] = nodeBounds.maxX();
+				bounds[ offset + 4 ] = nodeBounds.maxY();
+				bounds[ offset + 5 ] = nodeBounds.maxZ();
+				order[ count++ ] = i;
+			}
+		}
+
+		/*
+		 * Sweep along the X-axis, keeping a list of active boxes.
+		 */
+		Arrays.sort( order, 0, count, new Comparator<Integer>()
+		{
+			public int compare( final Integer index1, final Integer index2 )
+			{
+				return Double.compare( bounds[ index1 * 6 ], bounds[ index2 * 6 ] );
+			}
+		} );
+
+		final List<ContentNodePair> result = new ArrayList<ContentNodePair>();
+		final int[] active = new int[ count ];
+		int activeCount = 0;
+
+		for ( int i = 0; i < count; i++ )
+		{
+			final int index = order[ i ];
+			final int offset = index * 6;
+
+			int newActiveCount = 0;
+			for ( int j = 0; j < activeCount; j++ )
+			{
+				final int other = active[ j ];
+				final int otherOffset = other * 6;
+				if ( bounds[ otherOffset + 3 ] >= bounds[ offset ] )
+				{
+					active[ newActiveCount++ ] = other;
+
+					if ( ( bounds[ otherOffset + 1 ] <= bounds[ offset + 4 ] ) && ( bounds[ otherOffset + 4 ] >= bounds[ offset + 1 ] ) &&
+					     ( bounds[ otherOffset + 2 ] <= bounds[ offset + 5 ] ) && ( bounds[ otherOffset + 5 ] >= bounds[ offset + 2 ] ) )
+					{
+						result.add( ( other < index ) ? new ContentNodePair( contentNodes.get( other ), contentNodes.get( index ) )
+						                              : new ContentNodePair( contentNodes.get( index ), contentNodes.get( other ) ) );
+					}
+				}
+			}
+			active[ newActiveCount++ ] = index;
+			activeCount = newActiveCount;
+		}
+
+		sort( result, getSceneOrder( contentNodes ) );
+		return result;
+	}
+
+	/**
+	 * Returns all pairs of colliding content nodes. The first call performs a
+	 * full evaluation; subsequent calls only re-evaluate content nodes that
+	 * were added, moved or modified in the mean time.
+	 *
+	 * @return Colliding pairs, sorted in scene order.
+	 *
+	 * @throws InterruptedException if the calling thread is interrupted while
+	 * waiting for narrow-phase tests.
+	 */
+	@NotNull
+	public List<ContentNodePair> getCollisions()
+		throws InterruptedException
+	{
+		final Scene scene = _scene;
+		final List<ContentNode> contentNodes = scene.getContentNodes();
+		final Map<ContentNode, Integer> sceneOrder = getSceneOrder( contentNodes );
+
+		Set<ContentNodePair> collisions = _collisions;
+		if ( collisions == null )
+		{
+			collisions = new HashSet<ContentNodePair>( testCollisions( getCandidatePairs() ) );
+		}
+		else if ( !_dirtyNodes.isEmpty() || !_removedNodes.isEmpty() )
+		{
+			final Set<ContentNode> dirtyNodes = _dirtyNodes;
+			final Set<ContentNode> removedNodes = _removedNodes;
+
+			for ( final Iterator<ContentNodePair> iterator = collisions.iterator(); iterator.hasNext(); )
+			{
+				final ContentNodePair pair = iterator.next();
+				final ContentNode first = pair.getFirst();
+				final ContentNode second = pair.getSecond();
+				if ( dirtyNodes.contains( first ) || dirtyNodes.contains( second ) || removedNodes.contains( first ) || removedNodes.contains( second ) )
+				{
+					iterator.remove();
+				}
+			}
+
+			final Set<ContentNodePair> candidates = new LinkedHashSet<ContentNodePair>();
+			for ( final ContentNode node : dirtyNodes )
+			{
+				final Integer nodeIndex = sceneOrder.get( node );
+				if ( nodeIndex != null )
+				{
+					for ( final ContentNode other : scene.getOverlappingContentNodes( node ) )
+					{
+						candidates.add( ( sceneOrder.get( other ) < nodeIndex ) ? new ContentNodePair( other, node ) : new ContentNodePair( node, other ) );
+					}
+				}
+			}
+
+			collisions.addAll( testCollisions( new ArrayList<ContentNodePair>( candidates ) ) );
+		}
+
+		_dirtyNodes.clear();
+		_removedNodes.clear();
+		_collisions = collisions;
+
+		final List<ContentNodePair> result = new ArrayList<ContentNodePair>( collisions );
+		sort( result, sceneOrder );
+		return result;
+	}
+
+	/**
+	 * Performs narrow-phase tests on the given candidate pairs.
+	 *
+	 * @param candidates Candidate pairs.
+	 *
+	 * @return Colliding pairs.
+	 *
+	 * @throws InterruptedException if the calling thread is interrupted while
+	 * waiting for narrow-phase tests.
+	 */
+	@NotNull
+	private List<ContentNodePair> testCollisions( @NotNull final List<ContentNodePair> candidates )
+		throws InterruptedException
+	{
+		final List<ContentNodePair> result = new ArrayList<ContentNodePair>();
+
+		final ExecutorService executorService = _executorService;
+		if ( ( executorService == null ) || ( candidates.size() <= PAIRS_PER_TASK ) )
+		{
+			for ( final ContentNodePair pair : candidates )
+			{
+				if ( pair.getFirst().collidesWith( pair.getSecond() ) )
+				{
+					result.add( pair );
+				}
+			}
+		}
+		else
+		{
+			prepareCollisionTests( candidates );
+
+			final List<Callable<List<ContentNodePair>>> tasks = new ArrayList<Callable<List<ContentNodePair>>>();
+			for ( int start = 0; start < candidates.size(); start += PAIRS_PER_TASK )
+			{
+				final List<ContentNodePair> chunk = candidates.subList( start, Math.min( start + PAIRS_PER_TASK, candidates.size() ) );
+				tasks.add( new Callable<List<ContentNodePair>>()
+				{
+					public List<ContentNodePair> call()
+					{
+						final List<ContentNodePair> colliding = new ArrayList<ContentNodePair>();
+						for ( final ContentNodePair pair : chunk )
+						{
+							if ( pair.getFirst().collidesWith( pair.getSecond() ) )
+							{
+								colliding.add( pair );
+							}
+						}
+						return colliding;
+					}
+				} );
+			}
+
+			for ( final Future<List<ContentNodePair>> future : executorService.invokeAll( tasks ) )
+			{
+				try
+				{
+					result.addAll( future.get() );
+				}
+				catch ( final ExecutionException e )
+				{
+					final Throwable cause = e.getCause();
+					if ( cause instanceof RuntimeException )
+					{
+						throw (RuntimeException)cause;
+					}
+					if ( cause instanceof Error )
+					{
+						throw (Error)cause;
+					}
+					throw new RuntimeException( cause );
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Builds cached data needed for collision tests in the calling thread, so
+	 * narrow-phase tasks only read shared data.
+	 *
+	 * @param candidates Candidate pairs.
+	 */
+	private static void prepareCollisionTests( @NotNull final Collection<ContentNodePair> candidates )
+	{
+		final Set<ContentNode> prepared = Collections.newSetFromMap( new IdentityHashMap<ContentNode, Boolean>() );
+		for ( final ContentNodePair pair : candidates )
+		{
+			for ( final ContentNode node : Arrays.asList( pair.getFirst(), pair.getSecond() ) )
+			{
+				if ( prepared.add( node ) )
+				{
+					for ( final Node3DPath path : node.getContent() )
+					{
+						final Node3D content = path.getNode();
+						if ( content instanceof Object3D )
+						{
+							final Object3D object = (Object3D)content;
+							object.getOrientedBoundingBox();
+							object.getCollisionTree();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of each content node in the scene.
+	 *
+	 * @param contentNodes Content nodes in scene order.
+	 *
+	 * @return Index per content node.
+	 */
+	@NotNull
+	private static Map<ContentNode, Integer> getSceneOrder( @NotNull final List<ContentNode> contentNodes )
+	{
+		final Map<ContentNode, Integer> result = new IdentityHashMap<ContentNode, Integer>( contentNodes.size() );
+		for ( int i = 0; i < contentNodes.size(); i++ )
+		{
+			result.put( contentNodes.get( i ), i );
+		}
+		return result;
+	}
+
+	/**
+	 * Sorts pairs in scene order, i.e. by the index of the first node and then
+	 * by the index of the second node.
+	 *
+	 * @param pairs      Pairs to sort.
+	 * @param sceneOrder Index per content node.
+	 */
+	private static void sort( @NotNull final List<ContentNodePair> pairs, @NotNull final Map<ContentNode, Integer> sceneOrder )
+	{
+		Collections.sort( pairs, new Comparator<ContentNodePair>()
+		{
+			public int compare( final ContentNodePair pair1, final ContentNodePair pair2 )
+			{
+				int result = sceneOrder.get( pair1.getFirst() ).compareTo( sceneOrder.get( pair2.getFirst() ) );
+				if ( result == 0 )
+				{
+					result = sceneOrder.get( pair1.getSecond() ).compareTo( sceneOrder.get( pair2.getSecond() ) );
+				}
+				return result;
+			}
+		} );
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+
+/**
+ * Maps vertex coordinates to vertex indices, so that vertices with the same
+ * coordinates are shared ('welded'). This serves the same purpose as the
+ * {@link ab.j3d.HashList} of {@link ab.j3d.Vector3D} in {@link Object3D}, but
+ * uses an open-addressing hash table of primitive keys, so that looking up a
+ * vertex does not allocate any objects.
+ *
+ * <p>If an epsilon is specified, coordinates are quantized to a grid with
+ * cells of that size, and all points within a cell are welded to the first
+ * vertex added in that cell. Otherwise, coordinates must match exactly.
+ *
+ * @author Peter S. Heijnen
+ */
+public class VertexWelder
+{
+	/**
+	 * Maximum number of vertices per table slot before the table is grown.
+	 */
+	private static final double LOAD_FACTOR = 0.5;
+
+	/**
+	 * Size of grid cells used to quantize coordinates; {@code 0.0} if
+	 * coordinates must match exactly.
+	 */
+	private final double _epsilon;
+
+	/**
+	 * Inverse of {@link #_epsilon}; {@code 0.0} for exact matches.
+	 */
+	private final double _scale;
+
+	/**
+	 * Keys of vertices, one triplet per vertex.
+	 */
+	private long[] _keys;
+
+	/**
+	 * Number of vertices.
+	 */
+	private int _size;
+
+	/**
+	 * Hash table with vertex index + 1 in each slot; {@code 0} for empty slots.
+	 */
+	private int[] _table;
+
+	/**
+	 * Number of vertices at which the table is grown.
+	 */
+	private int _threshold;
+
+	/**
+	 * Constructs welder that only welds vertices with equal coordinates.
+	 */
+	public VertexWelder()
+	{
+		this( 0.0 );
+	}
+
+	/**
+	 * Constructs welder.
+	 *
+	 * @param epsilon Size of grid cells used to quantize coordinates;
+	 *                {@code 0.0} to only weld vertices with equal coordinates.
+	 */
+	public VertexWelder( final double epsilon )
+	{
+		this( epsilon, 16 );
+	}
+
+	/**
+	 * Constructs welder.
+	 *
+	 * @param epsilon         Size of grid cells used to quantize coordinates;
+	 *                        {@code 0.0} to only weld vertices with equal
+	 *                        coordinates.
+	 * @param initialCapacity Expected number of vertices.
+	 */
+	public VertexWelder( final double epsilon, final int initialCapacity )
+	{
+		if ( !( epsilon >= 0.0 ) || Double.isInfinite( epsilon ) )
+		{
+			throw new IllegalArgumentException( "epsilon = " + epsilon );
+		}
+
+		if ( initialCapacity < 0 )
+		{
+			throw new IllegalArgumentException( "initialCapacity = " + initialCapacity );
+		}
+
+		_epsilon = epsilon;
+		_scale = ( epsilon > 0.0 ) ? 1.0 / epsilon : 0.0;
+		_keys = new long[ 3 * Math.max( 4, initialCapacity ) ];
+		_size = 0;
+		createTable( initialCapacity );
+	}
+
+	/**
+	 * Returns the size of grid cells used to quantize coordinates.
+	 *
+	 * @return Size of grid cells; {@code 0.0} if coordinates must match exactly.
+	 */
+	public double getEpsilon()
+	{
+		return _epsilon;
+	}
+
+	/**
+	 * Returns the number of vertices.
+	 *
+	 * @return Number of vertices.
+	 */
+	public int size()
+	{
+		return _size;
+	}
+
+	/**
+	 * Removes all vertices.
+	 */
+	public void clear()
+	{
+		Arrays.fill( _table, 0 );
+		_size = 0;
+	}
+
+	/**
+	 * Returns the index of the vertex at the given coordinates.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @param z Z coordinate.
+	 *
+	 * @return Vertex index; {@code -1} if no such vertex exists.
+	 */
+	public int indexOf( final double x, final double y, final double z )
+	{
+		final long keyX = getKey( x );
+		final long keyY = getKey( y );
+		final long keyZ = getKey( z );
+
+		final int[] table = _table;
+		final int slot = findSlot( table, keyX, keyY, keyZ );
+		return table[ slot ] - 1;
+	}
+
+	/**
+	 * Returns the index of the vertex at the given coordinates. If no such
+	 * vertex exists, a vertex is added with index {@link #size()}.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @param z Z coordinate.
+	 *
+	 * @return Vertex index.
+	 */
+	public int weld( final double x, final double y, final double z )
+	{
+		final long keyX = getKey( x );
+		final long keyY = getKey( y );
+		final long keyZ = getKey( z );
+
+		int[] table = _table;
+		int slot = findSlot( table, keyX, keyY, keyZ );
+		int result = table[ slot ] - 1;
+
+		if ( result < 0 )
+		{
+			result = _size;
+			if ( result >= _threshold )
+			{
+				createTable( 2 * result );
+				table = _table;
+				slot = findSlot( table, keyX, keyY, keyZ );
+			}
+
+			long[] keys = _keys;
+			final int offset = 3 * result;
+			if ( offset + 3 > keys.length )
+			{
+				keys = Arrays.copyOf( keys, 2 * keys.length );
+				_keys = keys;
+			}
+
+			keys[ offset ] = keyX;
+			keys[ offset + 1 ] = keyY;
+			keys[ offset + 2 ] = keyZ;
+			table[ slot ] = result + 1;
+			_size = result + 1;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Adds a vertex, even if a vertex at the same coordinates exists. Any
+	 * later lookup of the coordinates returns the existing vertex. This is
+	 * used to index existing vertices that were not welded.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @param z Z coordinate.
+	 *
+	 * @return Index of added vertex.
+	 */
+	public int add( final double x, final double y, final double z )
+	{
+		final int result = _size;
+		if ( weld( x, y, z ) != result )
+		{
+			long[] keys = _keys;
+			final int offset = 3 * result;
+			if ( offset + 3 > keys.length )
+			{
+				keys = Arrays.copyOf( keys, 2 * keys.length );
+				_keys = keys;
+			}
+
+			keys[ offset ] = getKey( x );
+			keys[ offset + 1 ] = getKey( y );
+			keys[ offset + 2 ] = getKey( z );
+			_size = result + 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the key for a coordinate. For exact matches, this is the bit
+	 * pattern of the coordinate (with {@code -0.0} mapped to {@code 0.0}).
+	 * Otherwise, this is the index of the grid cell containing the coordinate.
+	 *
+	 * @param coordinate Coordinate.
+	 *
+	 * @return Key for the coordinate.
+	 */
+	private long getKey( final double coordinate )
+	{
+		final double scale = _scale;
+		return ( scale > 0.0 ) ? (long)Math.floor( coordinate * scale ) : Double.doubleToLongBits( coordinate + 0.0 );
+	}
+
+	/**
+	 * Finds the slot in the hash table containing the vertex with the given
+	 * key, or the empty slot where it should be inserted.
+	 *
+	 * @param table Hash table.
+	 * @param keyX  Key of X coordinate.
+	 * @param keyY  Key of Y coordinate.
+	 * @param keyZ  Key of Z coordinate.
+	 *
+	 * @return Slot index.
+	 */
+	private int findSlot( final int[] table, final long keyX, final long keyY, final long keyZ )
+	{
+		final long[] keys = _keys;
+		final int mask = table.length - 1;
+
+		int slot = hash( keyX, keyY, keyZ ) & mask;
+		while ( true )
+		{
+			final int entry = table[ slot ];
+			if ( entry == 0 )
+			{
+				break;
+			}
+
+			final int offset = 3 * ( entry - 1 );
+			if ( ( keys[ offset ] == keyX ) && ( keys[ offset + 1 ] == keyY ) && ( keys[ offset + 2 ] == keyZ ) )
+			{
+				break;
+			}
+
+			slot = ( slot + 1 ) & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * (Re-)creates the hash table with room for the given number of vertices.
+	 * Existing vertices are inserted into the new table, keeping only the
+	 * first vertex for each key.
+	 *
+	 * @param capacity Number of vertices to make room for.
+	 */
+	private void createTable( final int capacity )
+	{
+		int length = 16;
+		while ( (double)length * LOAD_FACTOR < (double)capacity )
+		{
+			length <<= 1;
+		}
+
+		final int[] table = new int[ length ];
+		_table = table;
+		_threshold = (int)( (double)length * LOAD_FACTOR );
+
+		final long[] keys = _keys;
+		for ( int i = 0; i < _size; i++ )
+		{
+			final int offset = 3 * i;
+			final int slot = findSlot( table, keys[ offset ], keys[ offset + 1 ], keys[ offset + 2 ] );
+			if ( table[ slot ] == 0 )
+			{
+				table[ slot ] = i + 1;
+			}
+		}
+	}
+
+	/**
+	 * Calculates hash code for a vertex key.
+	 *
+	 * @param keyX Key of X coordinate.
+	 * @param keyY Key of Y coordinate.
+	 * @param keyZ Key of Z coordinate.
+	 *
+	 * @return Hash code.
+	 */
+	private static int hash( final long keyX, final long keyY, final long keyZ )
+	{
+		long h = keyX * 0x9E3779B97F4A7C15L;
+		h = ( h ^ ( h >>> 32 ) ^ keyY ) * 0xC2B2AE3D27D4EB4FL;
+		h = ( h ^ ( h >>> 29 ) ^ keyZ ) * 0x165667B19E3779F9L;
+		h ^= h >>> 32;
+		return (int)h;
+	}
+}
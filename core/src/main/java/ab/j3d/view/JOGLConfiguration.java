@@ -63,6 +63,27 @@ public class JOGLConfiguration
 	 */
 	private boolean _vertexBufferObjectsEnabled = true;
 
+	/**
+	 * Whether instanced rendering of repeated geometry should be enabled.
+	 */
+	private boolean _instancingEnabled = true;
+
+	/**
+	 * Whether geometry of multiple face groups should be packed into shared
+	 * vertex buffer objects.
+	 */
+	private boolean _geometryBatchingEnabled = true;
+
+	/**
+	 * Maximum amount of geometry data to keep in video memory, in bytes.
+	 */
+	private long _geometryCacheSize = 256L * 1024L * 1024L;
+
+	/**
+	 * Maximum amount of geometry data to upload per frame, in bytes.
+	 */
+	private long _geometryUploadBudget = 32L * 1024L * 1024L;
+
 	/**
 	 * Constructs a new JOGL configuration with default settings.
 	 */
@@ -96,6 +117,10 @@ public class JOGLConfiguration
 		setShadowEnabled( false );
 		setShadowMultisampleEnabled( false );
 		setVertexBufferObjectsEnabled( true );
+		setInstancingEnabled( true );
+		setGeometryBatchingEnabled( true );
+		setGeometryCacheSize( 256L * 1024L * 1024L );
+		setGeometryUploadBudget( 32L * 1024L * 1024L );
 	}
 
 	/**
@@ -124,6 +149,10 @@ public class JOGLConfiguration
 		setShadowEnabled( false );
 		setShadowMultisampleEnabled( false );
 		setVertexBufferObjectsEnabled( false );
+		setInstancingEnabled( false );
+		setGeometryBatchingEnabled( false );
+		setGeometryCacheSize( 256L * 1024L * 1024L );
+		setGeometryUploadBudget( 32L * 1024L * 1024L );
 	}
 
 	/**
@@ -152,6 +181,10 @@ public class JOGLConfiguration
 		setShadowEnabled( true );
 		setShadowMultisampleEnabled( true );
 		setVertexBufferObjectsEnabled( true );
+		setInstancingEnabled( true );
+		setGeometryBatchingEnabled( true );
+		setGeometryCacheSize( 256L * 1024L * 1024L );
+		setGeometryUploadBudget( 32L * 1024L * 1024L );
 	}
 
 	/**
@@ -300,4 +333,95 @@ public class JOGLConfiguration
 	{
 		_vertexBufferObjectsEnabled = vertexBufferObjects;
 	}
+
+	/**
+	 * Returns whether instanced rendering should be enabled. If enabled, an
+	 * object that occurs multiple times in a scene is drawn in a single draw
+	 * call, provided that shaders and vertex buffer objects are used.
+	 *
+	 * @return  <code>true</code> if instanced rendering should be enabled.
+	 */
+	public boolean isInstancingEnabled()
+	{
+		return _instancingEnabled;
+	}
+
+	/**
+	 * Sets whether instanced rendering should be enabled.
+	 *
+	 * @param   instancingEnabled   <code>true</code> if instanced rendering
+	 *                              should be enabled.
+	 */
+	public void setInstancingEnabled( final boolean instancingEnabled )
+	{
+		_instancingEnabled = instancingEnabled;
+	}
+
+	/**
+	 * Returns whether geometry batching should be enabled. If enabled, the
+	 * geometry of face groups with the same appearance is packed into shared
+	 * vertex buffer objects, instead of one vertex buffer object per face
+	 * group.
+	 *
+	 * @return  <code>true</code> if geometry batching should be enabled.
+	 */
+	public boolean isGeometryBatchingEnabled()
+	{
+		return _geometryBatchingEnabled;
+	}
+
+	/**
+	 * Sets whether geometry batching should be enabled.
+	 *
+	 * @param   geometryBatchingEnabled     <code>true</code> if geometry
+	 *                                      batching should be enabled.
+	 */
+	public void setGeometryBatchingEnabled( final boolean geometryBatchingEnabled )
+	{
+		_geometryBatchingEnabled = geometryBatchingEnabled;
+	}
+
+	/**
+	 * Returns the maximum amount of geometry data to keep in video memory.
+	 * Least-recently-used geometry is evicted when this size is exceeded.
+	 *
+	 * @return  Geometry cache size in bytes.
+	 */
+	public long getGeometryCacheSize()
+	{
+		return _geometryCacheSize;
+	}
+
+	/**
+	 * Sets the maximum amount of geometry data to keep in video memory.
+	 *
+	 * @param   geometryCacheSize   Geometry cache size in bytes.
+	 */
+	public void setGeometryCacheSize( final long geometryCacheSize )
+	{
+		_geometryCacheSize = geometryCacheSize;
+	}
+
+	/**
+	 * Returns the maximum amount of geometry data to upload per frame.
+	 * Geometry that doesn't fit in the budget is rendered without uploading
+	 * it, until a later frame.
+	 *
+	 * @return  Upload budget in bytes; <code>0</code> for no limit.
+	 */
+	public long getGeometryUploadBudget()
+	{
+		return _geometryUploadBudget;
+	}
+
+	/**
+	 * Sets the maximum amount of geometry data to upload per frame.
+	 *
+	 * @param   geometryUploadBudget    Upload budget in bytes; <code>0</code>
+	 *                                  for no limit.
+	 */
+	public void setGeometryUploadBudget( final long geometryUploadBudget )
+	{
+		_geometryUploadBudget = geometryUploadBudget;
+	}
 }
@@ -22,6 +22,7 @@ import java.lang.reflect.*;
 
 import ab.j3d.awt.view.*;
 import ab.j3d.awt.view.java2d.*;
+import ab.j3d.awt.view.software.*;
 
 /**
  * Factory for creating render engines.
@@ -64,4 +65,18 @@ public class RenderEngineFactory
 			throw new RuntimeException( e );
 		}
 	}
+
+	/**
+	 * Creates a render engine that renders in software using a depth buffer.
+	 * This engine is always available. Images are rasterized in parallel
+	 * using the common fork/join pool.
+	 *
+	 * @param textureLibrary Texture library.
+	 *
+	 * @return Software render engine.
+	 */
+	public static RenderEngine createSoftwareEngine( final TextureLibrary textureLibrary )
+	{
+		return new SoftwareEngine( textureLibrary );
+	}
 }
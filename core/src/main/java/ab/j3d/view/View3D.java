@@ -585,10 +585,18 @@ public abstract class View3D
 
 		if ( result == 0.0 )
 		{
-			final Component component = getComponent();
-			final Toolkit   toolkit   = ( component != null ) ? component.getToolkit() : Toolkit.getDefaultToolkit();
+			if ( GraphicsEnvironment.isHeadless() )
+			{
+				// No screen, so assume a typical screen resolution of 96 DPI.
+				result = Scene.INCH / 96.0;
+			}
+			else
+			{
+				final Component component = getComponent();
+				final Toolkit   toolkit   = ( component != null ) ? component.getToolkit() : Toolkit.getDefaultToolkit();
 
-			result = Scene.INCH / (double)toolkit.getScreenResolution();
+				result = Scene.INCH / (double)toolkit.getScreenResolution();
+			}
 		}
 
 		return result;
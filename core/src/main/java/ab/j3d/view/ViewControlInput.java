@@ -277,15 +277,8 @@ public class ViewControlInput
 	 */
 	public List<Face3DIntersection> getIntersections( @NotNull final Ray3D ray )
 	{
-		final RayIntersectionVisitor intersectionVisitor = new RayIntersectionVisitor( ray );
-
 		final Scene scene = _view.getScene();
-		for ( final ContentNode contentNode : scene.getContentNodes() )
-		{
-			intersectionVisitor.walk( contentNode );
-		}
-
-		return intersectionVisitor.intersections;
+		return scene.getIntersectionsWithRay( ray );
 	}
 
 	/**
@@ -427,59 +420,4 @@ public class ViewControlInput
 	{
 		dispatchControlInputEvent( event );
 	}
-
-	/**
-	 * This visitor collects intersections with a given ray.
-	 */
-	private static class RayIntersectionVisitor
-		implements Node3DVisitor
-	{
-		/**
-		 * Intersections with ray.
-		 */
-		public final List<Face3DIntersection> intersections = new ArrayList<Face3DIntersection>();
-
-		/**
-		 * ID of currently visited object (content node).
-		 */
-		private Object _objectId = null;
-
-		/**
-		 * Ray to find intersections with.
-		 */
-		private final Ray3D _ray;
-
-		/**
-		 * Create visitor.
-		 *
-		 * @param   ray     Ray to find intersections with.
-		 */
-		private RayIntersectionVisitor( final Ray3D ray )
-		{
-			_ray = ray;
-		}
-
-		/**
-		 * Walk through the specified content node.
-		 *
-		 * @param   contentNode     Content node to walk through.
-		 */
-		public void walk( final ContentNode contentNode )
-		{
-			_objectId = contentNode.getID();
-			Node3DTreeWalker.walk( this, contentNode.getTransform(), contentNode.getNode3D() );
-		}
-
-		public boolean visitNode( @NotNull final Node3DPath path )
-		{
-			final Node3D node = path.getNode();
-			if ( node instanceof Object3D )
-			{
-				final Object3D object = (Object3D) node;
-				object.getIntersectionsWithRay( intersections, true, _objectId, path, path.getTransform(), _ray );
-			}
-
-			return true;
-		}
-	}
 }
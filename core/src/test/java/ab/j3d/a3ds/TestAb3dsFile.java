@@ -0,0 +1,180 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.a3ds;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+import junit.framework.*;
+
+/**
+ * This class tests the {@link Ab3dsFile} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestAb3dsFile
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestAb3dsFile.class.getName();
+
+	/**
+	 * Test that saving a loaded file produces the same file, whether it is
+	 * loaded from a file or from a stream.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	public void testRoundTrip()
+	throws IOException
+	{
+		System.out.println( CLASS_NAME + ".testRoundTrip" );
+
+		final File file = Files.createTempFile( CLASS_NAME, ".3ds" ).toFile();
+		try
+		{
+			createFile().save( file );
+			final byte[] expected = Files.readAllBytes( file.toPath() );
+
+			final Ab3dsFile mappedFile = new Ab3dsFile();
+			mappedFile.load( file );
+			mappedFile.save( file );
+			assertTrue( "Unexpected result after loading from file.", Arrays.equals( expected, Files.readAllBytes( file.toPath() ) ) );
+
+			final Ab3dsFile streamFile = new Ab3dsFile();
+			streamFile.load( new ByteArrayInputStream( expected ) );
+			streamFile.save( file );
+			assertTrue( "Unexpected result after loading from stream.", Arrays.equals( expected, Files.readAllBytes( file.toPath() ) ) );
+		}
+		finally
+		{
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+	}
+
+	/**
+	 * Test {@link Ab3dsFile#createModel()} for a loaded file.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	public void testCreateModel()
+	throws IOException
+	{
+		System.out.println( CLASS_NAME + ".testCreateModel" );
+
+		final File file = Files.createTempFile( CLASS_NAME, ".3ds" ).toFile();
+		try
+		{
+			createFile().save( file );
+
+			final Ab3dsFile loaded = new Ab3dsFile();
+			loaded.load( file );
+			final Node3D model = loaded.createModel();
+			assertEquals( "Unexpected number of objects.", 1, model.getChildCount() );
+
+			final Object3D object = (Object3D)model.getChild( 0 );
+			int faceCount = 0;
+			for ( final FaceGroup faceGroup : object.getFaceGroups() )
+			{
+				assertNotNull( "Missing appearance.", faceGroup.getAppearance() );
+				for ( final Face3D face : faceGroup.getFaces() )
+				{
+					assertEquals( "Unexpected vertex count.", 3, face.getVertexCount() );
+					assertEquals( "Unexpected texture coordinate.", (float)face.getVertex( 0 ).point.x / 10.0f, face.getVertex( 0 ).colorMapU, 0.0f );
+					faceCount++;
+				}
+			}
+			assertEquals( "Unexpected number of faces.", 12, faceCount );
+			assertEquals( "Unexpected bounds.", new Bounds3D( 0.0, 0.0, 0.0, 10.0, 20.0, 30.0 ), object.getOrientedBoundingBox() );
+		}
+		finally
+		{
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+	}
+
+	/**
+	 * Creates a 3DS file with a material and a box-shaped mesh.
+	 *
+	 * @return 3DS file.
+	 */
+	private static Ab3dsFile createFile()
+	{
+		final Ab3dsMaterial material = new Ab3dsMaterial( "red" );
+		material.setAmbient( 0.5f, 0.0f, 0.0f );
+		material.setDiffuse( 255, 0, 0 );
+		material.setSpecular( 1.0f, 1.0f, 1.0f );
+		material.setBasic( Ab3dsMaterial.TYPE_PHONG, 30, 50, 0, 0, 1 );
+
+		final Vector3D[] vertices = new Vector3D[ 8 ];
+		final float[] mapping = new float[ 2 * vertices.length ];
+		for ( int i = 0; i < vertices.length; i++ )
+		{
+			vertices[ i ] = new Vector3D( ( ( i & 1 ) != 0 ) ? 10.0 : 0.0, ( ( i & 2 ) != 0 ) ? 20.0 : 0.0, ( ( i & 4 ) != 0 ) ? 30.0 : 0.0 );
+			mapping[ 2 * i ] = (float)vertices[ i ].x / 10.0f;
+			mapping[ 2 * i + 1 ] = (float)vertices[ i ].y / 20.0f;
+		}
+
+		final VertexList vertexList = new VertexList();
+		vertexList.set( vertices );
+
+		final int[][] quads = { { 0, 2, 3, 1 }, { 4, 5, 7, 6 }, { 0, 1, 5, 4 }, { 2, 6, 7, 3 }, { 0, 4, 6, 2 }, { 1, 3, 7, 5 } };
+		final FaceList.Triangle[] triangles = new FaceList.Triangle[ 2 * quads.length ];
+		final int[] faces = new int[ triangles.length ];
+		for ( int i = 0; i < quads.length; i++ )
+		{
+			final int[] quad = quads[ i ];
+			triangles[ 2 * i ] = new FaceList.Triangle( quad[ 0 ], quad[ 1 ], quad[ 2 ], 7 );
+			triangles[ 2 * i + 1 ] = new FaceList.Triangle( quad[ 0 ], quad[ 2 ], quad[ 3 ], 7 );
+			faces[ 2 * i ] = 2 * i;
+			faces[ 2 * i + 1 ] = 2 * i + 1;
+		}
+
+		final FaceList.FaceMaterial faceMaterial = new FaceList.FaceMaterial( "red" );
+		faceMaterial.set( faces );
+
+		final FaceList faceList = new FaceList();
+		faceList.set( triangles );
+		faceList.add( faceMaterial );
+
+		final MappingCoordinates mappingCoordinates = new MappingCoordinates( Chunk.TRI_MAP_COORDS );
+		mappingCoordinates.set( mapping );
+
+		final HierarchyChunk mesh = new HierarchyChunk( Chunk.OBJ_TRIMESH );
+		mesh.add( vertexList );
+		mesh.add( faceList );
+		mesh.add( mappingCoordinates );
+
+		final ObjectChunk object = new ObjectChunk( "box" );
+		object.add( mesh );
+
+		final Ab3dsFile result = new Ab3dsFile();
+		final HierarchyChunk editChunk = result.getEditChunk();
+		assertNotNull( editChunk );
+		editChunk.add( material );
+		editChunk.add( object );
+		return result;
+	}
+}
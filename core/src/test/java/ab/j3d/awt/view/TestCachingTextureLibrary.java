@@ -0,0 +1,272 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view;
+
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import ab.j3d.appearance.*;
+import junit.framework.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * This class tests the {@link CachingTextureLibrary} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestCachingTextureLibrary
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestCachingTextureLibrary.class.getName();
+
+	/**
+	 * Test caching and weighted eviction of images.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testCache()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testCache" );
+
+		final CountingTextureLibrary library = new CountingTextureLibrary();
+
+		/* Images are 10x10 pixels with 4 bytes per pixel, except 'large'. */
+		final CachingTextureLibrary cache = new CachingTextureLibrary( library, 1000L, false );
+
+		final BufferedImage a = cache.loadImage( new BasicTextureMap( "a" ) );
+		assertNotNull( "Expected image.", a );
+		assertEquals( "Unexpected image size.", 400L, CachingTextureLibrary.getImageSize( a ) );
+		assertSame( "Expected cached image.", a, cache.loadImage( new BasicTextureMap( "a" ) ) );
+		assertEquals( "Unexpected number of loads.", 1, library._loads.get() );
+		assertEquals( "Unexpected hits.", 1L, cache.getHits() );
+		assertEquals( "Unexpected misses.", 1L, cache.getMisses() );
+		assertEquals( "Unexpected cache size.", 400L, cache.getBytes() );
+
+		cache.loadImage( new BasicTextureMap( "b" ) );
+		cache.loadImage( new BasicTextureMap( "a" ) );
+		assertEquals( "Unexpected cache size.", 800L, cache.getBytes() );
+
+		/* Adding 'c' exceeds the maximum, so the least-recently used 'b' is evicted. */
+		cache.loadImage( new BasicTextureMap( "c" ) );
+		assertEquals( "Unexpected cache size.", 800L, cache.getBytes() );
+		assertEquals( "Unexpected number of images.", 2, cache.getSize() );
+		assertEquals( "Unexpected evictions.", 1L, cache.getEvictions() );
+
+		cache.loadImage( new BasicTextureMap( "a" ) );
+		assertEquals( "'a' should be cached.", 3, library._loads.get() );
+		cache.loadImage( new BasicTextureMap( "b" ) );
+		assertEquals( "'b' should have been evicted.", 4, library._loads.get() );
+
+		/* Images larger than the cache are not cached. */
+		cache.loadImage( new BasicTextureMap( "large" ) );
+		cache.loadImage( new BasicTextureMap( "large" ) );
+		assertEquals( "Large image should not be cached.", 6, library._loads.get() );
+		assertEquals( "Unexpected cache size.", 800L, cache.getBytes() );
+
+		/* Missing images are not cached. */
+		assertNull( "Expected no image.", cache.loadImage( new BasicTextureMap( "missing" ) ) );
+		assertNull( "Expected no image.", cache.loadImage( new BasicTextureMap( "missing" ) ) );
+		assertEquals( "Missing image should not be cached.", 8, library._loads.get() );
+
+		/* Errors are reported and not cached. */
+		for ( int i = 0; i < 2; i++ )
+		{
+			try
+			{
+				cache.loadImage( new BasicTextureMap( "error" ) );
+				fail( "Expected 'IOException'." );
+			}
+			catch ( final IOException ignored )
+			{
+				/* expected */
+			}
+		}
+		assertEquals( "Failed image should not be cached.", 10, library._loads.get() );
+		assertEquals( "Unexpected loads.", 10L, cache.getLoads() );
+
+		cache.setMaximumBytes( 400L );
+		assertEquals( "Unexpected cache size.", 400L, cache.getBytes() );
+
+		cache.clear();
+		assertEquals( "Unexpected cache size.", 0L, cache.getBytes() );
+		assertEquals( "Unexpected number of images.", 0, cache.getSize() );
+
+		cache.resetStatistics();
+		assertEquals( "Unexpected hits.", 0L, cache.getHits() );
+		assertEquals( "Unexpected misses.", 0L, cache.getMisses() );
+		assertEquals( "Unexpected loads.", 0L, cache.getLoads() );
+	}
+
+	/**
+	 * Test that evicted images are reused if soft references are enabled.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testSoftReferences()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testSoftReferences" );
+
+		final CountingTextureLibrary library = new CountingTextureLibrary();
+		final CachingTextureLibrary cache = new CachingTextureLibrary( library, 400L, true );
+
+		final BufferedImage a = cache.loadImage( new BasicTextureMap( "a" ) );
+		cache.loadImage( new BasicTextureMap( "b" ) );
+		assertEquals( "Unexpected evictions.", 1L, cache.getEvictions() );
+
+		/* 'a' is strongly reachable here, so its soft reference is not cleared. */
+		assertSame( "Expected softly referenced image.", a, cache.loadImage( new BasicTextureMap( "a" ) ) );
+		assertEquals( "Unexpected number of loads.", 2, library._loads.get() );
+		assertEquals( "Unexpected soft hits.", 1L, cache.getSoftHits() );
+		assertEquals( "Unexpected cache size.", 400L, cache.getBytes() );
+
+		cache.setSoftReferences( false );
+		cache.loadImage( new BasicTextureMap( "b" ) );
+		cache.loadImage( new BasicTextureMap( "a" ) );
+		assertEquals( "Unexpected number of loads.", 4, library._loads.get() );
+	}
+
+	/**
+	 * Test that concurrent requests for the same image only load it once.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testConcurrentLoads()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testConcurrentLoads" );
+
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+
+		final CountingTextureLibrary library = new CountingTextureLibrary()
+		{
+			@Override
+			public BufferedImage loadImage( @NotNull final TextureMap textureMap )
+			throws IOException
+			{
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch ( final InterruptedException e )
+				{
+					throw new InterruptedIOException();
+				}
+				return super.loadImage( textureMap );
+			}
+		};
+
+		final CachingTextureLibrary cache = new CachingTextureLibrary( library );
+
+		final int threadCount = 4;
+		final ExecutorService executor = Executors.newFixedThreadPool( threadCount );
+		try
+		{
+			final List<Future<BufferedImage>> results = new ArrayList<Future<BufferedImage>>();
+			final Callable<BufferedImage> load = new Callable<BufferedImage>()
+			{
+				@Override
+				public BufferedImage call()
+				throws IOException
+				{
+					return cache.loadImage( new BasicTextureMap( "a" ) );
+				}
+			};
+
+			results.add( executor.submit( load ) );
+			assertTrue( "Load should start.", started.await( 10L, TimeUnit.SECONDS ) );
+
+			for ( int i = 1; i < threadCount; i++ )
+			{
+				results.add( executor.submit( load ) );
+			}
+
+			/* Wait until all requests are waiting for the pending load. */
+			for ( long timeout = System.currentTimeMillis() + 10000L; ( cache.getMisses() < (long)threadCount ) && ( System.currentTimeMillis() < timeout ); )
+			{
+				Thread.sleep( 1L );
+			}
+			assertEquals( "Unexpected misses.", (long)threadCount, cache.getMisses() );
+
+			release.countDown();
+
+			final BufferedImage expected = results.get( 0 ).get( 10L, TimeUnit.SECONDS );
+			assertNotNull( "Expected image.", expected );
+			for ( final Future<BufferedImage> result : results )
+			{
+				assertSame( "Expected same image.", expected, result.get( 10L, TimeUnit.SECONDS ) );
+			}
+
+			assertEquals( "Image should be loaded once.", 1, library._loads.get() );
+			assertEquals( "Unexpected loads.", 1L, cache.getLoads() );
+		}
+		finally
+		{
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Texture library that creates images and counts loads. The texture
+	 * 'large' is larger than the other images, 'missing' does not exist and
+	 * 'error' fails to load.
+	 */
+	private static class CountingTextureLibrary
+	extends NullTextureLibrary
+	{
+		/**
+		 * Number of loaded images.
+		 */
+		final AtomicInteger _loads = new AtomicInteger();
+
+		@Override
+		public BufferedImage loadImage( @NotNull final TextureMap textureMap )
+		throws IOException
+		{
+			_loads.incrementAndGet();
+
+			final String name = textureMap.getName();
+			final BufferedImage result;
+			if ( "missing".equals( name ) )
+			{
+				result = null;
+			}
+			else if ( "error".equals( name ) )
+			{
+				throw new IOException( "Failed to load " + name );
+			}
+			else
+			{
+				final int size = "large".equals( name ) ? 100 : 10;
+				result = new BufferedImage( size, size, BufferedImage.TYPE_INT_ARGB );
+			}
+			return result;
+		}
+	}
+}
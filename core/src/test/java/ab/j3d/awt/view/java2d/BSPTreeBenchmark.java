@@ -0,0 +1,116 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.java2d;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.model.*;
+import ab.j3d.view.*;
+
+/**
+ * Compares rebuild times of a single {@link BSPTree} for the whole scene with
+ * those of a {@link SceneBSPTree}, which only rebuilds the trees of changed
+ * content nodes.
+ *
+ * @author Peter S. Heijnen
+ */
+public class BSPTreeBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [grid size] [sphere segments].
+	 */
+	public static void main( final String[] args )
+	{
+		final int size = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 10;
+		final int segments = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 16;
+
+		final Scene scene = new Scene( Scene.MM );
+		final Appearance appearance = BasicAppearance.createForColor( "gray", new Color4f( 0xFF808080 ) );
+		for ( int i = 0; i < size; i++ )
+		{
+			for ( int j = 0; j < size; j++ )
+			{
+				final Object3D object = ( ( ( i + j ) % 2 ) == 0 ) ? new Sphere3D( 50.0, segments, segments / 2, appearance ) : new Box3D( 80.0, 80.0, 80.0, null, appearance );
+				scene.addContentNode( "object" + i + '_' + j, Matrix3D.getTranslation( (double)i * 150.0, (double)j * 150.0, 0.0 ), object );
+			}
+		}
+		System.out.println( "Content nodes: " + size * size );
+
+		final Vector3D viewPoint = new Vector3D( -500.0, -1500.0, 1000.0 );
+		final Matrix3D scene2view = Matrix3D.getFromToTransform( viewPoint, Vector3D.ZERO, Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS );
+		final Projector projector = Projector.createInstance( ProjectionPolicy.PERSPECTIVE, 800, 600, Scene.INCH / 96.0, scene.getUnit(), 1.0, 100000.0, Math.toRadians( 45.0 ), 1.0 );
+
+		final ContentNode changedNode = scene.getContentNode( "object0_0" );
+		final BSPTree bspTree = new BSPTree();
+		final SceneBSPTree sceneBspTree = new SceneBSPTree( scene );
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+			changedNode.setTransform( Matrix3D.getTranslation( 0.0, 0.0, (double)pass * 10.0 ) );
+
+			long start = System.nanoTime();
+			bspTree.reset();
+			bspTree.addScene( scene );
+			bspTree.build();
+			System.out.println( "  BSPTree full rebuild:         " + formatMillis( System.nanoTime() - start ) );
+
+			start = System.nanoTime();
+			bspTree.getRenderQueue( viewPoint, projector, scene2view, true, true );
+			System.out.println( "  BSPTree render queue:         " + formatMillis( System.nanoTime() - start ) );
+
+			start = System.nanoTime();
+			sceneBspTree.invalidateAll();
+			sceneBspTree.getRenderQueue( viewPoint, projector, scene2view, true, true );
+			System.out.println( "  SceneBSPTree full rebuild:    " + formatMillis( System.nanoTime() - start ) );
+
+			start = System.nanoTime();
+			sceneBspTree.invalidate( changedNode );
+			sceneBspTree.getRenderQueue( viewPoint, projector, scene2view, true, true );
+			System.out.println( "  SceneBSPTree one node update: " + formatMillis( System.nanoTime() - start ) );
+
+			start = System.nanoTime();
+			sceneBspTree.getRenderQueue( viewPoint, projector, scene2view, true, true );
+			System.out.println( "  SceneBSPTree render queue:    " + formatMillis( System.nanoTime() - start ) );
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private BSPTreeBenchmark()
+	{
+	}
+}
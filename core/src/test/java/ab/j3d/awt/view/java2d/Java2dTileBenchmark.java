@@ -0,0 +1,104 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.java2d;
+
+import java.awt.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+
+/**
+ * Measures the performance of tiled rendering by {@link Java2dView} for
+ * different numbers of threads, compared to rendering without tiles.
+ *
+ * @author Peter S. Heijnen
+ */
+public class Java2dTileBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [grid size] [tile size] [image width] [image height].
+	 */
+	public static void main( final String[] args )
+	{
+		final int gridSize = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 15;
+		final int tileSize = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 128;
+		final int width = ( args.length > 2 ) ? Integer.parseInt( args[ 2 ] ) : 1600;
+		final int height = ( args.length > 3 ) ? Integer.parseInt( args[ 3 ] ) : 1200;
+		final int processors = Runtime.getRuntime().availableProcessors();
+
+		final Scene scene = TestJava2dView.createScene( gridSize );
+		final Java2dView view = new Java2dView( scene, Color.WHITE );
+		view.setScene2View( Matrix3D.getFromToTransform( new Vector3D( 0.0, -200.0 * (double)gridSize, 150.0 * (double)gridSize ), Vector3D.ZERO, Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS ) );
+		System.out.println( "Objects: " + gridSize * gridSize + ", image: " + width + " x " + height + ", tile size: " + tileSize + ", processors: " + processors );
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			view.setTileSize( 0 );
+			System.gc();
+			long start = System.nanoTime();
+			view.renderImage( width, height );
+			final long untiled = System.nanoTime() - start;
+			System.out.println( "  untiled:     " + formatMillis( untiled ) );
+
+			view.setTileSize( tileSize );
+			for ( int threads = 1; threads <= processors; threads *= 2 )
+			{
+				final ForkJoinPool pool = new ForkJoinPool( threads );
+				try
+				{
+					view.setTilePool( pool );
+					System.gc();
+					start = System.nanoTime();
+					view.renderImage( width, height );
+					final long tiled = System.nanoTime() - start;
+					System.out.println( String.format( Locale.US, "  %2d thread(s): %s (speedup %.2f)", threads, formatMillis( tiled ), (double)untiled / (double)tiled ) );
+				}
+				finally
+				{
+					pool.shutdown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.1f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private Java2dTileBenchmark()
+	{
+	}
+}
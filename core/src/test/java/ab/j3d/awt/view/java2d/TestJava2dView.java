@@ -0,0 +1,118 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.java2d;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.model.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link Java2dView}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestJava2dView
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestJava2dView.class.getName();
+
+	/**
+	 * Tests that rendering an image using tiles gives (almost) the same result
+	 * as rendering it at once.
+	 */
+	public void testRenderTiled()
+	{
+		System.out.println( CLASS_NAME + ".testRenderTiled" );
+
+		final Scene scene = createScene( 5 );
+		final Java2dView view = new Java2dView( scene, Color.WHITE );
+		view.setScene2View( Matrix3D.getFromToTransform( new Vector3D( 500.0, -1500.0, 1000.0 ), Vector3D.ZERO, Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS ) );
+
+		final BufferedImage expected = view.renderImage( 320, 200 );
+
+		final ForkJoinPool pool = new ForkJoinPool( 3 );
+		try
+		{
+			view.setTilePool( pool );
+			for ( final int tileSize : new int[] { 1000, 64, 50, 7 } )
+			{
+				view.setTileSize( tileSize );
+				final BufferedImage actual = view.renderImage( 320, 200 );
+				assertEquals( "Unexpected width.", expected.getWidth(), actual.getWidth() );
+				assertEquals( "Unexpected height.", expected.getHeight(), actual.getHeight() );
+
+				int differentPixels = 0;
+				for ( int y = 0; y < expected.getHeight(); y++ )
+				{
+					for ( int x = 0; x < expected.getWidth(); x++ )
+					{
+						if ( expected.getRGB( x, y ) != actual.getRGB( x, y ) )
+						{
+							differentPixels++;
+						}
+					}
+				}
+				// Anti-aliased outlines may differ slightly at tile edges.
+				assertTrue( "Too many different pixels with tileSize " + tileSize + ": " + differentPixels, differentPixels <= expected.getWidth() * expected.getHeight() / 200 );
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a scene with a grid of objects.
+	 *
+	 * @param size Number of objects along each side of the grid.
+	 *
+	 * @return Scene.
+	 */
+	public static Scene createScene( final int size )
+	{
+		final Scene scene = new Scene( Scene.MM );
+		final Appearance[] appearances =
+		{
+			BasicAppearance.createForColor( "red", new Color4f( 0xFFE02020 ) ),
+			BasicAppearance.createForColor( "green", new Color4f( 0xFF20C020 ) ),
+			BasicAppearance.createForColor( "blue", new Color4f( 0xFF2020E0 ) ),
+		};
+
+		for ( int i = 0; i < size; i++ )
+		{
+			for ( int j = 0; j < size; j++ )
+			{
+				final Appearance appearance = appearances[ ( i + j ) % appearances.length ];
+				final Object3D object = ( ( ( i + j ) % 2 ) == 0 ) ? new Sphere3D( 50.0, 16, 8, appearance ) : new Box3D( 80.0, 80.0, 80.0, null, appearance );
+				scene.addContentNode( "object" + i + '_' + j, Matrix3D.getTranslation( (double)( i - size / 2 ) * 120.0, (double)( j - size / 2 ) * 120.0, 0.0 ), object );
+			}
+		}
+
+		return scene;
+	}
+}
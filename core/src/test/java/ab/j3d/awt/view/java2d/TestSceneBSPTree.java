@@ -0,0 +1,140 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.java2d;
+
+import java.awt.*;
+import java.awt.image.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.model.*;
+import ab.j3d.view.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link SceneBSPTree}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestSceneBSPTree
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestSceneBSPTree.class.getName();
+
+	/**
+	 * Tests that only the tree of a changed content node is rebuilt, and that
+	 * the result is the same as that of a complete rebuild.
+	 */
+	public void testIncrementalUpdate()
+	{
+		System.out.println( CLASS_NAME + ".testIncrementalUpdate" );
+
+		final Scene scene = new Scene( Scene.MM );
+		final Appearance appearance = BasicAppearance.createForColor( "red", new Color4f( 0xFFE02020 ) );
+		for ( int i = 0; i < 5; i++ )
+		{
+			for ( int j = 0; j < 5; j++ )
+			{
+				final Object3D object = ( ( ( i + j ) % 2 ) == 0 ) ? new Sphere3D( 50.0, 16, 8, appearance ) : new Box3D( 80.0, 80.0, 80.0, null, appearance );
+				scene.addContentNode( "object" + i + '_' + j, Matrix3D.getTranslation( (double)( i - 2 ) * 150.0, (double)( j - 2 ) * 150.0, 0.0 ), object );
+			}
+		}
+		final Matrix3D scene2view = Matrix3D.getFromToTransform( new Vector3D( 500.0, -1500.0, 1000.0 ), Vector3D.ZERO, Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS );
+
+		final Java2dView view = new Java2dView( scene, Color.WHITE );
+		view.setScene2View( scene2view );
+		view.renderImage( 320, 200 );
+
+		final SceneBSPTree bspTree = view.getSceneBspTree();
+		assertEquals( "Unexpected number of trees built initially.", 25, bspTree.getBuildCount() );
+
+		view.renderImage( 320, 200 );
+		assertEquals( "Trees should not be rebuilt if the scene is unchanged.", 25, bspTree.getBuildCount() );
+
+		final ContentNode node = scene.getContentNode( "object2_2" );
+		assertNotNull( "Missing content node", node );
+		node.setTransform( Matrix3D.getTranslation( 0.0, 0.0, 30.0 ) );
+		final BufferedImage actual = view.renderImage( 320, 200 );
+		assertEquals( "Only the changed tree should be rebuilt.", 26, bspTree.getBuildCount() );
+
+		final Java2dView freshView = new Java2dView( scene, Color.WHITE );
+		freshView.setScene2View( scene2view );
+		final BufferedImage expected = freshView.renderImage( 320, 200 );
+
+		final BSPTree sceneTree = view.getBspTree();
+		assertFalse( "Scene-wide tree should contain polygons.", sceneTree.getPolygons().isEmpty() );
+		assertSame( "Scene-wide tree should be reused if the scene is unchanged.", sceneTree, view.getBspTree() );
+		assertEquals( "Scene-wide tree should not affect per-node trees.", 26, bspTree.getBuildCount() );
+
+		for ( int y = 0; y < expected.getHeight(); y++ )
+		{
+			for ( int x = 0; x < expected.getWidth(); x++ )
+			{
+				assertEquals( "Unexpected pixel at " + x + ", " + y, expected.getRGB( x, y ), actual.getRGB( x, y ) );
+			}
+		}
+	}
+
+	/**
+	 * Tests that content nodes are painted back-to-front if they are
+	 * separated, and that content nodes that can not be separated are
+	 * combined into a single tree.
+	 */
+	public void testPartitioning()
+	{
+		System.out.println( CLASS_NAME + ".testPartitioning" );
+
+		final Appearance appearance = BasicAppearance.createForColor( "gray", new Color4f( 0xFF808080 ) );
+		final Box3D left = new Box3D( 100.0, 100.0, 100.0, null, appearance );
+		final Box3D right = new Box3D( 100.0, 100.0, 100.0, null, appearance );
+		final Box3D overlapping = new Box3D( 100.0, 100.0, 100.0, null, appearance );
+
+		final Scene scene = new Scene( Scene.MM );
+		scene.addContentNode( "left", Matrix3D.getTranslation( -200.0, 0.0, 0.0 ), left );
+		scene.addContentNode( "right", Matrix3D.getTranslation( 200.0, 0.0, 0.0 ), right );
+
+		final Vector3D viewPoint = new Vector3D( 2000.0, 50.0, 50.0 );
+		final Matrix3D scene2view = Matrix3D.getFromToTransform( viewPoint, new Vector3D( 0.0, 50.0, 50.0 ), Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS );
+		final Projector projector = Projector.createInstance( ProjectionPolicy.PERSPECTIVE, 400, 300, Scene.INCH / 96.0, scene.getUnit(), 1.0, 10000.0, Math.toRadians( 45.0 ), 1.0 );
+
+		final SceneBSPTree bspTree = new SceneBSPTree( scene );
+		RenderedPolygon[] queue = bspTree.getRenderQueue( viewPoint, projector, scene2view, false, true );
+		assertEquals( "Unexpected number of trees.", 2, bspTree.getBuildCount() );
+		assertEquals( "Unexpected number of polygons.", 24, queue.length );
+		for ( int i = 0; i < queue.length; i++ )
+		{
+			assertSame( "Unexpected object for polygon " + i, ( i < 12 ) ? left : right, queue[ i ]._object );
+		}
+
+		queue = bspTree.getRenderQueue( viewPoint, projector, scene2view, false, false );
+		assertSame( "Unexpected first object front-to-back.", right, queue[ 0 ]._object );
+
+		scene.addContentNode( "overlapping", Matrix3D.getTranslation( -150.0, 50.0, 50.0 ), overlapping );
+		queue = bspTree.getRenderQueue( viewPoint, projector, scene2view, false, true );
+		assertEquals( "Overlapping nodes should be combined.", 3, bspTree.getBuildCount() );
+		assertTrue( "Expected at least 36 polygons.", queue.length >= 36 );
+		assertSame( "Unexpected last object.", right, queue[ queue.length - 1 ]._object );
+
+		bspTree.getRenderQueue( viewPoint, projector, scene2view, false, true );
+		assertEquals( "Combined tree should be reused.", 3, bspTree.getBuildCount() );
+	}
+}
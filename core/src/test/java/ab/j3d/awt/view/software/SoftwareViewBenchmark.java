@@ -0,0 +1,100 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.software;
+
+import java.awt.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.awt.view.*;
+import ab.j3d.awt.view.java2d.*;
+import ab.j3d.model.*;
+
+/**
+ * Compares rendering performance of {@link SoftwareView} with that of
+ * {@link Java2dView}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class SoftwareViewBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [grid size] [image width] [image
+	 *             height].
+	 */
+	public static void main( final String[] args )
+	{
+		final int size = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 20;
+		final int width = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 1600;
+		final int height = ( args.length > 2 ) ? Integer.parseInt( args[ 2 ] ) : 1200;
+
+		final Scene scene = TestJava2dView.createScene( size );
+		final Matrix3D scene2view = Matrix3D.getFromToTransform( new Vector3D( 500.0, -1500.0 * (double)size / 5.0, 1000.0 * (double)size / 5.0 ), Vector3D.ZERO, Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS );
+		System.out.println( "Objects: " + size * size + ", image: " + width + " x " + height );
+
+		final Java2dView java2dView = new Java2dView( scene, Color.WHITE );
+		java2dView.setScene2View( scene2view );
+
+		final SoftwareView sequentialView = new SoftwareEngine( new NullTextureLibrary(), Color.WHITE, null ).createOffscreenView( scene );
+		sequentialView.setScene2View( scene2view );
+
+		final SoftwareView parallelView = new SoftwareEngine( new NullTextureLibrary(), Color.WHITE, ForkJoinPool.commonPool() ).createOffscreenView( scene );
+		parallelView.setScene2View( scene2view );
+		System.out.println( "Parallelism: " + ForkJoinPool.commonPool().getParallelism() );
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			long start = System.nanoTime();
+			java2dView.renderImage( width, height );
+			System.out.println( "  Java 2D:             " + formatMillis( System.nanoTime() - start ) );
+
+			start = System.nanoTime();
+			sequentialView.renderImage( width, height );
+			System.out.println( "  software:            " + formatMillis( System.nanoTime() - start ) );
+
+			start = System.nanoTime();
+			parallelView.renderImage( width, height );
+			System.out.println( "  software (parallel): " + formatMillis( System.nanoTime() - start ) );
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private SoftwareViewBenchmark()
+	{
+	}
+}
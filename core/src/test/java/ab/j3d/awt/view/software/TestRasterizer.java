@@ -0,0 +1,72 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.software;
+
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.view.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link Rasterizer}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestRasterizer
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestRasterizer.class.getName();
+
+	/**
+	 * Tests that rasterizing without a pool does not use any thread other
+	 * than the calling thread.
+	 */
+	public void testCallingThread()
+	{
+		System.out.println( CLASS_NAME + ".testCallingThread" );
+
+		final Set<Thread> threads = Collections.newSetFromMap( new ConcurrentHashMap<Thread, Boolean>() );
+		final Rasterizer.Texture texture = new Rasterizer.Texture( new BufferedImage( 4, 4, BufferedImage.TYPE_INT_ARGB ) )
+		{
+			@Override
+			public int getTexel( final double u, final double v )
+			{
+				threads.add( Thread.currentThread() );
+				return super.getTexel( u, v );
+			}
+		};
+
+		final Projector projector = Projector.createInstance( ProjectionPolicy.PARALLEL, 200, 200, 0.0254 / 90.0, 0.001, 1.0, 10000.0, Math.toRadians( 45.0 ), 1.0 );
+		final Rasterizer rasterizer = new Rasterizer( 200, 200, projector );
+		rasterizer.clear( 0xFFFFFFFF );
+
+		final float[] colors = { 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f };
+		final float[] uv = { 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 1.0f };
+		rasterizer.addTriangle( new double[] { -10000.0, -10000.0, -100.0, 10000.0, -10000.0, -100.0, -10000.0, 10000.0, -100.0 }, colors, uv, texture );
+		rasterizer.rasterize( null );
+
+		assertFalse( "Triangle should have been rasterized.", threads.isEmpty() );
+		assertEquals( "Only the calling thread should be used.", Collections.singleton( Thread.currentThread() ), threads );
+	}
+}
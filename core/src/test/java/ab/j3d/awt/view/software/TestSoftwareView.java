@@ -0,0 +1,284 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.software;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.awt.view.*;
+import ab.j3d.awt.view.java2d.*;
+import ab.j3d.model.*;
+import junit.framework.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Unit test for {@link SoftwareView}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestSoftwareView
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestSoftwareView.class.getName();
+
+	/**
+	 * Tests that the depth buffer determines which object is visible,
+	 * regardless of the order in which objects are rendered.
+	 */
+	public void testDepth()
+	{
+		System.out.println( CLASS_NAME + ".testDepth" );
+
+		final Appearance red = BasicAppearance.createForColor( "red", new Color4f( 0xFFFF0000 ) );
+		final Appearance blue = BasicAppearance.createForColor( "blue", new Color4f( 0xFF0000FF ) );
+
+		BufferedImage previous = null;
+		for ( final boolean frontFirst : new boolean[] { true, false } )
+		{
+			final Scene scene = new Scene( Scene.MM );
+			final Object3D front = new Box3D( 100.0, 100.0, 100.0, null, red );
+			final Object3D back = new Box3D( 400.0, 400.0, 100.0, null, blue );
+			if ( frontFirst )
+			{
+				scene.addContentNode( "front", Matrix3D.getTranslation( -50.0, -50.0, 100.0 ), front );
+			}
+			scene.addContentNode( "back", Matrix3D.getTranslation( -200.0, -200.0, -100.0 ), back );
+			if ( !frontFirst )
+			{
+				scene.addContentNode( "front", Matrix3D.getTranslation( -50.0, -50.0, 100.0 ), front );
+			}
+
+			final SoftwareView view = new SoftwareEngine( new NullTextureLibrary(), Color.WHITE, null ).createOffscreenView( scene );
+			view.setScene2View( Matrix3D.getFromToTransform( new Vector3D( 0.0, 0.0, 1000.0 ), Vector3D.ZERO, Vector3D.POSITIVE_Y_AXIS, Vector3D.POSITIVE_X_AXIS ) );
+			final BufferedImage image = view.renderImage( 200, 200 );
+
+			final int center = image.getRGB( 100, 100 );
+			assertEquals( "Unexpected color at center.", 0xFFFF0000, center );
+			assertEquals( "Unexpected color in corner.", 0xFFFFFFFF, image.getRGB( 0, 0 ) );
+
+			int bluePixels = 0;
+			for ( int x = 0; x < image.getWidth(); x++ )
+			{
+				if ( image.getRGB( x, 100 ) == 0xFF0000FF )
+				{
+					bluePixels++;
+				}
+			}
+			assertTrue( "Back object should be visible around front object.", bluePixels > 0 );
+
+			if ( previous != null )
+			{
+				assertImagesEqual( "Rendering order should not affect result.", previous, image );
+			}
+			previous = image;
+		}
+	}
+
+	/**
+	 * Tests that objects with {@link CompactFaceGroup compact face groups}
+	 * are rendered the same as objects with regular face groups.
+	 */
+	public void testCompactFaceGroups()
+	{
+		System.out.println( CLASS_NAME + ".testCompactFaceGroups" );
+
+		final Appearance red = BasicAppearance.createForColor( "red", new Color4f( 0xFFFF0000 ) );
+		final Object3D sphere = new Sphere3D( 150.0, 24, 12, red );
+		sphere.smooth( 45.0, 0.0, false );
+		final Object3D box = new Box3D( 400.0, 400.0, 100.0, null, BasicAppearances.ALU_PLATE );
+
+		final Scene scene = new Scene( Scene.MM );
+		scene.addContentNode( "sphere", Matrix3D.getTranslation( 0.0, 0.0, 100.0 ), sphere );
+		scene.addContentNode( "box", Matrix3D.getTranslation( -200.0, -200.0, -100.0 ), box );
+		final Matrix3D scene2view = Matrix3D.getFromToTransform( new Vector3D( 500.0, -1500.0, 1000.0 ), Vector3D.ZERO, Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS );
+
+		final SoftwareView regularView = new SoftwareEngine( new NullTextureLibrary(), Color.WHITE, null ).createOffscreenView( scene );
+		regularView.setScene2View( scene2view );
+		final BufferedImage expected = regularView.renderImage( 320, 200 );
+
+		sphere.compactFaceGroups();
+		box.compactFaceGroups();
+
+		final SoftwareView compactView = new SoftwareEngine( new NullTextureLibrary(), Color.WHITE, null ).createOffscreenView( scene );
+		compactView.setScene2View( scene2view );
+		assertImagesEqual( "Compact face groups should be rendered the same.", expected, compactView.renderImage( 320, 200 ) );
+	}
+
+	/**
+	 * Tests that rendering in parallel gives exactly the same result as
+	 * rendering in a single thread.
+	 */
+	public void testParallel()
+	{
+		System.out.println( CLASS_NAME + ".testParallel" );
+
+		final Scene scene = TestJava2dView.createScene( 5 );
+		final Matrix3D scene2view = Matrix3D.getFromToTransform( new Vector3D( 500.0, -1500.0, 1000.0 ), Vector3D.ZERO, Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS );
+
+		final SoftwareView sequentialView = new SoftwareEngine( new NullTextureLibrary(), Color.WHITE, null ).createOffscreenView( scene );
+		sequentialView.setScene2View( scene2view );
+		final BufferedImage expected = sequentialView.renderImage( 320, 200 );
+
+		int backgroundPixels = 0;
+		for ( int y = 0; y < expected.getHeight(); y++ )
+		{
+			for ( int x = 0; x < expected.getWidth(); x++ )
+			{
+				if ( expected.getRGB( x, y ) == 0xFFFFFFFF )
+				{
+					backgroundPixels++;
+				}
+			}
+		}
+		assertTrue( "Scene should be visible.", backgroundPixels < expected.getWidth() * expected.getHeight() );
+
+		final ForkJoinPool pool = new ForkJoinPool( 3 );
+		try
+		{
+			final SoftwareView parallelView = new SoftwareEngine( new NullTextureLibrary(), Color.WHITE, pool ).createOffscreenView( scene );
+			parallelView.setScene2View( scene2view );
+			assertImagesEqual( "Parallel rendering should match sequential rendering.", expected, parallelView.renderImage( 320, 200 ) );
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that triangles crossing the front clipping plane are clipped.
+	 */
+	public void testFrontClipping()
+	{
+		System.out.println( CLASS_NAME + ".testFrontClipping" );
+
+		final Scene scene = new Scene( Scene.MM );
+		final Object3D floor = new Box3D( 10000.0, 10000.0, 10.0, null, BasicAppearance.createForColor( "green", new Color4f( 0xFF00FF00 ) ) );
+		scene.addContentNode( "floor", Matrix3D.getTranslation( -5000.0, -5000.0, -10.0 ), floor );
+
+		final SoftwareView view = new SoftwareEngine( new NullTextureLibrary(), Color.WHITE, null ).createOffscreenView( scene );
+		view.setScene2View( Matrix3D.getFromToTransform( new Vector3D( 0.0, -100.0, 100.0 ), new Vector3D( 0.0, 1000.0, 0.0 ), Vector3D.POSITIVE_Z_AXIS, Vector3D.POSITIVE_Y_AXIS ) );
+		final BufferedImage image = view.renderImage( 200, 200 );
+
+		final int bottom = image.getRGB( 100, 199 );
+		assertTrue( "Floor should be visible below the camera: " + Integer.toHexString( bottom ), ( ( bottom & 0x00FF00 ) != 0 ) && ( ( bottom & 0xFF00FF ) == 0 ) );
+	}
+
+	/**
+	 * Tests that a texture that is being loaded does not block access to other
+	 * textures, and that a texture is loaded only once when it is needed by
+	 * multiple threads at the same time.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testTextureLoading()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testTextureLoading" );
+
+		final TextureMap slowMap = new BasicTextureMap( "slow" );
+		final TextureMap fastMap = new BasicTextureMap( "fast" );
+		final CountDownLatch slowStarted = new CountDownLatch( 1 );
+		final CountDownLatch slowReleased = new CountDownLatch( 1 );
+		final AtomicInteger slowLoads = new AtomicInteger();
+
+		final SoftwareEngine engine = new SoftwareEngine( new NullTextureLibrary()
+		{
+			@Override
+			public BufferedImage loadImage( @NotNull final TextureMap textureMap )
+			throws IOException
+			{
+				if ( textureMap == slowMap )
+				{
+					slowLoads.incrementAndGet();
+					slowStarted.countDown();
+					try
+					{
+						slowReleased.await();
+					}
+					catch ( final InterruptedException e )
+					{
+						throw new InterruptedIOException( e.toString() );
+					}
+				}
+				return new BufferedImage( 2, 2, BufferedImage.TYPE_INT_ARGB );
+			}
+		}, Color.WHITE, null );
+
+		final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+		try
+		{
+			final Callable<Rasterizer.Texture> loadSlow = new Callable<Rasterizer.Texture>()
+			{
+				@Override
+				public Rasterizer.Texture call()
+				{
+					return engine.getTexture( slowMap );
+				}
+			};
+
+			final Future<Rasterizer.Texture> first = executor.submit( loadSlow );
+			assertTrue( "Slow texture should start loading.", slowStarted.await( 10L, TimeUnit.SECONDS ) );
+			final Future<Rasterizer.Texture> second = executor.submit( loadSlow );
+
+			assertNotNull( "Other textures should be available while loading.", engine.getTexture( fastMap ) );
+			assertFalse( "Slow texture should still be loading.", first.isDone() );
+
+			slowReleased.countDown();
+			final Rasterizer.Texture texture = first.get( 10L, TimeUnit.SECONDS );
+			assertNotNull( "Slow texture should be loaded.", texture );
+			assertSame( "Threads should share the loaded texture.", texture, second.get( 10L, TimeUnit.SECONDS ) );
+			assertSame( "Loaded texture should be cached.", texture, engine.getTexture( slowMap ) );
+			assertEquals( "Slow texture should be loaded only once.", 1, slowLoads.get() );
+		}
+		finally
+		{
+			slowReleased.countDown();
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Asserts that two images are equal.
+	 *
+	 * @param message  Message to show if the assertion fails.
+	 * @param expected Expected image.
+	 * @param actual   Actual image.
+	 */
+	private static void assertImagesEqual( final String message, final BufferedImage expected, final BufferedImage actual )
+	{
+		assertEquals( message + " (width)", expected.getWidth(), actual.getWidth() );
+		assertEquals( message + " (height)", expected.getHeight(), actual.getHeight() );
+		for ( int y = 0; y < expected.getHeight(); y++ )
+		{
+			for ( int x = 0; x < expected.getWidth(); x++ )
+			{
+				assertEquals( message + " (pixel " + x + ", " + y + ")", expected.getRGB( x, y ), actual.getRGB( x, y ) );
+			}
+		}
+	}
+}
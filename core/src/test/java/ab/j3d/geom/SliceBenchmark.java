@@ -0,0 +1,145 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+
+/**
+ * Compares slicing an object with many parallel planes one plane at a time
+ * with the multi-plane methods of {@link Object3DSlicer}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class SliceBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [sphere segments] [plane count].
+	 */
+	public static void main( final String[] args )
+	{
+		final int segments = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 128;
+		final int planeCount = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 200;
+
+		final Object3D object = new Sphere3D( 100.0, segments * 2, segments, null );
+		final Vector3D planeNormal = new Vector3D( 0.0, 1.0, 1.0 ).normalize();
+		final double[] planeDistances = new double[ planeCount ];
+		for ( int i = 0; i < planeCount; i++ )
+		{
+			planeDistances[ i ] = -100.0 + 200.0 * ( (double)i + 0.5 ) / (double)planeCount;
+		}
+
+		int faceCount = 0;
+		for ( final FaceGroup faceGroup : object.getFaceGroups() )
+		{
+			faceCount += faceGroup.getFaces().size();
+		}
+		System.out.println( "Faces: " + faceCount + ", planes: " + planeCount );
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			int pathCount = 0;
+			long start = System.nanoTime();
+			for ( final double planeDistance : planeDistances )
+			{
+				pathCount += GeometryTools.createCrossSectionPath( object, new BasicPlane3D( planeNormal, planeDistance, true ) ).size();
+			}
+			System.out.println( "  cross-sections, per plane:  " + formatMillis( System.nanoTime() - start ) + " (" + pathCount + " paths)" );
+
+			pathCount = 0;
+			start = System.nanoTime();
+			for ( final List<List<Vector2D>> paths : Object3DSlicer.createCrossSectionPaths( object, planeNormal, planeDistances, null ) )
+			{
+				pathCount += paths.size();
+			}
+			System.out.println( "  cross-sections, sweep:      " + formatMillis( System.nanoTime() - start ) + " (" + pathCount + " paths)" );
+
+			pathCount = 0;
+			start = System.nanoTime();
+			for ( final List<List<Vector2D>> paths : Object3DSlicer.createCrossSectionPaths( object, planeNormal, planeDistances, ForkJoinPool.commonPool() ) )
+			{
+				pathCount += paths.size();
+			}
+			System.out.println( "  cross-sections, parallel:   " + formatMillis( System.nanoTime() - start ) + " (" + pathCount + " paths)" );
+
+			final Object3DSlicer slicer = new Object3DSlicer();
+			slicer.setSliceEnabled( true );
+
+			int sliceCount = 0;
+			start = System.nanoTime();
+			for ( final double planeDistance : planeDistances )
+			{
+				slicer.slice( object, new BasicPlane3D( planeNormal, planeDistance, true ) );
+				if ( slicer.getSliceObject() != null )
+				{
+					sliceCount++;
+				}
+			}
+			System.out.println( "  slice objects, per plane:   " + formatMillis( System.nanoTime() - start ) + " (" + sliceCount + " slices)" );
+
+			sliceCount = 0;
+			start = System.nanoTime();
+			for ( final Object3D slice : slicer.createSliceObjects( object, planeNormal, planeDistances, null ) )
+			{
+				if ( slice != null )
+				{
+					sliceCount++;
+				}
+			}
+			System.out.println( "  slice objects, sweep:       " + formatMillis( System.nanoTime() - start ) + " (" + sliceCount + " slices)" );
+
+			sliceCount = 0;
+			start = System.nanoTime();
+			for ( final Object3D slice : slicer.createSliceObjects( object, planeNormal, planeDistances, ForkJoinPool.commonPool() ) )
+			{
+				if ( slice != null )
+				{
+					sliceCount++;
+				}
+			}
+			System.out.println( "  slice objects, parallel:    " + formatMillis( System.nanoTime() - start ) + " (" + sliceCount + " slices)" );
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private SliceBenchmark()
+	{
+	}
+}
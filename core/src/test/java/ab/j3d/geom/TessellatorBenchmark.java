@@ -0,0 +1,165 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.tessellator.*;
+
+/**
+ * Compares tessellation of typical polygons using the sweep line algorithm
+ * with {@link Tessellator#create}, which tessellates simple polygons
+ * directly.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TessellatorBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [iterations].
+	 */
+	public static void main( final String[] args )
+	{
+		final int iterations = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 20000;
+
+		final Map<String, List<List<Vector2D>>> shapes = new LinkedHashMap<String, List<List<Vector2D>>>();
+		shapes.put( "rectangle", Collections.singletonList( createPolygon( 0.0, 0.0, 600.0, 0.0, 600.0, 18.0, 0.0, 18.0 ) ) );
+		shapes.put( "circle (64)", Collections.singletonList( createCircle( 0.0, 0.0, 100.0, 64 ) ) );
+		shapes.put( "L-profile", Collections.singletonList( createPolygon( 0.0, 0.0, 40.0, 0.0, 40.0, 3.0, 3.0, 3.0, 3.0, 40.0, 0.0, 40.0 ) ) );
+		shapes.put( "E-profile", Collections.singletonList( createPolygon( 0.0, 0.0, 30.0, 0.0, 30.0, 5.0, 5.0, 5.0, 5.0, 10.0, 30.0, 10.0, 30.0, 15.0, 5.0, 15.0, 5.0, 20.0, 30.0, 20.0, 30.0, 25.0, 0.0, 25.0 ) ) );
+		shapes.put( "rectangle with hole", Arrays.asList( createPolygon( 0.0, 0.0, 600.0, 0.0, 600.0, 400.0, 0.0, 400.0 ), createCircle( 300.0, 200.0, 50.0, 32 ) ) );
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			for ( final Map.Entry<String, List<List<Vector2D>>> entry : shapes.entrySet() )
+			{
+				final List<List<Vector2D>> contours = entry.getValue();
+
+				int sweepTriangles = 0;
+				long start = System.nanoTime();
+				for ( int i = 0; i < iterations; i++ )
+				{
+					sweepTriangles += createSweepTessellator( contours ).getCounterClockwiseTriangles().length;
+				}
+				final long sweepTime = System.nanoTime() - start;
+
+				int directTriangles = 0;
+				start = System.nanoTime();
+				for ( int i = 0; i < iterations; i++ )
+				{
+					final Tessellator tessellator = Tessellator.create( Mesh.WindingRule.ODD, contours );
+					tessellator.getCounterClockwisePrimitives();
+					directTriangles += tessellator.getCounterClockwiseTriangles().length;
+				}
+				final long directTime = System.nanoTime() - start;
+
+				System.out.println( "  " + entry.getKey() + ": sweep " + formatMicros( sweepTime / (long)iterations ) + ", create " + formatMicros( directTime / (long)iterations ) + " (" + ( sweepTriangles / iterations / 3 ) + " / " + ( directTriangles / iterations / 3 ) + " triangles)" );
+			}
+		}
+	}
+
+	/**
+	 * Creates a tessellator using the sweep line algorithm, and computes its
+	 * counter-clockwise primitives.
+	 *
+	 * @param contours Contours to tessellate.
+	 *
+	 * @return Tessellator.
+	 */
+	private static Tessellator createSweepTessellator( final List<List<Vector2D>> contours )
+	{
+		final Mesh mesh = new Mesh( Mesh.WindingRule.ODD );
+		for ( final List<Vector2D> contour : contours )
+		{
+			mesh.beginContour();
+			for ( final Vector2D point : contour )
+			{
+				mesh.addVertex( point.getX(), point.getY() );
+			}
+			mesh.endContour();
+		}
+		mesh.finish();
+
+		final Tessellator result = new Tessellator( mesh );
+		result.getCounterClockwisePrimitives();
+		return result;
+	}
+
+	/**
+	 * Creates a polygon from the given coordinates.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 *
+	 * @return Polygon.
+	 */
+	private static List<Vector2D> createPolygon( final double... coordinates )
+	{
+		final List<Vector2D> result = new ArrayList<Vector2D>( coordinates.length / 2 );
+		for ( int i = 0; i < coordinates.length; i += 2 )
+		{
+			result.add( new Vector2D( coordinates[ i ], coordinates[ i + 1 ] ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a regular polygon approximating a circle.
+	 *
+	 * @param x        X coordinate of center.
+	 * @param y        Y coordinate of center.
+	 * @param radius   Radius of circle.
+	 * @param segments Number of segments.
+	 *
+	 * @return Polygon.
+	 */
+	private static List<Vector2D> createCircle( final double x, final double y, final double radius, final int segments )
+	{
+		final List<Vector2D> result = new ArrayList<Vector2D>( segments );
+		for ( int i = 0; i < segments; i++ )
+		{
+			final double angle = 2.0 * Math.PI * (double)i / (double)segments;
+			result.add( new Vector2D( x + radius * Math.cos( angle ), y + radius * Math.sin( angle ) ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Formats a duration in microseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMicros( final long nanos )
+	{
+		return String.format( Locale.US, "%.2f us", (double)nanos / 1.0e3 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private TessellatorBenchmark()
+	{
+	}
+}
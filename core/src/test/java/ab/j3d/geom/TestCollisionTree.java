@@ -0,0 +1,201 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link CollisionTree}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestCollisionTree
+	extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestCollisionTree.class.getName();
+
+	/**
+	 * Tests that {@link CollisionTree} gives the same results as
+	 * {@link CollisionNode} and as a brute-force test of all triangle pairs.
+	 */
+	public void testCollidesWith()
+	{
+		System.out.println( CLASS_NAME + ".testCollidesWith" );
+
+		final List<Triangle3D> sphere = getTriangles( new Sphere3D( 1.0, 16, 8, null ) );
+		final List<Triangle3D> cylinder = getTriangles( new Cylinder3D( 2.0, 0.5, 12, null, null, true, null, null, null, null, false ) );
+
+		final CollisionTree sphereTree = createTree( sphere, false );
+		final CollisionTree cylinderTree = createTree( cylinder, false );
+		final CollisionNode sphereNode = new CollisionNode( new ArrayList<Triangle3D>( sphere ), 0, sphere.size() );
+		final CollisionNode cylinderNode = new CollisionNode( new ArrayList<Triangle3D>( cylinder ), 0, cylinder.size() );
+
+		final Random random = new Random( 0L );
+		int collisions = 0;
+		for ( int i = 0; i < 500; i++ )
+		{
+			final Matrix3D transform = Matrix3D.getTransform( random.nextDouble() * 360.0, random.nextDouble() * 360.0, random.nextDouble() * 360.0, random.nextDouble() * 4.0 - 2.0, random.nextDouble() * 4.0 - 2.0, random.nextDouble() * 4.0 - 2.0 );
+
+			final boolean expected = testBruteForce( sphere, cylinder, transform );
+			assertEquals( "Unexpected result from collision node (" + i + ')', expected, sphereNode.collidesWith( cylinderNode, transform ) );
+			assertEquals( "Unexpected result from collision tree (" + i + ')', expected, sphereTree.collidesWith( cylinderTree, transform ) );
+			assertEquals( "Unexpected result from collision tree (" + i + ')', expected, cylinderTree.collidesWith( sphereTree, transform.inverse() ) );
+
+			if ( expected )
+			{
+				collisions++;
+			}
+		}
+
+		assertTrue( "Expected some collisions", collisions > 0 );
+		assertTrue( "Expected some misses", collisions < 500 );
+	}
+
+	/**
+	 * Tests that a parallel build gives the same tree as a sequential build.
+	 */
+	public void testParallelBuild()
+	{
+		System.out.println( CLASS_NAME + ".testParallelBuild" );
+
+		final List<Triangle3D> triangles = getTriangles( new Sphere3D( 1.0, 128, 64, null ) );
+		assertTrue( "Need enough triangles for parallel build", triangles.size() >= CollisionTree.PARALLEL_BUILD_THRESHOLD );
+
+		final double[] sequential = toArray( triangles );
+		final double[] parallel = toArray( triangles );
+		final CollisionTree sequentialTree = new CollisionTree( sequential, triangles.size(), false );
+		final CollisionTree parallelTree = new CollisionTree( parallel, triangles.size(), true );
+
+		assertEquals( "Unexpected triangle count.", triangles.size(), parallelTree.getTriangleCount() );
+		assertTrue( "Triangles should be ordered identically", Arrays.equals( sequential, parallel ) );
+
+		final Random random = new Random( 0L );
+		for ( int i = 0; i < 100; i++ )
+		{
+			final Matrix3D transform = Matrix3D.getTransform( random.nextDouble() * 360.0, random.nextDouble() * 360.0, random.nextDouble() * 360.0, random.nextDouble() * 2.0 - 1.0, random.nextDouble() * 2.0 - 1.0, random.nextDouble() * 2.0 - 1.0 );
+			assertEquals( "Unexpected result.", sequentialTree.collidesWith( sequentialTree, transform ), parallelTree.collidesWith( parallelTree, transform ) );
+		}
+	}
+
+	/**
+	 * Tests all triangle pairs for intersection.
+	 *
+	 * @param triangles1 Triangles of first object.
+	 * @param triangles2 Triangles of second object.
+	 * @param from2to1   Transformation from second to first object.
+	 *
+	 * @return {@code true} if any pair of triangles intersects.
+	 */
+	private static boolean testBruteForce( final List<Triangle3D> triangles1, final List<Triangle3D> triangles2, final Matrix3D from2to1 )
+	{
+		boolean result = false;
+		for ( final Triangle3D triangle2 : triangles2 )
+		{
+			final Vector3D p1 = from2to1.transform( triangle2.getP1() );
+			final Vector3D p2 = from2to1.transform( triangle2.getP2() );
+			final Vector3D p3 = from2to1.transform( triangle2.getP3() );
+
+			for ( final Triangle3D triangle1 : triangles1 )
+			{
+				if ( GeometryTools.testTriangleTriangleIntersection( p1, p2, p3, triangle1.getP1(), triangle1.getP2(), triangle1.getP3() ) )
+				{
+					result = true;
+					break;
+				}
+			}
+
+			if ( result )
+			{
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a collision tree for the given triangles.
+	 *
+	 * @param triangles Triangles.
+	 * @param parallel  Build in parallel.
+	 *
+	 * @return Collision tree.
+	 */
+	private static CollisionTree createTree( final List<Triangle3D> triangles, final boolean parallel )
+	{
+		return new CollisionTree( toArray( triangles ), triangles.size(), parallel );
+	}
+
+	/**
+	 * Packs triangle coordinates into an array.
+	 *
+	 * @param triangles Triangles.
+	 *
+	 * @return Triangle coordinates (9 per triangle).
+	 */
+	private static double[] toArray( final List<Triangle3D> triangles )
+	{
+		final double[] result = new double[ triangles.size() * 9 ];
+		int index = 0;
+		for ( final Triangle3D triangle : triangles )
+		{
+			for ( final Vector3D point : Arrays.asList( triangle.getP1(), triangle.getP2(), triangle.getP3() ) )
+			{
+				result[ index++ ] = point.x;
+				result[ index++ ] = point.y;
+				result[ index++ ] = point.z;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the triangles of an object.
+	 *
+	 * @param object Object to get triangles from.
+	 *
+	 * @return Triangles.
+	 */
+	private static List<Triangle3D> getTriangles( final Object3D object )
+	{
+		final List<Triangle3D> result = new ArrayList<Triangle3D>();
+		for ( final FaceGroup faceGroup : object.getFaceGroups() )
+		{
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				final List<Vertex3D> vertices = face.getVertices();
+				for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+				{
+					final int[] triangles = primitive.getTriangles();
+					for ( int i = 0; i < triangles.length; i += 3 )
+					{
+						result.add( new BasicTriangle3D( vertices.get( triangles[ i ] ).point, vertices.get( triangles[ i + 1 ] ).point, vertices.get( triangles[ i + 2 ] ).point, true ) );
+					}
+				}
+			}
+		}
+		return result;
+	}
+}
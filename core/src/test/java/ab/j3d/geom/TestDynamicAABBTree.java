@@ -0,0 +1,205 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.*;
+
+import ab.j3d.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link DynamicAABBTree}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestDynamicAABBTree
+	extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestDynamicAABBTree.class.getName();
+
+	/**
+	 * Tests that bounds and ray queries return the same items as a brute-force
+	 * test while items are inserted, moved and removed.
+	 */
+	public void testQueries()
+	{
+		System.out.println( CLASS_NAME + ".testQueries" );
+
+		final Random random = new Random( 1L );
+		final DynamicAABBTree<Integer> tree = new DynamicAABBTree<Integer>( 0.0 );
+		final Map<Integer, Bounds3D> itemBounds = new HashMap<Integer, Bounds3D>();
+		final Map<Integer, Integer> proxies = new HashMap<Integer, Integer>();
+
+		for ( int i = 0; i < 1000; i++ )
+		{
+			final Bounds3D bounds = createBounds( random );
+			itemBounds.put( i, bounds );
+			proxies.put( i, tree.insert( i, bounds ) );
+		}
+		assertEquals( "Unexpected size.", 1000, tree.size() );
+		assertTrue( "Tree is not balanced: height=" + tree.getHeight(), tree.getHeight() < 30 );
+
+		for ( int step = 0; step < 5; step++ )
+		{
+			for ( int i = step; i < 1000; i += 3 )
+			{
+				final Integer proxy = proxies.get( i );
+				if ( proxy != null )
+				{
+					final Bounds3D bounds = createBounds( random );
+					itemBounds.put( i, bounds );
+					tree.move( proxy, bounds );
+				}
+			}
+
+			for ( int query = 0; query < 50; query++ )
+			{
+				final Bounds3D bounds = createBounds( random );
+				final Set<Integer> expected = new HashSet<Integer>();
+				for ( final Map.Entry<Integer, Bounds3D> entry : itemBounds.entrySet() )
+				{
+					final Bounds3D candidate = entry.getValue();
+					if ( ( candidate.minX() <= bounds.maxX() ) && ( candidate.maxX() >= bounds.minX() ) &&
+					     ( candidate.minY() <= bounds.maxY() ) && ( candidate.maxY() >= bounds.minY() ) &&
+					     ( candidate.minZ() <= bounds.maxZ() ) && ( candidate.maxZ() >= bounds.minZ() ) )
+					{
+						expected.add( entry.getKey() );
+					}
+				}
+
+				final Set<Integer> actual = new HashSet<Integer>();
+				tree.query( bounds, actual );
+				assertEquals( "Unexpected bounds query result.", expected, actual );
+			}
+
+			for ( int query = 0; query < 50; query++ )
+			{
+				final Vector3D origin = new Vector3D( random.nextDouble() * 1200.0 - 100.0, random.nextDouble() * 1200.0 - 100.0, -100.0 );
+				final Vector3D direction = new Vector3D( random.nextDouble() - 0.5, random.nextDouble() - 0.5, 1.0 ).normalize();
+				final Ray3D ray = new BasicRay3D( origin, direction, true );
+
+				final Set<Integer> actual = new HashSet<Integer>();
+				tree.query( ray, actual );
+
+				for ( final Map.Entry<Integer, Bounds3D> entry : itemBounds.entrySet() )
+				{
+					final Bounds3D bounds = entry.getValue();
+					final boolean hit = hitsBounds( ray, bounds );
+					if ( hit )
+					{
+						assertTrue( "Missing item " + entry.getKey() + " in ray query.", actual.contains( entry.getKey() ) );
+					}
+				}
+			}
+
+			for ( int i = step; i < 1000; i += 10 )
+			{
+				final Integer proxy = proxies.remove( i );
+				if ( proxy != null )
+				{
+					tree.remove( proxy );
+					itemBounds.remove( i );
+				}
+			}
+			assertEquals( "Unexpected size.", itemBounds.size(), tree.size() );
+		}
+
+		tree.clear();
+		assertEquals( "Unexpected size.", 0, tree.size() );
+		final List<Integer> all = new ArrayList<Integer>();
+		tree.query( new Bounds3D( -1.0e6, -1.0e6, -1.0e6, 1.0e6, 1.0e6, 1.0e6 ), all );
+		assertTrue( "Expected no items after clear.", all.isEmpty() );
+	}
+
+	/**
+	 * Tests that a query started from within another query does not affect
+	 * the outer query.
+	 */
+	public void testNestedQueries()
+	{
+		System.out.println( CLASS_NAME + ".testNestedQueries" );
+
+		final Random random = new Random( 2L );
+		final DynamicAABBTree<Integer> tree = new DynamicAABBTree<Integer>( 0.0 );
+		for ( int i = 0; i < 500; i++ )
+		{
+			tree.insert( i, createBounds( random ) );
+		}
+
+		final Bounds3D everything = new Bounds3D( -1.0e6, -1.0e6, -1.0e6, 1.0e6, 1.0e6, 1.0e6 );
+		final Set<Integer> expected = new HashSet<Integer>();
+		tree.query( everything, expected );
+		assertEquals( "Unexpected number of items.", 500, expected.size() );
+
+		final Set<Integer> actual = new HashSet<Integer>()
+		{
+			@Override
+			public boolean add( final Integer item )
+			{
+				final Set<Integer> nested = new HashSet<Integer>();
+				tree.query( everything, nested );
+				assertEquals( "Unexpected nested query result.", expected, nested );
+				return super.add( item );
+			}
+		};
+		tree.query( everything, actual );
+		assertEquals( "Unexpected outer query result.", expected, actual );
+	}
+
+	/**
+	 * Creates random bounds.
+	 *
+	 * @param random Random number generator.
+	 *
+	 * @return Random bounds.
+	 */
+	private static Bounds3D createBounds( final Random random )
+	{
+		final double x = random.nextDouble() * 1000.0;
+		final double y = random.nextDouble() * 1000.0;
+		final double z = random.nextDouble() * 1000.0;
+		return new Bounds3D( x, y, z, x + random.nextDouble() * 50.0, y + random.nextDouble() * 50.0, z + random.nextDouble() * 50.0 );
+	}
+
+	/**
+	 * Tests whether a ray hits the given bounds, by sampling points along the
+	 * ray.
+	 *
+	 * @param ray    Ray to test.
+	 * @param bounds Bounds to test.
+	 *
+	 * @return {@code true} if a sampled point is inside the bounds.
+	 */
+	private static boolean hitsBounds( final Ray3D ray, final Bounds3D bounds )
+	{
+		boolean result = false;
+
+		final Vector3D origin = ray.getOrigin();
+		final Vector3D direction = ray.getDirection();
+		for ( double t = 0.0; !result && ( t < 3000.0 ); t += 0.5 )
+		{
+			result = bounds.contains( origin.x + t * direction.x, origin.y + t * direction.y, origin.z + t * direction.z );
+		}
+
+		return result;
+	}
+}
@@ -19,6 +19,7 @@
 package ab.j3d.geom;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import ab.j3d.*;
 import ab.j3d.appearance.*;
@@ -166,4 +167,228 @@ extends TestCase
 		}
 		while ( !closed );
 	}
+
+	/**
+	 * Test that {@link Object3DSlicer#createCrossSectionPaths} gives the same
+	 * result as {@link GeometryTools#createCrossSectionPath} for each plane.
+	 * Planes through vertices are avoided, except for planes through faces
+	 * along the Z-axis, since the paths are not well-defined if edges of
+	 * several faces meet in a plane.
+	 */
+	public void testCreateCrossSectionPaths()
+	{
+		System.out.println( CLASS_NAME + ".testCreateCrossSectionPaths" );
+
+		final double[] planeDistances = createPlaneDistances();
+		for ( int i = 0; i < planeDistances.length; i++ )
+		{
+			planeDistances[ i ] += 2.5;
+		}
+
+		for ( final Object3D object : createTestObjects() )
+		{
+			for ( final Vector3D planeNormal : createPlaneNormals() )
+			{
+				assertSameCrossSections( object, planeNormal, planeDistances );
+			}
+
+			assertSameCrossSections( object, Vector3D.POSITIVE_Z_AXIS, new double[] { 100.0, 0.0, 40.0 } );
+		}
+	}
+
+	/**
+	 * Asserts that {@link Object3DSlicer#createCrossSectionPaths} gives the
+	 * same result as {@link GeometryTools#createCrossSectionPath}.
+	 *
+	 * @param object         Object to intersect.
+	 * @param planeNormal    Normal of the cutting planes.
+	 * @param planeDistances Distance of each cutting plane.
+	 */
+	private static void assertSameCrossSections( final Object3D object, final Vector3D planeNormal, final double[] planeDistances )
+	{
+		final List<List<List<Vector2D>>> sequential = Object3DSlicer.createCrossSectionPaths( object, planeNormal, planeDistances, null );
+		final List<List<List<Vector2D>>> parallel = Object3DSlicer.createCrossSectionPaths( object, planeNormal, planeDistances, ForkJoinPool.commonPool() );
+		assertEquals( "Unexpected number of cross-sections", planeDistances.length, sequential.size() );
+
+		for ( int i = 0; i < planeDistances.length; i++ )
+		{
+			final Plane3D plane = new BasicPlane3D( planeNormal, planeDistances[ i ], true );
+			final List<List<Vector2D>> expected = GeometryTools.createCrossSectionPath( object, plane );
+			assertSamePaths( "Unexpected cross-section for " + plane, expected, sequential.get( i ) );
+			assertSamePaths( "Unexpected parallel cross-section for " + plane, expected, parallel.get( i ) );
+		}
+	}
+
+	/**
+	 * Test that {@link Object3DSlicer#createSliceObjects} gives the same
+	 * result as {@link Object3DSlicer#slice} for each plane.
+	 */
+	public void testCreateSliceObjects()
+	{
+		System.out.println( CLASS_NAME + ".testCreateSliceObjects" );
+
+		final double[] planeDistances = createPlaneDistances();
+		for ( final Object3D object : createTestObjects() )
+		{
+			for ( final Vector3D planeNormal : createPlaneNormals() )
+			{
+				final Object3DSlicer slicer = new Object3DSlicer();
+				slicer.setSliceEnabled( true );
+				slicer.setSliceAppearance( BasicAppearances.RED );
+
+				final List<Object3D> sequential = slicer.createSliceObjects( object, planeNormal, planeDistances, null );
+				final List<Object3D> parallel = slicer.createSliceObjects( object, planeNormal, planeDistances, ForkJoinPool.commonPool() );
+				assertEquals( "Unexpected number of slices", planeDistances.length, sequential.size() );
+
+				int sliceCount = 0;
+				for ( int i = 0; i < planeDistances.length; i++ )
+				{
+					final Plane3D plane = new BasicPlane3D( planeNormal, planeDistances[ i ], true );
+					slicer.slice( object, plane );
+					final Object3D expected = slicer.getSliceObject();
+					assertSameObject( "Unexpected slice for " + plane, expected, sequential.get( i ) );
+					assertSameObject( "Unexpected parallel slice for " + plane, expected, parallel.get( i ) );
+
+					if ( expected != null )
+					{
+						sliceCount++;
+					}
+				}
+				assertTrue( "Expected slices", sliceCount > 0 );
+			}
+		}
+	}
+
+	/**
+	 * Creates objects to test slicing with multiple planes.
+	 *
+	 * @return Test objects.
+	 */
+	private static List<Object3D> createTestObjects()
+	{
+		return Arrays.asList( new Cylinder3D( 100.0, 50.0, 32, BasicAppearances.BLUE, null, false, BasicAppearances.GREEN, null, BasicAppearances.GREEN, null, false ),
+		                      new Sphere3D( 60.0, 24, 12, BasicAppearances.BLUE ),
+		                      new Box3D( 100.0, 50.0, 40.0, null, BasicAppearances.BLUE ) );
+	}
+
+	/**
+	 * Creates plane normals to test slicing with multiple planes.
+	 *
+	 * @return Plane normals.
+	 */
+	private static List<Vector3D> createPlaneNormals()
+	{
+		return Arrays.asList( Vector3D.POSITIVE_Z_AXIS, Vector3D.NEGATIVE_X_AXIS, new Vector3D( 1.0, 2.0, 3.0 ).normalize() );
+	}
+
+	/**
+	 * Creates plane distances to test slicing with multiple planes. The
+	 * distances are not sorted, contain a duplicate and include distances
+	 * that touch vertices and faces of the test objects.
+	 *
+	 * @return Plane distances.
+	 */
+	private static double[] createPlaneDistances()
+	{
+		final double[] result = new double[ 43 ];
+		for ( int i = 0; i < 41; i++ )
+		{
+			result[ i ] = (double)( ( i * 17 ) % 41 ) * 5.0 - 100.0;
+		}
+		result[ 41 ] = 0.0;
+		result[ 42 ] = 12.34;
+		return result;
+	}
+
+	/**
+	 * Asserts that two cross-sections consist of the same line segments. The
+	 * direction in which paths are walked is not defined, so only the segments
+	 * are compared. Points are compared by their string representation, since
+	 * planes that touch an edge may produce NaN coordinates.
+	 *
+	 * @param message  Message to include with assertion failures.
+	 * @param expected Expected paths.
+	 * @param actual   Actual paths.
+	 */
+	private static void assertSamePaths( final String message, final List<List<Vector2D>> expected, final List<List<Vector2D>> actual )
+	{
+		assertEquals( message, getSegments( expected ), getSegments( actual ) );
+	}
+
+	/**
+	 * Returns the line segments of the given paths as sorted strings.
+	 *
+	 * @param paths Paths to get segments from.
+	 *
+	 * @return Sorted line segments.
+	 */
+	private static List<String> getSegments( final List<List<Vector2D>> paths )
+	{
+		final List<String> result = new ArrayList<String>();
+		for ( final List<Vector2D> path : paths )
+		{
+			for ( int i = 1; i < path.size(); i++ )
+			{
+				final String p1 = String.valueOf( path.get( i - 1 ) );
+				final String p2 = String.valueOf( path.get( i ) );
+				result.add( ( p1.compareTo( p2 ) < 0 ) ? p1 + " - " + p2 : p2 + " - " + p1 );
+			}
+		}
+		Collections.sort( result );
+		return result;
+	}
+
+	/**
+	 * Asserts that two objects have the same vertices and faces.
+	 *
+	 * @param message  Message to include with assertion failures.
+	 * @param expected Expected object.
+	 * @param actual   Actual object.
+	 */
+	private static void assertSameObject( final String message, final Object3D expected, final Object3D actual )
+	{
+		if ( expected == null )
+		{
+			assertNull( message, actual );
+		}
+		else
+		{
+			assertNotNull( message, actual );
+			assertEquals( message + ": vertices", expected.getVertexCoordinates(), actual.getVertexCoordinates() );
+
+			final List<FaceGroup> expectedGroups = expected.getFaceGroups();
+			final List<FaceGroup> actualGroups = actual.getFaceGroups();
+			assertEquals( message + ": face groups", expectedGroups.size(), actualGroups.size() );
+
+			for ( int i = 0; i < expectedGroups.size(); i++ )
+			{
+				final FaceGroup expectedGroup = expectedGroups.get( i );
+				final FaceGroup actualGroup = actualGroups.get( i );
+				assertSame( message + ": appearance", expectedGroup.getAppearance(), actualGroup.getAppearance() );
+
+				final List<Face3D> expectedFaces = expectedGroup.getFaces();
+				final List<Face3D> actualFaces = actualGroup.getFaces();
+				assertEquals( message + ": faces", expectedFaces.size(), actualFaces.size() );
+
+				for ( int j = 0; j < expectedFaces.size(); j++ )
+				{
+					final Face3D expectedFace = expectedFaces.get( j );
+					final Face3D actualFace = actualFaces.get( j );
+					assertEquals( message + ": face vertices", expectedFace.getVertexCount(), actualFace.getVertexCount() );
+					for ( int k = 0; k < expectedFace.getVertexCount(); k++ )
+					{
+						assertEquals( message + ": face vertex", expectedFace.getVertex( k ).point, actualFace.getVertex( k ).point );
+					}
+
+					final List<TessellationPrimitive> expectedPrimitives = expectedFace.getTessellation().getPrimitives();
+					final List<TessellationPrimitive> actualPrimitives = actualFace.getTessellation().getPrimitives();
+					assertEquals( message + ": primitives", expectedPrimitives.size(), actualPrimitives.size() );
+					for ( int k = 0; k < expectedPrimitives.size(); k++ )
+					{
+						assertTrue( message + ": triangles", Arrays.equals( expectedPrimitives.get( k ).getTriangles(), actualPrimitives.get( k ).getTriangles() ) );
+					}
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,237 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.tessellator.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link PolygonTessellator}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestPolygonTessellator
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestPolygonTessellator.class.getName();
+
+	/**
+	 * Test that convex polygons produce the same triangles as the sweep line
+	 * algorithm.
+	 */
+	public void testConvex()
+	{
+		System.out.println( CLASS_NAME + ".testConvex" );
+
+		final List<List<Vector2D>> polygons = new ArrayList<List<Vector2D>>();
+		polygons.add( createPolygon( 0.0, 0.0, 10.0, 0.0, 0.0, 10.0 ) );
+		polygons.add( createPolygon( 0.0, 0.0, 100.0, 0.0, 100.0, 50.0, 0.0, 50.0 ) );
+		polygons.add( createPolygon( 0.0, 0.0, 40.0, -10.0, 60.0, 20.0, 30.0, 45.0, -5.0, 30.0 ) );
+		polygons.add( createCircle( 64 ) );
+
+		for ( final List<Vector2D> polygon : polygons )
+		{
+			for ( final List<Vector2D> contour : Arrays.asList( polygon, reverse( polygon ) ) )
+			{
+				final Tessellator tessellator = PolygonTessellator.tessellate( Mesh.WindingRule.ODD, contour );
+				assertNotNull( "Polygon should be tessellated: " + contour, tessellator );
+
+				final Tessellator sweep = createSweepTessellator( contour );
+				assertEquals( "Unexpected counter-clockwise triangles", getTriangles( sweep, sweep.getCounterClockwiseTriangles() ), getTriangles( tessellator, tessellator.getCounterClockwiseTriangles() ) );
+				assertEquals( "Unexpected clockwise triangles", getTriangles( sweep, sweep.getClockwiseTriangles() ), getTriangles( tessellator, tessellator.getClockwiseTriangles() ) );
+			}
+		}
+	}
+
+	/**
+	 * Test tessellation of simple concave polygons, both monotone ones and
+	 * ones that require ear clipping.
+	 */
+	public void testConcave()
+	{
+		System.out.println( CLASS_NAME + ".testConcave" );
+
+		/* monotone */
+		assertTessellation( createPolygon( 0.0, 0.0, 30.0, 0.0, 30.0, 30.0, 20.0, 30.0, 20.0, 10.0, 10.0, 10.0, 10.0, 30.0, 0.0, 30.0 ), 700.0 );
+		assertTessellation( createPolygon( 0.0, 0.0, 10.0, 5.0, 20.0, -5.0, 30.0, 10.0, 25.0, 20.0, 15.0, 12.0, 5.0, 18.0 ), 380.0 );
+
+		/* not monotone */
+		assertTessellation( createPolygon( 0.0, 0.0, 30.0, 0.0, 30.0, 10.0, 10.0, 10.0, 10.0, 20.0, 30.0, 20.0, 30.0, 30.0, 0.0, 30.0 ), 700.0 );
+		assertTessellation( createPolygon( 0.0, 0.0, 30.0, 0.0, 30.0, 5.0, 5.0, 5.0, 5.0, 10.0, 30.0, 10.0, 30.0, 15.0, 5.0, 15.0, 5.0, 20.0, 30.0, 20.0, 30.0, 25.0, 0.0, 25.0 ), 500.0 );
+	}
+
+	/**
+	 * Asserts that a polygon is tessellated into counter-clockwise triangles
+	 * that cover the polygon, in both orientations.
+	 *
+	 * @param polygon Counter-clockwise polygon.
+	 * @param area    Expected area.
+	 */
+	private static void assertTessellation( final List<Vector2D> polygon, final double area )
+	{
+		for ( final List<Vector2D> contour : Arrays.asList( polygon, reverse( polygon ) ) )
+		{
+			final Tessellator tessellator = PolygonTessellator.tessellate( Mesh.WindingRule.ODD, contour );
+			assertNotNull( "Polygon should be tessellated: " + contour, tessellator );
+
+			final int[] triangles = tessellator.getCounterClockwiseTriangles();
+			assertEquals( "Unexpected number of triangles", ( contour.size() - 2 ) * 3, triangles.length );
+			assertEquals( "Unexpected number of clockwise triangles", triangles.length, tessellator.getClockwiseTriangles().length );
+
+			final List<Vector2D> vertices = tessellator.getVertexList();
+			double actualArea = 0.0;
+			for ( int i = 0; i < triangles.length; i += 3 )
+			{
+				final Vector2D v1 = vertices.get( triangles[ i ] );
+				final Vector2D v2 = vertices.get( triangles[ i + 1 ] );
+				final Vector2D v3 = vertices.get( triangles[ i + 2 ] );
+				final double triangleArea = 0.5 * ( ( v2.getX() - v1.getX() ) * ( v3.getY() - v1.getY() ) - ( v2.getY() - v1.getY() ) * ( v3.getX() - v1.getX() ) );
+				assertTrue( "Triangle should be counter-clockwise: " + v1 + ", " + v2 + ", " + v3, triangleArea > 0.0 );
+				actualArea += triangleArea;
+			}
+			assertEquals( "Unexpected area", area, actualArea, 1.0e-9 );
+
+			assertEquals( "Unexpected number of outlines", 1, tessellator.getCounterClockwiseOutlines().size() );
+			assertEquals( "Unexpected outline length", contour.size() + 1, tessellator.getCounterClockwiseOutlines().get( 0 ).length );
+		}
+	}
+
+	/**
+	 * Test that polygons that are not simple or not filled are left to the
+	 * sweep line algorithm.
+	 */
+	public void testUnsupported()
+	{
+		System.out.println( CLASS_NAME + ".testUnsupported" );
+
+		assertNull( "Self-intersecting polygon", PolygonTessellator.tessellate( Mesh.WindingRule.ODD, createPolygon( 0.0, 0.0, 10.0, 10.0, 10.0, 0.0, 0.0, 10.0 ) ) );
+		assertNull( "Pentagram", PolygonTessellator.tessellate( Mesh.WindingRule.ODD, createPolygon( 0.0, 10.0, 6.0, -8.0, -9.5, 3.0, 9.5, 3.0, -6.0, -8.0 ) ) );
+		assertNull( "Duplicate point", PolygonTessellator.tessellate( Mesh.WindingRule.ODD, createPolygon( 0.0, 0.0, 10.0, 0.0, 5.0, 5.0, 10.0, 10.0, 0.0, 10.0, 5.0, 5.0 ) ) );
+		assertNull( "Degenerate polygon", PolygonTessellator.tessellate( Mesh.WindingRule.ODD, createPolygon( 0.0, 0.0, 10.0, 0.0, 20.0, 0.0 ) ) );
+		assertNull( "Clockwise polygon with positive winding rule", PolygonTessellator.tessellate( Mesh.WindingRule.POSITIVE, createPolygon( 0.0, 0.0, 0.0, 10.0, 10.0, 0.0 ) ) );
+		assertNotNull( "Clockwise polygon with negative winding rule", PolygonTessellator.tessellate( Mesh.WindingRule.NEGATIVE, createPolygon( 0.0, 0.0, 0.0, 10.0, 10.0, 0.0 ) ) );
+	}
+
+	/**
+	 * Creates a polygon from the given coordinates.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 *
+	 * @return Polygon.
+	 */
+	private static List<Vector2D> createPolygon( final double... coordinates )
+	{
+		final List<Vector2D> result = new ArrayList<Vector2D>( coordinates.length / 2 );
+		for ( int i = 0; i < coordinates.length; i += 2 )
+		{
+			result.add( new Vector2D( coordinates[ i ], coordinates[ i + 1 ] ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the points of a polygon in reverse order.
+	 *
+	 * @param polygon Polygon.
+	 *
+	 * @return Reversed polygon.
+	 */
+	private static List<Vector2D> reverse( final List<Vector2D> polygon )
+	{
+		final List<Vector2D> result = new ArrayList<Vector2D>( polygon );
+		Collections.reverse( result );
+		return result;
+	}
+
+	/**
+	 * Creates a regular polygon approximating a circle.
+	 *
+	 * @param segments Number of segments.
+	 *
+	 * @return Polygon.
+	 */
+	private static List<Vector2D> createCircle( final int segments )
+	{
+		final List<Vector2D> result = new ArrayList<Vector2D>( segments );
+		for ( int i = 0; i < segments; i++ )
+		{
+			final double angle = 2.0 * Math.PI * (double)i / (double)segments;
+			result.add( new Vector2D( 100.0 * Math.cos( angle ), 100.0 * Math.sin( angle ) ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a tessellator for the given contour using the sweep line
+	 * algorithm.
+	 *
+	 * @param contour Contour to tessellate.
+	 *
+	 * @return Tessellator.
+	 */
+	private static Tessellator createSweepTessellator( final List<Vector2D> contour )
+	{
+		final Mesh mesh = new Mesh( Mesh.WindingRule.ODD );
+		mesh.beginContour();
+		for ( final Vector2D point : contour )
+		{
+			mesh.addVertex( point.getX(), point.getY() );
+		}
+		mesh.endContour();
+		mesh.finish();
+
+		final Tessellator result = new Tessellator( mesh );
+		result.computeAll();
+		return result;
+	}
+
+	/**
+	 * Returns the triangles as a sorted list of strings, independent of the
+	 * vertex list and of the first vertex of each triangle.
+	 *
+	 * @param tessellator Tessellator that created the triangles.
+	 * @param triangles   Triangles (vertex indices).
+	 *
+	 * @return Triangles as strings.
+	 */
+	private static List<String> getTriangles( final Tessellator tessellator, final int[] triangles )
+	{
+		final List<Vector2D> vertices = tessellator.getVertexList();
+		final List<String> result = new ArrayList<String>( triangles.length / 3 );
+		for ( int i = 0; i < triangles.length; i += 3 )
+		{
+			final String v1 = vertices.get( triangles[ i ] ).toFriendlyString();
+			final String v2 = vertices.get( triangles[ i + 1 ] ).toFriendlyString();
+			final String v3 = vertices.get( triangles[ i + 2 ] ).toFriendlyString();
+
+			final String first = v1 + v2 + v3;
+			final String second = v2 + v3 + v1;
+			final String third = v3 + v1 + v2;
+			result.add( ( first.compareTo( second ) < 0 ) ? ( ( first.compareTo( third ) < 0 ) ? first : third ) : ( ( second.compareTo( third ) < 0 ) ? second : third ) );
+		}
+		Collections.sort( result );
+		return result;
+	}
+}
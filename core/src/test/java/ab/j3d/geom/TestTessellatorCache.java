@@ -0,0 +1,192 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.util.*;
+import java.util.List;
+
+import ab.j3d.*;
+import ab.j3d.awt.*;
+import ab.j3d.geom.tessellator.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link TessellatorCache}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestTessellatorCache
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestTessellatorCache.class.getName();
+
+	/**
+	 * Test that cached results are the same as those of an uncached
+	 * tessellator.
+	 */
+	public void testResults()
+	{
+		System.out.println( CLASS_NAME + ".testResults" );
+
+		final Shape shape = createShape( 0.0 );
+		final Tessellator expected = ShapeTools.createTessellator( shape, 0.1 );
+		final List<TessellationPrimitive> expectedPrimitives = expected.getCounterClockwisePrimitives();
+
+		final TessellatorCache cache = new TessellatorCache();
+		final Tessellator actual = ShapeTools.createTessellator( shape, 0.1, cache );
+
+		assertEquals( "Unexpected vertices", expected.getVertexList(), actual.getVertexList() );
+		assertEquals( "Unexpected number of primitives", expectedPrimitives.size(), actual.getCounterClockwisePrimitives().size() );
+		for ( int i = 0; i < expectedPrimitives.size(); i++ )
+		{
+			assertTrue( "Unexpected primitive", Arrays.equals( expectedPrimitives.get( i ).getTriangles(), actual.getCounterClockwisePrimitives().get( i ).getTriangles() ) );
+		}
+
+		final Tessellator outlined = ShapeTools.createTessellator( shape, 0.1 );
+		final List<int[]> expectedOutlines = outlined.getCounterClockwiseOutlines();
+		final List<int[]> actualOutlines = actual.getCounterClockwiseOutlines();
+		assertEquals( "Unexpected number of outlines", expectedOutlines.size(), actualOutlines.size() );
+		for ( int i = 0; i < expectedOutlines.size(); i++ )
+		{
+			assertEquals( "Unexpected outline", getPoints( outlined, expectedOutlines.get( i ) ), getPoints( actual, actualOutlines.get( i ) ) );
+		}
+
+		assertEquals( "Unexpected number of triangles", expected.getClockwiseTriangles().length, actual.getClockwiseTriangles().length );
+	}
+
+	/**
+	 * Test hit and miss statistics, including the tolerance for coordinates.
+	 */
+	public void testHitsAndMisses()
+	{
+		System.out.println( CLASS_NAME + ".testHitsAndMisses" );
+
+		final TessellatorCache cache = new TessellatorCache( 10, 1.0e-6 );
+
+		final Tessellator first = ShapeTools.createTessellator( createShape( 0.0 ), 0.1, cache );
+		assertEquals( "Unexpected hits", 0L, cache.getHits() );
+		assertEquals( "Unexpected misses", 1L, cache.getMisses() );
+
+		assertSame( "Expected cached tessellator", first, ShapeTools.createTessellator( createShape( 0.0 ), 0.1, cache ) );
+		assertSame( "Expected cached tessellator within tolerance", first, ShapeTools.createTessellator( createShape( 1.0e-8 ), 0.1, cache ) );
+		assertEquals( "Unexpected hits", 2L, cache.getHits() );
+		assertEquals( "Unexpected misses", 1L, cache.getMisses() );
+
+		assertNotSame( "Expected new tessellator outside tolerance", first, ShapeTools.createTessellator( createShape( 1.0e-3 ), 0.1, cache ) );
+		assertEquals( "Unexpected hits", 2L, cache.getHits() );
+		assertEquals( "Unexpected misses", 2L, cache.getMisses() );
+		assertEquals( "Unexpected size", 2, cache.getSize() );
+
+		final Shape evenOdd = createShape( 0.0 );
+		( (Path2D)evenOdd ).setWindingRule( Path2D.WIND_EVEN_ODD );
+		assertNotSame( "Expected new tessellator for other winding rule", first, ShapeTools.createTessellator( evenOdd, 0.1, cache ) );
+		assertEquals( "Unexpected misses", 3L, cache.getMisses() );
+
+		cache.resetStatistics();
+		assertEquals( "Unexpected hits", 0L, cache.getHits() );
+		assertEquals( "Unexpected misses", 0L, cache.getMisses() );
+	}
+
+	/**
+	 * Test least-recently-used eviction.
+	 */
+	public void testEviction()
+	{
+		System.out.println( CLASS_NAME + ".testEviction" );
+
+		final TessellatorCache cache = new TessellatorCache( 2, 0.0 );
+		final List<List<Vector2D>> square = Collections.singletonList( Arrays.asList( new Vector2D( 0.0, 0.0 ), new Vector2D( 1.0, 0.0 ), new Vector2D( 1.0, 1.0 ), new Vector2D( 0.0, 1.0 ) ) );
+		final List<List<Vector2D>> triangle = Collections.singletonList( Arrays.asList( new Vector2D( 0.0, 0.0 ), new Vector2D( 1.0, 0.0 ), new Vector2D( 0.0, 1.0 ) ) );
+		final List<List<Vector2D>> other = Collections.singletonList( Arrays.asList( new Vector2D( 0.0, 0.0 ), new Vector2D( 2.0, 0.0 ), new Vector2D( 0.0, 2.0 ) ) );
+
+		final Tessellator squareTessellator = cache.getTessellator( Mesh.WindingRule.NONZERO, square );
+		final Tessellator triangleTessellator = cache.getTessellator( Mesh.WindingRule.NONZERO, triangle );
+		assertSame( "Expected cached square", squareTessellator, cache.getTessellator( Mesh.WindingRule.NONZERO, square ) );
+
+		cache.getTessellator( Mesh.WindingRule.NONZERO, other );
+		assertEquals( "Unexpected size", 2, cache.getSize() );
+		assertEquals( "Unexpected evictions", 1L, cache.getEvictions() );
+
+		assertSame( "Square should not be evicted", squareTessellator, cache.getTessellator( Mesh.WindingRule.NONZERO, square ) );
+		assertNotSame( "Triangle should be evicted", triangleTessellator, cache.getTessellator( Mesh.WindingRule.NONZERO, triangle ) );
+
+		cache.setMaximumSize( 0 );
+		assertEquals( "Unexpected size", 0, cache.getSize() );
+		assertEquals( "Unexpected evictions", 4L, cache.getEvictions() );
+	}
+
+	/**
+	 * Test tessellation of {@link Contour}s.
+	 */
+	public void testContours()
+	{
+		System.out.println( CLASS_NAME + ".testContours" );
+
+		final Shape shape = createShape( 0.0 );
+		final List<Contour> contours = ShapeTools.createContours( shape, 0.1, true, true );
+
+		final TessellatorCache cache = new TessellatorCache();
+		final Tessellator tessellator = cache.getTessellator( Mesh.WindingRule.ODD, contours );
+		assertFalse( "Expected primitives", tessellator.getCounterClockwisePrimitives().isEmpty() );
+		assertSame( "Expected cached tessellator", tessellator, cache.getTessellator( Mesh.WindingRule.ODD, ShapeTools.createContours( shape, 0.1, true, true ) ) );
+		assertEquals( "Unexpected hits", 1L, cache.getHits() );
+	}
+
+	/**
+	 * Creates a panel profile with a hole.
+	 *
+	 * @param offset Offset added to coordinates.
+	 *
+	 * @return Shape.
+	 */
+	private static Shape createShape( final double offset )
+	{
+		final Path2D.Double result = new Path2D.Double( Path2D.WIND_NON_ZERO );
+		result.moveTo( offset, offset );
+		result.lineTo( 600.0 + offset, offset );
+		result.lineTo( 600.0 + offset, 18.0 + offset );
+		result.quadTo( 300.0 + offset, 40.0 + offset, offset, 18.0 + offset );
+		result.closePath();
+		result.append( new Ellipse2D.Double( 100.0 + offset, 5.0 + offset, 8.0, 8.0 ), false );
+		return result;
+	}
+
+	/**
+	 * Returns the points of an outline.
+	 *
+	 * @param tessellator Tessellator.
+	 * @param outline     Outline.
+	 *
+	 * @return Points of outline.
+	 */
+	private static List<Vector2D> getPoints( final Tessellator tessellator, final int[] outline )
+	{
+		final List<Vector2D> result = new ArrayList<Vector2D>( outline.length );
+		for ( final int index : outline )
+		{
+			result.add( tessellator.getVertexList().get( index ) );
+		}
+		return result;
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom.tessellator;
+
+import java.lang.management.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+
+/**
+ * Compares time and memory allocation of tessellating shapes using a new
+ * {@link Mesh} and {@link Tessellator} for each shape with a reused
+ * {@link TessellatorContext}.
+ *
+ * <p>Allocated memory is measured using the HotSpot-specific
+ * {@link com.sun.management.ThreadMXBean}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TessellatorContextBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [iterations].
+	 */
+	public static void main( final String[] args )
+	{
+		final int iterations = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 20000;
+
+		final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+
+		final Map<String, double[]> shapes = new LinkedHashMap<String, double[]>();
+		final Map<String, int[]> shapeContourEnds = new HashMap<String, int[]>();
+
+		shapes.put( "rectangle", new double[] { 0.0, 0.0, 600.0, 0.0, 600.0, 18.0, 0.0, 18.0 } );
+
+		final double[] circle = createCircle( 0.0, 0.0, 100.0, 64 );
+		shapes.put( "circle (64)", circle );
+
+		final double[] rectangleWithHole = new double[ 8 + 64 ];
+		System.arraycopy( new double[] { 0.0, 0.0, 600.0, 0.0, 600.0, 400.0, 0.0, 400.0 }, 0, rectangleWithHole, 0, 8 );
+		System.arraycopy( createCircle( 300.0, 200.0, 50.0, 32 ), 0, rectangleWithHole, 8, 64 );
+		shapes.put( "rectangle with hole", rectangleWithHole );
+		shapeContourEnds.put( "rectangle with hole", new int[] { 4, 36 } );
+
+		shapes.put( "pentagram", new double[] { 0.0, 10.0, 6.0, -8.0, -9.5, 3.0, 9.5, 3.0, -6.0, -8.0 } );
+
+		final TessellatorContext context = new TessellatorContext();
+		final IntArray triangles = new IntArray();
+		final IntArray outlines = new IntArray();
+		final IntArray outlineEnds = new IntArray();
+		final DoubleArray newVertices = new DoubleArray();
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			for ( final Map.Entry<String, double[]> entry : shapes.entrySet() )
+			{
+				final double[] coordinates = entry.getValue();
+				final int[] contourEnds = shapeContourEnds.get( entry.getKey() );
+
+				int meshTriangles = 0;
+				long startBytes = threadBean.getThreadAllocatedBytes( threadId );
+				long start = System.nanoTime();
+				for ( int i = 0; i < iterations; i++ )
+				{
+					final Tessellator tessellator = createTessellator( coordinates, contourEnds );
+					tessellator.getCounterClockwisePrimitives();
+					meshTriangles += tessellator.getCounterClockwiseTriangles().length;
+					tessellator.getCounterClockwiseOutlines();
+				}
+				final long meshTime = System.nanoTime() - start;
+				final long meshBytes = threadBean.getThreadAllocatedBytes( threadId ) - startBytes;
+
+				int contextTriangles = 0;
+				startBytes = threadBean.getThreadAllocatedBytes( threadId );
+				start = System.nanoTime();
+				for ( int i = 0; i < iterations; i++ )
+				{
+					triangles.clear();
+					outlines.clear();
+					outlineEnds.clear();
+					newVertices.clear();
+					context.tessellate( Mesh.WindingRule.ODD, coordinates, contourEnds, true, triangles, outlines, outlineEnds, newVertices );
+					contextTriangles += triangles.size();
+				}
+				final long contextTime = System.nanoTime() - start;
+				final long contextBytes = threadBean.getThreadAllocatedBytes( threadId ) - startBytes;
+
+				System.out.println( "  " + entry.getKey() + ": mesh " + formatMicros( meshTime / (long)iterations ) + ", " + ( meshBytes / (long)iterations ) + " bytes; context " + formatMicros( contextTime / (long)iterations ) + ", " + ( contextBytes / (long)iterations ) + " bytes (" + ( meshTriangles / iterations / 3 ) + " / " + ( contextTriangles / iterations / 3 ) + " triangles)" );
+			}
+		}
+	}
+
+	/**
+	 * Creates a tessellator for the given shape.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param contourEnds Index of the first point after each contour;
+	 *                    {@code null} if all points form one contour.
+	 *
+	 * @return Tessellator.
+	 */
+	private static Tessellator createTessellator( final double[] coordinates, final int[] contourEnds )
+	{
+		final Mesh mesh = new Mesh( Mesh.WindingRule.ODD );
+		int start = 0;
+		for ( final int end : ( contourEnds != null ) ? contourEnds : new int[] { coordinates.length / 2 } )
+		{
+			mesh.beginContour();
+			for ( int i = start; i < end; i++ )
+			{
+				mesh.addVertex( coordinates[ i * 2 ], coordinates[ i * 2 + 1 ] );
+			}
+			mesh.endContour();
+			start = end;
+		}
+		mesh.finish();
+		return new Tessellator( mesh );
+	}
+
+	/**
+	 * Creates coordinates of a regular polygon approximating a circle.
+	 *
+	 * @param x        X coordinate of center.
+	 * @param y        Y coordinate of center.
+	 * @param radius   Radius of circle.
+	 * @param segments Number of segments.
+	 *
+	 * @return Point coordinates (x,y pairs).
+	 */
+	private static double[] createCircle( final double x, final double y, final double radius, final int segments )
+	{
+		final double[] result = new double[ segments * 2 ];
+		for ( int i = 0; i < segments; i++ )
+		{
+			final double angle = 2.0 * Math.PI * (double)i / (double)segments;
+			result[ i * 2 ] = x + radius * Math.cos( angle );
+			result[ i * 2 + 1 ] = y + radius * Math.sin( angle );
+		}
+		return result;
+	}
+
+	/**
+	 * Formats a duration in microseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMicros( final long nanos )
+	{
+		return String.format( Locale.US, "%.2f us", (double)nanos / 1.0e3 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private TessellatorContextBenchmark()
+	{
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.geom.tessellator;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link TessellatorContext}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestTessellatorContext
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestTessellatorContext.class.getName();
+
+	/**
+	 * Test that results match those of {@link Tessellator}, also when the
+	 * context is reused for different shapes.
+	 */
+	public void testResults()
+	{
+		System.out.println( CLASS_NAME + ".testResults" );
+
+		final List<double[]> shapes = new ArrayList<double[]>();
+		final List<int[]> shapeContourEnds = new ArrayList<int[]>();
+
+		/* rectangle */
+		shapes.add( new double[] { 0.0, 0.0, 100.0, 0.0, 100.0, 50.0, 0.0, 50.0 } );
+		shapeContourEnds.add( null );
+
+		/* rectangle with a triangular hole */
+		shapes.add( new double[] { 0.0, 0.0, 100.0, 0.0, 100.0, 50.0, 0.0, 50.0, 20.0, 10.0, 40.0, 40.0, 60.0, 10.0 } );
+		shapeContourEnds.add( new int[] { 4, 7 } );
+
+		/* self-intersecting bow tie (creates a new vertex) */
+		shapes.add( new double[] { 0.0, 0.0, 10.0, 10.0, 10.0, 0.0, 0.0, 10.0 } );
+		shapeContourEnds.add( null );
+
+		/* pentagram (creates five new vertices) */
+		shapes.add( new double[] { 0.0, 10.0, 6.0, -8.0, -9.5, 3.0, 9.5, 3.0, -6.0, -8.0 } );
+		shapeContourEnds.add( null );
+
+		/* overlapping squares */
+		shapes.add( new double[] { 0.0, 0.0, 20.0, 0.0, 20.0, 20.0, 0.0, 20.0, 10.0, 10.0, 30.0, 10.0, 30.0, 30.0, 10.0, 30.0 } );
+		shapeContourEnds.add( new int[] { 4, 8 } );
+
+		final TessellatorContext context = new TessellatorContext();
+		final IntArray triangles = new IntArray();
+		final IntArray outlines = new IntArray();
+		final IntArray outlineEnds = new IntArray();
+		final DoubleArray newVertices = new DoubleArray();
+
+		for ( int pass = 0; pass < 2; pass++ )
+		{
+			for ( final Mesh.WindingRule windingRule : Arrays.asList( Mesh.WindingRule.ODD, Mesh.WindingRule.NONZERO, Mesh.WindingRule.POSITIVE ) )
+			{
+				for ( final boolean counterClockwise : new boolean[] { true, false } )
+				{
+					for ( int shapeIndex = 0; shapeIndex < shapes.size(); shapeIndex++ )
+					{
+						final double[] coordinates = shapes.get( shapeIndex );
+						final int[] contourEnds = shapeContourEnds.get( shapeIndex );
+						final String where = "pass " + pass + ", shape " + shapeIndex + ", " + windingRule + ", " + ( counterClockwise ? "ccw" : "cw" );
+
+						final Tessellator expected = createTessellator( windingRule, coordinates, contourEnds );
+						final int[] expectedTriangles = counterClockwise ? expected.getCounterClockwiseTriangles() : expected.getClockwiseTriangles();
+						final List<int[]> expectedOutlines = counterClockwise ? expected.getCounterClockwiseOutlines() : expected.getClockwiseOutlines();
+
+						triangles.clear();
+						outlines.clear();
+						outlineEnds.clear();
+						newVertices.clear();
+						context.tessellate( windingRule, coordinates, contourEnds, counterClockwise, triangles, outlines, outlineEnds, newVertices );
+
+						final List<Vector2D> vertices = getVertices( coordinates, newVertices );
+						assertEquals( where + ": triangles", getTriangles( expected.getVertexList(), expectedTriangles ), getTriangles( vertices, triangles.toArray() ) );
+
+						final List<String> actualOutlines = new ArrayList<String>();
+						int start = 0;
+						for ( int i = 0; i < outlineEnds.size(); i++ )
+						{
+							final int end = outlineEnds.get( i );
+							actualOutlines.add( getOutline( vertices, Arrays.copyOfRange( outlines.getData(), start, end ) ) );
+							start = end;
+						}
+						Collections.sort( actualOutlines );
+
+						final List<String> expectedOutlineStrings = new ArrayList<String>();
+						for ( final int[] outline : expectedOutlines )
+						{
+							expectedOutlineStrings.add( getOutline( expected.getVertexList(), outline ) );
+						}
+						Collections.sort( expectedOutlineStrings );
+
+						assertEquals( where + ": outlines", expectedOutlineStrings, actualOutlines );
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that new vertices are numbered after input points and points that
+	 * are already in the list of new vertices.
+	 */
+	public void testNewVertices()
+	{
+		System.out.println( CLASS_NAME + ".testNewVertices" );
+
+		final double[] bowTie = { 0.0, 0.0, 10.0, 10.0, 10.0, 0.0, 0.0, 10.0 };
+
+		final TessellatorContext context = new TessellatorContext();
+		final IntArray triangles = new IntArray();
+		final DoubleArray newVertices = new DoubleArray();
+		newVertices.add( 1.0 );
+		newVertices.add( 2.0 );
+
+		context.triangulate( Mesh.WindingRule.ODD, bowTie, null, true, triangles, newVertices );
+
+		assertEquals( "Unexpected number of triangles", 6, triangles.size() );
+		assertEquals( "Unexpected number of new vertex coordinates", 4, newVertices.size() );
+		assertEquals( "Unexpected X of new vertex", 5.0, newVertices.get( 2 ), 1.0e-9 );
+		assertEquals( "Unexpected Y of new vertex", 5.0, newVertices.get( 3 ), 1.0e-9 );
+
+		for ( int i = 0; i < triangles.size(); i++ )
+		{
+			final int index = triangles.get( i );
+			assertTrue( "Unexpected index " + index, ( index >= 0 && index < 4 ) || ( index == 5 ) );
+		}
+	}
+
+	/**
+	 * Creates a tessellator for the given shape.
+	 *
+	 * @param windingRule Winding rule.
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param contourEnds Index of the first point after each contour.
+	 *
+	 * @return Tessellator with all results.
+	 */
+	private static Tessellator createTessellator( final Mesh.WindingRule windingRule, final double[] coordinates, final int[] contourEnds )
+	{
+		final int[] ends = ( contourEnds != null ) ? contourEnds : new int[] { coordinates.length / 2 };
+
+		final Mesh mesh = new Mesh( windingRule );
+		int start = 0;
+		for ( final int end : ends )
+		{
+			mesh.beginContour();
+			for ( int i = start; i < end; i++ )
+			{
+				mesh.addVertex( coordinates[ i * 2 ], coordinates[ i * 2 + 1 ] );
+			}
+			mesh.endContour();
+			start = end;
+		}
+		mesh.finish();
+
+		final Tessellator result = new Tessellator( mesh );
+		result.getCounterClockwisePrimitives();
+		result.getClockwisePrimitives();
+		result.getCounterClockwiseTriangles();
+		result.getClockwiseTriangles();
+		result.getCounterClockwiseOutlines();
+		result.getClockwiseOutlines();
+		return result;
+	}
+
+	/**
+	 * Returns all vertices referenced by the context results.
+	 *
+	 * @param coordinates Point coordinates (x,y pairs).
+	 * @param newVertices Coordinates of new vertices.
+	 *
+	 * @return Vertices.
+	 */
+	private static List<Vector2D> getVertices( final double[] coordinates, final DoubleArray newVertices )
+	{
+		final List<Vector2D> result = new ArrayList<Vector2D>();
+		for ( int i = 0; i < coordinates.length; i += 2 )
+		{
+			result.add( new Vector2D( coordinates[ i ], coordinates[ i + 1 ] ) );
+		}
+		for ( int i = 0; i < newVertices.size(); i += 2 )
+		{
+			result.add( new Vector2D( newVertices.get( i ), newVertices.get( i + 1 ) ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the triangles as a sorted list of strings, independent of the
+	 * vertex list and of the first vertex of each triangle.
+	 *
+	 * @param vertices  Vertices.
+	 * @param triangles Triangles (vertex indices).
+	 *
+	 * @return Triangles as strings.
+	 */
+	private static List<String> getTriangles( final List<Vector2D> vertices, final int[] triangles )
+	{
+		final List<String> result = new ArrayList<String>( triangles.length / 3 );
+		for ( int i = 0; i < triangles.length; i += 3 )
+		{
+			result.add( getOutline( vertices, new int[] { triangles[ i ], triangles[ i + 1 ], triangles[ i + 2 ], triangles[ i ] } ) );
+		}
+		Collections.sort( result );
+		return result;
+	}
+
+	/**
+	 * Returns a closed outline as string, independent of the vertex list and
+	 * of the first vertex of the outline.
+	 *
+	 * @param vertices Vertices.
+	 * @param outline  Outline (vertex indices, ending with the first vertex).
+	 *
+	 * @return Outline as string.
+	 */
+	private static String getOutline( final List<Vector2D> vertices, final int[] outline )
+	{
+		final int length = outline.length - 1;
+		final String[] points = new String[ length ];
+		for ( int i = 0; i < length; i++ )
+		{
+			points[ i ] = vertices.get( outline[ i ] ).toFriendlyString();
+		}
+
+		String result = null;
+		for ( int first = 0; first < length; first++ )
+		{
+			final StringBuilder sb = new StringBuilder();
+			for ( int i = 0; i < length; i++ )
+			{
+				sb.append( points[ ( first + i ) % length ] );
+			}
+			final String candidate = sb.toString();
+			if ( ( result == null ) || ( candidate.compareTo( result ) < 0 ) )
+			{
+				result = candidate;
+			}
+		}
+		return result;
+	}
+}
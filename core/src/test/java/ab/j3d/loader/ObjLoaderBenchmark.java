@@ -0,0 +1,114 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+
+/**
+ * Compares the performance of {@link ObjLoader}, both sequential and
+ * parallel, with {@link ObjLoaderReference}, which parses OBJ data using
+ * regular expressions and string operations.
+ *
+ * @author Peter S. Heijnen
+ */
+public class ObjLoaderBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [sphere segments] [threads].
+	 *
+	 * @throws Exception if the benchmark fails.
+	 */
+	public static void main( final String[] args )
+	throws Exception
+	{
+		final int segments = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 1000;
+		final int threads = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : Runtime.getRuntime().availableProcessors();
+
+		final String obj = TestObjLoader.createSphere( segments, segments / 2 );
+		System.out.println( "OBJ size: " + ( obj.length() / 1024 / 1024 ) + " MB" );
+
+		final Matrix3D transform = Matrix3D.getTransform( 90.0, 0.0, 0.0, 0.0, 0.0, 0.0 );
+		final ExecutorService executorService = Executors.newFixedThreadPool( threads );
+		try
+		{
+			for ( int pass = 0; pass < 3; pass++ )
+			{
+				System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+				final ObjLoader sequentialLoader = new ObjLoader( transform );
+				System.gc();
+				long start = System.nanoTime();
+				final Object3DBuilder sequentialBuilder = new Object3DBuilder();
+				sequentialLoader.load( sequentialBuilder, TestObjLoader.RESOURCE_LOADER, new BufferedReader( new StringReader( obj ) ) );
+				System.out.println( "  sequential:    " + formatMillis( System.nanoTime() - start ) + " (" + sequentialBuilder.getVertexCount() + " vertices)" );
+
+				final ObjLoader parallelLoader = new ObjLoader( transform );
+				parallelLoader.setExecutorService( executorService );
+				System.gc();
+				start = System.nanoTime();
+				final Object3DBuilder parallelBuilder = new Object3DBuilder();
+				parallelLoader.load( parallelBuilder, TestObjLoader.RESOURCE_LOADER, new BufferedReader( new StringReader( obj ) ) );
+				System.out.println( "  parallel (" + threads + "): " + formatMillis( System.nanoTime() - start ) + " (" + parallelBuilder.getVertexCount() + " vertices)" );
+
+				System.gc();
+				start = System.nanoTime();
+				final Object3DBuilder referenceBuilder = new Object3DBuilder();
+				ObjLoaderReference.load( referenceBuilder, transform, sequentialLoader.getMaterials(), new BufferedReader( new StringReader( obj ) ) );
+				System.out.println( "  reference:     " + formatMillis( System.nanoTime() - start ) + " (" + referenceBuilder.getVertexCount() + " vertices)" );
+
+				System.gc();
+				start = System.nanoTime();
+				final ObjChunk chunk = new ObjChunk( transform );
+				final char[] chars = obj.toCharArray();
+				chunk.parse( chars, 0, chars.length );
+				System.out.println( "  parse only:    " + formatMillis( System.nanoTime() - start ) + " (" + chunk.getFaceCount() + " faces)" );
+			}
+		}
+		finally
+		{
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.1f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private ObjLoaderBenchmark()
+	{
+	}
+}
@@ -0,0 +1,277 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import java.util.regex.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.model.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Reference implementation of {@link ObjLoader}, which parses OBJ data line
+ * by line using regular expressions and string operations. This was how
+ * {@link ObjLoader} used to work; it is used to verify the results and
+ * measure the performance of {@link ObjLoader}.
+ *
+ * <p>
+ * MTL files are not loaded. Materials are resolved using a given map, which
+ * is usually obtained from {@link ObjLoader#getMaterials()}.
+ *
+ * @author Peter S. Heijnen
+ */
+class ObjLoaderReference
+{
+	/**
+	 * Whitespace pattern. This is the field separator in OBJ files.
+	 */
+	private static final Pattern WHITESPACE = Pattern.compile( "\\s+" );
+
+	/**
+	 * Load OBJ data.
+	 *
+	 * @param builder   Builder of resulting 3D object.
+	 * @param transform Transformation to apply.
+	 * @param materials Materials to use.
+	 * @param objReader Reader for OBJ file.
+	 *
+	 * @return Object name defined in OBJ file.
+	 *
+	 * @throws IOException if an error occurred while loading the OBJ file.
+	 */
+	public static String load( @NotNull final Object3DBuilder builder, @NotNull final Matrix3D transform, @NotNull final Map<String, Appearance> materials, @NotNull final BufferedReader objReader )
+	throws IOException
+	{
+		final List<Vector3D> vertexCoordinates = new ArrayList<Vector3D>();
+		final List<Vector3f> textureVertices = new ArrayList<Vector3f>();
+		final List<Vector3D> vertexNormals = new ArrayList<Vector3D>();
+		final List<int[]> faces = new ArrayList<int[]>();
+		final List<Appearance> faceAppearances = new ArrayList<Appearance>();
+
+		Appearance material = ObjLoader.DEFAULT_MATERIALS.get( "default" );
+		String objectName = null;
+
+		String line;
+		while ( ( line = readLine( objReader ) ) != null )
+		{
+			if ( !line.isEmpty() )
+			{
+				final String[] tokens = WHITESPACE.split( line.trim(), 0 );
+				final String name = tokens[ 0 ];
+				final int argCount = tokens.length - 1;
+
+				try
+				{
+					if ( "v".equals( name ) )
+					{
+						if ( argCount < 3 )
+						{
+							throw new IOException( "malformed vertex entry: " + line );
+						}
+						vertexCoordinates.add( transform.transform( Double.parseDouble( tokens[ 1 ] ), Double.parseDouble( tokens[ 2 ] ), Double.parseDouble( tokens[ 3 ] ) ) );
+					}
+					else if ( "vt".equals( name ) )
+					{
+						if ( argCount < 2 )
+						{
+							throw new IOException( "malformed texture vertex entry: " + line );
+						}
+						final float u = Float.parseFloat( tokens[ 1 ] );
+						final float v = Float.parseFloat( tokens[ 2 ] );
+						final float w = ( argCount >= 3 ) ? Float.parseFloat( tokens[ 3 ] ) : 0.0f;
+						textureVertices.add( new Vector3f( u, v, w ) );
+					}
+					else if ( "vn".equals( name ) )
+					{
+						if ( argCount < 3 )
+						{
+							throw new IOException( "malformed vertex normal entry: " + line );
+						}
+						vertexNormals.add( transform.rotate( Double.parseDouble( tokens[ 1 ] ), Double.parseDouble( tokens[ 2 ] ), Double.parseDouble( tokens[ 3 ] ) ) );
+					}
+					else if ( "p".equals( name ) || "l".equals( name ) || "f".equals( name ) )
+					{
+						if ( argCount < 1 )
+						{
+							throw new IOException( "too few face arguments in: " + line );
+						}
+
+						if ( vertexCoordinates.isEmpty() )
+						{
+							throw new IOException( "vertex used before vertex declaration" );
+						}
+
+						final int[] face = new int[ argCount * 3 ];
+						for ( int argIndex = 1; argIndex <= argCount; argIndex++ )
+						{
+							final Matcher matcher = ObjLoader.POLYGON_VERTEX_PATTERN.matcher( tokens[ argIndex ] );
+							if ( !matcher.matches() )
+							{
+								throw new IOException( "malformed face argument in: " + line );
+							}
+
+							face[ argIndex * 3 - 3 ] = Integer.parseInt( matcher.group( 1 ) ) - 1;
+							face[ argIndex * 3 - 2 ] = ( matcher.group( 3 ) != null ) ? Integer.parseInt( matcher.group( 3 ) ) - 1 : -1;
+							face[ argIndex * 3 - 1 ] = ( matcher.group( 5 ) != null ) ? Integer.parseInt( matcher.group( 5 ) ) - 1 : -1;
+						}
+
+						faces.add( face );
+						faceAppearances.add( material );
+					}
+					else if ( "mtllib".equals( name ) )
+					{
+						if ( argCount < 1 )
+						{
+							throw new IOException( "too few material library arguments in: " + line );
+						}
+					}
+					else if ( "o".equals( name ) )
+					{
+						objectName = ObjLoader.getStringAfter( line, tokens, 1 );
+					}
+					else if ( "usemtl".equals( name ) )
+					{
+						String materialName = "";
+						if ( argCount >= 1 )
+						{
+							materialName = ObjLoader.getStringAfter( line, tokens, 1 ).replace( ' ', '_' );
+						}
+
+						material = materials.get( materialName );
+						if ( material == null )
+						{
+							material = ObjLoader.DEFAULT_MATERIALS.get( materialName );
+						}
+						if ( material == null )
+						{
+							throw new AssertionError( "unknown material: " + materialName );
+						}
+					}
+				}
+				catch ( final NumberFormatException ignored )
+				{
+					throw new IOException( "malformed numeric value: " + line );
+				}
+			}
+		}
+
+		builder.setVertexCoordinates( vertexCoordinates );
+
+		for ( int faceIndex = 0; faceIndex < faces.size(); faceIndex++ )
+		{
+			final int[] face = faces.get( faceIndex );
+			final int faceVertexCount = face.length / 3;
+			final List<Vertex3D> vertices = new ArrayList<Vertex3D>( faceVertexCount );
+
+			boolean smooth = false;
+			Vector3D fixedVertexNormal = null;
+
+			for ( int faceVertexIndex = faceVertexCount; --faceVertexIndex >= 0; )
+			{
+				final int vertexIndex = face[ faceVertexIndex * 3 ];
+				if ( vertexIndex >= vertexCoordinates.size() )
+				{
+					throw new IOException( "out-of-bounds vertex (" + vertexIndex + " >= " + vertexCoordinates.size() + ')' );
+				}
+
+				final Vertex3D vertex = new Vertex3D( vertexCoordinates.get( vertexIndex ), vertexIndex );
+				vertices.add( vertex );
+
+				final int textureVertexIndex = face[ faceVertexIndex * 3 + 1 ];
+				if ( textureVertexIndex >= 0 )
+				{
+					if ( textureVertexIndex >= textureVertices.size() )
+					{
+						throw new IOException( "out-of-bounds texture vertex (" + textureVertexIndex + " >= " + textureVertices.size() + ')' );
+					}
+
+					final Vector3f texturePoint = textureVertices.get( textureVertexIndex );
+					vertex.colorMapU = texturePoint.getX();
+					vertex.colorMapV = texturePoint.getY();
+				}
+
+				final int vertexNormalIndex = face[ faceVertexIndex * 3 + 2 ];
+				if ( vertexNormalIndex >= 0 )
+				{
+					if ( vertexNormalIndex >= vertexNormals.size() )
+					{
+						throw new IOException( "out-of-bounds vertex normal (" + vertexNormalIndex + " >= " + vertexNormals.size() + ')' );
+					}
+
+					final Vector3D vertexNormal = vertexNormals.get( vertexNormalIndex );
+					if ( fixedVertexNormal == null )
+					{
+						fixedVertexNormal = vertexNormal;
+					}
+					else
+					{
+						smooth |= !fixedVertexNormal.equals( vertexNormal );
+					}
+					vertex.setNormal( vertexNormal );
+				}
+			}
+
+			builder.addFace( vertices, null, faceAppearances.get( faceIndex ), smooth, false );
+		}
+
+		return objectName;
+	}
+
+	/**
+	 * Reads line from OBJ file. Comments are removed, continued lines are
+	 * joined, and whitespace is normalized.
+	 *
+	 * @param bufferedReader Reader to read from.
+	 *
+	 * @return Next line; {@code null} on EOF.
+	 *
+	 * @throws IOException if next line could not be read.
+	 */
+	private static String readLine( final BufferedReader bufferedReader )
+	throws IOException
+	{
+		String line = bufferedReader.readLine();
+		if ( line != null )
+		{
+			final int hash = line.indexOf( (int)'#' );
+			if ( hash >= 0 )
+			{
+				line = line.substring( 0, hash );
+			}
+			line = line.trim();
+			while ( !line.isEmpty() && ( line.charAt( line.length() - 1 ) == '\\' ) )
+			{
+				line = MessageFormat.format( "{0} {1}", line.substring( 0, line.length() - 1 ), bufferedReader.readLine() );
+			}
+			line = line.replaceAll( "\\s+", " " );
+		}
+		return line;
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private ObjLoaderReference()
+	{
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.model.*;
+
+/**
+ * Compares the default mode of {@link ObjWriter} with its streaming mode.
+ *
+ * @author Peter S. Heijnen
+ */
+public class ObjWriterBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [object count] [sphere segments].
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static void main( final String[] args )
+	throws IOException
+	{
+		final int objectCount = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 100;
+		final int segments = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 64;
+
+		final Object3D sphere = new Sphere3D( 100.0, segments * 2, segments, BasicAppearances.ALU_PLATE );
+		sphere.smooth( 45.0, 0.0, false );
+
+		final Node3D scene = new Node3D();
+		for ( int i = 0; i < objectCount; i++ )
+		{
+			scene.addChild( new Transform3D( Matrix3D.getTransform( 0.0, 0.0, (double)i, 250.0 * (double)( i % 20 ), 250.0 * (double)( i / 20 ), 0.0 ), sphere ) );
+		}
+
+		final Path file = Files.createTempFile( "ObjWriterBenchmark", ".obj" );
+		try
+		{
+			for ( int pass = 0; pass < 3; pass++ )
+			{
+				System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+				long start = System.nanoTime();
+				try ( final OutputStream out = Files.newOutputStream( file ) )
+				{
+					new ObjWriter( null ).write( out, scene );
+				}
+				System.out.println( "  default:   " + formatMillis( System.nanoTime() - start ) + " (" + Files.size( file ) + " bytes)" );
+
+				start = System.nanoTime();
+				final ObjWriter streamingWriter = new ObjWriter( null );
+				streamingWriter.setStreaming( true );
+				streamingWriter.write( file, scene );
+				System.out.println( "  streaming: " + formatMillis( System.nanoTime() - start ) + " (" + Files.size( file ) + " bytes)" );
+			}
+		}
+		finally
+		{
+			Files.delete( file );
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private ObjWriterBenchmark()
+	{
+	}
+}
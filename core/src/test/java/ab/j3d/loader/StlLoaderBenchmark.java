@@ -0,0 +1,231 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import ab.j3d.model.*;
+
+/**
+ * Compares the performance of the binary {@link StlLoader} with the previous
+ * implementation, which read the file one value at a time and added each
+ * triangle using {@link Object3DBuilder#addFace(Vector3D[], ab.j3d.appearance.Appearance, UVMap, Vector3D[], boolean, boolean, boolean)}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class StlLoaderBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [sphere segments].
+	 *
+	 * @throws Exception if the benchmark fails.
+	 */
+	public static void main( final String[] args )
+	throws Exception
+	{
+		final int segments = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 1000;
+
+		final List<Vector3D[]> triangles = new ArrayList<Vector3D[]>();
+		final Object3D sphere = new Sphere3D( 100.0, segments, segments / 2, null );
+		for ( final FaceGroup faceGroup : sphere.getFaceGroups() )
+		{
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+				{
+					final int[] vertices = primitive.getTriangles();
+					for ( int i = 0; i < vertices.length; i += 3 )
+					{
+						triangles.add( new Vector3D[] { face.getVertex( vertices[ i ] ).point, face.getVertex( vertices[ i + 1 ] ).point, face.getVertex( vertices[ i + 2 ] ).point } );
+					}
+				}
+			}
+		}
+
+		final byte[] stl = TestStlLoader.createBinaryStl( "benchmark", triangles, triangles.size() );
+		System.out.println( "Triangles: " + triangles.size() + " (" + ( stl.length / 1024 / 1024 ) + " MB)" );
+
+		final File file = File.createTempFile( StlLoaderBenchmark.class.getName(), ".stl" );
+		file.deleteOnExit();
+		final OutputStream out = new FileOutputStream( file );
+		try
+		{
+			out.write( stl );
+		}
+		finally
+		{
+			out.close();
+		}
+
+		final Matrix3D transform = Matrix3D.getTransform( 90.0, 0.0, 0.0, 0.0, 0.0, 0.0 );
+		final StlLoader loader = new StlLoader();
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			System.gc();
+			long start = System.nanoTime();
+			final Object3DBuilder legacyBuilder = new Object3DBuilder();
+			final InputStream legacyIn = new BufferedInputStream( new FileInputStream( file ) );
+			try
+			{
+				loadBinaryLegacy( legacyBuilder, transform, legacyIn );
+			}
+			finally
+			{
+				legacyIn.close();
+			}
+			System.out.println( "  legacy:        " + formatMillis( System.nanoTime() - start ) + " (" + legacyBuilder.getVertexCount() + " vertices)" );
+
+			System.gc();
+			start = System.nanoTime();
+			final Object3DBuilder streamBuilder = new Object3DBuilder();
+			final InputStream streamIn = new FileInputStream( file );
+			try
+			{
+				loader.load( streamBuilder, transform, streamIn );
+			}
+			finally
+			{
+				streamIn.close();
+			}
+			System.out.println( "  stream:        " + formatMillis( System.nanoTime() - start ) + " (" + streamBuilder.getVertexCount() + " vertices)" );
+
+			System.gc();
+			start = System.nanoTime();
+			final Object3D mapped = loader.load( transform, file );
+			System.out.println( "  memory-mapped: " + formatMillis( System.nanoTime() - start ) + " (" + mapped.getVertexCount() + " vertices)" );
+		}
+	}
+
+	/**
+	 * Previous implementation of {@link StlLoader#loadBinary(Object3DBuilder, Matrix3D, InputStream)}.
+	 *
+	 * @param builder   Builder of resulting 3D object.
+	 * @param transform Transformation to apply.
+	 * @param in        Stream to read STL file from.
+	 *
+	 * @throws IOException if an error occured while loading the STL file.
+	 */
+	private static void loadBinaryLegacy( final Object3DBuilder builder, final Matrix3D transform, final InputStream in )
+	throws IOException
+	{
+		final byte[] header = new byte[ 80 ];
+		for ( int headerOffset = 0; headerOffset < header.length; )
+		{
+			final int readNow = in.read( header, headerOffset, header.length - headerOffset );
+			if ( readNow < 0 )
+			{
+				throw new EOFException();
+			}
+
+			headerOffset += readNow;
+		}
+
+		final Vector3D[] points = new Vector3D[ 3 ];
+		final Vector3D[] normals = new Vector3D[ 3 ];
+
+		final long numberOfTriangles = (long)readInt32( in ) & 0xffffffffL;
+		for ( long i = 0L; i < numberOfTriangles; i++ )
+		{
+			Vector3D normal = transform.rotate( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
+			if ( !normal.isNonZero() )
+			{
+				normal = null;
+			}
+			normals[ 0 ] = normal;
+			normals[ 1 ] = normal;
+			normals[ 2 ] = normal;
+
+			points[ 0 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
+			points[ 2 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
+			points[ 1 ] = transform.transform( readFloat32( in ), readFloat32( in ), readFloat32( in ) );
+
+			in.read();
+			in.read();
+
+			builder.addFace( points, null, null, normals, false, false, false );
+		}
+	}
+
+	/**
+	 * Read 32-bit integer from stream, one byte at a time.
+	 *
+	 * @param in Stream to read from.
+	 *
+	 * @return Value that was read.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private static int readInt32( final InputStream in )
+	throws IOException
+	{
+		final int ch1 = in.read();
+		final int ch2 = in.read();
+		final int ch3 = in.read();
+		final int ch4 = in.read();
+
+		if ( ( ch1 | ch2 | ch3 | ch4 ) < 0 )
+		{
+			throw new EOFException();
+		}
+
+		return ( ch4 << 24 ) + ( ch3 << 16 ) + ( ch2 << 8 ) + ch1;
+	}
+
+	/**
+	 * Read 32-bit floating-point value from stream, one byte at a time.
+	 *
+	 * @param in Stream to read from.
+	 *
+	 * @return Value that was read.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private static double readFloat32( final InputStream in )
+	throws IOException
+	{
+		return (double)Float.intBitsToFloat( readInt32( in ) );
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.1f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private StlLoaderBenchmark()
+	{
+	}
+}
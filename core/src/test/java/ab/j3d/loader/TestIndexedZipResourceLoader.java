@@ -0,0 +1,210 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import junit.framework.*;
+
+/**
+ * This class tests the {@link IndexedZipResourceLoader} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestIndexedZipResourceLoader
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestIndexedZipResourceLoader.class.getName();
+
+	/**
+	 * Test that resources are loaded with the same contents as
+	 * {@link ZipResourceLoader}, from both data and URL.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	public void testGetResourceAsStream()
+	throws IOException
+	{
+		System.out.println( CLASS_NAME + ".testGetResourceAsStream" );
+
+		final List<String> names = new ArrayList<String>();
+		final byte[] zipData = createZip( names );
+
+		final Path file = Files.createTempFile( CLASS_NAME, ".zip" );
+		try
+		{
+			Files.write( file, zipData );
+
+			final ResourceLoader reference = new ZipResourceLoader( zipData );
+			final IndexedZipResourceLoader dataLoader = new IndexedZipResourceLoader( zipData );
+			final IndexedZipResourceLoader urlLoader = new IndexedZipResourceLoader( file.toUri().toURL() );
+
+			assertEquals( "Unexpected entry names.", new HashSet<String>( names ), dataLoader.getEntryNames() );
+
+			for ( int pass = 0; pass < 2; pass++ )
+			{
+				for ( final String name : names )
+				{
+					final byte[] expected = readFully( reference.getResourceAsStream( name ) );
+					assertTrue( "Unexpected contents of '" + name + "' from data.", Arrays.equals( expected, readFully( dataLoader.getResourceAsStream( name ) ) ) );
+					assertTrue( "Unexpected contents of '" + name + "' from URL.", Arrays.equals( expected, readFully( urlLoader.getResourceAsStream( name ) ) ) );
+				}
+			}
+
+			assertNull( "Missing entry should not be found.", dataLoader.getResourceAsStream( "missing.txt" ) );
+			assertNull( "Data loader has no URL.", dataLoader.getResource( "model.obj" ) );
+			assertEquals( "Unexpected resource URL.", "jar:" + file.toUri().toURL() + "!/model.obj", String.valueOf( urlLoader.getResource( "model.obj" ) ) );
+		}
+		finally
+		{
+			try
+			{
+				Files.delete( file );
+			}
+			catch ( final IOException ignored )
+			{
+				// Mapped files can't be deleted on some platforms.
+			}
+		}
+
+		assertNull( "Empty data should have no entries.", new IndexedZipResourceLoader( new byte[ 0 ] ).getResourceAsStream( "model.obj" ) );
+	}
+
+	/**
+	 * Test that the cache of inflated entries is bounded by size and evicts
+	 * the least-recently used entries.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	public void testCache()
+	throws IOException
+	{
+		System.out.println( CLASS_NAME + ".testCache" );
+
+		final ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		try ( final ZipOutputStream out = new ZipOutputStream( zip ) )
+		{
+			for ( int i = 0; i < 4; i++ )
+			{
+				out.putNextEntry( new ZipEntry( "entry" + i ) );
+				out.write( new byte[ 1000 ] );
+				out.closeEntry();
+			}
+
+			out.putNextEntry( new ZipEntry( "large" ) );
+			out.write( new byte[ 5000 ] );
+			out.closeEntry();
+		}
+
+		final IndexedZipResourceLoader loader = new IndexedZipResourceLoader( null, ByteBuffer.wrap( zip.toByteArray() ), 2500L );
+		assertEquals( "Unexpected initial cache size.", 0L, loader.getCacheSize() );
+
+		assertEquals( "Unexpected entry size.", 1000, readFully( loader.getResourceAsStream( "entry0" ) ).length );
+		assertEquals( "Unexpected cache size.", 1000L, loader.getCacheSize() );
+
+		assertEquals( "Unexpected entry size.", 1000, readFully( loader.getResourceAsStream( "entry1" ) ).length );
+		assertEquals( "Unexpected cache size.", 2000L, loader.getCacheSize() );
+
+		/* Touch 'entry0', so 'entry1' is evicted next. */
+		readFully( loader.getResourceAsStream( "entry0" ) );
+		assertEquals( "Unexpected cache size.", 2000L, loader.getCacheSize() );
+
+		readFully( loader.getResourceAsStream( "entry2" ) );
+		assertEquals( "Unexpected cache size.", 2000L, loader.getCacheSize() );
+
+		assertEquals( "Entry larger than cache should be loaded.", 5000, readFully( loader.getResourceAsStream( "large" ) ).length );
+		assertEquals( "Entry larger than cache should not be cached.", 2000L, loader.getCacheSize() );
+
+		loader.clearCache();
+		assertEquals( "Unexpected cache size after clear.", 0L, loader.getCacheSize() );
+	}
+
+	/**
+	 * Creates a ZIP file with stored and compressed entries.
+	 *
+	 * @param names Receives the names of the entries.
+	 *
+	 * @return ZIP file contents.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private static byte[] createZip( final List<String> names )
+	throws IOException
+	{
+		final Random random = new Random( 42L );
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+		try ( final ZipOutputStream out = new ZipOutputStream( result ) )
+		{
+			out.setComment( "Archive comment" );
+
+			ZipResourceLoaderBenchmark.addEntry( out, "model.obj", "v 0 0 0\nv 1 0 0\nv 0 1 0\nf 1 2 3\n".getBytes( "US-ASCII" ), true, names );
+			ZipResourceLoaderBenchmark.addEntry( out, "empty.txt", new byte[ 0 ], true, names );
+			ZipResourceLoaderBenchmark.addEntry( out, "stored-empty.txt", new byte[ 0 ], false, names );
+			ZipResourceLoaderBenchmark.addEntry( out, "textures/\u00e9t\u00e9.png", new byte[] { 1, 2, 3 }, false, names );
+
+			for ( int i = 0; i < 10; i++ )
+			{
+				final byte[] data = new byte[ 1000 * i + 1 ];
+				random.nextBytes( data );
+				Arrays.fill( data, 0, data.length / 2, (byte)i );
+				ZipResourceLoaderBenchmark.addEntry( out, "textures/texture" + i + ".png", data, ( i % 2 ) == 0, names );
+			}
+		}
+
+		return result.toByteArray();
+	}
+
+	/**
+	 * Reads all data from the given stream and closes it.
+	 *
+	 * @param in Stream to read.
+	 *
+	 * @return Data that was read.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private static byte[] readFully( final InputStream in )
+	throws IOException
+	{
+		assertNotNull( "Resource not found.", in );
+
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try
+		{
+			final byte[] buffer = new byte[ 1024 ];
+			for ( int length = in.read( buffer ); length >= 0; length = in.read( buffer ) )
+			{
+				result.write( buffer, 0, length );
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		return result.toByteArray();
+	}
+}
@@ -0,0 +1,483 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.model.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link ObjLoader}. Results are compared with those of
+ * {@link ObjLoaderReference}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestObjLoader
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestObjLoader.class.getName();
+
+	/**
+	 * Contents of MTL file used by the tests.
+	 */
+	private static final String MTL = "newmtl brick\nKd 0.8 0.2 0.1\n\nnewmtl glass pane\nKd 0.9 0.9 1.0\nd 0.2\n";
+
+	/**
+	 * Resource loader that provides the MTL file used by the tests.
+	 */
+	static final ResourceLoader RESOURCE_LOADER = new ResourceLoader()
+	{
+		@Override
+		public URL getResource( final String path )
+		{
+			return null;
+		}
+
+		@Override
+		public InputStream getResourceAsStream( final String path )
+		{
+			return "test.mtl".equals( path ) ? new ByteArrayInputStream( MTL.getBytes() ) : null;
+		}
+	};
+
+	/**
+	 * OBJ file with a bit of everything.
+	 */
+	private static final String CUBE =
+		"# Test cube\n" +
+		"mtllib test.mtl\n" +
+		"o  test  cube \n" +
+		"v -1.0 -1.0 -1.0\n" +
+		"v 1.0\t-1.0 -1.0   # comment\n" +
+		"v  1 1 -1\n" +
+		"v -1.0e0 1.0E0 -1.\n" +
+		"v -1 -1 1 1.0\n" +
+		"v +1 -1 1\n" +
+		"v 1 1 .1e1\n" +
+		"v -1 1 1\n" +
+		"\n" +
+		"vt 0.0 0.0\n" +
+		"vt 1.0 0.0 0.0\n" +
+		"vt 1 1\n" +
+		"vt 0.0 1.0 0.5\n" +
+		"vn 0 0 -1\n" +
+		"vn 0 0 1\n" +
+		"vn 0.5773502691896258 0.5773502691896258 0.5773502691896258\n" +
+		"g cube\n" +
+		"usemtl brick\n" +
+		"f 1/1/1 4/4/1 3/3/1 2/2/1\n" +
+		"f 5/1/2 6/2/2 7/3/3 8/4/2\n" +
+		"usemtl glass pane\n" +
+		"f 1//1 2//1 6//2 5//2\n" +
+		"f 2/1 3/2 7/3 6/4\n" +
+		"usemtl red\n" +
+		"f 3 4 8 7\n" +
+		"usemtl unknown\n" +
+		"f 4 1 5 8\n" +
+		"usemtl\n" +
+		"p 1\n" +
+		"l 1/1 2/2\n" +
+		"s off\n" +
+		"f 1 2 3 # end of file";
+
+	/**
+	 * Tests loading OBJ data with different kinds of statements.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testLoad()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testLoad" );
+
+		final Object3DBuilder builder = new Object3DBuilder();
+		final ObjLoader loader = new ObjLoader( Matrix3D.IDENTITY );
+		assertEquals( "Unexpected object name.", "test cube", loader.load( builder, RESOURCE_LOADER, new BufferedReader( new StringReader( CUBE ) ) ) );
+
+		final Object3D object = builder.getObject3D();
+		assertEquals( "Unexpected vertex count.", 8, object.getVertexCoordinates().size() );
+		assertTrue( "Material from MTL file should be loaded.", loader.getMaterials().containsKey( "glass_pane" ) );
+		assertTrue( "Unknown material should be added.", loader.getMaterials().containsKey( "unknown" ) );
+
+		int faceCount = 0;
+		for ( final FaceGroup faceGroup : object.getFaceGroups() )
+		{
+			faceCount += faceGroup.getFaces().size();
+		}
+		assertEquals( "Unexpected face count.", 9, faceCount );
+
+		assertEquivalent( "cube", CUBE, Matrix3D.getTransform( 10.0, 20.0, 30.0, 1.0, 2.0, 3.0 ) );
+	}
+
+	/**
+	 * Tests different line terminators and continued lines.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testLines()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testLines" );
+
+		assertEquivalent( "CR+LF", CUBE.replace( "\n", "\r\n" ), Matrix3D.IDENTITY );
+		assertEquivalent( "CR", CUBE.replace( "\n", "\r" ), Matrix3D.IDENTITY );
+		assertEquivalent( "continued", "v 0 0 0\nv 1 0 \\\n 0\nv \\ # comment\n1 1 0 # 1 2\n\\\nv 0 1 0\nf 1 2 \\\r\n3 \\\r4\n\\\n", Matrix3D.IDENTITY );
+		assertEquivalent( "continued at end", "v 0 0 0\nv 1 0 0\nv 1 1 0\nf 1 2 3 \\", Matrix3D.IDENTITY );
+		assertEquivalent( "empty", "", Matrix3D.IDENTITY );
+		assertEquivalent( "whitespace", " \t\n\f\r\n \u000B", Matrix3D.IDENTITY );
+	}
+
+	/**
+	 * Tests that malformed OBJ data results in the same errors.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testErrors()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testErrors" );
+
+		final String[] statements =
+		{
+			"v 1 2",
+			"v 1 x 3",
+			"v 1 2 3e",
+			"vt 1",
+			"vt 1 2 -",
+			"vn 1 2",
+			"f",
+			"f 1 2 x",
+			"f 1 2/ 3",
+			"f 1 2// 3",
+			"f 1 2/3/ 3",
+			"f 1 2 99999999999",
+			"f 1 2 10",
+			"f 1/5 2 3",
+			"f 1//5 2 3",
+			"mtllib",
+			"o",
+		};
+
+		final String vertices = "v 0 0 0\nv 1 0 0\nv 1 1 0\nvt 0 0\nvn 0 0 1\n";
+
+		for ( final String statement : statements )
+		{
+			assertEquivalent( statement, vertices + statement + '\n' + vertices, Matrix3D.IDENTITY );
+		}
+
+		assertEquivalent( "vertex used before vertex declaration", "f 1 2 3\n" + vertices, Matrix3D.IDENTITY );
+		assertEquivalent( "vertex used before vertex declaration", "usemtl\nf 1 2 x\n" + vertices, Matrix3D.IDENTITY );
+	}
+
+	/**
+	 * Tests loading a large OBJ file, which is split into many chunks.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testLarge()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testLarge" );
+
+		final String obj = createSphere( 32, 16 );
+		assertEquivalent( "sphere", obj, Matrix3D.getTransform( 0.0, 0.0, 45.0, 10.0, 0.0, 0.0 ) );
+	}
+
+	/**
+	 * Tests parsing numbers.
+	 */
+	public void testParseNumbers()
+	{
+		System.out.println( CLASS_NAME + ".testParseNumbers" );
+
+		final List<String> numbers = new ArrayList<String>( Arrays.asList( "0", "-0", "-0.0", "+0.5", "1.", ".5", "1e3", "1E-3", "-1.5e+2", "0.1", "0.3",
+		                                                                   "3.14159265358979323846", "123456789012345678901234", "9007199254740993",
+		                                                                   "16777217", "1e-30", "1e30", "1e400", "1e-400", "0.000000000000000000000001234",
+		                                                                   "1000000000000000000000000000000000000000", "Infinity", "1f", "0x1p3" ) );
+
+		final Random random = new Random( 0L );
+		for ( int i = 0; i < 10000; i++ )
+		{
+			final double value = ( random.nextDouble() - 0.5 ) * Math.pow( 10.0, (double)( random.nextInt( 20 ) - 10 ) );
+			numbers.add( String.valueOf( value ) );
+			numbers.add( String.valueOf( (float)value ) );
+			numbers.add( String.format( Locale.US, "%." + random.nextInt( 10 ) + 'f', value ) );
+			numbers.add( String.format( Locale.US, "%." + random.nextInt( 10 ) + 'e', value ) );
+		}
+
+		for ( final String number : numbers )
+		{
+			final char[] chars = ( ' ' + number + ' ' ).toCharArray();
+			assertEquals( number, Double.doubleToLongBits( Double.parseDouble( number ) ), Double.doubleToLongBits( ObjChunk.parseDouble( chars, 1, chars.length - 1 ) ) );
+			assertEquals( number, Float.floatToIntBits( Float.parseFloat( number ) ), Float.floatToIntBits( ObjChunk.parseFloat( chars, 1, chars.length - 1 ) ) );
+		}
+
+		for ( final String number : Arrays.asList( "", "-", ".", "1e", "1e+", "1.2.3", "x", "1-" ) )
+		{
+			final char[] chars = number.toCharArray();
+			try
+			{
+				ObjChunk.parseDouble( chars, 0, chars.length );
+				fail( "Expected 'NumberFormatException' for '" + number + '\'' );
+			}
+			catch ( final NumberFormatException e )
+			{
+				/* expected */
+			}
+		}
+	}
+
+	/**
+	 * Creates an OBJ file for a sphere, with texture coordinates, normals,
+	 * and alternating materials.
+	 *
+	 * @param segments Number of segments around the Z-axis.
+	 * @param rings    Number of rings from pole to pole.
+	 *
+	 * @return OBJ file contents.
+	 */
+	static String createSphere( final int segments, final int rings )
+	{
+		final StringBuilder sb = new StringBuilder();
+		sb.append( "mtllib test.mtl\n" );
+		sb.append( "o sphere\n" );
+
+		for ( int ring = 0; ring <= rings; ring++ )
+		{
+			final double phi = Math.PI * (double)ring / (double)rings;
+			for ( int segment = 0; segment < segments; segment++ )
+			{
+				final double theta = 2.0 * Math.PI * (double)segment / (double)segments;
+				final double x = Math.sin( phi ) * Math.cos( theta );
+				final double y = Math.sin( phi ) * Math.sin( theta );
+				final double z = Math.cos( phi );
+				sb.append( "v " ).append( x * 100.0 ).append( ' ' ).append( y * 100.0 ).append( ' ' ).append( z * 100.0 ).append( '\n' );
+				sb.append( "vn " ).append( (float)x ).append( ' ' ).append( (float)y ).append( ' ' ).append( (float)z ).append( '\n' );
+				sb.append( String.format( Locale.US, "vt %.6f %.6f\n", (double)segment / (double)segments, (double)ring / (double)rings ) );
+			}
+		}
+
+		for ( int ring = 0; ring < rings; ring++ )
+		{
+			sb.append( ( ( ring % 2 ) == 0 ) ? "usemtl brick\n" : "usemtl glass pane\n" );
+
+			for ( int segment = 0; segment < segments; segment++ )
+			{
+				final int v1 = ring * segments + segment + 1;
+				final int v2 = ring * segments + ( segment + 1 ) % segments + 1;
+				final int v3 = v2 + segments;
+				final int v4 = v1 + segments;
+				sb.append( "f " ).append( v1 ).append( '/' ).append( v1 ).append( '/' ).append( v1 );
+				sb.append( ' ' ).append( v2 ).append( '/' ).append( v2 ).append( '/' ).append( v2 );
+				sb.append( ' ' ).append( v3 ).append( '/' ).append( v3 ).append( '/' ).append( v3 );
+				sb.append( ' ' ).append( v4 ).append( '/' ).append( v4 ).append( '/' ).append( v4 ).append( '\n' );
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Asserts that {@link ObjLoader} produces the same result as
+	 * {@link ObjLoaderReference}, using different chunk sizes, both
+	 * sequentially and in parallel.
+	 *
+	 * @param message   Message to include with assertion failures.
+	 * @param obj       OBJ file contents.
+	 * @param transform Transformation to apply.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	private static void assertEquivalent( final String message, final String obj, final Matrix3D transform )
+	throws Exception
+	{
+		final ExecutorService executorService = Executors.newFixedThreadPool( 3 );
+		try
+		{
+			for ( final int chunkSize : new int[] { 1, 2, 3, 7, 64, 1000, 1024 * 1024 } )
+			{
+				assertEquivalent( message + " (sequential, chunkSize=" + chunkSize + ')', obj, transform, null, chunkSize );
+				assertEquivalent( message + " (parallel, chunkSize=" + chunkSize + ')', obj, transform, executorService, chunkSize );
+			}
+		}
+		finally
+		{
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Asserts that {@link ObjLoader} produces the same result as
+	 * {@link ObjLoaderReference}.
+	 *
+	 * @param message         Message to include with assertion failures.
+	 * @param obj             OBJ file contents.
+	 * @param transform       Transformation to apply.
+	 * @param executorService Executor service to use.
+	 * @param chunkSize       Number of characters per chunk.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	private static void assertEquivalent( final String message, final String obj, final Matrix3D transform, final ExecutorService executorService, final int chunkSize )
+	throws Exception
+	{
+		final ObjLoader loader = new ObjLoader( transform );
+		loader.setSkipMtl( false );
+		loader.setExecutorService( executorService );
+		loader.setChunkSize( chunkSize );
+
+		final Object3DBuilder actualBuilder = new Object3DBuilder();
+		String actualName = null;
+		Exception actualException = null;
+		final PrintStream err = System.err;
+		try
+		{
+			System.setErr( new PrintStream( new ByteArrayOutputStream() ) );
+			actualName = loader.load( actualBuilder, RESOURCE_LOADER, new BufferedReader( new StringReader( obj ) ) );
+		}
+		catch ( final IOException e )
+		{
+			actualException = e;
+		}
+		catch ( final RuntimeException e )
+		{
+			actualException = e;
+		}
+		finally
+		{
+			System.setErr( err );
+		}
+
+		final Map<String, Appearance> materials = loader.getMaterials();
+		final Object3DBuilder expectedBuilder = new Object3DBuilder();
+		String expectedName = null;
+		Exception expectedException = null;
+		try
+		{
+			expectedName = ObjLoaderReference.load( expectedBuilder, transform, materials, new BufferedReader( new StringReader( obj ) ) );
+		}
+		catch ( final IOException e )
+		{
+			expectedException = e;
+		}
+		catch ( final RuntimeException e )
+		{
+			expectedException = e;
+		}
+
+		if ( expectedException != null )
+		{
+			assertNotNull( message + ": expected " + expectedException, actualException );
+			assertEquals( message + ": unexpected exception type", expectedException.getClass(), actualException.getClass() );
+			assertEquals( message + ": unexpected exception message", expectedException.getMessage(), actualException.getMessage() );
+		}
+		else
+		{
+			if ( actualException != null )
+			{
+				throw new AssertionError( message + ": unexpected exception", actualException );
+			}
+
+			assertEquals( message + ": unexpected object name", expectedName, actualName );
+			assertEquivalent( message, expectedBuilder.getObject3D(), actualBuilder.getObject3D() );
+		}
+	}
+
+	/**
+	 * Asserts that two objects are equivalent.
+	 *
+	 * @param message  Message to include with assertion failures.
+	 * @param expected Expected object.
+	 * @param actual   Actual object.
+	 */
+	private static void assertEquivalent( final String message, final Object3D expected, final Object3D actual )
+	{
+		final List<Vector3D> expectedVertices = expected.getVertexCoordinates();
+		final List<Vector3D> actualVertices = actual.getVertexCoordinates();
+		assertEquals( message + ": vertex count", expectedVertices.size(), actualVertices.size() );
+		for ( int i = 0; i < expectedVertices.size(); i++ )
+		{
+			assertSameVector( message + ": vertex #" + i, expectedVertices.get( i ), actualVertices.get( i ) );
+		}
+
+		final List<FaceGroup> expectedFaceGroups = expected.getFaceGroups();
+		final List<FaceGroup> actualFaceGroups = actual.getFaceGroups();
+		assertEquals( message + ": face group count", expectedFaceGroups.size(), actualFaceGroups.size() );
+		for ( int i = 0; i < expectedFaceGroups.size(); i++ )
+		{
+			final FaceGroup expectedFaceGroup = expectedFaceGroups.get( i );
+			final FaceGroup actualFaceGroup = actualFaceGroups.get( i );
+			assertSame( message + ": face group #" + i + " appearance", expectedFaceGroup.getAppearance(), actualFaceGroup.getAppearance() );
+			assertEquals( message + ": face group #" + i + " smooth", expectedFaceGroup.isSmooth(), actualFaceGroup.isSmooth() );
+			assertEquals( message + ": face group #" + i + " two-sided", expectedFaceGroup.isTwoSided(), actualFaceGroup.isTwoSided() );
+
+			final List<Face3D> expectedFaces = expectedFaceGroup.getFaces();
+			final List<Face3D> actualFaces = actualFaceGroup.getFaces();
+			assertEquals( message + ": face group #" + i + " face count", expectedFaces.size(), actualFaces.size() );
+			for ( int j = 0; j < expectedFaces.size(); j++ )
+			{
+				final List<Vertex3D> expectedFaceVertices = expectedFaces.get( j ).getVertices();
+				final List<Vertex3D> actualFaceVertices = actualFaces.get( j ).getVertices();
+				assertEquals( message + ": face #" + j + " vertex count", expectedFaceVertices.size(), actualFaceVertices.size() );
+				for ( int k = 0; k < expectedFaceVertices.size(); k++ )
+				{
+					final String vertexMessage = message + ": face group #" + i + ", face #" + j + ", vertex #" + k;
+					final Vertex3D expectedVertex = expectedFaceVertices.get( k );
+					final Vertex3D actualVertex = actualFaceVertices.get( k );
+					assertEquals( vertexMessage + " index", expectedVertex.vertexCoordinateIndex, actualVertex.vertexCoordinateIndex );
+					assertSameVector( vertexMessage + " point", expectedVertex.point, actualVertex.point );
+					assertEquals( vertexMessage + " U", Float.floatToIntBits( expectedVertex.colorMapU ), Float.floatToIntBits( actualVertex.colorMapU ) );
+					assertEquals( vertexMessage + " V", Float.floatToIntBits( expectedVertex.colorMapV ), Float.floatToIntBits( actualVertex.colorMapV ) );
+					assertSameVector( vertexMessage + " normal", expectedVertex.getNormal(), actualVertex.getNormal() );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Asserts that two vectors have exactly the same coordinates.
+	 *
+	 * @param message  Message to include with assertion failures.
+	 * @param expected Expected vector.
+	 * @param actual   Actual vector.
+	 */
+	private static void assertSameVector( final String message, final Vector3D expected, final Vector3D actual )
+	{
+		if ( expected == null )
+		{
+			assertNull( message, actual );
+		}
+		else
+		{
+			assertNotNull( message, actual );
+			assertEquals( message + " x", Double.doubleToLongBits( expected.getX() ), Double.doubleToLongBits( actual.getX() ) );
+			assertEquals( message + " y", Double.doubleToLongBits( expected.getY() ), Double.doubleToLongBits( actual.getY() ) );
+			assertEquals( message + " z", Double.doubleToLongBits( expected.getZ() ), Double.doubleToLongBits( actual.getZ() ) );
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.geom.*;
+import ab.j3d.model.*;
+import junit.framework.*;
+
+/**
+ * This class tests the {@link ObjWriter} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestObjWriter
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestObjWriter.class.getName();
+
+	/**
+	 * Test {@link AsciiBuffer#appendDecimal} by comparing its output with
+	 * the number format used by {@link ObjWriter}.
+	 */
+	public void testAppendDecimal()
+	{
+		System.out.println( CLASS_NAME + ".testAppendDecimal" );
+
+		final NumberFormat format = NumberFormat.getNumberInstance( Locale.US );
+		format.setGroupingUsed( false );
+		format.setMinimumFractionDigits( 1 );
+		format.setMaximumFractionDigits( 6 );
+
+		final List<Double> values = new ArrayList<Double>( Arrays.asList( 0.0, -0.0, 1.0, -1.0, 0.5, 0.0078125, -0.0078125, 0.0000005, 0.0000015, 0.0000025, 1.0e-7, -1.0e-7, 0.1, 0.123456789, 999999.9999995, 1.0e6, -1.0e6, 1.0e12, 1.0e-300, 123.4565, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MAX_VALUE ) );
+
+		final Random random = new Random( 0L );
+		for ( int i = 0; i < 100000; i++ )
+		{
+			values.add( ( random.nextDouble() - 0.5 ) * Math.pow( 10.0, (double)( random.nextInt( 14 ) - 6 ) ) );
+			values.add( (double)( random.nextInt( 20000001 ) - 10000000 ) / 1.0e6 + ( ( random.nextInt( 3 ) - 1 ) * 5.0e-7 ) );
+			values.add( (double)( random.nextFloat() - 0.5f ) );
+		}
+
+		final AsciiBuffer buffer = new AsciiBuffer( 32 );
+		for ( final double value : values )
+		{
+			buffer.clear();
+			buffer.appendDecimal( value );
+			// NOTE: Non-ASCII symbols for NaN and infinity are written as '?' either way.
+			assertEquals( "Unexpected result for " + value, format.format( value ).replaceAll( "[^\\x00-\\x7f]", "?" ), buffer.toString() );
+		}
+	}
+
+	/**
+	 * Test streaming mode of {@link ObjWriter} by comparing the faces it
+	 * writes with those written in the default mode.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	public void testStreaming()
+	throws IOException
+	{
+		System.out.println( CLASS_NAME + ".testStreaming" );
+
+		final UVMap boxMap = new BoxUVMap( Scene.MM );
+		final Object3D box = new Box3D( 0.0, 0.0, 0.0, 10.0, 20.0, 30.0, null, null, BasicAppearances.WHITE, null, BasicAppearances.ALU_PLATE, boxMap, BasicAppearances.ALU_PLATE, boxMap, BasicAppearances.MAGENTA, boxMap, BasicAppearances.ALU_PLATE, boxMap, false );
+
+		final Object3D sphere = new Sphere3D( 100.0, 16, 8, BasicAppearances.ALU_PLATE );
+		sphere.smooth( 45.0, 0.0, false );
+
+		final Object3DBuilder builder = new Object3DBuilder();
+		builder.addQuad( new Vector3D( 0.0, 0.0, 0.0 ), new Vector3D( 1.0, 0.0, 0.0 ), new Vector3D( 1.0, 1.0, 0.0 ), new Vector3D( 0.0, 1.0, 0.0 ), BasicAppearances.CYAN, true );
+
+		final Node3D scene = new Node3D();
+		scene.addChild( new Sphere3D( 10.0, 8, 4, null ) );
+		scene.addChild( box );
+		scene.addChild( new Transform3D( Matrix3D.getTransform( 10.0, 20.0, 30.0, 100.0, 0.0, 0.0 ), sphere, box ) );
+		scene.addChild( builder.getObject3D() );
+		for ( int i = 0; i < 150; i++ )
+		{
+			scene.addChild( new Transform3D( Matrix3D.getTransform( 0.0, 0.0, (double)i, 0.0, 50.0 * (double)i, 0.0 ), box ) );
+		}
+
+		for ( final boolean writeFaceNormals : new boolean[] { false, true } )
+		{
+			final ObjWriter defaultWriter = new ObjWriter( null );
+			defaultWriter.setWriteFaceNormals( writeFaceNormals );
+			final StringWriter expected = new StringWriter();
+			defaultWriter.write( expected, scene, "test.mtl" );
+
+			final ObjWriter streamingWriter = new ObjWriter( null );
+			streamingWriter.setWriteFaceNormals( writeFaceNormals );
+			streamingWriter.setStreaming( true );
+			streamingWriter.setEncodingPool( new ForkJoinPool( 3 ) );
+			final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			streamingWriter.write( actual, scene, "test.mtl" );
+
+			final List<String> expectedFaces = resolveFaces( expected.toString() );
+			final List<String> actualFaces = resolveFaces( actual.toString( "US-ASCII" ) );
+			assertEquals( "Unexpected number of lines.", expectedFaces.size(), actualFaces.size() );
+			for ( int i = 0; i < expectedFaces.size(); i++ )
+			{
+				assertEquals( "Unexpected line " + i, expectedFaces.get( i ), actualFaces.get( i ) );
+			}
+
+			final ObjWriter writerWriter = new ObjWriter( null );
+			writerWriter.setWriteFaceNormals( writeFaceNormals );
+			writerWriter.setStreaming( true );
+			final StringWriter actualWriter = new StringWriter();
+			writerWriter.write( actualWriter, scene, "test.mtl" );
+			assertEquals( "Writer should produce the same output.", actual.toString( "US-ASCII" ), actualWriter.toString() );
+		}
+	}
+
+	/**
+	 * Returns the statements of an OBJ file, except vertex definitions. Face
+	 * statements are resolved to the vertices they refer to.
+	 *
+	 * @param obj OBJ file contents.
+	 *
+	 * @return Statements.
+	 */
+	private static List<String> resolveFaces( final String obj )
+	{
+		final List<String> vertices = new ArrayList<String>();
+		final List<String> textureVertices = new ArrayList<String>();
+		final List<String> normals = new ArrayList<String>();
+		final List<String> result = new ArrayList<String>();
+
+		for ( final String line : obj.split( "\r\n" ) )
+		{
+			if ( line.startsWith( "v " ) )
+			{
+				vertices.add( line.substring( 2 ).trim() );
+			}
+			else if ( line.startsWith( "vt " ) )
+			{
+				textureVertices.add( line.substring( 3 ).trim() );
+			}
+			else if ( line.startsWith( "vn " ) )
+			{
+				normals.add( line.substring( 3 ).trim() );
+			}
+			else if ( line.startsWith( "f " ) )
+			{
+				final StringBuilder face = new StringBuilder( "f" );
+				for ( final String vertex : line.substring( 2 ).split( " " ) )
+				{
+					final String[] indices = vertex.split( "/" );
+					face.append( " [" ).append( vertices.get( Integer.parseInt( indices[ 0 ] ) - 1 ) );
+					face.append( "|" ).append( ( ( indices.length > 1 ) && !indices[ 1 ].isEmpty() ) ? textureVertices.get( Integer.parseInt( indices[ 1 ] ) - 1 ) : "" );
+					face.append( "|" ).append( ( indices.length > 2 ) ? normals.get( Integer.parseInt( indices[ 2 ] ) - 1 ) : "" );
+					face.append( ']' );
+				}
+				result.add( face.toString() );
+			}
+			else
+			{
+				result.add( line );
+			}
+		}
+
+		return result;
+	}
+}
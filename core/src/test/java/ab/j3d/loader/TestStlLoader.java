@@ -0,0 +1,237 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import ab.j3d.model.*;
+import junit.framework.*;
+
+/**
+ * Unit test for {@link StlLoader}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestStlLoader
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestStlLoader.class.getName();
+
+	/**
+	 * Tests loading a binary STL file from a stream, a buffer and a file.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testLoadBinary()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testLoadBinary" );
+
+		final List<Vector3D[]> triangles = getTriangles( new Sphere3D( 10.0, 16, 8, null ) );
+		final byte[] stl = createBinaryStl( "test object", triangles, triangles.size() );
+		final Matrix3D transform = Matrix3D.getTransform( 30.0, 0.0, 45.0, 1.0, 2.0, 3.0 );
+
+		final StlLoader loader = new StlLoader();
+
+		final Object3D fromStream = loader.load( transform, new ByteArrayInputStream( stl ) );
+		assertEquals( "Unexpected object name.", "test object", fromStream.getTag() );
+		assertTriangles( "stream", transform, triangles, false, fromStream );
+
+		final Object3DBuilder builder = new Object3DBuilder();
+		final ByteBuffer buffer = ByteBuffer.wrap( stl );
+		assertEquals( "Unexpected object name.", "test object", loader.loadBinary( builder, transform, buffer ) );
+		assertEquals( "Buffer position should not change.", 0, buffer.position() );
+		assertTriangles( "buffer", transform, triangles, false, builder.getObject3D() );
+
+		final File file = File.createTempFile( CLASS_NAME, ".stl" );
+		try
+		{
+			final OutputStream out = new FileOutputStream( file );
+			try
+			{
+				out.write( stl );
+			}
+			finally
+			{
+				out.close();
+			}
+
+			assertTriangles( "file", transform, triangles, false, loader.load( transform, file ) );
+		}
+		finally
+		{
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+
+		loader.setFlipNormals( true );
+		assertTriangles( "flipped", transform, triangles, true, loader.load( transform, new ByteArrayInputStream( stl ) ) );
+	}
+
+	/**
+	 * Tests that only complete triangles are loaded when the triangle count
+	 * in the header exceeds the available data.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testTruncated()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testTruncated" );
+
+		final List<Vector3D[]> triangles = getTriangles( new Box3D( 10.0, 20.0, 30.0, null, null ) );
+		final byte[] stl = createBinaryStl( "truncated", triangles, triangles.size() + 10 );
+		final byte[] truncated = Arrays.copyOf( stl, stl.length - 20 );
+		final List<Vector3D[]> expected = triangles.subList( 0, triangles.size() - 1 );
+
+		final StlLoader loader = new StlLoader();
+		assertTriangles( "stream", Matrix3D.IDENTITY, expected, false, loader.load( Matrix3D.IDENTITY, new ByteArrayInputStream( truncated ) ) );
+
+		final Object3DBuilder builder = new Object3DBuilder();
+		loader.loadBinary( builder, Matrix3D.IDENTITY, ByteBuffer.wrap( truncated ) );
+		assertTriangles( "buffer", Matrix3D.IDENTITY, expected, false, builder.getObject3D() );
+	}
+
+	/**
+	 * Asserts that the given object contains the expected triangles, with
+	 * welded vertices.
+	 *
+	 * @param messagePrefix Prefix for assertion messages.
+	 * @param transform     Transform applied by the loader.
+	 * @param expected      Expected triangles (counter-clockwise).
+	 * @param flipNormals   Whether normals were flipped by the loader.
+	 * @param actual        Loaded object.
+	 */
+	private static void assertTriangles( final String messagePrefix, final Matrix3D transform, final List<Vector3D[]> expected, final boolean flipNormals, final Object3D actual )
+	{
+		final Set<Vector3D> uniquePoints = new HashSet<Vector3D>();
+
+		final List<Face3D> faces = new ArrayList<Face3D>();
+		for ( final FaceGroup faceGroup : actual.getFaceGroups() )
+		{
+			faces.addAll( faceGroup.getFaces() );
+		}
+		assertEquals( messagePrefix + ": Unexpected number of faces.", expected.size(), faces.size() );
+
+		for ( int i = 0; i < expected.size(); i++ )
+		{
+			final Vector3D[] triangle = expected.get( i );
+			final Face3D face = faces.get( i );
+			assertEquals( messagePrefix + ": Unexpected vertex count.", 3, face.getVertexCount() );
+
+			for ( int j = 0; j < 3; j++ )
+			{
+				final Vector3D point = transform.transform( triangle[ flipNormals ? j : ( 3 - j ) % 3 ] );
+				uniquePoints.add( point );
+				final Vertex3D vertex = face.getVertex( j );
+				assertEquals( messagePrefix + ": Unexpected vertex.", point, vertex.point );
+				assertEquals( messagePrefix + ": Inconsistent vertex index.", point, actual.getVertexCoordinates().get( vertex.vertexCoordinateIndex ) );
+			}
+		}
+
+		assertEquals( messagePrefix + ": Vertices should be welded.", uniquePoints.size(), actual.getVertexCount() );
+	}
+
+	/**
+	 * Returns the triangles of the given object, rounded to single precision.
+	 *
+	 * @param object Object to get triangles from.
+	 *
+	 * @return Triangles.
+	 */
+	private static List<Vector3D[]> getTriangles( final Object3D object )
+	{
+		final List<Vector3D[]> result = new ArrayList<Vector3D[]>();
+		for ( final FaceGroup faceGroup : object.getFaceGroups() )
+		{
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+				{
+					final int[] triangles = primitive.getTriangles();
+					for ( int i = 0; i < triangles.length; i += 3 )
+					{
+						result.add( new Vector3D[] { toFloat( face.getVertex( triangles[ i ] ).point ), toFloat( face.getVertex( triangles[ i + 1 ] ).point ), toFloat( face.getVertex( triangles[ i + 2 ] ).point ) } );
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Rounds the given vector to single precision.
+	 *
+	 * @param vector Vector to round.
+	 *
+	 * @return Rounded vector.
+	 */
+	private static Vector3D toFloat( final Vector3D vector )
+	{
+		return new Vector3D( (double)(float)vector.x, (double)(float)vector.y, (double)(float)vector.z );
+	}
+
+	/**
+	 * Creates a binary STL file.
+	 *
+	 * @param name              Object name.
+	 * @param triangles         Triangles (counter-clockwise).
+	 * @param numberOfTriangles Number of triangles specified in header.
+	 *
+	 * @return Binary STL file contents.
+	 */
+	static byte[] createBinaryStl( final String name, final List<Vector3D[]> triangles, final int numberOfTriangles )
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate( 84 + triangles.size() * 50 ).order( ByteOrder.LITTLE_ENDIAN );
+
+		final byte[] header = new byte[ 80 ];
+		final byte[] nameBytes = ( "solid " + name ).getBytes();
+		System.arraycopy( nameBytes, 0, header, 0, nameBytes.length );
+		buffer.put( header );
+		buffer.putInt( numberOfTriangles );
+
+		for ( int i = 0; i < triangles.size(); i++ )
+		{
+			final Vector3D[] triangle = triangles.get( i );
+
+			// Use a zero normal for some triangles, which should be ignored.
+			final Vector3D normal = ( i % 5 == 0 ) ? Vector3D.ZERO : Vector3D.cross( triangle[ 1 ].minus( triangle[ 0 ] ), triangle[ 2 ].minus( triangle[ 0 ] ) ).normalize();
+			buffer.putFloat( (float)normal.x );
+			buffer.putFloat( (float)normal.y );
+			buffer.putFloat( (float)normal.z );
+
+			for ( final Vector3D point : triangle )
+			{
+				buffer.putFloat( (float)point.x );
+				buffer.putFloat( (float)point.y );
+				buffer.putFloat( (float)point.z );
+			}
+			buffer.putShort( (short)0 );
+		}
+
+		return buffer.array();
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader;
+
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Compares {@link ZipResourceLoader} with {@link IndexedZipResourceLoader}
+ * by loading all resources of a ZIP file similar to a model with many
+ * textures.
+ *
+ * @author Peter S. Heijnen
+ */
+public class ZipResourceLoaderBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [texture count] [texture size].
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static void main( final String[] args )
+	throws IOException
+	{
+		final int textureCount = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 200;
+		final int textureSize = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 32768;
+
+		final List<String> names = new ArrayList<String>();
+		final byte[] zipData = createZip( textureCount, textureSize, names );
+		System.out.println( "ZIP file with " + names.size() + " entries (" + zipData.length + " bytes)" );
+
+		final Path file = Files.createTempFile( "ZipResourceLoaderBenchmark", ".zip" );
+		try
+		{
+			Files.write( file, zipData );
+			final URL zipUrl = file.toUri().toURL();
+
+			for ( int pass = 0; pass < 3; pass++ )
+			{
+				System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+				long start = System.nanoTime();
+				long size = loadAll( new ZipResourceLoader( zipData ), names );
+				System.out.println( "  ZipResourceLoader (data):         " + formatMillis( System.nanoTime() - start ) + " (" + size + " bytes)" );
+
+				start = System.nanoTime();
+				size = loadAll( new ZipResourceLoader( zipUrl ), names );
+				System.out.println( "  ZipResourceLoader (URL):          " + formatMillis( System.nanoTime() - start ) + " (" + size + " bytes)" );
+
+				start = System.nanoTime();
+				size = loadAll( new IndexedZipResourceLoader( zipData ), names );
+				System.out.println( "  IndexedZipResourceLoader (data):  " + formatMillis( System.nanoTime() - start ) + " (" + size + " bytes)" );
+
+				start = System.nanoTime();
+				final IndexedZipResourceLoader urlLoader = new IndexedZipResourceLoader( zipUrl );
+				size = loadAll( urlLoader, names );
+				System.out.println( "  IndexedZipResourceLoader (URL):   " + formatMillis( System.nanoTime() - start ) + " (" + size + " bytes)" );
+
+				start = System.nanoTime();
+				size = loadAll( urlLoader, names );
+				System.out.println( "  IndexedZipResourceLoader (again): " + formatMillis( System.nanoTime() - start ) + " (" + size + " bytes)" );
+			}
+		}
+		finally
+		{
+			try
+			{
+				Files.delete( file );
+			}
+			catch ( final IOException ignored )
+			{
+				// Mapped files can't be deleted on some platforms.
+			}
+		}
+	}
+
+	/**
+	 * Loads all given resources.
+	 *
+	 * @param loader Resource loader.
+	 * @param names  Names of resources to load.
+	 *
+	 * @return Total size of resources.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private static long loadAll( final ResourceLoader loader, final List<String> names )
+	throws IOException
+	{
+		long result = 0L;
+
+		final byte[] buffer = new byte[ 8192 ];
+		for ( final String name : names )
+		{
+			try ( final InputStream in = loader.getResourceAsStream( name ) )
+			{
+				if ( in == null )
+				{
+					throw new FileNotFoundException( name );
+				}
+
+				for ( int length = in.read( buffer ); length >= 0; length = in.read( buffer ) )
+				{
+					result += (long)length;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Creates a ZIP file with an OBJ file, an MTL file and textures. Every
+	 * other texture is stored without compression, like a JPEG or PNG image
+	 * would typically be.
+	 *
+	 * @param textureCount Number of textures.
+	 * @param textureSize  Size of each texture.
+	 * @param names        Receives the names of the entries.
+	 *
+	 * @return ZIP file contents.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private static byte[] createZip( final int textureCount, final int textureSize, final List<String> names )
+	throws IOException
+	{
+		final Random random = new Random( 1234L );
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+		try ( final ZipOutputStream out = new ZipOutputStream( result ) )
+		{
+			final StringBuilder obj = new StringBuilder();
+			final StringBuilder mtl = new StringBuilder();
+			for ( int i = 0; i < textureCount; i++ )
+			{
+				obj.append( "usemtl material" ).append( i ).append( "\nf 1 2 3\n" );
+				mtl.append( "newmtl material" ).append( i ).append( "\nmap_Kd textures/texture" ).append( i ).append( ".png\n" );
+			}
+
+			addEntry( out, "model.obj", obj.toString().getBytes( "US-ASCII" ), true, names );
+			addEntry( out, "model.mtl", mtl.toString().getBytes( "US-ASCII" ), true, names );
+
+			final byte[] texture = new byte[ textureSize ];
+			for ( int i = 0; i < textureCount; i++ )
+			{
+				/* Half random, half repetitive data, so deflate has some effect. */
+				random.nextBytes( texture );
+				Arrays.fill( texture, textureSize / 2, textureSize, (byte)i );
+				addEntry( out, "textures/texture" + i + ".png", texture, ( i % 2 ) != 0, names );
+			}
+		}
+
+		return result.toByteArray();
+	}
+
+	/**
+	 * Adds entry to a ZIP file.
+	 *
+	 * @param out        ZIP output stream.
+	 * @param name       Entry name.
+	 * @param data       Entry data.
+	 * @param compressed Whether to compress the entry.
+	 * @param names      Receives the name of the entry.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	static void addEntry( final ZipOutputStream out, final String name, final byte[] data, final boolean compressed, final List<String> names )
+	throws IOException
+	{
+		final ZipEntry entry = new ZipEntry( name );
+		if ( !compressed )
+		{
+			final CRC32 crc = new CRC32();
+			crc.update( data );
+			entry.setMethod( ZipEntry.STORED );
+			entry.setSize( (long)data.length );
+			entry.setCompressedSize( (long)data.length );
+			entry.setCrc( crc.getValue() );
+		}
+		out.putNextEntry( entry );
+		out.write( data );
+		out.closeEntry();
+		names.add( name );
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private ZipResourceLoaderBenchmark()
+	{
+	}
+}
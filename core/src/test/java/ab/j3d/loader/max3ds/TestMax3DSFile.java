@@ -0,0 +1,333 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.loader.max3ds;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+import junit.framework.*;
+
+/**
+ * This class tests the {@link Max3DSFile} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestMax3DSFile
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestMax3DSFile.class.getName();
+
+	/**
+	 * Test that a file read from a byte buffer or memory-mapped file, with
+	 * meshes built in parallel, results in the same scene as a file read from
+	 * a stream.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testBuildScene()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testBuildScene" );
+
+		final byte[] data = createFile();
+
+		final Node3D expected = new Node3D();
+		new Max3DSFile( new ByteArrayInputStream( data ) ).buildScene( expected );
+		assertEquals( "Unexpected number of nodes.", 2, expected.getChildCount() );
+
+		final Max3DSFile bufferFile = new Max3DSFile( ByteBuffer.wrap( data ) );
+		final Node3D sequential = new Node3D();
+		bufferFile.buildScene( sequential );
+		assertSameScene( "Sequential build from buffer", expected, sequential );
+
+		final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+		try
+		{
+			final Max3DSFile parallelFile = new Max3DSFile( ByteBuffer.wrap( data ) );
+			final Node3D parallel = new Node3D();
+			parallelFile.buildScene( parallel, executor );
+			assertSameScene( "Parallel build from buffer", expected, parallel );
+
+			final Max3DSFile.Timings timings = parallelFile.getTimings();
+			assertTrue( "Parse time should be recorded.", timings.getParseNanos() > 0L );
+			assertTrue( "Mesh build time should be recorded.", timings.getMeshBuildNanos() > 0L );
+			assertTrue( "Smoothing time should be recorded.", timings.getSmoothingNanos() > 0L );
+
+			final Path file = Files.createTempFile( CLASS_NAME, ".3ds" );
+			try
+			{
+				Files.write( file, data );
+
+				final Node3D mapped = new Node3D();
+				Max3DSFile.load( file ).buildScene( mapped, executor );
+				assertSameScene( "Parallel build from mapped file", expected, mapped );
+			}
+			finally
+			{
+				try
+				{
+					Files.delete( file );
+				}
+				catch ( final IOException ignored )
+				{
+					// Mapped files can't be deleted on some platforms.
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Test that errors in deferred mesh data are reported when building.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testCorruptMesh()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testCorruptMesh" );
+
+		final byte[] data = createFile();
+
+		/* Make the vertex list chunk of the first mesh too large. */
+		final int vertexList = indexOfChunk( data, Chunk.VERTEX_LIST );
+		assertTrue( "Missing vertex list.", vertexList >= 0 );
+		data[ vertexList + 4 ] = (byte)0x7f;
+
+		final Max3DSFile file = new Max3DSFile( ByteBuffer.wrap( data ) );
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try
+		{
+			file.buildScene( new Node3D(), executor );
+			fail( "Expected 'IOException'." );
+		}
+		catch ( final IOException ignored )
+		{
+			/* expected */
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the index of the first chunk header of the given type.
+	 *
+	 * @param   data        File contents.
+	 * @param   chunkType   Chunk type.
+	 *
+	 * @return  Index of chunk header; {@code -1} if not found.
+	 */
+	private static int indexOfChunk( final byte[] data, final int chunkType )
+	{
+		int result = -1;
+		for ( int i = 0; ( result < 0 ) && ( i < data.length - 1 ); i++ )
+		{
+			if ( ( data[ i ] == (byte)chunkType ) && ( data[ i + 1 ] == (byte)( chunkType >> 8 ) ) )
+			{
+				result = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Asserts that two scenes, as created by {@link Max3DSFile#buildScene},
+	 * are equal.
+	 *
+	 * @param   messagePrefix   Prefix for assertion messages.
+	 * @param   expected        Expected scene.
+	 * @param   actual          Actual scene.
+	 */
+	private static void assertSameScene( final String messagePrefix, final Node3D expected, final Node3D actual )
+	{
+		assertEquals( messagePrefix + ": Unexpected number of nodes.", expected.getChildCount(), actual.getChildCount() );
+
+		for ( int i = 0; i < expected.getChildCount(); i++ )
+		{
+			Node3D expectedNode = expected.getChild( i );
+			Node3D actualNode = actual.getChild( i );
+			assertEquals( messagePrefix + ": Unexpected node type.", expectedNode.getClass(), actualNode.getClass() );
+
+			if ( expectedNode instanceof Transform3D )
+			{
+				assertEquals( messagePrefix + ": Unexpected transform.", ( (Transform3D)expectedNode ).getTransform(), ( (Transform3D)actualNode ).getTransform() );
+				expectedNode = expectedNode.getChild( 0 );
+				actualNode = actualNode.getChild( 0 );
+			}
+
+			final Object3D expectedObject = (Object3D)expectedNode;
+			final Object3D actualObject = (Object3D)actualNode;
+			assertEquals( messagePrefix + ": Unexpected vertices.", expectedObject.getVertexCoordinates(), actualObject.getVertexCoordinates() );
+
+			final List<FaceGroup> expectedGroups = expectedObject.getFaceGroups();
+			final List<FaceGroup> actualGroups = actualObject.getFaceGroups();
+			assertEquals( messagePrefix + ": Unexpected number of face groups.", expectedGroups.size(), actualGroups.size() );
+
+			for ( int j = 0; j < expectedGroups.size(); j++ )
+			{
+				final List<Face3D> expectedFaces = expectedGroups.get( j ).getFaces();
+				final List<Face3D> actualFaces = actualGroups.get( j ).getFaces();
+				assertEquals( messagePrefix + ": Unexpected number of faces.", expectedFaces.size(), actualFaces.size() );
+
+				for ( int k = 0; k < expectedFaces.size(); k++ )
+				{
+					final Face3D expectedFace = expectedFaces.get( k );
+					final Face3D actualFace = actualFaces.get( k );
+					assertEquals( messagePrefix + ": Unexpected number of face vertices.", expectedFace.getVertexCount(), actualFace.getVertexCount() );
+
+					for ( int v = 0; v < expectedFace.getVertexCount(); v++ )
+					{
+						assertEquals( messagePrefix + ": Unexpected vertex normal.", expectedFace.getVertexNormal( v ), actualFace.getVertexNormal( v ) );
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a 3DS file with two meshes: a smoothed tetrahedron and a flat,
+	 * translated square.
+	 *
+	 * @return  File contents.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private static byte[] createFile()
+	throws IOException
+	{
+		final byte[] tetrahedron = chunk( Chunk.NAMED_OBJECT, cString( "tetrahedron" ),
+		                                  chunk( Chunk.OBJ_TRIMESH,
+		                                         chunk( Chunk.VERTEX_LIST, shorts( 4 ), floats( 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 0.0f, 1.0f ) ),
+		                                         chunk( Chunk.FACES_ARRAY, shorts( 4, 0, 2, 1, 0, 0, 1, 3, 0, 1, 2, 3, 0, 2, 0, 3, 0 ),
+		                                                chunk( Chunk.SMOOTH_GROUP, ints( 1, 1, 1, 2 ) ) ) ) );
+
+		final byte[] square = chunk( Chunk.NAMED_OBJECT, cString( "square" ),
+		                             chunk( Chunk.OBJ_TRIMESH,
+		                                    chunk( Chunk.VERTEX_LIST, shorts( 4 ), floats( 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 1.0f, 1.0f, 0.0f, 0.0f, 1.0f, 0.0f ) ),
+		                                    chunk( Chunk.COORD_SYS, floats( 1.0f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 0.0f, 1.0f, 5.0f, 6.0f, 7.0f ) ),
+		                                    chunk( Chunk.FACES_ARRAY, shorts( 2, 0, 1, 2, 0, 0, 2, 3, 0 ),
+		                                           chunk( Chunk.MESH_MAT_GROUP, cString( "none" ), shorts( 2, 0, 1 ) ) ) ) );
+
+		return chunk( Chunk.MAIN_3DS, chunk( Chunk.EDIT_3DS, tetrahedron, square ) );
+	}
+
+	/**
+	 * Creates a chunk.
+	 *
+	 * @param   chunkType   Chunk type.
+	 * @param   contents    Chunk contents.
+	 *
+	 * @return  Chunk bytes.
+	 *
+	 * @throws  IOException if an I/O error occurs.
+	 */
+	private static byte[] chunk( final int chunkType, final byte[]... contents )
+	throws IOException
+	{
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		for ( final byte[] content : contents )
+		{
+			body.write( content );
+		}
+
+		final ByteBuffer result = ByteBuffer.allocate( 6 + body.size() ).order( ByteOrder.LITTLE_ENDIAN );
+		result.putShort( (short)chunkType );
+		result.putInt( 6 + body.size() );
+		result.put( body.toByteArray() );
+		return result.array();
+	}
+
+	/**
+	 * Creates a 0-terminated string.
+	 *
+	 * @param   value   String value.
+	 *
+	 * @return  String bytes.
+	 */
+	private static byte[] cString( final String value )
+	{
+		return ( value + '\0' ).getBytes( StandardCharsets.US_ASCII );
+	}
+
+	/**
+	 * Creates little-endian 16-bit values.
+	 *
+	 * @param   values  Values.
+	 *
+	 * @return  Value bytes.
+	 */
+	private static byte[] shorts( final int... values )
+	{
+		final ByteBuffer result = ByteBuffer.allocate( 2 * values.length ).order( ByteOrder.LITTLE_ENDIAN );
+		for ( final int value : values )
+		{
+			result.putShort( (short)value );
+		}
+		return result.array();
+	}
+
+	/**
+	 * Creates little-endian 32-bit values.
+	 *
+	 * @param   values  Values.
+	 *
+	 * @return  Value bytes.
+	 */
+	private static byte[] ints( final int... values )
+	{
+		final ByteBuffer result = ByteBuffer.allocate( 4 * values.length ).order( ByteOrder.LITTLE_ENDIAN );
+		for ( final int value : values )
+		{
+			result.putInt( value );
+		}
+		return result.array();
+	}
+
+	/**
+	 * Creates little-endian floating-point values.
+	 *
+	 * @param   values  Values.
+	 *
+	 * @return  Value bytes.
+	 */
+	private static byte[] floats( final float... values )
+	{
+		final ByteBuffer result = ByteBuffer.allocate( 4 * values.length ).order( ByteOrder.LITTLE_ENDIAN );
+		for ( final float value : values )
+		{
+			result.putFloat( value );
+		}
+		return result.array();
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.awt.geom.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.List;
+
+import ab.j3d.*;
+import ab.j3d.awt.*;
+import ab.j3d.geom.*;
+import ab.j3d.geom.tessellator.*;
+
+/**
+ * Compares the {@link CollisionTree} used by {@link Object3D#collidesWith}
+ * with the lazily split {@link CollisionNode}, using the shapes and motion of
+ * {@link CollisionTestApp}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class CollisionBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [frame count].
+	 */
+	public static void main( final String[] args )
+	{
+		final int frameCount = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 2000;
+
+		final Path2D shape = createShape();
+		final Object3DBuilder freeForm = new Object3DBuilder();
+		final Tessellator shapeTessellator = ShapeTools.createTessellator( shape, 0.1 );
+		freeForm.addExtrudedShape( shapeTessellator, new Vector3D( 0.0, 0.0, 0.2 ), true, Matrix3D.getTranslation( 0.0, 0.0, 0.8 ), true, null, null, false, true, null, null, false, true, null, null, false, false, false, true );
+		freeForm.addExtrudedShape( shapeTessellator, new Vector3D( 0.0, 0.0, 0.2 ), true, Matrix3D.getTransform( 0.0, 0.0, 90.0, 0.0, 0.0, 0.0 ), true, null, null, false, true, null, null, false, true, null, null, false, false, false, true );
+
+		final Map<String, Object3D> objects = new LinkedHashMap<String, Object3D>();
+		objects.put( "Sphere", new Sphere3D( 1.0, 16, 8, null ) );
+		objects.put( "Cube", new Box3D( 2.0, 2.0, 2.0, null, null ) );
+		objects.put( "Cylinder", new Cylinder3D( 2.0, 1.0, 16, null, null, true, null, null, null, null, false ) );
+		objects.put( "Cone", new Cone3D( 2.0, 1.0, 0.2, 16, null, null, true, null, null, null, null, false ) );
+		objects.put( "Prism", new ExtrudedObject2D( shape, new Vector3D( 0.0, 0.0, 2.0 ), null, null, null, null, 0.01, false, false, true ) );
+		objects.put( "Free-form", freeForm.getObject3D() );
+		objects.put( "Large sphere", new Sphere3D( 1.0, 128, 64, null ) );
+
+		final Map<String, Matrix3D> localTransforms = new HashMap<String, Matrix3D>();
+		localTransforms.put( "Cube", Matrix3D.getTranslation( -1.0, -1.0, -1.0 ) );
+		localTransforms.put( "Cylinder", Matrix3D.getTranslation( 0.0, 0.0, -1.0 ) );
+		localTransforms.put( "Cone", Matrix3D.getTranslation( 0.0, 0.0, -1.0 ) );
+		localTransforms.put( "Prism", Matrix3D.getTranslation( 0.0, 0.0, -1.0 ) );
+
+		final Random random = new Random( 0L );
+		final Matrix3D orbit1 = Matrix3D.getRotationTransform( Vector3D.ZERO, randomUnitVector( random ), Math.toRadians( 1.3 ) );
+		final Matrix3D orbit2 = Matrix3D.getRotationTransform( Vector3D.ZERO, randomUnitVector( random ), Math.toRadians( 0.9 ) );
+		final Matrix3D tumble1 = Matrix3D.getRotationTransform( Vector3D.ZERO, randomUnitVector( random ), Math.toRadians( 0.7 ) );
+		final Matrix3D tumble2 = Matrix3D.getRotationTransform( Vector3D.ZERO, randomUnitVector( random ), Math.toRadians( 1.1 ) );
+
+		for ( final Map.Entry<String, Object3D> entry : objects.entrySet() )
+		{
+			final String name = entry.getKey();
+			final Matrix3D local = localTransforms.containsKey( name ) ? localTransforms.get( name ) : Matrix3D.IDENTITY;
+
+			/*
+			 * Pre-compute the transforms of all frames.
+			 */
+			final List<Matrix3D> transforms = new ArrayList<Matrix3D>( frameCount );
+			Matrix3D node1 = Matrix3D.getTranslation( -1.5, 0.0, 0.0 );
+			Matrix3D node2 = Matrix3D.getTranslation( 1.5, 0.0, 0.0 );
+			Matrix3D object1 = Matrix3D.IDENTITY;
+			Matrix3D object2 = Matrix3D.IDENTITY;
+			for ( int frame = 0; frame < frameCount; frame++ )
+			{
+				object1 = object1.multiply( tumble1 );
+				object2 = object2.multiply( tumble2 );
+				node1 = node1.multiply( orbit1 );
+				node2 = node2.multiply( orbit2 );
+
+				final Matrix3D object1ToWcs = local.multiply( object1 ).multiply( node1 );
+				final Matrix3D object2ToWcs = local.multiply( object2 ).multiply( node2 );
+				transforms.add( object2ToWcs.multiplyInverse( object1ToWcs ) );
+			}
+
+			System.out.println( name + " (" + getTriangles( entry.getValue() ).size() + " triangles, " + frameCount + " frames):" );
+
+			for ( int pass = 0; pass < 3; pass++ )
+			{
+				/*
+				 * Fresh structures for each pass, so the build cost is measured too.
+				 */
+				long start = System.nanoTime();
+				final List<Triangle3D> triangles1 = getTriangles( entry.getValue() );
+				final List<Triangle3D> triangles2 = new ArrayList<Triangle3D>( triangles1 );
+				final CollisionNode collisionNode1 = new CollisionNode( triangles1, 0, triangles1.size() );
+				final CollisionNode collisionNode2 = new CollisionNode( triangles2, 0, triangles2.size() );
+				collisionNode1.collidesWith( collisionNode2, transforms.get( 0 ) );
+				final long nodeFirst = System.nanoTime() - start;
+
+				int nodeCollisions = 0;
+				long allocated = getAllocatedBytes();
+				start = System.nanoTime();
+				for ( final Matrix3D transform : transforms )
+				{
+					if ( collisionNode1.collidesWith( collisionNode2, transform ) )
+					{
+						nodeCollisions++;
+					}
+				}
+				final long nodeTime = System.nanoTime() - start;
+				final long nodeAllocated = getAllocatedBytes() - allocated;
+
+				start = System.nanoTime();
+				final double[] coordinates1 = toArray( getTriangles( entry.getValue() ) );
+				final double[] coordinates2 = coordinates1.clone();
+				final CollisionTree collisionTree1 = new CollisionTree( coordinates1, coordinates1.length / 9, true );
+				final CollisionTree collisionTree2 = new CollisionTree( coordinates2, coordinates2.length / 9, true );
+				collisionTree1.collidesWith( collisionTree2, transforms.get( 0 ) );
+				final long treeFirst = System.nanoTime() - start;
+
+				int treeCollisions = 0;
+				allocated = getAllocatedBytes();
+				start = System.nanoTime();
+				for ( final Matrix3D transform : transforms )
+				{
+					if ( collisionTree1.collidesWith( collisionTree2, transform ) )
+					{
+						treeCollisions++;
+					}
+				}
+				final long treeTime = System.nanoTime() - start;
+				final long treeAllocated = getAllocatedBytes() - allocated;
+
+				System.out.println( "  pass " + ( pass + 1 ) + ": CollisionNode first test " + formatMillis( nodeFirst ) + ", " + formatMillis( nodeTime / (long)frameCount ) + " per test, " + ( nodeAllocated / (long)frameCount ) + " bytes per test, " + nodeCollisions + " collisions" );
+				System.out.println( "          CollisionTree first test " + formatMillis( treeFirst ) + ", " + formatMillis( treeTime / (long)frameCount ) + " per test, " + ( treeAllocated / (long)frameCount ) + " bytes per test, " + treeCollisions + " collisions" );
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread, if
+	 * supported by the JVM.
+	 *
+	 * @return Allocated bytes; {@code 0} if not supported.
+	 */
+	private static long getAllocatedBytes()
+	{
+		final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		return ( threadMXBean instanceof com.sun.management.ThreadMXBean ) ? ( (com.sun.management.ThreadMXBean)threadMXBean ).getThreadAllocatedBytes( Thread.currentThread().getId() ) : 0L;
+	}
+
+	/**
+	 * Returns the triangles of an object.
+	 *
+	 * @param object Object to get triangles from.
+	 *
+	 * @return Triangles.
+	 */
+	private static List<Triangle3D> getTriangles( final Object3D object )
+	{
+		final List<Triangle3D> result = new ArrayList<Triangle3D>();
+		for ( final FaceGroup faceGroup : object.getFaceGroups() )
+		{
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				final List<Vertex3D> vertices = face.getVertices();
+				for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+				{
+					final int[] triangles = primitive.getTriangles();
+					for ( int i = 0; i < triangles.length; i += 3 )
+					{
+						result.add( new BasicTriangle3D( vertices.get( triangles[ i ] ).point, vertices.get( triangles[ i + 1 ] ).point, vertices.get( triangles[ i + 2 ] ).point, true ) );
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Packs triangle coordinates into an array.
+	 *
+	 * @param triangles Triangles.
+	 *
+	 * @return Triangle coordinates (9 per triangle).
+	 */
+	private static double[] toArray( final List<Triangle3D> triangles )
+	{
+		final double[] result = new double[ triangles.size() * 9 ];
+		int index = 0;
+		for ( final Triangle3D triangle : triangles )
+		{
+			for ( final Vector3D point : Arrays.asList( triangle.getP1(), triangle.getP2(), triangle.getP3() ) )
+			{
+				result[ index++ ] = point.x;
+				result[ index++ ] = point.y;
+				result[ index++ ] = point.z;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the shape used by {@link CollisionTestApp}.
+	 *
+	 * @return Shape.
+	 */
+	private static Path2D createShape()
+	{
+		final Path2D shape = new Path2D.Double();
+
+		// A
+		shape.moveTo( -1.0, -1.0 );
+		shape.lineTo( -0.7, -1.0 );
+		shape.lineTo( -0.6, -0.6 );
+		shape.lineTo( -0.4, -0.6 );
+		shape.lineTo( -0.3, -1.0 );
+		shape.lineTo(  0.0, -1.0 );
+		shape.lineTo( -0.4,  1.0 );
+		shape.lineTo( -0.6,  1.0 );
+		shape.closePath();
+
+		// B
+		shape.moveTo(  0.0, -1.0 );
+		shape.lineTo(  0.3, -1.0 );
+		shape.curveTo( 1.0, -1.0, 1.0, 0.0, 0.3, 0.0 );
+		shape.curveTo( 1.0, 0.0, 1.0, 1.0, 0.3, 1.0 );
+		shape.lineTo(  0.0, 1.0 );
+		shape.closePath();
+
+		return shape;
+	}
+
+	/**
+	 * Returns a random unit vector.
+	 *
+	 * @param random Random number generator.
+	 *
+	 * @return Random unit vector.
+	 */
+	private static Vector3D randomUnitVector( final Random random )
+	{
+		return Vector3D.polarToCartesian( 1.0, Math.toRadians( 360.0 * random.nextDouble() ), Math.toRadians( 180.0 * random.nextDouble() ) );
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private CollisionBenchmark()
+	{
+	}
+}
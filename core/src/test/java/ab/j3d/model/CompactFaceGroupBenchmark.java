@@ -0,0 +1,260 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.io.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.geom.*;
+import ab.j3d.loader.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Measures the heap used by objects before and after
+ * {@link Object3D#compactFaceGroups() compacting} their face groups.
+ *
+ * <p>The model consists of a smoothed, textured sphere and a triangle mesh
+ * like those produced by loaders for imported models. To verify that faces
+ * are not expanded permanently, the heap is also measured after picking the
+ * model with a ray and after exporting it to OBJ.
+ *
+ * @author Peter S. Heijnen
+ */
+public class CompactFaceGroupBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [grid size].
+	 *
+	 * @throws IOException if the export fails.
+	 */
+	public static void main( final String[] args )
+	throws IOException
+	{
+		final int size = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 300;
+
+		final long emptyHeap = getUsedHeap();
+
+		final List<Object3D> objects = createModel( size );
+		int faceCount = 0;
+		int triangleCount = 0;
+		for ( final Object3D object : objects )
+		{
+			for ( final FaceGroup faceGroup : object.getFaceGroups() )
+			{
+				for ( final Face3D face : faceGroup.getFaces() )
+				{
+					faceCount++;
+					for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+					{
+						triangleCount += primitive.getTriangles().length / 3;
+					}
+				}
+			}
+		}
+		final long originalHeap = getUsedHeap() - emptyHeap;
+		System.out.println( "Faces: " + faceCount + ", triangles: " + triangleCount );
+		System.out.println( "Original: " + formatMegabytes( originalHeap ) + " (" + ( originalHeap / (long)triangleCount ) + " bytes per triangle)" );
+
+		final long start = System.nanoTime();
+		long dataSize = 0L;
+		for ( final Object3D object : objects )
+		{
+			object.compactFaceGroups();
+			for ( final FaceGroup faceGroup : object.getFaceGroups() )
+			{
+				dataSize += ( (CompactFaceGroup)faceGroup ).getDataSize();
+			}
+		}
+		final long compactTime = System.nanoTime() - start;
+
+		final long compactHeap = getUsedHeap() - emptyHeap;
+		System.out.println( "Compact:  " + formatMegabytes( compactHeap ) + " (" + ( compactHeap / (long)triangleCount ) + " bytes per triangle, packed arrays " + formatMegabytes( dataSize ) + ")" );
+		System.out.println( "Compaction took " + String.format( Locale.US, "%.1f ms", (double)compactTime / 1.0e6 ) );
+
+		final Ray3D ray = new BasicRay3D( new Vector3D( 0.1, 0.2, 5000.0 ), Vector3D.NEGATIVE_Z_AXIS, true );
+		int hitCount = 0;
+		for ( final Object3D object : objects )
+		{
+			if ( object.getNearestIntersectionWithRay( object, new Node3DPath( null, Matrix3D.IDENTITY, object ), Matrix3D.IDENTITY, ray ) != null )
+			{
+				hitCount++;
+			}
+		}
+		final long pickHeap = getUsedHeap() - emptyHeap;
+		System.out.println( "Picked:   " + formatMegabytes( pickHeap ) + " (" + hitCount + " objects hit, including face BVHs)" );
+
+		final long exportSize = export( objects );
+		final long exportHeap = getUsedHeap() - emptyHeap;
+		System.out.println( "Exported: " + formatMegabytes( exportHeap ) + " (" + formatMegabytes( exportSize ) + " written)" );
+
+		if ( objects.isEmpty() )
+		{
+			System.out.println( "(keep model reachable)" );
+		}
+	}
+
+	/**
+	 * Creates the model.
+	 *
+	 * @param size Size of grids used for the model.
+	 *
+	 * @return Objects in the model.
+	 */
+	private static List<Object3D> createModel( final int size )
+	{
+		final BasicAppearance appearance = new BasicAppearance();
+		appearance.setColorMap( new BasicTextureMap( "texture", 1.0f, 1.0f ) );
+
+		final Object3D sphere = new Sphere3D( 1000.0, 2 * size, size, appearance );
+		sphere.smooth( 45.0, 0.0, false );
+
+		final int rowLength = size + 1;
+		final double[] positions = new double[ 3 * rowLength * rowLength ];
+		for ( int y = 0; y <= size; y++ )
+		{
+			for ( int x = 0; x <= size; x++ )
+			{
+				final int offset = 3 * ( y * rowLength + x );
+				positions[ offset ] = (double)x;
+				positions[ offset + 1 ] = (double)y;
+				positions[ offset + 2 ] = Math.sin( (double)x * 0.1 ) * Math.cos( (double)y * 0.1 );
+			}
+		}
+
+		final int[] indices = new int[ 6 * size * size ];
+		final float[] texturePoints = new float[ 12 * size * size ];
+		int corner = 0;
+		for ( int y = 0; y < size; y++ )
+		{
+			for ( int x = 0; x < size; x++ )
+			{
+				final int v00 = y * rowLength + x;
+				for ( final int vertex : new int[] { v00, v00 + 1, v00 + rowLength + 1, v00, v00 + rowLength + 1, v00 + rowLength } )
+				{
+					indices[ corner ] = vertex;
+					texturePoints[ corner * 2 ] = (float)( vertex % rowLength ) / (float)size;
+					texturePoints[ corner * 2 + 1 ] = (float)( vertex / rowLength ) / (float)size;
+					corner++;
+				}
+			}
+		}
+
+		final Object3DBuilder builder = new Object3DBuilder();
+		builder.addFaces( positions, indices, null, texturePoints, appearance, true, false );
+		final Object3D mesh = builder.getObject3D();
+		mesh.smooth( 45.0, 0.0, false );
+
+		return Arrays.asList( sphere, mesh );
+	}
+
+	/**
+	 * Exports the given objects to OBJ, discarding the output. The writer is
+	 * not reachable after this method returns, so any memory still in use
+	 * afterwards is retained by the objects themselves.
+	 *
+	 * @param objects Objects to export.
+	 *
+	 * @return Number of bytes written.
+	 *
+	 * @throws IOException if the export fails.
+	 */
+	private static long export( final List<Object3D> objects )
+	throws IOException
+	{
+		final CountingOutputStream out = new CountingOutputStream();
+		final ObjWriter objWriter = new ObjWriter( null );
+		for ( final Object3D object : objects )
+		{
+			objWriter.write( out, object );
+		}
+		return out.getCount();
+	}
+
+	/**
+	 * Returns the used heap after garbage collection.
+	 *
+	 * @return Used heap, in bytes.
+	 */
+	private static long getUsedHeap()
+	{
+		final Runtime runtime = Runtime.getRuntime();
+		for ( int i = 0; i < 5; i++ )
+		{
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Formats a number of bytes in megabytes.
+	 *
+	 * @param bytes Number of bytes.
+	 *
+	 * @return Formatted size.
+	 */
+	private static String formatMegabytes( final long bytes )
+	{
+		return String.format( Locale.US, "%.1f MB", (double)bytes / ( 1024.0 * 1024.0 ) );
+	}
+
+	/**
+	 * Output stream that discards all data, counting the number of bytes.
+	 */
+	private static class CountingOutputStream
+	extends OutputStream
+	{
+		/**
+		 * Number of bytes written.
+		 */
+		private long _count = 0L;
+
+		@Override
+		public void write( final int b )
+		{
+			_count++;
+		}
+
+		@Override
+		public void write( @NotNull final byte[] b, final int off, final int len )
+		{
+			_count += (long)len;
+		}
+
+		/**
+		 * Returns the number of bytes written.
+		 *
+		 * @return Number of bytes written.
+		 */
+		public long getCount()
+		{
+			return _count;
+		}
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private CompactFaceGroupBenchmark()
+	{
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+
+/**
+ * Compares picking performance of {@link Object3D#getIntersectionsWithRay}
+ * (which uses a {@link FaceBVH}) with a linear scan over all faces.
+ *
+ * @author Peter S. Heijnen
+ */
+public class RayIntersectionBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [sphere segments] [ray count].
+	 */
+	public static void main( final String[] args )
+	{
+		final int segments = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 512;
+		final int rayCount = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 1000;
+
+		final Object3D object = new Sphere3D( 100.0, segments * 2, segments, null );
+		int faceCount = 0;
+		for ( final FaceGroup faceGroup : object.getFaceGroups() )
+		{
+			faceCount += faceGroup.getFaces().size();
+		}
+		System.out.println( "Faces: " + faceCount );
+
+		final Random random = new Random( 0L );
+		final List<Ray3D> rays = new ArrayList<Ray3D>( rayCount );
+		for ( int i = 0; i < rayCount; i++ )
+		{
+			final Vector3D origin = new Vector3D( random.nextDouble() * 400.0 - 200.0, random.nextDouble() * 400.0 - 200.0, 300.0 );
+			final Vector3D target = new Vector3D( random.nextDouble() * 200.0 - 100.0, random.nextDouble() * 200.0 - 100.0, 0.0 );
+			rays.add( new BasicRay3D( origin, target.minus( origin ).normalize(), true ) );
+		}
+
+		final Node3DPath path = new Node3DPath( null, Matrix3D.IDENTITY, object );
+
+		long start = System.nanoTime();
+		final FaceBVH faceBVH = object.getFaceBVH();
+		System.out.println( "BVH build: " + formatMillis( System.nanoTime() - start ) + " (" + ( ( faceBVH != null ) ? faceBVH.getNodeCount() : 0 ) + " nodes)" );
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			int linearHits = 0;
+			start = System.nanoTime();
+			for ( final Ray3D ray : rays )
+			{
+				for ( final FaceGroup faceGroup : object.getFaceGroups() )
+				{
+					for ( final Face3D face : faceGroup.getFaces() )
+					{
+						if ( face.getIntersection( ray ) != null )
+						{
+							linearHits++;
+						}
+					}
+				}
+			}
+			System.out.println( "  linear scan:  " + formatMillis( ( System.nanoTime() - start ) / (long)rayCount ) + " per ray, " + linearHits + " hits" );
+
+			int bvhHits = 0;
+			start = System.nanoTime();
+			for ( final Ray3D ray : rays )
+			{
+				bvhHits += object.getIntersectionsWithRay( null, false, "object", path, Matrix3D.IDENTITY, ray ).size();
+			}
+			System.out.println( "  BVH all hits: " + formatMillis( ( System.nanoTime() - start ) / (long)rayCount ) + " per ray, " + bvhHits + " hits" );
+
+			int nearestHits = 0;
+			start = System.nanoTime();
+			for ( final Ray3D ray : rays )
+			{
+				if ( object.getNearestIntersectionWithRay( "object", path, Matrix3D.IDENTITY, ray ) != null )
+				{
+					nearestHits++;
+				}
+			}
+			System.out.println( "  BVH nearest:  " + formatMillis( ( System.nanoTime() - start ) / (long)rayCount ) + " per ray, " + nearestHits + " rays hit" );
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private RayIntersectionBenchmark()
+	{
+	}
+}
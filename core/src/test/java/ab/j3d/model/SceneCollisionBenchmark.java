@@ -0,0 +1,135 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+
+/**
+ * Compares scene-wide collision detection using {@link SceneCollisionDetector}
+ * with testing all pairs of content nodes.
+ *
+ * @author Peter S. Heijnen
+ */
+public class SceneCollisionBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [node count] [moved node count].
+	 *
+	 * @throws Exception if the benchmark fails.
+	 */
+	public static void main( final String[] args )
+	throws Exception
+	{
+		final int nodeCount = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 2000;
+		final int movedCount = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 10;
+		final double size = Math.sqrt( (double)nodeCount ) * 25.0;
+
+		final Random random = new Random( 0L );
+		final Scene scene = new Scene( Scene.MM );
+		for ( int i = 0; i < nodeCount; i++ )
+		{
+			final Matrix3D transform = Matrix3D.getTransform( 0.0, 0.0, random.nextDouble() * 360.0, random.nextDouble() * size, random.nextDouble() * size, 0.0 );
+			scene.addContentNode( "sphere-" + i, transform, new Sphere3D( 10.0, 16, 8, null ) );
+		}
+		System.out.println( "Content nodes: " + nodeCount );
+
+		final ExecutorService executorService = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() );
+		try
+		{
+			final SceneCollisionDetector sequential = new SceneCollisionDetector( scene );
+			final SceneCollisionDetector parallel = new SceneCollisionDetector( scene, executorService );
+
+			for ( int pass = 0; pass < 3; pass++ )
+			{
+				System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+				final List<ContentNode> nodes = scene.getContentNodes();
+				int allPairsCollisions = 0;
+				long start = System.nanoTime();
+				for ( int i = 0; i < nodes.size(); i++ )
+				{
+					for ( int j = i + 1; j < nodes.size(); j++ )
+					{
+						if ( nodes.get( i ).collidesWith( nodes.get( j ) ) )
+						{
+							allPairsCollisions++;
+						}
+					}
+				}
+				System.out.println( "  all pairs:         " + formatMillis( System.nanoTime() - start ) + ", " + allPairsCollisions + " collisions" );
+
+				start = System.nanoTime();
+				final int candidateCount = sequential.getCandidatePairs().size();
+				System.out.println( "  sweep-and-prune:   " + formatMillis( System.nanoTime() - start ) + ", " + candidateCount + " candidates" );
+
+				sequential.invalidate();
+				start = System.nanoTime();
+				final int sequentialCollisions = sequential.getCollisions().size();
+				System.out.println( "  full, sequential:  " + formatMillis( System.nanoTime() - start ) + ", " + sequentialCollisions + " collisions" );
+
+				parallel.invalidate();
+				start = System.nanoTime();
+				final int parallelCollisions = parallel.getCollisions().size();
+				System.out.println( "  full, parallel:    " + formatMillis( System.nanoTime() - start ) + ", " + parallelCollisions + " collisions" );
+
+				for ( int i = 0; i < movedCount; i++ )
+				{
+					final ContentNode node = nodes.get( random.nextInt( nodes.size() ) );
+					node.setTransform( Matrix3D.getTransform( 0.0, 0.0, random.nextDouble() * 360.0, random.nextDouble() * size, random.nextDouble() * size, 0.0 ) );
+				}
+
+				start = System.nanoTime();
+				final int incrementalCollisions = sequential.getCollisions().size();
+				System.out.println( "  incremental (" + movedCount + " moved): " + formatMillis( System.nanoTime() - start ) + ", " + incrementalCollisions + " collisions" );
+				parallel.getCollisions();
+			}
+
+			sequential.dispose();
+			parallel.dispose();
+		}
+		finally
+		{
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private SceneCollisionBenchmark()
+	{
+	}
+}
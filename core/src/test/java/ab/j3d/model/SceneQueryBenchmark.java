@@ -0,0 +1,174 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Compares picking and collision queries using the spatial index of
+ * {@link Scene} with a linear scan over all content nodes.
+ *
+ * @author Peter S. Heijnen
+ */
+public class SceneQueryBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [node count] [query count].
+	 */
+	public static void main( final String[] args )
+	{
+		final int nodeCount = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 20000;
+		final int queryCount = ( args.length > 1 ) ? Integer.parseInt( args[ 1 ] ) : 1000;
+
+		final Random random = new Random( 0L );
+		final double size = Math.sqrt( (double)nodeCount ) * 100.0;
+
+		final Scene scene = new Scene( Scene.MM );
+		for ( int i = 0; i < nodeCount; i++ )
+		{
+			final Matrix3D transform = Matrix3D.getTransform( 0.0, 0.0, random.nextDouble() * 360.0, random.nextDouble() * size, random.nextDouble() * size, 0.0 );
+			scene.addContentNode( "box-" + i, transform, new Box3D( 10.0 + random.nextDouble() * 40.0, 20.0, 20.0, null, null ) );
+		}
+		System.out.println( "Content nodes: " + nodeCount );
+
+		final List<Ray3D> rays = new ArrayList<Ray3D>( queryCount );
+		for ( int i = 0; i < queryCount; i++ )
+		{
+			final Vector3D origin = new Vector3D( random.nextDouble() * size, random.nextDouble() * size, 1000.0 );
+			rays.add( new BasicRay3D( origin, Vector3D.normalize( random.nextDouble() - 0.5, random.nextDouble() - 0.5, -5.0 ), true ) );
+		}
+
+		final List<ContentNode> contentNodes = scene.getContentNodes();
+		final List<ContentNode> testNodes = new ArrayList<ContentNode>( queryCount );
+		for ( int i = 0; i < queryCount; i++ )
+		{
+			testNodes.add( contentNodes.get( random.nextInt( nodeCount ) ) );
+		}
+
+		long start = System.nanoTime();
+		scene.getContentNodes( new Bounds3D( 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 ) );
+		System.out.println( "Index build: " + formatMillis( System.nanoTime() - start ) );
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			int linearHits = 0;
+			start = System.nanoTime();
+			for ( final Ray3D ray : rays )
+			{
+				linearHits += getIntersectionsLinear( scene, ray ).size();
+			}
+			System.out.println( "  pick, linear:     " + formatMillis( ( System.nanoTime() - start ) / (long)queryCount ) + " per ray, " + linearHits + " hits" );
+
+			int indexHits = 0;
+			start = System.nanoTime();
+			for ( final Ray3D ray : rays )
+			{
+				indexHits += scene.getIntersectionsWithRay( ray ).size();
+			}
+			System.out.println( "  pick, index:      " + formatMillis( ( System.nanoTime() - start ) / (long)queryCount ) + " per ray, " + indexHits + " hits" );
+
+			int linearCollisions = 0;
+			start = System.nanoTime();
+			for ( final ContentNode node : testNodes )
+			{
+				for ( final ContentNode other : scene.getContentNodes() )
+				{
+					if ( node.collidesWith( other ) )
+					{
+						linearCollisions++;
+					}
+				}
+			}
+			System.out.println( "  collide, linear:  " + formatMillis( ( System.nanoTime() - start ) / (long)queryCount ) + " per node, " + linearCollisions + " collisions" );
+
+			int indexCollisions = 0;
+			start = System.nanoTime();
+			for ( final ContentNode node : testNodes )
+			{
+				indexCollisions += scene.getCollidingContentNodes( node ).size();
+			}
+			System.out.println( "  collide, index:   " + formatMillis( ( System.nanoTime() - start ) / (long)queryCount ) + " per node, " + indexCollisions + " collisions" );
+
+			start = System.nanoTime();
+			for ( final ContentNode node : testNodes )
+			{
+				node.setTransform( node.getTransform().plus( random.nextDouble() - 0.5, random.nextDouble() - 0.5, 0.0 ) );
+			}
+			scene.getContentNodes( new Bounds3D( 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 ) );
+			System.out.println( "  move + update:    " + formatMillis( ( System.nanoTime() - start ) / (long)queryCount ) + " per node" );
+		}
+	}
+
+	/**
+	 * Returns intersections with the given ray, by testing all content nodes.
+	 *
+	 * @param scene Scene to query.
+	 * @param ray   Ray to test.
+	 *
+	 * @return Intersections, ordered from near to far.
+	 */
+	private static List<Face3DIntersection> getIntersectionsLinear( final Scene scene, final Ray3D ray )
+	{
+		final List<Face3DIntersection> result = new ArrayList<Face3DIntersection>();
+		for ( final ContentNode contentNode : scene.getContentNodes() )
+		{
+			final Object objectID = contentNode.getID();
+			Node3DTreeWalker.walk( new Node3DVisitor()
+			{
+				public boolean visitNode( @NotNull final Node3DPath path )
+				{
+					final Node3D node = path.getNode();
+					if ( node instanceof Object3D )
+					{
+						( (Object3D)node ).getIntersectionsWithRay( result, true, objectID, path, path.getTransform(), ray );
+					}
+					return true;
+				}
+			}, contentNode.getTransform(), contentNode.getNode3D() );
+		}
+		return result;
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private SceneQueryBenchmark()
+	{
+	}
+}
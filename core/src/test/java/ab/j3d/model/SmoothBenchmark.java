@@ -0,0 +1,75 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+
+/**
+ * Compares performance of {@link Object3D#smooth} with that of the original
+ * implementation.
+ *
+ * @author Peter S. Heijnen
+ */
+public class SmoothBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [grid size].
+	 */
+	public static void main( final String[] args )
+	{
+		final int size = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 500;
+		System.out.println( "Cells: " + size * size );
+
+		for ( int pass = 0; pass < 3; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			Object3D object = TestObject3D.createTerrain( size );
+			long start = System.nanoTime();
+			Object3DSmoothReference.smooth( object, 30.0, 5.0, false );
+			System.out.println( "  original: " + formatMillis( System.nanoTime() - start ) );
+
+			object = TestObject3D.createTerrain( size );
+			start = System.nanoTime();
+			object.smooth( 30.0, 5.0, false );
+			System.out.println( "  current:  " + formatMillis( System.nanoTime() - start ) );
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private SmoothBenchmark()
+	{
+	}
+}
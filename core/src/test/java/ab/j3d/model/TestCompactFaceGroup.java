@@ -0,0 +1,389 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.awt.geom.*;
+import java.io.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.appearance.*;
+import ab.j3d.awt.*;
+import ab.j3d.geom.*;
+import ab.j3d.loader.*;
+import junit.framework.*;
+
+/**
+ * This class tests the {@link CompactFaceGroup} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestCompactFaceGroup
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestCompactFaceGroup.class.getName();
+
+	/**
+	 * Test {@link CompactFaceGroup#create} by comparing the face views with
+	 * the original faces.
+	 */
+	public void testCreate()
+	{
+		System.out.println( CLASS_NAME + ".testCreate" );
+
+		final Object3D sphere = new Sphere3D( 100.0, 16, 8, BasicAppearances.ALU_PLATE );
+		sphere.smooth( 45.0, 0.0, false );
+
+		final UVMap boxMap = new BoxUVMap( Scene.MM );
+		final Object3D box = new Box3D( 0.0, 0.0, 0.0, 10.0, 20.0, 30.0, BasicAppearances.CYAN, null, BasicAppearances.WHITE, null, BasicAppearances.ALU_PLATE, boxMap, BasicAppearances.ALU_PLATE, boxMap, BasicAppearances.MAGENTA, boxMap, BasicAppearances.ALU_PLATE, boxMap, false );
+
+		final Object3DBuilder builder = new Object3DBuilder();
+		final Path2D shape = new Path2D.Double( Path2D.WIND_EVEN_ODD );
+		shape.append( new Rectangle2D.Double( 0.0, 0.0, 10.0, 10.0 ), false );
+		shape.append( new Rectangle2D.Double( 2.0, 2.0, 6.0, 6.0 ), false );
+		builder.addExtrudedShape( ShapeTools.createTessellator( shape, 0.1 ), new Vector3D( 0.0, 0.0, 5.0 ), true, Matrix3D.IDENTITY, true, BasicAppearances.CYAN, boxMap, false, true, BasicAppearances.CYAN, boxMap, false, true, BasicAppearances.WHITE, null, false, false, false, false );
+
+		for ( final Object3D object : Arrays.asList( sphere, box, builder.getObject3D() ) )
+		{
+			for ( final FaceGroup faceGroup : object.getFaceGroups() )
+			{
+				final CompactFaceGroup compact = CompactFaceGroup.create( faceGroup );
+				assertSame( "Appearance", faceGroup.getAppearance(), compact.getAppearance() );
+				assertEquals( "Smooth", faceGroup.isSmooth(), compact.isSmooth() );
+				assertEquals( "Two-sided", faceGroup.isTwoSided(), compact.isTwoSided() );
+
+				final List<Face3D> expectedFaces = faceGroup.getFaces();
+				final List<Face3D> actualFaces = compact.getFaces();
+				assertEquals( "Face count", expectedFaces.size(), actualFaces.size() );
+				assertTrue( "Vertices should be shared", compact.getVertexCount() <= compact.getCornerCount() );
+
+				for ( int faceIndex = 0; faceIndex < expectedFaces.size(); faceIndex++ )
+				{
+					final Face3D expected = expectedFaces.get( faceIndex );
+					final Face3D actual = actualFaces.get( faceIndex );
+					final String message = "Face " + faceIndex;
+
+					assertEquals( message + " vertex count", expected.getVertexCount(), actual.getVertexCount() );
+					for ( int i = 0; i < expected.getVertexCount(); i++ )
+					{
+						final Vertex3D expectedVertex = expected.getVertex( i );
+						final Vertex3D actualVertex = actual.getVertex( i );
+						assertEquals( message + " point", expectedVertex.point, actualVertex.point );
+						assertEquals( message + " vertex coordinate index", expectedVertex.vertexCoordinateIndex, actualVertex.vertexCoordinateIndex );
+						assertEquals( message + " U", expectedVertex.colorMapU, actualVertex.colorMapU, 0.0f );
+						assertEquals( message + " V", expectedVertex.colorMapV, actualVertex.colorMapV, 0.0f );
+						assertVectorEquals( message + " vertex normal", expected.getVertexNormal( i ), actual.getVertexNormal( i ), 1.0e-6 );
+					}
+
+					assertVectorEquals( message + " normal", expected.getNormal(), actual.getNormal(), 1.0e-9 );
+					assertVectorEquals( message + " compact normal", actual.getNormal(), compact.getFaceNormal( faceIndex ), 0.0 );
+					assertEquals( message + " triangles", Arrays.toString( getTriangles( expected ) ), Arrays.toString( getTriangles( actual ) ) );
+					assertEquals( message + " outline count", expected.getOutlines().size(), actual.getOutlines().size() );
+					for ( int i = 0; i < expected.getOutlines().size(); i++ )
+					{
+						assertEquals( message + " outline", Arrays.toString( expected.getOutlines().get( i ) ), Arrays.toString( actual.getOutlines().get( i ) ) );
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test {@link Object3D#compactFaceGroups()} and its interaction with
+	 * methods that modify faces.
+	 */
+	public void testObject3D()
+	{
+		System.out.println( CLASS_NAME + ".testObject3D" );
+
+		final Object3D sphere = new Sphere3D( 100.0, 16, 8, BasicAppearances.ALU_PLATE );
+		final List<FaceGroup> originalGroups = new ArrayList<FaceGroup>( sphere.getFaceGroups() );
+
+		sphere.compactFaceGroups();
+		assertEquals( "Face group count", originalGroups.size(), sphere.getFaceGroups().size() );
+		for ( final FaceGroup faceGroup : sphere.getFaceGroups() )
+		{
+			assertTrue( "Face group should be compact", faceGroup instanceof CompactFaceGroup );
+		}
+
+		final FaceGroup faceGroup = sphere.getFaceGroup( BasicAppearances.ALU_PLATE, sphere.getFaceGroups().get( 0 ).isSmooth(), false );
+		assertFalse( "New face group should not be compact", faceGroup instanceof CompactFaceGroup );
+		sphere.removeFaceGroup( faceGroup );
+
+		final Vector3D origin = new Vector3D( 0.0, 0.0, 500.0 );
+		final Node3DPath path = new Node3DPath( null, Matrix3D.IDENTITY, sphere );
+		assertNotNull( "Ray should hit compact sphere", sphere.getNearestIntersectionWithRay( "sphere", path, Matrix3D.IDENTITY, new BasicRay3D( origin, Vector3D.NEGATIVE_Z_AXIS, true ) ) );
+
+		sphere.smooth( 45.0, 0.0, false );
+		for ( final FaceGroup group : sphere.getFaceGroups() )
+		{
+			assertFalse( "Smoothing should expand compact face groups", group instanceof CompactFaceGroup );
+		}
+	}
+
+	/**
+	 * Test {@link CompactFaceGroup#addFace} and {@link
+	 * CompactFaceGroup#removeFace}.
+	 */
+	public void testModify()
+	{
+		System.out.println( CLASS_NAME + ".testModify" );
+
+		final Object3D box = new Box3D( 10.0, 20.0, 30.0, null, BasicAppearances.ALU_PLATE );
+		final FaceGroup original = box.getFaceGroups().get( 0 );
+		final List<Face3D> originalFaces = new ArrayList<Face3D>( original.getFaces() );
+		final CompactFaceGroup compact = CompactFaceGroup.create( original );
+		final int cornerCount = compact.getCornerCount();
+		assertEquals( "Face count", originalFaces.size(), compact.getFaceCount() );
+
+		final Face3D first = compact.getFaces().get( 0 );
+		assertNotSame( "Views should not be kept", first, compact.getFace( 0 ) );
+		assertEquals( "Views of the same face should be equal", first, compact.getFace( 0 ) );
+		assertEquals( "Hash code should be stable", compact.hashCode(), compact.hashCode() );
+
+		compact.removeFace( first );
+		assertEquals( "Face count after remove", originalFaces.size() - 1, compact.getFaceCount() );
+		assertEquals( "Face count after remove", originalFaces.size() - 1, compact.getFaces().size() );
+		assertEquals( "Corner count after remove", cornerCount - first.getVertexCount(), compact.getCornerCount() );
+		assertEquals( "Face starts after remove", compact.getCornerCount(), compact.getFaceStarts()[ compact.getFaceCount() ] );
+
+		final Face3D stale = compact.getFace( 0 );
+		compact.removeFace( originalFaces.get( 0 ) );
+		assertEquals( "Removed face should not be found again", originalFaces.size() - 1, compact.getFaceCount() );
+		compact.removeFace( stale );
+		assertEquals( "Face count after removing a view", originalFaces.size() - 2, compact.getFaceCount() );
+
+		compact.addFace( originalFaces.get( 1 ) );
+		compact.addFace( originalFaces.get( 0 ) );
+		assertEquals( "Face count after add", originalFaces.size(), compact.getFaceCount() );
+		assertEquals( "Corner count after add", cornerCount, compact.getCornerCount() );
+		assertEquals( "Added face", originalFaces.get( 0 ).getVertices(), compact.getFace( originalFaces.size() - 1 ).getVertices() );
+
+		final int lastFace = compact.getFaceCount() - 1;
+		final int[] faceStarts = compact.getFaceStarts();
+		final int[] cornerVertices = compact.getCornerVertices();
+		final double[] positions = compact.getPositions();
+		for ( int i = 0; i < originalFaces.get( 0 ).getVertexCount(); i++ )
+		{
+			final int vertex = cornerVertices[ faceStarts[ lastFace ] + i ];
+			assertEquals( "Packed point " + i, originalFaces.get( 0 ).getVertex( i ).point, new Vector3D( positions[ vertex * 3 ], positions[ vertex * 3 + 1 ], positions[ vertex * 3 + 2 ] ) );
+		}
+	}
+
+	/**
+	 * Test {@link CompactFaceGroup#equals} and {@link
+	 * CompactFaceGroup#hashCode}.
+	 */
+	public void testEquals()
+	{
+		System.out.println( CLASS_NAME + ".testEquals" );
+
+		final Object3D sphere = new Sphere3D( 100.0, 16, 8, BasicAppearances.ALU_PLATE );
+		final FaceGroup original = sphere.getFaceGroups().get( 0 );
+		final CompactFaceGroup compact1 = CompactFaceGroup.create( original );
+		final CompactFaceGroup compact2 = CompactFaceGroup.create( original );
+		assertEquals( "Compact groups with the same faces", compact1, compact2 );
+		assertEquals( "Hash codes of equal groups", compact1.hashCode(), compact2.hashCode() );
+		assertFalse( "Compact group should not equal regular group", compact1.equals( original ) );
+		assertFalse( "Regular group should not equal compact group", original.equals( compact1 ) );
+
+		final Face3D face = compact2.getFace( 3 );
+		compact2.removeFace( face );
+		assertFalse( "Groups should differ after remove", compact1.equals( compact2 ) );
+		compact1.removeFace( compact1.getFace( 3 ) );
+		assertEquals( "Groups should be equal after same remove", compact1, compact2 );
+		assertEquals( "Hash codes after same remove", compact1.hashCode(), compact2.hashCode() );
+
+		final Object3D object = new Object3D();
+		object.addFaceGroup( compact1 );
+		object.addFaceGroup( CompactFaceGroup.create( new Box3D( 10.0, 20.0, 30.0, null, BasicAppearances.ALU_PLATE ).getFaceGroups().get( 0 ) ) );
+		object.removeFaceGroup( compact2 );
+		assertEquals( "Face group count after remove", 1, object.getFaceGroups().size() );
+		assertFalse( "Equal face group should be removed", object.getFaceGroups().contains( compact1 ) );
+	}
+
+	/**
+	 * Test that ray intersections and collisions give the same results for
+	 * compact and regular face groups.
+	 */
+	public void testIntersections()
+	{
+		System.out.println( CLASS_NAME + ".testIntersections" );
+
+		final Object3D regular = new Sphere3D( 100.0, 16, 8, BasicAppearances.ALU_PLATE );
+		regular.smooth( 45.0, 0.0, false );
+		final Object3D compact = new Sphere3D( 100.0, 16, 8, BasicAppearances.ALU_PLATE );
+		compact.smooth( 45.0, 0.0, false );
+		compact.compactFaceGroups();
+
+		final Random random = new Random( 12345L );
+		for ( int i = 0; i < 100; i++ )
+		{
+			final Vector3D origin = new Vector3D( random.nextDouble() * 400.0 - 200.0, random.nextDouble() * 400.0 - 200.0, 500.0 );
+			final Vector3D target = new Vector3D( random.nextDouble() * 200.0 - 100.0, random.nextDouble() * 200.0 - 100.0, 0.0 );
+			final Ray3D ray = new BasicRay3D( origin, target.minus( origin ).normalize(), true );
+
+			final Face3DIntersection expected = regular.getNearestIntersectionWithRay( "regular", new Node3DPath( null, Matrix3D.IDENTITY, regular ), Matrix3D.IDENTITY, ray );
+			final Face3DIntersection actual = compact.getNearestIntersectionWithRay( "compact", new Node3DPath( null, Matrix3D.IDENTITY, compact ), Matrix3D.IDENTITY, ray );
+			if ( expected == null )
+			{
+				assertNull( "Ray " + i + " should miss", actual );
+			}
+			else
+			{
+				assertNotNull( "Ray " + i + " should hit", actual );
+				assertVectorEquals( "Ray " + i + " intersection point", expected.getIntersectionPoint(), actual.getIntersectionPoint(), 1.0e-9 );
+				assertEquals( "Ray " + i + " face vertex count", expected.getFace().getVertexCount(), actual.getFace().getVertexCount() );
+				for ( int j = 0; j < expected.getFace().getVertexCount(); j++ )
+				{
+					assertEquals( "Ray " + i + " face vertex " + j, expected.getFace().getVertex( j ).point, actual.getFace().getVertex( j ).point );
+				}
+			}
+		}
+
+		for ( int i = 0; i < 20; i++ )
+		{
+			final Matrix3D transform = Matrix3D.getTransform( random.nextDouble() * 360.0, random.nextDouble() * 360.0, 0.0, random.nextDouble() * 300.0 - 150.0, random.nextDouble() * 300.0 - 150.0, 0.0 );
+			assertEquals( "Collision " + i, regular.collidesWith( transform, regular ), compact.collidesWith( transform, compact ) );
+		}
+	}
+
+	/**
+	 * Test that {@link SceneIntegrityChecker} removes invalid faces from
+	 * compact face groups.
+	 */
+	public void testSceneIntegrityChecker()
+	{
+		System.out.println( CLASS_NAME + ".testSceneIntegrityChecker" );
+
+		final Object3D box = new Box3D( 10.0, 20.0, 30.0, null, BasicAppearances.ALU_PLATE );
+		final Vector3D point = box.getVertex( 0 );
+		final Face3D degenerate = new Face3D( Arrays.asList( new Vertex3D( point, 0 ), new Vertex3D( point, 0 ), new Vertex3D( point, 0 ) ), null );
+		final FaceGroup original = box.getFaceGroups().get( 0 );
+		final int faceCount = original.getFaces().size();
+		original.addFace( degenerate );
+		box.compactFaceGroups();
+
+		final SceneIntegrityChecker reporter = new SceneIntegrityChecker();
+		reporter.setFixErrors( false );
+		reporter.checkObject3D( box );
+		assertEquals( "Degenerate face should be reported", 1, reporter.getErrors().size() );
+
+		final SceneIntegrityChecker checker = new SceneIntegrityChecker();
+		checker.checkObject3D( box );
+		assertTrue( "Errors should be fixed: " + checker.getErrorText(), checker.getErrors().isEmpty() );
+
+		final FaceGroup faceGroup = box.getFaceGroups().get( 0 );
+		assertTrue( "Face group should still be compact", faceGroup instanceof CompactFaceGroup );
+		assertEquals( "Face count", faceCount, faceGroup.getFaces().size() );
+		assertEquals( "Packed face count", faceCount, ( (CompactFaceGroup)faceGroup ).getFaceCount() );
+
+		final SceneIntegrityChecker rechecker = new SceneIntegrityChecker();
+		rechecker.setFixErrors( false );
+		rechecker.checkObject3D( box );
+		assertTrue( "No errors expected after fixing: " + rechecker.getErrorText(), rechecker.getErrors().isEmpty() );
+	}
+
+	/**
+	 * Test that {@link ObjWriter} gives the same output for compact face
+	 * groups as for their faces, with and without streaming.
+	 *
+	 * @throws IOException if the test fails.
+	 */
+	public void testObjWriter()
+	throws IOException
+	{
+		System.out.println( CLASS_NAME + ".testObjWriter" );
+
+		final UVMap boxMap = new BoxUVMap( Scene.MM );
+		final Object3D box = new Box3D( 0.0, 0.0, 0.0, 10.0, 20.0, 30.0, BasicAppearances.CYAN, null, BasicAppearances.WHITE, null, BasicAppearances.ALU_PLATE, boxMap, BasicAppearances.ALU_PLATE, boxMap, BasicAppearances.MAGENTA, boxMap, BasicAppearances.ALU_PLATE, boxMap, false );
+
+		final Object3D sphere = new Sphere3D( 100.0, 16, 8, BasicAppearances.ALU_PLATE );
+		sphere.smooth( 45.0, 0.0, false );
+
+		for ( final boolean streaming : new boolean[] { false, true } )
+		{
+			for ( final Object3D object : Arrays.asList( box, sphere ) )
+			{
+				final Object3D compact = new Object3D();
+				compact.setVertexCoordinates( object.getVertexCoordinates() );
+				compact.setFaceGroups( object.getFaceGroups() );
+				compact.compactFaceGroups();
+
+				// vertex normals are packed as floats, so compare with the face views
+				final Object3D expanded = new Object3D();
+				expanded.setVertexCoordinates( object.getVertexCoordinates() );
+				for ( final FaceGroup faceGroup : compact.getFaceGroups() )
+				{
+					expanded.addFaceGroup( new FaceGroup( faceGroup.getAppearance(), faceGroup.isSmooth(), faceGroup.isTwoSided(), faceGroup.getFaces() ) );
+				}
+
+				final ObjWriter expectedWriter = new ObjWriter( null );
+				expectedWriter.setStreaming( streaming );
+				final StringWriter expected = new StringWriter();
+				expectedWriter.write( expected, expanded );
+
+				final ObjWriter actualWriter = new ObjWriter( null );
+				actualWriter.setStreaming( streaming );
+				final StringWriter actual = new StringWriter();
+				actualWriter.write( actual, compact );
+
+				assertEquals( "Unexpected output (streaming: " + streaming + ").", expected.toString(), actual.toString() );
+			}
+		}
+	}
+
+	/**
+	 * Asserts that two vectors are equal within the given tolerance.
+	 *
+	 * @param message  Message to show if the assertion fails.
+	 * @param expected Expected vector.
+	 * @param actual   Actual vector.
+	 * @param delta    Maximum difference per component.
+	 */
+	private static void assertVectorEquals( final String message, final Vector3D expected, final Vector3D actual, final double delta )
+	{
+		assertEquals( message + " x", expected.x, actual.x, delta );
+		assertEquals( message + " y", expected.y, actual.y, delta );
+		assertEquals( message + " z", expected.z, actual.z, delta );
+	}
+
+	/**
+	 * Returns the triangles of all primitives of the given face.
+	 *
+	 * @param face Face to get triangles from.
+	 *
+	 * @return Triangles (vertex indices).
+	 */
+	private static int[] getTriangles( final Face3D face )
+	{
+		final IntArray result = new IntArray();
+		for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+		{
+			for ( final int vertex : primitive.getTriangles() )
+			{
+				result.add( vertex );
+			}
+		}
+		return result.toArray();
+	}
+}
@@ -141,4 +141,202 @@ extends TestCase
 		tag1 = intersection.getObjectID();
 		assertEquals( "The wrong object was intersected", "Plane", tag1 );
 	}
+
+	/**
+	 * Test that {@link Object3D#getIntersectionsWithRay} and {@link
+	 * Object3D#getNearestIntersectionWithRay} give the same results as testing
+	 * every face of the object.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testGetIntersectionsWithRayMatchesLinearScan()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testGetIntersectionsWithRayMatchesLinearScan" );
+
+		final Object3D sphere = new Sphere3D( 100.0, 32, 16, null );
+		final Matrix3D object2world = Matrix3D.getTransform( 30.0, 15.0, 45.0, 10.0, -20.0, 5.0 );
+		final Matrix3D world2object = object2world.inverse();
+		final Node3DPath path = new Node3DPath( null, object2world, sphere );
+
+		final Random random = new Random( 1234L );
+		int hitCount = 0;
+
+		for ( int i = 0; i < 1000; i++ )
+		{
+			final Vector3D origin = new Vector3D( random.nextDouble() * 400.0 - 200.0, random.nextDouble() * 400.0 - 200.0, random.nextDouble() * 400.0 - 200.0 );
+			final Vector3D target = new Vector3D( random.nextDouble() * 200.0 - 100.0, random.nextDouble() * 200.0 - 100.0, random.nextDouble() * 200.0 - 100.0 );
+			final Ray3D ray = new BasicRay3D( origin, target.minus( origin ).normalize(), ( i % 2 ) == 0 );
+			final Ray3D ocsRay = new BasicRay3D( world2object, ray );
+
+			final List<Face3D> expectedFaces = new ArrayList<Face3D>();
+			final List<Vector3D> expectedPoints = new ArrayList<Vector3D>();
+			for ( final FaceGroup faceGroup : sphere.getFaceGroups() )
+			{
+				for ( final Face3D face : faceGroup.getFaces() )
+				{
+					final Vector3D point = face.getIntersection( ocsRay );
+					if ( point != null )
+					{
+						expectedFaces.add( face );
+						expectedPoints.add( object2world.transform( point ) );
+					}
+				}
+			}
+
+			final List<Face3DIntersection> actual = sphere.getIntersectionsWithRay( null, false, "sphere", path, object2world, ray );
+			assertEquals( "Incorrect number of intersections for ray #" + i, expectedFaces.size(), actual.size() );
+			for ( int j = 0; j < actual.size(); j++ )
+			{
+				assertSame( "Incorrect face for ray #" + i, expectedFaces.get( j ), actual.get( j ).getFace() );
+				assertEquals( "Incorrect point for ray #" + i, expectedPoints.get( j ), actual.get( j ).getIntersectionPoint() );
+			}
+
+			final Face3DIntersection nearest = sphere.getNearestIntersectionWithRay( "sphere", path, object2world, ray );
+			if ( actual.isEmpty() )
+			{
+				assertNull( "Unexpected nearest intersection for ray #" + i, nearest );
+			}
+			else
+			{
+				hitCount++;
+				final List<Face3DIntersection> sorted = sphere.getIntersectionsWithRay( null, true, "sphere", path, object2world, ray );
+				assertNotNull( "Missing nearest intersection for ray #" + i, nearest );
+				assertEquals( "Incorrect nearest distance for ray #" + i, sorted.get( 0 ).getDistance(), nearest.getDistance(), 1.0e-9 );
+			}
+		}
+
+		assertTrue( "Too few rays hit the sphere", hitCount > 100 );
+	}
+
+	/**
+	 * Tests that {@link Object3D#smooth} gives exactly the same results as the
+	 * original implementation, for small meshes (processed sequentially) and
+	 * large meshes (processed in parallel).
+	 */
+	public void testSmoothMatchesReference()
+	{
+		System.out.println( CLASS_NAME + ".testSmoothMatchesReference" );
+
+		final double[][] angles = { { 30.0, 0.0 }, { 0.0, 5.0 }, { 30.0, 5.0 }, { 180.0, 180.0 } };
+		for ( final int size : new int[] { 4, 200 } )
+		{
+			for ( final double[] angle : angles )
+			{
+				for ( final boolean separateMaterials : new boolean[] { false, true } )
+				{
+					final String message = "size=" + size + ", smooth=" + angle[ 0 ] + ", edge=" + angle[ 1 ] + ", separateMaterials=" + separateMaterials;
+
+					final Object3D expected = createTerrain( size );
+					Object3DSmoothReference.smooth( expected, angle[ 0 ], angle[ 1 ], separateMaterials );
+
+					final Object3D actual = createTerrain( size );
+					actual.smooth( angle[ 0 ], angle[ 1 ], separateMaterials );
+
+					assertSmoothEquals( message, expected, actual );
+				}
+			}
+		}
+
+		final Object3D expected = new Sphere3D( 100.0, 32, 16, null );
+		Object3DSmoothReference.smooth( expected, 30.0, 5.0, false );
+		final Object3D actual = new Sphere3D( 100.0, 32, 16, null );
+		actual.smooth( 30.0, 5.0, false );
+		assertSmoothEquals( "sphere", expected, actual );
+	}
+
+	/**
+	 * Asserts that the vertex normals and outlines of two objects are equal.
+	 *
+	 * @param message  Message to show if the assertion fails.
+	 * @param expected Expected object.
+	 * @param actual   Actual object.
+	 */
+	private static void assertSmoothEquals( final String message, final Object3D expected, final Object3D actual )
+	{
+		final List<FaceGroup> expectedGroups = expected.getFaceGroups();
+		final List<FaceGroup> actualGroups = actual.getFaceGroups();
+		assertEquals( message + ": face group count", expectedGroups.size(), actualGroups.size() );
+
+		for ( int i = 0; i < expectedGroups.size(); i++ )
+		{
+			final FaceGroup expectedGroup = expectedGroups.get( i );
+			final FaceGroup actualGroup = actualGroups.get( i );
+			assertEquals( message + ": smooth flag", expectedGroup.isSmooth(), actualGroup.isSmooth() );
+
+			final List<Face3D> expectedFaces = expectedGroup.getFaces();
+			final List<Face3D> actualFaces = actualGroup.getFaces();
+			assertEquals( message + ": face count", expectedFaces.size(), actualFaces.size() );
+
+			for ( int j = 0; j < expectedFaces.size(); j++ )
+			{
+				final Face3D expectedFace = expectedFaces.get( j );
+				final Face3D actualFace = actualFaces.get( j );
+
+				final List<int[]> expectedOutlines = expectedFace.getOutlines();
+				final List<int[]> actualOutlines = actualFace.getOutlines();
+				assertEquals( message + ": outline count of face " + j, expectedOutlines.size(), actualOutlines.size() );
+				for ( int k = 0; k < expectedOutlines.size(); k++ )
+				{
+					assertTrue( message + ": outline " + k + " of face " + j, Arrays.equals( expectedOutlines.get( k ), actualOutlines.get( k ) ) );
+				}
+
+				for ( int k = 0; k < expectedFace.getVertexCount(); k++ )
+				{
+					assertEquals( message + ": normal of vertex " + k + " of face " + j, expectedFace.getVertex( k ).normal, actualFace.getVertex( k ).normal );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a terrain-like mesh with random heights. Cells of the grid are
+	 * either triangulated or tessellated quads, using two materials in a
+	 * checkerboard pattern.
+	 *
+	 * @param size Number of cells along each side of the grid.
+	 *
+	 * @return Mesh.
+	 */
+	static Object3D createTerrain( final int size )
+	{
+		final Random random = new Random( 123L );
+
+		final List<Vector3D> vertices = new ArrayList<Vector3D>( ( size + 1 ) * ( size + 1 ) );
+		for ( int y = 0; y <= size; y++ )
+		{
+			for ( int x = 0; x <= size; x++ )
+			{
+				vertices.add( new Vector3D( (double)x * 10.0, (double)y * 10.0, ( random.nextInt( 4 ) == 0 ) ? random.nextDouble() * 10.0 : 0.0 ) );
+			}
+		}
+
+		final Object3D result = new Object3D( vertices );
+		final Appearance[] appearances = { BasicAppearance.createForColor( "red", Color4.RED ), BasicAppearance.createForColor( "blue", Color4.BLUE ) };
+
+		for ( int y = 0; y < size; y++ )
+		{
+			for ( int x = 0; x < size; x++ )
+			{
+				final int v1 = y * ( size + 1 ) + x;
+				final int v2 = v1 + 1;
+				final int v3 = v2 + size + 1;
+				final int v4 = v1 + size + 1;
+				final Appearance appearance = appearances[ ( ( x / 3 ) + ( y / 3 ) ) % 2 ];
+
+				if ( ( ( x + y ) % 2 ) == 0 )
+				{
+					result.addFace( appearance, false, false, new Face3D( result, new int[] { v1, v2, v3 }, null, null ) );
+					result.addFace( appearance, false, false, new Face3D( result, new int[] { v1, v3, v4 }, null, null ) );
+				}
+				else
+				{
+					final Tessellation tessellation = new Tessellation( Collections.singletonList( new int[] { 0, 1, 2, 3, 0 } ), Collections.<TessellationPrimitive>singletonList( new TriangleFan( new int[] { 3, 2, 1, 0 } ) ) );
+					result.addFace( appearance, false, false, new Face3D( Face3D.createVertices( result, new int[] { v1, v2, v3, v4 }, null, null ), tessellation ) );
+				}
+			}
+		}
+
+		return result;
+	}
 }
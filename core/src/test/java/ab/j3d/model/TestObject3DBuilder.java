@@ -18,6 +18,8 @@
  */
 package ab.j3d.model;
 
+import java.util.*;
+
 import ab.j3d.*;
 import junit.framework.*;
 
@@ -59,4 +61,84 @@ extends TestCase
 		assertEquals( "test5 - vertexIndex", 3, builder.getVertexIndex( Vector3D.POSITIVE_Z_AXIS ) );
 		assertEquals( "test5 - vertexCount", 4, builder.getVertexCount() );
 	}
+
+	/**
+	 * Test {@link Object3DBuilder#addFaces} method.
+	 */
+	public void testAddFaces()
+	{
+		System.out.println( CLASS_NAME + ".testAddFaces" );
+
+		final Object3DBuilder builder = new Object3DBuilder();
+		builder.addTriangle( Vector3D.ZERO, Vector3D.POSITIVE_X_AXIS, Vector3D.POSITIVE_Y_AXIS, null, false );
+		assertEquals( "[pre] vertexCount", 3, builder.getVertexCount() );
+
+		// unit square as a quad and two triangles; shares 3 vertices with the triangle above
+		final double[] positions = { 0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 1.0, 1.0, 0.0, 0.0, 1.0, 0.0, 1.0, 1.0, 0.0 };
+		builder.addFaces( positions, new int[] { 0, 1, 2, 3, 0, 1, 4, 0, 4, 3 }, new int[] { 4, 3, 3 }, null, null, false, false );
+		assertEquals( "vertexCount", 4, builder.getVertexCount() );
+
+		final Object3D object = builder.getObject3D();
+		final List<FaceGroup> faceGroups = object.getFaceGroups();
+		assertEquals( "faceGroups", 1, faceGroups.size() );
+
+		final List<Face3D> faces = faceGroups.get( 0 ).getFaces();
+		assertEquals( "faces", 4, faces.size() );
+		assertEquals( "face 1 size", 4, faces.get( 1 ).getVertexCount() );
+		assertEquals( "face 1 vertex 2", 3, faces.get( 1 ).getVertex( 2 ).vertexCoordinateIndex );
+		assertEquals( "face 1 vertex 2", new Vector3D( 1.0, 1.0, 0.0 ), faces.get( 1 ).getVertex( 2 ).point );
+		assertEquals( "face 3 vertex 1", 3, faces.get( 3 ).getVertex( 1 ).vertexCoordinateIndex );
+
+		builder.addFaces( new double[] { 0.0, 0.0, 1.0, 1.0, 0.0, 1.0, 0.0, 1.0, 1.0 }, new int[] { 0, 1, 2 }, null, new float[] { 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 1.0f }, null, false, false );
+		assertEquals( "vertexCount", 7, builder.getVertexCount() );
+		final List<Face3D> allFaces = object.getFaceGroups().get( 0 ).getFaces();
+		assertEquals( "faces", 5, allFaces.size() );
+		assertEquals( "texture U", 1.0f, allFaces.get( 4 ).getVertex( 1 ).colorMapU, 0.0f );
+	}
+
+	/**
+	 * Test {@link Object3DBuilder#setWeldEpsilon} method.
+	 */
+	public void testWeldEpsilon()
+	{
+		System.out.println( CLASS_NAME + ".testWeldEpsilon" );
+
+		final Object3D object = new Object3D();
+		object.addVertex( new Vector3D( 0.5, 0.5, 0.5 ) );
+
+		final Object3DBuilder builder = object.getBuilder();
+		assertEquals( "exact 1", 0, builder.getVertexIndex( 0.5, 0.5, 0.5 ) );
+		assertEquals( "exact 2", 1, builder.getVertexIndex( 0.5001, 0.5, 0.5 ) );
+
+		// vertices added to the object directly should be found too
+		object.addVertex( new Vector3D( 2.0, 2.0, 2.0 ) );
+		assertEquals( "exact 3", 2, builder.getVertexIndex( 2.0, 2.0, 2.0 ) );
+
+		builder.setWeldEpsilon( 0.01 );
+		assertEquals( "epsilon 1", 0, builder.getVertexIndex( 0.501, 0.502, 0.503 ) );
+		assertEquals( "epsilon 2", 2, builder.getVertexIndex( new Vector3D( 2.001, 2.002, 2.003 ) ) );
+		assertEquals( "epsilon 3", 3, builder.getVertexIndex( 3.0, 3.0, 3.0 ) );
+		assertEquals( "vertexCount", 4, builder.getVertexCount() );
+	}
+
+	/**
+	 * Tests that vertices are welded against the new coordinates after the
+	 * vertices of the target object are replaced with an equal number of
+	 * vertices.
+	 */
+	public void testReplaceVertices()
+	{
+		System.out.println( CLASS_NAME + ".testReplaceVertices" );
+
+		final Object3D object = new Object3D();
+		final Object3DBuilder builder = object.getBuilder();
+		assertEquals( "before 1", 0, builder.getVertexIndex( 1.0, 0.0, 0.0 ) );
+		assertEquals( "before 2", 1, builder.getVertexIndex( 0.0, 1.0, 0.0 ) );
+
+		object.setVertexCoordinates( Arrays.asList( new Vector3D( 0.0, 1.0, 0.0 ), new Vector3D( 0.0, 0.0, 1.0 ) ) );
+		assertEquals( "moved vertex", 0, builder.getVertexIndex( 0.0, 1.0, 0.0 ) );
+		assertEquals( "new vertex", 1, builder.getVertexIndex( 0.0, 0.0, 1.0 ) );
+		assertEquals( "removed vertex", 2, builder.getVertexIndex( 1.0, 0.0, 0.0 ) );
+		assertEquals( "vertexCount", 3, builder.getVertexCount() );
+	}
 }
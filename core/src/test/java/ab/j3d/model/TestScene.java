@@ -0,0 +1,181 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import junit.framework.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * This class tests the {@link Scene} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestScene
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestScene.class.getName();
+
+	/**
+	 * Tests the spatial queries of {@link Scene} against brute-force results,
+	 * while content nodes are moved, updated and removed.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testSpatialQueries()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testSpatialQueries" );
+
+		final Random random = new Random( 0L );
+		final Scene scene = new Scene( Scene.MM );
+		scene.addContentNode( "light", Matrix3D.IDENTITY, new DirectionalLight3D( Vector3D.NEGATIVE_Z_AXIS ) );
+		for ( int i = 0; i < 200; i++ )
+		{
+			scene.addContentNode( "box-" + i, createTransform( random ), new Box3D( 10.0 + random.nextDouble() * 40.0, 10.0, 10.0, null, null ) );
+		}
+
+		for ( int step = 0; step < 4; step++ )
+		{
+			for ( int query = 0; query < 20; query++ )
+			{
+				final double x = random.nextDouble() * 1000.0;
+				final double y = random.nextDouble() * 1000.0;
+				final Bounds3D bounds = new Bounds3D( x, y, -100.0, x + 100.0, y + 100.0, 100.0 );
+				assertEquals( "Unexpected bounds query result.", getContentNodesLinear( scene, bounds ), scene.getContentNodes( bounds ) );
+
+				final Ray3D ray = new BasicRay3D( new Vector3D( x, y, 500.0 ), Vector3D.normalize( random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1.0 ), true );
+				final List<Face3DIntersection> expected = getIntersectionsLinear( scene, ray );
+				final List<Face3DIntersection> actual = scene.getIntersectionsWithRay( ray );
+				assertEquals( "Unexpected number of intersections.", expected.size(), actual.size() );
+				for ( int i = 0; i < expected.size(); i++ )
+				{
+					assertEquals( "Unexpected object ID.", expected.get( i ).getObjectID(), actual.get( i ).getObjectID() );
+					assertEquals( "Unexpected distance.", expected.get( i ).getDistance(), actual.get( i ).getDistance(), 1.0e-9 );
+				}
+			}
+
+			for ( final ContentNode node : scene.getContentNodes() )
+			{
+				final List<ContentNode> expectedColliding = new ArrayList<ContentNode>();
+				for ( final ContentNode other : scene.getContentNodes() )
+				{
+					if ( node.collidesWith( other ) )
+					{
+						expectedColliding.add( other );
+					}
+				}
+				assertEquals( "Unexpected colliding nodes.", expectedColliding, scene.getCollidingContentNodes( node ) );
+			}
+
+			final List<ContentNode> nodes = scene.getContentNodes();
+			for ( int i = step; i < nodes.size(); i += 4 )
+			{
+				final ContentNode node = nodes.get( i );
+				if ( node.getNode3D() instanceof Box3D )
+				{
+					node.setTransform( createTransform( random ) );
+				}
+			}
+
+			final ContentNode updated = nodes.get( 1 + step );
+			updated.getNode3D().addChild( new Box3D( 100.0, 100.0, 10.0, null, null ) );
+			updated.fireContentUpdated();
+
+			scene.removeContentNode( nodes.get( nodes.size() - 1 - step ).getID() );
+			scene.addContentNode( "added-" + step, createTransform( random ), new Box3D( 20.0, 20.0, 20.0, null, null ) );
+		}
+	}
+
+	/**
+	 * Creates a random transform.
+	 *
+	 * @param random Random number generator.
+	 *
+	 * @return Random transform.
+	 */
+	private static Matrix3D createTransform( final Random random )
+	{
+		return Matrix3D.getTransform( 0.0, 0.0, random.nextDouble() * 360.0, random.nextDouble() * 1000.0, random.nextDouble() * 1000.0, random.nextDouble() * 20.0 - 10.0 );
+	}
+
+	/**
+	 * Returns content nodes whose bounds intersect the given bounds, by testing
+	 * all content nodes.
+	 *
+	 * @param scene  Scene to query.
+	 * @param bounds Bounds to test.
+	 *
+	 * @return Content nodes whose bounds intersect the given bounds.
+	 */
+	private static List<ContentNode> getContentNodesLinear( final Scene scene, final Bounds3D bounds )
+	{
+		final List<ContentNode> result = new ArrayList<ContentNode>();
+		for ( final ContentNode node : scene.getContentNodes() )
+		{
+			final Bounds3D nodeBounds = node.getBounds();
+			if ( nodeBounds != null )
+			{
+				final Bounds3DBuilder builder = new Bounds3DBuilder();
+				builder.addBounds( node.getTransform(), nodeBounds );
+				if ( Bounds3D.intersects( builder.getBounds(), bounds ) )
+				{
+					result.add( node );
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns intersections with the given ray, by testing all content nodes.
+	 *
+	 * @param scene Scene to query.
+	 * @param ray   Ray to test.
+	 *
+	 * @return Intersections, ordered from near to far.
+	 */
+	private static List<Face3DIntersection> getIntersectionsLinear( final Scene scene, final Ray3D ray )
+	{
+		final List<Face3DIntersection> result = new ArrayList<Face3DIntersection>();
+		for ( final ContentNode contentNode : scene.getContentNodes() )
+		{
+			final Object objectID = contentNode.getID();
+			Node3DTreeWalker.walk( new Node3DVisitor()
+			{
+				public boolean visitNode( @NotNull final Node3DPath path )
+				{
+					final Node3D node = path.getNode();
+					if ( node instanceof Object3D )
+					{
+						( (Object3D)node ).getIntersectionsWithRay( result, true, objectID, path, path.getTransform(), ray );
+					}
+					return true;
+				}
+			}, contentNode.getTransform(), contentNode.getNode3D() );
+		}
+		return result;
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import ab.j3d.*;
+import junit.framework.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * This class tests the {@link SceneCollisionDetector} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestSceneCollisionDetector
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestSceneCollisionDetector.class.getName();
+
+	/**
+	 * Tests {@link SceneCollisionDetector#getCollisions()} in the calling
+	 * thread.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testGetCollisions()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testGetCollisions" );
+		testGetCollisions( null );
+	}
+
+	/**
+	 * Tests {@link SceneCollisionDetector#getCollisions()} using an executor
+	 * service.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	public void testGetCollisionsParallel()
+	throws Exception
+	{
+		System.out.println( CLASS_NAME + ".testGetCollisionsParallel" );
+
+		final ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			testGetCollisions( executorService );
+		}
+		finally
+		{
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Tests collision detection against brute-force results, while content
+	 * nodes are moved, updated, added and removed.
+	 *
+	 * @param executorService Executor service to use.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	private static void testGetCollisions( @Nullable final ExecutorService executorService )
+	throws Exception
+	{
+		final Random random = new Random( 0L );
+		final Scene scene = new Scene( Scene.MM );
+		scene.addContentNode( "light", Matrix3D.IDENTITY, new DirectionalLight3D( Vector3D.NEGATIVE_Z_AXIS ) );
+		for ( int i = 0; i < 300; i++ )
+		{
+			scene.addContentNode( "box-" + i, createTransform( random ), new Box3D( 10.0 + random.nextDouble() * 40.0, 10.0, 10.0, null, null ) );
+		}
+
+		final SceneCollisionDetector detector = new SceneCollisionDetector( scene, executorService );
+
+		for ( int step = 0; step < 5; step++ )
+		{
+			final List<ContentNodePair> expected = getCollisionsLinear( scene );
+			assertFalse( "Test scene should contain collisions.", expected.isEmpty() );
+			assertEquals( "Unexpected collisions.", expected, detector.getCollisions() );
+			assertEquals( "Collisions should not change without updates.", expected, detector.getCollisions() );
+
+			final List<ContentNodePair> candidates = detector.getCandidatePairs();
+			assertTrue( "Candidates must include all collisions.", candidates.containsAll( expected ) );
+			for ( final ContentNodePair pair : candidates )
+			{
+				assertTrue( "Candidates should only contain overlapping bounds.", scene.getOverlappingContentNodes( pair.getFirst() ).contains( pair.getSecond() ) );
+			}
+
+			final List<ContentNode> nodes = scene.getContentNodes();
+			for ( int i = step; i < nodes.size(); i += 10 )
+			{
+				final ContentNode node = nodes.get( i );
+				if ( node.getNode3D() instanceof Box3D )
+				{
+					node.setTransform( createTransform( random ) );
+				}
+			}
+
+			final ContentNode updated = nodes.get( 1 + step );
+			updated.getNode3D().addChild( new Box3D( 100.0, 100.0, 10.0, null, null ) );
+			updated.fireContentUpdated();
+
+			scene.removeContentNode( nodes.get( nodes.size() - 1 - step ).getID() );
+			scene.addContentNode( "added-" + step, createTransform( random ), new Box3D( 50.0, 50.0, 20.0, null, null ) );
+		}
+
+		detector.invalidate();
+		assertEquals( "Unexpected collisions after invalidate.", getCollisionsLinear( scene ), detector.getCollisions() );
+
+		detector.dispose();
+	}
+
+	/**
+	 * Creates a random transform.
+	 *
+	 * @param random Random number generator.
+	 *
+	 * @return Random transform.
+	 */
+	private static Matrix3D createTransform( final Random random )
+	{
+		return Matrix3D.getTransform( 0.0, 0.0, random.nextDouble() * 360.0, random.nextDouble() * 500.0, random.nextDouble() * 500.0, random.nextDouble() * 20.0 - 10.0 );
+	}
+
+	/**
+	 * Returns all pairs of colliding content nodes, by testing all pairs.
+	 *
+	 * @param scene Scene to test.
+	 *
+	 * @return Colliding pairs, in scene order.
+	 */
+	private static List<ContentNodePair> getCollisionsLinear( final Scene scene )
+	{
+		final List<ContentNodePair> result = new ArrayList<ContentNodePair>();
+		final List<ContentNode> nodes = scene.getContentNodes();
+		for ( int i = 0; i < nodes.size(); i++ )
+		{
+			for ( int j = i + 1; j < nodes.size(); j++ )
+			{
+				if ( nodes.get( i ).collidesWith( nodes.get( j ) ) )
+				{
+					result.add( new ContentNodePair( nodes.get( i ), nodes.get( j ) ) );
+				}
+			}
+		}
+		return result;
+	}
+}
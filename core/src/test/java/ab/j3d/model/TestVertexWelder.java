@@ -0,0 +1,110 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import junit.framework.*;
+
+/**
+ * This class tests the {@link VertexWelder} class.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestVertexWelder
+extends TestCase
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestVertexWelder.class.getName();
+
+	/**
+	 * Test welding vertices with equal coordinates.
+	 */
+	public void testWeldExact()
+	{
+		System.out.println( CLASS_NAME + ".testWeldExact" );
+
+		final VertexWelder welder = new VertexWelder();
+		assertEquals( "Unexpected index.", 0, welder.weld( 0.0, 0.0, 0.0 ) );
+		assertEquals( "Unexpected index.", 1, welder.weld( 1.0, 0.0, 0.0 ) );
+		assertEquals( "Unexpected index.", 0, welder.weld( 0.0, 0.0, 0.0 ) );
+		assertEquals( "Unexpected index.", 0, welder.weld( -0.0, 0.0, -0.0 ) );
+		assertEquals( "Unexpected index.", 2, welder.weld( 1.0, 0.0, 1.0e-12 ) );
+		assertEquals( "Unexpected size.", 3, welder.size() );
+
+		assertEquals( "Unexpected index.", 1, welder.indexOf( 1.0, 0.0, 0.0 ) );
+		assertEquals( "Unexpected index.", -1, welder.indexOf( 2.0, 0.0, 0.0 ) );
+
+		assertEquals( "Unexpected index.", 3, welder.add( 1.0, 0.0, 0.0 ) );
+		assertEquals( "Unexpected index.", 1, welder.weld( 1.0, 0.0, 0.0 ) );
+		assertEquals( "Unexpected size.", 4, welder.size() );
+
+		welder.clear();
+		assertEquals( "Unexpected size.", 0, welder.size() );
+		assertEquals( "Unexpected index.", -1, welder.indexOf( 0.0, 0.0, 0.0 ) );
+	}
+
+	/**
+	 * Test welding vertices in the same grid cell.
+	 */
+	public void testWeldEpsilon()
+	{
+		System.out.println( CLASS_NAME + ".testWeldEpsilon" );
+
+		final VertexWelder welder = new VertexWelder( 0.01 );
+		assertEquals( "Unexpected index.", 0, welder.weld( 0.001, 0.001, 0.001 ) );
+		assertEquals( "Unexpected index.", 0, welder.weld( 0.002, 0.009, 0.0 ) );
+		assertEquals( "Unexpected index.", 1, welder.weld( -0.001, 0.001, 0.001 ) );
+		assertEquals( "Unexpected index.", 2, welder.weld( 1.0, 2.0, 3.0 ) );
+		assertEquals( "Unexpected index.", 2, welder.weld( 1.0001, 2.0001, 3.0001 ) );
+		assertEquals( "Unexpected size.", 3, welder.size() );
+
+		try
+		{
+			new VertexWelder( -1.0 );
+			fail( "Negative epsilon should not be accepted." );
+		}
+		catch ( final IllegalArgumentException ignored )
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Test welding many vertices, which requires the hash table to grow.
+	 */
+	public void testGrow()
+	{
+		System.out.println( CLASS_NAME + ".testGrow" );
+
+		final VertexWelder welder = new VertexWelder();
+		final int count = 10000;
+		for ( int i = 0; i < count; i++ )
+		{
+			assertEquals( "Unexpected index.", i, welder.weld( (double)( i % 100 ), (double)( i / 100 ), 0.5 ) );
+		}
+
+		for ( int i = 0; i < count; i++ )
+		{
+			assertEquals( "Unexpected index.", i, welder.weld( (double)( i % 100 ), (double)( i / 100 ), 0.5 ) );
+		}
+
+		assertEquals( "Unexpected size.", count, welder.size() );
+	}
+}
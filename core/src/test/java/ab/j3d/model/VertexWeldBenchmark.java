@@ -0,0 +1,137 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2018 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.model;
+
+import java.util.*;
+
+import ab.j3d.*;
+
+/**
+ * Compares building a triangle grid through the {@link Vector3D}-based
+ * {@link Object3DBuilder#addTriangle} method with the bulk
+ * {@link Object3DBuilder#addFaces} method, and the original
+ * {@link Object3D#getVertexIndex} lookup with the {@link VertexWelder}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class VertexWeldBenchmark
+{
+	/**
+	 * Run benchmark.
+	 *
+	 * @param args Command-line arguments: [grid size].
+	 */
+	public static void main( final String[] args )
+	{
+		final int size = ( args.length > 0 ) ? Integer.parseInt( args[ 0 ] ) : 300;
+
+		final int rowLength = size + 1;
+		final double[] positions = new double[ 3 * rowLength * rowLength ];
+		for ( int y = 0; y <= size; y++ )
+		{
+			for ( int x = 0; x <= size; x++ )
+			{
+				final int offset = 3 * ( y * rowLength + x );
+				positions[ offset ] = (double)x;
+				positions[ offset + 1 ] = (double)y;
+				positions[ offset + 2 ] = Math.sin( (double)x * 0.1 ) * Math.cos( (double)y * 0.1 );
+			}
+		}
+
+		// triangle soup: every corner is specified separately, like a loader would
+		final double[] soup = new double[ 18 * size * size ];
+		final int[] indices = new int[ 6 * size * size ];
+		int corner = 0;
+		for ( int y = 0; y < size; y++ )
+		{
+			for ( int x = 0; x < size; x++ )
+			{
+				final int v00 = y * rowLength + x;
+				for ( final int vertex : new int[] { v00, v00 + 1, v00 + rowLength + 1, v00, v00 + rowLength + 1, v00 + rowLength } )
+				{
+					System.arraycopy( positions, 3 * vertex, soup, 3 * corner, 3 );
+					indices[ corner ] = corner;
+					corner++;
+				}
+			}
+		}
+		System.out.println( "Triangles: " + ( 2 * size * size ) + ", corners: " + corner );
+
+		for ( int pass = 0; pass < 8; pass++ )
+		{
+			System.out.println( "Pass " + ( pass + 1 ) + ":" );
+
+			long start = System.nanoTime();
+			final Object3D hashList = new Object3D();
+			for ( int i = 0; i < corner; i++ )
+			{
+				hashList.getVertexIndex( new Vector3D( soup[ 3 * i ], soup[ 3 * i + 1 ], soup[ 3 * i + 2 ] ) );
+			}
+			System.out.println( "  HashList lookup:      " + formatMillis( System.nanoTime() - start ) + " (" + hashList.getVertexCount() + " vertices)" );
+
+			start = System.nanoTime();
+			final VertexWelder welder = new VertexWelder();
+			for ( int i = 0; i < corner; i++ )
+			{
+				welder.weld( soup[ 3 * i ], soup[ 3 * i + 1 ], soup[ 3 * i + 2 ] );
+			}
+			System.out.println( "  VertexWelder lookup:  " + formatMillis( System.nanoTime() - start ) + " (" + welder.size() + " vertices)" );
+
+			start = System.nanoTime();
+			final Object3DBuilder triangles = new Object3DBuilder();
+			for ( int i = 0; i < corner; i += 3 )
+			{
+				triangles.addTriangle( new Vector3D( soup[ 3 * i ], soup[ 3 * i + 1 ], soup[ 3 * i + 2 ] ),
+				                       new Vector3D( soup[ 3 * i + 3 ], soup[ 3 * i + 4 ], soup[ 3 * i + 5 ] ),
+				                       new Vector3D( soup[ 3 * i + 6 ], soup[ 3 * i + 7 ], soup[ 3 * i + 8 ] ), null, false );
+			}
+			System.out.println( "  addTriangle:          " + formatMillis( System.nanoTime() - start ) + " (" + triangles.getVertexCount() + " vertices)" );
+
+			start = System.nanoTime();
+			final Object3DBuilder bulk = new Object3DBuilder();
+			bulk.addFaces( soup, indices, null, null, null, false, false );
+			System.out.println( "  addFaces:             " + formatMillis( System.nanoTime() - start ) + " (" + bulk.getVertexCount() + " vertices)" );
+
+			start = System.nanoTime();
+			final Object3DBuilder welded = new Object3DBuilder();
+			welded.setWeldEpsilon( 1.0e-6 );
+			welded.addFaces( soup, indices, null, null, null, false, false );
+			System.out.println( "  addFaces (epsilon):   " + formatMillis( System.nanoTime() - start ) + " (" + welded.getVertexCount() + " vertices)" );
+		}
+	}
+
+	/**
+	 * Formats a duration in milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 *
+	 * @return Formatted duration.
+	 */
+	private static String formatMillis( final long nanos )
+	{
+		return String.format( Locale.US, "%.3f ms", (double)nanos / 1.0e6 );
+	}
+
+	/**
+	 * Utility/Application class is not supposed to be instantiated.
+	 */
+	private VertexWeldBenchmark()
+	{
+	}
+}
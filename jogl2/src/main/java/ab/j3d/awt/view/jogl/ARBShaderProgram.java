@@ -176,6 +176,15 @@ public class ARBShaderProgram
 		return infoLog;
 	}
 
+	@Override
+	public int getAttributeLocation( final String identifier )
+	{
+		final GL gl = GLU.getCurrentGL();
+		final GL2 gl2 = gl.getGL2();
+		link();
+		return gl2.glGetAttribLocation( (int)_program, identifier );
+	}
+
 	@Override
 	public void enable()
 	{
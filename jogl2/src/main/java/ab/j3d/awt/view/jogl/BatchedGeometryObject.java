@@ -0,0 +1,127 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import com.jogamp.opengl.*;
+import com.jogamp.opengl.glu.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Geometry object that draws a range of a {@link GeometryBatch}, which is
+ * shared with other geometry objects.
+ *
+ * @author Peter S. Heijnen
+ */
+class BatchedGeometryObject
+	implements GeometryObject
+{
+	/**
+	 * Batch containing the geometry.
+	 */
+	@NotNull
+	private final GeometryBatch _batch;
+
+	/**
+	 * Range of the batch containing the geometry.
+	 */
+	@NotNull
+	private final GeometryBatch.Range _range;
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param batch Batch containing the geometry.
+	 * @param range Range of the batch containing the geometry.
+	 */
+	BatchedGeometryObject( @NotNull final GeometryBatch batch, @NotNull final GeometryBatch.Range range )
+	{
+		_batch = batch;
+		_range = range;
+	}
+
+	/**
+	 * Returns the batch containing the geometry.
+	 *
+	 * @return Batch containing the geometry.
+	 */
+	@NotNull
+	public GeometryBatch getBatch()
+	{
+		return _batch;
+	}
+
+	/**
+	 * Returns the range of the batch containing the geometry.
+	 *
+	 * @return Range of the batch.
+	 */
+	@NotNull
+	public GeometryBatch.Range getRange()
+	{
+		return _range;
+	}
+
+	public void draw()
+	{
+		final GeometryBatch.Range range = _range;
+		if ( range.getIndexCount() > 0 )
+		{
+			final GL gl = GLU.getCurrentGL();
+			final GeometryBatch batch = _batch;
+			batch.bind( gl );
+			final VertexBufferObject.VertexFormat vertexFormat = batch.getVertexFormat();
+			vertexFormat.enable( gl );
+			gl.glDrawElements( batch.getMode(), range.getIndexCount(), GL.GL_UNSIGNED_INT, (long)range.getIndexOffset() * 4L );
+			vertexFormat.disable( gl );
+			batch.unbind( gl );
+		}
+	}
+
+	public boolean isInstancingSupported()
+	{
+		return true;
+	}
+
+	public void drawInstanced( final int instanceCount )
+	{
+		final GeometryBatch.Range range = _range;
+		if ( range.getIndexCount() > 0 )
+		{
+			final GL gl = GLU.getCurrentGL();
+			final GeometryBatch batch = _batch;
+			batch.bind( gl );
+			final VertexBufferObject.VertexFormat vertexFormat = batch.getVertexFormat();
+			vertexFormat.enable( gl );
+			gl.getGL2ES3().glDrawElementsInstanced( batch.getMode(), range.getIndexCount(), GL.GL_UNSIGNED_INT, (long)range.getIndexOffset() * 4L, instanceCount );
+			vertexFormat.disable( gl );
+			batch.unbind( gl );
+		}
+	}
+
+	public long getSizeInBytes()
+	{
+		final GeometryBatch.Range range = _range;
+		return (long)range.getVertexCount() * (long)_batch.getVertexFormat().getBytesPerVertex() + (long)range.getIndexCount() * 4L;
+	}
+
+	public void delete()
+	{
+		_batch.remove( _range );
+	}
+}
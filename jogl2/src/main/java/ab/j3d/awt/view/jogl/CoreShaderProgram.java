@@ -175,6 +175,15 @@ public class CoreShaderProgram
 		return infoLog;
 	}
 
+	@Override
+	public int getAttributeLocation( final String identifier )
+	{
+		final GL gl = GLU.getCurrentGL();
+		final GL2ES2 gl2 = gl.getGL2ES2();
+		link();
+		return gl2.glGetAttribLocation( _program, identifier );
+	}
+
 	@Override
 	public void enable()
 	{
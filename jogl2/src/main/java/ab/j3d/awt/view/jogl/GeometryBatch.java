@@ -0,0 +1,826 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.nio.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import ab.j3d.model.*;
+import com.jogamp.opengl.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Packs the geometry of multiple face groups into shared vertex and index
+ * buffers, such that each face group can be drawn with a single {@link
+ * GL#glDrawElements} call on a sub-range of the index buffer. Faces are
+ * stored as independent triangles, outlines as independent lines.
+ *
+ * <p>
+ * Face groups can be added and removed at any time. Added geometry is
+ * appended to the buffers; removed geometry leaves a gap until the batch is
+ * {@link #compact compacted}. Only modified parts of the buffers are uploaded
+ * to the vertex buffer objects.
+ *
+ * @author Peter S. Heijnen
+ */
+class GeometryBatch
+{
+	/**
+	 * Maximum number of vertices in a batch.
+	 */
+	public static final int MAX_VERTEX_COUNT = 1 << 20;
+
+	/**
+	 * Number of bytes per vertex index.
+	 */
+	private static final int BYTES_PER_INDEX = 4;
+
+	/**
+	 * Type of geometry in the batch.
+	 */
+	@NotNull
+	private final GeometryType _type;
+
+	/**
+	 * Vertex format used.
+	 */
+	@NotNull
+	private final VertexBufferObject.VertexFormat _vertexFormat;
+
+	/**
+	 * Vertex data.
+	 */
+	@NotNull
+	private ByteBuffer _vertexData;
+
+	/**
+	 * Index data.
+	 */
+	@NotNull
+	private ByteBuffer _indexData;
+
+	/**
+	 * Number of vertices in the batch, including unused vertices.
+	 */
+	private int _vertexCount = 0;
+
+	/**
+	 * Number of indices in the batch, including unused indices.
+	 */
+	private int _indexCount = 0;
+
+	/**
+	 * Number of vertices of removed face groups.
+	 */
+	private int _unusedVertexCount = 0;
+
+	/**
+	 * Ranges in the batch, in order of their position in the buffers.
+	 */
+	private final List<Range> _ranges = new ArrayList<Range>();
+
+	/**
+	 * Number of vertices that were uploaded to the vertex buffer object.
+	 */
+	private int _uploadedVertexCount = 0;
+
+	/**
+	 * Number of indices that were uploaded to the index buffer object.
+	 */
+	private int _uploadedIndexCount = 0;
+
+	/**
+	 * Vertex buffer object; <code>0</code> if not created yet.
+	 */
+	private int _vertexBufferObject = 0;
+
+	/**
+	 * Index buffer object; <code>0</code> if not created yet.
+	 */
+	private int _indexBufferObject = 0;
+
+	/**
+	 * Allocated size of the vertex buffer object, in bytes.
+	 */
+	private int _vertexBufferSize = 0;
+
+	/**
+	 * Allocated size of the index buffer object, in bytes.
+	 */
+	private int _indexBufferSize = 0;
+
+	/**
+	 * Constructs a new batch.
+	 *
+	 * @param type Type of geometry in the batch.
+	 */
+	GeometryBatch( @NotNull final GeometryType type )
+	{
+		_type = type;
+		_vertexFormat = ( type == GeometryType.FACES ) ? new VertexBufferObject.DefaultVertexFormat() : new VertexBufferObject.SimpleVertexFormat();
+		_vertexData = allocate( 1024 * _vertexFormat.getBytesPerVertex() );
+		_indexData = allocate( 1024 * BYTES_PER_INDEX );
+	}
+
+	/**
+	 * Returns the type of geometry in the batch.
+	 *
+	 * @return Type of geometry.
+	 */
+	@NotNull
+	public GeometryType getType()
+	{
+		return _type;
+	}
+
+	/**
+	 * Returns the vertex format used.
+	 *
+	 * @return Vertex format.
+	 */
+	@NotNull
+	public VertexBufferObject.VertexFormat getVertexFormat()
+	{
+		return _vertexFormat;
+	}
+
+	/**
+	 * Returns the OpenGL primitive type used to draw the batch.
+	 *
+	 * @return {@link GL#GL_TRIANGLES} or {@link GL#GL_LINES}.
+	 */
+	public int getMode()
+	{
+		return ( _type == GeometryType.FACES ) ? GL.GL_TRIANGLES : GL.GL_LINES;
+	}
+
+	/**
+	 * Returns the number of vertices needed to store the given face group.
+	 *
+	 * @param faceGroup Face group.
+	 *
+	 * @return Number of vertices.
+	 */
+	public static int getVertexCount( @NotNull final FaceGroup faceGroup )
+	{
+		int result = 0;
+		if ( faceGroup instanceof CompactFaceGroup )
+		{
+			result = ( (CompactFaceGroup)faceGroup ).getCornerCount();
+		}
+		else
+		{
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				result += face.getVertexCount();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether the given number of vertices can be added to the batch
+	 * without exceeding {@link #MAX_VERTEX_COUNT}.
+	 *
+	 * @param vertexCount Number of vertices to add.
+	 *
+	 * @return {@code true} if the vertices fit in the batch.
+	 */
+	public boolean canAdd( final int vertexCount )
+	{
+		return ( _vertexCount - _unusedVertexCount + vertexCount <= MAX_VERTEX_COUNT ) || ( _vertexCount == 0 );
+	}
+
+	/**
+	 * Adds the given face group to the batch.
+	 *
+	 * @param faceGroup Face group to add.
+	 *
+	 * @return Range in the batch containing the face group.
+	 */
+	@NotNull
+	public Range add( @NotNull final FaceGroup faceGroup )
+	{
+		if ( _vertexCount + getVertexCount( faceGroup ) > MAX_VERTEX_COUNT )
+		{
+			compact();
+		}
+
+		final Range result = ( faceGroup instanceof CompactFaceGroup ) ? addCompact( (CompactFaceGroup)faceGroup ) : addFaces( faceGroup );
+		_ranges.add( result );
+		return result;
+	}
+
+	/**
+	 * Adds the given face group to the batch, using {@link Face3D} instances.
+	 *
+	 * @param faceGroup Face group to add.
+	 *
+	 * @return Range in the batch containing the face group.
+	 */
+	@NotNull
+	private Range addFaces( @NotNull final FaceGroup faceGroup )
+	{
+		final boolean faces = ( _type == GeometryType.FACES );
+
+		int vertexCount = 0;
+		int indexCount = 0;
+		for ( final Face3D face : faceGroup.getFaces() )
+		{
+			vertexCount += face.getVertexCount();
+
+			if ( faces )
+			{
+				for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+				{
+					indexCount += primitive.getTriangles().length;
+				}
+			}
+			else
+			{
+				for ( final int[] outline : face.getOutlines() )
+				{
+					indexCount += Math.max( 0, outline.length - 1 ) * 2;
+				}
+			}
+		}
+
+		final VertexBufferObject.VertexFormat vertexFormat = _vertexFormat;
+		final ByteBuffer vertexData = ensureVertexCapacity( _vertexCount + vertexCount );
+		final ByteBuffer indexData = ensureIndexCapacity( _indexCount + indexCount );
+
+		final Range result = new Range( faceGroup, _vertexCount, vertexCount, _indexCount, indexCount );
+
+		vertexData.position( _vertexCount * vertexFormat.getBytesPerVertex() );
+		indexData.position( _indexCount * BYTES_PER_INDEX );
+
+		int baseVertex = _vertexCount;
+		for ( final Face3D face : faceGroup.getFaces() )
+		{
+			final int faceVertexCount = face.getVertexCount();
+			for ( int i = 0; i < faceVertexCount; i++ )
+			{
+				vertexFormat.encode( vertexData, i, face, faceGroup );
+			}
+
+			if ( faces )
+			{
+				for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+				{
+					for ( final int vertex : primitive.getTriangles() )
+					{
+						indexData.putInt( baseVertex + vertex );
+					}
+				}
+			}
+			else
+			{
+				for ( final int[] outline : face.getOutlines() )
+				{
+					for ( int i = 0; i < outline.length - 1; i++ )
+					{
+						indexData.putInt( baseVertex + outline[ i ] );
+						indexData.putInt( baseVertex + outline[ i + 1 ] );
+					}
+				}
+			}
+
+			baseVertex += faceVertexCount;
+		}
+
+		_vertexCount += vertexCount;
+		_indexCount += indexCount;
+		return result;
+	}
+
+	/**
+	 * Adds the given compact face group to the batch. The corners and
+	 * triangles of the face group are copied directly, without creating
+	 * {@link Face3D} instances.
+	 *
+	 * @param faceGroup Face group to add.
+	 *
+	 * @return Range in the batch containing the face group.
+	 */
+	@NotNull
+	private Range addCompact( @NotNull final CompactFaceGroup faceGroup )
+	{
+		final boolean faces = ( _type == GeometryType.FACES );
+		final int faceCount = faceGroup.getFaceCount();
+		final int[] faceStarts = faceGroup.getFaceStarts();
+		final int[] triangles = faceGroup.getTriangles();
+
+		final int vertexCount = faceGroup.getCornerCount();
+		int indexCount = 0;
+		if ( faces )
+		{
+			indexCount = triangles.length;
+		}
+		else
+		{
+			for ( int face = 0; face < faceCount; face++ )
+			{
+				for ( final int[] outline : faceGroup.getOutlines( face ) )
+				{
+					indexCount += Math.max( 0, outline.length - 1 ) * 2;
+				}
+			}
+		}
+
+		final VertexBufferObject.VertexFormat vertexFormat = _vertexFormat;
+		final ByteBuffer vertexData = ensureVertexCapacity( _vertexCount + vertexCount );
+		final ByteBuffer indexData = ensureIndexCapacity( _indexCount + indexCount );
+
+		final Range result = new Range( faceGroup, _vertexCount, vertexCount, _indexCount, indexCount );
+
+		vertexData.position( _vertexCount * vertexFormat.getBytesPerVertex() );
+		indexData.position( _indexCount * BYTES_PER_INDEX );
+
+		final int baseVertex = _vertexCount;
+		for ( int face = 0; face < faceCount; face++ )
+		{
+			final Vector3D faceNormal = faceGroup.getFaceNormal( face );
+			for ( int corner = faceStarts[ face ]; corner < faceStarts[ face + 1 ]; corner++ )
+			{
+				vertexFormat.encode( vertexData, corner, faceNormal, faceGroup );
+			}
+
+			if ( !faces )
+			{
+				final int faceBase = baseVertex + faceStarts[ face ];
+				for ( final int[] outline : faceGroup.getOutlines( face ) )
+				{
+					for ( int i = 0; i < outline.length - 1; i++ )
+					{
+						indexData.putInt( faceBase + outline[ i ] );
+						indexData.putInt( faceBase + outline[ i + 1 ] );
+					}
+				}
+			}
+		}
+
+		if ( faces )
+		{
+			for ( final int corner : triangles )
+			{
+				indexData.putInt( baseVertex + corner );
+			}
+		}
+
+		_vertexCount += vertexCount;
+		_indexCount += indexCount;
+		return result;
+	}
+
+	/**
+	 * Removes the given range from the batch. The space used by the range is
+	 * reclaimed when the batch is {@link #compact compacted}.
+	 *
+	 * @param range Range to remove.
+	 */
+	public void remove( @NotNull final Range range )
+	{
+		if ( !range._removed )
+		{
+			range._removed = true;
+			_unusedVertexCount += range._vertexCount;
+		}
+	}
+
+	/**
+	 * Returns whether the batch contains no face groups.
+	 *
+	 * @return {@code true} if the batch is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return _unusedVertexCount == _vertexCount;
+	}
+
+	/**
+	 * Returns whether the batch should be compacted, i.e. whether more than
+	 * half of the vertices belong to removed face groups.
+	 *
+	 * @return {@code true} if the batch should be compacted.
+	 */
+	public boolean isCompactionNeeded()
+	{
+		return ( _unusedVertexCount > 0 ) && ( _unusedVertexCount * 2 >= _vertexCount );
+	}
+
+	/**
+	 * Removes the space used by removed face groups, by moving the remaining
+	 * ranges towards the start of the buffers. Ranges are updated in place.
+	 * Only data from the first moved range onwards is uploaded again.
+	 */
+	public void compact()
+	{
+		if ( _unusedVertexCount > 0 )
+		{
+			final int bytesPerVertex = _vertexFormat.getBytesPerVertex();
+			final byte[] vertexBytes = _vertexData.array();
+			final ByteBuffer indexData = _indexData;
+			final byte[] indexBytes = indexData.array();
+
+			int vertexCount = 0;
+			int indexCount = 0;
+			int firstMovedVertex = -1;
+			int firstMovedIndex = -1;
+
+			for ( final Iterator<Range> iterator = _ranges.iterator(); iterator.hasNext(); )
+			{
+				final Range range = iterator.next();
+				if ( range._removed )
+				{
+					iterator.remove();
+				}
+				else
+				{
+					final int vertexShift = range._vertexOffset - vertexCount;
+					if ( vertexShift > 0 )
+					{
+						if ( firstMovedVertex < 0 )
+						{
+							firstMovedVertex = vertexCount;
+						}
+						System.arraycopy( vertexBytes, range._vertexOffset * bytesPerVertex, vertexBytes, vertexCount * bytesPerVertex, range._vertexCount * bytesPerVertex );
+					}
+
+					if ( ( firstMovedIndex < 0 ) && ( ( vertexShift > 0 ) || ( range._indexOffset != indexCount ) ) )
+					{
+						firstMovedIndex = indexCount;
+					}
+
+					if ( range._indexOffset != indexCount )
+					{
+						System.arraycopy( indexBytes, range._indexOffset * BYTES_PER_INDEX, indexBytes, indexCount * BYTES_PER_INDEX, range._indexCount * BYTES_PER_INDEX );
+					}
+
+					if ( vertexShift > 0 )
+					{
+						for ( int i = indexCount; i < indexCount + range._indexCount; i++ )
+						{
+							final int position = i * BYTES_PER_INDEX;
+							indexData.putInt( position, indexData.getInt( position ) - vertexShift );
+						}
+					}
+
+					range._vertexOffset = vertexCount;
+					range._indexOffset = indexCount;
+					vertexCount += range._vertexCount;
+					indexCount += range._indexCount;
+				}
+			}
+
+			_vertexCount = vertexCount;
+			_indexCount = indexCount;
+			_unusedVertexCount = 0;
+			_uploadedVertexCount = Math.min( _uploadedVertexCount, ( firstMovedVertex < 0 ) ? vertexCount : firstMovedVertex );
+			_uploadedIndexCount = Math.min( _uploadedIndexCount, ( firstMovedIndex < 0 ) ? indexCount : firstMovedIndex );
+		}
+	}
+
+	/**
+	 * Returns the number of vertices in the batch, including vertices of
+	 * removed face groups.
+	 *
+	 * @return Number of vertices.
+	 */
+	public int getVertexCount()
+	{
+		return _vertexCount;
+	}
+
+	/**
+	 * Returns the number of vertices of removed face groups.
+	 *
+	 * @return Number of unused vertices.
+	 */
+	public int getUnusedVertexCount()
+	{
+		return _unusedVertexCount;
+	}
+
+	/**
+	 * Returns the number of indices in the batch, including indices of removed
+	 * face groups.
+	 *
+	 * @return Number of indices.
+	 */
+	public int getIndexCount()
+	{
+		return _indexCount;
+	}
+
+	/**
+	 * Returns the vertex data of the batch.
+	 *
+	 * @return Vertex data; a read-only buffer from the start of the data up to
+	 * the last vertex.
+	 */
+	@NotNull
+	public ByteBuffer getVertexData()
+	{
+		final ByteBuffer result = _vertexData.asReadOnlyBuffer();
+		result.order( ByteOrder.LITTLE_ENDIAN );
+		result.position( 0 );
+		result.limit( _vertexCount * _vertexFormat.getBytesPerVertex() );
+		return result;
+	}
+
+	/**
+	 * Returns the index data of the batch.
+	 *
+	 * @return Index data; a read-only buffer from the start of the data up to
+	 * the last index.
+	 */
+	@NotNull
+	public ByteBuffer getIndexData()
+	{
+		final ByteBuffer result = _indexData.asReadOnlyBuffer();
+		result.order( ByteOrder.LITTLE_ENDIAN );
+		result.position( 0 );
+		result.limit( _indexCount * BYTES_PER_INDEX );
+		return result;
+	}
+
+	/**
+	 * Binds the vertex and index buffer objects of the batch, uploading any
+	 * data that was added or moved since the last upload.
+	 *
+	 * @param gl OpenGL interface.
+	 */
+	public void bind( @NotNull final GL gl )
+	{
+		if ( _vertexBufferObject == 0 )
+		{
+			final int[] ids = new int[ 2 ];
+			gl.glGenBuffers( ids.length, ids, 0 );
+			_vertexBufferObject = ids[ 0 ];
+			_indexBufferObject = ids[ 1 ];
+		}
+
+		final int bytesPerVertex = _vertexFormat.getBytesPerVertex();
+
+		gl.glBindBuffer( GL.GL_ARRAY_BUFFER, _vertexBufferObject );
+		final ByteBuffer vertexData = _vertexData;
+		if ( _vertexBufferSize != vertexData.capacity() )
+		{
+			vertexData.clear();
+			gl.glBufferData( GL.GL_ARRAY_BUFFER, (long)vertexData.capacity(), vertexData, GL.GL_STATIC_DRAW );
+			_vertexBufferSize = vertexData.capacity();
+			_uploadedVertexCount = _vertexCount;
+		}
+		else if ( _uploadedVertexCount < _vertexCount )
+		{
+			vertexData.limit( _vertexCount * bytesPerVertex );
+			vertexData.position( _uploadedVertexCount * bytesPerVertex );
+			gl.glBufferSubData( GL.GL_ARRAY_BUFFER, (long)vertexData.position(), (long)vertexData.remaining(), vertexData );
+			_uploadedVertexCount = _vertexCount;
+		}
+
+		gl.glBindBuffer( GL.GL_ELEMENT_ARRAY_BUFFER, _indexBufferObject );
+		final ByteBuffer indexData = _indexData;
+		if ( _indexBufferSize != indexData.capacity() )
+		{
+			indexData.clear();
+			gl.glBufferData( GL.GL_ELEMENT_ARRAY_BUFFER, (long)indexData.capacity(), indexData, GL.GL_STATIC_DRAW );
+			_indexBufferSize = indexData.capacity();
+			_uploadedIndexCount = _indexCount;
+		}
+		else if ( _uploadedIndexCount < _indexCount )
+		{
+			indexData.limit( _indexCount * BYTES_PER_INDEX );
+			indexData.position( _uploadedIndexCount * BYTES_PER_INDEX );
+			gl.glBufferSubData( GL.GL_ELEMENT_ARRAY_BUFFER, (long)indexData.position(), (long)indexData.remaining(), indexData );
+			_uploadedIndexCount = _indexCount;
+		}
+	}
+
+	/**
+	 * Unbinds the vertex and index buffer objects.
+	 *
+	 * @param gl OpenGL interface.
+	 */
+	public void unbind( @NotNull final GL gl )
+	{
+		gl.glBindBuffer( GL.GL_ELEMENT_ARRAY_BUFFER, 0 );
+		gl.glBindBuffer( GL.GL_ARRAY_BUFFER, 0 );
+	}
+
+	/**
+	 * Deletes the vertex and index buffer objects of the batch, if any.
+	 *
+	 * @param gl OpenGL interface.
+	 */
+	public void delete( @NotNull final GL gl )
+	{
+		if ( _vertexBufferObject != 0 )
+		{
+			gl.glDeleteBuffers( 2, new int[] { _vertexBufferObject, _indexBufferObject }, 0 );
+			_vertexBufferObject = 0;
+			_indexBufferObject = 0;
+			_vertexBufferSize = 0;
+			_indexBufferSize = 0;
+		}
+	}
+
+	/**
+	 * Ensures that the vertex data can hold the given number of vertices.
+	 *
+	 * @param vertexCount Number of vertices.
+	 *
+	 * @return Vertex data.
+	 */
+	private ByteBuffer ensureVertexCapacity( final int vertexCount )
+	{
+		ByteBuffer result = _vertexData;
+		final int size = vertexCount * _vertexFormat.getBytesPerVertex();
+		if ( size > result.capacity() )
+		{
+			final ByteBuffer grown = allocate( Math.max( size, result.capacity() * 2 ) );
+			System.arraycopy( result.array(), 0, grown.array(), 0, _vertexCount * _vertexFormat.getBytesPerVertex() );
+			result = grown;
+			_vertexData = result;
+		}
+		result.clear();
+		return result;
+	}
+
+	/**
+	 * Ensures that the index data can hold the given number of indices.
+	 *
+	 * @param indexCount Number of indices.
+	 *
+	 * @return Index data.
+	 */
+	private ByteBuffer ensureIndexCapacity( final int indexCount )
+	{
+		ByteBuffer result = _indexData;
+		final int size = indexCount * BYTES_PER_INDEX;
+		if ( size > result.capacity() )
+		{
+			final ByteBuffer grown = allocate( Math.max( size, result.capacity() * 2 ) );
+			System.arraycopy( result.array(), 0, grown.array(), 0, _indexCount * BYTES_PER_INDEX );
+			result = grown;
+			_indexData = result;
+		}
+		result.clear();
+		return result;
+	}
+
+	/**
+	 * Allocates a buffer for vertex or index data.
+	 *
+	 * @param capacity Capacity in bytes.
+	 *
+	 * @return Byte buffer.
+	 */
+	private static ByteBuffer allocate( final int capacity )
+	{
+		final ByteBuffer result = ByteBuffer.allocate( capacity );
+		result.order( ByteOrder.LITTLE_ENDIAN );
+		return result;
+	}
+
+	/**
+	 * Range of a batch that contains the geometry of a single face group.
+	 */
+	public static class Range
+	{
+		/**
+		 * Face group stored in the range.
+		 */
+		@NotNull
+		private final FaceGroup _faceGroup;
+
+		/**
+		 * Index of the first vertex.
+		 */
+		private int _vertexOffset;
+
+		/**
+		 * Number of vertices.
+		 */
+		private final int _vertexCount;
+
+		/**
+		 * Index of the first vertex index.
+		 */
+		private int _indexOffset;
+
+		/**
+		 * Number of vertex indices.
+		 */
+		private final int _indexCount;
+
+		/**
+		 * Whether the range was removed from the batch.
+		 */
+		private boolean _removed = false;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param faceGroup    Face group stored in the range.
+		 * @param vertexOffset Index of the first vertex.
+		 * @param vertexCount  Number of vertices.
+		 * @param indexOffset  Index of the first vertex index.
+		 * @param indexCount   Number of vertex indices.
+		 */
+		Range( @NotNull final FaceGroup faceGroup, final int vertexOffset, final int vertexCount, final int indexOffset, final int indexCount )
+		{
+			_faceGroup = faceGroup;
+			_vertexOffset = vertexOffset;
+			_vertexCount = vertexCount;
+			_indexOffset = indexOffset;
+			_indexCount = indexCount;
+		}
+
+		/**
+		 * Returns the face group stored in the range.
+		 *
+		 * @return Face group.
+		 */
+		@NotNull
+		public FaceGroup getFaceGroup()
+		{
+			return _faceGroup;
+		}
+
+		/**
+		 * Returns the index of the first vertex.
+		 *
+		 * @return Index of the first vertex.
+		 */
+		public int getVertexOffset()
+		{
+			return _vertexOffset;
+		}
+
+		/**
+		 * Returns the number of vertices.
+		 *
+		 * @return Number of vertices.
+		 */
+		public int getVertexCount()
+		{
+			return _vertexCount;
+		}
+
+		/**
+		 * Returns the index of the first vertex index. This changes when the
+		 * batch is compacted.
+		 *
+		 * @return Index of the first vertex index.
+		 */
+		public int getIndexOffset()
+		{
+			return _indexOffset;
+		}
+
+		/**
+		 * Returns the number of vertex indices.
+		 *
+		 * @return Number of vertex indices.
+		 */
+		public int getIndexCount()
+		{
+			return _indexCount;
+		}
+
+		/**
+		 * Returns whether the range was removed from the batch.
+		 *
+		 * @return {@code true} if the range was removed.
+		 */
+		public boolean isRemoved()
+		{
+			return _removed;
+		}
+
+		@Override
+		public String toString()
+		{
+			return getClass().getName() + "[vertexOffset=" + _vertexOffset + ", vertexCount=" + _vertexCount + ", indexOffset=" + _indexOffset + ", indexCount=" + _indexCount + ( _removed ? ", removed]" : "]" );
+		}
+	}
+}
@@ -34,6 +34,34 @@ public interface GeometryObject
 	 */
 	void draw();
 
+	/**
+	 * Returns whether this object supports instanced drawing, i.e. whether
+	 * {@link #drawInstanced} may be used.
+	 *
+	 * @return  <code>true</code> if instanced drawing is supported.
+	 */
+	boolean isInstancingSupported();
+
+	/**
+	 * Draws multiple instances of the geometry represented by this object
+	 * using a single draw call. Per-instance attributes must be set up by the
+	 * caller.
+	 *
+	 * @param   instanceCount   Number of instances to draw.
+	 *
+	 * @throws  UnsupportedOperationException if instanced drawing is not
+	 *          supported.
+	 */
+	void drawInstanced( int instanceCount );
+
+	/**
+	 * Returns the amount of (video) memory used by this object, i.e. the
+	 * number of bytes uploaded to the GPU.
+	 *
+	 * @return  Size in bytes; <code>0</code> if no memory is used.
+	 */
+	long getSizeInBytes();
+
 	/**
 	 * Deletes the resources allocated for this object.
 	 */
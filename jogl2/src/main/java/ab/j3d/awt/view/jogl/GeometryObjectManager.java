@@ -23,12 +23,30 @@ package ab.j3d.awt.view.jogl;
 
 import java.util.*;
 
+import ab.j3d.appearance.*;
 import ab.j3d.model.*;
+import com.jogamp.opengl.*;
+import com.jogamp.opengl.glu.*;
 import org.jetbrains.annotations.*;
 
 /**
  * Provides geometry objects, which are automatically created when first
- * requested and deleted when no longer in use.
+ * requested and cached until they are evicted.
+ *
+ * <p>
+ * Geometry objects are evicted in least-recently-used order when the total
+ * size of the cache exceeds the {@link #setCacheSize cache size}, or when an
+ * object was not used for {@link #setMaximumUnusedFrames a number of frames}.
+ * Objects used during the current frame are never evicted. To avoid stalls
+ * when a lot of new geometry becomes visible at once, the amount of data
+ * uploaded per frame is limited by an {@link #setUploadBudget upload budget};
+ * geometry that exceeds the budget is rendered in immediate mode until it is
+ * uploaded during a later frame.
+ *
+ * <p>
+ * If batching is enabled, the geometry of face groups with the same
+ * appearance is packed into shared {@link GeometryBatch}es, instead of
+ * creating separate vertex buffer objects for each face group.
  *
  * @author  G. Meinders
  * @version $Revision$ $Date$
@@ -41,14 +59,73 @@ public class GeometryObjectManager
 	private final GeometryObjectFactory _geometryObjectFactory;
 
 	/**
-	 * Geometry objects being managed.
+	 * Default maximum total size of cached geometry objects, in bytes.
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 256L * 1024L * 1024L;
+
+	/**
+	 * Default maximum number of bytes to upload per frame.
+	 */
+	public static final long DEFAULT_UPLOAD_BUDGET = 32L * 1024L * 1024L;
+
+	/**
+	 * Default number of frames after which unused geometry objects are
+	 * evicted.
+	 */
+	public static final int DEFAULT_MAXIMUM_UNUSED_FRAMES = 3600;
+
+	/**
+	 * Geometry objects being managed, in least-recently-used order.
+	 */
+	private final LinkedHashMap<Key, CacheEntry> _geometryObjects = new LinkedHashMap<Key, CacheEntry>( 16, 0.75f, true );
+
+	/**
+	 * Immediate mode geometry objects used during the current frame, because
+	 * the upload budget was exceeded.
+	 */
+	private final Map<Key, GeometryObject> _deferredGeometryObjects = new HashMap<Key, GeometryObject>();
+
+	/**
+	 * Maximum total size of cached geometry objects, in bytes.
+	 */
+	private long _cacheSize = DEFAULT_CACHE_SIZE;
+
+	/**
+	 * Maximum number of bytes to upload per frame; <code>0</code> for no
+	 * limit.
+	 */
+	private long _uploadBudget = DEFAULT_UPLOAD_BUDGET;
+
+	/**
+	 * Number of frames after which unused geometry objects are evicted.
+	 */
+	private int _maximumUnusedFrames = DEFAULT_MAXIMUM_UNUSED_FRAMES;
+
+	/**
+	 * Number of the current frame.
+	 */
+	private int _frameNumber = 0;
+
+	/**
+	 * Number of bytes uploaded during the current frame.
+	 */
+	private long _frameUploadedBytes = 0L;
+
+	/**
+	 * Cache statistics.
 	 */
-	private final Map<Key, GeometryObject> _geometryObjects = new HashMap<Key, GeometryObject>();
+	private final Statistics _statistics = new Statistics();
 
 	/**
-	 * Geometry objects that were not used during the last frame.
+	 * Whether face groups should be packed into shared batches.
 	 */
-	private final Set<Key> _unusedGeometryObjects = new HashSet<Key>();
+	private boolean _batchingEnabled = false;
+
+	/**
+	 * Batches by geometry type and appearance (for faces only). The last batch
+	 * in each list is used to add new face groups.
+	 */
+	private final Map<BatchKey, List<GeometryBatch>> _batches = new HashMap<BatchKey, List<GeometryBatch>>();
 
 	/**
 	 * Constructs a new manager for geometry objects.
@@ -68,6 +145,107 @@ public class GeometryObjectManager
 		_geometryObjectFactory = geometryObjectFactory;
 	}
 
+	/**
+	 * Returns whether face groups are packed into shared batches.
+	 *
+	 * @return  <code>true</code> if batching is enabled.
+	 */
+	public boolean isBatchingEnabled()
+	{
+		return _batchingEnabled;
+	}
+
+	/**
+	 * Sets whether face groups should be packed into shared batches. Batching
+	 * is only used when vertex buffer objects are supported. Changing this
+	 * setting only affects geometry objects that are created afterwards.
+	 *
+	 * @param   batchingEnabled     <code>true</code> to enable batching.
+	 */
+	public void setBatchingEnabled( final boolean batchingEnabled )
+	{
+		_batchingEnabled = batchingEnabled;
+	}
+
+	/**
+	 * Returns the maximum total size of cached geometry objects.
+	 *
+	 * @return  Cache size in bytes.
+	 */
+	public long getCacheSize()
+	{
+		return _cacheSize;
+	}
+
+	/**
+	 * Sets the maximum total size of cached geometry objects. The cache may
+	 * temporarily exceed this size if the geometry needed for a single frame
+	 * doesn't fit.
+	 *
+	 * @param   cacheSize   Cache size in bytes.
+	 */
+	public void setCacheSize( final long cacheSize )
+	{
+		_cacheSize = cacheSize;
+	}
+
+	/**
+	 * Returns the maximum number of bytes to upload per frame.
+	 *
+	 * @return  Upload budget in bytes; <code>0</code> for no limit.
+	 */
+	public long getUploadBudget()
+	{
+		return _uploadBudget;
+	}
+
+	/**
+	 * Sets the maximum number of bytes to upload per frame. The budget is
+	 * checked before each upload, so the last upload of a frame may exceed
+	 * it.
+	 *
+	 * @param   uploadBudget    Upload budget in bytes; <code>0</code> for no
+	 *                          limit.
+	 */
+	public void setUploadBudget( final long uploadBudget )
+	{
+		_uploadBudget = uploadBudget;
+	}
+
+	/**
+	 * Returns the number of frames after which unused geometry objects are
+	 * evicted.
+	 *
+	 * @return  Maximum number of frames that an object may be unused.
+	 */
+	public int getMaximumUnusedFrames()
+	{
+		return _maximumUnusedFrames;
+	}
+
+	/**
+	 * Sets the number of frames after which unused geometry objects are
+	 * evicted, regardless of the cache size.
+	 *
+	 * @param   maximumUnusedFrames     Maximum number of frames that an object
+	 *                                  may be unused.
+	 */
+	public void setMaximumUnusedFrames( final int maximumUnusedFrames )
+	{
+		_maximumUnusedFrames = maximumUnusedFrames;
+	}
+
+	/**
+	 * Returns cache statistics.
+	 *
+	 * @return  Cache statistics.
+	 */
+	@NotNull
+	public Statistics getStatistics()
+	{
+		return _statistics;
+	}
+
 	/**
 	 * Returns a geometry object for the given faces.
 	 *
@@ -79,28 +257,177 @@ public class GeometryObjectManager
 	@NotNull
 	public GeometryObject getGeometryObject( @NotNull final FaceGroup faceGroup, @NotNull final GeometryType type )
 	{
-		final Map<Key, GeometryObject> geometryObjects = _geometryObjects;
+		final Statistics statistics = _statistics;
 
 		final Key key = new Key( faceGroup, type );
-		GeometryObject result = geometryObjects.get( key );
+		final CacheEntry entry = _geometryObjects.get( key );
 
-		if ( result == null )
+		final GeometryObject result;
+		if ( entry != null )
 		{
-			result = _geometryObjectFactory.newGeometryObject( Collections.singletonList( faceGroup ), type );
-			geometryObjects.put( key, result );
+			entry._lastUsedFrame = _frameNumber;
+			statistics._hits++;
+			result = entry._geometryObject;
 		}
+		else
+		{
+			final GeometryObject deferred = _deferredGeometryObjects.get( key );
+			if ( deferred != null )
+			{
+				result = deferred;
+			}
+			else
+			{
+				statistics._misses++;
+
+				final long uploadBudget = _uploadBudget;
+				if ( ( uploadBudget > 0L ) && ( _frameUploadedBytes >= uploadBudget ) )
+				{
+					statistics._deferred++;
+					result = new ImmediateModeGeometryObject( Collections.singletonList( faceGroup ), type );
+					_deferredGeometryObjects.put( key, result );
+				}
+				else
+				{
+					if ( _batchingEnabled && ( _geometryObjectFactory.getImplementation() == GeometryObjectFactory.Implementation.VERTEX_BUFFER_OBJECT_CORE ) )
+					{
+						result = newBatchedGeometryObject( faceGroup, type );
+					}
+					else
+					{
+						result = _geometryObjectFactory.newGeometryObject( Collections.singletonList( faceGroup ), type );
+					}
 
-		_unusedGeometryObjects.remove( key );
+					final long size = result.getSizeInBytes();
+					_frameUploadedBytes += size;
+					statistics._uploadedBytes += size;
+					statistics._residentBytes += size;
+					statistics._residentObjects++;
+
+					_geometryObjects.put( key, new CacheEntry( result, size, _frameNumber ) );
+				}
+			}
+		}
 
 		return result;
 	}
 
+	/**
+	 * Creates a geometry object for the given face group in a shared batch.
+	 *
+	 * @param   faceGroup   Faces to be included in the geometry.
+	 * @param   type        Type of geometry.
+	 *
+	 * @return  Geometry object.
+	 */
+	@NotNull
+	private GeometryObject newBatchedGeometryObject( @NotNull final FaceGroup faceGroup, @NotNull final GeometryType type )
+	{
+		final BatchKey batchKey = new BatchKey( ( type == GeometryType.FACES ) ? faceGroup.getAppearance() : null, type );
+		List<GeometryBatch> batches = _batches.get( batchKey );
+		if ( batches == null )
+		{
+			batches = new ArrayList<GeometryBatch>();
+			_batches.put( batchKey, batches );
+		}
+
+		GeometryBatch batch = batches.isEmpty() ? null : batches.get( batches.size() - 1 );
+		if ( ( batch == null ) || !batch.canAdd( GeometryBatch.getVertexCount( faceGroup ) ) )
+		{
+			batch = new GeometryBatch( type );
+			batches.add( batch );
+		}
+
+		return new BatchedGeometryObject( batch, batch.add( faceGroup ) );
+	}
+
 	/**
 	 * Notifies the manager that a frame was just rendered.
 	 */
 	public void frameRendered()
 	{
-		deleteUnusedObjects( _geometryObjects, _unusedGeometryObjects );
+		final Map<Key, GeometryObject> deferredGeometryObjects = _deferredGeometryObjects;
+		if ( !deferredGeometryObjects.isEmpty() )
+		{
+			for ( final GeometryObject geometryObject : deferredGeometryObjects.values() )
+			{
+				geometryObject.delete();
+			}
+			deferredGeometryObjects.clear();
+		}
+
+		evictObjects();
+		updateBatches();
+
+		_frameNumber++;
+		_frameUploadedBytes = 0L;
+	}
+
+	/**
+	 * Evicts least-recently-used geometry objects that were not used during
+	 * the current frame, while the cache exceeds its size or the objects
+	 * exceed the maximum number of unused frames.
+	 */
+	private void evictObjects()
+	{
+		final Statistics statistics = _statistics;
+		final int frameNumber = _frameNumber;
+
+		for ( final Iterator<CacheEntry> iterator = _geometryObjects.values().iterator(); iterator.hasNext(); )
+		{
+			final CacheEntry entry = iterator.next();
+			final int unusedFrames = frameNumber - entry._lastUsedFrame;
+
+			/*
+			 * Entries are in access order, so all remaining entries were used
+			 * more recently.
+			 */
+			if ( ( unusedFrames == 0 ) || ( ( statistics._residentBytes <= _cacheSize ) && ( unusedFrames <= _maximumUnusedFrames ) ) )
+			{
+				break;
+			}
+
+			iterator.remove();
+			entry._geometryObject.delete();
+			statistics._residentBytes -= entry._size;
+			statistics._residentObjects--;
+			statistics._evictions++;
+		}
+	}
+
+	/**
+	 * Deletes empty batches and compacts batches with many removed face
+	 * groups.
+	 */
+	private void updateBatches()
+	{
+		if ( !_batches.isEmpty() )
+		{
+			final GL gl = GLU.getCurrentGL();
+
+			for ( final Iterator<List<GeometryBatch>> listIterator = _batches.values().iterator(); listIterator.hasNext(); )
+			{
+				final List<GeometryBatch> batches = listIterator.next();
+				for ( final Iterator<GeometryBatch> iterator = batches.iterator(); iterator.hasNext(); )
+				{
+					final GeometryBatch batch = iterator.next();
+					if ( batch.isEmpty() )
+					{
+						batch.delete( gl );
+						iterator.remove();
+					}
+					else if ( batch.isCompactionNeeded() )
+					{
+						batch.compact();
+					}
+				}
+
+				if ( batches.isEmpty() )
+				{
+					listIterator.remove();
+				}
+			}
+		}
 	}
 
 	/**
@@ -108,30 +435,200 @@ public class GeometryObjectManager
 	 */
 	public void dispose()
 	{
-		for ( final GeometryObject geometryObject : _geometryObjects.values() )
+		for ( final CacheEntry entry : _geometryObjects.values() )
 		{
-			geometryObject.delete();
+			entry._geometryObject.delete();
 		}
 		_geometryObjects.clear();
 
-		_unusedGeometryObjects.clear();
+		for ( final GeometryObject geometryObject : _deferredGeometryObjects.values() )
+		{
+			geometryObject.delete();
+		}
+		_deferredGeometryObjects.clear();
+
+		_statistics._residentBytes = 0L;
+		_statistics._residentObjects = 0;
+
+		if ( !_batches.isEmpty() )
+		{
+			final GL gl = GLU.getCurrentGL();
+			for ( final List<GeometryBatch> batches : _batches.values() )
+			{
+				for ( final GeometryBatch batch : batches )
+				{
+					batch.delete( gl );
+				}
+			}
+			_batches.clear();
+		}
 	}
 
 	/**
-	 * Deletes unused geometry objects based on the given set of keys.
-	 *
-	 * @param   geometryObjects     Map of geometry objects.
-	 * @param   unusedKeys          Keys that were not rendered.
+	 * Cached geometry object.
 	 */
-	private static <K> void deleteUnusedObjects( final Map<K, GeometryObject> geometryObjects, final Set<K> unusedKeys )
+	private static class CacheEntry
 	{
-		for ( final K key : unusedKeys )
+		/**
+		 * Geometry object.
+		 */
+		private final GeometryObject _geometryObject;
+
+		/**
+		 * Size of the geometry object in bytes.
+		 */
+		private final long _size;
+
+		/**
+		 * Number of the last frame in which the object was used.
+		 */
+		private int _lastUsedFrame;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param   geometryObject  Geometry object.
+		 * @param   size            Size of the geometry object in bytes.
+		 * @param   frameNumber     Number of the current frame.
+		 */
+		private CacheEntry( final GeometryObject geometryObject, final long size, final int frameNumber )
 		{
-			final GeometryObject geometryObject = geometryObjects.remove( key );
-			geometryObject.delete();
+			_geometryObject = geometryObject;
+			_size = size;
+			_lastUsedFrame = frameNumber;
+		}
+	}
+
+	/**
+	 * Provides information about the use of the geometry object cache. All
+	 * counters are cumulative, until {@link #reset} is called.
+	 */
+	public static class Statistics
+	{
+		/**
+		 * Number of requests served from the cache.
+		 */
+		private long _hits = 0L;
+
+		/**
+		 * Number of requests for geometry that was not cached.
+		 */
+		private long _misses = 0L;
+
+		/**
+		 * Number of misses that were rendered in immediate mode, because the
+		 * upload budget was exceeded.
+		 */
+		private long _deferred = 0L;
+
+		/**
+		 * Number of evicted geometry objects.
+		 */
+		private long _evictions = 0L;
+
+		/**
+		 * Number of bytes uploaded.
+		 */
+		private long _uploadedBytes = 0L;
+
+		/**
+		 * Total size of cached geometry objects.
+		 */
+		private long _residentBytes = 0L;
+
+		/**
+		 * Number of cached geometry objects.
+		 */
+		private int _residentObjects = 0;
+
+		/**
+		 * Returns the number of requests served from the cache.
+		 *
+		 * @return  Number of cache hits.
+		 */
+		public long getHits()
+		{
+			return _hits;
+		}
+
+		/**
+		 * Returns the number of requests for geometry that was not cached.
+		 *
+		 * @return  Number of cache misses.
+		 */
+		public long getMisses()
+		{
+			return _misses;
+		}
+
+		/**
+		 * Returns the number of misses that were rendered in immediate mode,
+		 * because the upload budget of the frame was exceeded.
+		 *
+		 * @return  Number of deferred uploads.
+		 */
+		public long getDeferred()
+		{
+			return _deferred;
+		}
+
+		/**
+		 * Returns the number of evicted geometry objects.
+		 *
+		 * @return  Number of evictions.
+		 */
+		public long getEvictions()
+		{
+			return _evictions;
+		}
+
+		/**
+		 * Returns the number of bytes uploaded.
+		 *
+		 * @return  Number of bytes uploaded.
+		 */
+		public long getUploadedBytes()
+		{
+			return _uploadedBytes;
+		}
+
+		/**
+		 * Returns the total size of the geometry objects currently cached.
+		 *
+		 * @return  Size in bytes.
+		 */
+		public long getResidentBytes()
+		{
+			return _residentBytes;
+		}
+
+		/**
+		 * Returns the number of geometry objects currently cached.
+		 *
+		 * @return  Number of geometry objects.
+		 */
+		public int getResidentObjects()
+		{
+			return _residentObjects;
+		}
+
+		/**
+		 * Resets the cumulative counters.
+		 */
+		public void reset()
+		{
+			_hits = 0L;
+			_misses = 0L;
+			_deferred = 0L;
+			_evictions = 0L;
+			_uploadedBytes = 0L;
+		}
+
+		@Override
+		public String toString()
+		{
+			return getClass().getName() + "[hits=" + _hits + ", misses=" + _misses + ", deferred=" + _deferred + ", evictions=" + _evictions + ", uploadedBytes=" + _uploadedBytes + ", residentBytes=" + _residentBytes + ", residentObjects=" + _residentObjects + ']';
 		}
-		unusedKeys.clear();
-		unusedKeys.addAll( geometryObjects.keySet() );
 	}
 
 	/**
@@ -185,4 +682,56 @@ public class GeometryObjectManager
 		}
 
 	}
+
+	/**
+	 * Key by which {@link GeometryBatch}es are mapped.
+	 */
+	private static class BatchKey
+	{
+		/**
+		 * Appearance of face groups in the batch.
+		 */
+		@Nullable
+		private final Appearance _appearance;
+
+		/**
+		 * Type of geometry.
+		 */
+		private final GeometryType _type;
+
+		/**
+		 * Construct key.
+		 *
+		 * @param   appearance  Appearance of face groups in the batch.
+		 * @param   type        Type of geometry.
+		 */
+		private BatchKey( @Nullable final Appearance appearance, final GeometryType type )
+		{
+			_appearance = appearance;
+			_type = type;
+		}
+
+		public boolean equals( final Object obj )
+		{
+			final boolean result;
+
+			if ( obj instanceof BatchKey )
+			{
+				final BatchKey other = (BatchKey)obj;
+				result = ( _type == other._type ) && ( ( _appearance != null ) ? _appearance.equals( other._appearance ) : ( other._appearance == null ) );
+			}
+			else
+			{
+				result = false;
+			}
+
+			return result;
+		}
+
+		public int hashCode()
+		{
+			return ( ( _appearance != null ) ? _appearance.hashCode() : 0 ) ^
+			       ( ( _type != null ) ? _type.hashCode() : 0 );
+		}
+	}
 }
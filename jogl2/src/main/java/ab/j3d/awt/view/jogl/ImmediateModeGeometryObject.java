@@ -258,6 +258,21 @@ public class ImmediateModeGeometryObject
 		}
 	}
 
+	public boolean isInstancingSupported()
+	{
+		return false;
+	}
+
+	public void drawInstanced( final int instanceCount )
+	{
+		throw new UnsupportedOperationException( "Instanced drawing is not supported in immediate mode." );
+	}
+
+	public long getSizeInBytes()
+	{
+		return 0L;
+	}
+
 	public void delete()
 	{
 		// Not applicable.
@@ -0,0 +1,206 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.nio.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Packs the transforms of multiple instances of an object into a buffer of
+ * per-instance vertex attributes. Each transform is stored as a 4x4 matrix of
+ * floats in column-major order, as expected by OpenGL (see {@link
+ * JOGLTools#glMultMatrixd}). It is followed by the normal matrix of the
+ * instance, i.e. the inverse transpose of the upper-left 3x3 part of the
+ * transform, also in column-major order, with each column padded to four
+ * floats. The normal matrix keeps normals perpendicular to surfaces when a
+ * transform scales non-uniformly. The buffer is reused and only grows when
+ * needed.
+ *
+ * @author Peter S. Heijnen
+ */
+class InstanceTransformBuffer
+{
+	/**
+	 * Number of floats per instance.
+	 */
+	public static final int FLOATS_PER_INSTANCE = 28;
+
+	/**
+	 * Offset of the normal matrix of an instance, in floats.
+	 */
+	public static final int NORMAL_MATRIX_OFFSET = 16;
+
+	/**
+	 * Number of bytes per instance.
+	 */
+	public static final int BYTES_PER_INSTANCE = FLOATS_PER_INSTANCE * 4;
+
+	/**
+	 * Buffer with packed transforms.
+	 */
+	@NotNull
+	private FloatBuffer _buffer;
+
+	/**
+	 * Number of instances in the buffer.
+	 */
+	private int _instanceCount = 0;
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param initialCapacity Initial capacity, in instances.
+	 */
+	InstanceTransformBuffer( final int initialCapacity )
+	{
+		_buffer = allocate( Math.max( 1, initialCapacity ) );
+	}
+
+	/**
+	 * Packs the transforms of the given paths into the buffer, replacing any
+	 * previous content.
+	 *
+	 * @param paths Paths to the instances.
+	 */
+	public void pack( @NotNull final List<Node3DPath> paths )
+	{
+		final int instanceCount = paths.size();
+
+		FloatBuffer buffer = _buffer;
+		if ( buffer.capacity() < instanceCount * FLOATS_PER_INSTANCE )
+		{
+			buffer = allocate( Math.max( instanceCount, buffer.capacity() / FLOATS_PER_INSTANCE * 2 ) );
+			_buffer = buffer;
+		}
+
+		buffer.clear();
+		for ( int i = 0; i < instanceCount; i++ )
+		{
+			final Matrix3D transform = paths.get( i ).getTransform();
+			buffer.put( (float)transform.xx );
+			buffer.put( (float)transform.yx );
+			buffer.put( (float)transform.zx );
+			buffer.put( 0.0f );
+			buffer.put( (float)transform.xy );
+			buffer.put( (float)transform.yy );
+			buffer.put( (float)transform.zy );
+			buffer.put( 0.0f );
+			buffer.put( (float)transform.xz );
+			buffer.put( (float)transform.yz );
+			buffer.put( (float)transform.zz );
+			buffer.put( 0.0f );
+			buffer.put( (float)transform.xo );
+			buffer.put( (float)transform.yo );
+			buffer.put( (float)transform.zo );
+			buffer.put( 1.0f );
+			putNormalMatrix( buffer, transform );
+		}
+		buffer.flip();
+
+		_instanceCount = instanceCount;
+	}
+
+	/**
+	 * Puts the normal matrix for the given transform in the buffer. This is
+	 * the inverse transpose of the upper-left 3x3 part of the transform, which
+	 * equals the matrix of cofactors divided by the determinant.
+	 *
+	 * @param buffer    Buffer to put the normal matrix in.
+	 * @param transform Transform of the instance.
+	 */
+	private static void putNormalMatrix( @NotNull final FloatBuffer buffer, @NotNull final Matrix3D transform )
+	{
+		final double xx = transform.xx;
+		final double xy = transform.xy;
+		final double xz = transform.xz;
+		final double yx = transform.yx;
+		final double yy = transform.yy;
+		final double yz = transform.yz;
+		final double zx = transform.zx;
+		final double zy = transform.zy;
+		final double zz = transform.zz;
+
+		final double cxx = yy * zz - yz * zy;
+		final double cxy = yz * zx - yx * zz;
+		final double cxz = yx * zy - yy * zx;
+		final double determinant = xx * cxx + xy * cxy + xz * cxz;
+		final double scale = ( determinant != 0.0 ) ? 1.0 / determinant : 1.0;
+
+		buffer.put( (float)( scale * cxx ) );
+		buffer.put( (float)( scale * ( xz * zy - xy * zz ) ) );
+		buffer.put( (float)( scale * ( xy * yz - xz * yy ) ) );
+		buffer.put( 0.0f );
+		buffer.put( (float)( scale * cxy ) );
+		buffer.put( (float)( scale * ( xx * zz - xz * zx ) ) );
+		buffer.put( (float)( scale * ( xz * yx - xx * yz ) ) );
+		buffer.put( 0.0f );
+		buffer.put( (float)( scale * cxz ) );
+		buffer.put( (float)( scale * ( xy * zx - xx * zy ) ) );
+		buffer.put( (float)( scale * ( xx * yy - xy * yx ) ) );
+		buffer.put( 0.0f );
+	}
+
+	/**
+	 * Returns the buffer with packed transforms. The buffer's position and
+	 * limit span the transforms written by the last call to {@link #pack}.
+	 *
+	 * @return Buffer with packed transforms.
+	 */
+	@NotNull
+	public FloatBuffer getBuffer()
+	{
+		return _buffer;
+	}
+
+	/**
+	 * Returns the number of instances in the buffer.
+	 *
+	 * @return Number of instances.
+	 */
+	public int getInstanceCount()
+	{
+		return _instanceCount;
+	}
+
+	/**
+	 * Returns the size of the packed transforms in bytes.
+	 *
+	 * @return Size in bytes.
+	 */
+	public int getSizeInBytes()
+	{
+		return _instanceCount * BYTES_PER_INSTANCE;
+	}
+
+	/**
+	 * Allocates a direct buffer in native byte order.
+	 *
+	 * @param capacity Capacity, in instances.
+	 *
+	 * @return Allocated buffer.
+	 */
+	private static FloatBuffer allocate( final int capacity )
+	{
+		return ByteBuffer.allocateDirect( capacity * BYTES_PER_INSTANCE ).order( ByteOrder.nativeOrder() ).asFloatBuffer();
+	}
+}
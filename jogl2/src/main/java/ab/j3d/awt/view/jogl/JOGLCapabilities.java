@@ -138,6 +138,11 @@ public class JOGLCapabilities
 	 */
 	private boolean _edgeClamp = false;
 
+	/**
+	 * Instanced drawing with per-instance vertex attributes.
+	 */
+	private boolean _instancedArrays = false;
+
 	/**
 	 * Number of supported texture units.
 	 */
@@ -290,6 +295,19 @@ public class JOGLCapabilities
 		return _opengl13;
 	}
 
+	/**
+	 * Returns whether instanced drawing with per-instance vertex attributes is
+	 * supported, as defined by OpenGL 3.3 or the ARB_draw_instanced and
+	 * ARB_instanced_arrays extensions.
+	 *
+	 * @return <code>true</code> if instancing is supported.
+	 */
+	public boolean isInstancingSupported()
+	{
+		determineCapabilities();
+		return _instancedArrays;
+	}
+
 	/**
 	 * Returns whether {@link JOGLRenderer} can load, compile and link the shaders
 	 * it requires. This may fail due to driver bugs or unknown programming
@@ -331,7 +349,7 @@ public class JOGLCapabilities
 			logger.log( level, "OpenGL driver:       vendor={0}, renderer={1}, version={2}, shaders={3}",
 			            new Object[] { _vendor, _renderer, _version, ( ( _shadingLanguageVersion != null ) ? _shadingLanguageVersion : "none" ) } );
 			logger.log( level, "OpenGL extensions:   {0}", _extensions );
-			logger.log( level, "OpenGL capabilities: shaderObjects={0}, framebufferObject={1}, drawBuffers={2}, occlusionQuery={3}, shadowFuncs={4}, depthTexture={5}, depthBufferBits={6}, shadow={7}, textureRectangle={8}, multitexture={9}, generateMipmap={10}, blendFuncSeperate={11}, edgeClamp={12}, nonPowerOfTwo={13}",
+			logger.log( level, "OpenGL capabilities: shaderObjects={0}, framebufferObject={1}, drawBuffers={2}, occlusionQuery={3}, shadowFuncs={4}, depthTexture={5}, depthBufferBits={6}, shadow={7}, textureRectangle={8}, multitexture={9}, generateMipmap={10}, blendFuncSeperate={11}, edgeClamp={12}, nonPowerOfTwo={13}, instancedArrays={14}",
 			            new Object[] {
 			            ( _shaderObjects ? "yes (core)" : _shaderObjectsARB ? "yes (ARB)" : "no" ),
 			            ( _framebufferObject ? "yes" : "no" ),
@@ -346,7 +364,8 @@ public class JOGLCapabilities
 			            ( _generateMipmap ? "yes" : "no" ),
 			            ( _blendFuncSeperate ? "yes" : "no" ),
 			            ( _edgeClamp ? "yes" : "no" ),
-			            ( _nonPowerOfTwo ? _nonPowerOfTwoARB ? "yes (core,ARB)" : "yes (core)" : _nonPowerOfTwoARB ? "yes (ARB)" : "no" )
+			            ( _nonPowerOfTwo ? _nonPowerOfTwoARB ? "yes (core,ARB)" : "yes (core)" : _nonPowerOfTwoARB ? "yes (ARB)" : "no" ),
+			            ( _instancedArrays ? "yes" : "no" )
 			            } );
 			logger.log( level, "OpenGL limitations:  uniforms {0}, varyings {1}, combined tex units {2}, tex units {3}",
 			            new Object[] { String.valueOf( _maxFragmentUniformComponents ), String.valueOf( _maxVaryingFloats ), String.valueOf( _maxCombinedTextureImageUnits ), String.valueOf( _maxTextureImageUnits ) } );
@@ -368,6 +387,7 @@ public class JOGLCapabilities
 			final boolean opengl14 = "1.4".compareTo( version ) <= 0;
 			final boolean opengl15 = "1.5".compareTo( version ) <= 0;
 			final boolean opengl20 = "2.0".compareTo( version ) <= 0;
+			final boolean opengl33 = "3.3".compareTo( version ) <= 0;
 
 			_opengl13 = opengl13;
 
@@ -383,6 +403,9 @@ public class JOGLCapabilities
 			                    gl.isExtensionAvailable( "GL_ARB_fragment_shader" ) &&
 			                    gl.isExtensionAvailable( "GL_ARB_shader_objects" );
 
+			_instancedArrays = opengl33 || ( gl.isExtensionAvailable( "GL_ARB_draw_instanced" ) &&
+			                                 gl.isExtensionAvailable( "GL_ARB_instanced_arrays" ) );
+
 			_drawBuffers = opengl20;
 			_drawBuffersARB = gl.isExtensionAvailable( "GL_ARB_draw_buffers" );
 
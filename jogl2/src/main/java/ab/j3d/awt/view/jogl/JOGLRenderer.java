@@ -19,6 +19,7 @@
 package ab.j3d.awt.view.jogl;
 
 import java.io.*;
+import java.lang.management.*;
 import java.util.*;
 import java.util.logging.*;
 
@@ -51,6 +52,12 @@ public class JOGLRenderer
 	 */
 	private static final boolean DRAW_NORMALS = false;
 
+	/**
+	 * Minimum number of occurrences of an object for it to be rendered using
+	 * instancing.
+	 */
+	private static final int MIN_INSTANCE_COUNT = 4;
+
 	/**
 	 * Texture unit used for color maps.
 	 */
@@ -215,6 +222,72 @@ public class JOGLRenderer
 	 */
 	private CubeMap _environmentMap = null;
 
+	/**
+	 * Retained list of nodes to be rendered.
+	 */
+	private final RenderList _renderList = new RenderList();
+
+	/**
+	 * Groups of paths to the same object with the same render style. Groups
+	 * are retained between frames to avoid allocations.
+	 */
+	private final RenderGroups<StyledObject3D> _objectGroups = new RenderGroups<StyledObject3D>()
+	{
+		@NotNull
+		@Override
+		protected StyledObject3D copyKey( @NotNull final StyledObject3D key )
+		{
+			return new StyledObject3D( key.getObject(), key.getRenderStyle() );
+		}
+	};
+
+	/**
+	 * Key used to look up groups in {@link #_objectGroups}.
+	 */
+	private final StyledObject3D _objectGroupKey = new StyledObject3D( null, null );
+
+	/**
+	 * Groups of paths to the same {@link JOGLNode3D}. Groups are retained
+	 * between frames to avoid allocations.
+	 */
+	private final RenderGroups<JOGLNode3D> _renderNodeGroups = new RenderGroups<JOGLNode3D>();
+
+	/**
+	 * Packed per-instance transforms for instanced rendering.
+	 */
+	private final InstanceTransformBuffer _instanceTransforms = new InstanceTransformBuffer( 64 );
+
+	/**
+	 * Buffer object containing per-instance transforms; {@code 0} if not
+	 * created yet.
+	 */
+	private int _instanceBufferObject = 0;
+
+	/**
+	 * Paths whose transforms are currently stored in {@link
+	 * #_instanceBufferObject}. Used to upload the transforms only once when
+	 * the same object is drawn several times, e.g. for each face group.
+	 */
+	@Nullable
+	private List<Node3DPath> _uploadedInstancePaths = null;
+
+	/**
+	 * Tree walker used for content nodes with levels of detail.
+	 */
+	private final LevelOfDetailTreeWalker _levelOfDetailTreeWalker = new LevelOfDetailTreeWalker();
+
+	/**
+	 * Visitor used for content nodes with levels of detail.
+	 */
+	private final LevelOfDetailVisitor _levelOfDetailVisitor = new LevelOfDetailVisitor();
+
+	/**
+	 * Projector used for view frustum culling during the current frame;
+	 * {@code null} if not yet determined.
+	 */
+	@Nullable
+	private Projector _frameProjector = null;
+
 	/**
 	 * Construct new JOGL renderer.
 	 *
@@ -251,7 +324,11 @@ public class JOGLRenderer
 			geometryObjectFactory.setImplementation( GeometryObjectFactory.Implementation.IMMEDIATE_MODE );
 		}
 
-		_geometryObjectManager = new GeometryObjectManager( geometryObjectFactory );
+		final GeometryObjectManager geometryObjectManager = new GeometryObjectManager( geometryObjectFactory );
+		geometryObjectManager.setBatchingEnabled( configuration.isGeometryBatchingEnabled() );
+		geometryObjectManager.setCacheSize( configuration.getGeometryCacheSize() );
+		geometryObjectManager.setUploadBudget( configuration.getGeometryUploadBudget() );
+		_geometryObjectManager = geometryObjectManager;
 	}
 
 	/**
@@ -320,6 +397,14 @@ public class JOGLRenderer
 			try
 			{
 				shaderManager.init();
+
+				if ( configuration.isInstancingEnabled() &&
+				     configuration.isVertexBufferObjectsEnabled() &&
+				     capabilities.isInstancingSupported() &&
+				     capabilities.isShaderSupported() )
+				{
+					shaderManager.initInstancing();
+				}
 			}
 			catch ( IOException e )
 			{
@@ -366,6 +451,17 @@ public class JOGLRenderer
 		return _shaderManager;
 	}
 
+	/**
+	 * Returns the geometry object manager, e.g. to obtain its cache
+	 * statistics.
+	 *
+	 * @return Geometry object manager.
+	 */
+	public GeometryObjectManager getGeometryObjectManager()
+	{
+		return _geometryObjectManager;
+	}
+
 	/**
 	 * Returns statistics about the rendering process. Statistics are only kept
 	 * once this method has been called.
@@ -463,6 +559,17 @@ public class JOGLRenderer
 	{
 		_shaderManager.dispose();
 		_geometryObjectManager.dispose();
+		_renderList.dispose();
+		_objectGroups.clear();
+		_renderNodeGroups.clear();
+
+		final int instanceBufferObject = _instanceBufferObject;
+		if ( instanceBufferObject != 0 )
+		{
+			_gl.glDeleteBuffers( 1, new int[] { instanceBufferObject }, 0 );
+			_instanceBufferObject = 0;
+		}
+		_uploadedInstancePaths = null;
 	}
 
 	/**
@@ -477,17 +584,18 @@ public class JOGLRenderer
 	public void renderScene( final Scene scene, final Collection<RenderStyleFilter> styleFilters, final RenderStyle sceneStyle, final Background background, final Grid grid )
 	{
 		final RenderStatistics statistics = _statistics;
+		if ( statistics != null )
+		{
+			statistics.frameStarted();
+		}
 
 		_state = createGLStateHelper( _gl );
 
-		final boolean hasLights = !scene.walk( new Node3DVisitor()
-		{
-			@Override
-			public boolean visitNode( @NotNull final Node3DPath path )
-			{
-				return !( path.getNode() instanceof Light3D );
-			}
-		} );
+		final RenderList renderList = _renderList;
+		renderList.update( scene );
+		_frameProjector = null;
+
+		final boolean hasLights = !renderList.getLights().isEmpty();
 
 		if ( hasLights && isMultiPassLightingEnabled() )
 		{
@@ -498,9 +606,13 @@ public class JOGLRenderer
 			renderSceneSinglePass( scene, styleFilters, sceneStyle, background, grid );
 		}
 
+		_objectGroups.frameRendered();
+		_renderNodeGroups.frameRendered();
+		_frameProjector = null;
+
 		if ( statistics != null )
 		{
-			statistics.frameRendered();
+			statistics.frameRendered( renderList.getUpdatedNodeCount() );
 		}
 
 		_geometryObjectManager.frameRendered();
@@ -561,9 +673,7 @@ public class JOGLRenderer
 		/*
 		 * Render scene per light.
 		 */
-		final Node3DCollector lightCollector = new Node3DCollector( Light3D.class );
-		scene.walk( lightCollector );
-		final List<Node3DPath> lightPaths = lightCollector.getCollectedNodes();
+		final List<Node3DPath> lightPaths = _renderList.getLights();
 		if ( lightPaths.isEmpty() )
 		{
 			throw new IllegalStateException( "Can't render multi-pass: there are no lights." );
@@ -602,7 +712,7 @@ public class JOGLRenderer
 
 				// Render to depth texture.
 				_shadowPass = true;
-				renderContentNodes( scene.getContentNodes(), styleFilters, sceneStyle );
+				renderContentNodes( styleFilters, sceneStyle );
 				_shadowPass = false;
 
 				shadowMap.end( gl );
@@ -672,7 +782,7 @@ public class JOGLRenderer
 			 */
 			renderLight( GLLightingFunc.GL_LIGHT0, light, lightTransform );
 			shaderManager.setShadowsEnabled( castingShadows );
-			renderContentNodes( scene.getContentNodes(), styleFilters, sceneStyle );
+			renderContentNodes( styleFilters, sceneStyle );
 
 			/*
 			 * Add previous rendering passes.
@@ -793,39 +903,13 @@ public class JOGLRenderer
 		/*
 		 * Enable lights.
 		 */
-		scene.walk( new Node3DVisitor()
+		final List<Node3DPath> lightPaths = _renderList.getLights();
+		final int lightCount = Math.min( lightPaths.size(), getMaxLights() );
+		for ( int i = 0; i < lightCount; i++ )
 		{
-			/**
-			 * Current light number(0=first).
-			 */
-			int _lightNumber = 0;
-
-			/**
-			 * Maximum supported number of lights (typically 8).
-			 */
-			final int _maxlights = getMaxLights();
-
-			@Override
-			public boolean visitNode( @NotNull final Node3DPath path )
-			{
-				final boolean result;
-
-				final Node3D node = path.getNode();
-				if ( node instanceof Light3D )
-				{
-					int lightNumber = _lightNumber;
-					renderLight( GLLightingFunc.GL_LIGHT0 + lightNumber, (Light3D)node, path.getTransform() );
-					_lightNumber = ++lightNumber;
-					result = ( lightNumber < _maxlights );
-				}
-				else
-				{
-					result = true;
-				}
-
-				return result;
-			}
-		} );
+			final Node3DPath path = lightPaths.get( i );
+			renderLight( GLLightingFunc.GL_LIGHT0 + i, (Light3D)path.getNode(), path.getTransform() );
+		}
 
 		/*
 		 * Render from the camera.
@@ -833,7 +917,7 @@ public class JOGLRenderer
 		gl2.glMatrixMode( GLMatrixFunc.GL_MODELVIEW );
 		gl2.glLoadIdentity();
 		JOGLTools.glMultMatrixd( gl, _sceneToView );
-		renderContentNodes( scene.getContentNodes(), styleFilters, sceneStyle );
+		renderContentNodes( styleFilters, sceneStyle );
 
 		/*
 		 * Render grid.
@@ -1027,13 +1111,13 @@ public class JOGLRenderer
 	}
 
 	/**
-	 * Renders the given content nodes applying render styles as specified.
+	 * Renders the content nodes in the render list applying render styles as
+	 * specified.
 	 *
-	 * @param nodes        Nodes to be rendered.
 	 * @param styleFilters Render style filters to be applied.
 	 * @param sceneStyle   Base render style for the entire scene.
 	 */
-	private void renderContentNodes( final List<ContentNode> nodes, final Collection<RenderStyleFilter> styleFilters, final RenderStyle sceneStyle )
+	private void renderContentNodes( final Collection<RenderStyleFilter> styleFilters, final RenderStyle sceneStyle )
 	{
 		final GL gl = _gl;
 
@@ -1044,7 +1128,7 @@ public class JOGLRenderer
 			gl.glCullFace( GL.GL_FRONT );
 
 			_renderMode = MultiPassRenderMode.ALL;
-			renderObjects( nodes, styleFilters, sceneStyle );
+			renderObjects( styleFilters, sceneStyle );
 		}
 		else
 		{
@@ -1053,31 +1137,37 @@ public class JOGLRenderer
 			_shaderManager.enable();
 
 			_renderMode = MultiPassRenderMode.OPAQUE_ONLY;
-			renderObjects( nodes, styleFilters, sceneStyle );
+			renderObjects( styleFilters, sceneStyle );
 
 			_renderMode = MultiPassRenderMode.TRANSPARENT_ONLY;
-			renderObjects( nodes, styleFilters, sceneStyle );
+			renderObjects( styleFilters, sceneStyle );
 
 			_shaderManager.disable();
 		}
 	}
 
 	/**
-	 * Render objects in scene.
+	 * Render objects in the render list. Objects are grouped by object and
+	 * render style, using groups that are retained between frames, so a frame
+	 * without scene changes performs (almost) no allocations.
 	 *
-	 * @param nodes        Nodes in the scene.
 	 * @param styleFilters Style filters to apply.
 	 * @param sceneStyle   Render style to use as base for scene.
 	 */
-	private void renderObjects( final List<ContentNode> nodes, final Collection<RenderStyleFilter> styleFilters, final RenderStyle sceneStyle )
+	private void renderObjects( final Collection<RenderStyleFilter> styleFilters, final RenderStyle sceneStyle )
 	{
 		final boolean shadowPass = _shadowPass;
-
-		final Map<StyledObject3D, List<Node3DPath>> objectPathsByGroup = new LinkedHashMap<StyledObject3D, List<Node3DPath>>();
-		final Map<JOGLNode3D, List<Node3DPath>> renderNodes = new LinkedHashMap<JOGLNode3D, List<Node3DPath>>();
-
-		for ( final ContentNode node : nodes )
+		final boolean levelOfDetail = _view.isLevelOfDetail();
+		final RenderGroups<StyledObject3D> objectGroups = _objectGroups;
+		final RenderGroups<JOGLNode3D> renderNodeGroups = _renderNodeGroups;
+		objectGroups.beginPass();
+		renderNodeGroups.beginPass();
+
+		final List<RenderList.NodeEntry> entries = _renderList.getEntries();
+		for ( int i = 0; i < entries.size(); i++ )
 		{
+			final RenderList.NodeEntry entry = entries.get( i );
+			final ContentNode node = entry.getNode();
 			if ( shadowPass && !node.isCastingShadows() )
 			{
 				continue;
@@ -1085,78 +1175,130 @@ public class JOGLRenderer
 
 			final RenderStyle nodeStyle = sceneStyle.applyFilters( styleFilters, node );
 
-			final Node3DTreeWalker treeWalker = new LevelOfDetailTreeWalker();
-			treeWalker.walkNode( new Node3DVisitor()
+			if ( levelOfDetail && entry.isLowDetailAvailable() )
+			{
+				final LevelOfDetailVisitor visitor = _levelOfDetailVisitor;
+				visitor.set( styleFilters, nodeStyle );
+				try
+				{
+					_levelOfDetailTreeWalker.walkNode( visitor, node.getTransform(), node.getNode3D() );
+				}
+				finally
+				{
+					visitor.set( null, null );
+				}
+			}
+			else
 			{
-				@Override
-				public boolean visitNode( @NotNull final Node3DPath path )
+				final List<RenderList.ObjectEntry> objects = entry.getObjects();
+				for ( int j = 0; j < objects.size(); j++ )
 				{
-					final Node3D node = path.getNode();
-					if ( node instanceof Object3D )
+					final RenderList.ObjectEntry objectEntry = objects.get( j );
+					if ( shadowPass || isVisible( objectEntry ) )
 					{
-						final Object3D object = (Object3D)node;
-
-						final View3D view = _view;
-						final boolean visibleByCamera = view.isVisible( path.getTransform(), object );
-
-						if ( shadowPass || visibleByCamera )
-						{
-							final RenderStyle objectStyle = nodeStyle.applyFilters( styleFilters, path );
-							final StyledObject3D key = new StyledObject3D( object, objectStyle );
-
-							List<Node3DPath> paths = objectPathsByGroup.get( key );
-							if ( paths == null )
-							{
-								paths = new ArrayList<Node3DPath>();
-								objectPathsByGroup.put( key, paths );
-							}
-
-							paths.add( path );
-						}
+						final Node3DPath path = objectEntry.getPath();
+						addObjectPath( objectEntry.getObject(), nodeStyle.applyFilters( styleFilters, path ), path );
 					}
-					else if ( node instanceof JOGLNode3D )
-					{
-						final JOGLNode3D renderNode = (JOGLNode3D)node;
-
-						List<Node3DPath> paths = renderNodes.get( renderNode );
-						if ( paths == null )
-						{
-							paths = new ArrayList<Node3DPath>();
-							renderNodes.put( renderNode, paths );
-						}
+				}
 
-						paths.add( path );
-					}
-					return true;
+				final List<Node3DPath> renderNodes = entry.getRenderNodes();
+				for ( int j = 0; j < renderNodes.size(); j++ )
+				{
+					final Node3DPath path = renderNodes.get( j );
+					renderNodeGroups.add( (JOGLNode3D)path.getNode(), path );
 				}
-			}, node.getTransform(), node.getNode3D() );
+			}
 		}
 
-		for ( final Map.Entry<StyledObject3D, List<Node3DPath>> objectGroupEntry : objectPathsByGroup.entrySet() )
+		final List<RenderGroups.PathGroup<StyledObject3D>> passObjectGroups = objectGroups.getPassGroups();
+		for ( int i = 0; i < passObjectGroups.size(); i++ )
 		{
-			final StyledObject3D objectGroup = objectGroupEntry.getKey();
-			final List<Node3DPath> paths = objectGroupEntry.getValue();
-			renderObject( objectGroup.getObject(), paths, objectGroup.getRenderStyle() );
+			final RenderGroups.PathGroup<StyledObject3D> objectGroup = passObjectGroups.get( i );
+			final StyledObject3D styledObject = objectGroup.getKey();
+			renderObject( styledObject.getObject(), objectGroup.getPaths(), styledObject.getRenderStyle() );
 		}
+		objectGroups.endPass();
 
 		final GL gl = _gl;
 		final GL2 gl2 = gl.getGL2();
 		final GLStateHelper state = _state;
 		final ShaderManager shaderManager = _shaderManager;
 
-		for ( final Map.Entry<JOGLNode3D, List<Node3DPath>> entry : renderNodes.entrySet() )
+		final List<RenderGroups.PathGroup<JOGLNode3D>> passRenderNodeGroups = renderNodeGroups.getPassGroups();
+		for ( int i = 0; i < passRenderNodeGroups.size(); i++ )
 		{
-			final JOGLNode3D node = entry.getKey();
-			final List<Node3DPath> paths = entry.getValue();
-			for ( final Node3DPath path : paths )
+			final RenderGroups.PathGroup<JOGLNode3D> renderNodeGroup = passRenderNodeGroups.get( i );
+			final JOGLNode3D node = renderNodeGroup.getKey();
+			final List<Node3DPath> paths = renderNodeGroup.getPaths();
+			for ( int j = 0; j < paths.size(); j++ )
 			{
-				final Matrix3D object2world = path.getTransform();
+				final Matrix3D object2world = paths.get( j ).getTransform();
 				gl2.glPushMatrix();
 				JOGLTools.glMultMatrixd( gl, object2world );
 				node.render( gl, state, shaderManager );
 				gl2.glPopMatrix();
 			}
 		}
+		renderNodeGroups.endPass();
+	}
+
+	/**
+	 * Adds a path to an object to be rendered during the current rendering
+	 * pass.
+	 *
+	 * @param object      Object to render.
+	 * @param objectStyle Render style for the object.
+	 * @param path        Path to the object.
+	 */
+	private void addObjectPath( @NotNull final Object3D object, @NotNull final RenderStyle objectStyle, @NotNull final Node3DPath path )
+	{
+		final StyledObject3D key = _objectGroupKey;
+		key.set( object, objectStyle );
+		try
+		{
+			_objectGroups.add( key, path );
+		}
+		finally
+		{
+			key.set( null, null );
+		}
+	}
+
+	/**
+	 * Returns whether the given object is visible in the view. This is
+	 * equivalent to {@link View3D#isVisible}, but uses the cached object to
+	 * view transform of the entry and only one projector per frame.
+	 *
+	 * @param objectEntry Object to be checked.
+	 *
+	 * @return {@code true} if the object is visible.
+	 */
+	private boolean isVisible( @NotNull final RenderList.ObjectEntry objectEntry )
+	{
+		boolean result = true;
+
+		final View3D view = _view;
+		if ( view.isViewFrustumCulling() )
+		{
+			final Bounds3D obb = objectEntry.getObject().getOrientedBoundingBox();
+			if ( obb != null )
+			{
+				Projector projector = _frameProjector;
+				if ( projector == null )
+				{
+					projector = view.getProjector();
+					_frameProjector = projector;
+				}
+
+				result = projector.inViewVolume( objectEntry.getObject2View( view.getScene2View() ), obb );
+			}
+			else
+			{
+				result = false;
+			}
+		}
+
+		return result;
 	}
 
 	/**
@@ -1401,9 +1543,131 @@ public class JOGLRenderer
 					renderObjectVertices( object, paths, objectStyle );
 				}
 			}
+
+			_uploadedInstancePaths = null;
+		}
+	}
+
+	/**
+	 * Draws the given geometry for each of the given paths. If possible, the
+	 * geometry is drawn using instancing, i.e. with a single draw call.
+	 *
+	 * @param geometryObject Geometry to be drawn.
+	 * @param paths          Node paths to the object.
+	 */
+	private void drawGeometry( @NotNull final GeometryObject geometryObject, @NotNull final List<Node3DPath> paths )
+	{
+		if ( ( paths.size() < MIN_INSTANCE_COUNT ) || !geometryObject.isInstancingSupported() || !drawInstanced( geometryObject, paths ) )
+		{
+			final GL gl = _gl;
+			final GL2 gl2 = gl.getGL2();
+
+			for ( int i = 0; i < paths.size(); i++ )
+			{
+				final Matrix3D object2world = paths.get( i ).getTransform();
+				gl2.glPushMatrix();
+				JOGLTools.glMultMatrixd( gl, object2world );
+				geometryObject.draw();
+				gl2.glPopMatrix();
+			}
 		}
 	}
 
+	/**
+	 * Draws the given geometry for each of the given paths using instancing.
+	 * The object transforms and their normal matrices are passed to an
+	 * instanced shader program using per-instance vertex attributes.
+	 *
+	 * @param geometryObject Geometry to be drawn.
+	 * @param paths          Node paths to the object.
+	 *
+	 * @return {@code true} if the geometry was drawn; {@code false} if no
+	 * instanced shader program is available, e.g. because shaders are disabled.
+	 */
+	private boolean drawInstanced( @NotNull final GeometryObject geometryObject, @NotNull final List<Node3DPath> paths )
+	{
+		boolean result = false;
+
+		final ShaderManager shaderManager = _shaderManager;
+		if ( shaderManager.isInstancingAvailable() )
+		{
+			shaderManager.setInstancingEnabled( true );
+			try
+			{
+				final int location = shaderManager.getInstanceTransformLocation();
+				if ( location >= 0 )
+				{
+					final GL gl = _gl;
+					final GL2ES3 gl3 = gl.getGL2ES3();
+
+					int instanceBufferObject = _instanceBufferObject;
+					if ( instanceBufferObject == 0 )
+					{
+						final int[] ids = new int[ 1 ];
+						gl.glGenBuffers( 1, ids, 0 );
+						instanceBufferObject = ids[ 0 ];
+						_instanceBufferObject = instanceBufferObject;
+					}
+
+					gl.glBindBuffer( GL.GL_ARRAY_BUFFER, instanceBufferObject );
+
+					if ( _uploadedInstancePaths != paths )
+					{
+						final InstanceTransformBuffer instanceTransforms = _instanceTransforms;
+						instanceTransforms.pack( paths );
+						gl.glBufferData( GL.GL_ARRAY_BUFFER, (long)instanceTransforms.getSizeInBytes(), instanceTransforms.getBuffer(), GL2ES2.GL_STREAM_DRAW );
+						_uploadedInstancePaths = paths;
+					}
+
+					for ( int column = 0; column < 4; column++ )
+					{
+						gl3.glEnableVertexAttribArray( location + column );
+						gl3.glVertexAttribPointer( location + column, 4, GL.GL_FLOAT, false, InstanceTransformBuffer.BYTES_PER_INSTANCE, (long)( column * 16 ) );
+						gl3.glVertexAttribDivisor( location + column, 1 );
+					}
+
+					final int normalMatrixLocation = shaderManager.getInstanceNormalMatrixLocation();
+					if ( normalMatrixLocation >= 0 )
+					{
+						for ( int column = 0; column < 3; column++ )
+						{
+							gl3.glEnableVertexAttribArray( normalMatrixLocation + column );
+							gl3.glVertexAttribPointer( normalMatrixLocation + column, 3, GL.GL_FLOAT, false, InstanceTransformBuffer.BYTES_PER_INSTANCE, (long)( ( InstanceTransformBuffer.NORMAL_MATRIX_OFFSET + column * 4 ) * 4 ) );
+							gl3.glVertexAttribDivisor( normalMatrixLocation + column, 1 );
+						}
+					}
+
+					gl.glBindBuffer( GL.GL_ARRAY_BUFFER, 0 );
+
+					geometryObject.drawInstanced( paths.size() );
+
+					for ( int column = 0; column < 4; column++ )
+					{
+						gl3.glVertexAttribDivisor( location + column, 0 );
+						gl3.glDisableVertexAttribArray( location + column );
+					}
+
+					if ( normalMatrixLocation >= 0 )
+					{
+						for ( int column = 0; column < 3; column++ )
+						{
+							gl3.glVertexAttribDivisor( normalMatrixLocation + column, 0 );
+							gl3.glDisableVertexAttribArray( normalMatrixLocation + column );
+						}
+					}
+
+					result = true;
+				}
+			}
+			finally
+			{
+				shaderManager.setInstancingEnabled( false );
+			}
+		}
+
+		return result;
+	}
+
 	/**
 	 * Renders the given object with a material applied to it.
 	 *
@@ -1550,19 +1814,21 @@ public class JOGLRenderer
 					state.setEnabled( GL.GL_CULL_FACE, objectStyle.isBackfaceCullingEnabled() && !faceGroup.isTwoSided() );
 
 					final GeometryObject geometryObject = _geometryObjectManager.getGeometryObject( faceGroup, GeometryType.FACES );
-					for ( final Node3DPath path : paths )
+					if ( DRAW_NORMALS )
 					{
-						final Matrix3D object2world = path.getTransform();
-						gl2.glPushMatrix();
-						JOGLTools.glMultMatrixd( gl, object2world );
-						geometryObject.draw();
-
-						if ( DRAW_NORMALS )
+						for ( final Node3DPath path : paths )
 						{
+							final Matrix3D object2world = path.getTransform();
+							gl2.glPushMatrix();
+							JOGLTools.glMultMatrixd( gl, object2world );
+							geometryObject.draw();
 							renderFaceNormals( faceGroup.getFaces() );
+							gl2.glPopMatrix();
 						}
-
-						gl2.glPopMatrix();
+					}
+					else
+					{
+						drawGeometry( geometryObject, paths );
 					}
 
 					/*
@@ -1673,20 +1939,12 @@ public class JOGLRenderer
 				/*
 				 * Render faces.
 				 */
-				final GL2 gl2 = gl.getGL2();
 				for ( final FaceGroup faceGroup : object.getFaceGroups() )
 				{
 					state.setEnabled( GL.GL_CULL_FACE, objectStyle.isBackfaceCullingEnabled() && !faceGroup.isTwoSided() );
 
 					final GeometryObject geometryObject = _geometryObjectManager.getGeometryObject( faceGroup, GeometryType.FACES );
-					for ( final Node3DPath path : paths )
-					{
-						final Matrix3D object2world = path.getTransform();
-						gl2.glPushMatrix();
-						JOGLTools.glMultMatrixd( gl, object2world );
-						geometryObject.draw();
-						gl2.glPopMatrix();
-					}
+					drawGeometry( geometryObject, paths );
 				}
 
 				if ( blend )
@@ -2013,15 +2271,50 @@ public class JOGLRenderer
 		private int _objectCount;
 
 		/**
-		 * Set of unique objects rendered so far during the current frame.
+		 * Unique objects rendered during recent frames, with the number of the
+		 * last frame in which each object was rendered.
 		 */
-		private final Set<Object> _uniqueObjects;
+		private final Map<Object, int[]> _uniqueObjects;
+
+		/**
+		 * Number of unique objects rendered so far during the current frame.
+		 */
+		private int _uniqueObjectCounter;
 
 		/**
 		 * Number of unique objects rendered during the last frame.
 		 */
 		private int _uniqueObjectCount;
 
+		/**
+		 * Number of the current frame.
+		 */
+		private int _frameNumber;
+
+		/**
+		 * Thread management interface used to measure allocations; {@code null}
+		 * if not supported.
+		 */
+		@Nullable
+		private final com.sun.management.ThreadMXBean _threadMXBean;
+
+		/**
+		 * Number of bytes allocated by the rendering thread at the start of the
+		 * current frame.
+		 */
+		private long _allocatedBytesAtFrameStart;
+
+		/**
+		 * Number of bytes allocated by the rendering thread during the last
+		 * frame; {@code -1} if not supported.
+		 */
+		private long _allocatedBytes;
+
+		/**
+		 * Number of content nodes that were re-evaluated during the last frame.
+		 */
+		private int _updatedNodeCount;
+
 		/**
 		 * Determines the rendering framerate.
 		 */
@@ -2036,8 +2329,16 @@ public class JOGLRenderer
 			_primitiveCount = 0;
 			_objectCounter = 0;
 			_objectCount = 0;
-			_uniqueObjects = new HashSet<Object>();
+			_uniqueObjects = new HashMap<Object, int[]>();
+			_uniqueObjectCounter = 0;
 			_uniqueObjectCount = 0;
+			_frameNumber = 1;
+
+			final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			_threadMXBean = ( ( threadMXBean instanceof com.sun.management.ThreadMXBean ) && ( (com.sun.management.ThreadMXBean)threadMXBean ).isThreadAllocatedMemorySupported() ) ? (com.sun.management.ThreadMXBean)threadMXBean : null;
+			_allocatedBytesAtFrameStart = 0L;
+			_allocatedBytes = -1L;
+			_updatedNodeCount = 0;
 
 			final FrameCounter frameCounter = new FrameCounter();
 //			frameCounter.addChangeListener( new ChangeListener()
@@ -2084,11 +2385,56 @@ public class JOGLRenderer
 			return _objectCount;
 		}
 
+		/**
+		 * Returns the number of bytes allocated by the rendering thread during the
+		 * last frame. This can be used to verify that rendering a frame without
+		 * scene changes allocates (almost) nothing.
+		 *
+		 * @return Number of bytes allocated; {@code -1} if not supported by the
+		 * JVM.
+		 */
+		public long getAllocatedBytes()
+		{
+			return _allocatedBytes;
+		}
+
+		/**
+		 * Returns the number of content nodes whose content was re-evaluated
+		 * during the last frame, because they were added or modified.
+		 *
+		 * @return Number of updated content nodes.
+		 */
+		public int getUpdatedNodeCount()
+		{
+			return _updatedNodeCount;
+		}
+
+		/**
+		 * Returns the number of bytes allocated by the current thread.
+		 *
+		 * @return Number of bytes allocated; {@code -1} if not supported.
+		 */
+		private long getThreadAllocatedBytes()
+		{
+			final com.sun.management.ThreadMXBean threadMXBean = _threadMXBean;
+			return ( threadMXBean != null ) ? threadMXBean.getThreadAllocatedBytes( Thread.currentThread().getId() ) : -1L;
+		}
+
+		/**
+		 * Called at the start of a frame.
+		 */
+		private void frameStarted()
+		{
+			_allocatedBytesAtFrameStart = getThreadAllocatedBytes();
+		}
+
 		/**
 		 * Called at the end of a frame, allowing the current value of each counter to
 		 * be stored and to prepare for the next frame.
+		 *
+		 * @param updatedNodeCount Number of content nodes that were re-evaluated.
 		 */
-		private void frameRendered()
+		private void frameRendered( final int updatedNodeCount )
 		{
 			_primitiveCount = _primitiveCounter;
 			_primitiveCounter = 0;
@@ -2096,12 +2442,27 @@ public class JOGLRenderer
 			_objectCount = _objectCounter;
 			_objectCounter = 0;
 
-			_uniqueObjectCount = _uniqueObjects.size();
-			_uniqueObjects.clear();
+			_uniqueObjectCount = _uniqueObjectCounter;
+			_uniqueObjectCounter = 0;
+
+			final int frameNumber = _frameNumber;
+			for ( final Iterator<int[]> iterator = _uniqueObjects.values().iterator(); iterator.hasNext(); )
+			{
+				if ( iterator.next()[ 0 ] != frameNumber )
+				{
+					iterator.remove();
+				}
+			}
+			_frameNumber = frameNumber + 1;
+
+			_updatedNodeCount = updatedNodeCount;
 
 			final FrameCounter frameCounter = _frameCounter;
 			frameCounter.increment();
 			frameCounter.get();
+
+			final long allocatedBytes = getThreadAllocatedBytes();
+			_allocatedBytes = ( allocatedBytes >= 0L ) ? allocatedBytes - _allocatedBytesAtFrameStart : -1L;
 		}
 
 		/**
@@ -2113,7 +2474,20 @@ public class JOGLRenderer
 		 */
 		private void objectRendered( final Object object, final int count )
 		{
-			_uniqueObjects.add( object );
+			final int frameNumber = _frameNumber;
+			int[] lastFrame = _uniqueObjects.get( object );
+			if ( lastFrame == null )
+			{
+				lastFrame = new int[ 1 ];
+				_uniqueObjects.put( object, lastFrame );
+			}
+
+			if ( lastFrame[ 0 ] != frameNumber )
+			{
+				lastFrame[ 0 ] = frameNumber;
+				_uniqueObjectCounter++;
+			}
+
 			_objectCounter += count;
 		}
 
@@ -2137,6 +2511,55 @@ public class JOGLRenderer
 		}
 	}
 
+	/**
+	 * Visitor that adds nodes found by the {@link LevelOfDetailTreeWalker} to
+	 * the groups to be rendered.
+	 */
+	private class LevelOfDetailVisitor
+	implements Node3DVisitor
+	{
+		/**
+		 * Style filters to apply.
+		 */
+		private Collection<RenderStyleFilter> _styleFilters = null;
+
+		/**
+		 * Render style of the content node being walked.
+		 */
+		private RenderStyle _nodeStyle = null;
+
+		/**
+		 * Sets the state for walking a content node.
+		 *
+		 * @param styleFilters Style filters to apply.
+		 * @param nodeStyle    Render style of the content node.
+		 */
+		void set( final Collection<RenderStyleFilter> styleFilters, final RenderStyle nodeStyle )
+		{
+			_styleFilters = styleFilters;
+			_nodeStyle = nodeStyle;
+		}
+
+		@Override
+		public boolean visitNode( @NotNull final Node3DPath path )
+		{
+			final Node3D node = path.getNode();
+			if ( node instanceof Object3D )
+			{
+				final Object3D object = (Object3D)node;
+				if ( _shadowPass || _view.isVisible( path.getTransform(), object ) )
+				{
+					addObjectPath( object, _nodeStyle.applyFilters( _styleFilters, path ), path );
+				}
+			}
+			else if ( node instanceof JOGLNode3D )
+			{
+				_renderNodeGroups.add( (JOGLNode3D)node, path );
+			}
+			return true;
+		}
+	}
+
 	/**
 	 * Tree walker that takes level of detail of {@link Object3D}s into account.
 	 */
@@ -2222,12 +2645,12 @@ public class JOGLRenderer
 		/**
 		 * 3D object.
 		 */
-		private final Object3D _object;
+		private Object3D _object;
 
 		/**
 		 * Render style.
 		 */
-		private final RenderStyle _renderStyle;
+		private RenderStyle _renderStyle;
 
 		/**
 		 * Construct.
@@ -2241,6 +2664,19 @@ public class JOGLRenderer
 			_renderStyle = renderStyle;
 		}
 
+		/**
+		 * Sets the object and render style. This may only be used for keys
+		 * that are used for lookups.
+		 *
+		 * @param object      3D object.
+		 * @param renderStyle Render style.
+		 */
+		void set( final Object3D object, final RenderStyle renderStyle )
+		{
+			_object = object;
+			_renderStyle = renderStyle;
+		}
+
 		/**
 		 * Get 3D object.
 		 *
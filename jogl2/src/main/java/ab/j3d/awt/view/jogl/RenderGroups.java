@@ -0,0 +1,237 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.util.*;
+
+import ab.j3d.model.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Groups paths to be rendered by key, e.g. to render all occurrences of the
+ * same object in one go. Groups are retained between frames to avoid
+ * allocations; groups that are not used during a frame are removed when the
+ * frame is rendered.
+ *
+ * @param <K> Key type.
+ *
+ * @author Peter S. Heijnen
+ */
+class RenderGroups<K>
+{
+	/**
+	 * Groups by key.
+	 */
+	private final Map<K, PathGroup<K>> _groups = new HashMap<K, PathGroup<K>>();
+
+	/**
+	 * Groups used during the current rendering pass, in order of first use.
+	 */
+	private final List<PathGroup<K>> _passGroups = new ArrayList<PathGroup<K>>();
+
+	/**
+	 * Number of rendering passes started.
+	 */
+	private int _renderPass = 0;
+
+	/**
+	 * Last rendering pass of the previous frame.
+	 */
+	private int _frameRenderPass = 0;
+
+	/**
+	 * Starts a rendering pass. Any groups from the previous pass are cleared.
+	 */
+	public void beginPass()
+	{
+		endPass();
+		_renderPass++;
+	}
+
+	/**
+	 * Adds a path to be rendered during the current rendering pass.
+	 *
+	 * @param key  Key of the group to add the path to.
+	 * @param path Path to be rendered.
+	 */
+	public void add( @NotNull final K key, @NotNull final Node3DPath path )
+	{
+		PathGroup<K> group = _groups.get( key );
+		if ( group == null )
+		{
+			final K newKey = copyKey( key );
+			group = new PathGroup<K>( newKey );
+			_groups.put( newKey, group );
+		}
+
+		if ( group.use( _renderPass ) )
+		{
+			_passGroups.add( group );
+		}
+
+		group._paths.add( path );
+	}
+
+	/**
+	 * Returns a key that can be stored in the group map. This allows mutable
+	 * keys to be used for lookups. By default, the key itself is returned.
+	 *
+	 * @param key Key used for lookup.
+	 *
+	 * @return Key to store.
+	 */
+	@NotNull
+	protected K copyKey( @NotNull final K key )
+	{
+		return key;
+	}
+
+	/**
+	 * Returns the groups used during the current rendering pass, in order of
+	 * first use.
+	 *
+	 * @return Groups used during the current rendering pass.
+	 */
+	@NotNull
+	public List<PathGroup<K>> getPassGroups()
+	{
+		return _passGroups;
+	}
+
+	/**
+	 * Ends the current rendering pass, clearing the paths of all groups used
+	 * during the pass.
+	 */
+	public void endPass()
+	{
+		final List<PathGroup<K>> passGroups = _passGroups;
+		for ( int i = 0; i < passGroups.size(); i++ )
+		{
+			passGroups.get( i )._paths.clear();
+		}
+		passGroups.clear();
+	}
+
+	/**
+	 * Called when a frame is rendered. Removes groups that were not used
+	 * during any rendering pass of the frame.
+	 */
+	public void frameRendered()
+	{
+		endPass();
+
+		final int frameRenderPass = _frameRenderPass;
+		for ( final Iterator<PathGroup<K>> iterator = _groups.values().iterator(); iterator.hasNext(); )
+		{
+			if ( iterator.next()._renderPass <= frameRenderPass )
+			{
+				iterator.remove();
+			}
+		}
+
+		_frameRenderPass = _renderPass;
+	}
+
+	/**
+	 * Returns the number of retained groups.
+	 *
+	 * @return Number of groups.
+	 */
+	public int size()
+	{
+		return _groups.size();
+	}
+
+	/**
+	 * Removes all groups.
+	 */
+	public void clear()
+	{
+		endPass();
+		_groups.clear();
+	}
+
+	/**
+	 * Group of paths to be rendered with the same key during a rendering pass.
+	 *
+	 * @param <K> Key type.
+	 */
+	public static class PathGroup<K>
+	{
+		/**
+		 * Key of the group.
+		 */
+		private final K _key;
+
+		/**
+		 * Paths to be rendered.
+		 */
+		private final List<Node3DPath> _paths = new ArrayList<Node3DPath>();
+
+		/**
+		 * Last rendering pass in which the group was used.
+		 */
+		private int _renderPass = 0;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param key Key of the group.
+		 */
+		PathGroup( final K key )
+		{
+			_key = key;
+		}
+
+		/**
+		 * Returns the key of the group.
+		 *
+		 * @return Key of the group.
+		 */
+		public K getKey()
+		{
+			return _key;
+		}
+
+		/**
+		 * Returns the paths to be rendered. The list is cleared at the end of
+		 * the rendering pass and must not be modified.
+		 *
+		 * @return Paths to be rendered.
+		 */
+		public List<Node3DPath> getPaths()
+		{
+			return _paths;
+		}
+
+		/**
+		 * Marks the group as used during the given rendering pass.
+		 *
+		 * @param renderPass Current rendering pass.
+		 *
+		 * @return {@code true} if this is the first use during the pass.
+		 */
+		boolean use( final int renderPass )
+		{
+			final boolean result = ( renderPass != _renderPass );
+			_renderPass = renderPass;
+			return result;
+		}
+	}
+}
@@ -0,0 +1,523 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * Retained list of the nodes to be rendered for a {@link Scene}. The content of
+ * each {@link ContentNode} is walked once and kept until the node is modified,
+ * as indicated by {@link SceneUpdateListener} events. While a scene is {@link
+ * Scene#isAnimated animated}, all content nodes are walked for every frame.
+ *
+ * @author Peter S. Heijnen
+ */
+class RenderList
+{
+	/**
+	 * Scene that the list is retained for.
+	 */
+	@Nullable
+	private Scene _scene = null;
+
+	/**
+	 * Entry per content node, in scene order.
+	 */
+	private final List<NodeEntry> _entries = new ArrayList<NodeEntry>();
+
+	/**
+	 * Entry per content node.
+	 */
+	private final Map<ContentNode, NodeEntry> _entriesByNode = new IdentityHashMap<ContentNode, NodeEntry>();
+
+	/**
+	 * Paths to all lights in the scene, in scene order.
+	 */
+	private final List<Node3DPath> _lights = new ArrayList<Node3DPath>();
+
+	/**
+	 * Content nodes that were modified since the last update.
+	 */
+	private final Set<ContentNode> _dirtyNodes = Collections.newSetFromMap( new IdentityHashMap<ContentNode, Boolean>() );
+
+	/**
+	 * Set when content nodes were added or removed since the last update.
+	 */
+	private boolean _structureChanged = true;
+
+	/**
+	 * Number of content nodes that were walked during the last update.
+	 */
+	private int _updatedNodeCount = 0;
+
+	/**
+	 * Tree walker used to collect the content of content nodes.
+	 */
+	private final Node3DTreeWalker _treeWalker = new Node3DTreeWalker();
+
+	/**
+	 * Visitor used to collect the content of content nodes.
+	 */
+	private final CollectingVisitor _collectingVisitor = new CollectingVisitor();
+
+	/**
+	 * Listener that keeps track of modified content nodes.
+	 */
+	private final SceneUpdateListener _sceneUpdateListener = new SceneUpdateListener()
+	{
+		public void contentNodeAdded( final SceneUpdateEvent event )
+		{
+			_structureChanged = true;
+			_dirtyNodes.add( event.getNode() );
+		}
+
+		public void contentNodeRemoved( final SceneUpdateEvent event )
+		{
+			_structureChanged = true;
+			_dirtyNodes.remove( event.getNode() );
+		}
+
+		public void contentNodeContentUpdated( final SceneUpdateEvent event )
+		{
+			_dirtyNodes.add( event.getNode() );
+		}
+
+		public void contentNodePropertyChanged( final SceneUpdateEvent event )
+		{
+			_dirtyNodes.add( event.getNode() );
+		}
+
+		public void ambientLightChanged( final SceneUpdateEvent event )
+		{
+		}
+
+		public void animationStarted( final SceneUpdateEvent event )
+		{
+		}
+
+		public void animationStopped( final SceneUpdateEvent event )
+		{
+			invalidate();
+		}
+	};
+
+	/**
+	 * Updates the list for the given scene. Only content nodes that were
+	 * modified since the previous update are walked, unless the scene is
+	 * animated or a different scene is given.
+	 *
+	 * @param scene Scene to be rendered.
+	 */
+	public void update( @NotNull final Scene scene )
+	{
+		final Scene oldScene = _scene;
+		if ( scene != oldScene )
+		{
+			if ( oldScene != null )
+			{
+				oldScene.removeSceneUpdateListener( _sceneUpdateListener );
+			}
+
+			scene.addSceneUpdateListener( _sceneUpdateListener );
+			_scene = scene;
+			invalidate();
+		}
+
+		final List<NodeEntry> entries = _entries;
+		final Map<ContentNode, NodeEntry> entriesByNode = _entriesByNode;
+		final Set<ContentNode> dirtyNodes = _dirtyNodes;
+		final boolean animated = scene.isAnimated();
+		int updatedNodeCount = 0;
+
+		if ( _structureChanged )
+		{
+			final Map<ContentNode, NodeEntry> oldEntries = new IdentityHashMap<ContentNode, NodeEntry>( entriesByNode );
+			entries.clear();
+			entriesByNode.clear();
+
+			for ( final ContentNode node : scene.getContentNodes() )
+			{
+				NodeEntry entry = oldEntries.get( node );
+				if ( entry == null )
+				{
+					entry = new NodeEntry( node );
+					dirtyNodes.add( node );
+				}
+				entries.add( entry );
+				entriesByNode.put( node, entry );
+			}
+
+			_structureChanged = false;
+		}
+
+		if ( animated || !dirtyNodes.isEmpty() )
+		{
+			for ( int i = 0; i < entries.size(); i++ )
+			{
+				final NodeEntry entry = entries.get( i );
+				if ( animated || dirtyNodes.contains( entry.getNode() ) )
+				{
+					collect( entry );
+					updatedNodeCount++;
+				}
+			}
+
+			dirtyNodes.clear();
+		}
+
+		if ( updatedNodeCount > 0 )
+		{
+			final List<Node3DPath> lights = _lights;
+			lights.clear();
+			for ( int i = 0; i < entries.size(); i++ )
+			{
+				lights.addAll( entries.get( i ).getLights() );
+			}
+		}
+
+		_updatedNodeCount = updatedNodeCount;
+	}
+
+	/**
+	 * Forces all content nodes to be walked during the next update. This is
+	 * needed if the scene was modified without notifying its listeners.
+	 */
+	public void invalidate()
+	{
+		_entries.clear();
+		_entriesByNode.clear();
+		_lights.clear();
+		_dirtyNodes.clear();
+		_structureChanged = true;
+	}
+
+	/**
+	 * Releases the scene that the list was retained for.
+	 */
+	public void dispose()
+	{
+		final Scene scene = _scene;
+		if ( scene != null )
+		{
+			scene.removeSceneUpdateListener( _sceneUpdateListener );
+			_scene = null;
+		}
+		invalidate();
+	}
+
+	/**
+	 * Returns an entry for each content node, in scene order.
+	 *
+	 * @return Entry per content node.
+	 */
+	@NotNull
+	public List<NodeEntry> getEntries()
+	{
+		return _entries;
+	}
+
+	/**
+	 * Returns paths to all lights in the scene, in scene order.
+	 *
+	 * @return Paths to lights.
+	 */
+	@NotNull
+	public List<Node3DPath> getLights()
+	{
+		return _lights;
+	}
+
+	/**
+	 * Returns the number of content nodes that were walked during the last
+	 * update.
+	 *
+	 * @return Number of updated content nodes.
+	 */
+	public int getUpdatedNodeCount()
+	{
+		return _updatedNodeCount;
+	}
+
+	/**
+	 * Walks the content of a content node and stores the results in its entry.
+	 *
+	 * @param entry Entry to update.
+	 */
+	private void collect( @NotNull final NodeEntry entry )
+	{
+		entry.clear();
+
+		final CollectingVisitor visitor = _collectingVisitor;
+		visitor._entry = entry;
+		try
+		{
+			final ContentNode node = entry.getNode();
+			_treeWalker.walkNode( visitor, node.getTransform(), node.getNode3D() );
+		}
+		finally
+		{
+			visitor._entry = null;
+		}
+	}
+
+	/**
+	 * Collects the content of a content node into its entry.
+	 */
+	private static class CollectingVisitor
+	implements Node3DVisitor
+	{
+		/**
+		 * Entry being collected.
+		 */
+		NodeEntry _entry = null;
+
+		@Override
+		public boolean visitNode( @NotNull final Node3DPath path )
+		{
+			final NodeEntry entry = _entry;
+			final Node3D node = path.getNode();
+			if ( node instanceof Object3D )
+			{
+				entry.addObject( path, (Object3D)node );
+			}
+			else if ( node instanceof JOGLNode3D )
+			{
+				entry.getRenderNodes().add( path );
+			}
+			else if ( node instanceof Light3D )
+			{
+				entry.getLights().add( path );
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Content collected for a content node.
+	 */
+	static class NodeEntry
+	{
+		/**
+		 * Content node.
+		 */
+		@NotNull
+		private final ContentNode _node;
+
+		/**
+		 * 3D objects in the content node.
+		 */
+		private final List<ObjectEntry> _objects = new ArrayList<ObjectEntry>();
+
+		/**
+		 * Paths to {@link JOGLNode3D}s in the content node.
+		 */
+		private final List<Node3DPath> _renderNodes = new ArrayList<Node3DPath>();
+
+		/**
+		 * Paths to lights in the content node.
+		 */
+		private final List<Node3DPath> _lights = new ArrayList<Node3DPath>();
+
+		/**
+		 * Whether any of the 3D objects has a low level of detail available.
+		 */
+		private boolean _lowDetailAvailable = false;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param node Content node.
+		 */
+		NodeEntry( @NotNull final ContentNode node )
+		{
+			_node = node;
+		}
+
+		/**
+		 * Removes all collected content.
+		 */
+		void clear()
+		{
+			_objects.clear();
+			_renderNodes.clear();
+			_lights.clear();
+			_lowDetailAvailable = false;
+		}
+
+		/**
+		 * Adds a 3D object.
+		 *
+		 * @param path   Path to the object.
+		 * @param object 3D object.
+		 */
+		void addObject( @NotNull final Node3DPath path, @NotNull final Object3D object )
+		{
+			_objects.add( new ObjectEntry( path, object ) );
+			if ( object.isLowDetailAvailable() )
+			{
+				_lowDetailAvailable = true;
+			}
+		}
+
+		/**
+		 * Returns the content node.
+		 *
+		 * @return Content node.
+		 */
+		@NotNull
+		public ContentNode getNode()
+		{
+			return _node;
+		}
+
+		/**
+		 * Returns the 3D objects in the content node.
+		 *
+		 * @return 3D objects.
+		 */
+		@NotNull
+		public List<ObjectEntry> getObjects()
+		{
+			return _objects;
+		}
+
+		/**
+		 * Returns paths to {@link JOGLNode3D}s in the content node.
+		 *
+		 * @return Paths to render nodes.
+		 */
+		@NotNull
+		public List<Node3DPath> getRenderNodes()
+		{
+			return _renderNodes;
+		}
+
+		/**
+		 * Returns paths to lights in the content node.
+		 *
+		 * @return Paths to lights.
+		 */
+		@NotNull
+		public List<Node3DPath> getLights()
+		{
+			return _lights;
+		}
+
+		/**
+		 * Returns whether any of the 3D objects has a low level of detail
+		 * available. If so, the content node must be walked for every frame when
+		 * level of detail is enabled.
+		 *
+		 * @return {@code true} if a low level of detail is available.
+		 */
+		public boolean isLowDetailAvailable()
+		{
+			return _lowDetailAvailable;
+		}
+	}
+
+	/**
+	 * 3D object collected for a content node.
+	 */
+	static class ObjectEntry
+	{
+		/**
+		 * Path to the object.
+		 */
+		@NotNull
+		private final Node3DPath _path;
+
+		/**
+		 * 3D object.
+		 */
+		@NotNull
+		private final Object3D _object;
+
+		/**
+		 * Scene to view transform used to calculate {@link #_object2view}.
+		 */
+		@Nullable
+		private Matrix3D _scene2view = null;
+
+		/**
+		 * Cached object to view transform.
+		 */
+		@Nullable
+		private Matrix3D _object2view = null;
+
+		/**
+		 * Constructs a new instance.
+		 *
+		 * @param path   Path to the object.
+		 * @param object 3D object.
+		 */
+		ObjectEntry( @NotNull final Node3DPath path, @NotNull final Object3D object )
+		{
+			_path = path;
+			_object = object;
+		}
+
+		/**
+		 * Returns the path to the object.
+		 *
+		 * @return Path to the object.
+		 */
+		@NotNull
+		public Node3DPath getPath()
+		{
+			return _path;
+		}
+
+		/**
+		 * Returns the 3D object.
+		 *
+		 * @return 3D object.
+		 */
+		@NotNull
+		public Object3D getObject()
+		{
+			return _object;
+		}
+
+		/**
+		 * Returns the object to view transform. The result is cached for as
+		 * long as the same scene to view transform is given.
+		 *
+		 * @param scene2view Scene to view transform.
+		 *
+		 * @return Object to view transform.
+		 */
+		@NotNull
+		public Matrix3D getObject2View( @NotNull final Matrix3D scene2view )
+		{
+			Matrix3D result = _object2view;
+			if ( ( result == null ) || ( scene2view != _scene2view ) )
+			{
+				result = _path.getTransform().multiply( scene2view );
+				_scene2view = scene2view;
+				_object2view = result;
+			}
+			return result;
+		}
+	}
+}
@@ -32,6 +32,46 @@ import org.jetbrains.annotations.*;
  */
 public class ShaderManager
 {
+	/**
+	 * Name of the per-instance object transform attribute used by instanced
+	 * shader programs.
+	 */
+	public static final String INSTANCE_TRANSFORM_ATTRIBUTE = "instanceTransform";
+
+	/**
+	 * Name of the per-instance normal matrix attribute used by instanced
+	 * shader programs. This is the inverse transpose of the upper-left 3x3
+	 * part of the {@link #INSTANCE_TRANSFORM_ATTRIBUTE}.
+	 */
+	public static final String INSTANCE_NORMAL_MATRIX_ATTRIBUTE = "instanceNormalMatrix";
+
+	/**
+	 * Suffix of the names of instanced shaders and shader programs.
+	 */
+	private static final String INSTANCED_SUFFIX = "-instanced";
+
+	/**
+	 * Shader lines that define the model-view and normal matrix for vertex
+	 * shaders used without instancing.
+	 */
+	private static final String[] VERTEX_MATRICES = {
+		"#define MODEL_VIEW_MATRIX gl_ModelViewMatrix",
+		"#define NORMAL_MATRIX gl_NormalMatrix"
+	};
+
+	/**
+	 * Shader lines that define the model-view and normal matrix for vertex
+	 * shaders used with instancing. The object transform and its normal
+	 * matrix are provided per instance and combined with the view transform
+	 * from the model-view matrix.
+	 */
+	private static final String[] INSTANCED_VERTEX_MATRICES = {
+		"attribute mat4 " + INSTANCE_TRANSFORM_ATTRIBUTE + ";",
+		"attribute mat3 " + INSTANCE_NORMAL_MATRIX_ATTRIBUTE + ";",
+		"#define MODEL_VIEW_MATRIX ( gl_ModelViewMatrix * " + INSTANCE_TRANSFORM_ATTRIBUTE + " )",
+		"#define NORMAL_MATRIX ( gl_NormalMatrix * " + INSTANCE_NORMAL_MATRIX_ATTRIBUTE + " )"
+	};
+
 	/**
 	 * Shader implementation to be used.
 	 */
@@ -72,6 +112,22 @@ public class ShaderManager
 	 */
 	private boolean _multiPassLightingEnabled = false;
 
+	/**
+	 * Whether instanced shader programs are available.
+	 */
+	private boolean _instancingAvailable = false;
+
+	/**
+	 * Whether instanced shader programs should be used.
+	 */
+	private boolean _instancingEnabled = false;
+
+	/**
+	 * Reflectivity properties set using {@link #setReflectivity}, which are
+	 * re-applied when switching between regular and instanced programs.
+	 */
+	private final float[] _reflectivity = new float[ 5 ];
+
 	/**
 	 * Constructs a new shader manager.
 	 *
@@ -95,13 +151,13 @@ public class ShaderManager
 		/*
 		 * Load vertex and fragment shaders.
 		 */
-		register( "lighting-vertex", loadShader( Shader.Type.VERTEX, "lighting-vertex.glsl" ) );
+		register( "lighting-vertex", loadShader( Shader.Type.VERTEX, "lighting-vertex.glsl", VERTEX_MATRICES ) );
 		register( "lighting-fragment-single", loadShader( Shader.Type.FRAGMENT, "lighting-fragment.glsl" ) );
 		register( "lighting-fragment-multi", loadShader( Shader.Type.FRAGMENT, "lighting-fragment.glsl", "#define MULTIPASS_LIGHTING" ) );
 		register( "material-vertex", loadShader( Shader.Type.VERTEX, "material-vertex.glsl" ) );
 		register( "material-fragment", loadShader( Shader.Type.FRAGMENT, "material-fragment.glsl" ) );
 
-		register( "shadow-vertex", loadShader( Shader.Type.VERTEX, "shadow-vertex.glsl" ) );
+		register( "shadow-vertex", loadShader( Shader.Type.VERTEX, "shadow-vertex.glsl", VERTEX_MATRICES ) );
 		register( "shadow-fragment-disabled", loadShader( Shader.Type.FRAGMENT, "shadow-fragment-disabled.glsl" ) );
 //		register( "shadow-fragment", loadShader( Shader.Type.FRAGMENT, "shadow-fragment.glsl" ) );
 		register( "shadow-fragment", loadShader( Shader.Type.FRAGMENT, "shadow-fragment-multisample.glsl" ) );
@@ -109,66 +165,148 @@ public class ShaderManager
 		/*
 		 * Generate 'main' functions for various shader usages.
 		 */
-		register( "unlit-vertex", createVertexShaderMain( "color", null ) );
+		register( "unlit-vertex", createVertexShaderMain( "color", null, false ) );
 		register( "unlit-fragment", createFragmentShaderMain( "color", null ) );
-		register( "colored-vertex", createVertexShaderMain( "color", "lighting" ) );
+		register( "colored-vertex", createVertexShaderMain( "color", "lighting", false ) );
 		register( "colored-fragment", createFragmentShaderMain( "color", "lighting" ) );
-		register( "textured-vertex", createVertexShaderMain( "texture", "lighting" ) );
+		register( "textured-vertex", createVertexShaderMain( "texture", "lighting", false ) );
 		register( "textured-fragment", createFragmentShaderMain( "texture", "lighting" ) );
 
-		/*
-		 * Create distinct shader programs for the various kinds of rendering
-		 * that occur during a single rendering pass.
-		 */
+		createShaderPrograms( "" );
+	}
 
+	/**
+	 * Initializes instanced variants of the shader programs, which take the
+	 * object transform from the {@link #INSTANCE_TRANSFORM_ATTRIBUTE} vertex
+	 * attribute instead of the model-view matrix. This requires support for
+	 * instanced arrays (OpenGL 3.3 or ARB_instanced_arrays and
+	 * ARB_draw_instanced). If the shaders can't be compiled or linked, the
+	 * instanced programs are simply not used.
+	 *
+	 * @return {@code true} if instanced shader programs are available.
+	 *
+	 * @throws IOException if there was a problem reading a shader file.
+	 */
+	public boolean initInstancing()
+		throws IOException
+	{
+		if ( !_instancingAvailable && isShaderSupportAvailable() )
+		{
+			try
+			{
+				register( "lighting-vertex" + INSTANCED_SUFFIX, loadShader( Shader.Type.VERTEX, "lighting-vertex.glsl", INSTANCED_VERTEX_MATRICES ) );
+				register( "shadow-vertex" + INSTANCED_SUFFIX, loadShader( Shader.Type.VERTEX, "shadow-vertex.glsl", INSTANCED_VERTEX_MATRICES ) );
+				register( "unlit-vertex" + INSTANCED_SUFFIX, createVertexShaderMain( "color", null, true ) );
+				register( "colored-vertex" + INSTANCED_SUFFIX, createVertexShaderMain( "color", "lighting", true ) );
+				register( "textured-vertex" + INSTANCED_SUFFIX, createVertexShaderMain( "texture", "lighting", true ) );
+
+				createShaderPrograms( INSTANCED_SUFFIX );
+
+				for ( final Map.Entry<String, ShaderProgram> entry : _shaderPrograms.entrySet() )
+				{
+					if ( entry.getKey().endsWith( INSTANCED_SUFFIX ) )
+					{
+						entry.getValue().link();
+					}
+				}
+
+				_instancingAvailable = true;
+			}
+			catch ( GLException e )
+			{
+				System.out.println( "ShaderManager: Instancing not available: " + e.getMessage() );
+				disposeInstancing();
+			}
+		}
+
+		return _instancingAvailable;
+	}
+
+	/**
+	 * Releases instanced shaders and shader programs.
+	 */
+	private void disposeInstancing()
+	{
+		for ( final Iterator<Map.Entry<String, ShaderProgram>> iterator = _shaderPrograms.entrySet().iterator(); iterator.hasNext(); )
+		{
+			final Map.Entry<String, ShaderProgram> entry = iterator.next();
+			if ( entry.getKey().endsWith( INSTANCED_SUFFIX ) )
+			{
+				entry.getValue().dispose();
+				iterator.remove();
+			}
+		}
+
+		for ( final Iterator<Map.Entry<String, Shader>> iterator = _shaders.entrySet().iterator(); iterator.hasNext(); )
+		{
+			final Map.Entry<String, Shader> entry = iterator.next();
+			if ( entry.getKey().endsWith( INSTANCED_SUFFIX ) )
+			{
+				entry.getValue().dispose();
+				iterator.remove();
+			}
+		}
+
+		_instancingAvailable = false;
+	}
+
+	/**
+	 * Creates distinct shader programs for the various kinds of rendering
+	 * that occur during a single rendering pass.
+	 *
+	 * @param vertexSuffix Suffix of the vertex shaders and the shader programs
+	 *                     to create, e.g. to create instanced variants.
+	 */
+	private void createShaderPrograms( final String vertexSuffix )
+	{
 		// No shadows at all.
-		createShaderProgram( "unlit",
-		                     "unlit-vertex", "unlit-fragment",
+		createShaderProgram( "unlit" + vertexSuffix,
+		                     "unlit-vertex" + vertexSuffix, "unlit-fragment",
 		                     "material-vertex", "material-fragment",
-		                     "shadow-vertex", "shadow-fragment-disabled" );
+		                     "shadow-vertex" + vertexSuffix, "shadow-fragment-disabled" );
 
-		createShaderProgram( "colored",
-		                     "colored-vertex", "colored-fragment",
+		createShaderProgram( "colored" + vertexSuffix,
+		                     "colored-vertex" + vertexSuffix, "colored-fragment",
 		                     "material-vertex", "material-fragment",
-		                     "lighting-vertex", "lighting-fragment-single",
-		                     "shadow-vertex", "shadow-fragment-disabled" );
+		                     "lighting-vertex" + vertexSuffix, "lighting-fragment-single",
+		                     "shadow-vertex" + vertexSuffix, "shadow-fragment-disabled" );
 
-		createShaderProgram( "textured",
-		                     "textured-vertex", "textured-fragment",
+		createShaderProgram( "textured" + vertexSuffix,
+		                     "textured-vertex" + vertexSuffix, "textured-fragment",
 		                     "material-vertex", "material-fragment",
-		                     "lighting-vertex", "lighting-fragment-single",
-		                     "shadow-vertex", "shadow-fragment-disabled" );
+		                     "lighting-vertex" + vertexSuffix, "lighting-fragment-single",
+		                     "shadow-vertex" + vertexSuffix, "shadow-fragment-disabled" );
 
 		// No shadows right now, but still rendered with multi-pass lighting.
-		createShaderProgram( "colored-multi",
-		                     "colored-vertex", "colored-fragment",
+		createShaderProgram( "colored-multi" + vertexSuffix,
+		                     "colored-vertex" + vertexSuffix, "colored-fragment",
 		                     "material-vertex", "material-fragment",
-		                     "lighting-vertex", "lighting-fragment-multi",
-		                     "shadow-vertex", "shadow-fragment-disabled" );
+		                     "lighting-vertex" + vertexSuffix, "lighting-fragment-multi",
+		                     "shadow-vertex" + vertexSuffix, "shadow-fragment-disabled" );
 
-		createShaderProgram( "textured-multi",
-		                     "textured-vertex", "textured-fragment",
+		createShaderProgram( "textured-multi" + vertexSuffix,
+		                     "textured-vertex" + vertexSuffix, "textured-fragment",
 		                     "material-vertex", "material-fragment",
-		                     "lighting-vertex", "lighting-fragment-multi",
-		                     "shadow-vertex", "shadow-fragment-disabled" );
+		                     "lighting-vertex" + vertexSuffix, "lighting-fragment-multi",
+		                     "shadow-vertex" + vertexSuffix, "shadow-fragment-disabled" );
 
 		// Shadows enabled, rendered with multi-pass lighting.
-		createShaderProgram( "unlit-shadow",
-		                     "unlit-vertex", "unlit-fragment",
+		createShaderProgram( "unlit-shadow" + vertexSuffix,
+		                     "unlit-vertex" + vertexSuffix, "unlit-fragment",
 		                     "material-vertex", "material-fragment",
-		                     "shadow-vertex", "shadow-fragment" );
+		                     "shadow-vertex" + vertexSuffix, "shadow-fragment" );
 
-		createShaderProgram( "colored-shadow",
-		                     "colored-vertex", "colored-fragment",
+		createShaderProgram( "colored-shadow" + vertexSuffix,
+		                     "colored-vertex" + vertexSuffix, "colored-fragment",
 		                     "material-vertex", "material-fragment",
-		                     "lighting-vertex", "lighting-fragment-multi",
-		                     "shadow-vertex", "shadow-fragment" );
+		                     "lighting-vertex" + vertexSuffix, "lighting-fragment-multi",
+		                     "shadow-vertex" + vertexSuffix, "shadow-fragment" );
 
-		createShaderProgram( "textured-shadow",
-		                     "textured-vertex", "textured-fragment",
+		createShaderProgram( "textured-shadow" + vertexSuffix,
+		                     "textured-vertex" + vertexSuffix, "textured-fragment",
 		                     "material-vertex", "material-fragment",
-		                     "lighting-vertex", "lighting-fragment-multi",
-		                     "shadow-vertex", "shadow-fragment" );
+		                     "lighting-vertex" + vertexSuffix, "lighting-fragment-multi",
+		                     "shadow-vertex" + vertexSuffix, "shadow-fragment" );
 	}
 
 	/**
@@ -252,6 +390,79 @@ public class ShaderManager
 		update();
 	}
 
+	/**
+	 * Sets whether instanced shader programs should be used, if available.
+	 *
+	 * @param   instancingEnabled   <code>true</code> to enable instancing.
+	 *
+	 * @see     #initInstancing()
+	 */
+	public void setInstancingEnabled( final boolean instancingEnabled )
+	{
+		final ShaderProgram previous = _activeShaderProgram;
+		_instancingEnabled = instancingEnabled;
+		update();
+
+		final ShaderProgram active = _activeShaderProgram;
+		if ( ( active != null ) && ( active != previous ) )
+		{
+			final float[] reflectivity = _reflectivity;
+			setReflectivity( reflectivity[ 0 ], reflectivity[ 1 ], reflectivity[ 2 ], reflectivity[ 3 ], reflectivity[ 4 ] );
+		}
+	}
+
+	/**
+	 * Returns whether instanced shader programs are available.
+	 *
+	 * @return  <code>true</code> if instancing is available.
+	 */
+	public boolean isInstancingAvailable()
+	{
+		return _instancingAvailable;
+	}
+
+	/**
+	 * Returns the location of the {@link #INSTANCE_TRANSFORM_ATTRIBUTE} vertex
+	 * attribute of the currently active shader program. The attribute
+	 * occupies four consecutive locations, one for each matrix column.
+	 *
+	 * @return  Attribute location; <code>-1</code> if no instanced shader
+	 *          program is active.
+	 */
+	public int getInstanceTransformLocation()
+	{
+		int result = -1;
+
+		final ShaderProgram active = _activeShaderProgram;
+		if ( ( active != null ) && _instancingEnabled && _instancingAvailable )
+		{
+			result = active.getAttributeLocation( INSTANCE_TRANSFORM_ATTRIBUTE );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the location of the {@link #INSTANCE_NORMAL_MATRIX_ATTRIBUTE}
+	 * vertex attribute of the currently active shader program. The attribute
+	 * occupies three consecutive locations, one for each matrix column.
+	 *
+	 * @return  Attribute location; <code>-1</code> if no instanced shader
+	 *          program is active or the program does not use normals.
+	 */
+	public int getInstanceNormalMatrixLocation()
+	{
+		int result = -1;
+
+		final ShaderProgram active = _activeShaderProgram;
+		if ( ( active != null ) && _instancingEnabled && _instancingAvailable )
+		{
+			result = active.getAttributeLocation( INSTANCE_NORMAL_MATRIX_ATTRIBUTE );
+		}
+
+		return result;
+	}
+
 	/**
 	 * Sets the reflectivity properties of the currently active shader.
 	 *
@@ -263,6 +474,13 @@ public class ShaderManager
 	 */
 	public void setReflectivity( final float reflectionMin, final float reflectionMax, final float reflectionRed, final float reflectionGreen, final float reflectionBlue )
 	{
+		final float[] reflectivity = _reflectivity;
+		reflectivity[ 0 ] = reflectionMin;
+		reflectivity[ 1 ] = reflectionMax;
+		reflectivity[ 2 ] = reflectionRed;
+		reflectivity[ 3 ] = reflectionGreen;
+		reflectivity[ 4 ] = reflectionBlue;
+
 		final ShaderProgram active = _activeShaderProgram;
 		if ( active != null )
 		{
@@ -314,6 +532,30 @@ public class ShaderManager
 			result = getShaderProgram( shadowsEnabled ? "unlit-shadow" : "unlit" );
 		}
 
+		return ( _instancingEnabled && _instancingAvailable && ( result != null ) ) ? getInstancedShaderProgram( result ) : result;
+	}
+
+	/**
+	 * Returns the instanced variant of the given shader program.
+	 *
+	 * @param   shaderProgram   Shader program.
+	 *
+	 * @return  Instanced shader program; <code>null</code> if not available.
+	 */
+	@Nullable
+	private ShaderProgram getInstancedShaderProgram( @NotNull final ShaderProgram shaderProgram )
+	{
+		ShaderProgram result = null;
+
+		for ( final Map.Entry<String, ShaderProgram> entry : _shaderPrograms.entrySet() )
+		{
+			if ( entry.getValue() == shaderProgram )
+			{
+				result = getShaderProgram( entry.getKey() + INSTANCED_SUFFIX );
+				break;
+			}
+		}
+
 		return result;
 	}
 
@@ -443,6 +685,7 @@ public class ShaderManager
 			shader.dispose();
 		}
 		_shaders.clear();
+		_instancingAvailable = false;
 
 		useShader( null );
 	}
@@ -456,11 +699,13 @@ public class ShaderManager
 	 * @param   lightingFunction    Name of the lighting function, defined
 	 *                              in another vertex shader;
 	 *                              <code>null</code> to use no lighting.
+	 * @param   instanced           Whether the object transform is provided
+	 *                              per instance.
 	 *
 	 * @return  Created vertex shader.
 	 */
 	@Nullable
-	private Shader createVertexShaderMain( @NotNull final String colorFunction, @Nullable final String lightingFunction )
+	private Shader createVertexShaderMain( @NotNull final String colorFunction, @Nullable final String lightingFunction, final boolean instanced )
 	{
 		Shader result = null;
 
@@ -469,6 +714,15 @@ public class ShaderManager
 		{
 			final StringBuilder source = new StringBuilder();
 
+			if ( instanced )
+			{
+				for ( final String line : INSTANCED_VERTEX_MATRICES )
+				{
+					source.append( line );
+					source.append( '\n' );
+				}
+			}
+
 			source.append( "void " );
 			source.append( colorFunction );
 			source.append( "();\n" );
@@ -485,7 +739,7 @@ public class ShaderManager
 			source.append( "void main()\n" );
 			source.append( "{\n" );
 
-			source.append( "\tgl_Position = ftransform();\n" );
+			source.append( instanced ? "\tgl_Position = gl_ProjectionMatrix * ( MODEL_VIEW_MATRIX * gl_Vertex );\n" : "\tgl_Position = ftransform();\n" );
 			source.append( "\t" );
 			source.append( colorFunction );
 			source.append( "();\n" );
@@ -67,6 +67,17 @@ public interface ShaderProgram
 	@Nullable
 	String getInfoLog();
 
+	/**
+	 * Returns the location of the vertex attribute with the given name. If
+	 * necessary, the program is automatically linked.
+	 *
+	 * @param   identifier  Name of the attribute.
+	 *
+	 * @return  Attribute location; <code>-1</code> if the program has no
+	 *          active attribute with the given name.
+	 */
+	int getAttributeLocation( String identifier );
+
 	/**
 	 * Activates the shader program, replacing OpenGL's fixed functionality.
 	 * Note that at most one shader program can be active at any given time.
@@ -413,6 +413,25 @@ public abstract class VertexBufferObject
 		_vertexFormat.disable( gl );
 	}
 
+	/**
+	 * Performs the draw operations needed to draw multiple instances of the
+	 * geometry stored in the buffer. Requires OpenGL 3.1 or the
+	 * ARB_draw_instanced extension.
+	 *
+	 * @param   gl              OpenGL interface.
+	 * @param   instanceCount   Number of instances to draw.
+	 */
+	protected void performDrawOperations( final GL gl, final int instanceCount )
+	{
+		final GL2ES3 gl3 = gl.getGL2ES3();
+		_vertexFormat.enable( gl );
+		for ( final DrawOperation drawOperation : _drawOperations )
+		{
+			drawOperation.drawInstanced( gl3, instanceCount );
+		}
+		_vertexFormat.disable( gl );
+	}
+
 	/**
 	 * A draw operation performed using the vertex buffer.
 	 */
@@ -424,6 +443,14 @@ public abstract class VertexBufferObject
 		 * @param   gl  GL object.
 		 */
 		void draw( GL gl );
+
+		/**
+		 * Performs the draw operation for multiple instances on the given GL.
+		 *
+		 * @param   gl              GL object.
+		 * @param   instanceCount   Number of instances to draw.
+		 */
+		void drawInstanced( GL2ES3 gl, int instanceCount );
 	}
 
 	/**
@@ -466,6 +493,11 @@ public abstract class VertexBufferObject
 			gl.glDrawArrays( _mode, _start, _count );
 		}
 
+		public void drawInstanced( final GL2ES3 gl, final int instanceCount )
+		{
+			gl.glDrawArraysInstanced( _mode, _start, _count, instanceCount );
+		}
+
 		@Override
 		public String toString()
 		{
@@ -520,13 +552,18 @@ public abstract class VertexBufferObject
 		{
 			gl.glDrawElements( _mode, _count, _type, _indices );
 		}
+
+		public void drawInstanced( final GL2ES3 gl, final int instanceCount )
+		{
+			gl.glDrawElementsInstanced( _mode, _count, _type, _indices, instanceCount );
+		}
 	}
 
 	/**
 	 * Specifies which attributes are specified for each vertex and which data
 	 * types are used.
 	 */
-	private interface VertexFormat
+	interface VertexFormat
 	{
 		/**
 		 * Enables drawing of geometry with this vertex format.
@@ -560,13 +597,24 @@ public abstract class VertexBufferObject
 		 * @param   faceGroup       Face group containing the face.
 		 */
 		void encode( @NotNull ByteBuffer target, int vertexIndex, @NotNull Face3D face, @NotNull FaceGroup faceGroup );
+
+		/**
+		 * Adds the given corner of a compact face group at the current
+		 * position in the given byte buffer, encoded using this vertex format.
+		 *
+		 * @param   target          Byte buffer to add the vertex to.
+		 * @param   corner          Index of the corner.
+		 * @param   faceNormal      Normal of the face that contains the corner.
+		 * @param   faceGroup       Face group containing the corner.
+		 */
+		void encode( @NotNull ByteBuffer target, int corner, @NotNull Vector3D faceNormal, @NotNull CompactFaceGroup faceGroup );
 	}
 
 	/**
 	 * A typical vertex format that specifies the vertex coordinate, vertex
 	 * normal and a single texture coordinate, using 32-bit floating points.
 	 */
-	private static class DefaultVertexFormat
+	static class DefaultVertexFormat
 		implements VertexFormat
 	{
 		public int getBytesPerVertex()
@@ -620,12 +668,40 @@ public abstract class VertexBufferObject
 			target.putFloat( vertex.colorMapU );
 			target.putFloat( vertex.colorMapV );
 		}
+
+		public void encode( @NotNull final ByteBuffer target, final int corner, @NotNull final Vector3D faceNormal, @NotNull final CompactFaceGroup faceGroup )
+		{
+			final int vertex = faceGroup.getCornerVertices()[ corner ];
+
+			final double[] positions = faceGroup.getPositions();
+			target.putFloat( (float)positions[ vertex * 3 ] );
+			target.putFloat( (float)positions[ vertex * 3 + 1 ] );
+			target.putFloat( (float)positions[ vertex * 3 + 2 ] );
+
+			final float[] normals = faceGroup.getNormals();
+			if ( faceGroup.isSmooth() && ( normals != null ) && !Float.isNaN( normals[ vertex * 3 ] ) )
+			{
+				target.putFloat( normals[ vertex * 3 ] );
+				target.putFloat( normals[ vertex * 3 + 1 ] );
+				target.putFloat( normals[ vertex * 3 + 2 ] );
+			}
+			else
+			{
+				target.putFloat( (float)faceNormal.x );
+				target.putFloat( (float)faceNormal.y );
+				target.putFloat( (float)faceNormal.z );
+			}
+
+			final float[] texCoords = faceGroup.getTexCoords();
+			target.putFloat( ( texCoords != null ) ? texCoords[ vertex * 2 ] : Float.NaN );
+			target.putFloat( ( texCoords != null ) ? texCoords[ vertex * 2 + 1 ] : Float.NaN );
+		}
 	}
 
 	/**
 	 * A vertex format that only specifies the vertex coordinate.
 	 */
-	private static class SimpleVertexFormat
+	static class SimpleVertexFormat
 		implements VertexFormat
 	{
 		public int getBytesPerVertex()
@@ -655,5 +731,14 @@ public abstract class VertexBufferObject
 			target.putFloat( (float)vertex.point.y );
 			target.putFloat( (float)vertex.point.z );
 		}
+
+		public void encode( @NotNull final ByteBuffer target, final int corner, @NotNull final Vector3D faceNormal, @NotNull final CompactFaceGroup faceGroup )
+		{
+			final int vertex = faceGroup.getCornerVertices()[ corner ];
+			final double[] positions = faceGroup.getPositions();
+			target.putFloat( (float)positions[ vertex * 3 ] );
+			target.putFloat( (float)positions[ vertex * 3 + 1 ] );
+			target.putFloat( (float)positions[ vertex * 3 + 2 ] );
+		}
 	}
 }
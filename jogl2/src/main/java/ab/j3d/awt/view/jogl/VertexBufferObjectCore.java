@@ -43,6 +43,11 @@ public class VertexBufferObjectCore
 	 */
 	private int _vertexBufferObject;
 
+	/**
+	 * Size of the vertex buffer object in bytes.
+	 */
+	private final long _sizeInBytes;
+
 	/**
 	 * Constructs a new vertex buffer object for the geometry of the given
 	 * face groups.
@@ -66,6 +71,7 @@ public class VertexBufferObjectCore
 		 * Create the buffer data.
 		 */
 		final ByteBuffer vertexBuffer = createBufferData( faceGroups, type );
+		_sizeInBytes = (long)vertexBuffer.remaining();
 
 		/*
 		 * Copy the buffered data into the vertex buffer object.
@@ -83,6 +89,24 @@ public class VertexBufferObjectCore
 		gl.glBindBuffer( GL.GL_ARRAY_BUFFER, 0 );
 	}
 
+	public boolean isInstancingSupported()
+	{
+		return true;
+	}
+
+	public void drawInstanced( final int instanceCount )
+	{
+		final GL gl = GLU.getCurrentGL();
+		gl.glBindBuffer( GL.GL_ARRAY_BUFFER, _vertexBufferObject );
+		performDrawOperations( gl, instanceCount );
+		gl.glBindBuffer( GL.GL_ARRAY_BUFFER, 0 );
+	}
+
+	public long getSizeInBytes()
+	{
+		return _sizeInBytes;
+	}
+
 	public void delete()
 	{
 		final GL gl = GLU.getCurrentGL();
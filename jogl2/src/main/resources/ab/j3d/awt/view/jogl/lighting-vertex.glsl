@@ -7,6 +7,6 @@ varying vec3 normal;
 void lighting()
 {
 	// source: http://www.clockworkcoders.com/oglsl/tutorial5.htm
-	vertex = ( gl_ModelViewMatrix * gl_Vertex ).xyz;
-	normal = gl_NormalMatrix * gl_Normal;
+	vertex = ( MODEL_VIEW_MATRIX * gl_Vertex ).xyz;
+	normal = NORMAL_MATRIX * gl_Normal;
 }
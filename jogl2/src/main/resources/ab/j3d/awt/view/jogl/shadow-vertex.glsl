@@ -2,5 +2,5 @@ varying vec4 v_shadowCoord;
 
 void shadow()
 {
-	v_shadowCoord = gl_TextureMatrix[ TEXTURE_UNIT_SHADOW ] * gl_ModelViewMatrix * gl_Vertex;
+	v_shadowCoord = gl_TextureMatrix[ TEXTURE_UNIT_SHADOW ] * MODEL_VIEW_MATRIX * gl_Vertex;
 }
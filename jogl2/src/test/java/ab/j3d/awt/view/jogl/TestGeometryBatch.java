@@ -0,0 +1,237 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.nio.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.geom.*;
+import ab.j3d.model.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link GeometryBatch}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestGeometryBatch
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestGeometryBatch.class.getName();
+
+	/**
+	 * Tests that faces are packed as indexed triangles that match the
+	 * tessellation of each face.
+	 */
+	@Test
+	public void testFaces()
+	{
+		System.out.println( CLASS_NAME + ".testFaces" );
+
+		final List<FaceGroup> faceGroups = new ArrayList<FaceGroup>();
+		faceGroups.addAll( new Box3D( 10.0, 20.0, 30.0, null, null ).getFaceGroups() );
+		faceGroups.addAll( new Sphere3D( 10.0, 8, 6, null ).getFaceGroups() );
+		faceGroups.addAll( new Cylinder3D( 20.0, 5.0, 12, null, null, true, null, null, null, null, false ).getFaceGroups() );
+
+		final GeometryBatch batch = new GeometryBatch( GeometryType.FACES );
+		final List<GeometryBatch.Range> ranges = new ArrayList<GeometryBatch.Range>();
+		for ( final FaceGroup faceGroup : faceGroups )
+		{
+			ranges.add( batch.add( faceGroup ) );
+		}
+
+		int vertexCount = 0;
+		int indexCount = 0;
+		for ( final GeometryBatch.Range range : ranges )
+		{
+			assertEquals( "Unexpected vertex offset.", vertexCount, range.getVertexOffset() );
+			assertEquals( "Unexpected index offset.", indexCount, range.getIndexOffset() );
+			assertEquals( "Unexpected vertex count.", expectedTriangleVertices( range.getFaceGroup() ).size(), range.getIndexCount() );
+			vertexCount += range.getVertexCount();
+			indexCount += range.getIndexCount();
+		}
+		assertEquals( "Unexpected vertex count.", vertexCount, batch.getVertexCount() );
+		assertEquals( "Unexpected index count.", indexCount, batch.getIndexCount() );
+
+		for ( final GeometryBatch.Range range : ranges )
+		{
+			assertRange( batch, range, expectedTriangleVertices( range.getFaceGroup() ) );
+		}
+	}
+
+	/**
+	 * Tests that outlines are packed as indexed lines.
+	 */
+	@Test
+	public void testOutlines()
+	{
+		System.out.println( CLASS_NAME + ".testOutlines" );
+
+		final Object3D box = new Box3D( 10.0, 20.0, 30.0, null, null );
+		final GeometryBatch batch = new GeometryBatch( GeometryType.OUTLINES );
+		for ( final FaceGroup faceGroup : box.getFaceGroups() )
+		{
+			final GeometryBatch.Range range = batch.add( faceGroup );
+
+			final List<Vector3D> expected = new ArrayList<Vector3D>();
+			for ( final Face3D face : faceGroup.getFaces() )
+			{
+				for ( final int[] outline : face.getOutlines() )
+				{
+					for ( int i = 0; i < outline.length - 1; i++ )
+					{
+						expected.add( face.getVertex( outline[ i ] ).point );
+						expected.add( face.getVertex( outline[ i + 1 ] ).point );
+					}
+				}
+			}
+
+			assertRange( batch, range, expected );
+		}
+	}
+
+	/**
+	 * Tests that removed face groups are reclaimed by compaction, without
+	 * affecting the geometry of other face groups.
+	 */
+	@Test
+	public void testCompact()
+	{
+		System.out.println( CLASS_NAME + ".testCompact" );
+
+		final GeometryBatch batch = new GeometryBatch( GeometryType.FACES );
+		final List<GeometryBatch.Range> ranges = new ArrayList<GeometryBatch.Range>();
+		for ( int i = 0; i < 20; i++ )
+		{
+			final Object3D object = new Sphere3D( 10.0 + (double)i, 6 + i, 4 + i / 2, null );
+			for ( final FaceGroup faceGroup : object.getFaceGroups() )
+			{
+				ranges.add( batch.add( faceGroup ) );
+			}
+		}
+
+		final int totalVertexCount = batch.getVertexCount();
+		assertFalse( "No compaction expected yet.", batch.isCompactionNeeded() );
+
+		final List<GeometryBatch.Range> remaining = new ArrayList<GeometryBatch.Range>();
+		for ( int i = 0; i < ranges.size(); i++ )
+		{
+			final GeometryBatch.Range range = ranges.get( i );
+			if ( i % 3 == 0 )
+			{
+				remaining.add( range );
+			}
+			else
+			{
+				batch.remove( range );
+				assertTrue( "Range should be removed.", range.isRemoved() );
+			}
+		}
+
+		assertTrue( "Compaction should be needed.", batch.isCompactionNeeded() );
+		assertFalse( "Batch should not be empty.", batch.isEmpty() );
+		assertEquals( "Removed vertices should still be present.", totalVertexCount, batch.getVertexCount() );
+
+		batch.compact();
+		assertFalse( "No compaction expected after compaction.", batch.isCompactionNeeded() );
+		assertEquals( "Unexpected unused vertex count.", 0, batch.getUnusedVertexCount() );
+
+		int vertexCount = 0;
+		for ( final GeometryBatch.Range range : remaining )
+		{
+			assertEquals( "Unexpected vertex offset.", vertexCount, range.getVertexOffset() );
+			vertexCount += range.getVertexCount();
+			assertRange( batch, range, expectedTriangleVertices( range.getFaceGroup() ) );
+		}
+		assertEquals( "Unexpected vertex count.", vertexCount, batch.getVertexCount() );
+
+		/*
+		 * Add more geometry after compaction.
+		 */
+		final Object3D box = new Box3D( 10.0, 20.0, 30.0, null, null );
+		for ( final FaceGroup faceGroup : box.getFaceGroups() )
+		{
+			final GeometryBatch.Range range = batch.add( faceGroup );
+			assertEquals( "Unexpected vertex offset.", vertexCount, range.getVertexOffset() );
+			vertexCount += range.getVertexCount();
+			assertRange( batch, range, expectedTriangleVertices( faceGroup ) );
+		}
+
+		for ( final GeometryBatch.Range range : remaining )
+		{
+			batch.remove( range );
+		}
+		assertFalse( "Batch should not be empty.", batch.isEmpty() );
+	}
+
+	/**
+	 * Returns the vertex coordinates of the triangles of the given face group.
+	 *
+	 * @param faceGroup Face group.
+	 *
+	 * @return Vertex coordinates.
+	 */
+	private static List<Vector3D> expectedTriangleVertices( final FaceGroup faceGroup )
+	{
+		final List<Vector3D> result = new ArrayList<Vector3D>();
+		for ( final Face3D face : faceGroup.getFaces() )
+		{
+			for ( final TessellationPrimitive primitive : face.getTessellation().getPrimitives() )
+			{
+				for ( final int vertex : primitive.getTriangles() )
+				{
+					result.add( face.getVertex( vertex ).point );
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Asserts that the indexed vertices of the given range match the expected
+	 * vertex coordinates.
+	 *
+	 * @param batch    Batch containing the range.
+	 * @param range    Range to check.
+	 * @param expected Expected vertex coordinates, in index order.
+	 */
+	private static void assertRange( final GeometryBatch batch, final GeometryBatch.Range range, final List<Vector3D> expected )
+	{
+		final int bytesPerVertex = batch.getVertexFormat().getBytesPerVertex();
+		final ByteBuffer vertexData = batch.getVertexData();
+		final ByteBuffer indexData = batch.getIndexData();
+
+		assertEquals( "Unexpected index count.", expected.size(), range.getIndexCount() );
+		for ( int i = 0; i < range.getIndexCount(); i++ )
+		{
+			final int index = indexData.getInt( ( range.getIndexOffset() + i ) * 4 );
+			assertTrue( "Index out of range: " + index, ( index >= range.getVertexOffset() ) && ( index < range.getVertexOffset() + range.getVertexCount() ) );
+
+			final int position = index * bytesPerVertex;
+			final Vector3D point = expected.get( i );
+			assertEquals( "Unexpected x of vertex " + i, point.x, vertexData.getFloat( position ), 1.0e-4 );
+			assertEquals( "Unexpected y of vertex " + i, point.y, vertexData.getFloat( position + 4 ), 1.0e-4 );
+			assertEquals( "Unexpected z of vertex " + i, point.z, vertexData.getFloat( position + 8 ), 1.0e-4 );
+		}
+	}
+}
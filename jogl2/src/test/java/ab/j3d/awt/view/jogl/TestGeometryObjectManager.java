@@ -0,0 +1,292 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.util.*;
+
+import ab.j3d.geom.*;
+import ab.j3d.model.*;
+import org.jetbrains.annotations.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link GeometryObjectManager}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestGeometryObjectManager
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestGeometryObjectManager.class.getName();
+
+	/**
+	 * Size of each geometry object created by the test factory.
+	 */
+	private static final long OBJECT_SIZE = 1000L;
+
+	/**
+	 * Tests that cached geometry objects are reused and that the
+	 * least-recently-used objects are evicted when the cache size is exceeded.
+	 */
+	@Test
+	public void testEviction()
+	{
+		System.out.println( CLASS_NAME + ".testEviction" );
+
+		final List<FaceGroup> faceGroups = createFaceGroups( 4 );
+		final FaceGroup a = faceGroups.get( 0 );
+		final FaceGroup b = faceGroups.get( 1 );
+		final FaceGroup c = faceGroups.get( 2 );
+		final FaceGroup d = faceGroups.get( 3 );
+
+		final GeometryObjectManager manager = new GeometryObjectManager( new TestFactory() );
+		manager.setCacheSize( 3L * OBJECT_SIZE );
+		manager.setUploadBudget( 0L );
+		final GeometryObjectManager.Statistics statistics = manager.getStatistics();
+
+		final TestGeometryObject objectA = (TestGeometryObject)manager.getGeometryObject( a, GeometryType.FACES );
+		final TestGeometryObject objectB = (TestGeometryObject)manager.getGeometryObject( b, GeometryType.FACES );
+		final TestGeometryObject objectC = (TestGeometryObject)manager.getGeometryObject( c, GeometryType.FACES );
+		assertSame( "Expected cached object.", objectA, manager.getGeometryObject( a, GeometryType.FACES ) );
+		final TestGeometryObject outlinesA = (TestGeometryObject)manager.getGeometryObject( a, GeometryType.OUTLINES );
+		assertNotSame( "Expected separate object per geometry type.", objectA, outlinesA );
+		assertEquals( "Unexpected hits.", 1L, statistics.getHits() );
+		assertEquals( "Unexpected misses.", 4L, statistics.getMisses() );
+		assertEquals( "Unexpected resident bytes.", 4L * OBJECT_SIZE, statistics.getResidentBytes() );
+		manager.frameRendered();
+		assertEquals( "Objects used in the last frame should not be evicted.", 0L, statistics.getEvictions() );
+
+		manager.getGeometryObject( a, GeometryType.FACES );
+		final TestGeometryObject objectD = (TestGeometryObject)manager.getGeometryObject( d, GeometryType.FACES );
+		manager.frameRendered();
+
+		assertEquals( "Unexpected evictions.", 2L, statistics.getEvictions() );
+		assertTrue( "Least-recently used object should be evicted.", objectB.isDeleted() );
+		assertTrue( "Least-recently used object should be evicted.", objectC.isDeleted() );
+		assertFalse( "Object should not be evicted.", outlinesA.isDeleted() );
+		assertFalse( "Used object should not be evicted.", objectA.isDeleted() );
+		assertFalse( "Used object should not be evicted.", objectD.isDeleted() );
+		assertEquals( "Unexpected resident bytes.", 3L * OBJECT_SIZE, statistics.getResidentBytes() );
+		assertEquals( "Unexpected resident objects.", 3, statistics.getResidentObjects() );
+
+		final GeometryObject newObjectB = manager.getGeometryObject( b, GeometryType.FACES );
+		assertNotSame( "Evicted object should be recreated.", objectB, newObjectB );
+		assertEquals( "Unexpected misses.", 6L, statistics.getMisses() );
+		assertEquals( "Unexpected uploaded bytes.", 6L * OBJECT_SIZE, statistics.getUploadedBytes() );
+
+		manager.dispose();
+		assertTrue( "Object should be deleted on dispose.", objectA.isDeleted() );
+		assertEquals( "Unexpected resident bytes.", 0L, statistics.getResidentBytes() );
+	}
+
+	/**
+	 * Tests that objects used in the current frame are never evicted, even if
+	 * they don't fit in the cache.
+	 */
+	@Test
+	public void testCurrentFrameNotEvicted()
+	{
+		System.out.println( CLASS_NAME + ".testCurrentFrameNotEvicted" );
+
+		final GeometryObjectManager manager = new GeometryObjectManager( new TestFactory() );
+		manager.setCacheSize( OBJECT_SIZE );
+		manager.setUploadBudget( 0L );
+
+		final List<TestGeometryObject> objects = new ArrayList<TestGeometryObject>();
+		for ( final FaceGroup faceGroup : createFaceGroups( 5 ) )
+		{
+			objects.add( (TestGeometryObject)manager.getGeometryObject( faceGroup, GeometryType.FACES ) );
+		}
+
+		manager.frameRendered();
+		for ( final TestGeometryObject object : objects )
+		{
+			assertFalse( "Objects used in the last frame should not be evicted.", object.isDeleted() );
+		}
+
+		manager.getGeometryObject( createFaceGroups( 6 ).get( 5 ), GeometryType.FACES );
+		manager.frameRendered();
+		for ( final TestGeometryObject object : objects )
+		{
+			assertTrue( "Unused objects should be evicted.", object.isDeleted() );
+		}
+		assertEquals( "Unexpected resident objects.", 1, manager.getStatistics().getResidentObjects() );
+	}
+
+	/**
+	 * Tests that unused objects are evicted after the maximum number of
+	 * unused frames, even if the cache is not full.
+	 */
+	@Test
+	public void testMaximumUnusedFrames()
+	{
+		System.out.println( CLASS_NAME + ".testMaximumUnusedFrames" );
+
+		final List<FaceGroup> faceGroups = createFaceGroups( 2 );
+
+		final GeometryObjectManager manager = new GeometryObjectManager( new TestFactory() );
+		manager.setMaximumUnusedFrames( 2 );
+		final TestGeometryObject unused = (TestGeometryObject)manager.getGeometryObject( faceGroups.get( 0 ), GeometryType.FACES );
+		final TestGeometryObject used = (TestGeometryObject)manager.getGeometryObject( faceGroups.get( 1 ), GeometryType.FACES );
+		manager.frameRendered();
+
+		for ( int i = 0; i < 2; i++ )
+		{
+			manager.getGeometryObject( faceGroups.get( 1 ), GeometryType.FACES );
+			manager.frameRendered();
+			assertFalse( "Object should not be evicted yet.", unused.isDeleted() );
+		}
+
+		manager.getGeometryObject( faceGroups.get( 1 ), GeometryType.FACES );
+		manager.frameRendered();
+		assertTrue( "Object should be evicted.", unused.isDeleted() );
+		assertFalse( "Used object should not be evicted.", used.isDeleted() );
+		assertEquals( "Unexpected evictions.", 1L, manager.getStatistics().getEvictions() );
+	}
+
+	/**
+	 * Tests that uploads exceeding the per-frame upload budget are deferred
+	 * to later frames.
+	 */
+	@Test
+	public void testUploadBudget()
+	{
+		System.out.println( CLASS_NAME + ".testUploadBudget" );
+
+		final List<FaceGroup> faceGroups = createFaceGroups( 5 );
+
+		final GeometryObjectManager manager = new GeometryObjectManager( new TestFactory() );
+		manager.setUploadBudget( 2L * OBJECT_SIZE );
+		final GeometryObjectManager.Statistics statistics = manager.getStatistics();
+
+		final List<GeometryObject> objects = new ArrayList<GeometryObject>();
+		for ( final FaceGroup faceGroup : faceGroups )
+		{
+			objects.add( manager.getGeometryObject( faceGroup, GeometryType.FACES ) );
+		}
+
+		assertTrue( "Expected upload.", objects.get( 0 ) instanceof TestGeometryObject );
+		assertTrue( "Expected upload.", objects.get( 1 ) instanceof TestGeometryObject );
+		assertTrue( "Expected deferred upload.", objects.get( 2 ) instanceof ImmediateModeGeometryObject );
+		assertSame( "Deferred object should be reused within a frame.", objects.get( 2 ), manager.getGeometryObject( faceGroups.get( 2 ), GeometryType.FACES ) );
+		assertEquals( "Unexpected deferred count.", 3L, statistics.getDeferred() );
+		assertEquals( "Unexpected uploaded bytes.", 2L * OBJECT_SIZE, statistics.getUploadedBytes() );
+		manager.frameRendered();
+
+		for ( final FaceGroup faceGroup : faceGroups )
+		{
+			manager.getGeometryObject( faceGroup, GeometryType.FACES );
+		}
+		assertEquals( "Unexpected uploaded bytes.", 4L * OBJECT_SIZE, statistics.getUploadedBytes() );
+		assertEquals( "Unexpected deferred count.", 4L, statistics.getDeferred() );
+		manager.frameRendered();
+
+		assertTrue( "Expected upload.", manager.getGeometryObject( faceGroups.get( 4 ), GeometryType.FACES ) instanceof TestGeometryObject );
+		assertEquals( "Unexpected resident objects.", 5, statistics.getResidentObjects() );
+	}
+
+	/**
+	 * Creates the given number of distinct (non-equal) face groups.
+	 *
+	 * @param   count   Number of face groups.
+	 *
+	 * @return  Face groups.
+	 */
+	private static List<FaceGroup> createFaceGroups( final int count )
+	{
+		final List<FaceGroup> result = new ArrayList<FaceGroup>( count );
+		for ( int i = 0; i < count; i++ )
+		{
+			final Object3D box = new Box3D( 1.0 + (double)i, 1.0, 1.0, null, null );
+			result.add( box.getFaceGroups().get( 0 ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Factory that creates {@link TestGeometryObject}s, without using OpenGL.
+	 */
+	private static class TestFactory
+	extends GeometryObjectFactory
+	{
+		@NotNull
+		@Override
+		public GeometryObject newGeometryObject( final List<FaceGroup> faceGroups, final GeometryType type )
+		{
+			return new TestGeometryObject();
+		}
+
+		@Nullable
+		@Override
+		public Implementation getImplementation()
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Geometry object with a fixed size that keeps track of its deletion.
+	 */
+	private static class TestGeometryObject
+	implements GeometryObject
+	{
+		/**
+		 * Whether the object was deleted.
+		 */
+		private boolean _deleted = false;
+
+		public void draw()
+		{
+		}
+
+		public boolean isInstancingSupported()
+		{
+			return false;
+		}
+
+		public void drawInstanced( final int instanceCount )
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		public long getSizeInBytes()
+		{
+			return OBJECT_SIZE;
+		}
+
+		public void delete()
+		{
+			assertFalse( "Object deleted twice.", _deleted );
+			_deleted = true;
+		}
+
+		/**
+		 * Returns whether the object was deleted.
+		 *
+		 * @return  <code>true</code> if the object was deleted.
+		 */
+		public boolean isDeleted()
+		{
+			return _deleted;
+		}
+	}
+}
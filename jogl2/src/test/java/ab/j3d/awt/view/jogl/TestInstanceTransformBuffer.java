@@ -0,0 +1,151 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.nio.*;
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link InstanceTransformBuffer}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestInstanceTransformBuffer
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestInstanceTransformBuffer.class.getName();
+
+	/**
+	 * Tests that transforms are packed in column-major order, such that
+	 * multiplying a point by the packed matrix is equivalent to {@link
+	 * Matrix3D#transform}.
+	 */
+	@Test
+	public void testPack()
+	{
+		System.out.println( CLASS_NAME + ".testPack" );
+
+		final Object3D object = new Box3D( 10.0, 10.0, 10.0, null, null );
+		final List<Node3DPath> paths = new ArrayList<Node3DPath>();
+		for ( int i = 0; i < 5; i++ )
+		{
+			paths.add( new Node3DPath( null, Matrix3D.getTransform( 10.0 * (double)i, 20.0, 30.0 * (double)i, 100.0 * (double)i, -50.0, 25.0 ), object ) );
+		}
+
+		final InstanceTransformBuffer buffer = new InstanceTransformBuffer( 2 );
+		buffer.pack( paths );
+		assertEquals( "Unexpected instance count.", 5, buffer.getInstanceCount() );
+		assertEquals( "Unexpected size.", 5 * InstanceTransformBuffer.BYTES_PER_INSTANCE, buffer.getSizeInBytes() );
+
+		final FloatBuffer floats = buffer.getBuffer();
+		assertEquals( "Unexpected number of floats.", 5 * InstanceTransformBuffer.FLOATS_PER_INSTANCE, floats.remaining() );
+		assertTrue( "Buffer must be direct.", floats.isDirect() );
+
+		final Vector3D point = new Vector3D( 1.0, 2.0, 3.0 );
+		for ( int i = 0; i < paths.size(); i++ )
+		{
+			final float[] matrix = new float[ InstanceTransformBuffer.FLOATS_PER_INSTANCE ];
+			floats.get( matrix );
+
+			final double x = matrix[ 0 ] * point.x + matrix[ 4 ] * point.y + matrix[ 8 ] * point.z + matrix[ 12 ];
+			final double y = matrix[ 1 ] * point.x + matrix[ 5 ] * point.y + matrix[ 9 ] * point.z + matrix[ 13 ];
+			final double z = matrix[ 2 ] * point.x + matrix[ 6 ] * point.y + matrix[ 10 ] * point.z + matrix[ 14 ];
+			final double w = matrix[ 3 ] * point.x + matrix[ 7 ] * point.y + matrix[ 11 ] * point.z + matrix[ 15 ];
+
+			final Vector3D expected = paths.get( i ).getTransform().transform( point );
+			assertEquals( "Unexpected x for instance " + i, expected.x, x, 1.0e-3 );
+			assertEquals( "Unexpected y for instance " + i, expected.y, y, 1.0e-3 );
+			assertEquals( "Unexpected z for instance " + i, expected.z, z, 1.0e-3 );
+			assertEquals( "Unexpected w for instance " + i, 1.0, w, 0.0 );
+		}
+	}
+
+	/**
+	 * Tests that the normal matrix keeps normals perpendicular to the surface
+	 * for an instance that is scaled non-uniformly.
+	 */
+	@Test
+	public void testNormalMatrix()
+	{
+		System.out.println( CLASS_NAME + ".testNormalMatrix" );
+
+		final Object3D object = new Box3D( 10.0, 10.0, 10.0, null, null );
+		final Matrix3D transform = Matrix3D.getScaleTransform( 4.0, 1.0, 0.5 ).multiply( Matrix3D.getTransform( 30.0, 45.0, 60.0, 10.0, 20.0, 30.0 ) );
+
+		final InstanceTransformBuffer buffer = new InstanceTransformBuffer( 1 );
+		buffer.pack( Collections.singletonList( new Node3DPath( null, transform, object ) ) );
+
+		final float[] data = new float[ InstanceTransformBuffer.FLOATS_PER_INSTANCE ];
+		buffer.getBuffer().get( data );
+		final int offset = InstanceTransformBuffer.NORMAL_MATRIX_OFFSET;
+
+		// surface spanned by two tangents, with a normal perpendicular to both
+		final Vector3D tangent1 = new Vector3D( 1.0, 1.0, 0.0 );
+		final Vector3D tangent2 = new Vector3D( 0.0, 1.0, 1.0 );
+		final Vector3D normal = Vector3D.cross( tangent1, tangent2 );
+
+		final Vector3D transformedNormal = new Vector3D( data[ offset ] * normal.x + data[ offset + 4 ] * normal.y + data[ offset + 8 ] * normal.z,
+		                                                 data[ offset + 1 ] * normal.x + data[ offset + 5 ] * normal.y + data[ offset + 9 ] * normal.z,
+		                                                 data[ offset + 2 ] * normal.x + data[ offset + 6 ] * normal.y + data[ offset + 10 ] * normal.z );
+		assertEquals( "Normal should be perpendicular to first tangent.", 0.0, Vector3D.dot( transformedNormal, transform.rotate( tangent1 ) ), 1.0e-5 );
+		assertEquals( "Normal should be perpendicular to second tangent.", 0.0, Vector3D.dot( transformedNormal, transform.rotate( tangent2 ) ), 1.0e-5 );
+		assertTrue( "Normal should keep its orientation.", Vector3D.dot( transformedNormal, Vector3D.cross( transform.rotate( tangent1 ), transform.rotate( tangent2 ) ) ) > 0.0 );
+
+		final Vector3D rotatedNormal = transform.rotate( normal );
+		assertTrue( "Transforming the normal like a point would not be perpendicular.", Math.abs( Vector3D.dot( rotatedNormal, transform.rotate( tangent1 ) ) ) > 0.1 );
+	}
+
+	/**
+	 * Tests that the buffer is reused when packing fewer instances.
+	 */
+	@Test
+	public void testReuse()
+	{
+		System.out.println( CLASS_NAME + ".testReuse" );
+
+		final Object3D object = new Box3D( 10.0, 10.0, 10.0, null, null );
+		final List<Node3DPath> paths = new ArrayList<Node3DPath>();
+		for ( int i = 0; i < 100; i++ )
+		{
+			paths.add( new Node3DPath( null, Matrix3D.getTranslation( (double)i, 0.0, 0.0 ), object ) );
+		}
+
+		final InstanceTransformBuffer buffer = new InstanceTransformBuffer( 1 );
+		buffer.pack( paths );
+		final FloatBuffer floats = buffer.getBuffer();
+		assertEquals( "Unexpected translation of last instance.", 99.0f, floats.get( 99 * InstanceTransformBuffer.FLOATS_PER_INSTANCE + 12 ), 0.0f );
+
+		buffer.pack( paths.subList( 10, 20 ) );
+		assertSame( "Buffer should be reused.", floats, buffer.getBuffer() );
+		assertEquals( "Unexpected instance count.", 10, buffer.getInstanceCount() );
+		assertEquals( "Unexpected number of floats.", 10 * InstanceTransformBuffer.FLOATS_PER_INSTANCE, floats.remaining() );
+		assertEquals( "Unexpected translation of first instance.", 10.0f, floats.get( 12 ), 0.0f );
+
+		buffer.pack( Collections.<Node3DPath>emptyList() );
+		assertEquals( "Unexpected instance count.", 0, buffer.getInstanceCount() );
+		assertEquals( "Unexpected number of floats.", 0, buffer.getBuffer().remaining() );
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link RenderGroups}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestRenderGroups
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestRenderGroups.class.getName();
+
+	/**
+	 * Tests that paths are grouped by key, in order of first use.
+	 */
+	@Test
+	public void testGrouping()
+	{
+		System.out.println( CLASS_NAME + ".testGrouping" );
+
+		final Object3D box = new Box3D( 10.0, 10.0, 10.0, null, null );
+		final Object3D sphere = new Sphere3D( 10.0, 8, 8, null );
+
+		final List<Node3DPath> boxPaths = new ArrayList<Node3DPath>();
+		final List<Node3DPath> spherePaths = new ArrayList<Node3DPath>();
+
+		final RenderGroups<Object3D> groups = new RenderGroups<Object3D>();
+		groups.beginPass();
+		for ( int i = 0; i < 10; i++ )
+		{
+			final Node3DPath boxPath = new Node3DPath( null, Matrix3D.getTranslation( (double)i, 0.0, 0.0 ), box );
+			groups.add( box, boxPath );
+			boxPaths.add( boxPath );
+
+			if ( i % 2 == 1 )
+			{
+				final Node3DPath spherePath = new Node3DPath( null, Matrix3D.getTranslation( 0.0, (double)i, 0.0 ), sphere );
+				groups.add( sphere, spherePath );
+				spherePaths.add( spherePath );
+			}
+		}
+
+		final List<RenderGroups.PathGroup<Object3D>> passGroups = groups.getPassGroups();
+		assertEquals( "Unexpected number of groups.", 2, passGroups.size() );
+		assertSame( "Unexpected first group.", box, passGroups.get( 0 ).getKey() );
+		assertEquals( "Unexpected box paths.", boxPaths, passGroups.get( 0 ).getPaths() );
+		assertSame( "Unexpected second group.", sphere, passGroups.get( 1 ).getKey() );
+		assertEquals( "Unexpected sphere paths.", spherePaths, passGroups.get( 1 ).getPaths() );
+
+		final List<Node3DPath> retainedPaths = passGroups.get( 0 ).getPaths();
+		groups.endPass();
+		assertTrue( "Pass groups should be cleared.", groups.getPassGroups().isEmpty() );
+		assertTrue( "Paths should be cleared.", retainedPaths.isEmpty() );
+
+		groups.beginPass();
+		groups.add( box, boxPaths.get( 0 ) );
+		assertSame( "Group should be retained.", retainedPaths, groups.getPassGroups().get( 0 ).getPaths() );
+		assertEquals( "Unexpected number of paths.", 1, retainedPaths.size() );
+	}
+
+	/**
+	 * Tests that groups that are not used during a frame are removed.
+	 */
+	@Test
+	public void testFrameRendered()
+	{
+		System.out.println( CLASS_NAME + ".testFrameRendered" );
+
+		final Object3D box = new Box3D( 10.0, 10.0, 10.0, null, null );
+		final Object3D sphere = new Sphere3D( 10.0, 8, 8, null );
+		final Node3DPath boxPath = new Node3DPath( null, Matrix3D.IDENTITY, box );
+		final Node3DPath spherePath = new Node3DPath( null, Matrix3D.IDENTITY, sphere );
+
+		final RenderGroups<Object3D> groups = new RenderGroups<Object3D>();
+
+		// Frame 1: both objects, in two passes.
+		groups.beginPass();
+		groups.add( box, boxPath );
+		groups.endPass();
+		groups.beginPass();
+		groups.add( sphere, spherePath );
+		groups.endPass();
+		groups.frameRendered();
+		assertEquals( "Unexpected number of groups after frame 1.", 2, groups.size() );
+
+		// Frame 2: only the sphere.
+		groups.beginPass();
+		groups.add( sphere, spherePath );
+		groups.frameRendered();
+		assertEquals( "Unexpected number of groups after frame 2.", 1, groups.size() );
+		assertTrue( "Pass groups should be cleared.", groups.getPassGroups().isEmpty() );
+
+		// Frame 3: nothing.
+		groups.beginPass();
+		groups.frameRendered();
+		assertEquals( "Unexpected number of groups after frame 3.", 0, groups.size() );
+	}
+
+	/**
+	 * Tests that mutable lookup keys are copied before they are stored.
+	 */
+	@Test
+	public void testCopyKey()
+	{
+		System.out.println( CLASS_NAME + ".testCopyKey" );
+
+		final Object3D box = new Box3D( 10.0, 10.0, 10.0, null, null );
+		final Node3DPath path = new Node3DPath( null, Matrix3D.IDENTITY, box );
+
+		final RenderGroups<List<String>> groups = new RenderGroups<List<String>>()
+		{
+			@Override
+			protected List<String> copyKey( final List<String> key )
+			{
+				return new ArrayList<String>( key );
+			}
+		};
+
+		final List<String> key = new ArrayList<String>();
+		groups.beginPass();
+		for ( int i = 0; i < 3; i++ )
+		{
+			key.clear();
+			key.add( "key-" + ( i % 2 ) );
+			groups.add( key, path );
+		}
+
+		final List<RenderGroups.PathGroup<List<String>>> passGroups = groups.getPassGroups();
+		assertEquals( "Unexpected number of groups.", 2, passGroups.size() );
+		assertEquals( "Unexpected first key.", Collections.singletonList( "key-0" ), passGroups.get( 0 ).getKey() );
+		assertEquals( "Unexpected number of paths in first group.", 2, passGroups.get( 0 ).getPaths().size() );
+		assertEquals( "Unexpected second key.", Collections.singletonList( "key-1" ), passGroups.get( 1 ).getKey() );
+		assertNotSame( "Key should be copied.", key, passGroups.get( 1 ).getKey() );
+	}
+}
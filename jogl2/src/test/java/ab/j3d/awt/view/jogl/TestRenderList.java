@@ -0,0 +1,134 @@
+/*
+ * AsoBrain 3D Toolkit
+ * Copyright (C) 1999-2019 Peter S. Heijnen
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package ab.j3d.awt.view.jogl;
+
+import java.util.*;
+
+import ab.j3d.*;
+import ab.j3d.model.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link RenderList}.
+ *
+ * @author Peter S. Heijnen
+ */
+public class TestRenderList
+{
+	/**
+	 * Name of this class.
+	 */
+	private static final String CLASS_NAME = TestRenderList.class.getName();
+
+	/**
+	 * Tests that only modified content nodes are re-evaluated and that the
+	 * render list matches the scene after each update.
+	 */
+	@Test
+	public void testUpdate()
+	{
+		System.out.println( CLASS_NAME + ".testUpdate" );
+
+		final Scene scene = new Scene( Scene.MM );
+		scene.addContentNode( "light", Matrix3D.IDENTITY, new DirectionalLight3D( Vector3D.NEGATIVE_Z_AXIS ) );
+		for ( int i = 0; i < 10; i++ )
+		{
+			scene.addContentNode( "box-" + i, Matrix3D.getTranslation( (double)( i * 100 ), 0.0, 0.0 ), new Box3D( 10.0, 10.0, 10.0, null, null ) );
+		}
+
+		final RenderList renderList = new RenderList();
+		renderList.update( scene );
+		assertEquals( "Unexpected number of updated nodes.", 11, renderList.getUpdatedNodeCount() );
+		assertRenderList( scene, renderList );
+		assertEquals( "Unexpected number of lights.", 1, renderList.getLights().size() );
+
+		renderList.update( scene );
+		assertEquals( "Unchanged scene should not be re-evaluated.", 0, renderList.getUpdatedNodeCount() );
+
+		final ContentNode moved = scene.getContentNode( "box-3" );
+		moved.setTransform( Matrix3D.getTranslation( 0.0, 500.0, 0.0 ) );
+		renderList.update( scene );
+		assertEquals( "Only moved node should be re-evaluated.", 1, renderList.getUpdatedNodeCount() );
+		assertRenderList( scene, renderList );
+
+		final ContentNode updated = scene.getContentNode( "box-5" );
+		updated.getNode3D().addChild( new Box3D( 20.0, 20.0, 20.0, null, null ) );
+		updated.fireContentUpdated();
+		renderList.update( scene );
+		assertEquals( "Only updated node should be re-evaluated.", 1, renderList.getUpdatedNodeCount() );
+		assertRenderList( scene, renderList );
+
+		scene.removeContentNode( "box-7" );
+		scene.addContentNode( "added", Matrix3D.IDENTITY, new Box3D( 30.0, 30.0, 30.0, null, null ) );
+		scene.removeContentNode( "light" );
+		renderList.update( scene );
+		assertEquals( "Only added node should be re-evaluated.", 1, renderList.getUpdatedNodeCount() );
+		assertRenderList( scene, renderList );
+		assertTrue( "Removed light should not be listed.", renderList.getLights().isEmpty() );
+
+		scene.setAnimated( true );
+		renderList.update( scene );
+		assertEquals( "Animated scene should be re-evaluated.", scene.getContentNodes().size(), renderList.getUpdatedNodeCount() );
+		assertRenderList( scene, renderList );
+		scene.setAnimated( false );
+
+		final Scene otherScene = new Scene( Scene.MM );
+		otherScene.addContentNode( "box", Matrix3D.IDENTITY, new Box3D( 10.0, 10.0, 10.0, null, null ) );
+		renderList.update( otherScene );
+		assertRenderList( otherScene, renderList );
+
+		scene.getContentNode( "box-1" ).setTransform( Matrix3D.IDENTITY );
+		renderList.update( otherScene );
+		assertEquals( "Previous scene should no longer be tracked.", 0, renderList.getUpdatedNodeCount() );
+
+		renderList.dispose();
+	}
+
+	/**
+	 * Asserts that the render list matches the result of walking the scene.
+	 *
+	 * @param scene      Scene.
+	 * @param renderList Render list.
+	 */
+	private static void assertRenderList( final Scene scene, final RenderList renderList )
+	{
+		final List<ContentNode> contentNodes = scene.getContentNodes();
+		final List<RenderList.NodeEntry> entries = renderList.getEntries();
+		assertEquals( "Unexpected number of entries.", contentNodes.size(), entries.size() );
+
+		for ( int i = 0; i < contentNodes.size(); i++ )
+		{
+			final ContentNode contentNode = contentNodes.get( i );
+			final RenderList.NodeEntry entry = entries.get( i );
+			assertSame( "Unexpected content node.", contentNode, entry.getNode() );
+
+			final Node3DCollector collector = new Node3DCollector( Object3D.class );
+			Node3DTreeWalker.walk( collector, contentNode.getTransform(), contentNode.getNode3D() );
+			final List<Node3DPath> expected = collector.getCollectedNodes();
+			final List<RenderList.ObjectEntry> actual = entry.getObjects();
+			assertEquals( "Unexpected number of objects.", expected.size(), actual.size() );
+			for ( int j = 0; j < expected.size(); j++ )
+			{
+				assertSame( "Unexpected object.", expected.get( j ).getNode(), actual.get( j ).getObject() );
+				assertEquals( "Unexpected transform.", expected.get( j ).getTransform(), actual.get( j ).getPath().getTransform() );
+			}
+		}
+	}
+}